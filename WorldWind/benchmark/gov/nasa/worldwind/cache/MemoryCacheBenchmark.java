@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures memory cache lookups and additions, from one thread and from several threads at once, for each memory
+ * cache implementation. Lookups always find their entries. Additions replace entries in a cache that holds only a
+ * quarter of the keys added, so most additions evict entries.
+ *
+ * @author tag
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MemoryCacheBenchmark
+{
+    protected static final int NUM_KEYS = 1 << 14;
+    protected static final int ENTRY_SIZE = 1000;
+
+    /** The position of a thread in the sequence of keys. */
+    @State(Scope.Thread)
+    public static class Cursor
+    {
+        protected int next;
+
+        @Setup
+        public void setUp()
+        {
+            // Start the threads at different keys.
+            this.next = (int) (Thread.currentThread().getId() * 7919);
+        }
+    }
+
+    @Param({"BasicMemoryCache", "SegmentedMemoryCache"})
+    protected String cacheType;
+
+    protected Object[] keys;
+    protected MemoryCache lookupCache;
+    protected MemoryCache additionCache;
+
+    @Setup
+    public void setUp()
+    {
+        this.keys = new Object[NUM_KEYS];
+        for (int i = 0; i < NUM_KEYS; i++)
+        {
+            this.keys[i] = "Benchmark/Tiles/" + i;
+        }
+
+        long size = (long) NUM_KEYS * ENTRY_SIZE;
+        this.lookupCache = this.createCache((long) (0.85 * 2 * size), 2 * size);
+        for (Object key : this.keys)
+        {
+            this.lookupCache.add(key, key, ENTRY_SIZE);
+        }
+
+        this.additionCache = this.createCache((long) (0.85 * size / 4), size / 4);
+    }
+
+    protected MemoryCache createCache(long loWater, long capacity)
+    {
+        if (this.cacheType.equals("SegmentedMemoryCache"))
+            return new SegmentedMemoryCache(loWater, capacity);
+
+        return new BasicMemoryCache(loWater, capacity);
+    }
+
+    protected Object nextKey(Cursor cursor)
+    {
+        return this.keys[cursor.next++ & (NUM_KEYS - 1)];
+    }
+
+    @Benchmark
+    public Object getObject(Cursor cursor)
+    {
+        return this.lookupCache.getObject(this.nextKey(cursor));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object getObjectContended(Cursor cursor)
+    {
+        return this.lookupCache.getObject(this.nextKey(cursor));
+    }
+
+    @Benchmark
+    public boolean add(Cursor cursor)
+    {
+        Object key = this.nextKey(cursor);
+        return this.additionCache.add(key, key, ENTRY_SIZE);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean addContended(Cursor cursor)
+    {
+        Object key = this.nextKey(cursor);
+        return this.additionCache.add(key, key, ENTRY_SIZE);
+    }
+}
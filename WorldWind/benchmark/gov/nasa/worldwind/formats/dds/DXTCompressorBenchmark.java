@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.formats.dds;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.nio.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures DXT compression of a 512x512 image with partial transparency, comparing {@link DXT1Compressor} and {@link
+ * DXT3Compressor} with {@link PackedDXTCompressor}. The single level benchmarks compress the image alone. The DDS file
+ * benchmarks compress the image and its mip map levels as {@link DDSCompressor} does, with the mip map levels built
+ * from BufferedImages for the original compressors, and from packed pixels on one thread and on as many threads as
+ * there are processors for the packed compressor.
+ *
+ * @author tag
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DXTCompressorBenchmark
+{
+    protected static final int IMAGE_SIZE = 512;
+
+    @Param({"DXT1", "DXT3"})
+    protected String format;
+
+    @Param({"ColorBlockCompressionEuclideanDistance", "ColorBlockCompressionBBox"})
+    protected String compressionType;
+
+    protected BufferedImage image;
+    protected DXTCompressionAttributes attributes;
+    protected DXTCompressor basicCompressor;
+    protected PackedDXTCompressor packedCompressor;
+    protected ByteBuffer buffer;
+    protected DDSCompressor singleThreadCompressor;
+    protected DDSCompressor concurrentCompressor;
+
+    @Setup
+    public void setUp()
+    {
+        Random random = new Random(1);
+        this.image = new BufferedImage(IMAGE_SIZE, IMAGE_SIZE, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < IMAGE_SIZE; y++)
+        {
+            for (int x = 0; x < IMAGE_SIZE; x++)
+            {
+                int a = x < IMAGE_SIZE / 4 ? (4 * y) & 0xFF : 255;
+                int r = (x + random.nextInt(16)) & 0xFF;
+                int g = (y + random.nextInt(16)) & 0xFF;
+                int b = (x + y) & 0xFF;
+                this.image.setRGB(x, y, (a << 24) | (r << 16) | (g << 8) | b);
+            }
+        }
+
+        // The compressors compare the compression type by identity, so use the attributes' constant.
+        this.attributes = DDSCompressor.getDefaultCompressionAttributes();
+        this.attributes.setColorBlockCompressionType(
+            this.compressionType.equals(DXTCompressionAttributes.COLOR_BLOCK_COMPRESSION_BBOX)
+                ? DXTCompressionAttributes.COLOR_BLOCK_COMPRESSION_BBOX
+                : DXTCompressionAttributes.COLOR_BLOCK_COMPRESSION_EUCLIDEAN_DISTANCE);
+
+        int dxtFormat = this.format.equals("DXT1") ? DDSConstants.D3DFMT_DXT1 : DDSConstants.D3DFMT_DXT3;
+        this.basicCompressor = dxtFormat == DDSConstants.D3DFMT_DXT1 ? new DXT1Compressor() : new DXT3Compressor();
+        this.packedCompressor = new PackedDXTCompressor(dxtFormat);
+        this.buffer = ByteBuffer.allocateDirect(this.packedCompressor.getCompressedSize(IMAGE_SIZE, IMAGE_SIZE));
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        this.singleThreadCompressor = new DDSCompressor(1);
+        this.concurrentCompressor = new DDSCompressor(Runtime.getRuntime().availableProcessors());
+    }
+
+    @Benchmark
+    public ByteBuffer basicSingleLevel()
+    {
+        this.buffer.clear();
+        this.basicCompressor.compressImage(this.image, this.attributes, this.buffer);
+        return this.buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer packedSingleLevel()
+    {
+        this.buffer.clear();
+        this.packedCompressor.compressImage(this.image, this.attributes, this.buffer);
+        return this.buffer;
+    }
+
+    @Benchmark
+    public ByteBuffer basicDDSFile()
+    {
+        return this.singleThreadCompressor.doCompressImage(this.basicCompressor, this.image, this.attributes);
+    }
+
+    @Benchmark
+    public ByteBuffer packedDDSFile()
+    {
+        return this.singleThreadCompressor.doCompressImage(this.packedCompressor, this.image, this.attributes);
+    }
+
+    @Benchmark
+    public ByteBuffer packedConcurrentDDSFile()
+    {
+        return this.concurrentCompressor.doCompressImage(this.packedCompressor, this.image, this.attributes);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.geom;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the great circle computations used by paths, measurement tools and view navigation.
+ *
+ * @author tag
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LatLonBenchmark
+{
+    protected LatLon begin;
+    protected LatLon end;
+
+    @Setup
+    public void setUp()
+    {
+        this.begin = LatLon.fromDegrees(34.05, -118.25);
+        this.end = LatLon.fromDegrees(40.71, -74.01);
+    }
+
+    @Benchmark
+    public Angle greatCircleDistance()
+    {
+        return LatLon.greatCircleDistance(this.begin, this.end);
+    }
+
+    @Benchmark
+    public Angle greatCircleAzimuth()
+    {
+        return LatLon.greatCircleAzimuth(this.begin, this.end);
+    }
+
+    @Benchmark
+    public LatLon interpolateGreatCircle()
+    {
+        return LatLon.interpolateGreatCircle(0.5, this.begin, this.end);
+    }
+}
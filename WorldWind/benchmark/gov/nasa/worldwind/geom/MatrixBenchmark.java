@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.geom;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the matrix operations performed when computing view and model transforms.
+ *
+ * @author tag
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatrixBenchmark
+{
+    protected Matrix modelview;
+    protected Matrix projection;
+    protected Vec4 point;
+
+    @Setup
+    public void setUp()
+    {
+        this.modelview = Matrix.fromViewLookAt(new Vec4(1e7, 2e6, 3e6), Vec4.ZERO, Vec4.UNIT_Y).multiply(
+            Matrix.fromRotationXYZ(Angle.fromDegrees(10), Angle.fromDegrees(20), Angle.fromDegrees(30)));
+        this.projection = Matrix.fromPerspective(Angle.fromDegrees(45), 800, 600, 1, 1e7);
+        this.point = new Vec4(6378137, 1000, -2000);
+    }
+
+    @Benchmark
+    public Matrix multiply()
+    {
+        return this.projection.multiply(this.modelview);
+    }
+
+    @Benchmark
+    public Matrix getInverse()
+    {
+        return this.modelview.getInverse();
+    }
+
+    @Benchmark
+    public Matrix fromRotationXYZ()
+    {
+        return Matrix.fromRotationXYZ(Angle.fromDegrees(10), Angle.fromDegrees(20), Angle.fromDegrees(30));
+    }
+
+    @Benchmark
+    public Vec4 transformPoint()
+    {
+        return this.point.transformBy4(this.modelview);
+    }
+}
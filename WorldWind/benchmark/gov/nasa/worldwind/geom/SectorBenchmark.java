@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.geom;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the sector operations used when selecting tiles and shapes.
+ *
+ * @author tag
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SectorBenchmark
+{
+    protected Sector a;
+    protected Sector b;
+    protected LatLon location;
+    protected List<LatLon> locations;
+
+    @Setup
+    public void setUp()
+    {
+        this.a = Sector.fromDegrees(30, 40, -120, -110);
+        this.b = Sector.fromDegrees(35, 45, -115, -105);
+        this.location = LatLon.fromDegrees(37, -112);
+
+        Random random = new Random(1);
+        this.locations = new ArrayList<LatLon>();
+        for (int i = 0; i < 100; i++)
+        {
+            this.locations.add(LatLon.fromDegrees(30 + 10 * random.nextDouble(), -120 + 10 * random.nextDouble()));
+        }
+    }
+
+    @Benchmark
+    public boolean intersects()
+    {
+        return this.a.intersects(this.b);
+    }
+
+    @Benchmark
+    public boolean contains()
+    {
+        return this.a.contains(this.location);
+    }
+
+    @Benchmark
+    public Sector union()
+    {
+        return this.a.union(this.b);
+    }
+
+    @Benchmark
+    public Sector boundingSector()
+    {
+        return Sector.boundingSector(this.locations);
+    }
+}
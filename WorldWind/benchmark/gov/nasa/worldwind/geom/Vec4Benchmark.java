@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.geom;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the vector operations used throughout geometry, tessellation and picking.
+ *
+ * @author tag
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class Vec4Benchmark
+{
+    protected Vec4 a;
+    protected Vec4 b;
+
+    @Setup
+    public void setUp()
+    {
+        this.a = new Vec4(6378137, 1000, -2000);
+        this.b = new Vec4(-3000, 6356752, 4000);
+    }
+
+    @Benchmark
+    public Vec4 add3()
+    {
+        return this.a.add3(this.b);
+    }
+
+    @Benchmark
+    public double dot3()
+    {
+        return this.a.dot3(this.b);
+    }
+
+    @Benchmark
+    public Vec4 cross3()
+    {
+        return this.a.cross3(this.b);
+    }
+
+    @Benchmark
+    public Vec4 normalize3()
+    {
+        return this.a.normalize3();
+    }
+}
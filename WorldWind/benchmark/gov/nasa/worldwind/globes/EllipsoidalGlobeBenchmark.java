@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.globes;
+
+import gov.nasa.worldwind.geom.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures conversions between geographic positions and Cartesian points on the ellipsoid. Each operation converts
+ * one of a fixed set of positions spread over the globe.
+ *
+ * @author tag
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EllipsoidalGlobeBenchmark
+{
+    protected static final int NUM_POSITIONS = 1024;
+
+    protected Globe globe;
+    protected Angle[] latitudes;
+    protected Angle[] longitudes;
+    protected double[] elevations;
+    protected Vec4[] points;
+    protected double[] packedPositions;
+    protected double[] packedPoints;
+
+    @Setup
+    public void setUp()
+    {
+        // An ellipsoid without an elevation model, so that only the conversions are measured.
+        this.globe = new EllipsoidalGlobe(Earth.WGS84_EQUATORIAL_RADIUS, Earth.WGS84_POLAR_RADIUS,
+            Earth.WGS84_ES, null);
+
+        Random random = new Random(1);
+        this.latitudes = new Angle[NUM_POSITIONS];
+        this.longitudes = new Angle[NUM_POSITIONS];
+        this.elevations = new double[NUM_POSITIONS];
+        this.points = new Vec4[NUM_POSITIONS];
+        this.packedPositions = new double[3 * NUM_POSITIONS];
+        this.packedPoints = new double[3 * NUM_POSITIONS];
+        for (int i = 0; i < NUM_POSITIONS; i++)
+        {
+            this.latitudes[i] = Angle.fromDegrees(180 * random.nextDouble() - 90);
+            this.longitudes[i] = Angle.fromDegrees(360 * random.nextDouble() - 180);
+            this.elevations[i] = 9000 * random.nextDouble() - 500;
+            this.points[i] = this.globe.computePointFromPosition(this.latitudes[i], this.longitudes[i],
+                this.elevations[i]);
+            this.packedPositions[3 * i] = this.latitudes[i].degrees;
+            this.packedPositions[3 * i + 1] = this.longitudes[i].degrees;
+            this.packedPositions[3 * i + 2] = this.elevations[i];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_POSITIONS)
+    public void computePointFromPosition(Blackhole blackhole)
+    {
+        for (int i = 0; i < NUM_POSITIONS; i++)
+        {
+            blackhole.consume(this.globe.computePointFromPosition(this.latitudes[i], this.longitudes[i],
+                this.elevations[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_POSITIONS)
+    public double[] computePointsFromPackedPositions()
+    {
+        this.globe.computePointsFromPositions(this.packedPositions, NUM_POSITIONS, null, this.packedPoints);
+        return this.packedPoints;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_POSITIONS)
+    public void computePositionFromPoint(Blackhole blackhole)
+    {
+        for (int i = 0; i < NUM_POSITIONS; i++)
+        {
+            blackhole.consume(this.globe.computePositionFromPoint(this.points[i]));
+        }
+    }
+}
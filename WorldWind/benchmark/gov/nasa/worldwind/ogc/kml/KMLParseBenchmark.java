@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.ogc.kml;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.xml.namespace.QName;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing of large KML documents with {@link KMLRoot#parse(Object...)}. The document is generated in memory
+ * and holds a folder of placemarks, each with a name, description, style URL, extended data and one of a point, a line
+ * string or a polygon. Each operation of <code>parse</code> parses one placemark. Each operation of
+ * <code>getParser</code> creates the parser for one element of a placemark, as the parser context does for each
+ * element of the document. That includes the reflective constructor call made by {@link
+ * gov.nasa.worldwind.util.xml.AbstractXMLEventParser#newInstance()}.
+ *
+ * @author tag
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KMLParseBenchmark
+{
+    protected static final int NUM_PLACEMARKS = 20000;
+
+    protected byte[] document;
+    protected KMLParserContext context;
+    protected QName[] elementNames;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<kml xmlns=\"http://www.opengis.net/kml/2.2\">\n<Document>\n");
+        sb.append("<Style id=\"s\"><LineStyle><color>ff0000ff</color><width>2</width></LineStyle></Style>\n");
+        sb.append("<Folder>\n");
+
+        for (int i = 0; i < NUM_PLACEMARKS; i++)
+        {
+            double lat = -60 + 120 * ((i * 7919) % NUM_PLACEMARKS) / (double) NUM_PLACEMARKS;
+            double lon = -170 + 340 * (i % 1000) / 1000d;
+
+            sb.append("<Placemark id=\"p").append(i).append("\">");
+            sb.append("<name>Placemark ").append(i).append("</name>");
+            sb.append("<description>Generated placemark number ").append(i).append("</description>");
+            sb.append("<styleUrl>#s</styleUrl>");
+            sb.append("<ExtendedData><Data name=\"index\"><value>").append(i).append("</value></Data></ExtendedData>");
+
+            if (i % 3 == 0)
+            {
+                sb.append("<Point><coordinates>").append(lon).append(',').append(lat).append(",0</coordinates></Point>");
+            }
+            else if (i % 3 == 1)
+            {
+                sb.append("<LineString><tessellate>1</tessellate><coordinates>");
+                for (int k = 0; k < 8; k++)
+                {
+                    sb.append(lon + 0.01 * k).append(',').append(lat + 0.01 * k).append(",10 ");
+                }
+                sb.append("</coordinates></LineString>");
+            }
+            else
+            {
+                sb.append("<Polygon><extrude>1</extrude><altitudeMode>relativeToGround</altitudeMode>");
+                sb.append("<outerBoundaryIs><LinearRing><coordinates>");
+                sb.append(lon).append(',').append(lat).append(",100 ");
+                sb.append(lon + 0.1).append(',').append(lat).append(",100 ");
+                sb.append(lon + 0.1).append(',').append(lat + 0.1).append(",100 ");
+                sb.append(lon).append(',').append(lat).append(",100");
+                sb.append("</coordinates></LinearRing></outerBoundaryIs></Polygon>");
+            }
+
+            sb.append("</Placemark>\n");
+        }
+
+        sb.append("</Folder>\n</Document>\n</kml>\n");
+        this.document = sb.toString().getBytes("UTF-8");
+
+        String ns = KMLConstants.KML_NAMESPACE;
+        this.context = new KMLParserContext(ns);
+        this.elementNames = new QName[] {new QName(ns, "Placemark"), new QName(ns, "name"),
+            new QName(ns, "description"), new QName(ns, "styleUrl"), new QName(ns, "ExtendedData"),
+            new QName(ns, "Data"), new QName(ns, "value"), new QName(ns, "Point"), new QName(ns, "coordinates")};
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PLACEMARKS)
+    public KMLRoot parse() throws Exception
+    {
+        return new KMLRoot(new ByteArrayInputStream(this.document), KMLConstants.KML_MIME_TYPE).parse();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(9)
+    public void getParser(Blackhole blackhole)
+    {
+        for (QName name : this.elementNames)
+        {
+            blackhole.consume(this.context.getParser(name));
+        }
+    }
+}
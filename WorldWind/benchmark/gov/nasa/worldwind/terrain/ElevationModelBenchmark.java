@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.terrain;
+
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.util.BufferWrapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ShortBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures elevation lookups. {@link BasicElevationModel#lookupElevation(double, double,
+ * gov.nasa.worldwind.terrain.BasicElevationModel.ElevationTile)} is measured against a synthetic tile held in memory,
+ * and {@link LocalElevationModel#getElevations(gov.nasa.worldwind.geom.Sector, java.util.List, double, double[])} against
+ * the elevations in <code>testData/elev16_wgs84_512x512.tif</code>. Each operation looks up one of a fixed set of
+ * locations within the tile or the file's sector.
+ *
+ * @author tag
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ElevationModelBenchmark
+{
+    protected static final String ELEVATION_FILE = "testData/elev16_wgs84_512x512.tif";
+    protected static final int TILE_SIZE = 150;
+    protected static final int NUM_LOCATIONS = 1024;
+
+    protected BasicElevationModel basicModel;
+    protected BasicElevationModel.ElevationTile tile;
+    protected double[] tileLatitudes;
+    protected double[] tileLongitudes;
+
+    protected LocalElevationModel localModel;
+    protected List<LatLon> localLocations;
+    protected double[] localElevations;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        Sector tileSector = Sector.fromDegrees(36, 72, -144, -108);
+
+        AVList params = new AVListImpl();
+        params.setValue(AVKey.DATA_CACHE_NAME, "Benchmark/ElevationModelBenchmark");
+        params.setValue(AVKey.DATASET_NAME, "ElevationModelBenchmark");
+        params.setValue(AVKey.SECTOR, Sector.FULL_SPHERE);
+        params.setValue(AVKey.LEVEL_ZERO_TILE_DELTA, LatLon.fromDegrees(36, 36));
+        params.setValue(AVKey.TILE_WIDTH, TILE_SIZE);
+        params.setValue(AVKey.TILE_HEIGHT, TILE_SIZE);
+        params.setValue(AVKey.NUM_LEVELS, 1);
+        params.setValue(AVKey.NETWORK_RETRIEVAL_ENABLED, false);
+        this.basicModel = new BasicElevationModel(params);
+
+        // A synthetic tile of smoothly varying elevations.
+        ShortBuffer elevations = ShortBuffer.allocate(TILE_SIZE * TILE_SIZE);
+        for (int j = 0; j < TILE_SIZE; j++)
+        {
+            for (int i = 0; i < TILE_SIZE; i++)
+            {
+                elevations.put((short) (2000 * Math.sin(i * 0.1) * Math.cos(j * 0.07)));
+            }
+        }
+        elevations.rewind();
+        this.tile = new BasicElevationModel.ElevationTile(tileSector, this.basicModel.getLevels().getFirstLevel(),
+            0, 0);
+        this.tile.setElevations(new BufferWrapper.ShortBufferWrapper(elevations), this.basicModel);
+
+        this.localModel = new LocalElevationModel();
+        this.localModel.addElevations(ELEVATION_FILE);
+
+        Random random = new Random(1);
+        Sector localSector = this.localModel.getSector();
+        this.tileLatitudes = new double[NUM_LOCATIONS];
+        this.tileLongitudes = new double[NUM_LOCATIONS];
+        this.localLocations = new ArrayList<LatLon>(NUM_LOCATIONS);
+        this.localElevations = new double[NUM_LOCATIONS];
+        for (int i = 0; i < NUM_LOCATIONS; i++)
+        {
+            this.tileLatitudes[i] = tileSector.getMinLatitude().radians
+                + random.nextDouble() * tileSector.getDeltaLatRadians();
+            this.tileLongitudes[i] = tileSector.getMinLongitude().radians
+                + random.nextDouble() * tileSector.getDeltaLonRadians();
+            this.localLocations.add(LatLon.fromRadians(
+                localSector.getMinLatitude().radians + random.nextDouble() * localSector.getDeltaLatRadians(),
+                localSector.getMinLongitude().radians + random.nextDouble() * localSector.getDeltaLonRadians()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_LOCATIONS)
+    public double lookupElevation()
+    {
+        double sum = 0;
+        for (int i = 0; i < NUM_LOCATIONS; i++)
+        {
+            sum += this.basicModel.lookupElevation(this.tileLatitudes[i], this.tileLongitudes[i], this.tile);
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_LOCATIONS)
+    public double[] localGetElevations()
+    {
+        this.localModel.getElevations(this.localModel.getSector(), this.localLocations, 0, this.localElevations);
+        return this.localElevations;
+    }
+}
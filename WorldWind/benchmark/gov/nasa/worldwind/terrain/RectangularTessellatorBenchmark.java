@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.terrain;
+
+import gov.nasa.worldwind.BasicModel;
+import gov.nasa.worldwind.geom.Sector;
+import gov.nasa.worldwind.globes.*;
+import gov.nasa.worldwind.layers.LayerList;
+import gov.nasa.worldwind.render.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generation of terrain tile vertices, including the elevation lookups. The tiles cover the elevations in
+ * <code>testData/elev16_wgs84_512x512.tif</code>, held by a {@link LocalElevationModel}. The draw context has no GL
+ * context, so vertex buffer objects are not filled.
+ *
+ * @author tag
+ * @version $Id$
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RectangularTessellatorBenchmark
+{
+    protected static final String ELEVATION_FILE = "testData/elev16_wgs84_512x512.tif";
+    protected static final int NUM_TILES = 16;
+
+    @Param({"20", "40"})
+    protected int density;
+
+    protected RectangularTessellator tessellator;
+    protected DrawContext dc;
+    protected RectangularTessellator.RectTile[] tiles;
+
+    @Setup
+    public void setUp() throws Exception
+    {
+        LocalElevationModel elevationModel = new LocalElevationModel();
+        elevationModel.addElevations(ELEVATION_FILE);
+
+        Globe globe = new EllipsoidalGlobe(Earth.WGS84_EQUATORIAL_RADIUS, Earth.WGS84_POLAR_RADIUS, Earth.WGS84_ES,
+            elevationModel);
+
+        this.dc = new DrawContextImpl();
+        this.dc.setModel(new BasicModel(globe, new LayerList()));
+        this.dc.setVerticalExaggeration(1);
+        this.dc.setGLRuntimeCapabilities(new GLRuntimeCapabilities());
+
+        this.tessellator = new RectangularTessellator();
+        this.tessellator.globe = globe;
+
+        // Divide the elevation model's sector into tiles, four on a side.
+        Sector[] quadrants = elevationModel.getSector().subdivide();
+        this.tiles = new RectangularTessellator.RectTile[NUM_TILES];
+        for (int i = 0; i < quadrants.length; i++)
+        {
+            Sector[] subQuadrants = quadrants[i].subdivide();
+            for (int j = 0; j < subQuadrants.length; j++)
+            {
+                this.tiles[4 * i + j] = new RectangularTessellator.RectTile(this.tessellator, null, 8, this.density,
+                    subQuadrants[j]);
+                this.tessellator.buildVerts(this.dc, this.tiles[4 * i + j], true);
+            }
+        }
+    }
+
+    /** Builds the vertices of tiles seen for the first time, allocating their vertex buffers. */
+    @Benchmark
+    @OperationsPerInvocation(NUM_TILES)
+    public void buildVerts()
+    {
+        for (RectangularTessellator.RectTile tile : this.tiles)
+        {
+            tile.ri = null;
+            this.tessellator.buildVerts(this.dc, tile, true);
+        }
+    }
+
+    /** Rebuilds the vertices of tiles already built, as the tessellator does periodically, reusing vertex buffers. */
+    @Benchmark
+    @OperationsPerInvocation(NUM_TILES)
+    public void rebuildVerts()
+    {
+        for (RectangularTessellator.RectTile tile : this.tiles)
+        {
+            this.tessellator.buildVerts(this.dc, tile, true);
+        }
+    }
+}
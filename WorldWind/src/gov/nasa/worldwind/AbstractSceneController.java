@@ -398,6 +398,7 @@ public abstract class AbstractSceneController extends WWObjectImpl implements Sc
         this.glRuntimeCaps.initialize(GLContext.getCurrent());
         this.initializeDrawContext(this.dc);
         this.doRepaint(this.dc);
+        this.endTileRequestFrame(this.dc);
 
         ++this.frame;
         long time = System.currentTimeMillis();
@@ -438,11 +439,29 @@ public abstract class AbstractSceneController extends WWObjectImpl implements Sc
                 "JVM used memory (Kb)", (totalMemory - Runtime.getRuntime().freeMemory()) / 1000);
         }
 
+        if (perfKeys.contains(PerformanceStatistic.TILE_REQUESTS) || perfKeys.contains(PerformanceStatistic.ALL))
+        {
+            if (WorldWind.getTaskService() instanceof TileRequestScheduler)
+                ((TileRequestScheduler) WorldWind.getTaskService()).setPerFrameStatistics(this.dc);
+        }
+
         return dc.getRedrawRequested();
     }
 
     abstract protected void doRepaint(DrawContext dc);
 
+    /**
+     * Ends the frame of the World Wind task service, if it's a {@link TileRequestScheduler}, once layers and models
+     * have made their tile requests for the frame.
+     *
+     * @param dc the current draw context.
+     */
+    protected void endTileRequestFrame(DrawContext dc)
+    {
+        if (WorldWind.getTaskService() instanceof TileRequestScheduler)
+            ((TileRequestScheduler) WorldWind.getTaskService()).endFrame(dc);
+    }
+
     protected void initializeDrawContext(DrawContext dc)
     {
         dc.initialize(GLContext.getCurrent());
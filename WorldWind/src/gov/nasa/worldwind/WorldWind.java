@@ -91,6 +91,8 @@ public final class WorldWind
             this.sessionCache.clear();
         if (this.scheduledTaskService != null)
             this.scheduledTaskService.shutdown(true);
+        if (this.dataFileStore instanceof Disposable)
+            ((Disposable) this.dataFileStore).dispose();
     }
 
     /**
@@ -56,6 +56,7 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String CLOCKWISE = "gov.nasa.worldwind.avkey.ClockWise";
     final String CLOSE = "gov.nasa.worldwind.avkey.Close";
     final String COLOR = "gov.nasa.worldwind.avkey.Color";
+    final String COMPOSITION_THREAD_POOL_SIZE = "gov.nasa.worldwind.avkey.CompositionThreadPoolSize";
     final String COMPRESS_TEXTURES = "gov.nasa.worldwind.avkey.CompressTextures";
     final String CONSTRUCTION_PARAMETERS = "gov.nasa.worldwind.avkey.ConstructionParameters";
     final String CONTEXT = "gov.nasa.worldwind.avkey.Context";
@@ -220,6 +221,13 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String MAX_ACTIVE_ALTITUDE = "gov.nasa.worldwind.avkey.MaxActiveAltitude";
     final String MAX_MESSAGE_REPEAT = "gov.nasa.worldwind.avkey.MaxMessageRepeat";
     final String MEMORY_CACHE_SET_CLASS_NAME = "gov.nasa.worldwind.avkey.MemoryCacheSetClassName";
+    /**
+     * Indicates the class of the memory caches created by {@link gov.nasa.worldwind.cache.MemoryCacheSet#createMemoryCache(long,
+     * long)}. When used as a key, the corresponding value must be the fully qualified name of a class implementing
+     * {@link gov.nasa.worldwind.cache.MemoryCache}, such as <code>gov.nasa.worldwind.cache.BasicMemoryCache</code> or
+     * <code>gov.nasa.worldwind.cache.SegmentedMemoryCache</code>.
+     */
+    final String MEMORY_CACHE_CLASS_NAME = "gov.nasa.worldwind.avkey.MemoryCacheClassName";
     /**
      * Indicates the location that MIL-STD-2525 tactical symbols and tactical point graphics retrieve their icons from.
      * When used as a key, the corresponding value must be a string indicating a URL to a remote server, a URL to a
@@ -336,6 +344,8 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String RASTER_PIXEL = "gov.nasa.worldwind.avkey.RasterPixel";
     final String RASTER_PIXEL_IS_AREA = "gov.nasa.worldwind.avkey.RasterPixelIsArea";
     final String RASTER_PIXEL_IS_POINT = "gov.nasa.worldwind.avkey.RasterPixelIsPoint";
+    final String RECTANGULAR_TESSELLATOR_BUILD_VERTS_IN_BACKGROUND
+        = "gov.nasa.worldwind.avkey.RectangularTessellatorBuildVertsInBackground";
     final String RECTANGULAR_TESSELLATOR_MAX_LEVEL = "gov.nasa.worldwind.avkey.RectangularTessellatorMaxLevel";
     final String REPAINT = "gov.nasa.worldwind.avkey.Repaint";
     final String REPEAT_NONE = "gov.nasa.worldwind.avkey.RepeatNone";
@@ -354,6 +364,8 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     /** Does not modify the item size when the window changes size. */
     final String RESIZE_KEEP_FIXED_SIZE = "gov.nasa.worldwind.CompassLayer.ResizeKeepFixedSize";
     final String RETAIN_LEVEL_ZERO_TILES = "gov.nasa.worldwind.avkey.RetainLevelZeroTiles";
+    final String RETRIEVAL_CONNECTIONS_PER_HOST = "gov.nasa.worldwind.avkey.RetrievalConnectionsPerHost";
+    final String RETRIEVAL_PIPELINE_DEPTH = "gov.nasa.worldwind.avkey.RetrievalPipelineDepth";
     final String RETRIEVAL_POOL_SIZE = "gov.nasa.worldwind.avkey.RetrievalPoolSize";
     final String RETRIEVE_PROPERTIES_FROM_SERVICE = "gov.nasa.worldwind.avkey.RetrievePropertiesFromService";
     final String RETRIEVAL_QUEUE_SIZE = "gov.nasa.worldwind.avkey.RetrievalQueueSize";
@@ -441,8 +453,10 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String TEXT_EFFECT_SHADOW = "gov.nasa.worldwind.avkey.TextEffectShadow";
     final String TILE_DELTA = "gov.nasa.worldwind.avkey.TileDeltaKey";
     final String TILE_HEIGHT = "gov.nasa.worldwind.avkey.TileHeightKey";
+    final String TILE_KEY = "gov.nasa.worldwind.avkey.TileKey";
     final String TILE_ORIGIN = "gov.nasa.worldwind.avkey.TileOrigin";
     final String TILE_RETRIEVER = "gov.nasa.worldwind.avkey.TileRetriever";
+    final String TILE_REQUEST_STALE_FRAME_LIMIT = "gov.nasa.worldwind.avkey.TileRequestStaleFrameLimit";
     final String TILE_URL_BUILDER = "gov.nasa.worldwind.avkey.TileURLBuilder";
     final String TILE_WIDTH = "gov.nasa.worldwind.avkey.TileWidthKey";
     final String TILED_IMAGERY = "gov.nasa.worldwind.avkey.TiledImagery";
@@ -451,6 +465,8 @@ public interface AVKey // TODO: Eliminate unused constants, if any
     final String TILED_RASTER_PRODUCER_LARGE_DATASET_THRESHOLD =
         "gov.nasa.worldwind.avkey.TiledRasterProducerLargeDatasetThreshold";
     final String TILED_RASTER_PRODUCER_LIMIT_MAX_LEVEL = "gov.nasa.worldwind.avkey.TiledRasterProducer.LimitMaxLevel";
+    final String TILED_RASTER_PRODUCER_THREAD_POOL_SIZE =
+        "gov.nasa.worldwind.avkey.TiledRasterProducer.ThreadPoolSize";
     final String TILT = "gov.nasa.worldwind.avkey.Tilt";
     final String TITLE = "gov.nasa.worldwind.avkey.Title";
     final String TOP = "gov.nasa.worldwind.avkey.Top";
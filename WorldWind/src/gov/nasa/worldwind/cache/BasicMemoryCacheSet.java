@@ -5,6 +5,8 @@
  */
 package gov.nasa.worldwind.cache;
 
+import gov.nasa.worldwind.Configuration;
+import gov.nasa.worldwind.avlist.AVKey;
 import gov.nasa.worldwind.util.*;
 
 import java.util.*;
@@ -83,4 +85,30 @@ public class BasicMemoryCacheSet implements MemoryCacheSet
 
         return stats;
     }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The class of the new cache is specified by the configuration value {@link AVKey#MEMORY_CACHE_CLASS_NAME}, and
+     * must have a public constructor taking the low water level and the capacity as <code>long</code> arguments. A
+     * {@link BasicMemoryCache} is created if no class is configured or the configured class cannot be created.
+     */
+    public MemoryCache createMemoryCache(long loWater, long capacity)
+    {
+        String className = Configuration.getStringValue(AVKey.MEMORY_CACHE_CLASS_NAME);
+        if (WWUtil.isEmpty(className) || BasicMemoryCache.class.getName().equals(className))
+            return new BasicMemoryCache(loWater, capacity);
+
+        try
+        {
+            Class<?> c = Class.forName(className.trim());
+            return (MemoryCache) c.getConstructor(long.class, long.class).newInstance(loWater, capacity);
+        }
+        catch (Exception e)
+        {
+            String message = Logging.getMessage("generic.CannotCreateObject", className);
+            Logging.logger().log(java.util.logging.Level.SEVERE, message, e);
+            return new BasicMemoryCache(loWater, capacity);
+        }
+    }
 }
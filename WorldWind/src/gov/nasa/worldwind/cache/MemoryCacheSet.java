@@ -26,4 +26,16 @@ public interface MemoryCacheSet
     void clear();
 
     Map<String, MemoryCache> getAllCaches();
+
+    /**
+     * Creates a new memory cache of the class configured for this cache set. The new cache is not added to this set.
+     *
+     * @param loWater  the new cache's low water level.
+     * @param capacity the new cache's capacity.
+     *
+     * @return a new memory cache.
+     *
+     * @see gov.nasa.worldwind.avlist.AVKey#MEMORY_CACHE_CLASS_NAME
+     */
+    MemoryCache createMemoryCache(long loWater, long capacity);
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link FileStore} that holds the contents of some files itself, such as in a {@link TilePack}, rather than as
+ * individual files in its write location. The contents of such a file are saved by {@link #saveBuffer(String,
+ * java.nio.ByteBuffer, boolean)} rather than written to the file returned by {@link #newFile(String)}, and are found by
+ * <code>findFile</code> as usual.
+ *
+ * @author tag
+ * @version $Id$
+ * @see TilePackFileStore
+ */
+public interface PackingFileStore extends FileStore
+{
+    /**
+     * Indicates whether this store holds a named file's contents itself.
+     *
+     * @param fileName the file's name.
+     *
+     * @return true if the file's contents are to be saved by {@link #saveBuffer(String, java.nio.ByteBuffer, boolean)},
+     *         false if they're to be written to the file returned by {@link #newFile(String)}.
+     */
+    boolean packsFile(String fileName);
+
+    /**
+     * Saves the contents of a file this store holds itself.
+     *
+     * @param fileName  the file's name.
+     * @param buffer    the file's contents, from the buffer's position to its limit. The buffer's position is not
+     *                  changed.
+     * @param overwrite true to replace existing contents of the file, false to leave them.
+     *
+     * @return true if the contents were saved, false if the file exists and is not overwritten.
+     *
+     * @throws IllegalArgumentException if the file name or buffer is null.
+     * @throws IOException              if an error occurs saving the contents.
+     */
+    boolean saveBuffer(String fileName, ByteBuffer buffer, boolean overwrite) throws IOException;
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import gov.nasa.worldwind.util.Logging;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link MemoryCache} that divides its entries among independently locked segments, intended for caches shared by
+ * many threads. Reads and <code>contains</code> do not lock. Adds and removals lock only the segment holding the key.
+ * <p/>
+ * Each segment evicts with the CLOCK algorithm, an approximation of least-recently-used eviction: reading an entry sets
+ * its reference bit, and eviction sweeps the segment's entries in insertion order, clearing set reference bits and
+ * evicting the first entry whose bit is clear. Each eviction costs constant amortized time, rather than the sort of all
+ * entries performed by {@link BasicMemoryCache}.
+ * <p/>
+ * Each segment has an even share of the capacity and low water level, but may use more than its share while the cache
+ * as a whole has room, so an object larger than a segment's share is added without evicting anything if the cache's
+ * free capacity can hold it. Only objects larger than the cache's capacity are refused. A segment evicts its own
+ * entries when it's beyond its share and the cache is full. When an add leaves the cache beyond its capacity, segments
+ * beyond their share evict entries down to their share of the low water level until the cache is within its capacity
+ * again, so the used capacity exceeds the capacity only while an add is in progress.
+ * <p/>
+ * Cache listeners are notified of every removal, as they are by {@link BasicMemoryCache}, from the thread performing
+ * the removal and while that thread holds the lock of the entry's segment.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class SegmentedMemoryCache implements MemoryCache
+{
+    /** The default number of segments. */
+    protected static final int DEFAULT_NUM_SEGMENTS = 16;
+
+    protected static class CacheEntry
+    {
+        protected final Object key;
+        protected final Object clientObject;
+        protected final long clientObjectSize;
+        protected volatile boolean referenced;
+        protected boolean removed; // guarded by the segment lock
+
+        protected CacheEntry(Object key, Object clientObject, long clientObjectSize)
+        {
+            this.key = key;
+            this.clientObject = clientObject;
+            this.clientObjectSize = clientObjectSize;
+        }
+    }
+
+    protected class Segment
+    {
+        /** Entries in insertion order, the CLOCK hand being the head. Removed entries are skipped and discarded. */
+        protected final ArrayDeque<CacheEntry> clock = new ArrayDeque<CacheEntry>();
+        protected long usedCapacity; // guarded by this segment
+        protected int numEntries; // guarded by this segment
+
+        protected synchronized void add(CacheEntry entry)
+        {
+            CacheEntry existing = entries.get(entry.key);
+            if (existing != null) // replacing
+                this.removeEntry(existing);
+
+            // Use free capacity beyond this segment's share while the cache has room.
+            long segmentCapacity = capacity.get() / segments.length;
+            long segmentLowWater = lowWater / segments.length;
+            if (this.usedCapacity + entry.clientObjectSize > segmentCapacity
+                && currentUsedCapacity.get() + entry.clientObjectSize > capacity.get())
+            {
+                this.makeSpace(Math.min(entry.clientObjectSize, segmentCapacity), segmentCapacity, segmentLowWater);
+            }
+
+            this.usedCapacity += entry.clientObjectSize;
+            this.numEntries++;
+            currentUsedCapacity.addAndGet(entry.clientObjectSize);
+            entries.put(entry.key, entry);
+            this.clock.addLast(entry);
+            this.compactIfNeeded();
+        }
+
+        protected synchronized void remove(Object key)
+        {
+            CacheEntry entry = entries.get(key);
+            if (entry != null)
+            {
+                this.removeEntry(entry);
+                this.compactIfNeeded();
+            }
+        }
+
+        protected synchronized void trim(long segmentCapacity, long segmentLowWater)
+        {
+            if (this.usedCapacity > segmentCapacity)
+                this.makeSpace(0, segmentCapacity, segmentLowWater);
+        }
+
+        protected synchronized void clear()
+        {
+            for (CacheEntry entry : this.clock)
+            {
+                if (!entry.removed)
+                    this.removeEntry(entry);
+            }
+
+            this.clock.clear();
+        }
+
+        protected void removeEntry(CacheEntry entry) // MUST BE CALLED WITHIN SYNCHRONIZED
+        {
+            if (entry.removed || !entries.remove(entry.key, entry))
+                return;
+
+            entry.removed = true;
+            this.usedCapacity -= entry.clientObjectSize;
+            this.numEntries--;
+            currentUsedCapacity.addAndGet(-entry.clientObjectSize);
+
+            for (MemoryCache.CacheListener listener : listeners)
+            {
+                try
+                {
+                    listener.entryRemoved(entry.key, entry.clientObject);
+                }
+                catch (Exception e)
+                {
+                    listener.removalException(e, entry.key, entry.clientObject);
+                }
+            }
+        }
+
+        protected void makeSpace(long spaceRequired, long segmentCapacity, long segmentLowWater) // MUST BE SYNCHRONIZED
+        {
+            while (!this.clock.isEmpty()
+                && (segmentCapacity - this.usedCapacity < spaceRequired || this.usedCapacity > segmentLowWater))
+            {
+                CacheEntry entry = this.clock.pollFirst();
+                if (entry.removed)
+                    continue;
+
+                if (entry.referenced)
+                {
+                    // Give the entry a second chance.
+                    entry.referenced = false;
+                    this.clock.addLast(entry);
+                    continue;
+                }
+
+                this.removeEntry(entry);
+            }
+        }
+
+        protected void compactIfNeeded() // MUST BE CALLED WITHIN SYNCHRONIZED
+        {
+            // Removed entries stay in the clock until the hand reaches them. Compact the clock when they dominate it so
+            // that removals without evictions don't grow it without bound.
+            if (this.clock.size() > 2 * this.numEntries + 32)
+                this.compact();
+        }
+
+        protected void compact() // MUST BE CALLED WITHIN SYNCHRONIZED
+        {
+            Iterator<CacheEntry> iter = this.clock.iterator();
+            while (iter.hasNext())
+            {
+                if (iter.next().removed)
+                    iter.remove();
+            }
+        }
+    }
+
+    protected final ConcurrentHashMap<Object, CacheEntry> entries;
+    protected final CopyOnWriteArrayList<MemoryCache.CacheListener> listeners =
+        new CopyOnWriteArrayList<MemoryCache.CacheListener>();
+    protected final Segment[] segments;
+    protected final AtomicLong capacity = new AtomicLong();
+    protected final AtomicLong currentUsedCapacity = new AtomicLong();
+    protected volatile long lowWater;
+    protected String name = "";
+
+    /**
+     * Constructs a new cache with the default number of segments, using <code>capacity</code> for maximum size, and
+     * <code>loWater</code> for the low water.
+     *
+     * @param loWater  the low water level.
+     * @param capacity the maximum capacity.
+     */
+    public SegmentedMemoryCache(long loWater, long capacity)
+    {
+        this(loWater, capacity, DEFAULT_NUM_SEGMENTS);
+    }
+
+    /**
+     * Constructs a new cache using <code>capacity</code> for maximum size, and <code>loWater</code> for the low water.
+     *
+     * @param loWater     the low water level.
+     * @param capacity    the maximum capacity.
+     * @param numSegments the number of independently locked segments. This is rounded up to a power of two.
+     *
+     * @throws IllegalArgumentException if the number of segments is less than 1.
+     */
+    public SegmentedMemoryCache(long loWater, long capacity, int numSegments)
+    {
+        if (numSegments < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", numSegments);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        int n = 1;
+        while (n < numSegments)
+        {
+            n <<= 1;
+        }
+
+        this.segments = new Segment[n];
+        for (int i = 0; i < n; i++)
+        {
+            this.segments[i] = new Segment();
+        }
+
+        this.entries = new ConcurrentHashMap<Object, CacheEntry>(16, 0.75f, n);
+        this.capacity.set(capacity);
+        this.lowWater = loWater;
+    }
+
+    protected Segment segmentFor(Object key)
+    {
+        // Spread the hash bits so that keys with poor low-order hash bits still use all segments.
+        int h = key.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+
+        return this.segments[h & (this.segments.length - 1)];
+    }
+
+    /** @return the number of objects currently stored in this cache. */
+    public int getNumObjects()
+    {
+        return this.entries.size();
+    }
+
+    /** @return the capacity of the cache. */
+    public long getCapacity()
+    {
+        return this.capacity.get();
+    }
+
+    /** @return the number of cache units that the cache currently holds. */
+    public long getUsedCapacity()
+    {
+        return this.currentUsedCapacity.get();
+    }
+
+    /** @return the amount of free space left in the cache (in cache units). */
+    public long getFreeCapacity()
+    {
+        return Math.max(this.capacity.get() - this.currentUsedCapacity.get(), 0);
+    }
+
+    public void setName(String name)
+    {
+        this.name = name != null ? name : "";
+    }
+
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Indicates the number of independently locked segments in this cache.
+     *
+     * @return the number of segments.
+     */
+    public int getNumSegments()
+    {
+        return this.segments.length;
+    }
+
+    public void addCacheListener(MemoryCache.CacheListener listener)
+    {
+        if (listener == null)
+        {
+            String message = Logging.getMessage("BasicMemoryCache.nullListenerAdded");
+            Logging.logger().warning(message);
+            throw new IllegalArgumentException(message);
+        }
+        this.listeners.add(listener);
+    }
+
+    public void removeCacheListener(MemoryCache.CacheListener listener)
+    {
+        if (listener == null)
+        {
+            String message = Logging.getMessage("BasicMemoryCache.nullListenerRemoved");
+            Logging.logger().warning(message);
+            throw new IllegalArgumentException(message);
+        }
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Sets the new capacity for the cache. As with {@link BasicMemoryCache}, existing entries are not removed until
+     * space is next needed.
+     *
+     * @param newCapacity the new capacity of the cache.
+     */
+    public void setCapacity(long newCapacity)
+    {
+        this.capacity.set(newCapacity);
+    }
+
+    public void setLowWater(long loWater)
+    {
+        if (loWater < this.capacity.get() && loWater >= 0)
+        {
+            this.lowWater = loWater;
+        }
+    }
+
+    public long getLowWater()
+    {
+        return this.lowWater;
+    }
+
+    public boolean contains(Object key)
+    {
+        if (key == null)
+        {
+            String msg = Logging.getMessage("nullValue.KeyIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        return this.entries.containsKey(key);
+    }
+
+    public boolean add(Object key, Object clientObject, long clientObjectSize)
+    {
+        long cap = this.capacity.get();
+
+        if (key == null || clientObject == null || clientObjectSize <= 0 || clientObjectSize > cap)
+        {
+            String message = Logging.getMessage("BasicMemoryCache.CacheItemNotAdded");
+
+            if (clientObjectSize > cap)
+            {
+                message += " - " + Logging.getMessage("BasicMemoryCache.ItemTooLargeForCache");
+            }
+
+            Logging.logger().warning(message);
+
+            return false;
+        }
+
+        this.segmentFor(key).add(new CacheEntry(key, clientObject, clientObjectSize));
+
+        if (this.currentUsedCapacity.get() > cap)
+            this.reclaimCapacity();
+
+        return true;
+    }
+
+    /**
+     * Evicts entries of segments using more than their share of the capacity until the cache is within its capacity.
+     * Each segment is locked in turn, never while another segment's lock is held.
+     */
+    protected void reclaimCapacity()
+    {
+        long cap = this.capacity.get();
+        long segmentCapacity = cap / this.segments.length;
+        long segmentLowWater = this.lowWater / this.segments.length;
+
+        for (Segment segment : this.segments)
+        {
+            if (this.currentUsedCapacity.get() <= cap)
+                break;
+
+            segment.trim(segmentCapacity, segmentLowWater);
+        }
+    }
+
+    public boolean add(Object key, Cacheable clientObject)
+    {
+        return this.add(key, clientObject, clientObject.getSizeInBytes());
+    }
+
+    public void remove(Object key)
+    {
+        if (key == null)
+        {
+            Logging.logger().finer("nullValue.KeyIsNull");
+
+            return;
+        }
+
+        this.segmentFor(key).remove(key);
+    }
+
+    public Object getObject(Object key)
+    {
+        if (key == null)
+        {
+            Logging.logger().finer("nullValue.KeyIsNull");
+
+            return null;
+        }
+
+        CacheEntry entry = this.entries.get(key);
+        if (entry == null)
+            return null;
+
+        if (!entry.referenced) // avoid a volatile write when the bit is already set
+            entry.referenced = true;
+
+        return entry.clientObject;
+    }
+
+    /** Empties the cache. */
+    public void clear()
+    {
+        for (Segment segment : this.segments)
+        {
+            segment.clear();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "MemoryCache " + this.name + " max size = " + this.getCapacity() + " current size = "
+            + this.currentUsedCapacity.get() + " number of items: " + this.getNumObjects();
+    }
+}
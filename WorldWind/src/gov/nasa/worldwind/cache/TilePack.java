@@ -0,0 +1,1221 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import gov.nasa.worldwind.util.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.locks.*;
+import java.util.logging.Level;
+
+/**
+ * Stores named blobs, typically cached tiles, in a small number of large append-only pack files rather than one file
+ * per blob. A persistent open-addressing hash index maps each name to the blob's location. Both the pack files and the
+ * index are accessed through memory-mapped buffers, so a lookup costs a few memory reads rather than a file system
+ * probe, and opening a pack costs a few file opens regardless of the number of blobs it holds.
+ * <p/>
+ * A pack occupies a directory holding pack files named <code>pack-<i>N</i>.wwp</code> and an index file named
+ * <code>index-<i>N</i>.wwi</code>. Each pack file holds a sequence of records, each consisting of the length of the
+ * record's name and the length of its blob as 32-bit integers, the blob's modification time as a 64-bit integer, the
+ * name's UTF-8 bytes and the blob's bytes. Removing a blob appends a record with a blob length of -1 and no blob bytes.
+ * A pack file is closed to appends when it reaches the maximum pack size, and a new pack file started. The index holds a fixed size header followed by a
+ * power-of-two number of 32-byte slots, each holding the 64-bit hash of a name, the pack file number, offset and
+ * length of the name's blob, a state flag and the blob's modification time. The index is rebuilt into a new index
+ * file, numbered one greater than the previous, when its load factor exceeds 0.7.
+ * <p/>
+ * Replacing or removing a blob leaves its previous bytes in the pack file; pack files are never rewritten. Lookups
+ * verify the name stored with the record, so hash collisions and index slots that refer to data lost in a crash are
+ * detected and treated as absent blobs. The records are a complete history of the pack's changes, so a missing or
+ * corrupt index is rebuilt by reading the pack files' records in order. Changes are written through the memory-mapped buffers and reach the disk at the
+ * operating system's discretion, or when {@link #flush()} is called.
+ * <p/>
+ * Lookups may be performed concurrently by any number of threads. Changes are serialized.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class TilePack
+{
+    /** The default maximum size of a pack file, in bytes. */
+    public static final long DEFAULT_MAX_PACK_SIZE = 1L << 30;
+
+    protected static final String PACK_FILE_PREFIX = "pack-";
+    protected static final String PACK_FILE_SUFFIX = ".wwp";
+    protected static final String INDEX_FILE_PREFIX = "index-";
+    protected static final String INDEX_FILE_SUFFIX = ".wwi";
+
+    protected static final int INDEX_MAGIC = 0x57575049; // "WWPI"
+    protected static final int INDEX_VERSION = 1;
+    protected static final int INDEX_HEADER_SIZE = 32;
+    // Header field offsets.
+    protected static final int HEADER_MAGIC = 0;
+    protected static final int HEADER_VERSION = 4;
+    protected static final int HEADER_CAPACITY = 8;
+    protected static final int HEADER_NUM_ENTRIES = 12;
+    protected static final int HEADER_NUM_USED = 16;
+    protected static final int HEADER_COMPLETE = 20;
+
+    protected static final int RECORD_HEADER_SIZE = 16;
+    // Record field offsets.
+    protected static final int RECORD_NAME_LENGTH = 0;
+    protected static final int RECORD_DATA_LENGTH = 4;
+    protected static final int RECORD_LAST_MODIFIED = 8;
+    /** The blob length of a record marking its name's blob removed. */
+    protected static final int REMOVED_LENGTH = -1;
+
+    protected static final int SLOT_SIZE = 32;
+    // Slot field offsets.
+    protected static final int SLOT_HASH = 0;
+    protected static final int SLOT_PACK = 8;
+    protected static final int SLOT_OFFSET = 12;
+    protected static final int SLOT_LENGTH = 16;
+    protected static final int SLOT_STATE = 20;
+    protected static final int SLOT_LAST_MODIFIED = 24;
+    // Slot states. A removed slot continues the probe sequence of the slots that follow it.
+    protected static final int SLOT_EMPTY = 0;
+    protected static final int SLOT_LIVE = 1;
+    protected static final int SLOT_REMOVED = 2;
+
+    protected static final int DEFAULT_INDEX_CAPACITY = 1 << 12;
+    /** The number of slots in each separately mapped region of the index file. */
+    protected static final int SLOTS_PER_CHUNK = 1 << 20;
+    protected static final double MAX_LOAD_FACTOR = 0.7;
+    /** The number of bytes by which the mapping of a pack file grows. */
+    protected static final long MAPPING_INCREMENT = 1L << 24;
+
+    protected static class PackFile
+    {
+        protected final int number;
+        protected final File file;
+        protected final RandomAccessFile raf;
+        protected long size;
+        protected volatile MappedByteBuffer mappedBuffer;
+
+        protected PackFile(int number, File file) throws IOException
+        {
+            this.number = number;
+            this.file = file;
+            this.raf = new RandomAccessFile(file, "rw");
+            this.size = this.raf.length();
+        }
+
+        /**
+         * Returns a buffer holding a range of this pack file's bytes. The buffer is a view of the file's mapping if the
+         * mapping covers the range, otherwise it holds a copy of the bytes read from the file.
+         * <p/>
+         * The mapping is extended only once the unmapped end of the file reaches {@link #MAPPING_INCREMENT} bytes, so
+         * that reading records as they're appended doesn't map the file again for each record. Records in the unmapped
+         * end of the file are read from the file.
+         *
+         * @param offset the offset of the range's first byte.
+         * @param length the number of bytes in the range.
+         *
+         * @return a buffer holding the range, positioned at zero, or null if the file ends before the range does.
+         *
+         * @throws IOException if the file cannot be mapped or read.
+         */
+        protected ByteBuffer getRange(long offset, int length) throws IOException
+        {
+            long end = offset + length;
+
+            MappedByteBuffer buffer = this.mappedBuffer;
+            if (buffer == null || buffer.capacity() < end)
+                buffer = this.extendMapping(end);
+
+            if (buffer != null && buffer.capacity() >= end)
+            {
+                ByteBuffer range = buffer.duplicate();
+                range.limit((int) end);
+                range.position((int) offset);
+                return range.slice();
+            }
+
+            if (this.raf.length() < end)
+                return null;
+
+            ByteBuffer range = ByteBuffer.allocate(length);
+            FileChannel channel = this.raf.getChannel();
+            while (range.hasRemaining())
+            {
+                if (channel.read(range, offset + range.position()) < 0)
+                    return null;
+            }
+            range.flip();
+
+            return range;
+        }
+
+        /**
+         * Maps this pack file's whole increments of {@link #MAPPING_INCREMENT} bytes if that maps at least one more
+         * increment than the current mapping.
+         *
+         * @param end the end of the range needed by the caller.
+         *
+         * @return the current mapping, which may not cover the range, or null if the file is not mapped.
+         *
+         * @throws IOException if the file cannot be mapped.
+         */
+        protected synchronized MappedByteBuffer extendMapping(long end) throws IOException
+        {
+            MappedByteBuffer buffer = this.mappedBuffer;
+            long mappedLength = buffer != null ? buffer.capacity() : 0;
+            if (mappedLength >= end)
+                return buffer;
+
+            long length = (this.raf.length() / MAPPING_INCREMENT) * MAPPING_INCREMENT;
+            if (length <= mappedLength)
+                return buffer;
+
+            buffer = this.raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            this.mappedBuffer = buffer;
+            return buffer;
+        }
+
+        protected void close()
+        {
+            WWIO.closeStream(this.raf, this.file.getPath());
+        }
+    }
+
+    protected static class Index
+    {
+        protected final int generation;
+        protected final File file;
+        protected final RandomAccessFile raf;
+        protected final MappedByteBuffer header;
+        protected final MappedByteBuffer[] chunks;
+        protected final int capacity;
+        protected int numEntries;
+        protected int numUsed;
+
+        protected Index(int generation, File file, int capacity, boolean create) throws IOException
+        {
+            this.generation = generation;
+            this.file = file;
+            this.raf = new RandomAccessFile(file, "rw");
+
+            try
+            {
+                if (create)
+                {
+                    // Truncate first so that no slot or header field survives from a previous file of the same name.
+                    this.raf.setLength(0);
+                    this.raf.setLength(INDEX_HEADER_SIZE + (long) capacity * SLOT_SIZE);
+                }
+
+                FileChannel channel = this.raf.getChannel();
+                this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE);
+
+                if (create)
+                {
+                    this.header.putInt(HEADER_MAGIC, INDEX_MAGIC);
+                    this.header.putInt(HEADER_VERSION, INDEX_VERSION);
+                    this.header.putInt(HEADER_CAPACITY, capacity);
+                }
+                else
+                {
+                    if (this.header.getInt(HEADER_MAGIC) != INDEX_MAGIC
+                        || this.header.getInt(HEADER_VERSION) != INDEX_VERSION
+                        || this.header.getInt(HEADER_COMPLETE) == 0)
+                    {
+                        throw new IOException(Logging.getMessage("TilePack.IndexInvalid", file.getPath()));
+                    }
+
+                    capacity = this.header.getInt(HEADER_CAPACITY);
+                    if (capacity <= 0 || Integer.bitCount(capacity) != 1
+                        || this.raf.length() < INDEX_HEADER_SIZE + (long) capacity * SLOT_SIZE)
+                    {
+                        throw new IOException(Logging.getMessage("TilePack.IndexInvalid", file.getPath()));
+                    }
+
+                    this.numEntries = this.header.getInt(HEADER_NUM_ENTRIES);
+                    this.numUsed = this.header.getInt(HEADER_NUM_USED);
+                }
+
+                this.capacity = capacity;
+                this.chunks = new MappedByteBuffer[(capacity + SLOTS_PER_CHUNK - 1) / SLOTS_PER_CHUNK];
+                for (int i = 0; i < this.chunks.length; i++)
+                {
+                    long start = INDEX_HEADER_SIZE + (long) i * SLOTS_PER_CHUNK * SLOT_SIZE;
+                    long size = (long) Math.min(SLOTS_PER_CHUNK, capacity - i * SLOTS_PER_CHUNK) * SLOT_SIZE;
+                    this.chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, start, size);
+                }
+            }
+            catch (IOException e)
+            {
+                WWIO.closeStream(this.raf, file.getPath());
+                throw e;
+            }
+        }
+
+        protected ByteBuffer chunkFor(int slot)
+        {
+            return this.chunks[slot / SLOTS_PER_CHUNK];
+        }
+
+        protected int positionOf(int slot)
+        {
+            return (slot % SLOTS_PER_CHUNK) * SLOT_SIZE;
+        }
+
+        protected void writeCounts()
+        {
+            this.header.putInt(HEADER_NUM_ENTRIES, this.numEntries);
+            this.header.putInt(HEADER_NUM_USED, this.numUsed);
+        }
+
+        protected void force()
+        {
+            for (MappedByteBuffer chunk : this.chunks)
+            {
+                chunk.force();
+            }
+            this.header.force();
+        }
+
+        protected void close()
+        {
+            WWIO.closeStream(this.raf, this.file.getPath());
+        }
+    }
+
+    /** The packs open in this process. A shutdown hook closes them when the process exits. */
+    protected static final Set<TilePack> openPacks = Collections.newSetFromMap(new WeakHashMap<TilePack, Boolean>());
+    protected static Thread shutdownHook; // guarded by openPacks
+
+    protected final File directory;
+    protected final long maxPackSize;
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+    protected final List<PackFile> packFiles = new ArrayList<PackFile>(); // guarded by lock
+    protected Index index; // guarded by lock
+    protected boolean closed; // guarded by lock
+
+    /**
+     * Opens the pack in a specified directory, creating the directory and an empty pack if necessary. Pack files are
+     * limited to {@link #DEFAULT_MAX_PACK_SIZE} bytes.
+     *
+     * @param directory the directory holding the pack.
+     *
+     * @throws IllegalArgumentException if the directory is null.
+     * @throws IOException              if the directory cannot be created or the pack cannot be opened.
+     */
+    public TilePack(File directory) throws IOException
+    {
+        this(directory, DEFAULT_MAX_PACK_SIZE);
+    }
+
+    /**
+     * Opens the pack in a specified directory, creating the directory and an empty pack if necessary.
+     *
+     * @param directory   the directory holding the pack.
+     * @param maxPackSize the size, in bytes, beyond which a pack file is no longer appended to. Blobs larger than this
+     *                    are written to a pack file of their own.
+     *
+     * @throws IllegalArgumentException if the directory is null or the maximum pack size is less than 1 or greater than
+     *                                  {@link Integer#MAX_VALUE}.
+     * @throws IOException              if the directory cannot be created or the pack cannot be opened.
+     */
+    public TilePack(File directory, long maxPackSize) throws IOException
+    {
+        if (directory == null)
+        {
+            String message = Logging.getMessage("nullValue.FileIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (maxPackSize < 1 || maxPackSize > Integer.MAX_VALUE)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", maxPackSize);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (!directory.exists() && !directory.mkdirs())
+        {
+            String message = Logging.getMessage("generic.CannotCreateFile", directory.getPath());
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        this.directory = directory;
+        this.maxPackSize = maxPackSize;
+
+        try
+        {
+            this.openPackFiles();
+            this.openIndex();
+        }
+        catch (IOException e)
+        {
+            this.close();
+            throw e;
+        }
+
+        addOpenPack(this);
+    }
+
+    /**
+     * Adds a pack to the packs closed when the process exits, installing the shutdown hook that closes them if it's not
+     * already installed.
+     *
+     * @param pack the pack.
+     */
+    protected static void addOpenPack(TilePack pack)
+    {
+        synchronized (openPacks)
+        {
+            openPacks.add(pack);
+
+            if (shutdownHook == null)
+            {
+                shutdownHook = new Thread("Tile Pack Shutdown")
+                {
+                    public void run()
+                    {
+                        List<TilePack> packs;
+                        synchronized (openPacks)
+                        {
+                            packs = new ArrayList<TilePack>(openPacks);
+                        }
+
+                        for (TilePack pack : packs)
+                        {
+                            pack.close();
+                        }
+                    }
+                };
+                Runtime.getRuntime().addShutdownHook(shutdownHook);
+            }
+        }
+    }
+
+    protected static void removeOpenPack(TilePack pack)
+    {
+        synchronized (openPacks)
+        {
+            openPacks.remove(pack);
+        }
+    }
+
+    /**
+     * Indicates the directory holding this pack.
+     *
+     * @return this pack's directory.
+     */
+    public File getDirectory()
+    {
+        return this.directory;
+    }
+
+    /**
+     * Indicates the maximum size of this pack's pack files.
+     *
+     * @return the maximum pack file size, in bytes.
+     */
+    public long getMaxPackSize()
+    {
+        return this.maxPackSize;
+    }
+
+    /**
+     * Indicates the number of blobs in this pack.
+     *
+     * @return the number of blobs.
+     */
+    public int getNumEntries()
+    {
+        this.lock.readLock().lock();
+        try
+        {
+            return this.index != null ? this.index.numEntries : 0;
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indicates whether this pack holds a blob with a specified name.
+     *
+     * @param name the blob's name.
+     *
+     * @return true if the blob exists, otherwise false.
+     *
+     * @throws IllegalArgumentException if the name is null.
+     */
+    public boolean contains(String name)
+    {
+        return this.find(name) >= 0;
+    }
+
+    /**
+     * Returns a read-only buffer holding the contents of a named blob. The buffer's position is zero and its limit is
+     * the blob's length. The buffer remains valid after the blob is replaced or removed, and after this pack is
+     * closed.
+     *
+     * @param name the blob's name.
+     *
+     * @return the blob's contents, or null if this pack does not hold the named blob.
+     *
+     * @throws IllegalArgumentException if the name is null.
+     */
+    public ByteBuffer get(String name)
+    {
+        if (name == null)
+        {
+            String message = Logging.getMessage("nullValue.StringIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        byte[] nameBytes = encodeName(name);
+
+        this.lock.readLock().lock();
+        try
+        {
+            int slot = this.findSlot(nameBytes, hashName(nameBytes));
+            if (slot < 0)
+                return null;
+
+            ByteBuffer chunk = this.index.chunkFor(slot);
+            int pos = this.index.positionOf(slot);
+            PackFile packFile = this.packFiles.get(chunk.getInt(pos + SLOT_PACK));
+            long offset = (long) chunk.getInt(pos + SLOT_OFFSET) + RECORD_HEADER_SIZE + nameBytes.length;
+            int length = chunk.getInt(pos + SLOT_LENGTH);
+
+            ByteBuffer buffer = packFile.getRange(offset, length);
+
+            return buffer != null ? buffer.asReadOnlyBuffer() : null;
+        }
+        catch (IOException e)
+        {
+            Logging.logger().log(Level.SEVERE, Logging.getMessage("TilePack.ExceptionReading", name), e);
+            return null;
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Indicates the modification time of a named blob.
+     *
+     * @param name the blob's name.
+     *
+     * @return the modification time, in milliseconds since the epoch, or 0 if this pack does not hold the named blob.
+     *
+     * @throws IllegalArgumentException if the name is null.
+     */
+    public long getLastModified(String name)
+    {
+        byte[] nameBytes = encodeName(name);
+
+        this.lock.readLock().lock();
+        try
+        {
+            int slot = this.findSlot(nameBytes, hashName(nameBytes));
+            if (slot < 0)
+                return 0;
+
+            return this.index.chunkFor(slot).getLong(this.index.positionOf(slot) + SLOT_LAST_MODIFIED);
+        }
+        catch (IOException e)
+        {
+            Logging.logger().log(Level.SEVERE, Logging.getMessage("TilePack.ExceptionReading", name), e);
+            return 0;
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a blob to this pack, replacing any blob of the same name.
+     *
+     * @param name         the blob's name.
+     * @param data         the blob's contents, from the buffer's position to its limit. The buffer's position is not
+     *                     changed.
+     * @param lastModified the blob's modification time, in milliseconds since the epoch.
+     *
+     * @throws IllegalArgumentException if the name or data is null.
+     * @throws IOException              if an error occurs writing the blob.
+     */
+    public void put(String name, ByteBuffer data, long lastModified) throws IOException
+    {
+        if (name == null)
+        {
+            String message = Logging.getMessage("nullValue.StringIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (data == null)
+        {
+            String message = Logging.getMessage("nullValue.BufferIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        byte[] nameBytes = encodeName(name);
+        long hash = hashName(nameBytes);
+        long recordLength = (long) RECORD_HEADER_SIZE + nameBytes.length + data.remaining();
+        if (recordLength > Integer.MAX_VALUE)
+        {
+            String message = Logging.getMessage("generic.LengthIsInvalid", data.remaining());
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.lock.writeLock().lock();
+        try
+        {
+            this.checkOpen();
+
+            // Append the record, then refer to it from the index. A failure between the two leaves only unreferenced
+            // bytes in the pack file.
+            PackFile packFile = this.packFileForAppend(recordLength);
+            long offset = packFile.size;
+            this.writeRecord(packFile, nameBytes, data, lastModified);
+
+            this.indexRecord(nameBytes, hash, packFile.number, (int) offset, data.remaining(), lastModified);
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the contents of a file to this pack, replacing any blob of the same name. The blob's modification time is
+     * that of the file.
+     *
+     * @param name the blob's name.
+     * @param file the file to add.
+     *
+     * @throws IllegalArgumentException if the name or file is null.
+     * @throws IOException              if an error occurs reading the file or writing the blob.
+     */
+    public void put(String name, File file) throws IOException
+    {
+        if (file == null)
+        {
+            String message = Logging.getMessage("nullValue.FileIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        long lastModified = file.lastModified();
+        this.put(name, WWIO.readFileToBuffer(file), lastModified);
+    }
+
+    /**
+     * Removes a named blob from this pack.
+     *
+     * @param name the blob's name.
+     *
+     * @return true if the blob existed, otherwise false.
+     *
+     * @throws IllegalArgumentException if the name is null.
+     */
+    public boolean remove(String name)
+    {
+        byte[] nameBytes = encodeName(name);
+
+        this.lock.writeLock().lock();
+        try
+        {
+            if (this.closed)
+                return false;
+
+            long hash = hashName(nameBytes);
+            if (this.findSlot(nameBytes, hash) < 0)
+                return false;
+
+            // Record the removal in the pack file so that a rebuilt index doesn't restore the blob.
+            this.writeRecord(this.packFileForAppend(RECORD_HEADER_SIZE + nameBytes.length), nameBytes, null,
+                System.currentTimeMillis());
+
+            return this.unindexRecord(nameBytes, hash);
+        }
+        catch (IOException e)
+        {
+            Logging.logger().log(Level.SEVERE, Logging.getMessage("TilePack.ExceptionWriting", name), e);
+            return false;
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes all changes to this pack to the disk.
+     *
+     * @throws IOException if an error occurs writing the changes.
+     */
+    public void flush() throws IOException
+    {
+        this.lock.writeLock().lock();
+        try
+        {
+            if (this.closed)
+                return;
+
+            for (PackFile packFile : this.packFiles)
+            {
+                packFile.raf.getChannel().force(false);
+            }
+
+            this.index.force();
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes all changes to the disk and closes this pack's files. Subsequent lookups find no blobs, and subsequent
+     * attempts to add blobs fail.
+     */
+    public void close()
+    {
+        this.lock.writeLock().lock();
+        try
+        {
+            if (this.closed)
+                return;
+
+            this.closed = true;
+
+            try
+            {
+                for (PackFile packFile : this.packFiles)
+                {
+                    packFile.raf.getChannel().force(false);
+                }
+
+                if (this.index != null)
+                    this.index.force();
+            }
+            catch (IOException e)
+            {
+                Logging.logger().log(Level.SEVERE, Logging.getMessage("TilePack.ExceptionWriting", this.directory),
+                    e);
+            }
+
+            for (PackFile packFile : this.packFiles)
+            {
+                packFile.close();
+            }
+
+            if (this.index != null)
+                this.index.close();
+        }
+        finally
+        {
+            this.lock.writeLock().unlock();
+        }
+
+        removeOpenPack(this);
+    }
+
+    //**************************************************************//
+    //********************  Pack Files  ****************************//
+    //**************************************************************//
+
+    protected void openPackFiles() throws IOException
+    {
+        SortedMap<Integer, File> files = listNumberedFiles(PACK_FILE_PREFIX, PACK_FILE_SUFFIX);
+
+        // Pack file numbers are indices into the pack file list, so the numbers must be contiguous.
+        int expected = 0;
+        for (Map.Entry<Integer, File> entry : files.entrySet())
+        {
+            if (entry.getKey() != expected++)
+            {
+                String message = Logging.getMessage("TilePack.PackFileMissing", expected - 1, this.directory);
+                Logging.logger().severe(message);
+                throw new IOException(message);
+            }
+
+            this.packFiles.add(new PackFile(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    protected PackFile packFileForAppend(long recordLength) throws IOException
+    {
+        PackFile last = this.packFiles.isEmpty() ? null : this.packFiles.get(this.packFiles.size() - 1);
+        if (last != null && (last.size == 0 || last.size + recordLength <= this.maxPackSize))
+            return last;
+
+        int number = this.packFiles.size();
+        PackFile packFile = new PackFile(number, this.makeFile(PACK_FILE_PREFIX, number, PACK_FILE_SUFFIX));
+        this.packFiles.add(packFile);
+
+        return packFile;
+    }
+
+    /**
+     * Appends a record to a pack file.
+     *
+     * @param packFile     the pack file.
+     * @param nameBytes    the UTF-8 bytes of the blob's name.
+     * @param data         the blob's contents, from the buffer's position to its limit, or null to record the blob's
+     *                     removal.
+     * @param lastModified the modification time recorded with the blob.
+     *
+     * @throws IOException if an error occurs writing the record.
+     */
+    protected void writeRecord(PackFile packFile, byte[] nameBytes, ByteBuffer data, long lastModified)
+        throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE + nameBytes.length);
+        header.putInt(nameBytes.length);
+        header.putInt(data != null ? data.remaining() : REMOVED_LENGTH);
+        header.putLong(lastModified);
+        header.put(nameBytes).flip();
+        ByteBuffer contents = data != null ? data.duplicate() : null;
+
+        FileChannel channel = packFile.raf.getChannel();
+        long position = packFile.size;
+        while (header.hasRemaining())
+        {
+            position += channel.write(header, position);
+        }
+        while (contents != null && contents.hasRemaining())
+        {
+            position += channel.write(contents, position);
+        }
+        packFile.size = position;
+    }
+
+    //**************************************************************//
+    //********************  Index  *********************************//
+    //**************************************************************//
+
+    protected void openIndex() throws IOException
+    {
+        SortedMap<Integer, File> files = listNumberedFiles(INDEX_FILE_PREFIX, INDEX_FILE_SUFFIX);
+        int nextGeneration = files.isEmpty() ? 0 : files.lastKey() + 1;
+
+        // Use the newest complete index. An incomplete index is one whose rebuild was interrupted.
+        while (!files.isEmpty() && this.index == null)
+        {
+            int generation = files.lastKey();
+            File file = files.remove(generation);
+
+            try
+            {
+                this.index = new Index(generation, file, 0, false);
+            }
+            catch (IOException e)
+            {
+                Logging.logger().log(Level.WARNING, Logging.getMessage("TilePack.IndexInvalid", file.getPath()), e);
+                deleteFile(file);
+            }
+        }
+
+        for (File file : files.values())
+        {
+            deleteFile(file);
+        }
+
+        if (this.index == null)
+            this.rebuildIndex(nextGeneration);
+    }
+
+    /**
+     * Creates an index of the blobs in this pack's pack files by reading their records in order. A pack file's records
+     * are read up to the first record that's incomplete, such as one whose writing was interrupted by a crash, and
+     * subsequent records are appended in its place.
+     *
+     * @param generation the generation of the new index.
+     *
+     * @throws IOException if an error occurs reading the pack files or writing the index.
+     */
+    protected void rebuildIndex(int generation) throws IOException
+    {
+        this.index = new Index(generation, this.makeFile(INDEX_FILE_PREFIX, generation, INDEX_FILE_SUFFIX),
+            DEFAULT_INDEX_CAPACITY, true);
+
+        for (PackFile packFile : this.packFiles)
+        {
+            long offset = 0;
+            while (offset + RECORD_HEADER_SIZE <= packFile.size)
+            {
+                ByteBuffer header = packFile.getRange(offset, RECORD_HEADER_SIZE);
+                if (header == null)
+                    break;
+
+                int nameLength = header.getInt(RECORD_NAME_LENGTH);
+                int dataLength = header.getInt(RECORD_DATA_LENGTH);
+                long end = offset + RECORD_HEADER_SIZE + nameLength + Math.max(dataLength, 0);
+                if (nameLength < 0 || dataLength < REMOVED_LENGTH || end > packFile.size)
+                    break;
+
+                ByteBuffer nameBuffer = packFile.getRange(offset + RECORD_HEADER_SIZE, nameLength);
+                if (nameBuffer == null)
+                    break;
+
+                byte[] nameBytes = new byte[nameLength];
+                nameBuffer.get(nameBytes);
+                long hash = hashName(nameBytes);
+
+                if (dataLength == REMOVED_LENGTH)
+                    this.unindexRecord(nameBytes, hash);
+                else
+                    this.indexRecord(nameBytes, hash, packFile.number, (int) offset, dataLength,
+                        header.getLong(RECORD_LAST_MODIFIED));
+
+                offset = end;
+            }
+
+            if (offset < packFile.size)
+            {
+                Logging.logger().warning(Logging.getMessage("TilePack.PackFileTruncated", packFile.file.getPath(),
+                    offset));
+                // Append over the incomplete record. The file can't be shortened beneath its mapping.
+                MappedByteBuffer mapping = packFile.mappedBuffer;
+                if (mapping == null || mapping.capacity() <= offset)
+                    packFile.raf.setLength(offset);
+                packFile.size = offset;
+            }
+        }
+
+        this.index.writeCounts();
+        this.index.force();
+        // Mark the new index complete only after its contents are on disk.
+        this.index.header.putInt(HEADER_COMPLETE, 1);
+        this.index.header.force();
+    }
+
+    /**
+     * Refers to a record from the index, replacing any index entry for the record's name.
+     *
+     * @param nameBytes    the UTF-8 bytes of the blob's name.
+     * @param hash         the name's hash.
+     * @param packNumber   the number of the pack file holding the record.
+     * @param offset       the record's offset in the pack file.
+     * @param length       the blob's length.
+     * @param lastModified the blob's modification time.
+     *
+     * @throws IOException if an error occurs reading the name stored with a candidate record or growing the index.
+     */
+    protected void indexRecord(byte[] nameBytes, long hash, int packNumber, int offset, int length,
+        long lastModified) throws IOException
+    {
+        this.ensureIndexCapacity();
+        int slot = this.findSlot(nameBytes, hash);
+        if (slot < 0)
+        {
+            slot = this.findInsertionSlot(hash);
+            if (this.index.chunkFor(slot).getInt(this.index.positionOf(slot) + SLOT_STATE) == SLOT_EMPTY)
+                this.index.numUsed++;
+            this.index.numEntries++;
+        }
+
+        this.writeSlot(this.index, slot, hash, packNumber, offset, length, lastModified);
+        this.index.writeCounts();
+    }
+
+    /**
+     * Removes a name's entry from the index.
+     *
+     * @param nameBytes the UTF-8 bytes of the blob's name.
+     * @param hash      the name's hash.
+     *
+     * @return true if the index held an entry for the name, otherwise false.
+     *
+     * @throws IOException if an error occurs reading the name stored with a candidate record.
+     */
+    protected boolean unindexRecord(byte[] nameBytes, long hash) throws IOException
+    {
+        int slot = this.findSlot(nameBytes, hash);
+        if (slot < 0)
+            return false;
+
+        this.index.chunkFor(slot).putInt(this.index.positionOf(slot) + SLOT_STATE, SLOT_REMOVED);
+        this.index.numEntries--;
+        this.index.writeCounts();
+
+        return true;
+    }
+
+    protected void ensureIndexCapacity() throws IOException
+    {
+        Index oldIndex = this.index;
+        if (oldIndex.numUsed + 1 <= MAX_LOAD_FACTOR * oldIndex.capacity)
+            return;
+
+        // Grow the index if live entries dominate it, otherwise rebuild it at the same size to discard removed slots.
+        int capacity = oldIndex.capacity;
+        while ((oldIndex.numEntries + 1) * 2 > MAX_LOAD_FACTOR * capacity)
+        {
+            capacity *= 2;
+        }
+
+        int generation = oldIndex.generation + 1;
+        Index newIndex = new Index(generation, this.makeFile(INDEX_FILE_PREFIX, generation, INDEX_FILE_SUFFIX),
+            capacity, true);
+
+        try
+        {
+            for (int slot = 0; slot < oldIndex.capacity; slot++)
+            {
+                ByteBuffer chunk = oldIndex.chunkFor(slot);
+                int pos = oldIndex.positionOf(slot);
+                if (chunk.getInt(pos + SLOT_STATE) != SLOT_LIVE)
+                    continue;
+
+                long hash = chunk.getLong(pos + SLOT_HASH);
+                int newSlot = findEmptySlot(newIndex, hash);
+                this.writeSlot(newIndex, newSlot, hash, chunk.getInt(pos + SLOT_PACK), chunk.getInt(pos + SLOT_OFFSET),
+                    chunk.getInt(pos + SLOT_LENGTH), chunk.getLong(pos + SLOT_LAST_MODIFIED));
+                newIndex.numEntries++;
+                newIndex.numUsed++;
+            }
+
+            newIndex.writeCounts();
+            newIndex.force();
+            // Mark the new index complete only after its contents are on disk, and only if the old index is. An index
+            // being rebuilt from the pack files is incomplete until all of the records are read.
+            newIndex.header.putInt(HEADER_COMPLETE, oldIndex.header.getInt(HEADER_COMPLETE));
+            newIndex.header.force();
+        }
+        catch (RuntimeException e)
+        {
+            newIndex.close();
+            deleteFile(newIndex.file);
+            throw e;
+        }
+
+        this.index = newIndex;
+        oldIndex.force();
+        oldIndex.close();
+        deleteFile(oldIndex.file); // May fail on systems that don't delete mapped files; removed on the next open.
+    }
+
+    /**
+     * Returns the index slot holding a named blob, verifying the name stored in the pack file.
+     *
+     * @param nameBytes the UTF-8 bytes of the name.
+     * @param hash      the name's hash.
+     *
+     * @return the slot, or -1 if the pack does not hold the blob.
+     *
+     * @throws IOException if an error occurs reading the name stored with a candidate record.
+     */
+    protected int findSlot(byte[] nameBytes, long hash) throws IOException
+    {
+        if (this.closed)
+            return -1;
+
+        Index idx = this.index;
+        int mask = idx.capacity - 1;
+
+        for (int slot = spread(hash) & mask, probes = 0; probes < idx.capacity; slot = (slot + 1) & mask, probes++)
+        {
+            ByteBuffer chunk = idx.chunkFor(slot);
+            int pos = idx.positionOf(slot);
+            int state = chunk.getInt(pos + SLOT_STATE);
+
+            if (state == SLOT_EMPTY)
+                return -1;
+
+            if (state == SLOT_LIVE && chunk.getLong(pos + SLOT_HASH) == hash
+                && this.recordMatches(chunk.getInt(pos + SLOT_PACK), chunk.getInt(pos + SLOT_OFFSET),
+                chunk.getInt(pos + SLOT_LENGTH), nameBytes))
+            {
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    protected int find(String name)
+    {
+        byte[] nameBytes = encodeName(name);
+
+        this.lock.readLock().lock();
+        try
+        {
+            return this.findSlot(nameBytes, hashName(nameBytes));
+        }
+        catch (IOException e)
+        {
+            Logging.logger().log(Level.SEVERE, Logging.getMessage("TilePack.ExceptionReading", name), e);
+            return -1;
+        }
+        finally
+        {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    protected boolean recordMatches(int packNumber, int offset, int length, byte[] nameBytes) throws IOException
+    {
+        if (packNumber < 0 || packNumber >= this.packFiles.size() || offset < 0 || length < 0)
+            return false;
+
+        PackFile packFile = this.packFiles.get(packNumber);
+        if (packFile.size < (long) offset + RECORD_HEADER_SIZE + nameBytes.length + length) // the record was lost
+            return false;
+
+        ByteBuffer buffer = packFile.getRange(offset, RECORD_HEADER_SIZE + nameBytes.length);
+        if (buffer == null)
+            return false;
+
+        if (buffer.getInt(RECORD_NAME_LENGTH) != nameBytes.length || buffer.getInt(RECORD_DATA_LENGTH) != length)
+            return false;
+
+        for (int i = 0; i < nameBytes.length; i++)
+        {
+            if (buffer.get(RECORD_HEADER_SIZE + i) != nameBytes[i])
+                return false;
+        }
+
+        return true;
+    }
+
+    /** Returns the first empty or removed slot in a hash's probe sequence. The index must have a free slot. */
+    protected int findInsertionSlot(long hash)
+    {
+        Index idx = this.index;
+        int mask = idx.capacity - 1;
+
+        int slot = spread(hash) & mask;
+        while (idx.chunkFor(slot).getInt(idx.positionOf(slot) + SLOT_STATE) == SLOT_LIVE)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    protected static int findEmptySlot(Index idx, long hash)
+    {
+        int mask = idx.capacity - 1;
+
+        int slot = spread(hash) & mask;
+        while (idx.chunkFor(slot).getInt(idx.positionOf(slot) + SLOT_STATE) != SLOT_EMPTY)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    protected void writeSlot(Index idx, int slot, long hash, int packNumber, int offset, int length, long lastModified)
+    {
+        ByteBuffer chunk = idx.chunkFor(slot);
+        int pos = idx.positionOf(slot);
+
+        chunk.putLong(pos + SLOT_HASH, hash);
+        chunk.putInt(pos + SLOT_PACK, packNumber);
+        chunk.putInt(pos + SLOT_OFFSET, offset);
+        chunk.putInt(pos + SLOT_LENGTH, length);
+        chunk.putLong(pos + SLOT_LAST_MODIFIED, lastModified);
+        chunk.putInt(pos + SLOT_STATE, SLOT_LIVE);
+    }
+
+    //**************************************************************//
+    //********************  Utilities  *****************************//
+    //**************************************************************//
+
+    protected void checkOpen() throws IOException
+    {
+        if (this.closed)
+        {
+            String message = Logging.getMessage("TilePack.PackIsClosed", this.directory);
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+    }
+
+    protected File makeFile(String prefix, int number, String suffix)
+    {
+        return new File(this.directory, prefix + number + suffix);
+    }
+
+    protected SortedMap<Integer, File> listNumberedFiles(String prefix, String suffix)
+    {
+        SortedMap<Integer, File> files = new TreeMap<Integer, File>();
+
+        File[] children = this.directory.listFiles();
+        if (children == null)
+            return files;
+
+        for (File file : children)
+        {
+            String name = file.getName();
+            if (!name.startsWith(prefix) || !name.endsWith(suffix))
+                continue;
+
+            try
+            {
+                files.put(Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length())), file);
+            }
+            catch (NumberFormatException e)
+            {
+                // Not one of this pack's files.
+            }
+        }
+
+        return files;
+    }
+
+    @SuppressWarnings({"ResultOfMethodCallIgnored"})
+    protected static void deleteFile(File file)
+    {
+        file.delete();
+    }
+
+    protected static byte[] encodeName(String name)
+    {
+        if (name == null)
+        {
+            String message = Logging.getMessage("nullValue.StringIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        try
+        {
+            return name.getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e); // UTF-8 is always supported
+        }
+    }
+
+    /** Computes the 64-bit FNV-1a hash of a name's bytes. */
+    protected static long hashName(byte[] nameBytes)
+    {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : nameBytes)
+        {
+            hash ^= (b & 0xff);
+            hash *= 0x100000001b3L;
+        }
+
+        return hash;
+    }
+
+    protected static int spread(long hash)
+    {
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
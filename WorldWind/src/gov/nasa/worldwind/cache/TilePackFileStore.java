@@ -0,0 +1,534 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import gov.nasa.worldwind.Disposable;
+import gov.nasa.worldwind.util.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * A {@link FileStore} that holds tiles in a {@link TilePack} in its write location rather than as individual files. It
+ * is selected by setting the configuration property <code>gov.nasa.worldwind.avkey.DataFileStoreClassName</code> to
+ * this class's name, and is used by layers and elevation models through the ordinary <code>FileStore</code> methods.
+ * <p/>
+ * Only files whose names end with one of this store's packable suffixes are packed. Other files, such as data
+ * configuration documents, are stored and found exactly as they are by {@link BasicDataFileStore}. Retrieved tiles are
+ * saved directly into the pack through the {@link PackingFileStore} interface. Packable files written instead to the
+ * {@link java.io.File} returned by {@link #newFile(String)} are moved into the pack when <code>findFile</code> finds
+ * them in the write location and they have not been modified for the store's quiet period. The quiet period prevents
+ * packing a file that is still being written.
+ * <p/>
+ * Packed tiles are returned by <code>findFile</code> as URLs whose protocol is {@link #PROTOCOL}. Such a URL's path is
+ * the tile's file store name, its connection reads the tile from the pack's memory-mapped buffers, and it reports the
+ * tile's modification time. Packed tiles are found before files of the same name in the file store's locations, and are
+ * not included in the results of <code>listFileNames</code> and its variants.
+ * <p/>
+ * Existing cache directories can be moved into a pack with {@link TilePackImporter}.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class TilePackFileStore extends BasicDataFileStore implements PackingFileStore, Disposable
+{
+    /** The protocol of URLs referring to packed tiles. */
+    public static final String PROTOCOL = "wwpack";
+    /** The name of the directory in the write location holding the pack. */
+    public static final String PACK_DIRECTORY_NAME = "TilePack";
+    /** The suffixes of file names packed by default. */
+    public static final List<String> DEFAULT_PACKABLE_SUFFIXES = Arrays.asList(
+        ".bil", ".dds", ".gif", ".jpeg", ".jpg", ".png", ".xml.gz");
+    /** The default number of milliseconds a file must go unmodified before it is packed. */
+    protected static final long DEFAULT_QUIET_PERIOD = 2000;
+
+    protected final Object packLock = new Object();
+    protected TilePack tilePack; // guarded by packLock
+    protected boolean packUnavailable; // guarded by packLock
+    protected List<String> packableSuffixes;
+    protected long quietPeriod;
+    protected URLStreamHandler urlStreamHandler;
+
+    /**
+     * Create an instance.
+     *
+     * @throws IllegalStateException if the configuration file name cannot be determined from {@link
+     *                               gov.nasa.worldwind.Configuration} or the configuration file cannot be found.
+     */
+    public TilePackFileStore()
+    {
+        super();
+    }
+
+    /**
+     * Create an instance to manage a specified directory.
+     *
+     * @param directoryPath the directory to manage as a file store.
+     */
+    public TilePackFileStore(File directoryPath)
+    {
+        super(directoryPath);
+    }
+
+    @Override
+    protected void initialize(InputStream xmlConfigStream)
+    {
+        // Called by the superclass constructor, before this class's field initializers would run.
+        this.packableSuffixes = new ArrayList<String>(DEFAULT_PACKABLE_SUFFIXES);
+        this.quietPeriod = DEFAULT_QUIET_PERIOD;
+        this.urlStreamHandler = new PackURLStreamHandler();
+
+        super.initialize(xmlConfigStream);
+    }
+
+    /**
+     * Indicates the suffixes of the file names this store packs.
+     *
+     * @return the packable suffixes.
+     */
+    public List<String> getPackableSuffixes()
+    {
+        return Collections.unmodifiableList(this.packableSuffixes);
+    }
+
+    /**
+     * Specifies the suffixes of the file names this store packs. Suffixes are compared without regard to case.
+     *
+     * @param suffixes the packable suffixes, each including its leading period.
+     *
+     * @throws IllegalArgumentException if the list is null.
+     */
+    public void setPackableSuffixes(List<String> suffixes)
+    {
+        if (suffixes == null)
+        {
+            String message = Logging.getMessage("nullValue.ListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.packableSuffixes = new ArrayList<String>(suffixes);
+    }
+
+    /**
+     * Indicates the number of milliseconds a file in the write location must go unmodified before it is packed.
+     *
+     * @return the quiet period, in milliseconds.
+     */
+    public long getQuietPeriod()
+    {
+        return this.quietPeriod;
+    }
+
+    /**
+     * Specifies the number of milliseconds a file in the write location must go unmodified before it is packed.
+     *
+     * @param quietPeriod the quiet period, in milliseconds.
+     *
+     * @throws IllegalArgumentException if the quiet period is negative.
+     */
+    public void setQuietPeriod(long quietPeriod)
+    {
+        if (quietPeriod < 0)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", quietPeriod);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.quietPeriod = quietPeriod;
+    }
+
+    /**
+     * Returns this store's tile pack, opening it if it's not already open.
+     *
+     * @return the tile pack, or null if the store has no write location or the pack cannot be opened.
+     */
+    public TilePack getTilePack()
+    {
+        synchronized (this.packLock)
+        {
+            if (this.tilePack == null && !this.packUnavailable)
+            {
+                File writeLocation = this.getWriteLocation();
+                if (writeLocation != null)
+                {
+                    File directory = new File(writeLocation, PACK_DIRECTORY_NAME);
+                    try
+                    {
+                        this.tilePack = new TilePack(directory);
+                    }
+                    catch (IOException e)
+                    {
+                        Logging.logger().log(Level.SEVERE,
+                            Logging.getMessage("TilePack.ExceptionOpening", directory.getPath()), e);
+                    }
+                }
+
+                // Don't attempt to open the pack again, and continue as a BasicDataFileStore.
+                this.packUnavailable = this.tilePack == null;
+            }
+
+            return this.tilePack;
+        }
+    }
+
+    /**
+     * Writes all changes to this store's tile pack to the disk and closes the pack. A subsequent use of the store
+     * reopens it.
+     */
+    public void closeTilePack()
+    {
+        synchronized (this.packLock)
+        {
+            if (this.tilePack != null)
+                this.tilePack.close();
+
+            this.tilePack = null;
+        }
+    }
+
+    /** Closes this store's tile pack. See {@link #closeTilePack()}. */
+    public void dispose()
+    {
+        this.closeTilePack();
+    }
+
+    /**
+     * Indicates whether this store packs a named file.
+     *
+     * @param fileName the file's name.
+     *
+     * @return true if the name ends with one of this store's packable suffixes, otherwise false.
+     */
+    public boolean isPackable(String fileName)
+    {
+        if (fileName == null)
+            return false;
+
+        String lowerCaseName = fileName.toLowerCase();
+        for (String suffix : this.packableSuffixes)
+        {
+            if (lowerCaseName.endsWith(suffix.toLowerCase()))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Indicates whether this store holds a named file in its pack. This returns true if the file is packable and the
+     * pack can be opened.
+     *
+     * @param fileName the file's name.
+     *
+     * @return true if the file is held in the pack, otherwise false.
+     */
+    public boolean packsFile(String fileName)
+    {
+        return this.isPackable(fileName) && this.getTilePack() != null;
+    }
+
+    /**
+     * Saves the contents of a packable file into this store's pack. The contents' modification time is the current
+     * time.
+     *
+     * @param fileName  the file's name.
+     * @param buffer    the file's contents, from the buffer's position to its limit. The buffer's position is not
+     *                  changed.
+     * @param overwrite true to replace a packed file of the same name, false to leave it.
+     *
+     * @return true if the contents were saved, false if the pack holds the file and it is not overwritten.
+     *
+     * @throws IllegalArgumentException if the file name or buffer is null.
+     * @throws IOException              if the pack can't be opened or an error occurs writing to it.
+     */
+    public boolean saveBuffer(String fileName, ByteBuffer buffer, boolean overwrite) throws IOException
+    {
+        if (fileName == null)
+        {
+            String message = Logging.getMessage("nullValue.FilePathIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (buffer == null)
+        {
+            String message = Logging.getMessage("nullValue.ByteBufferIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        TilePack pack = this.getTilePack();
+        if (pack == null)
+        {
+            String message = Logging.getMessage("TilePack.ExceptionWriting", fileName);
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        String name = normalizeFileStoreName(fileName);
+        if (!overwrite && pack.contains(name))
+            return false;
+
+        pack.put(name, buffer, System.currentTimeMillis());
+        return true;
+    }
+
+    //**************************************************************//
+    //********************  File Store Contents  *******************//
+    //**************************************************************//
+
+    @Override
+    public boolean containsFile(String fileName)
+    {
+        if (fileName == null)
+            return false;
+
+        if (this.isPackable(fileName))
+        {
+            TilePack pack = this.getTilePack();
+            if (pack != null && pack.contains(normalizeFileStoreName(fileName)))
+                return true;
+        }
+
+        return super.containsFile(fileName);
+    }
+
+    @Override
+    public URL findFile(String fileName, boolean checkClassPath)
+    {
+        if (fileName == null)
+        {
+            String message = Logging.getMessage("nullValue.FilePathIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        TilePack pack = this.isPackable(fileName) ? this.getTilePack() : null;
+        if (pack == null)
+            return super.findFile(fileName, checkClassPath);
+
+        String name = normalizeFileStoreName(fileName);
+        if (pack.contains(name))
+            return this.makePackURL(name);
+
+        URL url = super.findFile(fileName, checkClassPath);
+        if (url == null || !"file".equalsIgnoreCase(url.getProtocol()))
+            return url;
+
+        File file = WWIO.convertURLToFile(url);
+        if (file != null && this.isReadyToPack(file) && this.packFile(pack, name, file))
+            return this.makePackURL(name);
+
+        return url;
+    }
+
+    @Override
+    public void removeFile(URL url)
+    {
+        if (url == null)
+        {
+            String msg = Logging.getMessage("nullValue.URLIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (!PROTOCOL.equals(url.getProtocol()))
+        {
+            super.removeFile(url);
+            return;
+        }
+
+        TilePack pack = this.getTilePack();
+        if (pack != null)
+            pack.remove(nameForPackURL(url));
+    }
+
+    /**
+     * Indicates whether a file found by <code>findFile</code> is to be moved into the pack. This returns true if the
+     * file is in the write location and has not been modified for the quiet period.
+     *
+     * @param file the file.
+     *
+     * @return true if the file is to be packed, otherwise false.
+     */
+    protected boolean isReadyToPack(File file)
+    {
+        File writeLocation = this.getWriteLocation();
+        if (writeLocation == null || !WWIO.isAncestorOf(file, writeLocation))
+            return false;
+
+        long lastModified = file.lastModified();
+        return lastModified != 0 && System.currentTimeMillis() - lastModified >= this.quietPeriod;
+    }
+
+    /**
+     * Moves a file into the pack. The file is deleted once it is packed.
+     *
+     * @param pack the pack.
+     * @param name the file's file store name.
+     * @param file the file.
+     *
+     * @return true if the file was packed, otherwise false.
+     */
+    @SuppressWarnings({"ResultOfMethodCallIgnored"})
+    protected boolean packFile(TilePack pack, String name, File file)
+    {
+        try
+        {
+            pack.put(name, file);
+        }
+        catch (IOException e)
+        {
+            Logging.logger().log(Level.SEVERE, Logging.getMessage("TilePack.ExceptionWriting", file.getPath()), e);
+            return false;
+        }
+
+        file.delete();
+        return true;
+    }
+
+    protected URL makePackURL(String name)
+    {
+        try
+        {
+            return new URL(PROTOCOL, null, -1, "/" + name, this.urlStreamHandler);
+        }
+        catch (MalformedURLException e)
+        {
+            Logging.logger().log(Level.SEVERE, Logging.getMessage("FileStore.ExceptionCreatingURLForFile", name), e);
+            return null;
+        }
+    }
+
+    protected static String nameForPackURL(URL url)
+    {
+        return WWIO.stripLeadingSeparator(url.getPath());
+    }
+
+    /** Opens connections to packed tiles. */
+    protected class PackURLStreamHandler extends URLStreamHandler
+    {
+        @Override
+        protected URLConnection openConnection(URL url) throws IOException
+        {
+            return new PackURLConnection(url);
+        }
+    }
+
+    /** Reads a packed tile from the pack's memory-mapped buffers. */
+    protected class PackURLConnection extends URLConnection
+    {
+        protected final String name;
+        protected ByteBuffer buffer;
+
+        protected PackURLConnection(URL url)
+        {
+            super(url);
+            this.name = nameForPackURL(url);
+        }
+
+        @Override
+        public void connect() throws IOException
+        {
+            if (this.connected)
+                return;
+
+            TilePack pack = getTilePack();
+            this.buffer = pack != null ? pack.get(this.name) : null;
+            if (this.buffer == null)
+                throw new FileNotFoundException(this.url.toString());
+
+            this.connected = true;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException
+        {
+            this.connect();
+
+            return new ByteBufferInputStream(this.buffer.duplicate());
+        }
+
+        @Override
+        public int getContentLength()
+        {
+            try
+            {
+                this.connect();
+                return this.buffer.remaining();
+            }
+            catch (IOException e)
+            {
+                return -1;
+            }
+        }
+
+        @Override
+        public String getContentType()
+        {
+            String suffix = WWIO.getSuffix(this.name);
+            String mimeType = suffix != null ? WWIO.makeMimeTypeForSuffix(suffix) : null;
+            return mimeType != null ? mimeType : guessContentTypeFromName(this.name);
+        }
+
+        @Override
+        public long getLastModified()
+        {
+            TilePack pack = getTilePack();
+            return pack != null ? pack.getLastModified(this.name) : 0;
+        }
+    }
+
+    /** An input stream reading the contents of a buffer. */
+    protected static class ByteBufferInputStream extends InputStream
+    {
+        protected final ByteBuffer buffer;
+
+        protected ByteBufferInputStream(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length)
+        {
+            if (length == 0)
+                return 0;
+
+            if (!this.buffer.hasRemaining())
+                return -1;
+
+            length = Math.min(length, this.buffer.remaining());
+            this.buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public long skip(long n)
+        {
+            int count = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+            this.buffer.position(this.buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available()
+        {
+            return this.buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import gov.nasa.worldwind.util.Logging;
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Moves the tiles of an existing file store directory into a {@link TilePack}, naming each tile by its path relative to
+ * the directory, as {@link TilePackFileStore} does. Running the importer's <code>main</code> method on a World Wind
+ * cache directory converts the cache for use by a <code>TilePackFileStore</code>:
+ * <p/>
+ * <code>java gov.nasa.worldwind.cache.TilePackImporter [-delete] cacheDirectory</code>
+ * <p/>
+ * The pack is placed in the cache directory's {@link TilePackFileStore#PACK_DIRECTORY_NAME} subdirectory. Imported
+ * files are deleted if <code>-delete</code> is specified, otherwise they are left in place and are shadowed by the
+ * packed tiles. A file already in the pack is imported again only if it is newer than the packed tile.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class TilePackImporter
+{
+    /** The number of imported files between progress messages. */
+    protected static final int PROGRESS_INTERVAL = 10000;
+
+    protected final TilePack pack;
+    protected List<String> suffixes;
+    protected boolean deleteImportedFiles;
+    protected int numImported;
+    protected int numFailed;
+
+    /**
+     * Creates an importer that adds files whose names end with {@link TilePackFileStore#DEFAULT_PACKABLE_SUFFIXES} to
+     * a specified pack.
+     *
+     * @param pack the pack to add files to.
+     *
+     * @throws IllegalArgumentException if the pack is null.
+     */
+    public TilePackImporter(TilePack pack)
+    {
+        if (pack == null)
+        {
+            String message = Logging.getMessage("nullValue.ObjectIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.pack = pack;
+        this.suffixes = new ArrayList<String>(TilePackFileStore.DEFAULT_PACKABLE_SUFFIXES);
+    }
+
+    /**
+     * Specifies the suffixes of the file names to import.
+     *
+     * @param suffixes the suffixes, each including its leading period.
+     *
+     * @throws IllegalArgumentException if the list is null.
+     */
+    public void setSuffixes(List<String> suffixes)
+    {
+        if (suffixes == null)
+        {
+            String message = Logging.getMessage("nullValue.ListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.suffixes = new ArrayList<String>(suffixes);
+    }
+
+    /**
+     * Specifies whether files are deleted once they're imported. The default is false.
+     *
+     * @param deleteImportedFiles true to delete imported files, otherwise false.
+     */
+    public void setDeleteImportedFiles(boolean deleteImportedFiles)
+    {
+        this.deleteImportedFiles = deleteImportedFiles;
+    }
+
+    /**
+     * Indicates the number of files imported by this importer.
+     *
+     * @return the number of files imported.
+     */
+    public int getNumImported()
+    {
+        return this.numImported;
+    }
+
+    /**
+     * Indicates the number of files this importer failed to import.
+     *
+     * @return the number of failed imports.
+     */
+    public int getNumFailed()
+    {
+        return this.numFailed;
+    }
+
+    /**
+     * Imports the files beneath a directory, excluding the directory holding the pack. The pack is flushed when the
+     * import completes.
+     *
+     * @param root the directory to import.
+     *
+     * @throws IllegalArgumentException if the directory is null.
+     * @throws IOException              if the pack cannot be flushed.
+     */
+    public void importDirectory(File root) throws IOException
+    {
+        if (root == null)
+        {
+            String message = Logging.getMessage("nullValue.FileIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        // Walk the tree with an explicit stack; cache trees can be deeper than is comfortable for recursion.
+        LinkedList<File> directories = new LinkedList<File>();
+        LinkedList<String> prefixes = new LinkedList<String>();
+        directories.add(root);
+        prefixes.add("");
+
+        File packDirectory = this.pack.getDirectory().getAbsoluteFile();
+
+        while (!directories.isEmpty())
+        {
+            File dir = directories.removeLast();
+            String prefix = prefixes.removeLast();
+
+            File[] children = dir.listFiles();
+            if (children == null)
+                continue;
+
+            for (File child : children)
+            {
+                if (child.isDirectory())
+                {
+                    if (!child.getAbsoluteFile().equals(packDirectory))
+                    {
+                        directories.add(child);
+                        prefixes.add(prefix + child.getName() + "/");
+                    }
+                }
+                else if (this.isImportable(child.getName()))
+                {
+                    this.importFile(prefix + child.getName(), child);
+                }
+            }
+        }
+
+        this.pack.flush();
+    }
+
+    protected boolean isImportable(String fileName)
+    {
+        String lowerCaseName = fileName.toLowerCase();
+        for (String suffix : this.suffixes)
+        {
+            if (lowerCaseName.endsWith(suffix.toLowerCase()))
+                return true;
+        }
+
+        return false;
+    }
+
+    @SuppressWarnings({"ResultOfMethodCallIgnored"})
+    protected void importFile(String name, File file)
+    {
+        try
+        {
+            if (!this.pack.contains(name) || file.lastModified() > this.pack.getLastModified(name))
+                this.pack.put(name, file);
+        }
+        catch (IOException e)
+        {
+            this.numFailed++;
+            Logging.logger().log(Level.SEVERE, Logging.getMessage("TilePack.ExceptionWriting", file.getPath()), e);
+            return;
+        }
+
+        if (this.deleteImportedFiles)
+            file.delete();
+
+        if (++this.numImported % PROGRESS_INTERVAL == 0)
+            Logging.logger().info(Logging.getMessage("TilePack.ImportProgress", this.numImported));
+    }
+
+    public static void main(String[] args)
+    {
+        boolean delete = false;
+        String path = null;
+
+        for (String arg : args)
+        {
+            if ("-delete".equals(arg))
+                delete = true;
+            else
+                path = arg;
+        }
+
+        if (path == null)
+        {
+            System.out.println("Usage: TilePackImporter [-delete] cacheDirectory");
+            return;
+        }
+
+        File root = new File(path);
+        TilePack pack = null;
+        try
+        {
+            pack = new TilePack(new File(root, TilePackFileStore.PACK_DIRECTORY_NAME));
+
+            TilePackImporter importer = new TilePackImporter(pack);
+            importer.setDeleteImportedFiles(delete);
+            importer.importDirectory(root);
+
+            Logging.logger().info(Logging.getMessage("TilePack.ImportComplete", importer.getNumImported(),
+                importer.getNumFailed(), pack.getNumEntries()));
+        }
+        catch (IOException e)
+        {
+            Logging.logger().log(Level.SEVERE, Logging.getMessage("TilePack.ExceptionOpening", root.getPath()), e);
+        }
+        finally
+        {
+            if (pack != null)
+                pack.close();
+        }
+    }
+}
@@ -510,7 +510,7 @@ public class BasicRasterServer extends WWObjectImpl implements RasterServer
                 throw new WWRuntimeException(msg);
             }
 
-            int numIntersectedRasters = 0;
+            java.util.List<CompositionPart> parts = new java.util.ArrayList<CompositionPart>();
             for (DataRaster raster : this.dataRasterList)
             {
                 Sector rasterSector = raster.getSector();
@@ -521,16 +521,20 @@ public class BasicRasterServer extends WWObjectImpl implements RasterServer
                     continue;
                 }
 
-                raster.drawOnTo(reqRaster);
-                numIntersectedRasters++;
+                parts.add(new CompositionPart(raster, reqRaster));
             }
 
-            if (numIntersectedRasters == 0)
+            if (parts.size() == 0)
             {
                 String message = Logging.getMessage("generic.SectorRequestedOutsideCoverageArea", reqSector, "");
                 Logging.logger().finest(message);
                 throw new WWRuntimeException(message);
             }
+
+            // Sources are drawn in list order within each band of the requested raster, so overlapping sources cover
+            // one another as they do when drawn serially.
+            new ConcurrentCompositor(this.getCompositionThreadPoolSize(reqParams)).compose(parts, reqHeight, true,
+                null);
         }
         catch (WWRuntimeException wwe)
         {
@@ -547,6 +551,152 @@ public class BasicRasterServer extends WWObjectImpl implements RasterServer
         return reqRaster;
     }
 
+    /**
+     * Returns the number of threads {@link #composeRaster(gov.nasa.worldwind.avlist.AVList)} uses to read and draw
+     * source rasters. The value is taken from the request parameter {@link AVKey#COMPOSITION_THREAD_POOL_SIZE} if
+     * present, otherwise from this raster server's parameters or the configuration. See {@link
+     * ConcurrentCompositor#getThreadPoolSize(gov.nasa.worldwind.avlist.AVList)}.
+     *
+     * @param reqParams the request parameters.
+     *
+     * @return the number of composition threads.
+     */
+    protected int getCompositionThreadPoolSize(AVList reqParams)
+    {
+        return ConcurrentCompositor.getThreadPoolSize(
+            reqParams.hasKey(AVKey.COMPOSITION_THREAD_POOL_SIZE) ? reqParams : this);
+    }
+
+    /**
+     * Returns a raster sharing the storage of a band of rows of a requested raster, so that sources drawn into the
+     * band on one thread and into other bands on other threads together fill the requested raster.
+     *
+     * @param reqRaster the requested raster.
+     * @param minRow    the first row of the band.
+     * @param maxRow    the row following the last row of the band.
+     *
+     * @return a raster of the band's rows and sector.
+     */
+    protected DataRaster createBandRaster(DataRaster reqRaster, int minRow, int maxRow)
+    {
+        int width = reqRaster.getWidth();
+        int height = reqRaster.getHeight();
+        if (minRow == 0 && maxRow == height)
+            return reqRaster;
+
+        // A single row can't be divided into bands, and an elevation raster's row spacing is undefined for it.
+        if (height < 2)
+            return reqRaster;
+
+        Sector sector = reqRaster.getSector();
+        double maxLat = sector.getMaxLatitude().degrees;
+        AVList params = reqRaster.copy();
+
+        if (reqRaster instanceof ByteBufferRaster)
+        {
+            // Elevation rasters place their first and last rows on the sector's edges.
+            double rowDelta = sector.getDeltaLatDegrees() / (height - 1);
+            Sector bandSector = Sector.fromDegrees(maxLat - (maxRow - 1) * rowDelta, maxLat - minRow * rowDelta,
+                sector.getMinLongitude().degrees, sector.getMaxLongitude().degrees);
+            params.setValue(AVKey.SECTOR, bandSector);
+
+            ByteBuffer buffer = ((ByteBufferRaster) reqRaster).getByteBuffer().duplicate();
+            int bytesPerRow = buffer.capacity() / height;
+            buffer.clear();
+            buffer.limit(maxRow * bytesPerRow);
+            buffer.position(minRow * bytesPerRow);
+
+            return new ByteBufferRaster(width, maxRow - minRow, bandSector, buffer.slice(), params);
+        }
+        else
+        {
+            // Image rasters divide the sector among their rows.
+            double rowDelta = sector.getDeltaLatDegrees() / height;
+            Sector bandSector = Sector.fromDegrees(maxLat - maxRow * rowDelta, maxLat - minRow * rowDelta,
+                sector.getMinLongitude().degrees, sector.getMaxLongitude().degrees);
+            params.setValue(AVKey.SECTOR, bandSector);
+
+            java.awt.image.BufferedImage image = ((BufferedImageRaster) reqRaster).getBufferedImage();
+
+            return new BufferedImageRaster(bandSector, image.getSubimage(0, minRow, width, maxRow - minRow), params);
+        }
+    }
+
+    /** A source raster to be drawn into a requested raster by {@link ConcurrentCompositor}. */
+    protected class CompositionPart implements ConcurrentCompositor.Part<DataRaster>
+    {
+        protected final DataRaster raster;
+        protected final DataRaster reqRaster;
+        protected final int minRow;
+        protected final int maxRow;
+
+        public CompositionPart(DataRaster raster, DataRaster reqRaster)
+        {
+            this.raster = raster;
+            this.reqRaster = reqRaster;
+
+            // Include a row on each side for rows the source only partially covers.
+            Sector reqSector = reqRaster.getSector();
+            double rowsPerDegree = reqRaster.getHeight() / reqSector.getDeltaLatDegrees();
+            this.minRow = (int) Math.floor(
+                (reqSector.getMaxLatitude().degrees - raster.getSector().getMaxLatitude().degrees) * rowsPerDegree) - 1;
+            this.maxRow = (int) Math.ceil(
+                (reqSector.getMaxLatitude().degrees - raster.getSector().getMinLatitude().degrees) * rowsPerDegree) + 1;
+        }
+
+        public DataRaster read()
+        {
+            // Read a cached source's rasters now, concurrently with the other sources, rather than when it's drawn.
+            // Read just the requested part of a source that's read by window. A source that can't be read logs the
+            // failure when it's drawn.
+            if (this.raster instanceof CachedDataRaster)
+            {
+                try
+                {
+                    CachedDataRaster cachedRaster = (CachedDataRaster) this.raster;
+                    if (cachedRaster.isWindowRead(this.reqRaster.getSector()))
+                    {
+                        DataRaster[] windowRasters = cachedRaster.readWindowRasters(this.reqRaster.getSector(),
+                            this.reqRaster.getWidth(), this.reqRaster.getHeight());
+                        if (windowRasters != null && windowRasters.length == 1)
+                            return windowRasters[0];
+                    }
+                    else
+                    {
+                        cachedRaster.getDataRasters();
+                    }
+                }
+                catch (Exception e)
+                {
+                    Logging.logger().finest(WWUtil.extractExceptionReason(e));
+                }
+            }
+
+            return this.raster;
+        }
+
+        public int getMinRow()
+        {
+            return this.minRow;
+        }
+
+        public int getMaxRow()
+        {
+            return this.maxRow;
+        }
+
+        public void draw(DataRaster raster, int minRow, int maxRow)
+        {
+            raster.drawOnTo(createBandRaster(this.reqRaster, minRow, maxRow));
+        }
+
+        @Override
+        public String toString()
+        {
+            return this.raster.toString();
+        }
+    }
+
     /**
      * Composes a DataRaster of the given width and height for the specific geographic region of interest (ROI), in the
      * requested file format (AVKey.IMAGE_FORMAT) and returns as a ByteBuffer
@@ -14,6 +14,7 @@ import gov.nasa.worldwind.util.*;
 
 import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.*;
 import java.util.logging.Level;
 
 /**
@@ -21,6 +22,9 @@ import java.util.logging.Level;
  * not be loaded in to the memory. This is mostly used together with a memory caches. <code>CachedDataRaster</code>
  * actually implements all interfaces of the <code>DataRaster</code>, and acts as a proxy, that loads a real data raster
  * only when it is actually needed.
+ * <p/>
+ * When the source's reader is a {@link WindowedDataRasterReader}, drawing or cutting part of the source reads only that
+ * part, at the resolution drawn, so that large sources are never loaded whole.
  *
  * @author Lado Garakanidze
  * @version $Id$
@@ -38,8 +42,17 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
     protected MemoryCache rasterCache = null;
     protected MemoryCache.CacheListener cacheListener = null;
 
-    protected final Object rasterUsageLock = new Object();
     protected final Object rasterRetrievalLock = new Object();
+    // Any number of threads may draw the rasters at once. Rasters evicted from the cache while being drawn, because
+    // another thread added rasters to the cache, are disposed when the last drawing completes rather than when they're
+    // evicted.
+    protected final Object rasterDisposalLock = new Object();
+    // The number of threads using each set of rasters, guarded by rasterDisposalLock.
+    protected final Map<DataRaster[], Integer> rastersInUse = new IdentityHashMap<DataRaster[], Integer>();
+    // Rasters in use that have been evicted, guarded by rasterDisposalLock.
+    protected final Set<DataRaster[]> rastersInUseEvicted = Collections.newSetFromMap(
+        new IdentityHashMap<DataRaster[], Boolean>());
+    protected DataRaster[] lastDisposedRasters = null; // guarded by rasterDisposalLock
 
     protected String[] requiredKeys = new String[] {AVKey.WIDTH, AVKey.HEIGHT, AVKey.SECTOR, AVKey.PIXEL_FORMAT};
 
@@ -85,7 +98,7 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
         this.rasterCache = cache;
         if (this.rasterCache != null)
         {
-            this.cacheListener = new CacheListener(this.dataSource);
+            this.cacheListener = new CacheListener(this, this.dataSource);
             this.rasterCache.addCacheListener(this.cacheListener);
         }
     }
@@ -278,73 +291,270 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
         }
     }
 
-    public void drawOnTo(DataRaster canvas)
+    /**
+     * Returns the data rasters from the cache or the data source, as {@link #getDataRasters()} does, and marks them in
+     * use so that they are not disposed if they are evicted from the cache before {@link
+     * #releaseDataRasters(DataRaster[])} is called. Each call must be followed by a call to
+     * <code>releaseDataRasters</code>.
+     *
+     * @return the data rasters.
+     *
+     * @throws IOException        if the data rasters cannot be read.
+     * @throws WWRuntimeException if the data rasters cannot be created.
+     */
+    protected DataRaster[] acquireDataRasters() throws IOException, WWRuntimeException
     {
-        synchronized (this.rasterUsageLock)
+        while (true)
         {
-            try
+            DataRaster[] rasters = this.getDataRasters();
+
+            synchronized (this.rasterDisposalLock)
             {
-                DataRaster[] rasters;
-                try
+                // The rasters may have been evicted and disposed between their retrieval and this point. In that case
+                // retrieve them again.
+                if (rasters != this.lastDisposedRasters)
                 {
-                    rasters = this.getDataRasters();
-                    for (DataRaster raster : rasters)
-                    {
-                        raster.drawOnTo(canvas);
-                    }
+                    Integer count = this.rastersInUse.get(rasters);
+                    this.rastersInUse.put(rasters, (count != null) ? count + 1 : 1);
+                    return rasters;
                 }
-                catch (OutOfMemoryError e)
-                {
-                    Logging.logger().finest(this.composeExceptionReason(e));
-                    this.releaseMemory();
+            }
+        }
+    }
 
-                    rasters = this.getDataRasters();
-                    for (DataRaster raster : rasters)
-                    {
-                        raster.drawOnTo(canvas);
-                    }
-                }
+    /**
+     * Ends one use of data rasters returned by {@link #acquireDataRasters()}, disposing them if they were evicted from
+     * the cache while in use and no other use remains.
+     *
+     * @param rasters the data rasters.
+     */
+    protected void releaseDataRasters(DataRaster[] rasters)
+    {
+        boolean evicted;
+
+        synchronized (this.rasterDisposalLock)
+        {
+            Integer count = this.rastersInUse.get(rasters);
+            if (count == null)
+                return;
+
+            if (count > 1)
+            {
+                this.rastersInUse.put(rasters, count - 1);
+                return;
             }
-            catch (Throwable t)
+
+            this.rastersInUse.remove(rasters);
+            evicted = this.rastersInUseEvicted.remove(rasters);
+        }
+
+        if (evicted)
+            disposeRasters(rasters);
+    }
+
+    /**
+     * Indicates whether the part of the data source covering a sector is read alone, rather than with the rest of the
+     * source. Part of the source is read when the source's reader is a {@link WindowedDataRasterReader} and the
+     * source's rasters are not in memory.
+     *
+     * @param sector the sector.
+     *
+     * @return true if the source's part of the sector is read alone, otherwise false.
+     */
+    protected boolean isWindowRead(Sector sector)
+    {
+        if (!(this.dataReader instanceof WindowedDataRasterReader) || sector == null)
+            return false;
+
+        // Use the whole source if it's in memory, or known to be unreadable.
+        return this.rasterCache == null || !this.rasterCache.contains(this.dataSource);
+    }
+
+    /**
+     * Reads the part of the data source covering a sector, if it's read alone, at a resolution suited to a raster of
+     * the specified size covering the sector. See {@link #isWindowRead(Sector)}. The rasters read are not cached.
+     *
+     * @param sector the sector.
+     * @param width  the width in pixels of the raster the sector is drawn to.
+     * @param height the height in pixels of the raster the sector is drawn to.
+     *
+     * @return the rasters covering the source's part of the sector, or null if the part is not read alone.
+     *
+     * @throws IOException if the source can't be read.
+     */
+    protected DataRaster[] readWindowRasters(Sector sector, int width, int height) throws IOException
+    {
+        if (!this.isWindowRead(sector))
+            return null;
+
+        return ((WindowedDataRasterReader) this.dataReader).readWindow(this.dataSource, sector, width, height,
+            this.copy());
+    }
+
+    protected void drawDataRasters(DataRaster canvas) throws IOException
+    {
+        DataRaster[] windowRasters = this.readWindowRasters(canvas.getSector(), canvas.getWidth(),
+            canvas.getHeight());
+        if (windowRasters != null)
+        {
+            for (DataRaster raster : windowRasters)
             {
-                String reason = this.composeExceptionReason(t);
-                Logging.logger().log(Level.SEVERE, reason, t);
+                raster.drawOnTo(canvas);
             }
+            return;
+        }
+
+        DataRaster[] rasters = this.acquireDataRasters();
+        try
+        {
+            for (DataRaster raster : rasters)
+            {
+                createDrawingView(raster).drawOnTo(canvas);
+            }
+        }
+        finally
+        {
+            this.releaseDataRasters(rasters);
         }
     }
 
-    public DataRaster getSubRaster(AVList params)
+    protected DataRaster getDataSubRaster(AVList params) throws IOException
+    {
+        Object sector = (params != null) ? params.getValue(AVKey.SECTOR) : null;
+        Object width = (params != null) ? params.getValue(AVKey.WIDTH) : null;
+        Object height = (params != null) ? params.getValue(AVKey.HEIGHT) : null;
+        DataRaster[] windowRasters = (sector instanceof Sector && width instanceof Integer && height instanceof Integer)
+            ? this.readWindowRasters((Sector) sector, (Integer) width, (Integer) height) : null;
+        if (windowRasters != null)
+        {
+            // The source doesn't intersect the sector when no window rasters are read, so there's nothing to draw.
+            return windowRasters.length > 0 ? getSubRaster(windowRasters, params)
+                : this.createEmptySubRaster((Sector) sector, (Integer) width, (Integer) height, params);
+        }
+
+        DataRaster[] rasters = this.acquireDataRasters();
+        try
+        {
+            DataRaster[] views = new DataRaster[rasters.length];
+            for (int i = 0; i < rasters.length; i++)
+            {
+                views[i] = createDrawingView(rasters[i]);
+            }
+
+            return getSubRaster(views, params);
+        }
+        finally
+        {
+            this.releaseDataRasters(rasters);
+        }
+    }
+
+    /**
+     * Creates a sub-raster with nothing drawn on it, of the same kind the source's rasters create: a {@link
+     * ByteBufferRaster} for elevations and a {@link BufferedImageRaster} for imagery.
+     *
+     * @param sector the sub-raster's sector.
+     * @param width  the sub-raster's width in pixels.
+     * @param height the sub-raster's height in pixels.
+     * @param params the sub-raster's parameters. The source's data type, missing data signal, byte order, pixel format
+     *               and elevation unit are added to these if they're not already present.
+     *
+     * @return a new, empty sub-raster.
+     */
+    protected DataRaster createEmptySubRaster(Sector sector, int width, int height, AVList params)
+    {
+        String[] keysToCopy = new String[] {
+            AVKey.DATA_TYPE, AVKey.MISSING_DATA_SIGNAL, AVKey.BYTE_ORDER, AVKey.PIXEL_FORMAT, AVKey.ELEVATION_UNIT
+        };
+        WWUtil.copyValues(this, params, keysToCopy, false);
+
+        if (AVKey.ELEVATION.equals(params.getValue(AVKey.PIXEL_FORMAT)))
+            return new ByteBufferRaster(width, height, sector, params);
+
+        return new BufferedImageRaster(width, height, java.awt.image.BufferedImage.TRANSLUCENT, sector);
+    }
+
+    /**
+     * Returns a view of a raster that one thread can draw while others draw the raster. A {@link ByteBufferRaster}
+     * moves its buffer's position while it's drawn, so each thread draws through its own view of the buffer. Other
+     * rasters are returned as is.
+     *
+     * @param raster the raster.
+     *
+     * @return a view of the raster.
+     */
+    protected static DataRaster createDrawingView(DataRaster raster)
+    {
+        if (!(raster instanceof ByteBufferRaster))
+            return raster;
+
+        ByteBufferRaster byteBufferRaster = (ByteBufferRaster) raster;
+        java.nio.ByteBuffer buffer = byteBufferRaster.getByteBuffer();
+        return new ByteBufferRaster(raster.getWidth(), raster.getHeight(), raster.getSector(),
+            buffer.duplicate().order(buffer.order()), byteBufferRaster);
+    }
+
+    protected static DataRaster getSubRaster(DataRaster[] rasters, AVList params)
     {
-        synchronized (this.rasterUsageLock)
+        // The first raster creates the sub-raster and draws its part, and the others draw theirs.
+        DataRaster subRaster = rasters[0].getSubRaster(params);
+        for (int i = 1; i < rasters.length; i++)
+        {
+            rasters[i].drawOnTo(subRaster);
+        }
+
+        return subRaster;
+    }
+
+    public void drawOnTo(DataRaster canvas)
+    {
+        try
         {
             try
             {
-                DataRaster[] rasters;
-                try
-                {
-                    rasters = this.getDataRasters();
-                    return rasters[0].getSubRaster(params);
-                }
-                catch (OutOfMemoryError e)
-                {
-                    Logging.logger().finest(this.composeExceptionReason(e));
-                    this.releaseMemory();
+                this.drawDataRasters(canvas);
+            }
+            catch (OutOfMemoryError e)
+            {
+                Logging.logger().finest(this.composeExceptionReason(e));
+                this.releaseMemory();
 
-                    // let's retry after the finalization and GC
-                    rasters = this.getDataRasters();
-                    return rasters[0].getSubRaster(params);
-                }
+                this.drawDataRasters(canvas);
             }
-            catch (Throwable t)
+        }
+        catch (Throwable t)
+        {
+            String reason = this.composeExceptionReason(t);
+            Logging.logger().log(Level.SEVERE, reason, t);
+        }
+    }
+
+    public DataRaster getSubRaster(AVList params)
+    {
+        try
+        {
+            try
             {
-                String reason = this.composeExceptionReason(t);
-                Logging.logger().log(Level.SEVERE, reason, t);
+                return this.getDataSubRaster(params);
             }
+            catch (OutOfMemoryError e)
+            {
+                Logging.logger().finest(this.composeExceptionReason(e));
+                this.releaseMemory();
 
-            String message = Logging.getMessage("generic.CannotCreateRaster", this.getDataSource());
-            Logging.logger().severe(message);
-            throw new WWRuntimeException(message);
+                // let's retry after the finalization and GC
+                return this.getDataSubRaster(params);
+            }
+        }
+        catch (Throwable t)
+        {
+            String reason = this.composeExceptionReason(t);
+            Logging.logger().log(Level.SEVERE, reason, t);
         }
+
+        String message = Logging.getMessage("generic.CannotCreateRaster", this.getDataSource());
+        Logging.logger().severe(message);
+        throw new WWRuntimeException(message);
     }
 
     public DataRaster getSubRaster(int width, int height, Sector sector, AVList params)
@@ -412,10 +622,12 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
 
     private static class CacheListener implements MemoryCache.CacheListener
     {
+        private CachedDataRaster owner;
         private Object key;
 
-        private CacheListener(Object key)
+        private CacheListener(CachedDataRaster owner, Object key)
         {
+            this.owner = owner;
             this.key = key;
         }
 
@@ -431,6 +643,18 @@ public class CachedDataRaster extends AVListImpl implements DataRaster
                 return;
             }
 
+            synchronized (this.owner.rasterDisposalLock)
+            {
+                // Defer disposal of rasters in use by other threads until the last of them releases them.
+                if (this.owner.rastersInUse.containsKey(clientObject))
+                {
+                    this.owner.rastersInUseEvicted.add((DataRaster[]) clientObject);
+                    return;
+                }
+
+                this.owner.lastDisposedRasters = (DataRaster[]) clientObject;
+            }
+
             try
             {
                 disposeRasters((DataRaster[]) clientObject);
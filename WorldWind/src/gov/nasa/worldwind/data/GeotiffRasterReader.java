@@ -11,11 +11,13 @@ import gov.nasa.worldwind.formats.worldfile.WorldFile;
 import gov.nasa.worldwind.geom.Sector;
 import gov.nasa.worldwind.util.*;
 
+import java.awt.*;
+
 /**
  * @author dcollins
  * @version $Id$
  */
-public class GeotiffRasterReader extends AbstractDataRasterReader
+public class GeotiffRasterReader extends AbstractDataRasterReader implements WindowedDataRasterReader
 {
     private static final String[] geotiffMimeTypes = {"image/tiff", "image/geotiff"};
     private static final String[] geotiffSuffixes = {"tif", "tiff", "gtif", "tif.zip", "tiff.zip", "tif.gz", "tiff.gz"};
@@ -102,6 +104,111 @@ public class GeotiffRasterReader extends AbstractDataRasterReader
         return rasters;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * Only the strips or tiles of the GeoTIFF's first image that the sector intersects are read. GeoTIFFs in a
+     * projected coordinate system can't be read by sector, and this returns null for them.
+     */
+    public DataRaster[] readWindow(Object source, Sector sector, int width, int height, AVList params)
+        throws java.io.IOException
+    {
+        if (sector == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (width <= 0 || height <= 0)
+        {
+            String message = Logging.getMessage("generic.InvalidImageSize", width, height);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        String path = WWIO.getSourcePath(source);
+        if (path == null)
+        {
+            String message = Logging.getMessage("DataRaster.CannotRead", source);
+            Logging.logger().severe(message);
+            throw new java.io.IOException(message);
+        }
+
+        AVList metadata = new AVListImpl();
+        if (null != params)
+            metadata.setValues(params);
+
+        GeotiffReader reader = null;
+        try
+        {
+            // The source's sector may come from world files rather than the GeoTIFF.
+            if (!metadata.hasKey(AVKey.SECTOR))
+                this.readMetadata(source, metadata);
+
+            reader = new GeotiffReader(path);
+            reader.copyMetadataTo(metadata);
+            if (!(metadata.getValue(AVKey.SECTOR) instanceof Sector))
+                return null;
+
+            // Read the overview matching the resolution, which covers the same sector as the full image.
+            int imageIndex = this.selectImage(reader, (Sector) metadata.getValue(AVKey.SECTOR), sector, width, height);
+            if (imageIndex > 0)
+            {
+                metadata.setValue(AVKey.WIDTH, reader.getWidth(imageIndex));
+                metadata.setValue(AVKey.HEIGHT, reader.getHeight(imageIndex));
+            }
+
+            Rectangle window = GeotiffReader.computeWindow(metadata, sector);
+            if (window == null)
+                return null;
+            if (window.isEmpty())
+                return new DataRaster[0];
+
+            DataRaster raster = reader.readDataRaster(imageIndex, window);
+            raster.setValue(AVKey.SECTOR, GeotiffReader.computeWindowSector(metadata, window));
+
+            return new DataRaster[] {raster};
+        }
+        finally
+        {
+            if (reader != null)
+            {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Selects the image to read for a raster of the specified size covering a sector: the coarsest of the first image
+     * and its reduced-resolution images whose pixels are no larger than the raster's.
+     *
+     * @param reader      the reader of the GeoTIFF.
+     * @param imageSector the sector of the first image.
+     * @param sector      the raster's sector.
+     * @param width       the raster's width in pixels.
+     * @param height      the raster's height in pixels.
+     *
+     * @return the index of the image to read.
+     *
+     * @throws java.io.IOException if the images' sizes can't be read.
+     */
+    protected int selectImage(GeotiffReader reader, Sector imageSector, Sector sector, int width, int height)
+        throws java.io.IOException
+    {
+        int imageIndex = 0;
+        for (int i = 1; i < reader.getNumImages() && reader.isReducedResolution(i); i++)
+        {
+            if (reader.getWidth(i) * sector.getDeltaLonDegrees() < width * imageSector.getDeltaLonDegrees()
+                || reader.getHeight(i) * sector.getDeltaLatDegrees() < height * imageSector.getDeltaLatDegrees())
+                break;
+
+            imageIndex = i;
+        }
+
+        return imageIndex;
+    }
+
     protected void doReadMetadata(Object source, AVList params) throws java.io.IOException
     {
         String path = WWIO.getSourcePath(source);
@@ -25,6 +25,7 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
     private static final long DEFAULT_TILED_RASTER_PRODUCER_CACHE_SIZE = 300000000L; // ~300 megabytes
     private static final int DEFAULT_TILED_RASTER_PRODUCER_LARGE_DATASET_THRESHOLD = 3000; // 3000 pixels
     private static final int DEFAULT_WRITE_THREAD_POOL_SIZE = 2;
+    private static final int DEFAULT_PRODUCTION_THREAD_POOL_SIZE = 1;
     private static final int DEFAULT_TILE_WIDTH_AND_HEIGHT = 512;
     private static final int DEFAULT_SINGLE_LEVEL_TILE_WIDTH_AND_HEIGHT = 512;
     private static final double DEFAULT_LEVEL_ZERO_TILE_DELTA = 36d;
@@ -37,6 +38,8 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
     private final java.util.concurrent.ExecutorService tileWriteService;
     private final java.util.concurrent.Semaphore tileWriteSemaphore;
     private final Object fileLock = new Object();
+    // Produces tile rasters concurrently during parallel production, otherwise null.
+    private java.util.concurrent.ExecutorService tileRasterService;
     // Progress counters.
     private int tile;
     private int tileCount;
@@ -186,8 +189,21 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
         // Initialize the level set parameters, and create the level set.
         this.initLevelSetParameters(this.productionParams);
         LevelSet levelSet = new LevelSet(this.productionParams);
-        // Install the each tiles of the LevelSet.
-        this.installLevelSet(levelSet, this.productionParams);
+
+        // Produce sibling tile subtrees concurrently if the caller has requested parallel production.
+        int poolSize = this.getProductionThreadPoolSize(this.productionParams);
+        this.tileRasterService = (poolSize > 1) ? this.createDefaultTileRasterService(poolSize) : null;
+        try
+        {
+            // Install the each tiles of the LevelSet.
+            this.installLevelSet(levelSet, this.productionParams);
+        }
+        finally
+        {
+            if (this.tileRasterService != null)
+                this.tileRasterService.shutdownNow();
+            this.tileRasterService = null;
+        }
 
         // Wait for concurrent tasks to complete.
         this.waitForInstallTileTasks();
@@ -497,6 +513,9 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
         int lastRow = Tile.computeRow(dLat, sector.getMaxLatitude(), latOrigin);
         int lastCol = Tile.computeColumn(dLon, sector.getMaxLongitude(), lonOrigin);
 
+        // During parallel production, the top-level tiles are produced concurrently and installed in order below.
+        java.util.List<TileRasterTask> tasks = new java.util.ArrayList<TileRasterTask>();
+
         buildLoop:
         {
             Angle p1 = Tile.computeRowLatitude(firstRow, dLat, latOrigin);
@@ -514,16 +533,31 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
                     Angle t2 = t1.add(dLon);
 
                     Tile tile = new Tile(new Sector(p1, p2, t1, t2), level, row, col);
-                    DataRaster tileRaster = this.createTileRaster(levelSet, tile, params);
-                    // Write the top-level tile raster to disk.
-                    if (tileRaster != null)
-                        this.installTileRasterLater(levelSet, tile, tileRaster, params);
+                    if (this.tileRasterService != null)
+                    {
+                        tasks.add(this.forkTileRaster(levelSet, tile, params));
+                    }
+                    else
+                    {
+                        DataRaster tileRaster = this.createTileRaster(levelSet, tile, params);
+                        // Write the top-level tile raster to disk.
+                        if (tileRaster != null)
+                            this.installTileRasterLater(levelSet, tile, tileRaster, params);
+                    }
 
                     t1 = t2;
                 }
                 p1 = p2;
             }
         }
+
+        for (TileRasterTask task : tasks)
+        {
+            DataRaster tileRaster = task.join();
+            // Write the top-level tile raster to disk.
+            if (tileRaster != null)
+                this.installTileRasterLater(levelSet, task.tile, tileRaster, params);
+        }
     }
 
     protected DataRaster createTileRaster(LevelSet levelSet, Tile tile, AVList params) throws java.io.IOException
@@ -570,10 +604,11 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
             // Create the tile raster to render into.
             tileRaster = this.createDataRaster(tile.getLevel().getTileWidth(), tile.getLevel().getTileHeight(),
                 tile.getSector(), params);
-            // Render each data source raster into the tile raster.
+            // Render each data source raster into the tile raster. Sources held in memory may be drawn by other
+            // threads at the same time.
             for (DataRaster raster : intersectingRasters)
             {
-                raster.drawOnTo(tileRaster);
+                CachedDataRaster.createDrawingView(raster).drawOnTo(tileRaster);
             }
         }
 
@@ -593,13 +628,27 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
         // Recursively create sub-tile rasters.
         Tile[] subTiles = this.createSubTiles(tile, levelSet.getLevel(tile.getLevelNumber() + 1));
         DataRaster[] subRasters = new DataRaster[subTiles.length];
+
+        // During parallel production, hand all but the first sub-tile to other threads. This thread creates the first
+        // sub-tile's raster, then joins the others in order, creating any that no other thread has started.
+        TileRasterTask[] subTasks = new TileRasterTask[subTiles.length];
+        if (this.tileRasterService != null)
+        {
+            for (int index = 1; index < subTiles.length; index++)
+            {
+                if (subTiles[index].getSector().intersects(levelSet.getSector()))
+                    subTasks[index] = this.forkTileRaster(levelSet, subTiles[index], params);
+            }
+        }
+
         for (int index = 0; index < subTiles.length; index++)
         {
             // If the sub-tile does not intersect the level set, then skip that sub-tile.
             if (subTiles[index].getSector().intersects(levelSet.getSector()))
             {
                 // Recursively create the sub-tile raster.
-                DataRaster subRaster = this.createTileRaster(levelSet, subTiles[index], params);
+                DataRaster subRaster = (subTasks[index] != null) ? subTasks[index].join()
+                    : this.createTileRaster(levelSet, subTiles[index], params);
                 // If creating the sub-tile raster fails, then skip that sub-tile.
                 if (subRaster != null)
                 {
@@ -751,6 +800,166 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
         return maxNumOfLevels;
     }
 
+    //**************************************************************//
+    //********************  Parallel Production  *******************//
+    //**************************************************************//
+
+    /**
+     * Returns the number of threads used to produce tile rasters. A value of 1 produces the level set on the thread
+     * calling {@link #startProduction()}. A greater value produces sibling tile subtrees concurrently. Each tile raster
+     * is computed from the same inputs in the same order in either case, so the installed tiles are identical.
+     * <p/>
+     * The value is taken from the production parameter {@link AVKey#TILED_RASTER_PRODUCER_THREAD_POOL_SIZE} if
+     * present, otherwise from the configuration property of the same name, and defaults to 1. The value "Auto"
+     * specifies the number of available processors.
+     *
+     * @param params the production parameters.
+     *
+     * @return the number of tile raster production threads.
+     */
+    protected int getProductionThreadPoolSize(AVList params)
+    {
+        Object o = (params != null) ? params.getValue(AVKey.TILED_RASTER_PRODUCER_THREAD_POOL_SIZE) : null;
+        if (o == null)
+            o = Configuration.getStringValue(AVKey.TILED_RASTER_PRODUCER_THREAD_POOL_SIZE);
+
+        if (o instanceof Integer)
+            return Math.max((Integer) o, 1);
+
+        if (o instanceof String)
+        {
+            String s = ((String) o).trim();
+            if ("Auto".equalsIgnoreCase(s))
+                return Runtime.getRuntime().availableProcessors();
+
+            try
+            {
+                return Math.max(Integer.parseInt(s), 1);
+            }
+            catch (NumberFormatException e)
+            {
+                Logging.logger().finest(WWUtil.extractExceptionReason(e));
+            }
+        }
+
+        return DEFAULT_PRODUCTION_THREAD_POOL_SIZE;
+    }
+
+    protected java.util.concurrent.ExecutorService createDefaultTileRasterService(int threadPoolSize)
+    {
+        // Tasks waiting in the queue hold only a tile. Tile rasters exist only for tasks that have started, and a
+        // thread that waits for a task is blocked on a single path from a top-level tile to its leaves, so the number
+        // of tile rasters held at once is bounded by the pool size and the number of levels. Source rasters are held
+        // by the producer's memory cache.
+        return new java.util.concurrent.ThreadPoolExecutor(threadPoolSize, threadPoolSize,
+            0L, java.util.concurrent.TimeUnit.MILLISECONDS, new java.util.concurrent.LinkedBlockingQueue<Runnable>(),
+            new java.util.concurrent.ThreadFactory()
+            {
+                private final java.util.concurrent.atomic.AtomicInteger threadNumber
+                    = new java.util.concurrent.atomic.AtomicInteger();
+
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "TiledRasterProducer-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    }
+
+    /**
+     * Schedules creation of a tile's raster by the tile raster service. The raster is created by the first of a
+     * service thread or a thread calling {@link TileRasterTask#join()} to claim the task.
+     *
+     * @param levelSet the level set being produced.
+     * @param tile     the tile whose raster is created.
+     * @param params   the production parameters.
+     *
+     * @return the task creating the tile's raster.
+     */
+    protected TileRasterTask forkTileRaster(LevelSet levelSet, Tile tile, AVList params)
+    {
+        TileRasterTask task = new TileRasterTask(levelSet, tile, params);
+        this.tileRasterService.execute(task);
+        return task;
+    }
+
+    /**
+     * Creates a tile's raster by calling {@link #createTileRaster(LevelSet, Tile, AVList)} on whichever thread claims
+     * the task first. A thread joining a task that no other thread has claimed creates the raster itself, so a thread
+     * waits only for tasks that are running, and the tile raster service cannot deadlock.
+     */
+    protected class TileRasterTask implements Runnable
+    {
+        protected final LevelSet levelSet;
+        protected final Tile tile;
+        protected final AVList params;
+        protected final java.util.concurrent.atomic.AtomicBoolean claimed
+            = new java.util.concurrent.atomic.AtomicBoolean();
+        protected final java.util.concurrent.CountDownLatch done = new java.util.concurrent.CountDownLatch(1);
+        protected DataRaster result;
+        protected Throwable exception;
+
+        public TileRasterTask(LevelSet levelSet, Tile tile, AVList params)
+        {
+            this.levelSet = levelSet;
+            this.tile = tile;
+            this.params = params;
+        }
+
+        public void run()
+        {
+            if (!this.claimed.compareAndSet(false, true))
+                return;
+
+            try
+            {
+                this.result = createTileRaster(this.levelSet, this.tile, this.params);
+            }
+            catch (Throwable t)
+            {
+                this.exception = t;
+            }
+            finally
+            {
+                this.done.countDown();
+            }
+        }
+
+        /**
+         * Returns the tile's raster, creating it on the calling thread if no other thread has claimed the task, and
+         * otherwise waiting for the thread that did.
+         *
+         * @return the tile's raster, or null if the tile has no raster.
+         *
+         * @throws java.io.IOException if creating the raster failed with an IOException, or the calling thread is
+         *                             interrupted while waiting.
+         */
+        public DataRaster join() throws java.io.IOException
+        {
+            this.run();
+
+            try
+            {
+                this.done.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new java.io.InterruptedIOException();
+            }
+
+            if (this.exception instanceof java.io.IOException)
+                throw (java.io.IOException) this.exception;
+            if (this.exception instanceof RuntimeException)
+                throw (RuntimeException) this.exception;
+            if (this.exception instanceof Error)
+                throw (Error) this.exception;
+
+            return this.result;
+        }
+    }
+
     //**************************************************************//
     //********************  Tile Installation  *********************//
     //**************************************************************//
@@ -1074,7 +1283,7 @@ public abstract class TiledRasterProducer extends AbstractDataStoreProducer
         this.firePropertyChange(AVKey.PROGRESS, null, 0d);
     }
 
-    protected void updateProgress()
+    protected synchronized void updateProgress()
     {
         double oldProgress = this.tile / (double) this.tileCount;
         double newProgress = ++this.tile / (double) this.tileCount;
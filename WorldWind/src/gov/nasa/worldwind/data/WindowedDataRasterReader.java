@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.data;
+
+import gov.nasa.worldwind.avlist.AVList;
+import gov.nasa.worldwind.geom.Sector;
+
+/**
+ * A {@link DataRasterReader} that can read part of a data source without reading the rest of it. {@link
+ * CachedDataRaster} uses such readers to draw or cut small regions of large sources without loading the whole source.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public interface WindowedDataRasterReader extends DataRasterReader
+{
+    /**
+     * Reads the part of a data source covering a sector, at a resolution suited to a raster of the specified size
+     * covering the sector. Readers of sources with reduced-resolution versions, such as overviews, read the coarsest
+     * version at least as fine as that raster.
+     *
+     * @param source the source to read.
+     * @param sector the sector to read.
+     * @param width  the width in pixels of the raster the sector is drawn to.
+     * @param height the height in pixels of the raster the sector is drawn to.
+     * @param params the source's metadata, as {@link #readMetadata(Object, gov.nasa.worldwind.avlist.AVList)}
+     *               returns it. May be null, in which case the metadata is read from the source.
+     *
+     * @return rasters covering at least the part of the sector the source covers, which may be none, or null if this
+     *         reader can't read the source's part of the sector alone.
+     *
+     * @throws java.io.IOException if an IO error occurs.
+     */
+    DataRaster[] readWindow(Object source, Sector sector, int width, int height, AVList params)
+        throws java.io.IOException;
+}
@@ -5,9 +5,13 @@
  */
 package gov.nasa.worldwind.formats.dds;
 
+import gov.nasa.worldwind.exception.WWRuntimeException;
 import gov.nasa.worldwind.util.*;
 
 import java.awt.image.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
 
 /**
  * DDSCompressor converts in-memory images into a DDS file encoded with one of the DXT block compression algorithms. If
@@ -17,15 +21,62 @@ import java.awt.image.*;
  * Each compression method accepts a reference to a {@link gov.nasa.worldwind.formats.dds.DXTCompressionAttributes}.
  * This compressor performs the appropriate actions according to the attributes, such as building mip maps and
  * converting the source image to a premultiplied alpha format.
+ * <p/>
+ * Images compressed with DXT1 or DXT3 are compressed by a {@link PackedDXTCompressor}, which works on the image's pixels
+ * as packed ints. The image's mip map levels are built from those pixels with a box filter, and the levels' block rows
+ * are compressed concurrently on a pool of threads shared by all DDSCompressors. The number of threads a compressor
+ * uses may be specified when it's created.
  *
  * @author dcollins
  * @version $Id$
  */
 public class DDSCompressor
 {
-    /** Creates a new DDSCompressor, but otherwise does nothing. */
+    /** The minimum number of pixels in a mip map level that is built on more than one thread. */
+    protected static final int MIN_PARALLEL_MIPMAP_SIZE = 128 * 128;
+
+    /** The thread pool shared by all compressors, created when first needed. */
+    protected static ExecutorService executor;
+
+    protected int numThreads;
+
+    /**
+     * Creates a new DDSCompressor that compresses images on as many threads as there are processors available, but
+     * otherwise does nothing.
+     */
     public DDSCompressor()
     {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new DDSCompressor that divides the compression of each image among a specified number of threads. The
+     * threads come from a pool shared by all compressors, which has as many threads as there are processors available.
+     *
+     * @param numThreads the number of threads to use. Images are compressed on the calling thread if this is 1.
+     *
+     * @throws IllegalArgumentException if the number of threads is less than 1.
+     */
+    public DDSCompressor(int numThreads)
+    {
+        if (numThreads < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", numThreads);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Returns the number of threads this compressor uses.
+     *
+     * @return the number of threads.
+     */
+    public int getNumThreads()
+    {
+        return this.numThreads;
     }
 
     /**
@@ -452,7 +503,7 @@ public class DDSCompressor
             throw new IllegalArgumentException(message);
         }
 
-        DXT1Compressor compressor = new DXT1Compressor();
+        PackedDXTCompressor compressor = new PackedDXTCompressor(DDSConstants.D3DFMT_DXT1);
         return this.doCompressImage(compressor, image, attributes);
     }
 
@@ -490,13 +541,16 @@ public class DDSCompressor
             throw new IllegalArgumentException(message);
         }
 
-        DXT3Compressor compressor = new DXT3Compressor();
+        PackedDXTCompressor compressor = new PackedDXTCompressor(DDSConstants.D3DFMT_DXT3);
         return this.doCompressImage(compressor, image, attributes);
     }
 
     protected java.nio.ByteBuffer doCompressImage(DXTCompressor compressor, java.awt.image.BufferedImage image,
         DXTCompressionAttributes attributes)
     {
+        if (compressor instanceof PackedDXTCompressor)
+            return this.doCompressPixels((PackedDXTCompressor) compressor, image, attributes);
+
         // Create the DDS header structure that describes the specified image, compressor, and compression attributes.
         DDSHeader header = this.createDDSHeader(compressor, image, attributes);
 
@@ -559,20 +613,20 @@ public class DDSCompressor
 
         if (attributes.getDXTFormat() == DDSConstants.D3DFMT_DXT1)
         {
-            return new DXT1Compressor();
+            return new PackedDXTCompressor(DDSConstants.D3DFMT_DXT1);
         }
         else if (attributes.getDXTFormat() == DDSConstants.D3DFMT_DXT2
             || attributes.getDXTFormat() == DDSConstants.D3DFMT_DXT3)
         {
-            return new DXT3Compressor();
+            return new PackedDXTCompressor(DDSConstants.D3DFMT_DXT3);
         }
         else if (!image.getColorModel().hasAlpha())
         {
-            return new DXT1Compressor();
+            return new PackedDXTCompressor(DDSConstants.D3DFMT_DXT1);
         }
         else
         {
-            return new DXT3Compressor();
+            return new PackedDXTCompressor(DDSConstants.D3DFMT_DXT3);
         }
     }
 
@@ -602,6 +656,276 @@ public class DDSCompressor
         return ImageUtil.buildMipmaps(image, mipmapImageType, maxLevel);
     }
 
+    //**************************************************************//
+    //********************  Parallel Compression  ******************//
+    //**************************************************************//
+
+    /**
+     * Converts the specified <code>image</code> to DDS using a compressor that works on packed pixels. The image's
+     * pixels are read once, and its mip map levels, if the attributes specify to build them, are built from those
+     * pixels by {@link #buildMipMapPixels(java.awt.image.BufferedImage, DXTCompressionAttributes)}. The block rows of
+     * all the levels are then compressed concurrently, each range of rows directly into its place in the DDS file.
+     *
+     * @param compressor the compressor.
+     * @param image      image to convert to the DDS file format.
+     * @param attributes attributes that control the compression.
+     *
+     * @return buffer little endian ordered ByteBuffer containing the dds file bytes.
+     */
+    protected java.nio.ByteBuffer doCompressPixels(final PackedDXTCompressor compressor,
+        java.awt.image.BufferedImage image, final DXTCompressionAttributes attributes)
+    {
+        DDSHeader header = this.createDDSHeader(compressor, image, attributes);
+        int[][] levels = this.buildMipMapPixels(image, attributes);
+
+        int fileSize = 4 + header.getSize();
+        for (int level = 0; level < levels.length; level++)
+        {
+            fileSize += compressor.getCompressedSize(Math.max(image.getWidth() >> level, 1),
+                Math.max(image.getHeight() >> level, 1));
+        }
+
+        if (attributes.isBuildMipmaps())
+        {
+            header.setFlags(header.getFlags()
+                | DDSConstants.DDSD_MIPMAPCOUNT);
+            header.setMipMapCount(levels.length);
+        }
+
+        java.nio.ByteBuffer buffer = this.createBuffer(fileSize);
+        buffer.order(java.nio.ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(DDSConstants.MAGIC);
+        this.writeDDSHeader(header, buffer);
+
+        // Divide the block rows into ranges of equal size, small enough to give each thread several ranges of the
+        // first level. Each range is compressed into its own view of the buffer, positioned where the range's blocks
+        // belong in the file.
+        final boolean hasAlpha = image.getColorModel().hasAlpha();
+        int rowsPerTask = Math.max(1, ((image.getHeight() + 3) / 4) / (4 * this.numThreads));
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        int offset = buffer.position();
+
+        for (int level = 0; level < levels.length; level++)
+        {
+            final int[] pixels = levels[level];
+            final int width = Math.max(image.getWidth() >> level, 1);
+            final int height = Math.max(image.getHeight() >> level, 1);
+            int numBlockRows = (height + 3) / 4;
+
+            for (int row = 0; row < numBlockRows; row += rowsPerTask)
+            {
+                final int firstRow = row;
+                final int endRow = Math.min(row + rowsPerTask, numBlockRows);
+                final java.nio.ByteBuffer view = buffer.duplicate();
+                view.order(java.nio.ByteOrder.LITTLE_ENDIAN);
+                view.position(offset + compressor.getCompressedSize(width, 4 * firstRow));
+
+                tasks.add(new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        compressor.compressBlockRows(pixels, width, height, firstRow, endRow, hasAlpha, attributes,
+                            view);
+                        return null;
+                    }
+                });
+            }
+
+            offset += compressor.getCompressedSize(width, height);
+        }
+
+        this.invokeTasks(tasks);
+
+        buffer.rewind();
+        return buffer;
+    }
+
+    /**
+     * Returns the pixels of an image's mip map levels as packed 8888 ARGB ints. The pixels are premultiplied by alpha if
+     * the attributes specify premultiplied alpha. Each level is built from the previous level with a 2x2 box filter,
+     * which for these power of two reductions is equivalent to the bilinear filter used by {@link
+     * #buildMipMaps(java.awt.image.BufferedImage, DXTCompressionAttributes)}. Colors are averaged in premultiplied
+     * form, so transparent colors do not bleed into opaque colors. Large levels are built on several threads.
+     *
+     * @param image      the image.
+     * @param attributes attributes that control the compression.
+     *
+     * @return the pixels of each mip map level, starting at level 0. This contains only the image's pixels if the
+     *         attributes don't specify to build mip maps.
+     */
+    protected int[][] buildMipMapPixels(java.awt.image.BufferedImage image, DXTCompressionAttributes attributes)
+    {
+        final boolean premultiplied = attributes.isPremultiplyAlpha();
+        int maxLevel = attributes.isBuildMipmaps() ? ImageUtil.getMaxMipmapLevel(image.getWidth(), image.getHeight())
+            : 0;
+
+        int[][] levels = new int[1 + maxLevel][];
+        levels[0] = PackedDXTCompressor.getPixels(image, premultiplied);
+
+        for (int level = 1; level <= maxLevel; level++)
+        {
+            final int[] src = levels[level - 1];
+            final int srcWidth = Math.max(image.getWidth() >> (level - 1), 1);
+            final int srcHeight = Math.max(image.getHeight() >> (level - 1), 1);
+            final int[] dst = new int[Math.max(srcWidth >> 1, 1) * Math.max(srcHeight >> 1, 1)];
+            final int dstWidth = Math.max(srcWidth >> 1, 1);
+            int dstHeight = Math.max(srcHeight >> 1, 1);
+            levels[level] = dst;
+
+            int numTasks = dst.length >= MIN_PARALLEL_MIPMAP_SIZE ? Math.min(4 * this.numThreads, dstHeight) : 1;
+            List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numTasks);
+            for (int i = 0; i < numTasks; i++)
+            {
+                final int firstRow = i * dstHeight / numTasks;
+                final int endRow = (i + 1) * dstHeight / numTasks;
+
+                tasks.add(new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        downsamplePixels(src, srcWidth, srcHeight, dst, dstWidth, firstRow, endRow, premultiplied);
+                        return null;
+                    }
+                });
+            }
+
+            this.invokeTasks(tasks);
+        }
+
+        return levels;
+    }
+
+    /**
+     * Reduces a range of rows of the next mip map level from the pixels of the previous level. Each pixel is the
+     * average of the 2x2 pixels it covers in the previous level, or of the 2x1 or 1x2 pixels once the previous level is
+     * one pixel wide or high.
+     *
+     * @param src           the pixels of the previous level.
+     * @param srcWidth      the previous level's width.
+     * @param srcHeight     the previous level's height.
+     * @param dst           the pixels of the next level.
+     * @param dstWidth      the next level's width.
+     * @param firstRow      the first row of the next level to reduce.
+     * @param endRow        the row following the last row to reduce.
+     * @param premultiplied true if the pixels are premultiplied by alpha, otherwise false.
+     */
+    protected static void downsamplePixels(int[] src, int srcWidth, int srcHeight, int[] dst, int dstWidth,
+        int firstRow, int endRow, boolean premultiplied)
+    {
+        for (int j = firstRow; j < endRow; j++)
+        {
+            int row0 = Math.min(2 * j, srcHeight - 1) * srcWidth;
+            int row1 = Math.min(2 * j + 1, srcHeight - 1) * srcWidth;
+
+            for (int i = 0; i < dstWidth; i++)
+            {
+                int x0 = Math.min(2 * i, srcWidth - 1);
+                int x1 = Math.min(2 * i + 1, srcWidth - 1);
+
+                dst[j * dstWidth + i] = averagePixels(src[row0 + x0], src[row0 + x1], src[row1 + x0],
+                    src[row1 + x1], premultiplied);
+            }
+        }
+    }
+
+    protected static int averagePixels(int c0, int c1, int c2, int c3, boolean premultiplied)
+    {
+        int a0 = c0 >>> 24, a1 = c1 >>> 24, a2 = c2 >>> 24, a3 = c3 >>> 24;
+        int sumA = a0 + a1 + a2 + a3;
+
+        if (premultiplied)
+        {
+            int r = (((c0 >> 16) & 0xFF) + ((c1 >> 16) & 0xFF) + ((c2 >> 16) & 0xFF) + ((c3 >> 16) & 0xFF) + 2) >> 2;
+            int g = (((c0 >> 8) & 0xFF) + ((c1 >> 8) & 0xFF) + ((c2 >> 8) & 0xFF) + ((c3 >> 8) & 0xFF) + 2) >> 2;
+            int b = ((c0 & 0xFF) + (c1 & 0xFF) + (c2 & 0xFF) + (c3 & 0xFF) + 2) >> 2;
+            return (((sumA + 2) >> 2) << 24) | (r << 16) | (g << 8) | b;
+        }
+
+        // Weight the colors that aren't premultiplied by their alpha, which gives the same colors as averaging them in
+        // premultiplied form and dividing by the average alpha.
+        if (sumA == 0)
+            return 0;
+
+        int r = (((c0 >> 16) & 0xFF) * a0 + ((c1 >> 16) & 0xFF) * a1 + ((c2 >> 16) & 0xFF) * a2
+            + ((c3 >> 16) & 0xFF) * a3 + sumA / 2) / sumA;
+        int g = (((c0 >> 8) & 0xFF) * a0 + ((c1 >> 8) & 0xFF) * a1 + ((c2 >> 8) & 0xFF) * a2
+            + ((c3 >> 8) & 0xFF) * a3 + sumA / 2) / sumA;
+        int b = ((c0 & 0xFF) * a0 + (c1 & 0xFF) * a1 + (c2 & 0xFF) * a2 + (c3 & 0xFF) * a3 + sumA / 2) / sumA;
+        return (((sumA + 2) >> 2) << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    /**
+     * Runs compression tasks on the shared thread pool and waits for them to complete. The tasks are run on the calling
+     * thread if this compressor uses only one thread, or if there's only one task.
+     *
+     * @param tasks the tasks to run.
+     *
+     * @throws WWRuntimeException if a task fails, or if the calling thread is interrupted.
+     */
+    protected void invokeTasks(List<Callable<Void>> tasks)
+    {
+        try
+        {
+            if (this.numThreads == 1 || tasks.size() <= 1)
+            {
+                for (Callable<Void> task : tasks)
+                {
+                    task.call();
+                }
+
+                return;
+            }
+
+            for (Future<Void> future : getExecutor().invokeAll(tasks))
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            String message = Logging.getMessage("generic.ExceptionAttemptingToCompressImage");
+            throw new WWRuntimeException(message, e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            String message = Logging.getMessage("generic.ExceptionAttemptingToCompressImage");
+            Logging.logger().log(Level.SEVERE, message, e.getCause());
+            throw new WWRuntimeException(message, e.getCause());
+        }
+        catch (RuntimeException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            String message = Logging.getMessage("generic.ExceptionAttemptingToCompressImage");
+            Logging.logger().log(Level.SEVERE, message, e);
+            throw new WWRuntimeException(message, e);
+        }
+    }
+
+    /**
+     * Returns the thread pool shared by all compressors. The pool has as many daemon threads as there are processors
+     * available, so no more than that many threads compress at once, however many compressors are in use. A
+     * compressor's number of threads determines how finely its work is divided.
+     *
+     * @return the shared thread pool.
+     */
+    protected static synchronized ExecutorService getExecutor()
+    {
+        if (executor == null)
+        {
+            executor = WWUtil.newDaemonThreadPool(Runtime.getRuntime().availableProcessors(), "DDSCompressor");
+        }
+
+        return executor;
+    }
+
     protected DDSHeader createDDSHeader(DXTCompressor compressor, java.awt.image.BufferedImage image,
         DXTCompressionAttributes attributes)
     {
@@ -0,0 +1,712 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.formats.dds;
+
+import gov.nasa.worldwind.util.Logging;
+
+/**
+ * Compressor for DXT1 and DXT3 images that works directly on packed 8888 ARGB pixels. The compression is identical to
+ * that of {@link DXT1Compressor} and {@link DXT3Compressor}, but color blocks are held in an array of packed ints
+ * rather than in {@link ColorBlock4x4} objects, and the pixels of the image are read once, rather than once per block.
+ * No objects are created per block.
+ * <p/>
+ * {@link #compressBlockRows(int[], int, int, int, int, boolean, DXTCompressionAttributes, java.nio.ByteBuffer)}
+ * compresses a range of block rows of an image, and may be called concurrently for different ranges of the same image
+ * provided each call writes to its own buffer or buffer view. {@link DDSCompressor} uses this to compress an image and
+ * its mipmap levels on several threads.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class PackedDXTCompressor implements DXTCompressor
+{
+    // Implementation based on the paper "Real-Time DXT Compression" by J.M.P van Waveren
+    // http://www.intel.com/cd/ids/developer/asmo-na/eng/324337.htm
+    // and on the NVidia Texture Tools
+    // http://code.google.com/p/nvidia-texture-tools/
+
+    /** Maps the offsets within a block to the offsets within a block that is truncated by the image's edge. */
+    protected static final int[] REMAINDER =
+        {
+            0, 0, 0, 0,
+            0, 1, 0, 1,
+            0, 1, 2, 0,
+            0, 1, 2, 3,
+        };
+
+    /** Maps an 8 bit alpha value to the nearest 4 bit alpha value. */
+    protected static final byte[] ALPHA4_FROM_ALPHA8 = new byte[256];
+
+    static
+    {
+        for (int i = 0; i < 256; i++)
+        {
+            ALPHA4_FROM_ALPHA8[i] = (byte) BlockDXT3Compressor.alpha4FromAlpha8(i);
+        }
+    }
+
+    protected final int dxtFormat;
+
+    /**
+     * Creates a compressor for a specified DXT format.
+     *
+     * @param dxtFormat the DXT format, either {@link DDSConstants#D3DFMT_DXT1} or {@link DDSConstants#D3DFMT_DXT3}.
+     *
+     * @throws IllegalArgumentException if the format is not DXT1 or DXT3.
+     */
+    public PackedDXTCompressor(int dxtFormat)
+    {
+        if (dxtFormat != DDSConstants.D3DFMT_DXT1 && dxtFormat != DDSConstants.D3DFMT_DXT3)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", dxtFormat);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.dxtFormat = dxtFormat;
+    }
+
+    public int getDXTFormat()
+    {
+        return this.dxtFormat;
+    }
+
+    /**
+     * Returns the number of bytes in each compressed 4x4 block: 8 for DXT1 and 16 for DXT3.
+     *
+     * @return the number of bytes per block.
+     */
+    public int getBlockSize()
+    {
+        return this.dxtFormat == DDSConstants.D3DFMT_DXT1 ? 8 : 16;
+    }
+
+    public int getCompressedSize(java.awt.image.BufferedImage image, DXTCompressionAttributes attributes)
+    {
+        if (image == null)
+        {
+            String message = Logging.getMessage("nullValue.ImageIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+        if (attributes == null)
+        {
+            String message = Logging.getMessage("nullValue.AttributesIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        return this.getCompressedSize(image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Returns the number of bytes needed to hold an image of the specified dimensions once compressed.
+     *
+     * @param width  the image width.
+     * @param height the image height.
+     *
+     * @return the compressed size, in bytes.
+     */
+    public int getCompressedSize(int width, int height)
+    {
+        return this.getBlockSize() * ((width + 3) / 4) * ((height + 3) / 4);
+    }
+
+    public void compressImage(java.awt.image.BufferedImage image, DXTCompressionAttributes attributes,
+        java.nio.ByteBuffer buffer)
+    {
+        if (image == null)
+        {
+            String message = Logging.getMessage("nullValue.ImageIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+        if (attributes == null)
+        {
+            String message = Logging.getMessage("nullValue.AttributesIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+        if (buffer == null)
+        {
+            String message = Logging.getMessage("nullValue.BufferNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        int[] pixels = getPixels(image, attributes.isPremultiplyAlpha());
+        this.compressBlockRows(pixels, image.getWidth(), image.getHeight(), 0, (image.getHeight() + 3) / 4,
+            image.getColorModel().hasAlpha(), attributes, buffer);
+    }
+
+    /**
+     * Returns the pixels of an image as packed 8888 ARGB ints, in row major order, optionally premultiplying the color
+     * components by alpha.
+     *
+     * @param image       the image.
+     * @param premultiply true to premultiply the color components by alpha, otherwise false.
+     *
+     * @return the image's pixels.
+     *
+     * @throws IllegalArgumentException if the image is null.
+     */
+    public static int[] getPixels(java.awt.image.BufferedImage image, boolean premultiply)
+    {
+        if (image == null)
+        {
+            String message = Logging.getMessage("nullValue.ImageIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        // Extracts color data from the image in INT_ARGB format. So each integer in the array is a tightly packed
+        // 8888 ARGB int, where the color components are not considered to be premultiplied.
+        int[] pixels = image.getRGB(0, 0, width, height, new int[width * height], 0, width);
+
+        if (premultiply)
+            premultiplyAlpha(pixels, 0, pixels.length);
+
+        return pixels;
+    }
+
+    /**
+     * Premultiplies the color components of a range of packed 8888 ARGB pixels by their alpha, in place.
+     *
+     * @param pixels the pixels.
+     * @param offset the index of the first pixel to premultiply.
+     * @param length the number of pixels to premultiply.
+     *
+     * @throws IllegalArgumentException if the array is null, or if the range lies outside the array.
+     */
+    public static void premultiplyAlpha(int[] pixels, int offset, int length)
+    {
+        if (pixels == null)
+        {
+            String message = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+        if (offset < 0 || length < 0 || offset + length > pixels.length)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", offset + ", " + length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        for (int i = offset, end = offset + length; i < end; i++)
+        {
+            int c = pixels[i];
+            int a = c >>> 24;
+
+            // Premultiplying by an alpha of 255 leaves the components unchanged.
+            if (a == 255)
+                continue;
+
+            int r = div255(((c >> 16) & 0xFF) * a);
+            int g = div255(((c >> 8) & 0xFF) * a);
+            int b = div255((c & 0xFF) * a);
+            pixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    /**
+     * Compresses a range of block rows of an image given as packed 8888 ARGB pixels, and writes the compressed blocks
+     * to a buffer, starting at the buffer's position. The pixels are compressed as given; they must already be
+     * premultiplied by alpha if the attributes specify premultiplied alpha. The buffer must be in little endian byte
+     * order.
+     * <p/>
+     * This may be called concurrently for different block rows of the same pixels.
+     *
+     * @param pixels        the image's pixels, in row major order.
+     * @param width         the image width.
+     * @param height        the image height.
+     * @param firstBlockRow the first block row to compress. Block row <code>n</code> holds the image rows <code>4n</code>
+     *                      through <code>4n + 3</code>.
+     * @param endBlockRow   the block row following the last block row to compress.
+     * @param hasAlpha      true if the image has an alpha channel, otherwise false. DXT1 compression uses three color
+     *                      blocks with transparency only if this is true and the attributes enable DXT1 alpha.
+     * @param attributes    attributes that control the compression.
+     * @param buffer        the buffer that receives the compressed blocks.
+     *
+     * @throws IllegalArgumentException if the pixels, attributes or buffer are null, if the pixel array is smaller than
+     *                                  the image, or if the block rows lie outside the image.
+     */
+    public void compressBlockRows(int[] pixels, int width, int height, int firstBlockRow, int endBlockRow,
+        boolean hasAlpha, DXTCompressionAttributes attributes, java.nio.ByteBuffer buffer)
+    {
+        if (pixels == null)
+        {
+            String message = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+        if (width < 1 || height < 1 || pixels.length < width * height)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength", pixels.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+        if (firstBlockRow < 0 || endBlockRow < firstBlockRow || endBlockRow > (height + 3) / 4)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", firstBlockRow + ", " + endBlockRow);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+        if (attributes == null)
+        {
+            String message = Logging.getMessage("nullValue.AttributesIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+        if (buffer == null)
+        {
+            String message = Logging.getMessage("nullValue.BufferNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        String compressionType = attributes.getColorBlockCompressionType();
+        boolean enableAlpha = hasAlpha && attributes.isEnableDXT1Alpha();
+        int alphaThreshold = attributes.getDXT1AlphaThreshold();
+        int[] block = new int[16];
+
+        for (int j = 4 * firstBlockRow; j < 4 * endBlockRow; j += 4)
+        {
+            for (int i = 0; i < width; i += 4)
+            {
+                extractBlock(pixels, width, height, i, j, block);
+
+                if (this.dxtFormat == DDSConstants.D3DFMT_DXT3)
+                {
+                    // The DXT3 color block is compressed exactly like the DXT1 color block with four colors, and is
+                    // preceded by the alpha block.
+                    buffer.putLong(computeAlphaValueMask(block));
+                    buffer.putLong(compressBlockDXT1(block, compressionType));
+                }
+                else if (enableAlpha && blockHasDXT1Alpha(block, alphaThreshold))
+                {
+                    buffer.putLong(compressBlockDXT1a(block, compressionType, alphaThreshold));
+                }
+                else
+                {
+                    buffer.putLong(compressBlockDXT1(block, compressionType));
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the 4x4 block of pixels at <code>(x, y)</code> to a block array. Blocks that extend past the image's edge
+     * are filled by repeating the pixels within the image, as {@link BasicColorBlockExtractor} does.
+     *
+     * @param pixels the image's pixels.
+     * @param width  the image width.
+     * @param height the image height.
+     * @param x      the block's first column.
+     * @param y      the block's first row.
+     * @param block  the array that receives the block's 16 pixels.
+     */
+    protected static void extractBlock(int[] pixels, int width, int height, int x, int y, int[] block)
+    {
+        int bw = Math.min(width - x, 4);
+        int bh = Math.min(height - y, 4);
+
+        if (bw == 4 && bh == 4)
+        {
+            for (int j = 0, k = y * width + x; j < 4; j++, k += width)
+            {
+                block[4 * j] = pixels[k];
+                block[4 * j + 1] = pixels[k + 1];
+                block[4 * j + 2] = pixels[k + 2];
+                block[4 * j + 3] = pixels[k + 3];
+            }
+
+            return;
+        }
+
+        int bxOffset = 4 * (bw - 1);
+        int byOffset = 4 * (bh - 1);
+        for (int j = 0; j < 4; j++)
+        {
+            int row = (y + REMAINDER[byOffset + j]) * width + x;
+            for (int i = 0; i < 4; i++)
+            {
+                block[4 * j + i] = pixels[row + REMAINDER[bxOffset + i]];
+            }
+        }
+    }
+
+    protected static boolean blockHasDXT1Alpha(int[] block, int alphaThreshold)
+    {
+        for (int i = 0; i < 16; i++)
+        {
+            if ((block[i] >>> 24) < alphaThreshold)
+                return true;
+        }
+
+        return false;
+    }
+
+    //**************************************************************//
+    //********************  Block Compression  *********************//
+    //**************************************************************//
+
+    /**
+     * Compresses a block into a DXT1 block using four colors, as {@link BlockDXT1Compressor#compressBlockDXT1(ColorBlock4x4,
+     * DXTCompressionAttributes, BlockDXT1)} does.
+     *
+     * @param block           the block's pixels.
+     * @param compressionType the attributes' color block compression type.
+     *
+     * @return the DXT1 block, packed so that writing it as a little endian long writes the block's bytes in order.
+     */
+    protected static long compressBlockDXT1(int[] block, String compressionType)
+    {
+        long minMax = chooseMinMaxColors(block, compressionType);
+        int color0 = short565FromColor32((int) minMax);
+        int color1 = short565FromColor32((int) (minMax >>> 32));
+
+        if (color0 < color1)
+        {
+            int tmp = color0;
+            color0 = color1;
+            color1 = tmp;
+        }
+
+        // To get a four color palette with no alpha, the first color must be greater than the second color.
+        long indices = computePaletteIndices4(block, color0, color1);
+
+        return color0 | ((long) color1 << 16) | (indices << 32);
+    }
+
+    /**
+     * Compresses a block into a DXT1 block with three colors, as {@link BlockDXT1Compressor#compressBlockDXT1a(ColorBlock4x4,
+     * DXTCompressionAttributes, BlockDXT1)} does.
+     *
+     * @param block           the block's pixels.
+     * @param compressionType the attributes' color block compression type.
+     * @param alphaThreshold  the alpha below which a pixel is transparent.
+     *
+     * @return the DXT1 block, packed so that writing it as a little endian long writes the block's bytes in order.
+     */
+    protected static long compressBlockDXT1a(int[] block, String compressionType, int alphaThreshold)
+    {
+        long minMax = chooseMinMaxColors(block, compressionType);
+        int color0 = short565FromColor32((int) minMax);
+        int color1 = short565FromColor32((int) (minMax >>> 32));
+
+        if (color0 < color1)
+        {
+            int tmp = color0;
+            color0 = color1;
+            color1 = tmp;
+        }
+
+        // To get a three color palette with alpha, the first color must be less than the second color.
+        long indices = computePaletteIndices3(block, color1, color0, alphaThreshold);
+
+        return color1 | ((long) color0 << 16) | (indices << 32);
+    }
+
+    /**
+     * Chooses the colors at the ends of a block's palette.
+     *
+     * @param block           the block's pixels.
+     * @param compressionType the attributes' color block compression type.
+     *
+     * @return the maximum color in the low 32 bits and the minimum color in the high 32 bits.
+     */
+    protected static long chooseMinMaxColors(int[] block, String compressionType)
+    {
+        //noinspection StringEquality
+        if (compressionType == DXTCompressionAttributes.COLOR_BLOCK_COMPRESSION_BBOX)
+        {
+            return findMinMaxColorsBox(block);
+        }
+        else //noinspection StringEquality
+            if (compressionType == DXTCompressionAttributes.COLOR_BLOCK_COMPRESSION_LUMINANCE_DISTANCE)
+            {
+                return findMinMaxColorsLuminanceDistance(block);
+            }
+            else //noinspection StringEquality
+                if (compressionType == DXTCompressionAttributes.COLOR_BLOCK_COMPRESSION_EUCLIDEAN_DISTANCE)
+                {
+                    return findMinMaxColorsEuclideanDistance(block);
+                }
+
+        // BlockDXT1Compressor leaves the colors of its previous block in place for an unknown compression type. Use
+        // black, which it uses for the first block.
+        return 0L;
+    }
+
+    protected static long findMinMaxColorsBox(int[] block)
+    {
+        int minR = 255, minG = 255, minB = 255;
+        int maxR = 0, maxG = 0, maxB = 0;
+
+        for (int i = 0; i < 16; i++)
+        {
+            int r = (block[i] >> 16) & 0xFF;
+            int g = (block[i] >> 8) & 0xFF;
+            int b = block[i] & 0xFF;
+
+            if (r < minR)
+                minR = r;
+            if (g < minG)
+                minG = g;
+            if (b < minB)
+                minB = b;
+            if (r > maxR)
+                maxR = r;
+            if (g > maxG)
+                maxG = g;
+            if (b > maxB)
+                maxB = b;
+        }
+
+        // Select the diagonal of the box that best fits the colors.
+        int centerR = (minR + maxR) / 2;
+        int centerG = (minG + maxG) / 2;
+        int centerB = (minB + maxB) / 2;
+
+        int cvx = 0;
+        int cvy = 0;
+        for (int i = 0; i < 16; i++)
+        {
+            int tx = ((block[i] >> 16) & 0xFF) - centerR;
+            int ty = ((block[i] >> 8) & 0xFF) - centerG;
+            int tz = (block[i] & 0xFF) - centerB;
+
+            cvx += tx * tz;
+            cvy += ty * tz;
+        }
+
+        if (cvx < 0)
+        {
+            int tmp = minR;
+            minR = maxR;
+            maxR = tmp;
+        }
+
+        if (cvy < 0)
+        {
+            int tmp = minG;
+            minG = maxG;
+            maxG = tmp;
+        }
+
+        // Inset the box.
+        int insetR = (maxR - minR) >> 4;
+        int insetG = (maxG - minG) >> 4;
+        int insetB = (maxB - minB) >> 4;
+
+        minR = (minR + insetR < 255) ? (minR + insetR) : 255;
+        minG = (minG + insetG < 255) ? (minG + insetG) : 255;
+        minB = (minB + insetB < 255) ? (minB + insetB) : 255;
+
+        maxR = (maxR > insetR) ? (maxR - insetR) : 0;
+        maxG = (maxG > insetG) ? (maxG - insetG) : 0;
+        maxB = (maxB > insetB) ? (maxB - insetB) : 0;
+
+        int min = (minR << 16) | (minG << 8) | minB;
+        int max = (maxR << 16) | (maxG << 8) | maxB;
+
+        return (max & 0xFFFFFFFFL) | ((long) min << 32);
+    }
+
+    protected static long findMinMaxColorsEuclideanDistance(int[] block)
+    {
+        int maxDistance = -1;
+        int minIndex = 0;
+        int maxIndex = 0;
+
+        for (int i = 0; i < 15; i++)
+        {
+            for (int j = i + 1; j < 16; j++)
+            {
+                int d = colorDistanceSquared(block[i], block[j]);
+                if (d > maxDistance)
+                {
+                    minIndex = i;
+                    maxIndex = j;
+                    maxDistance = d;
+                }
+            }
+        }
+
+        return (block[maxIndex] & 0xFFFFFFFFL) | ((long) block[minIndex] << 32);
+    }
+
+    protected static long findMinMaxColorsLuminanceDistance(int[] block)
+    {
+        int minLuminance = Integer.MAX_VALUE;
+        int maxLuminance = -1;
+        int minIndex = 0;
+        int maxIndex = 0;
+
+        for (int i = 0; i < 16; i++)
+        {
+            int c = block[i];
+            int luminance = ((c >> 16) & 0xFF) + ((c >> 8) & 0xFF) + 2 * (c & 0xFF);
+            if (luminance < minLuminance)
+            {
+                minIndex = i;
+                minLuminance = luminance;
+            }
+            if (luminance > maxLuminance)
+            {
+                maxIndex = i;
+                maxLuminance = luminance;
+            }
+        }
+
+        return (block[maxIndex] & 0xFFFFFFFFL) | ((long) block[minIndex] << 32);
+    }
+
+    //**************************************************************//
+    //********************  Palette Indices  ***********************//
+    //**************************************************************//
+
+    protected static long computePaletteIndices4(int[] block, int color0, int color1)
+    {
+        // The palette's second color is 1/3 on the line between the end colors, and its third color is 2/3 on the
+        // line, as computed by BlockDXT1Compressor.computeColorPalette4.
+        int c0 = short565ToColor32(color0);
+        int c1 = short565ToColor32(color1);
+        int c2 = (((2 * ((c0 >> 16) & 0xFF) + ((c1 >> 16) & 0xFF)) / 3) << 16)
+            | (((2 * ((c0 >> 8) & 0xFF) + ((c1 >> 8) & 0xFF)) / 3) << 8)
+            | ((2 * (c0 & 0xFF) + (c1 & 0xFF)) / 3);
+        int c3 = (((((c0 >> 16) & 0xFF) + 2 * ((c1 >> 16) & 0xFF)) / 3) << 16)
+            | (((((c0 >> 8) & 0xFF) + 2 * ((c1 >> 8) & 0xFF)) / 3) << 8)
+            | (((c0 & 0xFF) + 2 * (c1 & 0xFF)) / 3);
+
+        long mask = 0L;
+
+        for (int i = 0; i < 16; i++)
+        {
+            int d0 = colorDistanceSquared(c0, block[i]);
+            int d1 = colorDistanceSquared(c1, block[i]);
+            int d2 = colorDistanceSquared(c2, block[i]);
+            int d3 = colorDistanceSquared(c3, block[i]);
+
+            // Derive the 2-bit index directly from the distance comparisons to avoid branching. See
+            // BlockDXT1Compressor.computePaletteIndices4.
+            int b0 = (d3 - d0) >>> 31;
+            int b1 = (d2 - d1) >>> 31;
+            int b2 = (d2 - d0) >>> 31;
+            int b3 = (d3 - d1) >>> 31;
+            int b4 = (d3 - d2) >>> 31;
+
+            int x0 = b1 & b2;
+            int x1 = b0 & b3;
+            int x2 = b0 & b4;
+
+            long index = (x2 | ((x0 | x1) << 1));
+            mask |= (index << (i << 1));
+        }
+
+        return mask;
+    }
+
+    protected static long computePaletteIndices3(int[] block, int color0, int color1, int alphaThreshold)
+    {
+        // The palette's third color is 1/2 on the line between the end colors, as computed by
+        // BlockDXT1Compressor.computeColorPalette3. Index 3 is transparent black.
+        int c0 = short565ToColor32(color0);
+        int c1 = short565ToColor32(color1);
+        int c2 = (((((c0 >> 16) & 0xFF) + ((c1 >> 16) & 0xFF)) / 2) << 16)
+            | (((((c0 >> 8) & 0xFF) + ((c1 >> 8) & 0xFF)) / 2) << 8)
+            | (((c0 & 0xFF) + (c1 & 0xFF)) / 2);
+
+        long mask = 0L;
+        long index;
+
+        for (int i = 0; i < 16; i++)
+        {
+            int d0 = colorDistanceSquared(c0, block[i]);
+            int d1 = colorDistanceSquared(c1, block[i]);
+            int d2 = colorDistanceSquared(c2, block[i]);
+
+            if ((block[i] >>> 24) < alphaThreshold)
+            {
+                index = 3;
+            }
+            else if (d0 < d1 && d0 < d2)
+            {
+                index = 0;
+            }
+            else if (d1 < d2)
+            {
+                index = 1;
+            }
+            else
+            {
+                index = 2;
+            }
+
+            mask |= (index << (i << 1));
+        }
+
+        return mask;
+    }
+
+    protected static long computeAlphaValueMask(int[] block)
+    {
+        // Pack the 4 bit alpha values as BlockDXT3Compressor.computeAlphaValueMask does, two per byte, the first value
+        // in the low bits.
+        long bitmask = 0L;
+        for (int i = 0; i < 8; i++)
+        {
+            long a0 = ALPHA4_FROM_ALPHA8[block[2 * i] >>> 24];
+            long a1 = ALPHA4_FROM_ALPHA8[block[2 * i + 1] >>> 24];
+            bitmask |= ((a1 << 4) | a0) << (8 * i);
+        }
+
+        return bitmask;
+    }
+
+    //**************************************************************//
+    //********************  Color Arithmetic  **********************//
+    //**************************************************************//
+
+    protected static int short565FromColor32(int color)
+    {
+        return (mul8bit((color >> 16) & 0xFF, 31) << 11) + (mul8bit((color >> 8) & 0xFF, 63) << 5)
+            + mul8bit(color & 0xFF, 31);
+    }
+
+    protected static int short565ToColor32(int color16)
+    {
+        int r = (color16 & 0xf800) >> 11;
+        int g = (color16 & 0x07e0) >> 5;
+        int b = (color16 & 0x001f);
+
+        return 0xFF000000 | (((r << 3) | (r >> 2)) << 16) | (((g << 2) | (g >> 4)) << 8) | ((b << 3) | (b >> 2));
+    }
+
+    protected static int colorDistanceSquared(int c1, int c2)
+    {
+        int dr = ((c1 >> 16) & 0xFF) - ((c2 >> 16) & 0xFF);
+        int dg = ((c1 >> 8) & 0xFF) - ((c2 >> 8) & 0xFF);
+        int db = (c1 & 0xFF) - (c2 & 0xFF);
+
+        return dr * dr + dg * dg + db * db;
+    }
+
+    protected static int mul8bit(int a, int b)
+    {
+        int t = a * b + 128;
+        return (t + (t >> 8)) >> 8;
+    }
+
+    protected static int div255(int a)
+    {
+        return (a + (a >> 8) + 128) >> 8;
+    }
+}
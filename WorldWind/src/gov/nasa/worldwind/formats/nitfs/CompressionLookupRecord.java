@@ -55,6 +55,16 @@ class CompressionLookupRecord
         return dest;
     }
 
+    /**
+     * Returns this table's records, packed one after the other. The array is not copied, and must not be modified.
+     *
+     * @return this table's records.
+     */
+    byte[] getValues()
+    {
+        return this.lut;
+    }
+
 
     private int     tableID;
     private int     numOfRecords;
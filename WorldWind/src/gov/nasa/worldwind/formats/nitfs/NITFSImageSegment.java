@@ -147,14 +147,6 @@ public class NITFSImageSegment extends NITFSSegment
         buffer.position(saveOffset); // last line - restore buffer's position
     }
 
-    private void decompressBlock4x4(byte[][] block4x4, short code)
-    {
-        this.compressionLUTS[0].copyValues(block4x4[0], 0, code, 4);
-        this.compressionLUTS[1].copyValues(block4x4[1], 0, code, 4);
-        this.compressionLUTS[2].copyValues(block4x4[2], 0, code, 4);
-        this.compressionLUTS[3].copyValues(block4x4[3], 0, code, 4);
-    }
-
     private void decompressBlock16(byte[] block16, short code)
     {
         this.compressionLUTS[0].copyValues(block16,  0, code, 4);
@@ -173,10 +165,15 @@ public class NITFSImageSegment extends NITFSSegment
         int band = 0; // for(int band = 0; band < rpfComponents.numOfSpectralBandTables;  band++)
         NITFSImageBand imageBand = this.imageBands[band];
 
-        int rgbColor, colorCode;
-        short aa, ab, bb;
-        short[] codes = new short[(int) this.numOfImageCodesPerRow];
-        byte[][] block4x4 = new byte[4][4];
+        int[] colors = new int[256];
+        boolean[] transparent = new boolean[256];
+        makeColorTable(imageBand, imageType, hasTransparentPixels ? this.transparentOutputPixelCode : -1,
+            colors, transparent);
+
+        byte[][] kernelRows = getKernelRows(this.compressionLUTS);
+
+        int numCodesPerRow = (int) this.numOfImageCodesPerRow;
+        short[] codes = new short[numCodesPerRow];
         int rowSize = (short) ((this.numOfImageCodesPerRow * this.imageCodeBitLength) / 8L);
         byte[] rowBytes = new byte[rowSize];
         int subFrameOffset;
@@ -202,85 +199,157 @@ public class NITFSImageSegment extends NITFSSegment
                     }
                 }
 
-                for (int row = 0; row < this.numOfImageRows; row++)
-                {
-                    int qy = blockY + row * 4;
+                decompressSubframe(super.buffer, (int) this.numOfImageRows, rowBytes, codes, kernelRows,
+                    hasTransparentPixels, colors, transparent, pixels, blockX, blockY, this.numSignificantCols);
+            } // end of subFrameW loop
+        } // end of subFrameH loop
 
-                    super.buffer.get(rowBytes, 0, rowSize);
+        return pixels;
+    }
 
-                    // short[] codes = new short[(int) this.numOfImageCodesPerRow];
-                    for (int i = 0, cidx = 0, bidx = 0; i < (int) this.numOfImageCodesPerRow / 2; i++)
-                    {
-                        aa = (short) ((0x00FF & (short) rowBytes[bidx++]) << 4);
-                        ab = (short) (0x00FF & (short)  rowBytes[bidx++]);
-                        bb = (short) (0x00FF & (short)  rowBytes[bidx++]);
+    /**
+     * Maps each color code to its output pixel, so that pixels are colored once per image rather than once per pixel.
+     * Transparent color codes are marked so that their pixels are left untouched.
+     *
+     * @param imageBand            the band whose color lookup tables to use.
+     * @param imageType            the output pixel format.
+     * @param transparentColorCode the transparent output color code, or -1 if the image has no transparent pixels.
+     * @param colors               an array of 256 receiving the output pixel of each color code.
+     * @param transparent          an array of 256 receiving whether each color code is transparent.
+     */
+    static void makeColorTable(NITFSImageBand imageBand, RPFImageType imageType, int transparentColorCode,
+        int[] colors, boolean[] transparent)
+    {
+        for (int colorCode = 0; colorCode < 256; colorCode++)
+        {
+            if (transparentColorCode == colorCode)
+            {   // this is a transparent pixel
+                transparent[colorCode] = true;
+                continue;
+            }
 
-                        codes[cidx++] = (short) (aa | ((0x00F0 & ab) >> 4));
-                        codes[cidx++] = (short) (bb | ((0x000F & ab) << 8));
-                    }
+            if (imageBand.isReservedApplicationCode(colorCode))
+            {
+                // This is a reserved color code used to define an application-specific overlay. We don't know the
+                // meaning of application overlay codes, therefore we treat them as transparent or background pixels.
+                transparent[colorCode] = true;
+                continue;
+            }
 
-                    for (int col = 0; col < this.numOfImageCodesPerRow; col++)
-                    {
-                        if (hasTransparentPixels)
-                        {
-                            if (4095 == codes[col])
-                            {   // this is a transparent kernel
-                                continue;                          
-                            }
-                        }
-
-                        this.decompressBlock4x4( block4x4, codes[col] );
-
-                        int qx = blockX + col * 4;
-
-                        for (int h = 0; h < 4; h++)
-                        {
-                            for (int w = 0; w < 4; w++)
-                            {
-                                colorCode = 0x00FF & block4x4[h][w];
-
-                                if (hasTransparentPixels)
-                                {
-                                    if (this.transparentOutputPixelCode == colorCode)
-                                    {   // this is a transparent pixel
-                                        continue;
-                                    }
-                                }
-
-                                if (imageBand.isReservedApplicationCode(colorCode))
-                                {
-                                    // This is a reserved color code used to define an application-specific overlay. We
-                                    // don't know the meaning of application overlay codes, therefore we treat them as
-                                    // transparent or background pixels.
-                                    continue;
-                                }
-
-                                rgbColor = imageBand.lookupRGB(colorCode);
-                                switch (imageType)
-                                {
-                                    case IMAGE_TYPE_ALPHA_RGB:
-                                        rgbColor = 0xFF000000 + rgbColor;
-                                        break;
-                                  //case IMAGE_TYPE_GRAY:
-                                  //    break;
-                                  //case IMAGE_TYPE_RGB:
-                                  //    break;
-                                    case IMAGE_TYPE_GRAY_ALPHA:
-                                        rgbColor = (rgbColor << 8) + 0xFF;
-                                        break;
-                                    case IMAGE_TYPE_RGB_ALPHA:
-                                        rgbColor = (rgbColor << 8) + 0xFF;
-                                        break;
-                                }
-                                pixels[(qy + h) * this.numSignificantCols + (qx + w)] = rgbColor;
-                            }
-                        }
-                    } // end of column loop
-                } // end of row loop
-            } // end of subFrameW loop
-        } // end of subFrameH loop
+            int rgbColor = imageBand.lookupRGB(colorCode);
+            switch (imageType)
+            {
+                case IMAGE_TYPE_ALPHA_RGB:
+                    rgbColor = 0xFF000000 + rgbColor;
+                    break;
+              //case IMAGE_TYPE_GRAY:
+              //    break;
+              //case IMAGE_TYPE_RGB:
+              //    break;
+                case IMAGE_TYPE_GRAY_ALPHA:
+                    rgbColor = (rgbColor << 8) + 0xFF;
+                    break;
+                case IMAGE_TYPE_RGB_ALPHA:
+                    rgbColor = (rgbColor << 8) + 0xFF;
+                    break;
+            }
+            colors[colorCode] = rgbColor;
+        }
+    }
 
-        return pixels;
+    /**
+     * Returns the rows of the 4x4 kernels. Row h holds row h of every kernel, four color codes per kernel.
+     *
+     * @param compressionLUTS the four compression lookup tables.
+     *
+     * @return the kernel rows, read directly from the lookup tables.
+     */
+    static byte[][] getKernelRows(CompressionLookupRecord[] compressionLUTS)
+    {
+        byte[][] kernelRows = new byte[4][];
+        for (int h = 0; h < 4; h++)
+        {
+            if (4 != compressionLUTS[h].getBytesPerRecord())
+                throw new NITFSRuntimeException("NITFSReader.AttemptToCopyWithInvalidSizeOfRecord");
+            kernelRows[h] = compressionLUTS[h].getValues();
+        }
+
+        return kernelRows;
+    }
+
+    /**
+     * Decompresses one subframe of 12-bit kernel codes, writing each kernel directly to the pixel array.
+     *
+     * @param buffer                the buffer holding the subframe's codes, positioned at the subframe.
+     * @param numRows               the number of rows of codes in the subframe.
+     * @param rowBytes              an array to hold one row of codes.
+     * @param codes                 an array to hold one row of unpacked codes.
+     * @param kernelRows            the kernel rows from {@link #getKernelRows(CompressionLookupRecord[])}.
+     * @param hasTransparentKernels true if code 4095 marks a transparent kernel.
+     * @param colors                the output pixel of each color code.
+     * @param transparent           whether each color code is transparent.
+     * @param pixels                the pixel array.
+     * @param blockX                the column of the subframe's first pixel.
+     * @param blockY                the row of the subframe's first pixel.
+     * @param scanlineStride        the number of pixels per row of the pixel array.
+     */
+    static void decompressSubframe(ByteBuffer buffer, int numRows, byte[] rowBytes, short[] codes,
+        byte[][] kernelRows, boolean hasTransparentKernels, int[] colors, boolean[] transparent, int[] pixels,
+        int blockX, int blockY, int scanlineStride)
+    {
+        int numKernels = Integer.MAX_VALUE;
+        for (byte[] kernelRow : kernelRows)
+        {
+            numKernels = Math.min(numKernels, kernelRow.length / 4);
+        }
+
+        int numCodesPerRow = codes.length;
+
+        for (int row = 0; row < numRows; row++)
+        {
+            int qy = blockY + row * 4;
+
+            buffer.get(rowBytes, 0, rowBytes.length);
+
+            // Unpack pairs of 12-bit codes from each three bytes.
+            for (int i = 0, cidx = 0, bidx = 0; i < numCodesPerRow / 2; i++)
+            {
+                int aa = (0x00FF & rowBytes[bidx++]) << 4;
+                int ab = 0x00FF & rowBytes[bidx++];
+                int bb = 0x00FF & rowBytes[bidx++];
+
+                codes[cidx++] = (short) (aa | ((0x00F0 & ab) >> 4));
+                codes[cidx++] = (short) (bb | ((0x000F & ab) << 8));
+            }
+
+            for (int col = 0; col < numCodesPerRow; col++)
+            {
+                int code = codes[col];
+                if (hasTransparentKernels && 4095 == code)
+                {   // this is a transparent kernel
+                    continue;
+                }
+
+                if (code >= numKernels)
+                    throw new NITFSRuntimeException("NITFSReader.AttemptToCopyOutOfBoundsAtSource");
+
+                int kernelOffset = code * 4;
+                int qx = blockX + col * 4;
+
+                for (int h = 0; h < 4; h++)
+                {
+                    byte[] kernelRow = kernelRows[h];
+                    int pixelOffset = (qy + h) * scanlineStride + qx;
+
+                    for (int w = 0; w < 4; w++)
+                    {
+                        int colorCode = 0x00FF & kernelRow[kernelOffset + w];
+                        if (!transparent[colorCode])
+                            pixels[pixelOffset + w] = colors[colorCode];
+                    }
+                }
+            } // end of column loop
+        } // end of row loop
     }
 
     private void validateImage() throws NITFSRuntimeException {
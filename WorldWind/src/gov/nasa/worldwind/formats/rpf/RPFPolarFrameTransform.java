@@ -392,9 +392,14 @@ class RPFPolarFrameTransform extends RPFFrameTransform
         int srcWidth = srcImage.getWidth();
         int srcHeight = srcImage.getHeight();
 
+        // Resample between packed ARGB arrays rather than reading and writing the images a pixel at a time.
+        int[] srcPixels = getPixels(srcImage);
+        int[] destPixels = new int[width * height];
+
         for (int y = 0; y < height; y++)
         {
             double lat = minLat + y * deltaLat;
+            int destOffset = (height - 1 - y) * width;
             for (int x = 0; x < width; x++)
             {
                 double lon = minLon + x * deltaLon;
@@ -407,14 +412,29 @@ class RPFPolarFrameTransform extends RPFFrameTransform
                 if (i < 0 || i >= srcWidth || j < 0 || j >= srcHeight)
                     continue;
 
-                int color = srcImage.getRGB(i, j);
+                int color = srcPixels[j * srcWidth + i];
 
                 // Remove black trim known to be present in these maps....
                 if ((color & 0x00FFFFFF) == 0)
                     color = 0;
-                destImage.setRGB(x, height - 1 - y, color);
+                destPixels[destOffset + x] = color;
             }
         }
+
+        destImage.setRGB(0, 0, width, height, destPixels, 0, width);
+    }
+
+    private static int[] getPixels(BufferedImage image)
+    {
+        // Images decoded from frame files hold their pixels as packed ARGB, and can be read without conversion.
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB && image.getRaster().getDataBuffer() instanceof DataBufferInt
+            && image.getRaster().getSampleModelTranslateX() == 0 && image.getRaster().getSampleModelTranslateY() == 0
+            && ((DataBufferInt) image.getRaster().getDataBuffer()).getSize() == image.getWidth() * image.getHeight())
+        {
+            return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
     }
 
     private boolean isDatelineSpanningFrame(int frameNumber, PixelTransformer pt)
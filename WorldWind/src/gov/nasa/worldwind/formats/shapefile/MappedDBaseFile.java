@@ -0,0 +1,932 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.formats.shapefile;
+
+import gov.nasa.worldwind.avlist.AVKey;
+import gov.nasa.worldwind.util.*;
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
+
+/**
+ * A {@link DBaseFile} that provides random access to its records and columns. A file source is memory mapped; the
+ * content of a URL or stream source is read into memory when the file is opened. Records are decoded only when
+ * requested, either as a {@link DBaseRecord} by {@link #getRecord(int)} or sequentially by {@link #nextRecord()}, or one
+ * field at a time for all records by the column methods.
+ * <p/>
+ * The column methods decode a single field of every record into primitive arrays: {@link #getNumberColumn(String)} into
+ * a <code>double[]</code>, {@link #getLongColumn(String)} into a <code>long[]</code>, and {@link
+ * #getStringColumn(String)} into a dictionary-encoded {@link StringColumn}. Each column is decoded once, the first time
+ * it's requested, and is then retained. Records that match a condition on a field value can be found without decoding
+ * any other field by passing a {@link RecordFilter}, such as those created by {@link #fieldEquals(String, String)} and
+ * {@link #fieldInRange(String, double, double)}, to {@link #selectRecords(RecordFilter)}, or to {@link
+ * Shapefile#setAttributeFilter(RecordFilter)} to skip the non-matching records of a shapefile.
+ * <p/>
+ * Record indices passed to and returned by the methods of this class begin at 0. The record number of a {@link
+ * DBaseRecord} begins at 1.
+ * <p/>
+ * The records and columns remain available after the file is closed, but {@link #nextRecord()} may no longer be
+ * called. Files larger than 2 GB cannot be memory mapped, and so are not supported by this class.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class MappedDBaseFile extends DBaseFile
+{
+    /** Indicates a missing value in a column returned by {@link #getLongColumn(String)}. */
+    public static final long MISSING_LONG = Long.MIN_VALUE;
+
+    /**
+     * Determines whether a record of a {@link MappedDBaseFile} is selected. Filters typically examine the raw field
+     * values of the record, which avoids decoding the record or any of its other fields.
+     */
+    public interface RecordFilter
+    {
+        /**
+         * Indicates whether a record is selected.
+         *
+         * @param dbaseFile   the file containing the record.
+         * @param recordIndex the index of the record, beginning at 0.
+         *
+         * @return true if the record is selected, otherwise false.
+         */
+        boolean accept(MappedDBaseFile dbaseFile, int recordIndex);
+    }
+
+    /**
+     * The values of one field of every record, dictionary encoded. Each distinct value is held once, and each record is
+     * represented by the integer code of its value.
+     */
+    public static class StringColumn
+    {
+        protected final int[] codes;
+        protected final String[] values;
+
+        public StringColumn(int[] codes, String[] values)
+        {
+            this.codes = codes;
+            this.values = values;
+        }
+
+        /**
+         * Returns the number of records in the column.
+         *
+         * @return the number of records.
+         */
+        public int size()
+        {
+            return this.codes.length;
+        }
+
+        /**
+         * Returns the value of a specified record.
+         *
+         * @param recordIndex the index of the record, beginning at 0.
+         *
+         * @return the record's value, or null if the record's value is empty.
+         */
+        public String get(int recordIndex)
+        {
+            int code = this.codes[recordIndex];
+            return code >= 0 ? this.values[code] : null;
+        }
+
+        /**
+         * Returns the code of a specified record's value.
+         *
+         * @param recordIndex the index of the record, beginning at 0.
+         *
+         * @return the code of the record's value, or -1 if the record's value is empty.
+         */
+        public int getCode(int recordIndex)
+        {
+            return this.codes[recordIndex];
+        }
+
+        /**
+         * Returns the number of distinct values in the column, not including the empty value.
+         *
+         * @return the number of distinct values.
+         */
+        public int getNumberOfValues()
+        {
+            return this.values.length;
+        }
+
+        /**
+         * Returns the value with a specified code.
+         *
+         * @param code the value's code, between 0 and one less than the number of distinct values.
+         *
+         * @return the value with the specified code.
+         */
+        public String getValue(int code)
+        {
+            return this.values[code];
+        }
+    }
+
+    /** Selects records whose value of a named field matches a condition. The field is found once per file. */
+    protected abstract static class FieldFilter implements RecordFilter
+    {
+        protected final String fieldName;
+        protected MappedDBaseFile dbaseFile;
+        protected int fieldIndex;
+
+        public FieldFilter(String fieldName)
+        {
+            if (fieldName == null)
+            {
+                String message = Logging.getMessage("nullValue.StringIsNull");
+                Logging.logger().severe(message);
+                throw new IllegalArgumentException(message);
+            }
+
+            this.fieldName = fieldName;
+        }
+
+        public synchronized boolean accept(MappedDBaseFile dbaseFile, int recordIndex)
+        {
+            if (this.dbaseFile != dbaseFile)
+            {
+                this.fieldIndex = dbaseFile.getFieldIndex(this.fieldName);
+                if (this.fieldIndex < 0)
+                {
+                    String message = Logging.getMessage("SHP.DBaseFieldNotFound", this.fieldName);
+                    Logging.logger().severe(message);
+                    throw new IllegalArgumentException(message);
+                }
+
+                this.dbaseFile = dbaseFile;
+            }
+
+            return this.accept(dbaseFile, dbaseFile.getFieldPosition(recordIndex, this.fieldIndex),
+                dbaseFile.getFieldLength(recordIndex, this.fieldIndex));
+        }
+
+        protected abstract boolean accept(MappedDBaseFile dbaseFile, int position, int length);
+    }
+
+    protected ByteBuffer buffer;
+    protected int[] fieldOffsets;
+    protected Map<String, Object> columns;
+
+    /**
+     * Opens a DBase file from a general source. The source type may be one of those accepted by {@link
+     * DBaseFile#DBaseFile(Object)}. A {@link File}, or a {@link String} naming a file, is memory mapped. The content of
+     * other sources is read into memory.
+     *
+     * @param source the source of the DBase file.
+     *
+     * @throws IllegalArgumentException if the source is null or an empty string.
+     * @throws gov.nasa.worldwind.exception.WWRuntimeException
+     *                                  if the file cannot be read for any reason.
+     */
+    public MappedDBaseFile(Object source)
+    {
+        super(source);
+    }
+
+    /**
+     * Returns the index of a named field.
+     *
+     * @param fieldName the field's name.
+     *
+     * @return the field's index, or -1 if the file has no field of that name.
+     *
+     * @throws IllegalArgumentException if the name is null.
+     */
+    public int getFieldIndex(String fieldName)
+    {
+        if (fieldName == null)
+        {
+            String message = Logging.getMessage("nullValue.StringIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        for (int i = 0; i < this.fields.length; i++)
+        {
+            if (fieldName.equals(this.fields[i].getName()))
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns a specified record.
+     *
+     * @param recordIndex the index of the record, beginning at 0.
+     *
+     * @return a new record holding the decoded values of all the record's fields.
+     *
+     * @throws IllegalArgumentException if the index is less than 0 or not less than the number of records.
+     */
+    public DBaseRecord getRecord(int recordIndex)
+    {
+        this.checkRecordIndex(recordIndex);
+
+        ByteBuffer recordBuffer = this.buffer.duplicate();
+        int position = this.getRecordPosition(recordIndex);
+        recordBuffer.limit(position + this.getRecordLength());
+        recordBuffer.position(position);
+
+        return this.readRecordFromBuffer(recordBuffer.slice(), recordIndex + 1);
+    }
+
+    /**
+     * Indicates whether a specified record is marked deleted.
+     *
+     * @param recordIndex the index of the record, beginning at 0.
+     *
+     * @return true if the record is marked deleted, otherwise false.
+     *
+     * @throws IllegalArgumentException if the index is less than 0 or not less than the number of records.
+     */
+    public boolean isRecordDeleted(int recordIndex)
+    {
+        this.checkRecordIndex(recordIndex);
+
+        return this.buffer.get(this.getRecordPosition(recordIndex)) == 0x2A;
+    }
+
+    /**
+     * Returns the index of the record returned by the next call to {@link #nextRecord()}.
+     *
+     * @return the index of the next record, beginning at 0.
+     */
+    public int getNextRecordIndex()
+    {
+        return this.numRecordsRead;
+    }
+
+    /**
+     * Advances past the next record without decoding it. The next call to {@link #nextRecord()} returns the record
+     * after it.
+     *
+     * @throws IllegalStateException if the file has no more records.
+     */
+    public void skipRecord()
+    {
+        if (!this.hasNext())
+        {
+            String message = Logging.getMessage("SHP.NoRecords", this.getStringValue(AVKey.DISPLAY_NAME));
+            Logging.logger().severe(message);
+            throw new IllegalStateException(message);
+        }
+
+        this.numRecordsRead++;
+    }
+
+    /**
+     * Returns the indices of the records selected by a filter.
+     *
+     * @param filter the filter that selects records.
+     *
+     * @return the indices of the selected records, in increasing order.
+     *
+     * @throws IllegalArgumentException if the filter is null.
+     */
+    public int[] selectRecords(RecordFilter filter)
+    {
+        if (filter == null)
+        {
+            String message = Logging.getMessage("nullValue.FilterIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        int[] indices = new int[16];
+        int count = 0;
+
+        for (int i = 0; i < this.getNumberOfRecords(); i++)
+        {
+            if (!filter.accept(this, i))
+                continue;
+
+            if (count == indices.length)
+                indices = Arrays.copyOf(indices, 2 * indices.length);
+            indices[count++] = i;
+        }
+
+        return Arrays.copyOf(indices, count);
+    }
+
+    /**
+     * Returns the values of a numeric field for all records. The values are decoded the first time this method is
+     * called for the field.
+     *
+     * @param fieldName the name of the field.
+     *
+     * @return an array holding each record's value, indexed by record index. Empty values and values that can't be
+     *         parsed as numbers are NaN. The array is shared, and must not be modified.
+     *
+     * @throws IllegalArgumentException if the name is null, or if the file has no field of that name.
+     */
+    public synchronized double[] getNumberColumn(String fieldName)
+    {
+        String key = "Number." + fieldName;
+        double[] column = (double[]) this.getColumns().get(key);
+        if (column != null)
+            return column;
+
+        int fieldIndex = this.getExistingFieldIndex(fieldName);
+        column = new double[this.getNumberOfRecords()];
+        for (int i = 0; i < column.length; i++)
+        {
+            column[i] = this.parseNumber(this.getFieldPosition(i, fieldIndex), this.getFieldLength(i, fieldIndex));
+        }
+
+        this.getColumns().put(key, column);
+
+        return column;
+    }
+
+    /**
+     * Returns the values of an integer field for all records. The values are decoded the first time this method is
+     * called for the field. Values with a fractional part are truncated.
+     *
+     * @param fieldName the name of the field.
+     *
+     * @return an array holding each record's value, indexed by record index. Empty values and values that can't be
+     *         parsed as numbers are {@link #MISSING_LONG}. The array is shared, and must not be modified.
+     *
+     * @throws IllegalArgumentException if the name is null, or if the file has no field of that name.
+     */
+    public synchronized long[] getLongColumn(String fieldName)
+    {
+        String key = "Long." + fieldName;
+        long[] column = (long[]) this.getColumns().get(key);
+        if (column != null)
+            return column;
+
+        int fieldIndex = this.getExistingFieldIndex(fieldName);
+        column = new long[this.getNumberOfRecords()];
+        for (int i = 0; i < column.length; i++)
+        {
+            column[i] = this.parseLong(this.getFieldPosition(i, fieldIndex), this.getFieldLength(i, fieldIndex));
+        }
+
+        this.getColumns().put(key, column);
+
+        return column;
+    }
+
+    /**
+     * Returns the values of a field for all records as strings, dictionary encoded. The values are decoded the first
+     * time this method is called for the field. Each distinct value is decoded once, regardless of the number of
+     * records having that value.
+     *
+     * @param fieldName the name of the field.
+     *
+     * @return the field's values. The column is shared.
+     *
+     * @throws IllegalArgumentException if the name is null, or if the file has no field of that name.
+     */
+    public synchronized StringColumn getStringColumn(String fieldName)
+    {
+        String key = "String." + fieldName;
+        StringColumn column = (StringColumn) this.getColumns().get(key);
+        if (column != null)
+            return column;
+
+        int fieldIndex = this.getExistingFieldIndex(fieldName);
+        int numRecords = this.getNumberOfRecords();
+        int[] codes = new int[numRecords];
+
+        // An open addressing hash table of the codes of the distinct values. Each value is identified by the position
+        // and length of its first occurrence in the buffer, so that no objects are created for repeated values.
+        int[] table = new int[64];
+        Arrays.fill(table, -1);
+        int[] valuePositions = new int[16];
+        int[] valueLengths = new int[16];
+        int numValues = 0;
+        byte[] bytes = new byte[this.fields[fieldIndex].getLength()];
+        String[] values = new String[16];
+
+        for (int i = 0; i < numRecords; i++)
+        {
+            int position = this.getFieldPosition(i, fieldIndex);
+            int length = this.getFieldLength(i, fieldIndex);
+
+            // Trim leading and trailing spaces and control characters, as String.trim does.
+            while (length > 0 && (this.buffer.get(position) & 0xFF) <= 0x20)
+            {
+                position++;
+                length--;
+            }
+            while (length > 0 && (this.buffer.get(position + length - 1) & 0xFF) <= 0x20)
+            {
+                length--;
+            }
+
+            if (length == 0 || this.isFilled(position, length, (byte) 0x2A))
+            {
+                codes[i] = -1;
+                continue;
+            }
+
+            int slot = this.hash(position, length) & (table.length - 1);
+            while (table[slot] >= 0 && !this.bytesEqual(valuePositions[table[slot]], valueLengths[table[slot]],
+                position, length))
+            {
+                slot = (slot + 1) & (table.length - 1);
+            }
+
+            if (table[slot] < 0)
+            {
+                if (numValues == values.length)
+                {
+                    valuePositions = Arrays.copyOf(valuePositions, 2 * numValues);
+                    valueLengths = Arrays.copyOf(valueLengths, 2 * numValues);
+                    values = Arrays.copyOf(values, 2 * numValues);
+                }
+
+                for (int k = 0; k < length; k++)
+                {
+                    bytes[k] = this.buffer.get(position + k);
+                }
+                valuePositions[numValues] = position;
+                valueLengths[numValues] = length;
+                values[numValues] = this.decodeString(bytes, length);
+                codes[i] = table[slot] = numValues++;
+
+                // Keep the table at most half full.
+                if (2 * numValues > table.length)
+                    table = this.rehash(table, numValues, valuePositions, valueLengths);
+            }
+            else
+            {
+                codes[i] = table[slot];
+            }
+        }
+
+        column = new StringColumn(codes, Arrays.copyOf(values, numValues));
+        this.getColumns().put(key, column);
+
+        return column;
+    }
+
+    /**
+     * Creates a filter that selects records whose value of a named field equals a specified string. Leading and
+     * trailing spaces are ignored in both values.
+     *
+     * @param fieldName the name of the field.
+     * @param value     the value to select.
+     *
+     * @return a filter that selects records whose field value is equal to the specified value.
+     *
+     * @throws IllegalArgumentException if either argument is null.
+     */
+    public static RecordFilter fieldEquals(String fieldName, String value)
+    {
+        if (value == null)
+        {
+            String message = Logging.getMessage("nullValue.StringIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        final byte[] valueBytes;
+        try
+        {
+            valueBytes = value.trim().getBytes("UTF-8");
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e); // UTF-8 is always supported.
+        }
+
+        return new FieldFilter(fieldName)
+        {
+            protected boolean accept(MappedDBaseFile dbaseFile, int position, int length)
+            {
+                return dbaseFile.trimmedBytesEqual(position, length, valueBytes);
+            }
+        };
+    }
+
+    /**
+     * Creates a filter that selects records whose value of a named numeric field lies within a specified range,
+     * inclusive. Records whose value is empty or not a number are not selected.
+     *
+     * @param fieldName the name of the field.
+     * @param min       the minimum value to select.
+     * @param max       the maximum value to select.
+     *
+     * @return a filter that selects records whose field value is in the specified range.
+     *
+     * @throws IllegalArgumentException if the field name is null.
+     */
+    public static RecordFilter fieldInRange(String fieldName, final double min, final double max)
+    {
+        return new FieldFilter(fieldName)
+        {
+            protected boolean accept(MappedDBaseFile dbaseFile, int position, int length)
+            {
+                double value = dbaseFile.parseNumber(position, length);
+                return value >= min && value <= max; // false if the value is NaN
+            }
+        };
+    }
+
+    //**************************************************************//
+    //********************  Initialization  ************************//
+    //**************************************************************//
+
+    @Override
+    protected void initializeFromFile(File file) throws IOException
+    {
+        if (!file.exists())
+        {
+            String message = Logging.getMessage("generic.FileNotFound", file.getPath());
+            Logging.logger().severe(message);
+            throw new FileNotFoundException(message);
+        }
+
+        this.buffer = WWIO.mapFile(file, FileChannel.MapMode.READ_ONLY);
+        this.initialize();
+    }
+
+    @Override
+    protected void initializeFromURL(URL url) throws IOException
+    {
+        URLConnection connection = url.openConnection();
+
+        String message = this.validateURLConnection(connection, DBASE_CONTENT_TYPES);
+        if (message != null)
+        {
+            throw new IOException(message);
+        }
+
+        InputStream stream = connection.getInputStream();
+        try
+        {
+            this.buffer = WWIO.readStreamToBuffer(stream);
+        }
+        finally
+        {
+            WWIO.closeStream(stream, url.toString());
+        }
+
+        this.initialize();
+    }
+
+    @Override
+    protected void initializeFromStream(InputStream stream) throws IOException
+    {
+        this.buffer = WWIO.readStreamToBuffer(stream);
+        this.initialize();
+    }
+
+    @Override
+    protected void initialize() throws IOException
+    {
+        this.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        ByteBuffer headerBuffer = this.buffer.duplicate();
+        headerBuffer.position(0);
+        this.header = this.readHeaderFromBuffer(headerBuffer);
+        this.fields = this.readFieldsFromBuffer(headerBuffer, this.getNumberOfFields());
+
+        // The offset of each field within a record. Each record begins with a one byte deleted flag.
+        this.fieldOffsets = new int[this.fields.length];
+        int offset = 1;
+        for (int i = 0; i < this.fields.length; i++)
+        {
+            this.fieldOffsets[i] = offset;
+            offset += this.fields[i].getLength();
+        }
+
+        // Limit the number of records to those actually present in the file.
+        long available = this.buffer.limit() - (long) this.getHeaderLength();
+        if (this.getRecordLength() > 0 && available < (long) this.getRecordLength() * this.getNumberOfRecords())
+            this.header.numberOfRecords = (int) (Math.max(0, available) / this.getRecordLength());
+
+        this.open = true;
+    }
+
+    //**************************************************************//
+    //********************  Records  *******************************//
+    //**************************************************************//
+
+    @Override
+    protected DBaseRecord readNextRecord() throws IOException
+    {
+        DBaseRecord record = this.getRecord(this.numRecordsRead);
+        this.numRecordsRead++;
+
+        return record;
+    }
+
+    protected void checkRecordIndex(int recordIndex)
+    {
+        if (recordIndex < 0 || recordIndex >= this.getNumberOfRecords())
+        {
+            String message = Logging.getMessage("generic.indexOutOfRange", recordIndex);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    protected int getRecordPosition(int recordIndex)
+    {
+        return this.getHeaderLength() + recordIndex * this.getRecordLength();
+    }
+
+    /**
+     * Returns the position in this file's buffer of a field's value in a specified record.
+     *
+     * @param recordIndex the index of the record.
+     * @param fieldIndex  the index of the field.
+     *
+     * @return the position of the field value's first byte.
+     */
+    protected int getFieldPosition(int recordIndex, int fieldIndex)
+    {
+        return this.getRecordPosition(recordIndex) + this.fieldOffsets[fieldIndex];
+    }
+
+    /**
+     * Returns the length of a field's value in a specified record, not including any zero bytes terminating the
+     * value.
+     *
+     * @param recordIndex the index of the record.
+     * @param fieldIndex  the index of the field.
+     *
+     * @return the number of bytes in the field's value.
+     */
+    protected int getFieldLength(int recordIndex, int fieldIndex)
+    {
+        int position = this.getFieldPosition(recordIndex, fieldIndex);
+        int maxLength = this.fields[fieldIndex].getLength();
+
+        int length = 0;
+        while (length < maxLength && this.buffer.get(position + length) != 0)
+        {
+            length++;
+        }
+
+        return length;
+    }
+
+    protected int getExistingFieldIndex(String fieldName)
+    {
+        int fieldIndex = this.getFieldIndex(fieldName);
+        if (fieldIndex < 0)
+        {
+            String message = Logging.getMessage("SHP.DBaseFieldNotFound", fieldName);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        return fieldIndex;
+    }
+
+    protected Map<String, Object> getColumns()
+    {
+        // Created on first use, since initialization occurs during the superclass constructor.
+        if (this.columns == null)
+            this.columns = new HashMap<String, Object>();
+
+        return this.columns;
+    }
+
+    //**************************************************************//
+    //********************  Value Parsing  *************************//
+    //**************************************************************//
+
+    /** The powers of ten that are exactly representable as doubles. */
+    protected static final double[] POWERS_OF_TEN = new double[] {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+        1e20, 1e21, 1e22};
+
+    /**
+     * Parses a number from a range of this file's buffer, without creating any objects for typical DBase numbers.
+     * Numbers whose digits fit in a double's mantissa and whose scale is at most 22 decimal places are computed with
+     * a single correctly rounded division, and so have the same value as computed by {@link
+     * Double#parseDouble(String)}. Other numbers are passed to <code>Double.parseDouble</code>.
+     *
+     * @param position the position of the number's first byte.
+     * @param length   the number of bytes in the number.
+     *
+     * @return the number, or NaN if the range is empty, contains only spaces or asterisks, or is not a number.
+     */
+    protected double parseNumber(int position, int length)
+    {
+        int i = position;
+        int end = position + length;
+
+        while (i < end && this.buffer.get(i) == ' ')
+        {
+            i++;
+        }
+        while (end > i && this.buffer.get(end - 1) == ' ')
+        {
+            end--;
+        }
+
+        if (i == end || this.isFilled(i, end - i, (byte) 0x2A))
+            return Double.NaN;
+
+        boolean negative = false;
+        byte b = this.buffer.get(i);
+        if (b == '-' || b == '+')
+        {
+            negative = b == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int numDigits = 0;
+        int scale = 0;
+        boolean afterPoint = false;
+        for (int k = i; k < end; k++)
+        {
+            b = this.buffer.get(k);
+            if (b >= '0' && b <= '9' && mantissa < (1L << 53))
+            {
+                mantissa = 10 * mantissa + (b - '0');
+                numDigits++;
+                if (afterPoint)
+                    scale++;
+            }
+            else if (b == '.' && !afterPoint)
+            {
+                afterPoint = true;
+            }
+            else
+            {
+                return this.parseNumberSlowly(position, length);
+            }
+        }
+
+        if (numDigits == 0 || mantissa > (1L << 53) || scale >= POWERS_OF_TEN.length)
+            return this.parseNumberSlowly(position, length);
+
+        double value = mantissa / POWERS_OF_TEN[scale];
+
+        return negative ? -value : value;
+    }
+
+    protected double parseNumberSlowly(int position, int length)
+    {
+        byte[] bytes = new byte[length];
+        for (int k = 0; k < length; k++)
+        {
+            bytes[k] = this.buffer.get(position + k);
+        }
+
+        try
+        {
+            return Double.parseDouble(this.decodeString(bytes, length).trim());
+        }
+        catch (NumberFormatException e)
+        {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Parses an integer from a range of this file's buffer, without creating any objects for typical DBase integers.
+     * Numbers with a fractional part or exponent are parsed as doubles and truncated.
+     *
+     * @param position the position of the number's first byte.
+     * @param length   the number of bytes in the number.
+     *
+     * @return the integer, or {@link #MISSING_LONG} if the range is empty, contains only spaces or asterisks, or is not
+     *         a number.
+     */
+    protected long parseLong(int position, int length)
+    {
+        int i = position;
+        int end = position + length;
+
+        while (i < end && this.buffer.get(i) == ' ')
+        {
+            i++;
+        }
+        while (end > i && this.buffer.get(end - 1) == ' ')
+        {
+            end--;
+        }
+
+        if (i == end || this.isFilled(i, end - i, (byte) 0x2A))
+            return MISSING_LONG;
+
+        boolean negative = false;
+        byte b = this.buffer.get(i);
+        if (b == '-' || b == '+')
+        {
+            negative = b == '-';
+            i++;
+        }
+
+        if (i == end || end - i > 18)
+            return this.parseLongSlowly(position, length);
+
+        long value = 0;
+        for (int k = i; k < end; k++)
+        {
+            b = this.buffer.get(k);
+            if (b < '0' || b > '9')
+                return this.parseLongSlowly(position, length);
+
+            value = 10 * value + (b - '0');
+        }
+
+        return negative ? -value : value;
+    }
+
+    protected long parseLongSlowly(int position, int length)
+    {
+        double value = this.parseNumberSlowly(position, length);
+        return Double.isNaN(value) ? MISSING_LONG : (long) value;
+    }
+
+    protected boolean isFilled(int position, int length, byte fillValue)
+    {
+        for (int k = 0; k < length; k++)
+        {
+            if (this.buffer.get(position + k) != fillValue)
+                return false;
+        }
+
+        return true;
+    }
+
+    protected boolean trimmedBytesEqual(int position, int length, byte[] value)
+    {
+        while (length > 0 && (this.buffer.get(position) & 0xFF) <= 0x20)
+        {
+            position++;
+            length--;
+        }
+        while (length > 0 && (this.buffer.get(position + length - 1) & 0xFF) <= 0x20)
+        {
+            length--;
+        }
+
+        if (length != value.length)
+            return false;
+
+        for (int k = 0; k < length; k++)
+        {
+            if (this.buffer.get(position + k) != value[k])
+                return false;
+        }
+
+        return true;
+    }
+
+    protected boolean bytesEqual(int positionA, int lengthA, int positionB, int lengthB)
+    {
+        if (lengthA != lengthB)
+            return false;
+
+        for (int k = 0; k < lengthA; k++)
+        {
+            if (this.buffer.get(positionA + k) != this.buffer.get(positionB + k))
+                return false;
+        }
+
+        return true;
+    }
+
+    protected int hash(int position, int length)
+    {
+        int h = 0;
+        for (int k = 0; k < length; k++)
+        {
+            h = 31 * h + this.buffer.get(position + k);
+        }
+
+        return h ^ (h >>> 16);
+    }
+
+    protected int[] rehash(int[] table, int numValues, int[] valuePositions, int[] valueLengths)
+    {
+        int[] newTable = new int[2 * table.length];
+        Arrays.fill(newTable, -1);
+
+        for (int code = 0; code < numValues; code++)
+        {
+            int slot = this.hash(valuePositions[code], valueLengths[code]) & (newTable.length - 1);
+            while (newTable[slot] >= 0)
+            {
+                slot = (slot + 1) & (newTable.length - 1);
+            }
+
+            newTable[slot] = code;
+        }
+
+        return newTable;
+    }
+}
@@ -21,6 +21,7 @@ import java.net.*;
 import java.nio.*;
 import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.logging.Level;
 
 /**
@@ -166,6 +167,10 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
     protected ReadableByteChannel shxChannel;
     protected ReadableByteChannel prjChannel;
     protected DBaseFile attributeFile;
+    /** Selects the records returned by {@link #nextRecord()} when the attribute file is memory mapped. */
+    protected MappedDBaseFile.RecordFilter attributeFilter;
+    /** Selects the records returned by {@link #nextRecord()} when the Shapefile is memory mapped. */
+    protected Sector sectorFilter;
     protected boolean open;
     /**
      * Indicates if the shapefile's point coordinates should be normalized. Defaults to false. This is used by Point
@@ -178,6 +183,8 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
     protected ByteBuffer recordHeaderBuffer;
     protected ByteBuffer recordContentBuffer;
     protected MappedByteBuffer mappedShpBuffer;
+    /** The chunk of records being read by the current thread during {@link #nextRecords(int)}, if any. */
+    protected ThreadLocal<RecordChunk> currentChunk = new ThreadLocal<RecordChunk>();
 
     /**
      * Opens an Shapefile from a general source. The source type may be one of the following: <ul> <li>{@link
@@ -456,17 +463,72 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         return set;
     }
 
+    /**
+     * Returns the filter that selects the records returned by {@link #nextRecord()}.
+     *
+     * @return the record filter, or null if all records are returned.
+     */
+    public MappedDBaseFile.RecordFilter getAttributeFilter()
+    {
+        return this.attributeFilter;
+    }
+
+    /**
+     * Specifies a filter that selects the records returned by {@link #nextRecord()} according to their attributes.
+     * Records not selected by the filter are skipped without decoding either their shape or their attributes. The
+     * filter applies only when the Shapefile's attribute file is memory mapped, which is the case when the Shapefile is
+     * opened from a file. Otherwise the filter is ignored, and all records are returned.
+     *
+     * @param attributeFilter the record filter. May be null, in which case all records are returned.
+     *
+     * @see MappedDBaseFile#fieldEquals(String, String)
+     * @see MappedDBaseFile#fieldInRange(String, double, double)
+     */
+    public void setAttributeFilter(MappedDBaseFile.RecordFilter attributeFilter)
+    {
+        this.attributeFilter = attributeFilter;
+    }
+
+    /**
+     * Returns the sector that selects the records returned by {@link #nextRecord()}.
+     *
+     * @return the sector filter, or null if records are returned regardless of their location.
+     */
+    public Sector getSectorFilter()
+    {
+        return this.sectorFilter;
+    }
+
+    /**
+     * Specifies a sector that selects the records returned by {@link #nextRecord()} and {@link #nextRecords(int)}
+     * according to their location. Records whose bounding rectangle, or whose point for point records, does not
+     * intersect the sector are skipped without decoding their points or their attributes, as are null records. The
+     * sector filter applies only when the Shapefile is memory mapped, which is the case when the Shapefile is opened
+     * from a file. Otherwise the filter is ignored, and all records are returned.
+     *
+     * @param sectorFilter the sector filter. May be null, in which case records are returned regardless of their
+     *                     location.
+     */
+    public void setSectorFilter(Sector sectorFilter)
+    {
+        this.sectorFilter = sectorFilter;
+    }
+
     /**
      * Returns <code>true</code> if the Shapefile has a more records, and <code>false</code> if all records have been
      * read.
      *
      * @return <code>true</code> if the Shapefile has a more records; <code>false</code> otherwise.
+     *
+     * @throws WWRuntimeException if an exception occurs while skipping records not selected by the attribute filter.
      */
     public boolean hasNext()
     {
         if (!this.open || this.header == null)
             return false;
 
+        this.skipFilteredRecords();
+
         int contentLength = this.header.fileLength - HEADER_LENGTH;
         return this.numBytesRead < contentLength;
     }
@@ -506,6 +568,8 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
             throw new IllegalStateException(message);
         }
 
+        this.skipFilteredRecords();
+
         int contentLength = this.header.fileLength - HEADER_LENGTH;
         if (contentLength <= 0 || this.numBytesRead >= contentLength)
         {
@@ -531,6 +595,109 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         return record;
     }
 
+    /**
+     * Reads the Shapefile's remaining records using as many threads as there are processors available. See {@link
+     * #nextRecords(int)}.
+     *
+     * @return the Shapefile's remaining records, in the order they appear in the Shapefile.
+     *
+     * @throws IllegalStateException if the Shapefile is closed.
+     * @throws WWRuntimeException    if an exception occurs while reading the records.
+     */
+    public List<ShapefileRecord> nextRecords()
+    {
+        return this.nextRecords(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Reads the Shapefile's remaining records, and returns them in the order they appear in the Shapefile. The result
+     * is the same as calling {@link #nextRecord()} until {@link #hasNext()} returns false, except that records for
+     * which <code>nextRecord</code> would return null are omitted. The Shapefile has no more records when this
+     * returns.
+     * <p/>
+     * When the Shapefile is memory mapped and has an accompanying index file, the records are divided by their offsets
+     * in the index into contiguous ranges that are decoded concurrently by the specified number of threads. Each
+     * record's points remain in the mapped file, and the ranges are added to the Shapefile's point buffer in the order
+     * of the records, so that the point buffer and the record's part numbers do not depend on the number of threads.
+     * The attribute filter and the sector filter are applied before each record is decoded. Otherwise, the records are
+     * read sequentially.
+     *
+     * @param numThreads the number of threads to use.
+     *
+     * @return the Shapefile's remaining records, in the order they appear in the Shapefile.
+     *
+     * @throws IllegalArgumentException if the number of threads is less than 1.
+     * @throws IllegalStateException    if the Shapefile is closed.
+     * @throws WWRuntimeException       if an exception occurs while reading the records.
+     * @see #setAttributeFilter(gov.nasa.worldwind.formats.shapefile.MappedDBaseFile.RecordFilter)
+     * @see #setSectorFilter(gov.nasa.worldwind.geom.Sector)
+     */
+    public List<ShapefileRecord> nextRecords(int numThreads)
+    {
+        if (numThreads < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", numThreads);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (!this.open)
+        {
+            String message = Logging.getMessage("SHP.ShapefileClosed", this.getStringValue(AVKey.DISPLAY_NAME));
+            Logging.logger().severe(message);
+            throw new IllegalStateException(message);
+        }
+
+        ArrayList<ShapefileRecord> records = new ArrayList<ShapefileRecord>();
+
+        // Records can be read concurrently only if they and their attributes can be accessed by index.
+        if (this.mappedShpBuffer == null || this.index == null
+            || (this.attributeFile != null && !(this.attributeFile instanceof MappedDBaseFile)))
+        {
+            while (this.hasNext())
+            {
+                ShapefileRecord record = this.nextRecord();
+                if (record != null)
+                    records.add(record);
+            }
+
+            return records;
+        }
+
+        List<RecordChunk> chunks = this.createRecordChunks(this.numRecordsRead, this.getNumberOfRecords(),
+            numThreads);
+        this.readRecordChunks(chunks, numThreads);
+
+        // Merge the chunks in record order. Each chunk numbers its point blocks from 0, so the record's part numbers
+        // are offset by the number of blocks added by the chunks before it.
+        for (RecordChunk chunk : chunks)
+        {
+            VecBufferBlocks pointBlocks = this.getPointBlocks();
+            int firstPartNumber = pointBlocks.size();
+
+            for (int i = 0; i < chunk.numBlocks; i++)
+            {
+                pointBlocks.addBlock(chunk.blocks[2 * i], chunk.blocks[2 * i + 1]);
+            }
+
+            for (ShapefileRecord record : chunk.records)
+            {
+                if (record.firstPartNumber >= 0)
+                    record.firstPartNumber += firstPartNumber;
+            }
+
+            records.addAll(chunk.records);
+        }
+
+        // Move to the end of the Shapefile.
+        this.numRecordsRead = this.getNumberOfRecords();
+        this.numBytesRead = this.header.fileLength - HEADER_LENGTH;
+        this.mappedShpBuffer.position(Math.min(this.header.fileLength, this.mappedShpBuffer.limit()));
+
+        records.trimToSize();
+        return records;
+    }
+
     /**
      * Closes the Shapefile, freeing any resources allocated during reading except the buffer containing the Shapefile's
      * points. This closes any {@link java.io.InputStream} passed to the Shapefile during construction. Subsequent calls
@@ -655,7 +822,7 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         {
             try
             {
-                this.attributeFile = new DBaseFile(dbfFile);
+                this.attributeFile = new MappedDBaseFile(dbfFile);
             }
             catch (Exception e)
             {
@@ -1198,6 +1365,34 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
      * @throws IOException if the record cannot be read for any reason.
      */
     protected ShapefileRecord readNextRecord() throws IOException
+    {
+        ByteBuffer buffer = this.readNextRecordBuffer();
+
+        ShapefileRecord record;
+        try
+        {
+            record = this.readRecordFromBuffer(buffer);
+        }
+        finally
+        {
+            // Restore the mapped buffer's limit to its capacity.
+            if (this.mappedShpBuffer != null)
+                this.mappedShpBuffer.limit(this.mappedShpBuffer.capacity());
+        }
+
+        return record;
+    }
+
+    /**
+     * Reads the content of the next record of this Shapefile into a buffer, and advances past the record. The returned
+     * buffer is positioned at the start of the record and limited to the end of the record. When the Shapefile is
+     * memory mapped, the returned buffer is the mapped buffer, and its limit must be restored by the caller.
+     *
+     * @return a buffer containing the record's content.
+     *
+     * @throws IOException if the record cannot be read for any reason.
+     */
+    protected ByteBuffer readNextRecordBuffer() throws IOException
     {
         ByteBuffer buffer;
 
@@ -1222,19 +1417,7 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         }
         else
         {
-            // Allocate a buffer to hold the record header.
-            if (this.recordHeaderBuffer == null)
-                this.recordHeaderBuffer = ByteBuffer.allocate(ShapefileRecord.RECORD_HEADER_LENGTH);
-
-            // Read the header bytes.
-            this.recordHeaderBuffer.clear();
-            this.recordHeaderBuffer.order(ByteOrder.BIG_ENDIAN);
-            WWIO.readChannelToBuffer(this.shpChannel, this.recordHeaderBuffer);
-
-            // Read the record number and the content length.
-            //int recordNumber = this.recordHeaderBuffer.getInt(0);
-            int contentLength = this.recordHeaderBuffer.getInt(4) * 2;
-            int recordLength = ShapefileRecord.RECORD_HEADER_LENGTH + contentLength;
+            int recordLength = this.readRecordHeader();
 
             // Allocate a buffer to hold the record content.
             if (this.recordContentBuffer == null || this.recordContentBuffer.capacity() < recordLength)
@@ -1250,19 +1433,169 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
             buffer = this.recordContentBuffer;
         }
 
-        ShapefileRecord record;
+        return buffer;
+    }
+
+    /**
+     * Reads the header of the next record from the Shapefile's stream into the record header buffer.
+     *
+     * @return the length of the record in bytes, including its header.
+     *
+     * @throws IOException if the header cannot be read for any reason.
+     */
+    protected int readRecordHeader() throws IOException
+    {
+        // Allocate a buffer to hold the record header.
+        if (this.recordHeaderBuffer == null)
+            this.recordHeaderBuffer = ByteBuffer.allocate(ShapefileRecord.RECORD_HEADER_LENGTH);
+
+        // Read the header bytes.
+        this.recordHeaderBuffer.clear();
+        this.recordHeaderBuffer.order(ByteOrder.BIG_ENDIAN);
+        WWIO.readChannelToBuffer(this.shpChannel, this.recordHeaderBuffer);
+
+        // Read the record number and the content length.
+        //int recordNumber = this.recordHeaderBuffer.getInt(0);
+        int contentLength = this.recordHeaderBuffer.getInt(4) * 2;
+
+        return ShapefileRecord.RECORD_HEADER_LENGTH + contentLength;
+    }
+
+    /**
+     * Advances past the next record of this Shapefile without decoding it.
+     *
+     * @throws IOException if the record cannot be read for any reason.
+     */
+    protected void skipNextRecord() throws IOException
+    {
+        if (this.mappedShpBuffer != null)
+        {
+            int pos = this.mappedShpBuffer.position();
+            this.mappedShpBuffer.order(ByteOrder.BIG_ENDIAN);
+            int recordLength = ShapefileRecord.RECORD_HEADER_LENGTH + this.mappedShpBuffer.getInt(pos + 4) * 2;
+
+            this.mappedShpBuffer.position(pos + recordLength);
+            this.numBytesRead += recordLength;
+        }
+        else
+        {
+            // Streams can't be positioned, so read and discard the record's content.
+            this.readNextRecordBuffer();
+        }
+    }
+
+    /**
+     * Advances past the records not selected by this Shapefile's attribute filter or sector filter, so that the next
+     * record read is one selected by the filters. The attribute filter applies only if the attribute file is memory
+     * mapped, and the sector filter only if the Shapefile is memory mapped.
+     *
+     * @throws WWRuntimeException if an exception occurs while skipping a record.
+     */
+    protected void skipFilteredRecords()
+    {
+        boolean filterAttributes = this.attributeFilter != null && this.attributeFile instanceof MappedDBaseFile;
+        boolean filterSector = this.sectorFilter != null && this.mappedShpBuffer != null;
+        if (!filterAttributes && !filterSector)
+            return;
+
+        int contentLength = this.header.fileLength - HEADER_LENGTH;
+
         try
         {
-            record = this.readRecordFromBuffer(buffer);
+            while (this.numBytesRead < contentLength
+                && !this.isRecordSelected(this.numRecordsRead, this.mappedShpBuffer, this.mappedShpBuffer != null
+                ? this.mappedShpBuffer.position() : -1))
+            {
+                this.skipNextRecord();
+                this.numRecordsRead++;
+            }
         }
-        finally
+        catch (IOException e)
         {
-            // Restore the mapped buffer's limit to its capacity.
-            if (this.mappedShpBuffer != null)
-                this.mappedShpBuffer.limit(this.mappedShpBuffer.capacity());
+            String message = Logging.getMessage("SHP.ExceptionAttemptingToReadShapefileRecord",
+                this.getStringValue(AVKey.DISPLAY_NAME));
+            Logging.logger().log(Level.SEVERE, message, e);
+            throw new WWRuntimeException(message, e);
         }
+    }
 
-        return record;
+    /**
+     * Indicates whether a record is selected by this Shapefile's attribute filter and sector filter. The attribute
+     * filter applies only if the attribute file is memory mapped and contains the record, and the sector filter only if
+     * the record's content is available in the specified buffer.
+     *
+     * @param recordIndex the index of the record, beginning at 0.
+     * @param buffer      the buffer containing the record, or null if the record's content is not available.
+     * @param position    the position of the record's header in the buffer.
+     *
+     * @return true if the record is selected, otherwise false.
+     */
+    protected boolean isRecordSelected(int recordIndex, ByteBuffer buffer, int position)
+    {
+        if (this.attributeFilter != null && this.attributeFile instanceof MappedDBaseFile
+            && recordIndex < this.attributeFile.getNumberOfRecords()
+            && !this.attributeFilter.accept((MappedDBaseFile) this.attributeFile, recordIndex))
+        {
+            return false;
+        }
+
+        if (this.sectorFilter != null && buffer != null)
+        {
+            double[] rect = this.readRecordBoundingRectangle(buffer, position);
+            return rect != null
+                && rect[0] <= this.sectorFilter.getMaxLatitude().degrees
+                && rect[1] >= this.sectorFilter.getMinLatitude().degrees
+                && rect[2] <= this.sectorFilter.getMaxLongitude().degrees
+                && rect[3] >= this.sectorFilter.getMinLongitude().degrees;
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads the bounding rectangle of a record without reading the record's points. The bounding rectangle of a point
+     * record is its point. This does not change the buffer's position.
+     *
+     * @param buffer   the buffer containing the record.
+     * @param position the position of the record's header in the buffer.
+     *
+     * @return the record's bounding rectangle, ordered as follows: (minY, maxY, minX, maxX), or null if the record is a
+     *         null record or is not a recognized type.
+     */
+    protected double[] readRecordBoundingRectangle(ByteBuffer buffer, int position)
+    {
+        ByteBuffer recordBuffer = buffer.duplicate();
+        recordBuffer.order(ByteOrder.LITTLE_ENDIAN);
+        recordBuffer.position(position);
+        String shapeType = this.readRecordShapeType(recordBuffer);
+
+        // Move past the record number, the content length, and the shape type.
+        recordBuffer.position(position + ShapefileRecord.RECORD_HEADER_LENGTH + 4);
+
+        if (isPointType(shapeType))
+        {
+            DoubleBuffer point = DoubleBuffer.wrap(new double[] {recordBuffer.getDouble(), recordBuffer.getDouble()});
+
+            Object o = this.getValue(AVKey.COORDINATE_SYSTEM);
+            if (AVKey.COORDINATE_SYSTEM_GEOGRAPHIC.equals(o))
+            {
+                WWUtil.normalizeGeographicCoordinates(point);
+            }
+            else if (AVKey.COORDINATE_SYSTEM_PROJECTED.equals(o))
+            {
+                Integer zone = (Integer) this.getValue(AVKey.PROJECTION_ZONE);
+                String hemisphere = (String) this.getValue(AVKey.PROJECTION_HEMISPHERE);
+                WWUtil.convertUTMCoordinatesToGeographic(zone, hemisphere, point);
+            }
+
+            return new double[] {point.get(1), point.get(1), point.get(0), point.get(0)};
+        }
+        else if (isMultiPointType(shapeType) || isPolylineType(shapeType) || isPolygonType(shapeType))
+        {
+            return this.readBoundingRectangle(recordBuffer).coords;
+        }
+
+        return null;
     }
 
     /**
@@ -1282,8 +1615,15 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
 
         if (record != null)
         {
-            // Read the record's attribute data.
-            if (this.attributeFile != null && this.attributeFile.hasNext())
+            // Read the record's attribute data. The attributes of a memory mapped attribute file are read when they're
+            // first requested, and are found by the index of the record rather than by reading the attribute file in
+            // sequence.
+            if (this.attributeFile instanceof MappedDBaseFile)
+            {
+                if (this.numRecordsRead < this.attributeFile.getNumberOfRecords())
+                    record.setAttributes((MappedDBaseFile) this.attributeFile, this.numRecordsRead);
+            }
+            else if (this.attributeFile != null && this.attributeFile.hasNext())
             {
                 record.setAttributes(this.attributeFile.nextRecord());
             }
@@ -1490,6 +1830,206 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         }
     }
 
+    //**************************************************************//
+    //********************  Concurrent Record Reading  *************//
+    //**************************************************************//
+
+    /**
+     * A contiguous range of records read by one thread during {@link #nextRecords(int)}, and the records and point
+     * blocks read from that range. Point blocks are numbered from 0 within the chunk, and are added to the Shapefile's
+     * point buffer when the chunks are merged.
+     */
+    protected static class RecordChunk
+    {
+        /** The index of the chunk's first record. */
+        protected final int beginIndex;
+        /** The index following the chunk's last record. */
+        protected final int endIndex;
+        protected final ArrayList<ShapefileRecord> records = new ArrayList<ShapefileRecord>();
+        /** The byte range of each point block, as begin and end positions in the mapped Shapefile. */
+        protected int[] blocks = new int[32];
+        protected int numBlocks;
+
+        public RecordChunk(int beginIndex, int endIndex)
+        {
+            this.beginIndex = beginIndex;
+            this.endIndex = endIndex;
+        }
+
+        /**
+         * Adds a point block to this chunk.
+         *
+         * @param beginPos the position of the block's first byte in the mapped Shapefile.
+         * @param endPos   the position of the block's last byte in the mapped Shapefile.
+         *
+         * @return the block's number within this chunk.
+         */
+        public int addBlock(int beginPos, int endPos)
+        {
+            if (2 * this.numBlocks == this.blocks.length)
+                this.blocks = Arrays.copyOf(this.blocks, 2 * this.blocks.length);
+
+            this.blocks[2 * this.numBlocks] = beginPos;
+            this.blocks[2 * this.numBlocks + 1] = endPos;
+
+            return this.numBlocks++;
+        }
+    }
+
+    /**
+     * Divides a range of records into contiguous chunks holding about the same number of bytes. Several chunks are
+     * created per thread so that threads finishing early can take on remaining chunks.
+     *
+     * @param beginIndex the index of the first record.
+     * @param endIndex   the index following the last record.
+     * @param numThreads the number of threads that will read the chunks.
+     *
+     * @return the chunks, in record order.
+     */
+    protected List<RecordChunk> createRecordChunks(int beginIndex, int endIndex, int numThreads)
+    {
+        ArrayList<RecordChunk> chunks = new ArrayList<RecordChunk>();
+        int numRecords = endIndex - beginIndex;
+        if (numRecords <= 0)
+            return chunks;
+
+        int numChunks = Math.min(numRecords, numThreads > 1 ? 4 * numThreads : 1);
+        long beginOffset = this.index[2 * beginIndex];
+        double bytesPerChunk = (this.header.fileLength - beginOffset) / (double) numChunks;
+
+        int chunkBegin = beginIndex;
+        for (int c = 1; c <= numChunks && chunkBegin < endIndex; c++)
+        {
+            int chunkEnd = chunkBegin + 1;
+            if (c == numChunks)
+            {
+                chunkEnd = endIndex;
+            }
+            else
+            {
+                double endOffset = beginOffset + c * bytesPerChunk;
+                while (chunkEnd < endIndex && this.index[2 * chunkEnd] < endOffset)
+                {
+                    chunkEnd++;
+                }
+            }
+
+            chunks.add(new RecordChunk(chunkBegin, chunkEnd));
+            chunkBegin = chunkEnd;
+        }
+
+        return chunks;
+    }
+
+    /**
+     * Reads chunks of records using a specified number of threads. If more than one thread is requested, this creates
+     * a pool of threads that is shut down when all the chunks have been read.
+     *
+     * @param chunks     the chunks to read.
+     * @param numThreads the number of threads to use.
+     *
+     * @throws WWRuntimeException if an exception occurs while reading any of the chunks, or if the calling thread is
+     *                            interrupted.
+     */
+    protected void readRecordChunks(List<RecordChunk> chunks, int numThreads)
+    {
+        if (numThreads == 1 || chunks.size() <= 1)
+        {
+            for (RecordChunk chunk : chunks)
+            {
+                this.readRecordChunk(chunk);
+            }
+
+            return;
+        }
+
+        ExecutorService executor = WWUtil.newDaemonThreadPool(Math.min(numThreads, chunks.size()), "Shapefile");
+
+        try
+        {
+            ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>(chunks.size());
+            for (final RecordChunk chunk : chunks)
+            {
+                tasks.add(new Callable<Void>()
+                {
+                    public Void call() throws Exception
+                    {
+                        readRecordChunk(chunk);
+                        return null;
+                    }
+                });
+            }
+
+            for (Future<Void> future : executor.invokeAll(tasks))
+            {
+                future.get();
+            }
+        }
+        catch (ExecutionException e)
+        {
+            String message = Logging.getMessage("SHP.ExceptionAttemptingToReadShapefileRecord",
+                this.getStringValue(AVKey.DISPLAY_NAME));
+            Logging.logger().log(Level.SEVERE, message, e.getCause());
+            throw new WWRuntimeException(message, e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            String message = Logging.getMessage("SHP.ExceptionAttemptingToReadShapefileRecord",
+                this.getStringValue(AVKey.DISPLAY_NAME));
+            throw new WWRuntimeException(message, e);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the records of a chunk from the mapped Shapefile, skipping the records not selected by the attribute filter
+     * or the sector filter. Each record's points are converted in place in the mapped Shapefile, and the point blocks
+     * are added to the chunk rather than to the Shapefile's point buffer. This may be called concurrently for
+     * different chunks.
+     *
+     * @param chunk the chunk to read.
+     */
+    protected void readRecordChunk(RecordChunk chunk)
+    {
+        // A buffer independent of the mapped buffer's position and limit, and of those used by other threads.
+        ByteBuffer buffer = this.mappedShpBuffer.duplicate();
+        this.currentChunk.set(chunk);
+        try
+        {
+            for (int i = chunk.beginIndex; i < chunk.endIndex; i++)
+            {
+                int pos = this.index[2 * i];
+                int recordLength = ShapefileRecord.RECORD_HEADER_LENGTH + this.index[2 * i + 1];
+
+                if (!this.isRecordSelected(i, buffer, pos))
+                    continue;
+
+                buffer.limit(pos + recordLength);
+                buffer.position(pos);
+                ShapefileRecord record = this.createRecord(buffer);
+                buffer.clear();
+
+                if (record == null)
+                    continue;
+
+                if (this.attributeFile != null && i < this.attributeFile.getNumberOfRecords())
+                    record.setAttributes((MappedDBaseFile) this.attributeFile, i);
+
+                chunk.records.add(record);
+            }
+
+            chunk.records.trimToSize();
+        }
+        finally
+        {
+            this.currentChunk.remove();
+        }
+    }
+
     //**************************************************************//
     //********************  Point Data  ****************************//
     //**************************************************************//
@@ -1527,21 +2067,16 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
             buffer.position(limit);
         }
 
-        // Add the point data to the Shapefile's internal point buffer.
+        // Add the point data to the Shapefile's internal point buffer. When records are read concurrently, the point's
+        // byte range is added to the chunk being read, and is added to the point buffer when the chunks are merged.
         if (this.mappedShpBuffer != null)
         {
-            if (this.pointBuffer == null)
-            {
-                // Create a VecBufferBlocks to hold this Shapefile's point data. Shapefile points are 2-tuples stored in
-                // IEEE 64-bit floating point format, in little endian byte order.
-                ByteBuffer buf = this.mappedShpBuffer.duplicate();
-                buf.order(ByteOrder.LITTLE_ENDIAN);
-                buf.clear();
-                this.pointBuffer = new VecBufferBlocks(2, AVKey.FLOAT64, buf);
-            }
+            RecordChunk chunk = this.currentChunk.get();
+            if (chunk != null)
+                return chunk.addBlock(pos, limit - 1);
 
             // Add the point's byte range to the VecBufferBlocks.
-            return ((VecBufferBlocks) this.pointBuffer).addBlock(pos, limit - 1);
+            return this.getPointBlocks().addBlock(pos, limit - 1);
         }
         else
         {
@@ -1573,6 +2108,26 @@ public class Shapefile extends AVListImpl implements Closeable, Exportable
         }
     }
 
+    /**
+     * Returns the point buffer of a memory mapped Shapefile, creating it if necessary.
+     *
+     * @return the point buffer, which refers to the point data in the mapped Shapefile.
+     */
+    protected VecBufferBlocks getPointBlocks()
+    {
+        if (this.pointBuffer == null)
+        {
+            // Create a VecBufferBlocks to hold this Shapefile's point data. Shapefile points are 2-tuples stored in
+            // IEEE 64-bit floating point format, in little endian byte order.
+            ByteBuffer buf = this.mappedShpBuffer.duplicate();
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            buf.clear();
+            this.pointBuffer = new VecBufferBlocks(2, AVKey.FLOAT64, buf);
+        }
+
+        return (VecBufferBlocks) this.pointBuffer;
+    }
+
     /**
      * Estimate the number of points in a shapefile.
      *
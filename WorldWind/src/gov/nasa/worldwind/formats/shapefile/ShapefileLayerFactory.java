@@ -92,6 +92,8 @@ public class ShapefileLayerFactory implements Factory, ShapefileRenderable.Attri
     protected PointPlacemarkAttributes normalPointAttributes;
     protected PointPlacemarkAttributes highlightPointAttributes;
     protected ShapefileRenderable.AttributeDelegate attributeDelegate;
+    protected MappedDBaseFile.RecordFilter attributeFilter;
+    protected Sector sectorFilter;
 
     /**
      * Indicates the mappings between shapefile attribute names and av-list keys attached to created shapes.
@@ -220,6 +222,52 @@ public class ShapefileLayerFactory implements Factory, ShapefileRenderable.Attri
         this.attributeDelegate = attributeDelegate;
     }
 
+    /**
+     * Indicates the filter that selects the shapefile records this factory creates shapes for.
+     *
+     * @return The record filter, or null if shapes are created for all records.
+     */
+    public MappedDBaseFile.RecordFilter getAttributeFilter()
+    {
+        return this.attributeFilter;
+    }
+
+    /**
+     * Specifies a filter that selects the shapefile records this factory creates shapes for, according to the records'
+     * DBase attributes. Records not selected by the filter are skipped without being decoded. The filter applies only
+     * to shapefiles opened from a file, whose attributes are memory mapped. See {@link
+     * Shapefile#setAttributeFilter(gov.nasa.worldwind.formats.shapefile.MappedDBaseFile.RecordFilter)}.
+     *
+     * @param attributeFilter The record filter. May be null, in which case shapes are created for all records.
+     */
+    public void setAttributeFilter(MappedDBaseFile.RecordFilter attributeFilter)
+    {
+        this.attributeFilter = attributeFilter;
+    }
+
+    /**
+     * Indicates the sector that selects the shapefile records this factory creates shapes for.
+     *
+     * @return The sector filter, or null if shapes are created regardless of the records' location.
+     */
+    public Sector getSectorFilter()
+    {
+        return this.sectorFilter;
+    }
+
+    /**
+     * Specifies a sector that selects the shapefile records this factory creates shapes for. Records that do not
+     * intersect the sector are skipped without being decoded. The filter applies only to shapefiles opened from a file.
+     * See {@link Shapefile#setSectorFilter(gov.nasa.worldwind.geom.Sector)}.
+     *
+     * @param sectorFilter The sector filter. May be null, in which case shapes are created regardless of the records'
+     *                     location.
+     */
+    public void setSectorFilter(Sector sectorFilter)
+    {
+        this.sectorFilter = sectorFilter;
+    }
+
     /**
      * Applies this factory's DBase attribute mapping and default rendering attributes to the specified records. If an
      * attribute delegate has been specified using {@link #setAttributeDelegate(gov.nasa.worldwind.formats.shapefile.ShapefileRenderable.AttributeDelegate)},
@@ -560,6 +608,11 @@ public class ShapefileLayerFactory implements Factory, ShapefileRenderable.Attri
 
     protected void assembleShapefileLayer(Shapefile shp, RenderableLayer layer)
     {
+        if (this.attributeFilter != null)
+            shp.setAttributeFilter(this.attributeFilter);
+        if (this.sectorFilter != null)
+            shp.setSectorFilter(this.sectorFilter);
+
         this.addRenderablesForShapefile(shp, layer);
         this.addPropertiesForShapefile(shp, layer);
     }
@@ -331,7 +331,7 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
         if (!WorldWind.getMemoryCacheSet().containsCache(ShapefileGeometry.class.getName()))
         {
             long size = Configuration.getLongValue(AVKey.SHAPEFILE_GEOMETRY_CACHE_SIZE, (long) 50e6); // default 50MB
-            MemoryCache cache = new BasicMemoryCache((long) (0.8 * size), size);
+            MemoryCache cache = WorldWind.getMemoryCacheSet().createMemoryCache((long) (0.8 * size), size);
             cache.setName("Shapefile Geometry");
             WorldWind.getMemoryCacheSet().addCache(ShapefileGeometry.class.getName(), cache);
         }
@@ -342,7 +342,7 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
     protected double detailHintOrigin = 2.8;
     protected int outlinePickWidth = 10;
     // Properties supporting shapefile tile assembly and tessellation.
-    protected BasicQuadTree<Record> recordTree;
+    protected SpatialIndex<Record> recordTree;
     protected ArrayList<ShapefileTile> topLevelTiles = new ArrayList<ShapefileTile>();
     protected ArrayList<ShapefileTile> currentTiles = new ArrayList<ShapefileTile>();
     protected ShapefileTile currentAncestorTile;
@@ -415,10 +415,13 @@ public class ShapefilePolygons extends ShapefileRenderable implements OrderedRen
     @Override
     protected void assembleRecords(Shapefile shapefile)
     {
-        // Store the shapefile records in a quad tree with eight levels. This depth provides fast access to records in
-        // regions much smaller than the shapefile's sector while avoiding a lot of overhead in building the quad tree.
-        this.recordTree = new BasicQuadTree<Record>(8, this.sector, null);
+        // Store the shapefile records in a packed R-tree. Each record is held once regardless of its extent, and the
+        // tree is bulk loaded after all records are assembled, which is much faster than inserting records one at a
+        // time into a quad tree and provides fast access to records in regions much smaller than the shapefile's sector.
+        PackedRTree<Record> tree = new PackedRTree<Record>();
+        this.recordTree = tree;
         super.assembleRecords(shapefile);
+        tree.pack();
     }
 
     @Override
@@ -27,6 +27,9 @@ public abstract class ShapefileRecord
     protected int contentLengthInBytes;
     protected String shapeType;
     protected DBaseRecord attributes;
+    /** The memory mapped attribute file the record's attributes are read from when first requested. */
+    protected MappedDBaseFile attributeSource;
+    protected int attributeIndex;
     protected int numberOfParts;
     protected int numberOfPoints;
     protected int firstPartNumber;
@@ -112,12 +115,19 @@ public abstract class ShapefileRecord
     }
 
     /**
-     * Returns the record's attributes.
+     * Returns the record's attributes. Attributes specified by {@link #setAttributes(MappedDBaseFile, int)} are read
+     * from their file the first time this method is called.
      *
      * @return the record's attributes.
      */
     public DBaseRecord getAttributes()
     {
+        if (this.attributes == null && this.attributeSource != null)
+        {
+            this.attributes = this.attributeSource.getRecord(this.attributeIndex);
+            this.attributeSource = null;
+        }
+
         return this.attributes;
     }
 
@@ -129,6 +139,30 @@ public abstract class ShapefileRecord
     public void setAttributes(DBaseRecord attributes)
     {
         this.attributes = attributes;
+        this.attributeSource = null;
+    }
+
+    /**
+     * Specifies the record's attributes as a record of a memory mapped attribute file. The attributes are not read
+     * until they're requested by {@link #getAttributes()}.
+     *
+     * @param attributeSource the file containing the record's attributes.
+     * @param attributeIndex  the index of the record's attributes in the file, beginning at 0.
+     *
+     * @throws IllegalArgumentException if the file is null.
+     */
+    public void setAttributes(MappedDBaseFile attributeSource, int attributeIndex)
+    {
+        if (attributeSource == null)
+        {
+            String message = Logging.getMessage("nullValue.DBaseFileIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.attributes = null;
+        this.attributeSource = attributeSource;
+        this.attributeIndex = attributeIndex;
     }
 
     /**
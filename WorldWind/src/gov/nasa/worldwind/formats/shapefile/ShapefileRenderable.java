@@ -228,10 +228,9 @@ public abstract class ShapefileRenderable extends WWObjectImpl
     {
         this.records = new ArrayList<ShapefileRenderable.Record>();
 
-        while (shapefile.hasNext())
+        // Read the records concurrently when the shapefile supports it.
+        for (ShapefileRecord shapefileRecord : shapefile.nextRecords())
         {
-            ShapefileRecord shapefileRecord = shapefile.nextRecord();
-
             if (this.mustAssembleRecord(shapefileRecord))
             {
                 this.assembleRecord(shapefileRecord);
@@ -8,6 +8,7 @@ package gov.nasa.worldwind.formats.tiff;
 
 import gov.nasa.worldwind.Disposable;
 import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.cache.BasicMemoryCache;
 import gov.nasa.worldwind.data.*;
 import gov.nasa.worldwind.formats.worldfile.WorldFile;
 import gov.nasa.worldwind.geom.*;
@@ -27,16 +28,63 @@ import java.util.ArrayList;
  */
 public class GeotiffReader implements Disposable
 {
+    private static final int BIG_TIFF_MAGIC = 43;
+
+    // Parsed IFDs and metadata are cached by file, so that readers opened on the same file, such as one per window
+    // read, don't read and parse the IFDs again. IFDs larger than a quarter of the cache are not cached.
+    private static final long PARSED_HEADER_CACHE_SIZE = 1L << 25;
+    private static final BasicMemoryCache parsedHeaders = new BasicMemoryCache(
+        (long) (0.8 * PARSED_HEADER_CACHE_SIZE), PARSED_HEADER_CACHE_SIZE);
+
+    /** A file's parsed IFDs and the metadata of its images, which are not modified once parsed. */
+    private static class ParsedHeaders
+    {
+        private final ByteOrder byteOrder;
+        private final boolean bigTiff;
+        private final ArrayList<TiffIFDEntry[]> tiffIFDs;
+        private final ArrayList<AVList> metadata;
+
+        private ParsedHeaders(ByteOrder byteOrder, boolean bigTiff, ArrayList<TiffIFDEntry[]> tiffIFDs,
+            ArrayList<AVList> metadata)
+        {
+            this.byteOrder = byteOrder;
+            this.bigTiff = bigTiff;
+            this.tiffIFDs = tiffIFDs;
+            this.metadata = metadata;
+        }
+
+        private long getSizeInBytes()
+        {
+            long size = 0;
+            for (TiffIFDEntry[] ifd : this.tiffIFDs)
+            {
+                for (TiffIFDEntry entry : ifd)
+                {
+                    ByteBuffer data = entry.getData();
+                    size += 32 + (data != null ? data.capacity() : 0);
+                }
+            }
+
+            // Allow for the metadata of each image.
+            return size + 1024 * this.metadata.size();
+        }
+    }
+
     private TIFFReader tiffReader = null;
 
     private String sourceFilename;
     private RandomAccessFile sourceFile;
     private FileChannel theChannel;
+    // Identifies the file's contents to the caches of parsed headers and of decoded strips and tiles.
+    private String sourceKey;
 
     private GeoCodec gc = new GeoCodec();
 
     private ArrayList<TiffIFDEntry[]> tiffIFDs = null;
     private ArrayList<AVList> metadata = null;
+    // BigTIFF files have 64-bit offsets and counts.
+    private boolean bigTiff = false;
+    private int decodeThreadPoolSize = Runtime.getRuntime().availableProcessors();
 
     public GeotiffReader(String sourceFilename) throws IOException
     {
@@ -44,6 +92,9 @@ public class GeotiffReader implements Disposable
         this.sourceFile = new RandomAccessFile(sourceFilename, "r");
         this.theChannel = this.sourceFile.getChannel();
 
+        File file = new File(sourceFilename);
+        this.sourceKey = file.getAbsolutePath() + "#" + file.lastModified() + "#" + file.length();
+
         this.tiffReader = new TIFFReader(this.theChannel);
 
         readTiffHeaders();
@@ -114,6 +165,22 @@ public class GeotiffReader implements Disposable
         return (values.hasKey(AVKey.HEIGHT)) ? (Integer) values.getValue(AVKey.HEIGHT) : 0;
     }
 
+    /**
+     * Indicates whether an image is a reduced-resolution version of another image in the file, such as an overview.
+     * Reduced-resolution images follow the image they reduce, and cover the same sector.
+     *
+     * @param imageIndex the index of the image.
+     *
+     * @return true if the image is a reduced-resolution image, otherwise false.
+     *
+     * @throws IOException if the image index is out of range.
+     */
+    public boolean isReducedResolution(int imageIndex) throws IOException
+    {
+        checkImageIndex(imageIndex);
+        return imageIndex > 0 && isReducedResolution(this.tiffIFDs.get(imageIndex));
+    }
+
     public DataRaster[] readDataRaster() throws IOException
     {
         int num = this.getNumImages();
@@ -137,6 +204,231 @@ public class GeotiffReader implements Disposable
         return this.doRead(imageIndex);
     }
 
+    /**
+     * Reads a window of an image. Only the strips or tiles the window intersects are read and decoded, so a small window
+     * of a large image is read quickly, in little memory. Tiled and striped images, compressed with LZW, Deflate or
+     * PackBits or not, can be read.
+     * <p/>
+     * The raster's sector is the window's part of the image's sector when the image is in a geographic coordinate
+     * system. See {@link #computeWindowSector(gov.nasa.worldwind.avlist.AVList, java.awt.Rectangle)}.
+     *
+     * @param imageIndex the index of the image to read.
+     * @param window     the window to read, in pixels. It must lie within the image.
+     *
+     * @return the window's raster.
+     *
+     * @throws IOException              if the image can't be read.
+     * @throws IllegalArgumentException if the window is null or does not lie within the image.
+     */
+    public DataRaster readDataRaster(int imageIndex, Rectangle window) throws IOException
+    {
+        if (window == null)
+        {
+            String message = Logging.getMessage("nullValue.RectangleIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        checkImageIndex(imageIndex);
+        return this.doReadWindow(imageIndex, window);
+    }
+
+    /**
+     * Reads the part of an image covering a sector, as {@link #readDataRaster(int, java.awt.Rectangle)} does. The whole
+     * image is read if its part can't be determined because the image is not in a geographic coordinate system.
+     *
+     * @param imageIndex the index of the image to read.
+     * @param sector     the sector to read.
+     *
+     * @return a raster covering the part of the sector the image covers, or null if the image does not intersect the
+     *         sector.
+     *
+     * @throws IOException              if the image can't be read.
+     * @throws IllegalArgumentException if the sector is null.
+     */
+    public DataRaster readDataRaster(int imageIndex, Sector sector) throws IOException
+    {
+        if (sector == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        checkImageIndex(imageIndex);
+
+        Rectangle window = computeWindow(this.metadata.get(imageIndex), sector);
+        if (window == null)
+            return this.doRead(imageIndex);
+
+        return !window.isEmpty() ? this.doReadWindow(imageIndex, window) : null;
+    }
+
+    /**
+     * Returns the maximum number of threads, including the reading thread, that decode a window's strips or tiles.
+     *
+     * @return the number of decoding threads.
+     */
+    public int getDecodeThreadPoolSize()
+    {
+        return this.decodeThreadPoolSize;
+    }
+
+    /**
+     * Specifies the maximum number of threads, including the reading thread, that decode a window's strips or tiles.
+     * The threads other than the reading thread come from a pool shared by all readers, with a thread per available
+     * processor. The default is the number of available processors.
+     *
+     * @param size the number of decoding threads.
+     *
+     * @throws IllegalArgumentException if the size is less than 1.
+     */
+    public void setDecodeThreadPoolSize(int size)
+    {
+        if (size < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "size < 1");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.decodeThreadPoolSize = size;
+    }
+
+    /**
+     * Computes the window of an image covering a sector, with a pixel's margin for interpolation. The window can be
+     * computed only for images in a geographic coordinate system.
+     * <p/>
+     * Elevation images are treated as grids of points spanning the image's sector, and other images as grids of areas
+     * dividing the sector, as {@link ByteBufferRaster} and {@link BufferedImageRaster} treat them.
+     *
+     * @param metadata the image's metadata, with its width, height and sector.
+     * @param sector   the sector to cover.
+     *
+     * @return the window, which is empty if the image does not intersect the sector, or null if the image is not in a
+     *         geographic coordinate system.
+     *
+     * @throws IllegalArgumentException if the metadata or sector is null.
+     */
+    public static Rectangle computeWindow(AVList metadata, Sector sector)
+    {
+        if (metadata == null)
+        {
+            String message = Logging.getMessage("nullValue.AVListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (sector == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        Sector imageSector = getGeographicSector(metadata);
+        if (null == imageSector)
+            return null;
+
+        int width = (Integer) metadata.getValue(AVKey.WIDTH);
+        int height = (Integer) metadata.getValue(AVKey.HEIGHT);
+        Sector overlap = imageSector.intersection(sector);
+        if (null == overlap)
+            return new Rectangle();
+
+        int pointOffset = isPixelIsPoint(metadata) ? 1 : 0;
+        double xScale = (width - pointOffset) / imageSector.getDeltaLonDegrees();
+        double yScale = (height - pointOffset) / imageSector.getDeltaLatDegrees();
+
+        double minLon = imageSector.getMinLongitude().degrees;
+        double maxLat = imageSector.getMaxLatitude().degrees;
+        int x0 = Math.max((int) Math.floor((overlap.getMinLongitude().degrees - minLon) * xScale) - 1, 0);
+        int x1 = Math.min((int) Math.ceil((overlap.getMaxLongitude().degrees - minLon) * xScale) + 2, width);
+        int y0 = Math.max((int) Math.floor((maxLat - overlap.getMaxLatitude().degrees) * yScale) - 1, 0);
+        int y1 = Math.min((int) Math.ceil((maxLat - overlap.getMinLatitude().degrees) * yScale) + 2, height);
+
+        if (x1 <= x0 || y1 <= y0)
+            return new Rectangle();
+
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0);
+    }
+
+    /**
+     * Computes the sector of a window of an image, treating the image's pixels as {@link #computeWindow(AVList,
+     * Sector)} does.
+     *
+     * @param metadata the image's metadata, with its width, height and sector.
+     * @param window   the window, in pixels.
+     *
+     * @return the window's sector, or null if the window is not the whole image and the image is not in a geographic
+     *         coordinate system.
+     *
+     * @throws IllegalArgumentException if the metadata or window is null.
+     */
+    public static Sector computeWindowSector(AVList metadata, Rectangle window)
+    {
+        if (metadata == null)
+        {
+            String message = Logging.getMessage("nullValue.AVListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (window == null)
+        {
+            String message = Logging.getMessage("nullValue.RectangleIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        Object o = metadata.getValue(AVKey.SECTOR);
+        if (o instanceof Sector && window.x == 0 && window.y == 0
+            && Integer.valueOf(window.width).equals(metadata.getValue(AVKey.WIDTH))
+            && Integer.valueOf(window.height).equals(metadata.getValue(AVKey.HEIGHT)))
+        {
+            return (Sector) o;
+        }
+
+        Sector imageSector = getGeographicSector(metadata);
+        if (null == imageSector)
+            return null;
+
+        int width = (Integer) metadata.getValue(AVKey.WIDTH);
+        int height = (Integer) metadata.getValue(AVKey.HEIGHT);
+        int pointOffset = isPixelIsPoint(metadata) ? 1 : 0;
+        double dLon = imageSector.getDeltaLonDegrees() / (width - pointOffset);
+        double dLat = imageSector.getDeltaLatDegrees() / (height - pointOffset);
+
+        double minLon = imageSector.getMinLongitude().degrees;
+        double maxLat = imageSector.getMaxLatitude().degrees;
+        return Sector.fromDegrees(
+            maxLat - (window.y + window.height - pointOffset) * dLat, maxLat - window.y * dLat,
+            minLon + window.x * dLon, minLon + (window.x + window.width - pointOffset) * dLon);
+    }
+
+    private static Sector getGeographicSector(AVList metadata)
+    {
+        Object sector = metadata.getValue(AVKey.SECTOR);
+        Object width = metadata.getValue(AVKey.WIDTH);
+        Object height = metadata.getValue(AVKey.HEIGHT);
+        if (!(sector instanceof Sector) || !(width instanceof Integer) || !(height instanceof Integer)
+            || AVKey.COORDINATE_SYSTEM_PROJECTED.equals(metadata.getValue(AVKey.COORDINATE_SYSTEM)))
+            return null;
+
+        // A grid of points needs two in each direction to span its sector.
+        int minSize = isPixelIsPoint(metadata) ? 2 : 1;
+        if ((Integer) width < minSize || (Integer) height < minSize || ((Sector) sector).getDeltaLonDegrees() <= 0
+            || ((Sector) sector).getDeltaLatDegrees() <= 0)
+            return null;
+
+        return (Sector) sector;
+    }
+
+    private static boolean isPixelIsPoint(AVList metadata)
+    {
+        return AVKey.ELEVATION.equals(metadata.getValue(AVKey.PIXEL_FORMAT));
+    }
+
     public BufferedImage read() throws IOException
     {
         return this.read(0);
@@ -224,6 +516,14 @@ public class GeotiffReader implements Disposable
             throw new IOException(msg);
         }
 
+        // Tiled and compressed images are read as a window covering the whole image.
+        TiffIFDEntry compressionEntry = getByTag(ifd, Tiff.Tag.COMPRESSION);
+        if (getByTag(ifd, Tiff.Tag.TILE_WIDTH) != null
+            || (compressionEntry != null && compressionEntry.asLong() != Tiff.Compression.NONE))
+        {
+            return this.doReadWindow(imageIndex, new Rectangle(0, 0, tiff.width, tiff.height));
+        }
+
         if (tiff.rowsPerStrip <= Tiff.Undefined)
         {
             String msg = Logging.getMessage("GeotiffReader.InvalidIFDEntryValue", tiff.rowsPerStrip,
@@ -554,6 +854,137 @@ public class GeotiffReader implements Disposable
         throw new IOException(message);
     }
 
+    protected DataRaster doReadWindow(int imageIndex, Rectangle window) throws IOException
+    {
+        AVList values = this.metadata.get(imageIndex);
+        TiffIFDEntry[] ifd = this.tiffIFDs.get(imageIndex);
+
+        BaselineTiff tiff = BaselineTiff.extract(ifd, this.tiffReader);
+        if (null == tiff)
+        {
+            String message = Logging.getMessage("GeotiffReader.BadGeotiff");
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        TIFFWindowReader windowReader = new TIFFWindowReader(this.theChannel, this.tiffReader.getByteOrder(), ifd,
+            tiff, this.sourceKey);
+        byte[] samples = windowReader.read(window, this.decodeThreadPoolSize);
+        int bytesPerSample = tiff.bitsPerSample[0] / Byte.SIZE;
+
+        AVList params = values.copy();
+        params.setValue(AVKey.WIDTH, window.width);
+        params.setValue(AVKey.HEIGHT, window.height);
+        Sector sector = computeWindowSector(values, window);
+        if (null != sector)
+            params.setValue(AVKey.SECTOR, sector);
+        else
+            params.removeKey(AVKey.SECTOR);
+
+        if (values.getValue(AVKey.PIXEL_FORMAT) == AVKey.ELEVATION)
+        {
+            Object dataType = values.getValue(AVKey.DATA_TYPE);
+            int size = (dataType == AVKey.INT8) ? 1 : (dataType == AVKey.INT16) ? 2
+                : (dataType == AVKey.INT32 || dataType == AVKey.FLOAT32) ? 4 : 0;
+            if (size != bytesPerSample)
+            {
+                String message = Logging.getMessage("Geotiff.UnsupportedDataTypeRaster", tiff.toString());
+                Logging.logger().severe(message);
+                throw new IOException(message);
+            }
+
+            // The samples are big-endian.
+            params.setValue(AVKey.BYTE_ORDER, AVKey.BIG_ENDIAN);
+            ByteBuffer buffer = ByteBuffer.wrap(getFirstSamples(samples, tiff.samplesPerPixel, bytesPerSample));
+            ByteBufferRaster raster = new ByteBufferRaster(window.width, window.height, sector, buffer, params);
+
+            ElevationsUtil.rectify(raster);
+
+            return raster;
+        }
+
+        BufferedImage image = null;
+
+        if (values.getValue(AVKey.PIXEL_FORMAT) == AVKey.IMAGE
+            && values.getValue(AVKey.IMAGE_COLOR_FORMAT) == AVKey.GRAYSCALE)
+        {
+            byte[] gray = getFirstSamples(samples, tiff.samplesPerPixel, bytesPerSample);
+
+            if (values.getValue(AVKey.DATA_TYPE) == AVKey.INT8 && bytesPerSample == 1)
+            {
+                image = new BufferedImage(window.width, window.height, BufferedImage.TYPE_BYTE_GRAY);
+                byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+                System.arraycopy(gray, 0, data, 0, data.length);
+            }
+            else if (values.getValue(AVKey.DATA_TYPE) == AVKey.INT16 && bytesPerSample == 2)
+            {
+                image = new BufferedImage(window.width, window.height, BufferedImage.TYPE_USHORT_GRAY);
+                short[] data = ((DataBufferUShort) image.getRaster().getDataBuffer()).getData();
+                ByteBuffer.wrap(gray).asShortBuffer().get(data);
+            }
+        }
+        else if (values.getValue(AVKey.PIXEL_FORMAT) == AVKey.IMAGE
+            && values.getValue(AVKey.IMAGE_COLOR_FORMAT) == AVKey.COLOR && bytesPerSample == 1)
+        {
+            if (tiff.photometric == Tiff.Photometric.Color_RGB
+                && (tiff.samplesPerPixel == Tiff.SamplesPerPixel.RGB
+                || tiff.samplesPerPixel == Tiff.SamplesPerPixel.RGBA))
+            {
+                boolean hasAlpha = tiff.samplesPerPixel == Tiff.SamplesPerPixel.RGBA;
+                ColorModel colorModel = new ComponentColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+                    tiff.bitsPerSample, hasAlpha, false, hasAlpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE,
+                    DataBuffer.TYPE_BYTE);
+
+                int[] bandOffsets = new int[tiff.samplesPerPixel];
+                for (int i = 0; i < bandOffsets.length; i++)
+                {
+                    bandOffsets[i] = i;
+                }
+
+                SampleModel sampleModel = new PixelInterleavedSampleModel(DataBuffer.TYPE_BYTE, window.width,
+                    window.height, tiff.samplesPerPixel, window.width * tiff.samplesPerPixel, bandOffsets);
+                WritableRaster raster = Raster.createWritableRaster(sampleModel,
+                    new DataBufferByte(samples, samples.length), new Point(0, 0));
+                image = new BufferedImage(colorModel, raster, false, null);
+            }
+            else if (tiff.photometric == Tiff.Photometric.Color_Palette && tiff.samplesPerPixel == 1)
+            {
+                byte[][] cmap = this.tiffReader.readColorMap(getByTag(ifd, Tiff.Tag.COLORMAP));
+                IndexColorModel colorModel = new IndexColorModel(tiff.bitsPerSample[0], cmap[0].length, cmap[0],
+                    cmap[1], cmap[2]);
+
+                image = new BufferedImage(window.width, window.height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+                byte[] data = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+                System.arraycopy(samples, 0, data, 0, data.length);
+            }
+        }
+
+        if (null == image)
+        {
+            String message = Logging.getMessage("Geotiff.UnsupportedDataTypeRaster", tiff.toString());
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        image = ImageUtil.toCompatibleImage(image);
+        return BufferedImageRaster.wrap(image, params);
+    }
+
+    private static byte[] getFirstSamples(byte[] samples, int samplesPerPixel, int bytesPerSample)
+    {
+        if (samplesPerPixel == 1)
+            return samples;
+
+        int pixelBytes = samplesPerPixel * bytesPerSample;
+        byte[] first = new byte[samples.length / samplesPerPixel];
+        for (int src = 0, dst = 0; dst < first.length; src += pixelBytes, dst += bytesPerSample)
+        {
+            System.arraycopy(samples, src, first, dst, bytesPerSample);
+        }
+
+        return first;
+    }
+
     /**
      * Returns true if georeferencing information was found in this file.
      * <p/>
@@ -743,9 +1174,31 @@ public class GeotiffReader implements Disposable
             }
 
             this.processGeoKeys(i);
+
+            // Reduced-resolution images, such as overviews, cover the same sector as the full-resolution image.
+            if (i > 0 && isReducedResolution(ifd))
+            {
+                AVList fullResolution = this.metadata.get(0);
+                for (String key : new String[] {AVKey.SECTOR, AVKey.ORIGIN, AVKey.MISSING_DATA_SIGNAL})
+                {
+                    if (fullResolution.hasKey(key))
+                        values.setValue(key, fullResolution.getValue(key));
+                }
+            }
         }
     }
 
+    private static boolean isReducedResolution(TiffIFDEntry[] ifd)
+    {
+        for (TiffIFDEntry entry : ifd)
+        {
+            if (entry.tag == Tiff.Tag.NEW_SUBFILE_TYPE)
+                return (entry.asLong() & Tiff.NewSubfileType.REDUCED_RESOLUTION) != 0;
+        }
+
+        return false;
+    }
+
     /*
      * Coordinates reading all the ImageFileDirectories in a Tiff file (there's typically only one).
      *
@@ -765,6 +1218,16 @@ public class GeotiffReader implements Disposable
             throw new IOException(message);
         }
 
+        ParsedHeaders headers = (ParsedHeaders) parsedHeaders.getObject(this.sourceKey);
+        if (headers != null)
+        {
+            this.tiffReader.setByteOrder(headers.byteOrder);
+            this.bigTiff = headers.bigTiff;
+            this.tiffIFDs = headers.tiffIFDs;
+            this.metadata = headers.metadata;
+            return;
+        }
+
         // Tiff image-file header (IFH)
         byte[] array = new byte[8];
         ByteBuffer ifh = ByteBuffer.wrap(array).order(ByteOrder.LITTLE_ENDIAN);
@@ -785,20 +1248,45 @@ public class GeotiffReader implements Disposable
 
         this.tiffReader.setByteOrder(byteOrder);
 
-        // skip the magic number and get offset to first (and likely only) ImageFileDirectory...
+        // check the magic number, which distinguishes BigTIFF, and get offset to first (and likely only)
+        // ImageFileDirectory...
         ifh = ByteBuffer.wrap(array).order(byteOrder);
-        ifh.position(4);
-        long ifdOffset = TIFFReader.getUnsignedInt(ifh);
+        ifh.position(2);
+        int magic = TIFFReader.getUnsignedShort(ifh);
+        long ifdOffset;
+        if (magic == BIG_TIFF_MAGIC)
+        {
+            // BigTIFF: the offset size and a reserved short, then a 64-bit offset
+            this.bigTiff = true;
+            ifh.clear();
+            this.theChannel.read(ifh);
+            ifh.flip();
+            ifdOffset = ifh.getLong();
+        }
+        else
+        {
+            ifdOffset = TIFFReader.getUnsignedInt(ifh);
+        }
 
         // position the channel to the ImageFileDirectory...
         this.theChannel.position(ifdOffset);
-        ifh.clear().limit(2);
-        this.theChannel.read(ifh);
-        ifh.flip();
-        readIFD(ifh.getShort());
+        readIFD(this.readIFDEntryCount());
 
         // decode any geotiff tags and structures that may be present into a manager object...
         this.repackageGeoReferencingTags();
+
+        headers = new ParsedHeaders(byteOrder, this.bigTiff, this.tiffIFDs, this.metadata);
+        long size = headers.getSizeInBytes();
+        if (size <= PARSED_HEADER_CACHE_SIZE / 4)
+            parsedHeaders.add(this.sourceKey, headers, size);
+    }
+
+    private long readIFDEntryCount() throws IOException
+    {
+        ByteBuffer bb = ByteBuffer.allocate(this.bigTiff ? 8 : 2).order(this.tiffReader.getByteOrder());
+        this.theChannel.read(bb);
+        bb.flip();
+        return this.bigTiff ? bb.getLong() : TIFFReader.getUnsignedShort(bb);
     }
 
     private void processGeoKeys(int imageIndex) throws IOException
@@ -1036,7 +1524,7 @@ public class GeotiffReader implements Disposable
      *
      */
 
-    private void readIFD(int numEntries) throws IOException
+    private void readIFD(long numEntries) throws IOException
     {
         try
         {
@@ -1048,7 +1536,7 @@ public class GeotiffReader implements Disposable
             java.util.List<TiffIFDEntry> ifd = new ArrayList<TiffIFDEntry>();
             for (int i = 0; i < numEntries; i++)
             {
-                ifd.add(TIFFIFDFactory.create(this.theChannel, this.tiffReader.getByteOrder()));
+                ifd.add(TIFFIFDFactory.create(this.theChannel, this.tiffReader.getByteOrder(), this.bigTiff));
             }
 
             TiffIFDEntry[] array = ifd.toArray(new TiffIFDEntry[ifd.size()]);
@@ -1060,19 +1548,16 @@ public class GeotiffReader implements Disposable
             }
             this.metadata.add(new AVListImpl());
 
-            ByteBuffer bb = ByteBuffer.allocate(4).order(this.tiffReader.getByteOrder());
+            ByteBuffer bb = ByteBuffer.allocate(this.bigTiff ? 8 : 4).order(this.tiffReader.getByteOrder());
             this.theChannel.read(bb);
             bb.flip();
 
             // If there's another IFD in this file, go get it (recursively)...
-            long nextIFDOffset = TIFFReader.getUnsignedInt(bb);
+            long nextIFDOffset = this.bigTiff ? bb.getLong() : TIFFReader.getUnsignedInt(bb);
             if (nextIFDOffset > 0)
             {
                 this.theChannel.position(nextIFDOffset);
-                bb.clear().limit(2);
-                this.theChannel.read(bb);
-                bb.flip();
-                readIFD(bb.getShort());
+                readIFD(this.readIFDEntryCount());
             }
         }
         catch (Exception ex)
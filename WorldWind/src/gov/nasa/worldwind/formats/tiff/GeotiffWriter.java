@@ -34,6 +34,14 @@ public class GeotiffWriter
     private static final int BufferedImage_TYPE_ELEVATION_SHORT16 = 9001;
     private static final int BufferedImage_TYPE_ELEVATION_FLOAT32 = 9002;
 
+    private static final long MAX_CLASSIC_TIFF_OFFSET = 0xFFFFFFFFL;
+
+    // Parameters of tiled output, see writeTiled()
+    private int tileSize = 256;
+    private int compression = Tiff.Compression.DEFLATE;
+    private int maxOverviews = -1;
+    private int encodeThreadPoolSize = Runtime.getRuntime().availableProcessors();
+
     public GeotiffWriter(String filename) throws IOException
     {
         if (null == filename || 0 == filename.trim().length())
@@ -89,6 +97,124 @@ public class GeotiffWriter
         { /* best effort */ }
     }
 
+    /**
+     * Returns the width and height of the tiles written by {@link #writeTiled(gov.nasa.worldwind.data.DataRaster,
+     * gov.nasa.worldwind.avlist.AVList)}.
+     *
+     * @return the tile size, in pixels.
+     */
+    public int getTileSize()
+    {
+        return this.tileSize;
+    }
+
+    /**
+     * Specifies the width and height of the tiles written by {@link #writeTiled(gov.nasa.worldwind.data.DataRaster,
+     * gov.nasa.worldwind.avlist.AVList)}. The TIFF specification requires a multiple of 16. The default is 256.
+     *
+     * @param tileSize the tile size, in pixels.
+     *
+     * @throws IllegalArgumentException if the size is not a positive multiple of 16.
+     */
+    public void setTileSize(int tileSize)
+    {
+        if (tileSize < 16 || tileSize % 16 != 0)
+        {
+            String msg = Logging.getMessage("generic.ArgumentOutOfRange", tileSize);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Returns the compression of the tiles written by {@link #writeTiled(gov.nasa.worldwind.data.DataRaster,
+     * gov.nasa.worldwind.avlist.AVList)}.
+     *
+     * @return the compression, {@link Tiff.Compression#DEFLATE} or {@link Tiff.Compression#NONE}.
+     */
+    public int getCompression()
+    {
+        return this.compression;
+    }
+
+    /**
+     * Specifies the compression of the tiles written by {@link #writeTiled(gov.nasa.worldwind.data.DataRaster,
+     * gov.nasa.worldwind.avlist.AVList)}. The default is Deflate.
+     *
+     * @param compression {@link Tiff.Compression#DEFLATE} or {@link Tiff.Compression#NONE}.
+     *
+     * @throws IllegalArgumentException if the compression is not one of those.
+     */
+    public void setCompression(int compression)
+    {
+        if (compression != Tiff.Compression.DEFLATE && compression != Tiff.Compression.NONE)
+        {
+            String msg = Logging.getMessage("GeotiffWriter.FeatureNotImplemented", compression);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        this.compression = compression;
+    }
+
+    /**
+     * Returns the maximum number of overviews written by {@link #writeTiled(gov.nasa.worldwind.data.DataRaster,
+     * gov.nasa.worldwind.avlist.AVList)}.
+     *
+     * @return the maximum number of overviews, or a negative number if overviews are written until one fits in a
+     *         single tile.
+     */
+    public int getMaxOverviews()
+    {
+        return this.maxOverviews;
+    }
+
+    /**
+     * Specifies the maximum number of overviews written by {@link #writeTiled(gov.nasa.worldwind.data.DataRaster,
+     * gov.nasa.worldwind.avlist.AVList)}. Each overview is half the width and height of the image before it. Overviews
+     * stop when one fits in a single tile, even if the maximum is not reached. The default is -1.
+     *
+     * @param maxOverviews the maximum number of overviews. Zero writes no overviews; a negative number writes overviews
+     *                     until one fits in a single tile.
+     */
+    public void setMaxOverviews(int maxOverviews)
+    {
+        this.maxOverviews = maxOverviews;
+    }
+
+    /**
+     * Returns the number of threads compressing tiles in {@link #writeTiled(gov.nasa.worldwind.data.DataRaster,
+     * gov.nasa.worldwind.avlist.AVList)}.
+     *
+     * @return the number of threads.
+     */
+    public int getEncodeThreadPoolSize()
+    {
+        return this.encodeThreadPoolSize;
+    }
+
+    /**
+     * Specifies the number of threads compressing tiles in {@link #writeTiled(gov.nasa.worldwind.data.DataRaster,
+     * gov.nasa.worldwind.avlist.AVList)}. The default is the number of available processors.
+     *
+     * @param size the number of threads.
+     *
+     * @throws IllegalArgumentException if the size is less than 1.
+     */
+    public void setEncodeThreadPoolSize(int size)
+    {
+        if (size < 1)
+        {
+            String msg = Logging.getMessage("generic.ArgumentOutOfRange", size);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        this.encodeThreadPoolSize = size;
+    }
+
     public void write(BufferedImage image) throws IOException
     {
         this.write(image, null);
@@ -970,6 +1096,25 @@ public class GeotiffWriter
     }
 
     private void writeIFDs(List<TiffIFDEntry> ifds) throws IOException
+    {
+        long offset = this.writeIFD(ifds, 0L);
+
+        // go back and patch up the ifd offset in header...
+        this.writeFirstIFDOffset(offset);
+    }
+
+    private long writeIFD(List<TiffIFDEntry> ifds, long nextIFDOffset) throws IOException
+    {
+        return this.writeIFD(ifds, nextIFDOffset, false);
+    }
+
+    /*
+     * Writes an IFD at the next word boundary and returns its offset. BigTIFF IFDs have 64-bit counts, value offsets
+     * and next IFD offsets. Values that fit in an entry's value offset are moved into the entry, as the TIFF and
+     * BigTIFF specifications require.
+     *
+     */
+    private long writeIFD(List<TiffIFDEntry> ifds, long nextIFDOffset, boolean bigTiff) throws IOException
     {
         long offset = this.theChannel.position();
 
@@ -981,10 +1126,14 @@ public class GeotiffWriter
 
         Collections.sort(ifds);
 
-        ByteBuffer dataBuff = ByteBuffer.allocateDirect(ifds.size() * 12);
+        int valueSize = bigTiff ? 8 : 4;
+        ByteBuffer dataBuff = ByteBuffer.allocateDirect(ifds.size() * (4 + 2 * valueSize));
 
-        // The IFD directory is preceeded by a SHORT count of the number of entries...
-        putUnsignedShort(dataBuff, ifds.size());
+        // The IFD directory is preceeded by a count of the number of entries, a SHORT, or a LONG8 in BigTIFF...
+        if (bigTiff)
+            dataBuff.putLong(ifds.size());
+        else
+            putUnsignedShort(dataBuff, ifds.size());
         dataBuff.flip();
         this.theChannel.write(dataBuff);
 
@@ -993,31 +1142,97 @@ public class GeotiffWriter
         {
             putUnsignedShort(dataBuff, ifd.tag);
             putUnsignedShort(dataBuff, ifd.type);
-            putUnsignedInt(dataBuff, ifd.count);
+            if (bigTiff)
+                dataBuff.putLong(ifd.count);
+            else
+                putUnsignedInt(dataBuff, ifd.count);
+
+            int valueStart = dataBuff.position();
+            long size = sizeOf(ifd.type, ifd.count);
             if (ifd.type == Tiff.Type.SHORT && ifd.count == 1)
             {
                 // these get packed in the first few bytes...
                 putUnsignedShort(dataBuff, (int) ifd.valOffset);
-                dataBuff.putShort((short) 0);
             }
+            else if (ifd.type == Tiff.Type.LONG && ifd.count == 1)
+                putUnsignedInt(dataBuff, ifd.valOffset);
+            else if (ifd.type == Tiff.Type.LONG8 && ifd.count == 1)
+                dataBuff.putLong(ifd.valOffset);
+            else if (size > 0 && size <= valueSize)
+            {
+                // The values were written at the value offset; they belong in the entry itself.
+                ByteBuffer values = ByteBuffer.allocate((int) size);
+                while (values.hasRemaining())
+                {
+                    if (this.theChannel.read(values, ifd.valOffset + values.position()) < 0)
+                        throw new EOFException();
+                }
+                dataBuff.put(values.array());
+            }
+            else if (bigTiff)
+                dataBuff.putLong(ifd.valOffset);
             else
                 putUnsignedInt(dataBuff, ifd.valOffset);
+
+            // Values shorter than the value offset are left-justified within it.
+            while (dataBuff.position() < valueStart + valueSize)
+            {
+                dataBuff.put((byte) 0);
+            }
         }
         dataBuff.flip();
         this.theChannel.write(dataBuff);
 
-        // The spec requires 4 bytes of zeros at the end...
+        // The IFD ends with the offset of the next IFD, or zeros if it's the last...
         dataBuff.clear();
-        dataBuff.putInt(0);
+        if (bigTiff)
+            dataBuff.putLong(nextIFDOffset);
+        else
+            putUnsignedInt(dataBuff, nextIFDOffset);
         dataBuff.flip();
         this.theChannel.write(dataBuff);
 
-        // go back and patch up the ifd offset in header...
-        this.theChannel.position(4);
-        dataBuff.clear();
+        return offset;
+    }
+
+    private void writeFirstIFDOffset(long offset) throws IOException
+    {
+        ByteBuffer dataBuff = ByteBuffer.allocate(INTEGER_SIZEOF);
         putUnsignedInt(dataBuff, offset);
         dataBuff.flip();
-        this.theChannel.write(dataBuff);
+        this.theChannel.write(dataBuff, 4);
+    }
+
+    private void writeBigTiffHeader(long firstIFDOffset) throws IOException
+    {
+        // A BigTIFF file begins with a 16-byte header: the byte order, the number 43, the size of offsets (8), a
+        // reserved SHORT of 0, and the 64-bit offset of the first IFD.
+        ByteBuffer dataBuff = ByteBuffer.allocate(16);
+        dataBuff.put(new byte[] {0x4D, 0x4D, 0, 43, 0, 8, 0, 0});
+        dataBuff.putLong(firstIFDOffset);
+        dataBuff.flip();
+        this.theChannel.write(dataBuff, 0);
+    }
+
+    private static long sizeOf(int type, long count)
+    {
+        switch (type)
+        {
+            case Tiff.Type.BYTE:
+            case Tiff.Type.SBYTE:
+            case Tiff.Type.ASCII:
+            case Tiff.Type.UNDEFINED:
+                return count;
+            case Tiff.Type.SHORT:
+            case Tiff.Type.SSHORT:
+                return 2L * count;
+            case Tiff.Type.LONG:
+            case Tiff.Type.SLONG:
+            case Tiff.Type.FLOAT:
+                return 4L * count;
+            default:
+                return 8L * count;
+        }
     }
 
     private void putUnsignedByte(ByteBuffer buff, int value)
@@ -1321,4 +1536,288 @@ public class GeotiffWriter
 
         this.writeIFDs(ifds);
     }
+
+    /**
+     * Writes a data raster as a tiled GeoTIFF with internal overviews. The tiles are compressed as specified by {@link
+     * #setCompression(int)}, and each overview is a reduced-resolution image half the size of the one before it, in an
+     * image file directory of its own, as in a cloud-optimized GeoTIFF. Geographic images are written as 8-bit RGBA;
+     * geographic elevations as 16-bit integers or 32-bit floats.
+     * <p/>
+     * The source is drawn into the output one band of tile rows at a time, and each band is compressed and written
+     * before the next is drawn. Overviews are built from the bands as they are written. Neither the source nor the
+     * output is ever held in memory whole, so the source may be as large as the file system allows, such as a {@link
+     * CachedDataRaster} of a large image, or a composite of many. Files larger than the 4 GB that classic TIFF offsets
+     * can address are written as BigTIFF.
+     *
+     * @param source the raster to write. It must have a sector.
+     * @param params the output's georeferencing, format and size, as for {@link #write(java.awt.image.BufferedImage,
+     *               gov.nasa.worldwind.avlist.AVList)}. AVKey.WIDTH and AVKey.HEIGHT give the output's size, which
+     *               may differ from the source's. May be null, in which case the source's own values are used.
+     *
+     * @throws IOException              if the source can't be read or the file can't be written.
+     * @throws IllegalArgumentException if the source is null, or the parameters don't describe a geographic image or
+     *                                  elevation raster.
+     */
+    public void writeTiled(DataRaster source, AVList params) throws IOException
+    {
+        if (source == null)
+        {
+            String msg = Logging.getMessage("nullValue.RasterIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        AVList values = source.copy();
+        if (null != params)
+            values.setValues(params);
+
+        int width = values.hasKey(AVKey.WIDTH) ? (Integer) values.getValue(AVKey.WIDTH) : source.getWidth();
+        int height = values.hasKey(AVKey.HEIGHT) ? (Integer) values.getValue(AVKey.HEIGHT) : source.getHeight();
+        this.validateParameters(values, width, height);
+
+        if (!isGeographic(values))
+        {
+            String msg = Logging.getMessage("GeotiffWriter.FeatureNotImplemented",
+                values.getValue(AVKey.COORDINATE_SYSTEM));
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        int samplesPerPixel, bitsPerSample, sampleFormat, photometric;
+        Double missingDataSignal = null;
+
+        if (isElevation(values))
+        {
+            samplesPerPixel = Tiff.SamplesPerPixel.MONOCHROME;
+            photometric = Tiff.Photometric.Grayscale_BlackIsZero;
+
+            if (AVKey.FLOAT32.equals(values.getValue(AVKey.DATA_TYPE)))
+            {
+                sampleFormat = Tiff.SampleFormat.IEEEFLOAT;
+                bitsPerSample = Tiff.BitsPerSample.ELEVATIONS_FLOAT32;
+            }
+            else
+            {
+                sampleFormat = Tiff.SampleFormat.SIGNED;
+                bitsPerSample = Tiff.BitsPerSample.ELEVATIONS_INT16;
+            }
+
+            Object o = values.hasKey(AVKey.MISSING_DATA_SIGNAL) ? values.getValue(AVKey.MISSING_DATA_SIGNAL)
+                : values.getValue(AVKey.MISSING_DATA_REPLACEMENT);
+            if (o instanceof Double)
+                missingDataSignal = (Double) o;
+        }
+        else
+        {
+            samplesPerPixel = Tiff.SamplesPerPixel.RGBA;
+            photometric = Tiff.Photometric.Color_RGB;
+            sampleFormat = Tiff.SampleFormat.UNSIGNED;
+            bitsPerSample = Tiff.BitsPerSample.MONOCHROME_BYTE;
+        }
+
+        // Reserve room for a BigTIFF header, in case the file turns out to need one.
+        this.writeTiffHeader();
+        this.theChannel.write(ByteBuffer.allocate(8));
+
+        TIFFTileWriter tileWriter = new TIFFTileWriter(this.theChannel, width, height, samplesPerPixel,
+            bitsPerSample / Byte.SIZE, sampleFormat, missingDataSignal, this.tileSize, this.compression,
+            this.maxOverviews, this.encodeThreadPoolSize);
+        try
+        {
+            for (int y = 0; y < height; y += this.tileSize)
+            {
+                int numRows = Math.min(this.tileSize, height - y);
+                tileWriter.writeRows(this.drawRows(source, values, y, numRows, missingDataSignal), numRows);
+            }
+
+            tileWriter.finish();
+        }
+        finally
+        {
+            tileWriter.dispose();
+        }
+
+        // Write the IFDs as classic TIFF if the whole file fits in 32-bit offsets, otherwise as BigTIFF. The IFDs'
+        // size is known only once they're written, so if they take the file past the classic limit they're written
+        // again in BigTIFF form.
+        long dataEnd = this.theChannel.position();
+        boolean bigTiff = this.requiresBigTiff(dataEnd);
+        long firstIFDOffset = this.writeTiledIFDs(tileWriter, values, samplesPerPixel, bitsPerSample, sampleFormat,
+            photometric, bigTiff);
+        if (!bigTiff && this.requiresBigTiff(this.theChannel.position()))
+        {
+            this.theChannel.truncate(dataEnd);
+            this.theChannel.position(dataEnd);
+            bigTiff = true;
+            firstIFDOffset = this.writeTiledIFDs(tileWriter, values, samplesPerPixel, bitsPerSample, sampleFormat,
+                photometric, true);
+        }
+
+        if (bigTiff)
+            this.writeBigTiffHeader(firstIFDOffset);
+        else
+            this.writeFirstIFDOffset(firstIFDOffset);
+    }
+
+    /**
+     * Indicates whether a file extending to a specified offset must be written as BigTIFF, whose offsets are 64 bits,
+     * rather than as classic TIFF, whose offsets are 32 bits.
+     *
+     * @param offset the offset of the file's end.
+     *
+     * @return true if the offset exceeds the largest classic TIFF offset, otherwise false.
+     */
+    protected boolean requiresBigTiff(long offset)
+    {
+        return offset > MAX_CLASSIC_TIFF_OFFSET;
+    }
+
+    /*
+     * Writes the IFD of each image written by a tile writer, and returns the offset of the first.
+     *
+     */
+    private long writeTiledIFDs(TIFFTileWriter tileWriter, AVList values, int samplesPerPixel, int bitsPerSample,
+        int sampleFormat, int photometric, boolean bigTiff) throws IOException
+    {
+        // Write each image's IFD, the smallest overview first, so each can point to the one after it.
+        long nextIFDOffset = 0L;
+        for (int level = tileWriter.getNumLevels() - 1; level >= 0; level--)
+        {
+            ArrayList<TiffIFDEntry> ifds = new ArrayList<TiffIFDEntry>(20);
+
+            if (level > 0)
+            {
+                ifds.add(new TiffIFDEntry(Tiff.Tag.NEW_SUBFILE_TYPE, Tiff.Type.LONG, 1,
+                    Tiff.NewSubfileType.REDUCED_RESOLUTION));
+            }
+
+            ifds.add(new TiffIFDEntry(Tiff.Tag.IMAGE_WIDTH, Tiff.Type.LONG, 1, tileWriter.getWidth(level)));
+            ifds.add(new TiffIFDEntry(Tiff.Tag.IMAGE_LENGTH, Tiff.Type.LONG, 1, tileWriter.getHeight(level)));
+
+            long offset = this.theChannel.position();
+            if (samplesPerPixel > 1)
+            {
+                short[] bps = new short[samplesPerPixel];
+                Arrays.fill(bps, (short) bitsPerSample);
+                this.theChannel.write(ByteBuffer.wrap(this.getBytes(bps)));
+                ifds.add(new TiffIFDEntry(Tiff.Tag.BITS_PER_SAMPLE, Tiff.Type.SHORT, samplesPerPixel, offset));
+                ifds.add(new TiffIFDEntry(Tiff.Tag.EXTRA_SAMPLES, Tiff.Type.SHORT, 1,
+                    Tiff.ExtraSamples.UNASSOCIATED_ALPHA));
+            }
+            else
+                ifds.add(new TiffIFDEntry(Tiff.Tag.BITS_PER_SAMPLE, Tiff.Type.SHORT, 1, bitsPerSample));
+
+            ifds.add(new TiffIFDEntry(Tiff.Tag.COMPRESSION, Tiff.Type.SHORT, 1, this.compression));
+            ifds.add(new TiffIFDEntry(Tiff.Tag.PHOTO_INTERPRETATION, Tiff.Type.SHORT, 1, photometric));
+            ifds.add(new TiffIFDEntry(Tiff.Tag.SAMPLES_PER_PIXEL, Tiff.Type.SHORT, 1, samplesPerPixel));
+            ifds.add(new TiffIFDEntry(Tiff.Tag.ORIENTATION, Tiff.Type.SHORT, 1, Tiff.Orientation.DEFAULT));
+            ifds.add(new TiffIFDEntry(Tiff.Tag.PLANAR_CONFIGURATION, Tiff.Type.SHORT, 1,
+                Tiff.PlanarConfiguration.CHUNKY));
+            ifds.add(new TiffIFDEntry(Tiff.Tag.SAMPLE_FORMAT, Tiff.Type.SHORT, 1, sampleFormat));
+
+            if (tileWriter.getPredictor() != Tiff.Predictor.NONE)
+                ifds.add(new TiffIFDEntry(Tiff.Tag.TIFF_PREDICTOR, Tiff.Type.SHORT, 1, tileWriter.getPredictor()));
+
+            ifds.add(new TiffIFDEntry(Tiff.Tag.TILE_WIDTH, Tiff.Type.LONG, 1, this.tileSize));
+            ifds.add(new TiffIFDEntry(Tiff.Tag.TILE_LENGTH, Tiff.Type.LONG, 1, this.tileSize));
+            ifds.add(this.writeLongs(Tiff.Tag.TILE_OFFSETS, tileWriter.getTileOffsets(level), bigTiff));
+            ifds.add(this.writeLongs(Tiff.Tag.TILE_COUNTS, tileWriter.getTileCounts(level), bigTiff));
+
+            // Only the full-resolution image is georeferenced. Overviews cover the same sector.
+            if (level == 0)
+                this.appendGeoTiff(ifds, values);
+
+            nextIFDOffset = this.writeIFD(ifds, nextIFDOffset, bigTiff);
+        }
+
+        return nextIFDOffset;
+    }
+
+    /*
+     * Draws a band of rows of the output from the source, and returns the rows' big-endian samples.
+     *
+     */
+    private byte[] drawRows(DataRaster source, AVList params, int y, int numRows, Double missingDataSignal)
+    {
+        int width = (Integer) params.getValue(AVKey.WIDTH);
+
+        // Elevations are samples at points, so a band one row high has no extent. Draw the row above it too.
+        int extraRows = (isElevation(params) && numRows == 1 && y > 0) ? 1 : 0;
+        java.awt.Rectangle window = new java.awt.Rectangle(0, y - extraRows, width, numRows + extraRows);
+
+        Sector sector = GeotiffReader.computeWindowSector(params, window);
+        if (sector == null)
+        {
+            String msg = Logging.getMessage("generic.InvalidImageSize", width, params.getValue(AVKey.HEIGHT));
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (isElevation(params))
+        {
+            AVList bufferParams = new AVListImpl();
+            bufferParams.setValue(AVKey.DATA_TYPE, params.getValue(AVKey.DATA_TYPE));
+            bufferParams.setValue(AVKey.BYTE_ORDER, AVKey.BIG_ENDIAN);
+            ByteBufferRaster band = new ByteBufferRaster(window.width, window.height, sector, bufferParams);
+            if (missingDataSignal != null)
+                band.fill(missingDataSignal);
+
+            source.drawOnTo(band);
+
+            ByteBuffer buffer = band.getByteBuffer();
+            int rowBytes = buffer.capacity() / window.height;
+            byte[] rows = new byte[numRows * rowBytes];
+            System.arraycopy(buffer.array(), extraRows * rowBytes, rows, 0, rows.length);
+            return rows;
+        }
+        else
+        {
+            BufferedImageRaster band = new BufferedImageRaster(window.width, window.height,
+                java.awt.Transparency.TRANSLUCENT, sector);
+            try
+            {
+                source.drawOnTo(band);
+
+                int[] pixels = band.getBufferedImage().getRGB(0, 0, width, numRows, null, 0, width);
+                byte[] rows = new byte[4 * pixels.length];
+                for (int i = 0, j = 0; i < pixels.length; i++)
+                {
+                    int argb = pixels[i];
+                    rows[j++] = (byte) (argb >> 16);
+                    rows[j++] = (byte) (argb >> 8);
+                    rows[j++] = (byte) argb;
+                    rows[j++] = (byte) (argb >>> 24);
+                }
+                return rows;
+            }
+            finally
+            {
+                band.dispose();
+            }
+        }
+    }
+
+    private TiffIFDEntry writeLongs(int tag, long[] values, boolean bigTiff) throws IOException
+    {
+        // BigTIFF offsets and counts are LONG8s.
+        int type = bigTiff ? Tiff.Type.LONG8 : Tiff.Type.LONG;
+
+        // A single value is held in the IFD entry itself.
+        if (values.length == 1)
+            return new TiffIFDEntry(tag, type, 1, values[0]);
+
+        long offset = this.theChannel.position();
+        ByteBuffer dataBuff = ByteBuffer.allocate(values.length * (bigTiff ? 8 : INTEGER_SIZEOF));
+        for (long value : values)
+        {
+            if (bigTiff)
+                dataBuff.putLong(value);
+            else
+                putUnsignedInt(dataBuff, value);
+        }
+        dataBuff.flip();
+        this.theChannel.write(dataBuff);
+
+        return new TiffIFDEntry(tag, type, values.length, offset);
+    }
 }
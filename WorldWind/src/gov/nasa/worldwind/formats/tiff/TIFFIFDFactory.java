@@ -26,29 +26,41 @@ class TIFFIFDFactory
     }
 
     public static TiffIFDEntry create(FileChannel fc, ByteOrder tiffFileOrder)
+    {
+        return create(fc, tiffFileOrder, false);
+    }
+
+    /*
+     * Reads an IFD entry at the channel's position. BigTIFF entries have 64-bit counts and value offsets.
+     *
+     */
+    public static TiffIFDEntry create(FileChannel fc, ByteOrder tiffFileOrder, boolean bigTiff)
     {
         if( null == fc )
             return null;
 
         long savedPosition = 0;
 
-
-        ByteBuffer header = ByteBuffer.wrap(new byte[12]).order( tiffFileOrder );
+        int valueSize = bigTiff ? 8 : 4;
+        ByteBuffer header = ByteBuffer.wrap(new byte[4 + 2 * valueSize]).order( tiffFileOrder );
 
         try
         {
-            fc.read( header );
+            readFully( fc, header );
             header.flip();
 
             int tag = getUnsignedShort( header );
             int type = getUnsignedShort( header );
-            long count = getUnsignedInt( header );
+            long count = bigTiff ? header.getLong() : getUnsignedInt( header );
 
 
             // To save time and space the Value Offset contains the Value instead of pointing to
             // the Value if and only if the Value fits into 4 bytes. If the Value is shorter than 4 bytes,
             // it is left-justified within the 4-byte Value Offset, i.e., stored in the lowernumbered bytes.
             // Whether the Value fits within 4 bytes is determined by the Type and Count of the field.
+            // BigTIFF has 8 bytes for the Value.
+
+            long size = calcSize( type, count );
 
             if ( type == Tiff.Type.SHORT && count == 1 )
             {
@@ -61,20 +73,34 @@ class TIFFIFDFactory
             }
             else if( count == 1 && (type == Tiff.Type.LONG || type == Tiff.Type.FLOAT))
             {
-                long value = header.getInt();
+                long value = getUnsignedInt( header );
                 return new TiffIFDEntry(tag, type, value );
             }
+            else if( count == 1 && (type == Tiff.Type.LONG8 || type == Tiff.Type.IFD8))
+            {
+                long value = header.getLong();
+                return new TiffIFDEntry(tag, type, value );
+            }
+            else if( size > 0L && size <= valueSize )
+            {
+                // the values are held in the entry itself
+                ByteBuffer data = ByteBuffer.allocate( (int) size ).order( tiffFileOrder );
+                data.put( header.array(), header.position(), (int) size );
+                data.flip();
+
+                long offset = bigTiff ? header.getLong() : getUnsignedInt( header );
+                return new TiffIFDEntry(tag, type, count, offset, data );
+            }
             else
             {
-                long offset = getUnsignedInt( header );
-                int size = MASK_USHORT & (int)calcSize( type, count );
+                long offset = bigTiff ? header.getLong() : getUnsignedInt( header );
 
-                if( size > 0L )
+                if( size > 0L && size <= Integer.MAX_VALUE )
                 {
-                    ByteBuffer data = ByteBuffer.allocateDirect( size ).order( tiffFileOrder );
+                    ByteBuffer data = ByteBuffer.allocateDirect( (int) size ).order( tiffFileOrder );
                     savedPosition = fc.position();
                     fc.position( offset );
-                    fc.read( data );
+                    readFully( fc, data );
                     data.flip();
 
                     fc.position( savedPosition );
@@ -133,6 +159,11 @@ class TIFFIFDFactory
             case Tiff.Type.DOUBLE:
                 return count * 8L;
 
+            case Tiff.Type.LONG8:
+            case Tiff.Type.SLONG8:
+            case Tiff.Type.IFD8:
+                return count * 8L;
+
             case Tiff.Type.RATIONAL:
             case Tiff.Type.SRATIONAL:
                 return count * 8L;
@@ -143,6 +174,14 @@ class TIFFIFDFactory
         }
     }
 
+    private static void readFully(FileChannel fc, ByteBuffer bb) throws java.io.IOException
+    {
+        while( bb.hasRemaining() && fc.read( bb ) >= 0 )
+        {
+            // keep reading; large arrays of tile offsets may take several reads
+        }
+    }
+
     private static int getUnsignedShort(ByteBuffer bb)
     {
         return MASK_USHORT & (int) bb.getShort();
@@ -444,6 +444,15 @@ class TIFFReader
     public byte[] readBytes(TiffIFDEntry entry) throws IOException
     {
         byte[] bytes = new byte[(int) entry.count];
+
+        // Values that fit in the entry itself have no offset in the file.
+        ByteBuffer data = entry.getData();
+        if (null != data && data.remaining() == bytes.length)
+        {
+            data.get(bytes);
+            return bytes;
+        }
+
         ByteBuffer buff = ByteBuffer.wrap(bytes);
         this.theChannel.position(entry.asOffset());
         this.theChannel.read(buff);
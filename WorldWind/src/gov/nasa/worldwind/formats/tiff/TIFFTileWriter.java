@@ -0,0 +1,446 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.formats.tiff;
+
+import gov.nasa.worldwind.util.WWUtil;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.Deflater;
+
+/**
+ * This is a package private class that writes the tiles of a TIFF image and of its reduced-resolution overviews. The
+ * image's rows are given a band at a time, and each band is cut into tiles and written as soon as it's complete. Each
+ * overview is built from the rows of the level above it as they arrive, by averaging 2x2 blocks of pixels, so neither
+ * the image nor any overview is ever held in memory whole.
+ * <p/>
+ * Samples are big-endian and pixel interleaved. Tiles are written uncompressed or compressed with Deflate, in which
+ * case integer samples are horizontally differenced and floating point samples use the floating point predictor. The
+ * tiles of each band are compressed concurrently and written in order. The caller writes the image file directories,
+ * using the tile offsets and byte counts of each level.
+ *
+ * @author tag
+ * @version $Id$
+ */
+class TIFFTileWriter
+{
+    private final FileChannel theChannel;
+    private final int samplesPerPixel;
+    private final int bytesPerSample;
+    private final boolean floatingPoint;
+    private final boolean signed;
+    private final Double missingDataSignal;
+    private final int tileSize;
+    private final int compression;
+    private final ExecutorService executor;
+    private final List<Level> levels = new ArrayList<Level>();
+
+    /**
+     * Creates a writer for an image and its overviews. Overviews are added, each half the size of the level above it,
+     * until the number of overviews is reached or the last overview fits in a single tile.
+     *
+     * @param fileChannel       the channel to write the tiles to, at its current position.
+     * @param width             the image's width, in pixels.
+     * @param height            the image's height, in pixels.
+     * @param samplesPerPixel   the number of samples in each pixel.
+     * @param bytesPerSample    the size of each sample: 1, 2 or 4 bytes.
+     * @param sampleFormat      the samples' format, one of the {@link Tiff.SampleFormat} values.
+     * @param missingDataSignal the sample value marking missing data, which is excluded from overviews. May be null.
+     * @param tileSize          the width and height of the tiles.
+     * @param compression       {@link Tiff.Compression#NONE} or {@link Tiff.Compression#DEFLATE}.
+     * @param maxOverviews      the maximum number of overviews, or a negative number to add overviews until one fits
+     *                          in a single tile.
+     * @param numThreads        the number of threads compressing tiles.
+     */
+    public TIFFTileWriter(FileChannel fileChannel, int width, int height, int samplesPerPixel, int bytesPerSample,
+        int sampleFormat, Double missingDataSignal, int tileSize, int compression, int maxOverviews, int numThreads)
+    {
+        this.theChannel = fileChannel;
+        this.samplesPerPixel = samplesPerPixel;
+        this.bytesPerSample = bytesPerSample;
+        this.floatingPoint = sampleFormat == Tiff.SampleFormat.IEEEFLOAT;
+        this.signed = sampleFormat == Tiff.SampleFormat.SIGNED;
+        this.missingDataSignal = missingDataSignal;
+        this.tileSize = tileSize;
+        this.compression = compression;
+
+        Level level = new Level(width, height);
+        this.levels.add(level);
+        while ((maxOverviews < 0 || this.levels.size() <= maxOverviews)
+            && (level.width > tileSize || level.height > tileSize))
+        {
+            level.next = new Level((level.width + 1) / 2, (level.height + 1) / 2);
+            level = level.next;
+            this.levels.add(level);
+        }
+
+        this.executor = WWUtil.newDaemonThreadPool(Math.max(1, numThreads), "TIFF Encoder");
+    }
+
+    public int getNumLevels()
+    {
+        return this.levels.size();
+    }
+
+    public int getWidth(int level)
+    {
+        return this.levels.get(level).width;
+    }
+
+    public int getHeight(int level)
+    {
+        return this.levels.get(level).height;
+    }
+
+    public long[] getTileOffsets(int level)
+    {
+        return this.levels.get(level).tileOffsets;
+    }
+
+    public long[] getTileCounts(int level)
+    {
+        return this.levels.get(level).tileCounts;
+    }
+
+    public int getPredictor()
+    {
+        if (this.compression == Tiff.Compression.NONE)
+            return Tiff.Predictor.NONE;
+
+        return this.floatingPoint ? Tiff.Predictor.FLOATING_POINT : Tiff.Predictor.HORIZONTAL_DIFFERENCING;
+    }
+
+    /**
+     * Writes the next rows of the full resolution image.
+     *
+     * @param rows    the rows' samples.
+     * @param numRows the number of rows.
+     *
+     * @throws IOException if the tiles can't be written.
+     */
+    public void writeRows(byte[] rows, int numRows) throws IOException
+    {
+        Level level = this.levels.get(0);
+        for (int i = 0; i < numRows; i++)
+        {
+            level.addRow(rows, i * level.rowBytes);
+        }
+    }
+
+    /**
+     * Writes the remaining tiles of every level. All the image's rows must have been written.
+     *
+     * @throws IOException if the tiles can't be written.
+     */
+    public void finish() throws IOException
+    {
+        this.levels.get(0).finish();
+    }
+
+    public void dispose()
+    {
+        this.executor.shutdownNow();
+    }
+
+    private class Level
+    {
+        private final int width;
+        private final int height;
+        private final int rowBytes;
+        private final int tilesAcross;
+        private final long[] tileOffsets;
+        private final long[] tileCounts;
+        private final byte[] band;
+        private int bandRows;
+        private int bandIndex;
+        private byte[] pendingRow;
+        private Level next;
+
+        public Level(int width, int height)
+        {
+            this.width = width;
+            this.height = height;
+            this.rowBytes = width * samplesPerPixel * bytesPerSample;
+            this.tilesAcross = (width + tileSize - 1) / tileSize;
+            int numTiles = this.tilesAcross * ((height + tileSize - 1) / tileSize);
+            this.tileOffsets = new long[numTiles];
+            this.tileCounts = new long[numTiles];
+            this.band = new byte[tileSize * this.rowBytes];
+        }
+
+        public void addRow(byte[] row, int offset) throws IOException
+        {
+            System.arraycopy(row, offset, this.band, this.bandRows * this.rowBytes, this.rowBytes);
+            this.bandRows++;
+
+            // Each pair of rows makes a row of the next level.
+            if (this.next != null)
+            {
+                if (this.pendingRow == null)
+                {
+                    this.pendingRow = new byte[this.rowBytes];
+                    System.arraycopy(row, offset, this.pendingRow, 0, this.rowBytes);
+                }
+                else
+                {
+                    this.next.addRow(this.reduce(this.pendingRow, 0, row, offset), 0);
+                    this.pendingRow = null;
+                }
+            }
+
+            if (this.bandRows == tileSize)
+                this.writeBand();
+        }
+
+        public void finish() throws IOException
+        {
+            if (this.bandRows > 0)
+                this.writeBand();
+
+            if (this.next != null)
+            {
+                // An odd last row makes the next level's last row alone.
+                if (this.pendingRow != null)
+                {
+                    this.next.addRow(this.reduce(this.pendingRow, 0, this.pendingRow, 0), 0);
+                    this.pendingRow = null;
+                }
+
+                this.next.finish();
+            }
+        }
+
+        private byte[] reduce(byte[] row0, int offset0, byte[] row1, int offset1)
+        {
+            int pixelBytes = samplesPerPixel * bytesPerSample;
+            byte[] reduced = new byte[this.next.rowBytes];
+            double[] values = new double[4];
+
+            for (int x = 0; x < this.next.width; x++)
+            {
+                int left = 2 * x * pixelBytes;
+                int right = Math.min(2 * x + 1, this.width - 1) * pixelBytes;
+
+                for (int s = 0; s < samplesPerPixel; s++)
+                {
+                    int sampleOffset = s * bytesPerSample;
+                    values[0] = getSample(row0, offset0 + left + sampleOffset);
+                    values[1] = getSample(row0, offset0 + right + sampleOffset);
+                    values[2] = getSample(row1, offset1 + left + sampleOffset);
+                    values[3] = getSample(row1, offset1 + right + sampleOffset);
+
+                    putSample(reduced, x * pixelBytes + sampleOffset, average(values));
+                }
+            }
+
+            return reduced;
+        }
+
+        private void writeBand() throws IOException
+        {
+            List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>(this.tilesAcross);
+            for (int column = 0; column < this.tilesAcross; column++)
+            {
+                final byte[] tile = this.cutTile(column);
+                futures.add(executor.submit(new Callable<byte[]>()
+                {
+                    public byte[] call() throws Exception
+                    {
+                        return encodeTile(tile);
+                    }
+                }));
+            }
+
+            try
+            {
+                for (int column = 0; column < this.tilesAcross; column++)
+                {
+                    byte[] bytes = futures.get(column).get();
+                    int index = this.bandIndex * this.tilesAcross + column;
+                    this.tileOffsets[index] = theChannel.position();
+                    this.tileCounts[index] = bytes.length;
+                    theChannel.write(ByteBuffer.wrap(bytes));
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (cause instanceof Error)
+                    throw (Error) cause;
+                throw new IOException(cause.getMessage());
+            }
+
+            this.bandIndex++;
+            this.bandRows = 0;
+        }
+
+        private byte[] cutTile(int column)
+        {
+            // Tiles are padded to their full size, so those at the right and bottom edges are zero beyond the image.
+            int pixelBytes = samplesPerPixel * bytesPerSample;
+            int tileRowBytes = tileSize * pixelBytes;
+            int x = column * tileSize * pixelBytes;
+            int length = Math.min(tileRowBytes, this.rowBytes - x);
+
+            byte[] tile = new byte[tileSize * tileRowBytes];
+            for (int row = 0; row < this.bandRows; row++)
+            {
+                System.arraycopy(this.band, row * this.rowBytes + x, tile, row * tileRowBytes, length);
+            }
+
+            return tile;
+        }
+    }
+
+    private byte[] encodeTile(byte[] tile)
+    {
+        if (this.compression == Tiff.Compression.NONE)
+            return tile;
+
+        int rowBytes = this.tileSize * this.samplesPerPixel * this.bytesPerSample;
+        if (this.floatingPoint)
+            this.applyFloatingPointPredictor(tile, rowBytes);
+        else
+            this.applyHorizontalPredictor(tile, rowBytes);
+
+        Deflater deflater = new Deflater();
+        try
+        {
+            deflater.setInput(tile);
+            deflater.finish();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(tile.length / 2);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished())
+            {
+                int length = deflater.deflate(buffer);
+                bytes.write(buffer, 0, length);
+            }
+
+            return bytes.toByteArray();
+        }
+        finally
+        {
+            deflater.end();
+        }
+    }
+
+    private void applyHorizontalPredictor(byte[] bytes, int rowBytes)
+    {
+        // Each sample is replaced by its difference from the same sample of the pixel to its left. Work from the right
+        // so the left samples are still intact.
+        int stride = this.samplesPerPixel * this.bytesPerSample;
+        for (int row = 0; row < bytes.length; row += rowBytes)
+        {
+            for (int i = row + rowBytes - this.bytesPerSample; i >= row + stride; i -= this.bytesPerSample)
+            {
+                this.putRawSample(bytes, i, this.getRawSample(bytes, i) - this.getRawSample(bytes, i - stride));
+            }
+        }
+    }
+
+    private void applyFloatingPointPredictor(byte[] bytes, int rowBytes)
+    {
+        // Each row's bytes are arranged with the most significant bytes of all samples first, then differenced.
+        int numSamples = rowBytes / this.bytesPerSample;
+        byte[] row = new byte[rowBytes];
+        for (int start = 0; start < bytes.length; start += rowBytes)
+        {
+            for (int i = 0; i < numSamples; i++)
+            {
+                for (int b = 0; b < this.bytesPerSample; b++)
+                {
+                    row[b * numSamples + i] = bytes[start + i * this.bytesPerSample + b];
+                }
+            }
+
+            for (int i = rowBytes - 1; i >= this.samplesPerPixel; i--)
+            {
+                row[i] -= row[i - this.samplesPerPixel];
+            }
+
+            System.arraycopy(row, 0, bytes, start, rowBytes);
+        }
+    }
+
+    private double average(double[] values)
+    {
+        double sum = 0;
+        int count = 0;
+        for (double value : values)
+        {
+            if (this.missingDataSignal == null || value != this.missingDataSignal)
+            {
+                sum += value;
+                count++;
+            }
+        }
+
+        if (count == 0)
+            return this.missingDataSignal;
+
+        return this.floatingPoint ? sum / count : Math.round(sum / count);
+    }
+
+    private double getSample(byte[] bytes, int offset)
+    {
+        long raw = this.getRawSample(bytes, offset);
+
+        if (this.floatingPoint)
+            return this.bytesPerSample == 4 ? Float.intBitsToFloat((int) raw) : Double.longBitsToDouble(raw);
+
+        if (this.signed)
+        {
+            int shift = 64 - 8 * this.bytesPerSample;
+            return (raw << shift) >> shift;
+        }
+
+        return raw;
+    }
+
+    private void putSample(byte[] bytes, int offset, double value)
+    {
+        if (this.floatingPoint)
+        {
+            this.putRawSample(bytes, offset, this.bytesPerSample == 4 ? Float.floatToRawIntBits((float) value)
+                : Double.doubleToRawLongBits(value));
+        }
+        else
+        {
+            this.putRawSample(bytes, offset, (long) value);
+        }
+    }
+
+    private long getRawSample(byte[] bytes, int offset)
+    {
+        long value = 0;
+        for (int b = 0; b < this.bytesPerSample; b++)
+        {
+            value = (value << 8) | (bytes[offset + b] & 0xFF);
+        }
+        return value;
+    }
+
+    private void putRawSample(byte[] bytes, int offset, long value)
+    {
+        for (int b = this.bytesPerSample - 1; b >= 0; b--)
+        {
+            bytes[offset + b] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
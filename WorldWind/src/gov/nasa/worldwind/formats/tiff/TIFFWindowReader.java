@@ -0,0 +1,775 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.formats.tiff;
+
+import gov.nasa.worldwind.cache.BasicMemoryCache;
+import gov.nasa.worldwind.util.Logging;
+
+import java.awt.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.zip.*;
+
+/**
+ * This is a package private class that reads a window of a TIFF image, decoding only the strips or tiles the window
+ * intersects. It reads striped and tiled images, chunky or planar, with 8, 16, 32 or 64 bit samples, uncompressed or
+ * compressed with LZW, Deflate or PackBits, with or without a predictor.
+ * <p/>
+ * The strips or tiles are read through memory mapped regions of the file, so the file's size doesn't matter, and are
+ * decoded concurrently by the reading thread and a pool of decoding threads shared by all readers. Decoded strips and
+ * tiles are cached, so that reading adjacent windows decodes the strips or tiles they share once. The window's samples
+ * are returned pixel interleaved and big-endian.
+ *
+ * @author tag
+ * @version $Id$
+ */
+class TIFFWindowReader
+{
+    private static final int CLEAR_CODE = 256;
+    private static final int EOI_CODE = 257;
+
+    // Strips or tiles this close together in the file are mapped together, in regions up to the maximum size.
+    private static final long MAX_MAPPING_GAP = 1L << 20;
+    private static final long MAX_MAPPING_SIZE = 1L << 26;
+
+    private static final long THREAD_KEEP_ALIVE = 30; // seconds
+    // Decoded strips or tiles larger than a sixteenth of the cache are not cached.
+    private static final long DECODED_CHUNK_CACHE_SIZE = 1L << 26;
+    private static final long MAX_CACHED_CHUNK_SIZE = DECODED_CHUNK_CACHE_SIZE / 16;
+
+    private static ThreadPoolExecutor decodeExecutor;
+    private static final BasicMemoryCache decodedChunks = new BasicMemoryCache((long) (0.8 * DECODED_CHUNK_CACHE_SIZE),
+        DECODED_CHUNK_CACHE_SIZE);
+
+    private final FileChannel theChannel;
+    private final ByteOrder tiffFileOrder;
+    private final Object fileKey;
+
+    private final int width;
+    private final int height;
+    private final int samplesPerPixel;
+    private final int bytesPerSample;
+    private final boolean planar;
+    private final boolean tiled;
+    private final int chunkWidth;
+    private final int chunkHeight;
+    private final int chunksAcross;
+    private final int chunksDown;
+    private final long[] chunkOffsets;
+    private final long[] chunkCounts;
+    private final int compression;
+    private final int predictor;
+
+    /*
+     * The file key identifies the file's contents in the decoded strip and tile cache. Strips and tiles are not cached
+     * if it's null.
+     *
+     */
+    public TIFFWindowReader(FileChannel fileChannel, ByteOrder byteOrder, TiffIFDEntry[] ifd, BaselineTiff tiff,
+        Object fileKey) throws IOException
+    {
+        this.theChannel = fileChannel;
+        this.tiffFileOrder = byteOrder;
+        this.fileKey = fileKey;
+
+        long tileWidth = Tiff.Undefined;
+        long tileLength = Tiff.Undefined;
+        long[] offsets = null;
+        long[] counts = null;
+        long compressionValue = Tiff.Compression.NONE;
+        long predictorValue = Tiff.Predictor.NONE;
+
+        for (TiffIFDEntry entry : ifd)
+        {
+            switch (entry.tag)
+            {
+                case Tiff.Tag.TILE_WIDTH:
+                    tileWidth = entry.asLong();
+                    break;
+
+                case Tiff.Tag.TILE_LENGTH:
+                    tileLength = entry.asLong();
+                    break;
+
+                case Tiff.Tag.TILE_OFFSETS:
+                case Tiff.Tag.STRIP_OFFSETS:
+                    offsets = entry.getAsLongs();
+                    break;
+
+                case Tiff.Tag.TILE_COUNTS:
+                case Tiff.Tag.STRIP_BYTE_COUNTS:
+                    counts = entry.getAsLongs();
+                    break;
+
+                case Tiff.Tag.COMPRESSION:
+                    compressionValue = entry.asLong();
+                    break;
+
+                case Tiff.Tag.TIFF_PREDICTOR:
+                    predictorValue = entry.asLong();
+                    break;
+            }
+        }
+
+        this.width = tiff.width;
+        this.height = tiff.height;
+        this.samplesPerPixel = tiff.samplesPerPixel;
+        this.planar = tiff.planarConfig == Tiff.PlanarConfiguration.PLANAR && tiff.samplesPerPixel > 1;
+        this.tiled = tileWidth > 0 && tileLength > 0;
+        this.compression = (int) compressionValue;
+        this.predictor = (int) predictorValue;
+
+        // All samples must have the same size.
+        int bits = (null != tiff.bitsPerSample && tiff.bitsPerSample.length > 0) ? tiff.bitsPerSample[0] : 1;
+        for (int i = 1; null != tiff.bitsPerSample && i < tiff.bitsPerSample.length; i++)
+        {
+            if (tiff.bitsPerSample[i] != bits)
+                bits = Tiff.Undefined;
+        }
+
+        if (bits != 8 && bits != 16 && bits != 32 && bits != 64)
+        {
+            String message = Logging.getMessage("Geotiff.UnsupportedDataTypeRaster", tiff.toString());
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+        this.bytesPerSample = bits / 8;
+
+        if (this.compression != Tiff.Compression.NONE && this.compression != Tiff.Compression.LZW
+            && this.compression != Tiff.Compression.ADOBE_DEFLATE && this.compression != Tiff.Compression.DEFLATE
+            && this.compression != Tiff.Compression.PACKBITS)
+        {
+            String message = Logging.getMessage("GeotiffReader.CompressionFormatNotSupported");
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        if (this.tiled)
+        {
+            this.chunkWidth = (int) tileWidth;
+            this.chunkHeight = (int) tileLength;
+        }
+        else
+        {
+            // A missing RowsPerStrip means the image is one strip.
+            this.chunkWidth = this.width;
+            this.chunkHeight = (tiff.rowsPerStrip > 0 && tiff.rowsPerStrip < this.height) ? tiff.rowsPerStrip
+                : this.height;
+        }
+        this.chunksAcross = (this.width + this.chunkWidth - 1) / this.chunkWidth;
+        this.chunksDown = (this.height + this.chunkHeight - 1) / this.chunkHeight;
+
+        long numChunks = (long) this.chunksAcross * this.chunksDown * (this.planar ? this.samplesPerPixel : 1);
+        if (null == offsets || offsets.length < numChunks)
+        {
+            String message = Logging.getMessage("GeotiffReader.MissingRequiredTag",
+                this.tiled ? "TileOffsets" : "StripOffsets");
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        if (null == counts || counts.length < numChunks)
+        {
+            String message = Logging.getMessage("GeotiffReader.MissingRequiredTag",
+                this.tiled ? "TileByteCounts" : "StripByteCounts");
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+
+        this.chunkOffsets = offsets;
+        this.chunkCounts = counts;
+    }
+
+    public boolean isTiled()
+    {
+        return this.tiled;
+    }
+
+    /*
+     * Reads the samples of a window of the image. Only the strips or tiles the window intersects are decoded, on up to
+     * the specified number of threads including the calling thread.
+     *
+     */
+    public byte[] read(Rectangle window, int numThreads) throws IOException
+    {
+        long size = (long) window.width * window.height * this.samplesPerPixel * this.bytesPerSample;
+        if (window.x < 0 || window.y < 0 || window.width <= 0 || window.height <= 0
+            || window.x + window.width > this.width || window.y + window.height > this.height
+            || size > Integer.MAX_VALUE)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", window);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        byte[] samples = new byte[(int) size];
+
+        // Find the strips or tiles the window intersects, in each plane.
+        List<Integer> chunks = new ArrayList<Integer>();
+        int firstColumn = window.x / this.chunkWidth;
+        int lastColumn = (window.x + window.width - 1) / this.chunkWidth;
+        int firstRow = window.y / this.chunkHeight;
+        int lastRow = (window.y + window.height - 1) / this.chunkHeight;
+        for (int plane = 0; plane < (this.planar ? this.samplesPerPixel : 1); plane++)
+        {
+            for (int row = firstRow; row <= lastRow; row++)
+            {
+                for (int column = firstColumn; column <= lastColumn; column++)
+                {
+                    chunks.add((plane * this.chunksDown + row) * this.chunksAcross + column);
+                }
+            }
+        }
+
+        // Map only the strips or tiles that aren't already decoded. The decoded ones are held here so that they can't
+        // be evicted from the cache before they're copied.
+        Map<Integer, byte[]> decoded = new HashMap<Integer, byte[]>();
+        List<Integer> encoded = new ArrayList<Integer>(chunks.size());
+        for (Integer chunk : chunks)
+        {
+            byte[] bytes = this.getDecodedChunk(chunk);
+            if (null != bytes)
+                decoded.put(chunk, bytes);
+            else
+                encoded.add(chunk);
+        }
+
+        Map<Integer, ByteBuffer> chunkData = this.mapChunks(encoded);
+
+        if (numThreads <= 1 || encoded.size() <= 1)
+        {
+            for (Integer chunk : chunks)
+            {
+                this.decodeChunk(chunk, decoded.get(chunk), chunkData.get(chunk), window, samples);
+            }
+        }
+        else
+        {
+            this.decodeChunks(chunks, decoded, chunkData, window, samples, Math.min(numThreads, encoded.size()));
+        }
+
+        return samples;
+    }
+
+    protected static synchronized ExecutorService getDecodeExecutor()
+    {
+        if (decodeExecutor == null)
+        {
+            int numProcessors = Runtime.getRuntime().availableProcessors();
+            decodeExecutor = new ThreadPoolExecutor(numProcessors, numProcessors, THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new DecoderThreadFactory());
+            decodeExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        return decodeExecutor;
+    }
+
+    private static class DecoderThreadFactory implements ThreadFactory
+    {
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            thread.setName("TIFF Decoder");
+            return thread;
+        }
+    }
+
+    /*
+     * Decodes the strips or tiles on the calling thread and on up to one fewer than the specified number of the shared
+     * pool's threads. The pool's threads take strips or tiles that the calling thread hasn't, so the calling thread
+     * never waits for pool threads busy with other windows.
+     *
+     */
+    private void decodeChunks(final List<Integer> chunks, final Map<Integer, byte[]> decoded,
+        final Map<Integer, ByteBuffer> chunkData, final Rectangle window, final byte[] samples, int numThreads)
+        throws IOException
+    {
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch chunksDone = new CountDownLatch(chunks.size());
+
+        // Each chunk fills a distinct part of the samples. Once a chunk fails the rest are skipped.
+        Runnable decoder = new Runnable()
+        {
+            public void run()
+            {
+                int i;
+                while ((i = nextChunk.getAndIncrement()) < chunks.size())
+                {
+                    try
+                    {
+                        if (failure.get() == null)
+                        {
+                            Integer chunk = chunks.get(i);
+                            decodeChunk(chunk, decoded.get(chunk), chunkData.get(chunk), window, samples);
+                        }
+                    }
+                    catch (Throwable t)
+                    {
+                        failure.compareAndSet(null, t);
+                    }
+                    finally
+                    {
+                        chunksDone.countDown();
+                    }
+                }
+            }
+        };
+
+        ExecutorService executor = getDecodeExecutor();
+        for (int i = 1; i < numThreads; i++)
+        {
+            executor.execute(decoder);
+        }
+        decoder.run();
+
+        try
+        {
+            chunksDone.await();
+        }
+        catch (InterruptedException e)
+        {
+            failure.compareAndSet(null, e);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+
+        Throwable cause = failure.get();
+        if (cause instanceof IOException)
+            throw (IOException) cause;
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        if (cause != null)
+            throw new IOException(cause.getMessage());
+    }
+
+    private byte[] getDecodedChunk(int chunk)
+    {
+        return null != this.fileKey ? (byte[]) decodedChunks.getObject(new ChunkKey(this.fileKey,
+            this.chunkOffsets[chunk])) : null;
+    }
+
+    private void putDecodedChunk(int chunk, byte[] bytes)
+    {
+        if (null != this.fileKey && bytes.length <= MAX_CACHED_CHUNK_SIZE)
+            decodedChunks.add(new ChunkKey(this.fileKey, this.chunkOffsets[chunk]), bytes, bytes.length);
+    }
+
+    /** Identifies a strip or tile in the decoded strip and tile cache by its file and its offset in the file. */
+    private static class ChunkKey
+    {
+        private final Object fileKey;
+        private final long offset;
+
+        public ChunkKey(Object fileKey, long offset)
+        {
+            this.fileKey = fileKey;
+            this.offset = offset;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (o == null || this.getClass() != o.getClass())
+                return false;
+
+            ChunkKey that = (ChunkKey) o;
+            return this.offset == that.offset && this.fileKey.equals(that.fileKey);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * this.fileKey.hashCode() + (int) (this.offset ^ (this.offset >>> 32));
+        }
+    }
+
+    /*
+     * Maps the file regions holding the strips or tiles, and returns each one's data. Strips or tiles near each other
+     * share a region. Strips or tiles absent from a sparse file have no data.
+     *
+     */
+    private Map<Integer, ByteBuffer> mapChunks(List<Integer> chunks) throws IOException
+    {
+        List<Integer> present = new ArrayList<Integer>(chunks.size());
+        for (Integer chunk : chunks)
+        {
+            if (this.chunkOffsets[chunk] > 0 && this.chunkCounts[chunk] > 0)
+                present.add(chunk);
+        }
+
+        Collections.sort(present, new Comparator<Integer>()
+        {
+            public int compare(Integer a, Integer b)
+            {
+                long difference = chunkOffsets[a] - chunkOffsets[b];
+                return difference < 0 ? -1 : difference > 0 ? 1 : 0;
+            }
+        });
+
+        long fileSize = this.theChannel.size();
+        Map<Integer, ByteBuffer> chunkData = new HashMap<Integer, ByteBuffer>();
+
+        int first = 0;
+        while (first < present.size())
+        {
+            long start = this.chunkOffsets[present.get(first)];
+            long end = start + this.chunkCounts[present.get(first)];
+            int last = first;
+
+            while (last + 1 < present.size())
+            {
+                long nextStart = this.chunkOffsets[present.get(last + 1)];
+                long nextEnd = nextStart + this.chunkCounts[present.get(last + 1)];
+                if (nextStart - end > MAX_MAPPING_GAP || Math.max(end, nextEnd) - start > MAX_MAPPING_SIZE)
+                    break;
+
+                end = Math.max(end, nextEnd);
+                last++;
+            }
+
+            if (end > fileSize || end - start > Integer.MAX_VALUE)
+            {
+                String message = Logging.getMessage("generic.InvalidFileLength", fileSize);
+                Logging.logger().severe(message);
+                throw new IOException(message);
+            }
+
+            MappedByteBuffer region = this.theChannel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            for (int i = first; i <= last; i++)
+            {
+                int chunk = present.get(i);
+                ByteBuffer data = region.duplicate();
+                data.position((int) (this.chunkOffsets[chunk] - start));
+                data.limit(data.position() + (int) this.chunkCounts[chunk]);
+                chunkData.put(chunk, data.slice());
+            }
+
+            first = last + 1;
+        }
+
+        return chunkData;
+    }
+
+    private void decodeChunk(int chunk, byte[] bytes, ByteBuffer data, Rectangle window, byte[] samples)
+        throws IOException
+    {
+        int chunksPerPlane = this.chunksAcross * this.chunksDown;
+        int plane = chunk / chunksPerPlane;
+        int x0 = (chunk % chunksPerPlane % this.chunksAcross) * this.chunkWidth;
+        int y0 = (chunk % chunksPerPlane / this.chunksAcross) * this.chunkHeight;
+
+        // Tiles are always whole; the last strip holds only the image's remaining rows.
+        int rows = this.tiled ? this.chunkHeight : Math.min(this.chunkHeight, this.height - y0);
+        int pixelSamples = this.planar ? 1 : this.samplesPerPixel;
+        int rowBytes = this.chunkWidth * pixelSamples * this.bytesPerSample;
+
+        if (null == bytes)
+        {
+            bytes = new byte[rowBytes * rows];
+            if (null != data)
+            {
+                this.decompress(data, bytes);
+                this.undoPredictor(bytes, rowBytes, pixelSamples);
+                this.putDecodedChunk(chunk, bytes);
+            }
+        }
+
+        // Copy the part of the strip or tile within the window.
+        int wx0 = Math.max(x0, window.x);
+        int wx1 = Math.min(x0 + this.chunkWidth, window.x + window.width);
+        int wy0 = Math.max(y0, window.y);
+        int wy1 = Math.min(y0 + rows, window.y + window.height);
+        int pixelBytes = this.samplesPerPixel * this.bytesPerSample;
+        boolean swap = this.tiffFileOrder == ByteOrder.LITTLE_ENDIAN && this.bytesPerSample > 1;
+
+        for (int y = wy0; y < wy1; y++)
+        {
+            int src = (y - y0) * rowBytes + (wx0 - x0) * pixelSamples * this.bytesPerSample;
+            int dst = ((y - window.y) * window.width + (wx0 - window.x)) * pixelBytes;
+
+            if (!this.planar && !swap)
+            {
+                System.arraycopy(bytes, src, samples, dst, (wx1 - wx0) * pixelBytes);
+                continue;
+            }
+
+            if (this.planar)
+                dst += plane * this.bytesPerSample;
+            int dstStride = this.planar ? pixelBytes : this.bytesPerSample;
+
+            for (int i = 0; i < (wx1 - wx0) * pixelSamples; i++, src += this.bytesPerSample, dst += dstStride)
+            {
+                for (int b = 0; b < this.bytesPerSample; b++)
+                {
+                    samples[dst + b] = bytes[swap ? src + this.bytesPerSample - 1 - b : src + b];
+                }
+            }
+        }
+    }
+
+    private void decompress(ByteBuffer data, byte[] bytes) throws IOException
+    {
+        switch (this.compression)
+        {
+            case Tiff.Compression.LZW:
+                lzwUncompress(data, bytes);
+                break;
+
+            case Tiff.Compression.ADOBE_DEFLATE:
+            case Tiff.Compression.DEFLATE:
+                inflate(data, bytes);
+                break;
+
+            case Tiff.Compression.PACKBITS:
+                packBitsUncompress(data, bytes);
+                break;
+
+            default:
+                data.get(bytes, 0, Math.min(data.remaining(), bytes.length));
+                break;
+        }
+    }
+
+    private void undoPredictor(byte[] bytes, int rowBytes, int pixelSamples)
+    {
+        if (this.predictor == Tiff.Predictor.HORIZONTAL_DIFFERENCING)
+        {
+            int stride = pixelSamples * this.bytesPerSample;
+            for (int row = 0; row < bytes.length; row += rowBytes)
+            {
+                for (int i = row + stride; i < row + rowBytes; i += this.bytesPerSample)
+                {
+                    this.putSample(bytes, i, this.getSample(bytes, i) + this.getSample(bytes, i - stride));
+                }
+            }
+        }
+        else if (this.predictor == Tiff.Predictor.FLOATING_POINT)
+        {
+            // Each row's bytes are differenced, then arranged with the most significant bytes of all samples first.
+            int numSamples = rowBytes / this.bytesPerSample;
+            byte[] row = new byte[rowBytes];
+            for (int start = 0; start < bytes.length; start += rowBytes)
+            {
+                System.arraycopy(bytes, start, row, 0, rowBytes);
+                for (int i = pixelSamples; i < rowBytes; i++)
+                {
+                    row[i] += row[i - pixelSamples];
+                }
+
+                for (int i = 0; i < numSamples; i++)
+                {
+                    for (int b = 0; b < this.bytesPerSample; b++)
+                    {
+                        int significance = (this.tiffFileOrder == ByteOrder.BIG_ENDIAN) ? b
+                            : this.bytesPerSample - 1 - b;
+                        bytes[start + i * this.bytesPerSample + b] = row[significance * numSamples + i];
+                    }
+                }
+            }
+        }
+    }
+
+    private long getSample(byte[] bytes, int offset)
+    {
+        long value = 0;
+        for (int b = 0; b < this.bytesPerSample; b++)
+        {
+            int index = (this.tiffFileOrder == ByteOrder.BIG_ENDIAN) ? offset + b
+                : offset + this.bytesPerSample - 1 - b;
+            value = (value << 8) | (bytes[index] & 0xFF);
+        }
+        return value;
+    }
+
+    private void putSample(byte[] bytes, int offset, long value)
+    {
+        for (int b = this.bytesPerSample - 1; b >= 0; b--)
+        {
+            int index = (this.tiffFileOrder == ByteOrder.BIG_ENDIAN) ? offset + b
+                : offset + this.bytesPerSample - 1 - b;
+            bytes[index] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    static void inflate(ByteBuffer data, byte[] bytes) throws IOException
+    {
+        byte[] input = new byte[data.remaining()];
+        data.get(input);
+
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(input);
+
+            int length = 0;
+            while (length < bytes.length)
+            {
+                int count = inflater.inflate(bytes, length, bytes.length - length);
+                if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary()))
+                    break;
+                length += count;
+            }
+        }
+        catch (DataFormatException e)
+        {
+            String message = Logging.getMessage("GeotiffReader.BadCompressedData", e.getMessage());
+            Logging.logger().severe(message);
+            throw new IOException(message);
+        }
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    static void packBitsUncompress(ByteBuffer data, byte[] bytes)
+    {
+        int length = 0;
+        while (data.hasRemaining() && length < bytes.length)
+        {
+            int n = data.get();
+            if (n >= 0)
+            {
+                // the next n + 1 bytes literally
+                int count = Math.min(Math.min(n + 1, bytes.length - length), data.remaining());
+                data.get(bytes, length, count);
+                length += count;
+            }
+            else if (n != -128 && data.hasRemaining())
+            {
+                // the next byte -n + 1 times
+                int count = Math.min(1 - n, bytes.length - length);
+                Arrays.fill(bytes, length, length + count, data.get());
+                length += count;
+            }
+        }
+    }
+
+    /*
+     * Decodes TIFF LZW: codes are most significant bit first, and grow a bit wide one code early.
+     *
+     */
+    static void lzwUncompress(ByteBuffer data, byte[] bytes) throws IOException
+    {
+        int[] prefix = new int[4096];
+        byte[] suffix = new byte[4096];
+        byte[] initial = new byte[4096];
+        int[] lengths = new int[4096];
+        for (int i = 0; i < 256; i++)
+        {
+            suffix[i] = (byte) i;
+            initial[i] = (byte) i;
+            lengths[i] = 1;
+        }
+
+        int nextCode = 258;
+        int codeWidth = 9;
+        int oldCode = -1;
+        int length = 0;
+        long bits = 0;
+        int numBits = 0;
+
+        while (length < bytes.length)
+        {
+            while (numBits < codeWidth && data.hasRemaining())
+            {
+                bits = (bits << 8) | (data.get() & 0xFF);
+                numBits += 8;
+            }
+            if (numBits < codeWidth)
+                break;
+
+            int code = (int) (bits >>> (numBits - codeWidth)) & ((1 << codeWidth) - 1);
+            numBits -= codeWidth;
+
+            if (code == EOI_CODE)
+                break;
+
+            if (code == CLEAR_CODE)
+            {
+                nextCode = 258;
+                codeWidth = 9;
+                oldCode = -1;
+                continue;
+            }
+
+            if (oldCode == -1)
+            {
+                if (code > 255)
+                    throw createBadDataException("LZW");
+
+                bytes[length++] = (byte) code;
+                oldCode = code;
+                continue;
+            }
+
+            byte first;
+            if (code < nextCode)
+            {
+                length = putLZWString(code, prefix, suffix, lengths, bytes, length);
+                first = initial[code];
+            }
+            else if (code == nextCode)
+            {
+                length = putLZWString(oldCode, prefix, suffix, lengths, bytes, length);
+                first = initial[oldCode];
+                if (length < bytes.length)
+                    bytes[length] = first;
+                length++;
+            }
+            else
+            {
+                throw createBadDataException("LZW");
+            }
+
+            if (nextCode < 4096)
+            {
+                prefix[nextCode] = oldCode;
+                suffix[nextCode] = first;
+                initial[nextCode] = initial[oldCode];
+                lengths[nextCode] = lengths[oldCode] + 1;
+                nextCode++;
+            }
+
+            if (nextCode + 1 >= (1 << codeWidth) && codeWidth < 12)
+                codeWidth++;
+
+            oldCode = code;
+        }
+    }
+
+    private static int putLZWString(int code, int[] prefix, byte[] suffix, int[] lengths, byte[] bytes, int offset)
+    {
+        int end = offset + lengths[code];
+        for (int i = end - 1; i >= offset; i--)
+        {
+            if (i < bytes.length)
+                bytes[i] = suffix[code];
+            code = prefix[code];
+        }
+        return end;
+    }
+
+    private static IOException createBadDataException(String compression)
+    {
+        String message = Logging.getMessage("GeotiffReader.BadCompressedData", compression);
+        Logging.logger().severe(message);
+        return new IOException(message);
+    }
+}
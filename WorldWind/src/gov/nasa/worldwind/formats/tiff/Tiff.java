@@ -27,11 +27,16 @@ public interface Tiff
         public static final int SRATIONAL = 10;
         public static final int FLOAT = 11;
         public static final int DOUBLE = 12;
+        // BigTIFF types...
+        public static final int LONG8 = 16;
+        public static final int SLONG8 = 17;
+        public static final int IFD8 = 18;
     }
 
     public interface Tag
     {
         // Baseline Tiff 6.0 tags...
+        public static final int NEW_SUBFILE_TYPE = 254;
         public static final int IMAGE_WIDTH = 256;
         public static final int IMAGE_LENGTH = 257;
         public static final int BITS_PER_SAMPLE = 258;
@@ -68,6 +73,7 @@ public interface Tiff
         public static final int TILE_COUNTS = 325;
 
         // Tiff extensions...
+        public static final int EXTRA_SAMPLES = 338;
         public static final int SAMPLE_FORMAT = 339;  // SHORT array of samplesPerPixel size
     }
 
@@ -191,7 +197,29 @@ public interface Tiff
         public static final int NONE = 1;
         public static final int LZW = 5;
         public static final int JPEG = 6;
+        public static final int ADOBE_DEFLATE = 8;
         public static final int PACKBITS = 32773;
+        public static final int DEFLATE = 32946;
+    }
+
+    public interface Predictor
+    {
+        public static final int NONE = 1;
+        public static final int HORIZONTAL_DIFFERENCING = 2;
+        public static final int FLOATING_POINT = 3;
+    }
+
+    public interface NewSubfileType
+    {
+        public static final int FULL_RESOLUTION = 0;
+        public static final int REDUCED_RESOLUTION = 1;
+    }
+
+    public interface ExtraSamples
+    {
+        public static final int UNSPECIFIED = 0;
+        public static final int ASSOCIATED_ALPHA = 1;
+        public static final int UNASSOCIATED_ALPHA = 2;
     }
 
     public interface PlanarConfiguration
@@ -36,7 +36,8 @@ public class TiffIFDEntry implements Comparable<TiffIFDEntry> {
     }
 
     public long asLong() throws IllegalStateException {
-        if (this.type != Tiff.Type.SHORT && this.type != Tiff.Type.LONG)
+        if (this.type != Tiff.Type.SHORT && this.type != Tiff.Type.LONG && this.type != Tiff.Type.LONG8
+            && this.type != Tiff.Type.IFD8)
             throw new IllegalStateException("Attempt to access Tiff IFD-entry as int: tag/type="
                     + Long.toHexString(tag) + "/" + type);
 
@@ -145,7 +146,8 @@ public class TiffIFDEntry implements Comparable<TiffIFDEntry> {
     }
 
     public long[] getAsLongs() {
-        if (this.type != Tiff.Type.SHORT && this.type != Tiff.Type.LONG) {
+        if (this.type != Tiff.Type.SHORT && this.type != Tiff.Type.LONG && this.type != Tiff.Type.LONG8
+            && this.type != Tiff.Type.IFD8) {
             String message = Logging.getMessage("GeotiffReader.InvalidType", "long", this.tag, this.type);
             Logging.logger().severe(message);
             throw new IllegalArgumentException(message);
@@ -171,6 +173,10 @@ public class TiffIFDEntry implements Comparable<TiffIFDEntry> {
                 while (sb.hasRemaining()) {
                     array[i++] = 0xFFFFFFFFL & sb.get();
                 }
+            } else {
+                LongBuffer sb = ((ByteBuffer) this.data.rewind()).asLongBuffer();
+                this.data.rewind();
+                sb.get(array);
             }
             return array;
         }
@@ -282,6 +288,13 @@ public class TiffIFDEntry implements Comparable<TiffIFDEntry> {
         return valOffset;
     }
 
+    /*
+     * Returns the entry's values, or null if they were not read. Values that fit in the entry are held here too.
+     */
+    ByteBuffer getData() {
+        return (null != this.data) ? ((ByteBuffer) this.data.duplicate().rewind()).order(this.data.order()) : null;
+    }
+
     // package visibility is intended...
     int tag;
     int type;
@@ -0,0 +1,421 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.geom.coords;
+
+import gov.nasa.worldwind.avlist.AVKey;
+import gov.nasa.worldwind.globes.Globe;
+import gov.nasa.worldwind.util.Logging;
+
+import java.util.Arrays;
+
+/**
+ * Converts arrays of geographic locations to MGRS coordinate strings. The conversion is that of {@link MGRSCoord}, but
+ * operates on packed arrays of doubles and writes the strings into a caller supplied character array, creating no
+ * objects per location within the UTM region. Locations in the polar regions are converted via {@link
+ * UPSCoordConverter}.
+ * <p/>
+ * Geographic locations are packed as latitude and longitude in degrees, two values per location. Each MGRS string has
+ * the form of {@link MGRSCoord#toString()}, such as <code>31UDQ 48251 11932</code>, and has a fixed length for a given
+ * precision, which is returned by {@link #getMGRSLength(int)}. The strings are written one after the other, without
+ * separators. The string of a location that can't be converted is filled with spaces.
+ * <p/>
+ * A single converter may be used by any number of threads at once. Threads converting locations in the polar regions
+ * take turns with the converter's UPS converter.
+ *
+ * @author tag
+ * @version $Id$
+ * @see UTMBatchConverter
+ */
+public class MGRSBatchConverter
+{
+    protected static final double PI = 3.14159265358979323;
+    protected static final double DEGREES_TO_RADIANS = Math.PI / 180d;
+    protected static final double RAD_TO_DEG = 57.29577951308232087;
+    protected static final double MIN_UTM_LAT = (-80 * PI) / 180.0;
+    protected static final double MAX_UTM_LAT = (84 * PI) / 180.0;
+    protected static final int MAX_PRECISION = 5;
+    protected static final double MIN_EAST_NORTH = 0;
+    protected static final double MAX_EAST_NORTH = 4000000;
+    protected static final double TWOMIL = 2000000;
+    protected static final double ONEHT = 100000;
+    protected static final double[] DIVISORS = {1e5, 1e4, 1e3, 1e2, 1e1, 1e0};
+
+    protected static final int LETTER_A = 0;
+    protected static final int LETTER_B = 1;
+    protected static final int LETTER_C = 2;
+    protected static final int LETTER_H = 7;
+    protected static final int LETTER_J = 9;
+    protected static final int LETTER_L = 11;
+    protected static final int LETTER_N = 13;
+    protected static final int LETTER_S = 18;
+    protected static final int LETTER_U = 20;
+    protected static final int LETTER_V = 21;
+    protected static final int LETTER_X = 23;
+    protected static final int LETTER_Y = 24;
+    protected static final int LETTER_Z = 25;
+
+    /** The latitude band letters, from 80 degrees south in steps of 8 degrees. */
+    protected static final int[] LATITUDE_BANDS = {
+        2, 3, 4, 5, 6, 7, 9, 10, 11, 12, 13, 15, 16, 17, 18, 19, 20, 21, 22, 23};
+
+    /** The 2nd letter low values, false eastings and false northings of the UPS letters A, B, Y and Z. */
+    protected static final int[] UPS_LTR2_LOW_VALUES = {LETTER_J, LETTER_A, LETTER_J, LETTER_A};
+    protected static final double[] UPS_FALSE_EASTINGS = {800000, 2000000, 800000, 2000000};
+    protected static final double[] UPS_FALSE_NORTHINGS = {800000, 800000, 1300000, 1300000};
+
+    protected final Globe globe;
+    protected final UTMBatchConverter utmConverter;
+    /** Converts locations in the polar regions. Holds its last result, so is used by one thread at a time. */
+    protected final UPSCoordConverter upsConverter;
+
+    /** Creates a converter for the WGS84 ellipsoid. */
+    public MGRSBatchConverter()
+    {
+        this(null);
+    }
+
+    /**
+     * Creates a converter for the ellipsoid of a specified globe.
+     *
+     * @param globe the globe. May be null, in which case the WGS84 ellipsoid is used.
+     *
+     * @throws IllegalArgumentException if the globe's flattening isn't that of an Earth ellipsoid.
+     */
+    public MGRSBatchConverter(Globe globe)
+    {
+        this.globe = globe;
+        this.utmConverter = new UTMBatchConverter(globe);
+        this.upsConverter = new UPSCoordConverter(globe);
+    }
+
+    /**
+     * Returns the length of the MGRS strings written for a specified precision.
+     *
+     * @param precision the number of digits of the easting and northing, from 1 to 5.
+     *
+     * @return the number of characters in each MGRS string.
+     *
+     * @throws IllegalArgumentException if the precision is out of range.
+     */
+    public static int getMGRSLength(int precision)
+    {
+        checkPrecision(precision);
+
+        return 7 + 2 * precision;
+    }
+
+    /**
+     * Converts geographic locations to MGRS strings.
+     *
+     * @param latLons   the locations to convert, packed as latitude and longitude in degrees. Must hold at least
+     *                  <code>2 x count</code> values.
+     * @param count     the number of locations to convert.
+     * @param precision the number of digits of the easting and northing, from 1 to 5.
+     * @param chars     the array in which to write the strings. Must hold at least <code>count x
+     *                  getMGRSLength(precision)</code> characters.
+     *
+     * @return the number of locations converted.
+     *
+     * @throws IllegalArgumentException if either array is null or too short, the count is less than zero, or the
+     *                                  precision is out of range.
+     */
+    public int convertLatLonToMGRS(double[] latLons, int count, int precision, char[] chars)
+    {
+        if (latLons == null || chars == null)
+        {
+            String message = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (count < 0)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", count);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        int length = getMGRSLength(precision);
+        if (latLons.length < 2 * count || chars.length < length * count)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength",
+                latLons.length < 2 * count ? latLons.length : chars.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        double[] utm = new double[4];
+        int numConverted = 0;
+        for (int i = 0; i < count; i++)
+        {
+            double lat = DEGREES_TO_RADIANS * latLons[2 * i];
+            double lon = DEGREES_TO_RADIANS * latLons[2 * i + 1];
+
+            if (this.convertGeodeticToMGRS(lat, lon, precision, utm, chars, i * length))
+                numConverted++;
+            else
+                Arrays.fill(chars, i * length, (i + 1) * length, ' ');
+        }
+
+        return numConverted;
+    }
+
+    /**
+     * Converts a geographic location to an MGRS string.
+     *
+     * @param latitude  the latitude, in degrees.
+     * @param longitude the longitude, in degrees.
+     * @param precision the number of digits of the easting and northing, from 1 to 5.
+     * @param chars     the array in which to write the string.
+     * @param offset    the index in the array at which to write the string. The array must hold at least
+     *                  <code>getMGRSLength(precision)</code> characters from this index.
+     *
+     * @return true if the location was converted, false if it can't be. The array is unmodified if the location isn't
+     *         converted.
+     *
+     * @throws IllegalArgumentException if the array is null or too short, or the precision is out of range.
+     */
+    public boolean convertLatLonToMGRS(double latitude, double longitude, int precision, char[] chars, int offset)
+    {
+        if (chars == null)
+        {
+            String message = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (offset < 0 || offset + getMGRSLength(precision) > chars.length)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength", chars.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        return this.convertGeodeticToMGRS(DEGREES_TO_RADIANS * latitude, DEGREES_TO_RADIANS * longitude, precision,
+            new double[4], chars, offset);
+    }
+
+    /**
+     * Converts a geographic location to an MGRS string in the same way as {@link MGRSCoordConverter}.
+     *
+     * @param latitude  the latitude, in radians.
+     * @param longitude the longitude, in radians.
+     * @param precision the number of digits of the easting and northing.
+     * @param utm       a four element array used to hold the location's UTM coordinates.
+     * @param chars     the array in which to write the string.
+     * @param offset    the index in the array at which to write the string.
+     *
+     * @return true if the location was converted, otherwise false.
+     */
+    protected boolean convertGeodeticToMGRS(double latitude, double longitude, int precision, double[] utm,
+        char[] chars, int offset)
+    {
+        if (!(latitude >= -PI / 2 && latitude <= PI / 2) || !(longitude >= -PI && longitude <= 2 * PI))
+            return false;
+
+        if (latitude < MIN_UTM_LAT || latitude > MAX_UTM_LAT)
+        {
+            boolean north;
+            double easting, northing;
+            synchronized (this.upsConverter)
+            {
+                if (this.upsConverter.convertGeodeticToUPS(latitude, longitude) != UPSCoordConverter.UPS_NO_ERROR)
+                    return false;
+
+                north = AVKey.NORTH.equals(this.upsConverter.getHemisphere());
+                easting = this.upsConverter.getEasting();
+                northing = this.upsConverter.getNorthing();
+            }
+
+            return convertUPSToMGRS(north, easting, northing, precision, chars, offset);
+        }
+
+        if (!this.utmConverter.convertGeodeticToUTM(latitude, longitude, utm, 0))
+            return false;
+
+        return convertUTMToMGRS((int) utm[0], latitude, utm[2], utm[3], precision, chars, offset);
+    }
+
+    protected static boolean convertUTMToMGRS(int zone, double latitude, double easting, double northing,
+        int precision, char[] chars, int offset)
+    {
+        double divisor = DIVISORS[precision];
+        easting = roundMGRS(easting / divisor) * divisor;
+        northing = roundMGRS(northing / divisor) * divisor;
+
+        // The 2nd letter range and the false northing of the 3rd letter depend on the zone's set number.
+        int setNumber = zone % 6;
+        if (setNumber == 0)
+            setNumber = 6;
+        int ltr2LowValue = (setNumber == 1 || setNumber == 4) ? LETTER_A
+            : (setNumber == 2 || setNumber == 5) ? LETTER_J : LETTER_S;
+        double falseNorthing = (setNumber % 2) == 0 ? 500000.0 : 0.0;
+
+        int letter0;
+        double latDegrees = latitude * RAD_TO_DEG;
+        if (latDegrees >= 72 && latDegrees < 84.5)
+            letter0 = LETTER_X;
+        else if (latDegrees > -80.5 && latDegrees < 72)
+            letter0 = LATITUDE_BANDS[(int) (((latitude + (80.0 * DEGREES_TO_RADIANS)) / (8.0 * DEGREES_TO_RADIANS)) + 1.0e-12)];
+        else
+            return false;
+
+        double gridNorthing = northing;
+        if (gridNorthing == 1.e7)
+            gridNorthing = gridNorthing - 1.0;
+        while (gridNorthing >= TWOMIL)
+        {
+            gridNorthing = gridNorthing - TWOMIL;
+        }
+        gridNorthing = gridNorthing + falseNorthing;
+        if (gridNorthing >= TWOMIL)
+            gridNorthing = gridNorthing - TWOMIL;
+
+        int letter2 = (int) (gridNorthing / ONEHT);
+        if (letter2 > LETTER_H)
+            letter2++;
+        if (letter2 > LETTER_N)
+            letter2++;
+
+        double gridEasting = easting;
+        if (letter0 == LETTER_V && zone == 31 && gridEasting == 500000.0)
+            gridEasting = gridEasting - 1.0;
+
+        int letter1 = ltr2LowValue + ((int) (gridEasting / ONEHT) - 1);
+        if (ltr2LowValue == LETTER_J && letter1 > LETTER_N)
+            letter1++;
+
+        return makeMGRSString(zone, letter0, letter1, letter2, easting, northing, precision, chars, offset);
+    }
+
+    protected static boolean convertUPSToMGRS(boolean north, double easting, double northing, int precision,
+        char[] chars, int offset)
+    {
+        if (easting < MIN_EAST_NORTH || easting > MAX_EAST_NORTH || northing < MIN_EAST_NORTH
+            || northing > MAX_EAST_NORTH)
+            return false;
+
+        double divisor = DIVISORS[precision];
+        easting = roundMGRS(easting / divisor) * divisor;
+        northing = roundMGRS(northing / divisor) * divisor;
+
+        int letter0;
+        int index;
+        if (north)
+        {
+            letter0 = easting >= TWOMIL ? LETTER_Z : LETTER_Y;
+            index = letter0 - 22;
+        }
+        else
+        {
+            letter0 = easting >= TWOMIL ? LETTER_B : LETTER_A;
+            index = letter0;
+        }
+
+        int letter2 = (int) ((northing - UPS_FALSE_NORTHINGS[index]) / ONEHT);
+        if (letter2 > LETTER_H)
+            letter2++;
+        if (letter2 > LETTER_N)
+            letter2++;
+
+        int letter1 = UPS_LTR2_LOW_VALUES[index] + ((int) ((easting - UPS_FALSE_EASTINGS[index]) / ONEHT));
+        if (easting < TWOMIL)
+        {
+            if (letter1 > LETTER_L)
+                letter1 += 3;
+            if (letter1 > LETTER_U)
+                letter1 += 2;
+        }
+        else
+        {
+            if (letter1 > LETTER_C)
+                letter1 += 2;
+            if (letter1 > LETTER_H)
+                letter1 += 1;
+            if (letter1 > LETTER_L)
+                letter1 += 3;
+        }
+
+        return makeMGRSString(0, letter0, letter1, letter2, easting, northing, precision, chars, offset);
+    }
+
+    protected static boolean makeMGRSString(int zone, int letter0, int letter1, int letter2, double easting,
+        double northing, int precision, char[] chars, int offset)
+    {
+        if (letter0 < 0 || letter0 > 25 || letter1 < 0 || letter1 > 25 || letter2 < 0 || letter2 > 25)
+            return false;
+
+        if (zone != 0)
+        {
+            chars[offset] = (char) ('0' + zone / 10);
+            chars[offset + 1] = (char) ('0' + zone % 10);
+        }
+        else
+        {
+            chars[offset] = ' ';
+            chars[offset + 1] = ' ';
+        }
+
+        chars[offset + 2] = (char) ('A' + letter0);
+        chars[offset + 3] = (char) ('A' + letter1);
+        chars[offset + 4] = (char) ('A' + letter2);
+
+        double divisor = DIVISORS[precision];
+        chars[offset + 5] = ' ';
+        writeDigits(truncate(easting, divisor), precision, chars, offset + 6);
+        chars[offset + 6 + precision] = ' ';
+        writeDigits(truncate(northing, divisor), precision, chars, offset + 7 + precision);
+
+        return true;
+    }
+
+    protected static long truncate(double value, double divisor)
+    {
+        value = value % 100000.0;
+        if (value >= 99999.5)
+            value = 99999.0;
+
+        return (long) (value / divisor);
+    }
+
+    protected static void writeDigits(long value, int numDigits, char[] chars, int offset)
+    {
+        for (int i = offset + numDigits - 1; i >= offset; i--)
+        {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    /**
+     * Rounds a value to the nearest integer, rounding halves to even.
+     *
+     * @param value the value to round.
+     *
+     * @return the rounded value.
+     */
+    protected static double roundMGRS(double value)
+    {
+        double ivalue = Math.floor(value);
+        long ival = (long) ivalue;
+        double fraction = value - ivalue;
+
+        if ((fraction > 0.5) || ((fraction == 0.5) && (ival % 2 == 1)))
+            ival++;
+
+        return (double) ival;
+    }
+
+    protected static void checkPrecision(int precision)
+    {
+        if (precision < 1 || precision > MAX_PRECISION)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", precision);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
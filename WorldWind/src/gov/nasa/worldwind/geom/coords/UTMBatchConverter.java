@@ -0,0 +1,505 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.geom.coords;
+
+import gov.nasa.worldwind.globes.Globe;
+import gov.nasa.worldwind.util.Logging;
+
+/**
+ * Converts arrays of geographic locations to and from UTM coordinates. The conversions are those of {@link UTMCoord},
+ * but operate on packed arrays of doubles and create no objects per location, which makes them suited to converting
+ * large numbers of locations.
+ * <p/>
+ * Geographic locations are packed as latitude and longitude in degrees, two values per location. UTM coordinates are
+ * packed as zone, hemisphere, easting and northing, four values per location, with the hemisphere given as {@link
+ * #NORTH} or {@link #SOUTH}. Locations that can't be converted are given the value <code>NaN</code> for each of their
+ * coordinates.
+ * <p/>
+ * The ellipsoid constants are computed once, when the converter is created, and the converter holds no other state, so
+ * a single converter may be used by any number of threads at once.
+ *
+ * @author tag
+ * @version $Id$
+ * @see MGRSBatchConverter
+ */
+public class UTMBatchConverter
+{
+    /** Indicates a UTM coordinate in the northern hemisphere. */
+    public static final int NORTH = 1;
+    /** Indicates a UTM coordinate in the southern hemisphere. */
+    public static final int SOUTH = -1;
+
+    protected static final double PI = 3.14159265358979323;
+    protected static final double DEGREES_TO_RADIANS = Math.PI / 180d;
+    protected static final double RADIANS_TO_DEGREES = 180d / Math.PI;
+    protected static final double MIN_LAT = (-82 * PI) / 180.0;
+    protected static final double MAX_LAT = (86 * PI) / 180.0;
+    protected static final double MIN_EASTING = 100000;
+    protected static final double MAX_EASTING = 900000;
+    protected static final double MIN_NORTHING = 0;
+    protected static final double MAX_NORTHING = 10000000;
+    protected static final double FALSE_EASTING = 500000;
+    protected static final double FALSE_NORTHING_SOUTH = 10000000;
+    protected static final double SCALE = 0.9996;
+    /** The latitude and longitude difference used to determine the range of valid eastings and northings. */
+    protected static final double MAX_TM_LAT = (PI * 89.99) / 180.0;
+    protected static final double MAX_TM_DELTA_LONG = (PI * 90) / 180.0;
+
+    /** The ellipsoid's semi-major axis and flattening. */
+    protected final double a;
+    protected final double f;
+    /** The ellipsoid's eccentricity squared and second eccentricity squared. */
+    protected final double es;
+    protected final double ebs;
+    /** The meridional distance constants. */
+    protected final double ap;
+    protected final double bp;
+    protected final double cp;
+    protected final double dp;
+    protected final double ep;
+    /** The largest easting and northing distances from the false origin that may be converted to geographic. */
+    protected final double deltaEasting;
+    protected final double deltaNorthing;
+
+    /** Creates a converter for the WGS84 ellipsoid. */
+    public UTMBatchConverter()
+    {
+        this(UTMCoordConverter.WGS84_A, UTMCoordConverter.WGS84_F);
+    }
+
+    /**
+     * Creates a converter for the ellipsoid of a specified globe.
+     *
+     * @param globe the globe. May be null, in which case the WGS84 ellipsoid is used.
+     *
+     * @throws IllegalArgumentException if the globe's flattening isn't that of an Earth ellipsoid.
+     */
+    public UTMBatchConverter(Globe globe)
+    {
+        this(globe != null ? globe.getEquatorialRadius() : UTMCoordConverter.WGS84_A,
+            globe != null ? (globe.getEquatorialRadius() - globe.getPolarRadius()) / globe.getEquatorialRadius()
+                : UTMCoordConverter.WGS84_F);
+    }
+
+    /**
+     * Creates a converter for an ellipsoid with a specified semi-major axis and flattening.
+     *
+     * @param a the semi-major axis, in meters.
+     * @param f the flattening. The inverse flattening must lie between 250 and 350.
+     *
+     * @throws IllegalArgumentException if the semi-major axis is not positive or the flattening is out of range.
+     */
+    public UTMBatchConverter(double a, double f)
+    {
+        if (!(a > 0) || !(f > 0) || 1 / f < 250 || 1 / f > 350)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", a + ", " + f);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.a = a;
+        this.f = f;
+        this.es = 2 * f - f * f;
+        this.ebs = (1 / (1 - this.es)) - 1;
+
+        double b = a * (1 - f);
+        double tn = (a - b) / (a + b);
+        double tn2 = tn * tn;
+        double tn3 = tn2 * tn;
+        double tn4 = tn3 * tn;
+        double tn5 = tn4 * tn;
+
+        this.ap = a * (1.e0 - tn + 5.e0 * (tn2 - tn3) / 4.e0 + 81.e0 * (tn4 - tn5) / 64.e0);
+        this.bp = 3.e0 * a * (tn - tn2 + 7.e0 * (tn3 - tn4) / 8.e0 + 55.e0 * tn5 / 64.e0) / 2.e0;
+        this.cp = 15.e0 * a * (tn2 - tn3 + 3.e0 * (tn4 - tn5) / 4.e0) / 16.0;
+        this.dp = 35.e0 * a * (tn3 - tn4 + 11.e0 * tn5 / 16.e0) / 48.e0;
+        this.ep = 315.e0 * a * (tn4 - tn5) / 512.e0;
+
+        // Determine the valid range of eastings and northings as TMCoordConverter does: by projecting the extreme
+        // latitude and longitude difference with unit scale.
+        double[] en = new double[2];
+        this.project(MAX_TM_LAT, MAX_TM_DELTA_LONG, 1, en, 0);
+        this.deltaNorthing = en[1];
+        this.project(0, MAX_TM_DELTA_LONG, 1, en, 0);
+        this.deltaEasting = en[0];
+    }
+
+    /**
+     * Returns the semi-major axis of the converter's ellipsoid.
+     *
+     * @return the semi-major axis, in meters.
+     */
+    public double getA()
+    {
+        return this.a;
+    }
+
+    /**
+     * Returns the flattening of the converter's ellipsoid.
+     *
+     * @return the flattening.
+     */
+    public double getF()
+    {
+        return this.f;
+    }
+
+    /**
+     * Converts geographic locations to UTM coordinates.
+     *
+     * @param latLons the locations to convert, packed as latitude and longitude in degrees. Must hold at least
+     *                <code>2 x count</code> values.
+     * @param count   the number of locations to convert.
+     * @param utm     the array in which to return the UTM coordinates, packed as zone, hemisphere, easting and
+     *                northing. Must hold at least <code>4 x count</code> values. Locations that can't be converted
+     *                are given the value <code>NaN</code> for each coordinate.
+     *
+     * @return the number of locations converted.
+     *
+     * @throws IllegalArgumentException if either array is null or too short, or the count is less than zero.
+     */
+    public int convertLatLonToUTM(double[] latLons, int count, double[] utm)
+    {
+        checkArrays(latLons, 2, count, utm, 4);
+
+        int numConverted = 0;
+        for (int i = 0; i < count; i++)
+        {
+            double lat = DEGREES_TO_RADIANS * latLons[2 * i];
+            double lon = DEGREES_TO_RADIANS * latLons[2 * i + 1];
+
+            if (this.convertGeodeticToUTM(lat, lon, utm, 4 * i))
+                numConverted++;
+            else
+                fill(utm, 4 * i, 4);
+        }
+
+        return numConverted;
+    }
+
+    /**
+     * Converts UTM coordinates to geographic locations.
+     *
+     * @param utm     the coordinates to convert, packed as zone, hemisphere, easting and northing. Must hold at least
+     *                <code>4 x count</code> values.
+     * @param count   the number of coordinates to convert.
+     * @param latLons the array in which to return the locations, packed as latitude and longitude in degrees. Must
+     *                hold at least <code>2 x count</code> values. Coordinates that can't be converted are given the
+     *                value <code>NaN</code> for both latitude and longitude.
+     *
+     * @return the number of coordinates converted.
+     *
+     * @throws IllegalArgumentException if either array is null or too short, or the count is less than zero.
+     */
+    public int convertUTMToLatLon(double[] utm, int count, double[] latLons)
+    {
+        checkArrays(utm, 4, count, latLons, 2);
+
+        int numConverted = 0;
+        for (int i = 0; i < count; i++)
+        {
+            int j = 4 * i;
+            if (this.convertUTMToGeodetic(utm[j], utm[j + 1], utm[j + 2], utm[j + 3], latLons, 2 * i))
+            {
+                latLons[2 * i] *= RADIANS_TO_DEGREES;
+                latLons[2 * i + 1] *= RADIANS_TO_DEGREES;
+                numConverted++;
+            }
+            else
+            {
+                fill(latLons, 2 * i, 2);
+            }
+        }
+
+        return numConverted;
+    }
+
+    /**
+     * Converts a geographic location to UTM coordinates in the same way as {@link UTMCoordConverter}.
+     *
+     * @param latitude  the latitude, in radians.
+     * @param longitude the longitude, in radians.
+     * @param out       the array in which to return the zone, hemisphere, easting and northing.
+     * @param offset    the index in the array at which to return the coordinates.
+     *
+     * @return true if the location was converted, false if it lies outside the UTM region.
+     */
+    protected boolean convertGeodeticToUTM(double latitude, double longitude, double[] out, int offset)
+    {
+        if (!(latitude >= MIN_LAT && latitude <= MAX_LAT) || !(longitude >= -PI && longitude <= 2 * PI))
+            return false;
+
+        if (longitude < 0)
+            longitude += (2 * PI) + 1.0e-10;
+
+        long latDegrees = (long) (latitude * 180.0 / PI);
+        long lonDegrees = (long) (longitude * 180.0 / PI);
+
+        long zone;
+        if (longitude < PI)
+            zone = (long) (31 + ((longitude * 180.0 / PI) / 6.0));
+        else
+            zone = (long) (((longitude * 180.0 / PI) / 6.0) - 29);
+        if (zone > 60)
+            zone = 1;
+
+        // The special zones of Norway and Svalbard.
+        if ((latDegrees > 55) && (latDegrees < 64) && (lonDegrees > -1) && (lonDegrees < 3))
+            zone = 31;
+        if ((latDegrees > 55) && (latDegrees < 64) && (lonDegrees > 2) && (lonDegrees < 12))
+            zone = 32;
+        if ((latDegrees > 71) && (lonDegrees > -1) && (lonDegrees < 9))
+            zone = 31;
+        if ((latDegrees > 71) && (lonDegrees > 8) && (lonDegrees < 21))
+            zone = 33;
+        if ((latDegrees > 71) && (lonDegrees > 20) && (lonDegrees < 33))
+            zone = 35;
+        if ((latDegrees > 71) && (lonDegrees > 32) && (lonDegrees < 42))
+            zone = 37;
+
+        double centralMeridian = centralMeridian(zone);
+        double falseNorthing = latitude < 0 ? FALSE_NORTHING_SOUTH : 0;
+
+        if (longitude > PI)
+            longitude -= (2 * PI);
+        double dlam = longitude - centralMeridian;
+        if (dlam > PI)
+            dlam -= (2 * PI);
+        if (dlam < -PI)
+            dlam += (2 * PI);
+        if (Math.abs(dlam) < 2.e-10)
+            dlam = 0.0;
+
+        this.project(latitude, dlam, SCALE, out, offset + 2);
+        double easting = out[offset + 2] += FALSE_EASTING;
+        double northing = out[offset + 3] += falseNorthing;
+
+        if (easting < MIN_EASTING || easting > MAX_EASTING || northing < MIN_NORTHING || northing > MAX_NORTHING)
+            return false;
+
+        out[offset] = zone;
+        out[offset + 1] = latitude < 0 ? SOUTH : NORTH;
+
+        return true;
+    }
+
+    /**
+     * Converts UTM coordinates to a geographic location in the same way as {@link UTMCoordConverter}.
+     *
+     * @param zone       the zone, from 1 to 60.
+     * @param hemisphere the hemisphere, either {@link #NORTH} or {@link #SOUTH}.
+     * @param easting    the easting, in meters.
+     * @param northing   the northing, in meters.
+     * @param out        the array in which to return the latitude and longitude, in radians.
+     * @param offset     the index in the array at which to return the location.
+     *
+     * @return true if the coordinates were converted, false if they're invalid.
+     */
+    protected boolean convertUTMToGeodetic(double zone, double hemisphere, double easting, double northing,
+        double[] out, int offset)
+    {
+        if (!(zone >= 1 && zone <= 60) || zone != Math.floor(zone) || (hemisphere != NORTH && hemisphere != SOUTH))
+            return false;
+        if (!(northing >= MIN_NORTHING && northing <= MAX_NORTHING))
+            return false;
+
+        double centralMeridian = centralMeridian((long) zone);
+        double falseNorthing = hemisphere == SOUTH ? FALSE_NORTHING_SOUTH : 0;
+
+        if (!(Math.abs(easting - FALSE_EASTING) <= this.deltaEasting)
+            || !(Math.abs(northing - falseNorthing) <= this.deltaNorthing))
+            return false;
+
+        double tmd = (northing - falseNorthing) / SCALE;
+
+        // Iterate to the footpoint latitude, starting from the meridional radius of curvature at the equator.
+        double ftphi = tmd / (this.a * (1.e0 - this.es));
+        for (int i = 0; i < 5; i++)
+        {
+            double s = Math.sin(ftphi);
+            double w = 1.e0 - this.es * s * s;
+            double sr = this.a * (1.e0 - this.es) / (w * Math.sqrt(w));
+            ftphi = ftphi + (tmd - this.meridionalDistance(ftphi, s, Math.cos(ftphi))) / sr;
+        }
+
+        double s = Math.sin(ftphi);
+        double c = Math.cos(ftphi);
+        double w = 1.e0 - this.es * s * s;
+        double sn = this.a / Math.sqrt(w);
+        double sr = this.a * (1.e0 - this.es) / (w * Math.sqrt(w));
+        double sn2 = sn * sn;
+        double sn3 = sn2 * sn;
+        double sn5 = sn3 * sn2;
+        double sn7 = sn5 * sn2;
+
+        double t = Math.tan(ftphi);
+        double tan2 = t * t;
+        double tan4 = tan2 * tan2;
+        double tan6 = tan4 * tan2;
+        double eta = this.ebs * c * c;
+        double eta2 = eta * eta;
+        double eta3 = eta2 * eta;
+        double eta4 = eta3 * eta;
+
+        double k = SCALE;
+        double k2 = k * k;
+        double k3 = k2 * k;
+        double k5 = k3 * k2;
+        double k7 = k5 * k2;
+
+        double de = easting - FALSE_EASTING;
+        if (Math.abs(de) < 0.0001)
+            de = 0.0;
+        double de2 = de * de;
+
+        double t10 = t / (2.e0 * sr * sn * k2);
+        double t11 = t * (5.e0 + 3.e0 * tan2 + eta - 4.e0 * eta2 - 9.e0 * tan2 * eta) / (24.e0 * sr * sn3 * k2 * k2);
+        double t12 = t * (61.e0 + 90.e0 * tan2 + 46.e0 * eta + 45.E0 * tan4 - 252.e0 * tan2 * eta - 3.e0 * eta2
+            + 100.e0 * eta3 - 66.e0 * tan2 * eta2 - 90.e0 * tan4 * eta + 88.e0 * eta4 + 225.e0 * tan4 * eta2
+            + 84.e0 * tan2 * eta3 - 192.e0 * tan2 * eta4) / (720.e0 * sr * sn5 * k3 * k3);
+        double t13 = t * (1385.e0 + 3633.e0 * tan2 + 4095.e0 * tan4 + 1575.e0 * tan6)
+            / (40320.e0 * sr * sn7 * k7 * k);
+        double latitude = ftphi - de2 * (t10 - de2 * (t11 - de2 * (t12 - de2 * t13)));
+
+        double t14 = 1.e0 / (sn * c * k);
+        double t15 = (1.e0 + 2.e0 * tan2 + eta) / (6.e0 * sn3 * c * k3);
+        double t16 = (5.e0 + 6.e0 * eta + 28.e0 * tan2 - 3.e0 * eta2 + 8.e0 * tan2 * eta + 24.e0 * tan4
+            - 4.e0 * eta3 + 4.e0 * tan2 * eta2 + 24.e0 * tan2 * eta3) / (120.e0 * sn5 * c * k5);
+        double t17 = (61.e0 + 662.e0 * tan2 + 1320.e0 * tan4 + 720.e0 * tan6) / (5040.e0 * sn7 * c * k7);
+        double longitude = centralMeridian + de * (t14 - de2 * (t15 - de2 * (t16 - de2 * t17)));
+
+        if (Math.abs(latitude) > (90.0 * PI / 180.0))
+            return false;
+
+        if (longitude > PI)
+        {
+            longitude -= (2 * PI);
+            if (Math.abs(longitude) > PI)
+                return false;
+        }
+
+        if (latitude < MIN_LAT || latitude > MAX_LAT)
+            return false;
+
+        out[offset] = latitude;
+        out[offset + 1] = longitude;
+
+        return true;
+    }
+
+    /**
+     * Computes the Transverse Mercator easting and northing of a location relative to a false origin of zero.
+     *
+     * @param latitude the latitude, in radians.
+     * @param dlam     the longitude difference from the central meridian, in radians.
+     * @param scale    the projection scale factor.
+     * @param out      the array in which to return the easting and northing.
+     * @param offset   the index in the array at which to return the easting and northing.
+     */
+    protected void project(double latitude, double dlam, double scale, double[] out, int offset)
+    {
+        double s = Math.sin(latitude);
+        double c = Math.cos(latitude);
+        double c2 = c * c;
+        double c3 = c2 * c;
+        double c5 = c3 * c2;
+        double c7 = c5 * c2;
+        double t = Math.tan(latitude);
+        double tan2 = t * t;
+        double tan4 = tan2 * tan2;
+        double tan6 = tan4 * tan2;
+        double eta = this.ebs * c2;
+        double eta2 = eta * eta;
+        double eta3 = eta2 * eta;
+        double eta4 = eta3 * eta;
+
+        // The radius of curvature in the prime vertical, and the true meridional distance.
+        double sn = this.a / Math.sqrt(1 - this.es * s * s);
+        double tmd = this.meridionalDistance(latitude, s, c);
+
+        double snk = sn * scale;
+        double t1 = tmd * scale;
+        double t2 = snk * s * c / 2.e0;
+        double t3 = snk * s * c3 * (5.e0 - tan2 + 9.e0 * eta + 4.e0 * eta2) / 24.e0;
+        double t4 = snk * s * c5 * (61.e0 - 58.e0 * tan2 + tan4 + 270.e0 * eta - 330.e0 * tan2 * eta
+            + 445.e0 * eta2 + 324.e0 * eta3 - 680.e0 * tan2 * eta2 + 88.e0 * eta4 - 600.e0 * tan2 * eta3
+            - 192.e0 * tan2 * eta4) / 720.e0;
+        double t5 = snk * s * c7 * (1385.e0 - 3111.e0 * tan2 + 543.e0 * tan4 - tan6) / 40320.e0;
+
+        double t6 = snk * c;
+        double t7 = snk * c3 * (1.e0 - tan2 + eta) / 6.e0;
+        double t8 = snk * c5 * (5.e0 - 18.e0 * tan2 + tan4 + 14.e0 * eta - 58.e0 * tan2 * eta + 13.e0 * eta2
+            + 4.e0 * eta3 - 64.e0 * tan2 * eta2 - 24.e0 * tan2 * eta3) / 120.e0;
+        double t9 = snk * c7 * (61.e0 - 479.e0 * tan2 + 179.e0 * tan4 - tan6) / 5040.e0;
+
+        double dlam2 = dlam * dlam;
+        out[offset] = dlam * (t6 + dlam2 * (t7 + dlam2 * (t8 + dlam2 * t9)));
+        out[offset + 1] = t1 + dlam2 * (t2 + dlam2 * (t3 + dlam2 * (t4 + dlam2 * t5)));
+    }
+
+    /**
+     * Computes the true meridional distance from the equator to a latitude. The sines of the multiple angles are
+     * computed from the latitude's sine and cosine.
+     *
+     * @param latitude the latitude, in radians.
+     * @param s        the sine of the latitude.
+     * @param c        the cosine of the latitude.
+     *
+     * @return the meridional distance, in meters.
+     */
+    protected double meridionalDistance(double latitude, double s, double c)
+    {
+        double sin2 = 2 * s * c;
+        double cos2 = c * c - s * s;
+        double sin4 = 2 * sin2 * cos2;
+        double cos4 = cos2 * cos2 - sin2 * sin2;
+        double sin6 = sin4 * cos2 + cos4 * sin2;
+        double sin8 = 2 * sin4 * cos4;
+
+        return this.ap * latitude - this.bp * sin2 + this.cp * sin4 - this.dp * sin6 + this.ep * sin8;
+    }
+
+    protected static double centralMeridian(long zone)
+    {
+        double centralMeridian = zone >= 31 ? (6 * zone - 183) * PI / 180.0 : (6 * zone + 177) * PI / 180.0;
+
+        return centralMeridian > PI ? centralMeridian - 2 * PI : centralMeridian;
+    }
+
+    protected static void checkArrays(double[] in, int inStride, int count, double[] out, int outStride)
+    {
+        if (in == null || out == null)
+        {
+            String message = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (count < 0)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", count);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (in.length < inStride * count || out.length < outStride * count)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength",
+                in.length < inStride * count ? in.length : out.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    protected static void fill(double[] array, int offset, int length)
+    {
+        for (int i = offset; i < offset + length; i++)
+        {
+            array[i] = Double.NaN;
+        }
+    }
+}
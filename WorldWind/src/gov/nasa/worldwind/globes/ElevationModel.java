@@ -335,6 +335,63 @@ public interface ElevationModel extends WWObject, Restorable, Disposable
     double[] getUnmappedElevations(Sector sector, List<? extends LatLon> latlons, double targetResolution[],
         double[] buffer);
 
+    /**
+     * Returns the elevations of a run of locations stored as packed latitude-longitude pairs. This is the primitive
+     * counterpart of {@link #getElevations(gov.nasa.worldwind.geom.Sector, java.util.List, double, double[])}: it does
+     * not require a <code>LatLon</code> per location and is intended for callers that query very large numbers of
+     * locations. Replaces any elevation values corresponding to the missing data signal with the elevation model's
+     * missing data replacement value. If a location within the elevation model's coverage area cannot currently be
+     * determined, the elevation model's minimum extreme elevation for the sector is returned in the output buffer. If a
+     * location is outside the elevation model's coverage area, the output buffer for that location is not modified.
+     * <p/>
+     * Location <code>k</code>, for <code>offset <= k < offset + count</code>, is read from <code>locations[2k]</code>
+     * (latitude) and <code>locations[2k + 1]</code> (longitude), and its elevation is written to
+     * <code>buffer[k]</code>.
+     *
+     * @param sector           the sector containing the locations.
+     * @param locations        the packed latitude-longitude pairs to return elevations for.
+     * @param offset           the index of the first location to process.
+     * @param count            the number of locations to process.
+     * @param inRadians        true if the locations are in radians, false if they are in degrees.
+     * @param targetResolution the desired horizontal resolution, in radians, of the raster or other elevation sample
+     *                         from which elevations are drawn.
+     * @param buffer           an array in which to place the returned elevations. The array must be pre-allocated and
+     *                         contain at least <code>offset + count</code> elements.
+     *
+     * @return the resolution achieved, in radians, or {@link Double#MAX_VALUE} if individual elevations cannot be
+     *         determined for all of the locations.
+     *
+     * @throws IllegalArgumentException if either the sector, locations array or elevations array is null, if the offset
+     *                                  or count is negative, or if either array is too small.
+     */
+    double getElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] buffer);
+
+    /**
+     * Returns the elevations of a run of locations stored as packed latitude-longitude pairs. <em>Does not</em> replace
+     * any elevation values corresponding to the missing data signal with the elevation model's missing data replacement
+     * value. See {@link #getElevations(gov.nasa.worldwind.geom.Sector, double[], int, int, boolean, double, double[])}
+     * for a description of the array layout.
+     *
+     * @param sector           the sector containing the locations.
+     * @param locations        the packed latitude-longitude pairs to return elevations for.
+     * @param offset           the index of the first location to process.
+     * @param count            the number of locations to process.
+     * @param inRadians        true if the locations are in radians, false if they are in degrees.
+     * @param targetResolution the desired horizontal resolution, in radians, of the raster or other elevation sample
+     *                         from which elevations are drawn.
+     * @param buffer           an array in which to place the returned elevations. The array must be pre-allocated and
+     *                         contain at least <code>offset + count</code> elements.
+     *
+     * @return the resolution achieved, in radians, or {@link Double#MAX_VALUE} if individual elevations cannot be
+     *         determined for all of the locations.
+     *
+     * @throws IllegalArgumentException if either the sector, locations array or elevations array is null, if the offset
+     *                                  or count is negative, or if either array is too small.
+     */
+    double getUnmappedElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] buffer);
+
     /**
      * Returns the elevation used for missing values in the elevation model.
      *
@@ -417,4 +474,18 @@ public interface ElevationModel extends WWObject, Restorable, Disposable
      * @see #setExtremesCachingEnabled(boolean)
      */
     boolean isExtremesCachingEnabled();
+
+    /**
+     * Indicates the generation of the elevations this elevation model returns for a sector. The generation changes
+     * whenever those elevations may have changed, such as when higher resolution data for the sector arrives from the
+     * network or the local file system, or when this model's configuration changes. Clients that derive data from the
+     * elevations, such as terrain tessellators, can compare generations to determine whether that data is stale.
+     *
+     * @param sector the sector of interest.
+     *
+     * @return the generation of the sector's elevations. Only the equality of two generations is meaningful.
+     *
+     * @throws IllegalArgumentException if the sector is null.
+     */
+    long getDataGeneration(Sector sector);
 }
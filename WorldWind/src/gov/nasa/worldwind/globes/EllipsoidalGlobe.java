@@ -13,6 +13,7 @@ import gov.nasa.worldwind.terrain.*;
 import gov.nasa.worldwind.util.*;
 
 import java.io.IOException;
+import java.nio.*;
 import java.util.List;
 
 /**
@@ -455,13 +456,7 @@ public class EllipsoidalGlobe extends WWObjectImpl implements Globe
         double resolution = this.elevationModel.getElevations(sector, latlons, targetResolution, elevations);
 
         if (this.egm96 != null)
-        {
-            for (int i = 0; i < elevations.length; i++)
-            {
-                LatLon latLon = latlons.get(i);
-                elevations[i] = elevations[i] + this.egm96.getOffset(latLon.getLatitude(), latLon.getLongitude());
-            }
-        }
+            this.addGeoidOffsets(latlons, elevations);
 
         return resolution;
     }
@@ -475,15 +470,58 @@ public class EllipsoidalGlobe extends WWObjectImpl implements Globe
         double[] resolution = this.elevationModel.getElevations(sector, latLons, targetResolution, elevations);
 
         if (this.egm96 != null)
+            this.addGeoidOffsets(latLons, elevations);
+
+        return resolution;
+    }
+
+    public double getElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] elevations)
+    {
+        if (this.elevationModel == null)
+            return 0;
+
+        double resolution = this.elevationModel.getElevations(sector, locations, offset, count, inRadians,
+            targetResolution, elevations);
+
+        if (this.egm96 != null)
+            this.addGeoidOffsets(locations, offset, count, inRadians, elevations);
+
+        return resolution;
+    }
+
+    /**
+     * Adds the EGM96 geoid offset of each location in a list to the location's elevation.
+     *
+     * @param latlons    the locations.
+     * @param elevations the elevations of the locations, in the order of the locations.
+     */
+    protected void addGeoidOffsets(List<? extends LatLon> latlons, double[] elevations)
+    {
+        for (int i = 0; i < latlons.size(); i++)
         {
-            for (int i = 0; i < elevations.length; i++)
-            {
-                LatLon latLon = latLons.get(i);
-                elevations[i] = elevations[i] + this.egm96.getOffset(latLon.getLatitude(), latLon.getLongitude());
-            }
+            LatLon latLon = latlons.get(i);
+            elevations[i] += this.egm96.getOffsetDegrees(latLon.getLatitude().degrees, latLon.getLongitude().degrees);
         }
+    }
 
-        return resolution;
+    /**
+     * Adds the EGM96 geoid offset of each of a range of packed locations to the location's elevation. See {@link
+     * #getElevations(Sector, double[], int, int, boolean, double, double[])} for the layout of the locations.
+     *
+     * @param locations  the locations, packed as latitude and longitude pairs.
+     * @param offset     the index of the first location.
+     * @param count      the number of locations.
+     * @param inRadians  true if the locations are in radians, false if they're in degrees.
+     * @param elevations the elevations of the locations, at the same indices as the locations.
+     */
+    protected void addGeoidOffsets(double[] locations, int offset, int count, boolean inRadians, double[] elevations)
+    {
+        double toDegrees = inRadians ? 180d / Math.PI : 1;
+        for (int i = offset; i < offset + count; i++)
+        {
+            elevations[i] += this.egm96.getOffsetDegrees(locations[2 * i] * toDegrees, locations[2 * i + 1] * toDegrees);
+        }
     }
 
     public double getElevation(Angle latitude, Angle longitude)
@@ -601,6 +639,129 @@ public class EllipsoidalGlobe extends WWObjectImpl implements Globe
         this.geodeticToCartesian(sector, numLat, numLon, metersElevation, out);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void computePointsFromPositions(double[] positions, int numPositions, Vec4 referenceCenter, double[] out)
+    {
+        if (positions == null)
+        {
+            String message = Logging.getMessage("nullValue.PositionsListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (out == null)
+        {
+            String message = Logging.getMessage("nullValue.OutputIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (numPositions < 0)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "numPositions < 0");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (positions.length < 3 * numPositions || out.length < 3 * numPositions)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength",
+                Math.min(positions.length, out.length));
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.geodeticToCartesian(positions, numPositions, referenceCenter, out);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void computePointsFromPositions(DoubleBuffer positions, int numPositions, Vec4 referenceCenter,
+        FloatBuffer out)
+    {
+        if (positions == null)
+        {
+            String message = Logging.getMessage("nullValue.PositionsBufferIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (out == null)
+        {
+            String message = Logging.getMessage("nullValue.OutputBufferIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (numPositions < 0)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "numPositions < 0");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (positions.remaining() < 3 * numPositions || out.remaining() < 3 * numPositions)
+        {
+            String message = Logging.getMessage("generic.BufferSize",
+                Math.min(positions.remaining(), out.remaining()));
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.geodeticToCartesian(positions, numPositions, referenceCenter, out);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void computePointsFromPositions(Sector sector, int numLat, int numLon, double[] metersElevation,
+        Vec4 referenceCenter, FloatBuffer out)
+    {
+        if (sector == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (numLat <= 0 || numLon <= 0)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "numLat <= 0 or numLon <= 0");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (metersElevation == null)
+        {
+            String message = Logging.getMessage("nullValue.ElevationsIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (out == null)
+        {
+            String message = Logging.getMessage("nullValue.OutputBufferIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (metersElevation.length < numLat * numLon)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength", metersElevation.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (out.remaining() < 3 * numLat * numLon)
+        {
+            String message = Logging.getMessage("generic.BufferSize", out.remaining());
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.geodeticToCartesian(sector, numLat, numLon, metersElevation, referenceCenter, out);
+    }
+
     /**
      * Returns the normal to the Globe at the specified position.
      *
@@ -972,6 +1133,139 @@ public class EllipsoidalGlobe extends WWObjectImpl implements Globe
         }
     }
 
+    /**
+     * Maps packed geographic positions to Cartesian coordinates relative to a reference point. See {@link
+     * #geodeticToCartesian(gov.nasa.worldwind.geom.Angle, gov.nasa.worldwind.geom.Angle, double)} for a description of
+     * the Cartesian coordinate system.
+     *
+     * @param positions       the positions, packed as latitude and longitude in degrees and elevation in meters.
+     * @param numPositions    the number of positions to map.
+     * @param referenceCenter the point the computed points are relative to. May be null, in which case the points are
+     *                        absolute.
+     * @param out             the array to hold the computed points, packed as x, y and z.
+     */
+    protected void geodeticToCartesian(double[] positions, int numPositions, Vec4 referenceCenter, double[] out)
+    {
+        double rcx = referenceCenter != null ? referenceCenter.x : 0;
+        double rcy = referenceCenter != null ? referenceCenter.y : 0;
+        double rcz = referenceCenter != null ? referenceCenter.z : 0;
+
+        for (int k = 0; k < 3 * numPositions; k += 3)
+        {
+            double lat = Math.toRadians(positions[k]);
+            double lon = Math.toRadians(positions[k + 1]);
+            double elev = positions[k + 2];
+
+            double cosLat = Math.cos(lat);
+            double sinLat = Math.sin(lat);
+            double rpm = this.equatorialRadius / Math.sqrt(1.0 - this.es * sinLat * sinLat);
+
+            out[k] = (rpm + elev) * cosLat * Math.sin(lon) - rcx;
+            out[k + 1] = (rpm * (1.0 - this.es) + elev) * sinLat - rcy;
+            out[k + 2] = (rpm + elev) * cosLat * Math.cos(lon) - rcz;
+        }
+    }
+
+    /**
+     * Maps packed geographic positions to Cartesian coordinates relative to a reference point, and writes them to a
+     * float buffer. See {@link #geodeticToCartesian(gov.nasa.worldwind.geom.Angle, gov.nasa.worldwind.geom.Angle,
+     * double)} for a description of the Cartesian coordinate system.
+     *
+     * @param positions       the positions, packed as latitude and longitude in degrees and elevation in meters. The
+     *                        positions are read from the buffer's current position.
+     * @param numPositions    the number of positions to map.
+     * @param referenceCenter the point the computed points are relative to. May be null, in which case the points are
+     *                        absolute.
+     * @param out             the buffer to hold the computed points, packed as x, y and z. The points are written at
+     *                        the buffer's current position.
+     */
+    protected void geodeticToCartesian(DoubleBuffer positions, int numPositions, Vec4 referenceCenter,
+        FloatBuffer out)
+    {
+        double rcx = referenceCenter != null ? referenceCenter.x : 0;
+        double rcy = referenceCenter != null ? referenceCenter.y : 0;
+        double rcz = referenceCenter != null ? referenceCenter.z : 0;
+
+        for (int i = 0; i < numPositions; i++)
+        {
+            double lat = Math.toRadians(positions.get());
+            double lon = Math.toRadians(positions.get());
+            double elev = positions.get();
+
+            double cosLat = Math.cos(lat);
+            double sinLat = Math.sin(lat);
+            double rpm = this.equatorialRadius / Math.sqrt(1.0 - this.es * sinLat * sinLat);
+
+            out.put((float) ((rpm + elev) * cosLat * Math.sin(lon) - rcx));
+            out.put((float) ((rpm * (1.0 - this.es) + elev) * sinLat - rcy));
+            out.put((float) ((rpm + elev) * cosLat * Math.cos(lon) - rcz));
+        }
+    }
+
+    /**
+     * Maps a grid of geographic positions to Cartesian coordinates relative to a reference point, and writes them to a
+     * float buffer. The grid is that of {@link #geodeticToCartesian(gov.nasa.worldwind.geom.Sector, int, int, double[],
+     * gov.nasa.worldwind.geom.Vec4[])}.
+     *
+     * @param sector          The sector over which to generate the points.
+     * @param numLat          The number of points to generate latitudinally.
+     * @param numLon          The number of points to generate longitudinally.
+     * @param metersElevation An array of elevations, one for each point, in row major order beginning with the row of
+     *                        minimum latitude.
+     * @param referenceCenter the point the computed points are relative to. May be null, in which case the points are
+     *                        absolute.
+     * @param out             the buffer to hold the computed points, packed as x, y and z. The points are written at
+     *                        the buffer's current position.
+     */
+    protected void geodeticToCartesian(Sector sector, int numLat, int numLon, double[] metersElevation,
+        Vec4 referenceCenter, FloatBuffer out)
+    {
+        double minLat = sector.getMinLatitude().radians;
+        double maxLat = sector.getMaxLatitude().radians;
+        double minLon = sector.getMinLongitude().radians;
+        double maxLon = sector.getMaxLongitude().radians;
+        double deltaLat = (maxLat - minLat) / (numLat > 1 ? numLat - 1 : 1);
+        double deltaLon = (maxLon - minLon) / (numLon > 1 ? numLon - 1 : 1);
+        double rcx = referenceCenter != null ? referenceCenter.x : 0;
+        double rcy = referenceCenter != null ? referenceCenter.y : 0;
+        double rcz = referenceCenter != null ? referenceCenter.z : 0;
+        int pos = 0;
+
+        // Compute the cosine and sine of each longitude value once rather than once per row.
+        double[] cosLon = new double[numLon];
+        double[] sinLon = new double[numLon];
+        double lon = minLon;
+        for (int i = 0; i < numLon; i++, lon += deltaLon)
+        {
+            if (i == numLon - 1) // explicitly set the last lon to the max longitude to ensure alignment
+                lon = maxLon;
+
+            cosLon[i] = Math.cos(lon);
+            sinLon[i] = Math.sin(lon);
+        }
+
+        double lat = minLat;
+        for (int j = 0; j < numLat; j++, lat += deltaLat)
+        {
+            if (j == numLat - 1) // explicitly set the last lat to the max latitude to ensure alignment
+                lat = maxLat;
+
+            // Latitude is constant for each row. Values that are a function of latitude can be computed once per row.
+            double cosLat = Math.cos(lat);
+            double sinLat = Math.sin(lat);
+            double rpm = this.equatorialRadius / Math.sqrt(1.0 - this.es * sinLat * sinLat);
+            double y = rpm * (1.0 - this.es) * sinLat;
+
+            for (int i = 0; i < numLon; i++)
+            {
+                double elev = metersElevation[pos++];
+                out.put((float) ((rpm + elev) * cosLat * sinLon[i] - rcx));
+                out.put((float) (y + elev * sinLat - rcy));
+                out.put((float) ((rpm + elev) * cosLat * cosLon[i] - rcz));
+            }
+        }
+    }
+
 //    protected Position cartesianToGeodeticOriginal(Vec4 cart)
 //    {
 //        if (cart == null)
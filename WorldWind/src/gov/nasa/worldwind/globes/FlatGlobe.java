@@ -12,6 +12,8 @@ import gov.nasa.worldwind.globes.projections.*;
 import gov.nasa.worldwind.render.DrawContext;
 import gov.nasa.worldwind.util.Logging;
 
+import java.nio.*;
+
 /**
  * Defines a globe represented as a projection onto a plane. The projection type is modifiable. The default projection
  * is Mercator. New projections may be added by extending this class and overriding {@link
@@ -402,6 +404,80 @@ public class FlatGlobe extends EllipsoidalGlobe implements Globe2D
         this.projection.geographicToCartesian(this, sector, numLat, numLon, metersElevation, this.offsetVector, out);
     }
 
+    @Override
+    protected void geodeticToCartesian(double[] positions, int numPositions, Vec4 referenceCenter, double[] out)
+    {
+        double rcx = referenceCenter != null ? referenceCenter.x : 0;
+        double rcy = referenceCenter != null ? referenceCenter.y : 0;
+        double rcz = referenceCenter != null ? referenceCenter.z : 0;
+
+        for (int k = 0; k < 3 * numPositions; k += 3)
+        {
+            this.projection.geographicToCartesian(this, Math.toRadians(positions[k]), Math.toRadians(positions[k + 1]),
+                positions[k + 2], this.offsetVector, out, k);
+            out[k] -= rcx;
+            out[k + 1] -= rcy;
+            out[k + 2] -= rcz;
+        }
+    }
+
+    @Override
+    protected void geodeticToCartesian(DoubleBuffer positions, int numPositions, Vec4 referenceCenter,
+        FloatBuffer out)
+    {
+        double rcx = referenceCenter != null ? referenceCenter.x : 0;
+        double rcy = referenceCenter != null ? referenceCenter.y : 0;
+        double rcz = referenceCenter != null ? referenceCenter.z : 0;
+        double[] point = new double[3];
+
+        for (int i = 0; i < numPositions; i++)
+        {
+            double lat = Math.toRadians(positions.get());
+            double lon = Math.toRadians(positions.get());
+            this.projection.geographicToCartesian(this, lat, lon, positions.get(), this.offsetVector, point, 0);
+            out.put((float) (point[0] - rcx));
+            out.put((float) (point[1] - rcy));
+            out.put((float) (point[2] - rcz));
+        }
+    }
+
+    @Override
+    protected void geodeticToCartesian(Sector sector, int numLat, int numLon, double[] metersElevation,
+        Vec4 referenceCenter, FloatBuffer out)
+    {
+        double minLat = sector.getMinLatitude().radians;
+        double maxLat = sector.getMaxLatitude().radians;
+        double minLon = sector.getMinLongitude().radians;
+        double maxLon = sector.getMaxLongitude().radians;
+        double deltaLat = (maxLat - minLat) / (numLat > 1 ? numLat - 1 : 1);
+        double deltaLon = (maxLon - minLon) / (numLon > 1 ? numLon - 1 : 1);
+        double rcx = referenceCenter != null ? referenceCenter.x : 0;
+        double rcy = referenceCenter != null ? referenceCenter.y : 0;
+        double rcz = referenceCenter != null ? referenceCenter.z : 0;
+        double[] point = new double[3];
+        int pos = 0;
+
+        double lat = minLat;
+        for (int j = 0; j < numLat; j++, lat += deltaLat)
+        {
+            if (j == numLat - 1) // explicitly set the last lat to the max latitude to ensure alignment
+                lat = maxLat;
+
+            double lon = minLon;
+            for (int i = 0; i < numLon; i++, lon += deltaLon)
+            {
+                if (i == numLon - 1) // explicitly set the last lon to the max longitude to ensure alignment
+                    lon = maxLon;
+
+                this.projection.geographicToCartesian(this, lat, lon, metersElevation[pos++], this.offsetVector,
+                    point, 0);
+                out.put((float) (point[0] - rcx));
+                out.put((float) (point[1] - rcy));
+                out.put((float) (point[2] - rcz));
+            }
+        }
+    }
+
     @Override
     protected Position cartesianToGeodetic(Vec4 cart)
     {
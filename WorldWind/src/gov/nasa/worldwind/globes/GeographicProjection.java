@@ -102,6 +102,26 @@ public interface GeographicProjection
     void geographicToCartesian(Globe globe, Sector sector, int numLat, int numLon, double[] metersElevation,
         Vec4 offset, Vec4[] out);
 
+    /**
+     * Converts a geographic position to Cartesian coordinates, and stores them in an array rather than creating a
+     * point. Used to convert many positions without creating objects for each.
+     * <p/>
+     * Note: The input arguments are not checked for <code>null</code> prior to being used. The caller, typically a
+     * {@link Globe2D} implementation, is expected do perform that check prior to calling this method.
+     *
+     * @param globe           The globe this projection is applied to.
+     * @param latitude        The latitude of the position, in radians.
+     * @param longitude       The longitude of the position, in radians.
+     * @param metersElevation The elevation of the position, in meters.
+     * @param offset          An optional offset to be applied to the Cartesian output, as for {@link
+     *                        #geographicToCartesian(Globe, gov.nasa.worldwind.geom.Angle, gov.nasa.worldwind.geom.Angle,
+     *                        double, gov.nasa.worldwind.geom.Vec4)}. May be null.
+     * @param out             The array to hold the Cartesian coordinates, in meters.
+     * @param outOffset       The index in the array at which to store the x, y and z coordinates.
+     */
+    void geographicToCartesian(Globe globe, double latitude, double longitude, double metersElevation, Vec4 offset,
+        double[] out, int outOffset);
+
     /**
      * Converts a Cartesian point in meters to a geographic position.
      * <p/>
@@ -10,6 +10,7 @@ import gov.nasa.worldwind.geom.*;
 import gov.nasa.worldwind.render.DrawContext;
 import gov.nasa.worldwind.terrain.*;
 
+import java.nio.*;
 import java.util.List;
 
 /**
@@ -158,6 +159,33 @@ public interface Globe extends WWObject, Extent
     double[] getElevations(Sector sector, List<? extends LatLon> latlons, double[] targetResolution,
         double[] elevations);
 
+    /**
+     * Indicates the elevations of a run of locations stored as packed latitude-longitude pairs. This is the primitive
+     * counterpart of {@link #getElevations(gov.nasa.worldwind.geom.Sector, java.util.List, double, double[])}, and
+     * follows the same rules for missing data and locations outside the elevation model's coverage area. Location
+     * <code>k</code>, for <code>offset <= k < offset + count</code>, is read from <code>locations[2k]</code> (latitude)
+     * and <code>locations[2k + 1]</code> (longitude), and its elevation is written to <code>elevations[k]</code>.
+     *
+     * @param sector           the sector containing the locations.
+     * @param locations        the packed latitude-longitude pairs to return elevations for.
+     * @param offset           the index of the first location to process.
+     * @param count            the number of locations to process.
+     * @param inRadians        true if the locations are in radians, false if they are in degrees.
+     * @param targetResolution the desired horizontal resolution, in radians, of the raster or other elevation sample
+     *                         from which elevations are drawn.
+     * @param elevations       an array in which to place the returned elevations. The array must be pre-allocated and
+     *                         contain at least <code>offset + count</code> elements.
+     *
+     * @return the resolution achieved, in radians, or {@link Double#MAX_VALUE} if individual elevations cannot be
+     *         determined for all of the locations. Returns zero if an elevation model is not available.
+     *
+     * @throws IllegalArgumentException if either the sector, locations array or elevations array is null, if the offset
+     *                                  or count is negative, or if either array is too small.
+     * @see #getElevationModel()
+     */
+    double getElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] elevations);
+
     /**
      * Indicates the maximum elevation on this globe, in meters.
      *
@@ -266,6 +294,69 @@ public interface Globe extends WWObject, Extent
      */
     void computePointsFromPositions(Sector sector, int numLat, int numLon, double[] metersElevation, Vec4[] out);
 
+    /**
+     * Computes the cartesian points corresponding to packed geographic positions, relative to a reference point.
+     * <p/>
+     * This method and the other bulk forms of <code>computePointsFromPositions</code> compute the same points as
+     * {@link #computePointFromPosition(gov.nasa.worldwind.geom.Angle, gov.nasa.worldwind.geom.Angle, double)}, but
+     * create no objects per point, and write the points directly to the caller's array or buffer.
+     *
+     * @param positions       the positions, packed as latitude and longitude in degrees and elevation in meters, three
+     *                        values per position.
+     * @param numPositions    the number of positions to convert. The positions array must have a length of at least
+     *                        <code>3 x numPositions</code>.
+     * @param referenceCenter the point the computed points are relative to. The points are absolute if this is null.
+     * @param out             an array to hold the computed points, packed as x, y and z, three values per point. It
+     *                        must have a length of at least <code>3 x numPositions</code>.
+     *
+     * @throws IllegalArgumentException if either array is null or too short, or if numPositions is less than zero.
+     */
+    void computePointsFromPositions(double[] positions, int numPositions, Vec4 referenceCenter, double[] out);
+
+    /**
+     * Computes the cartesian points corresponding to packed geographic positions, relative to a reference point, and
+     * writes them to a float buffer. Relative points are typically small enough to be held as floats without loss of
+     * precision, and are suitable for vertex buffers.
+     * <p/>
+     * The positions are read from the position buffer's current position, and the points are written to the output
+     * buffer's current position. The position of each buffer is advanced past the values read or written.
+     *
+     * @param positions       the positions, packed as latitude and longitude in degrees and elevation in meters, three
+     *                        values per position.
+     * @param numPositions    the number of positions to convert. The position buffer must have at least <code>3 x
+     *                        numPositions</code> values remaining.
+     * @param referenceCenter the point the computed points are relative to. The points are absolute if this is null.
+     * @param out             a buffer to hold the computed points, packed as x, y and z, three values per point. It must
+     *                        have at least <code>3 x numPositions</code> values remaining.
+     *
+     * @throws IllegalArgumentException if either buffer is null or has too few values remaining, or if numPositions is
+     *                                  less than zero.
+     */
+    void computePointsFromPositions(DoubleBuffer positions, int numPositions, Vec4 referenceCenter, FloatBuffer out);
+
+    /**
+     * Computes a grid of cartesian points corresponding to a grid of geographic positions, relative to a reference
+     * point, and writes them to a float buffer. The grid is the same as that of {@link
+     * #computePointsFromPositions(gov.nasa.worldwind.geom.Sector, int, int, double[], gov.nasa.worldwind.geom.Vec4[])}.
+     * The points are written to the buffer's current position, in row major order beginning with the row of minimum
+     * latitude, and the buffer's position is advanced past them.
+     *
+     * @param sector          The sector over which to generate the points.
+     * @param numLat          The number of points to generate latitudinally.
+     * @param numLon          The number of points to generate longitudinally.
+     * @param metersElevation An array of elevations to incorporate in the point calculations, one for each point, in
+     *                        row major order beginning with the row of minimum latitude.
+     * @param referenceCenter the point the computed points are relative to. The points are absolute if this is null.
+     * @param out             a buffer to hold the computed points, packed as x, y and z, three values per point. It must
+     *                        have at least <code>3 x numLon x numLat</code> values remaining.
+     *
+     * @throws IllegalArgumentException If the sector, elevations or buffer are null, if the elevations array is too
+     *                                  short or the buffer has too few values remaining, or if numLat or numLon are
+     *                                  less than or equal to zero.
+     */
+    void computePointsFromPositions(Sector sector, int numLat, int numLon, double[] metersElevation,
+        Vec4 referenceCenter, FloatBuffer out);
+
     /**
      * Computes a vector perpendicular to the surface of this globe in cartesian coordinates.
      *
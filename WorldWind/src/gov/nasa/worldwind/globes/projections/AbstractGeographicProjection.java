@@ -6,8 +6,8 @@
 
 package gov.nasa.worldwind.globes.projections;
 
-import gov.nasa.worldwind.geom.Sector;
-import gov.nasa.worldwind.globes.GeographicProjection;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.globes.*;
 import gov.nasa.worldwind.util.Logging;
 
 /**
@@ -56,4 +56,21 @@ public abstract class AbstractGeographicProjection implements GeographicProjecti
         this.projectionLimits = projectionLimits;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * This implementation calls {@link #geographicToCartesian(gov.nasa.worldwind.globes.Globe,
+     * gov.nasa.worldwind.geom.Angle, gov.nasa.worldwind.geom.Angle, double, gov.nasa.worldwind.geom.Vec4)}, so creates
+     * objects for each position. Subclasses override it to compute the coordinates directly.
+     */
+    @Override
+    public void geographicToCartesian(Globe globe, double latitude, double longitude, double metersElevation,
+        Vec4 offset, double[] out, int outOffset)
+    {
+        Vec4 point = this.geographicToCartesian(globe, Angle.fromRadians(latitude), Angle.fromRadians(longitude),
+            metersElevation, offset);
+        out[outOffset] = point.x;
+        out[outOffset + 1] = point.y;
+        out[outOffset + 2] = point.z;
+    }
 }
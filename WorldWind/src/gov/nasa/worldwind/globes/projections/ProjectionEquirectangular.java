@@ -79,6 +79,15 @@ public class ProjectionEquirectangular extends AbstractGeographicProjection
         }
     }
 
+    @Override
+    public void geographicToCartesian(Globe globe, double latitude, double longitude, double metersElevation,
+        Vec4 offset, double[] out, int outOffset)
+    {
+        out[outOffset] = globe.getEquatorialRadius() * longitude + (offset != null ? offset.x : 0);
+        out[outOffset + 1] = globe.getEquatorialRadius() * latitude;
+        out[outOffset + 2] = metersElevation;
+    }
+
     @Override
     public Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset)
     {
@@ -108,6 +108,23 @@ public class ProjectionMercator extends AbstractGeographicProjection
         }
     }
 
+    @Override
+    public void geographicToCartesian(Globe globe, double latitude, double longitude, double metersElevation,
+        Vec4 offset, double[] out, int outOffset)
+    {
+        Sector limits = this.getProjectionLimits();
+        latitude = WWMath.clamp(latitude, limits.getMinLatitude().radians, limits.getMaxLatitude().radians);
+        longitude = WWMath.clamp(longitude, limits.getMinLongitude().radians, limits.getMaxLongitude().radians);
+
+        double ecc = Math.sqrt(globe.getEccentricitySquared());
+        double sinPhi = Math.sin(latitude);
+        double s = ((1 + sinPhi) / (1 - sinPhi)) * Math.pow((1 - ecc * sinPhi) / (1 + ecc * sinPhi), ecc);
+
+        out[outOffset] = globe.getEquatorialRadius() * longitude + (offset != null ? offset.x : 0);
+        out[outOffset + 1] = 0.5 * globe.getEquatorialRadius() * Math.log(s);
+        out[outOffset + 2] = metersElevation;
+    }
+
     @Override
     public Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset)
     {
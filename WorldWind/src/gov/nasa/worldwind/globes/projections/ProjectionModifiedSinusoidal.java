@@ -84,6 +84,16 @@ public class ProjectionModifiedSinusoidal extends AbstractGeographicProjection
         }
     }
 
+    @Override
+    public void geographicToCartesian(Globe globe, double latitude, double longitude, double metersElevation,
+        Vec4 offset, double[] out, int outOffset)
+    {
+        double latCos = Math.cos(latitude);
+        out[outOffset] = latCos > 0 ? globe.getEquatorialRadius() * longitude * Math.pow(latCos, .3) : 0;
+        out[outOffset + 1] = globe.getEquatorialRadius() * latitude;
+        out[outOffset + 2] = metersElevation;
+    }
+
     @Override
     public Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset)
     {
@@ -145,6 +145,24 @@ public class ProjectionPolarEquidistant extends AbstractGeographicProjection
         }
     }
 
+    @Override
+    public void geographicToCartesian(Globe globe, double latitude, double longitude, double metersElevation,
+        Vec4 offset, double[] out, int outOffset)
+    {
+        if ((this.pole == NORTH && latitude >= Math.PI / 2) || (this.pole == SOUTH && latitude <= -Math.PI / 2))
+        {
+            out[outOffset] = 0;
+            out[outOffset + 1] = 0;
+        }
+        else
+        {
+            double a = globe.getRadius() * (Math.PI / 2 + latitude * (this.pole == SOUTH ? 1 : -1));
+            out[outOffset] = a * Math.sin(longitude);
+            out[outOffset + 1] = a * Math.cos(longitude) * (this.pole == SOUTH ? 1 : -1);
+        }
+        out[outOffset + 2] = metersElevation;
+    }
+
     @SuppressWarnings("SuspiciousNameCombination")
     @Override
     public Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset)
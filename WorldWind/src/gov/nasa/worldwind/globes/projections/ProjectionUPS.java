@@ -138,6 +138,37 @@ public class ProjectionUPS extends AbstractGeographicProjection
         }
     }
 
+    @Override
+    public void geographicToCartesian(Globe globe, double latitude, double longitude, double metersElevation,
+        Vec4 offset, double[] out, int outOffset)
+    {
+        if ((this.pole == NORTH && latitude >= Math.PI / 2) || (this.pole == SOUTH && latitude <= -Math.PI / 2))
+        {
+            out[outOffset] = 0;
+            out[outOffset + 1] = 0;
+            out[outOffset + 2] = metersElevation;
+            return;
+        }
+
+        double lat = latitude;
+        if (this.pole == NORTH && lat < 0)
+            lat = 0;
+        else if (this.pole == SOUTH && lat > 0)
+            lat = 0;
+
+        double k0 = 0.994; // standard UPS scale factor
+        double ecc = Math.sqrt(globe.getEccentricitySquared());
+        double sp = Math.sin(lat * (this.pole == NORTH ? 1 : -1));
+
+        double t = Math.sqrt(((1 - sp) / (1 + sp)) * Math.pow((1 + ecc * sp) / (1 - ecc * sp), ecc));
+        double s = Math.sqrt(Math.pow(1 + ecc, 1 + ecc) * Math.pow(1 - ecc, 1 - ecc));
+        double r = 2 * globe.getEquatorialRadius() * k0 * t / s;
+
+        out[outOffset] = r * Math.sin(longitude);
+        out[outOffset + 1] = -r * Math.cos(longitude) * (this.pole == NORTH ? 1 : -1);
+        out[outOffset + 2] = metersElevation;
+    }
+
     @Override
     public Position cartesianToGeographic(Globe globe, Vec4 cart, Vec4 offset)
     {
@@ -229,7 +229,7 @@ public class BasicTiledImageLayer extends TiledImageLayer implements BulkRetriev
         return new RequestTask(tile, this);
     }
 
-    protected static class RequestTask implements Runnable, Comparable<RequestTask>
+    protected static class RequestTask implements TileRequest, Comparable<RequestTask>
     {
         protected final BasicTiledImageLayer layer;
         protected final TextureTile tile;
@@ -266,6 +266,21 @@ public class BasicTiledImageLayer extends TiledImageLayer implements BulkRetriev
             this.layer.retrieveTexture(this.tile, this.layer.createDownloadPostProcessor(this.tile));
         }
 
+        public TileKey getTileKey()
+        {
+            return this.tile.getTileKey();
+        }
+
+        public Sector getSector()
+        {
+            return this.tile.getSector();
+        }
+
+        public double getPriority()
+        {
+            return this.tile.getPriority();
+        }
+
         /**
          * @param that the task to compare
          *
@@ -534,6 +549,7 @@ public class BasicTiledImageLayer extends TiledImageLayer implements BulkRetriev
         avList.setValue(AVKey.FILE_NAME, tile.getPath());
 
         Retriever retriever = retrieverFactory.createRetriever(avList, postProcessor);
+        retriever.setValue(AVKey.TILE_KEY, tile.getTileKey());
 
         WorldWind.getLocalRetrievalService().runRetriever(retriever, tile.getPriority());
     }
@@ -593,6 +609,11 @@ public class BasicTiledImageLayer extends TiledImageLayer implements BulkRetriev
         if (srl != null && srl > 0)
             retriever.setStaleRequestLimit(srl);
 
+        // Identify the tile so that the retrieval can be abandoned if the view moves on before it runs. Bulk downloads
+        // are not driven by the view and are never abandoned.
+        if (!(postProcessor instanceof BasicTiledImageLayerBulkDownloader.BulkDownloadPostProcessor))
+            retriever.setValue(AVKey.TILE_KEY, tile.getTileKey());
+
         WorldWind.getRetrievalService().runRetriever(retriever, tile.getPriority());
     }
 
@@ -645,6 +666,18 @@ public class BasicTiledImageLayer extends TiledImageLayer implements BulkRetriev
             return this.getFileStore().newFile(this.tile.getPath());
         }
 
+        @Override
+        protected FileStore getOutputFileStore()
+        {
+            return this.getFileStore();
+        }
+
+        @Override
+        protected String getOutputFileName()
+        {
+            return this.tile.getPath();
+        }
+
         @Override
         protected ByteBuffer handleSuccessfulRetrieval()
         {
@@ -1109,11 +1109,11 @@ public abstract class TiledImageLayer extends AbstractLayer
         {
             try
             {
-                File imageFile = new File(url.toURI());
-                BufferedImage image = ImageIO.read(imageFile);
+                // Read through the URL, which may refer to a file store entry that isn't a file, such as a tile pack's.
+                BufferedImage image = ImageIO.read(url);
                 if (image == null)
                 {
-                    String message = Logging.getMessage("generic.ImageReadFailed", imageFile);
+                    String message = Logging.getMessage("generic.ImageReadFailed", url);
                     throw new RuntimeException(message);
                 }
 
@@ -1268,9 +1268,45 @@ public abstract class TiledImageLayer extends AbstractLayer
      * @throws IllegalArgumentException if <code>sector</code> is null.
      * @see ImageUtil#mergeImage(gov.nasa.worldwind.geom.Sector, gov.nasa.worldwind.geom.Sector, double,
      *      java.awt.image.BufferedImage, java.awt.image.BufferedImage)  ;
+     * @see #composeImageForSector(gov.nasa.worldwind.geom.Sector, int, int, double, int, String, boolean,
+     *      java.awt.image.BufferedImage, int, int)
      */
     public BufferedImage composeImageForSector(Sector sector, int canvasWidth, int canvasHeight, double aspectRatio,
         int levelNumber, String mimeType, boolean abortOnError, BufferedImage image, int timeout) throws Exception
+    {
+        return this.composeImageForSector(sector, canvasWidth, canvasHeight, aspectRatio, levelNumber, mimeType,
+            abortOnError, image, timeout, ConcurrentCompositor.getThreadPoolSize(this));
+    }
+
+    /**
+     * Create an image for the portion of this layer lying within a specified sector, retrieving and merging tiles on a
+     * specified number of threads. See {@link #composeImageForSector(gov.nasa.worldwind.geom.Sector, int, int, double,
+     * int, String, boolean, java.awt.image.BufferedImage, int)} for a description of the arguments and result.
+     * <p/>
+     * With more than one thread, tiles are retrieved concurrently and merged into separate bands of the image by
+     * several threads at once, as described by {@link ConcurrentCompositor}. The assembled image is the same as the one
+     * assembled on a single thread. Progress events are fired on the calling thread, once for each tile merged.
+     *
+     * @param sector       the sector of interest.
+     * @param canvasWidth  the width of the canvas.
+     * @param canvasHeight the height of the canvas.
+     * @param aspectRatio  the aspect ratio, width/height, of the window.
+     * @param levelNumber  the target level of the tiled image layer.
+     * @param mimeType     the type of image to create, e.g., "png" and "jpg".
+     * @param abortOnError indicates whether to stop assembling the image if an error occurs.
+     * @param image        if non-null, a {@link BufferedImage} in which to place the image.
+     * @param timeout      The amount of time to allow for reading the image from the server.
+     * @param numThreads   the number of threads that retrieve and merge tiles. The number of tile retrievals in
+     *                     progress at once is at most twice this number. A value of 1 retrieves and merges the tiles
+     *                     serially on the calling thread.
+     *
+     * @return image        the assembled image.
+     *
+     * @throws IllegalArgumentException if <code>sector</code> is null or the number of threads is less than 1.
+     */
+    public BufferedImage composeImageForSector(Sector sector, int canvasWidth, int canvasHeight, double aspectRatio,
+        int levelNumber, String mimeType, boolean abortOnError, BufferedImage image, int timeout, int numThreads)
+        throws Exception
     {
         if (sector == null)
         {
@@ -1315,45 +1351,98 @@ public abstract class TiledImageLayer extends AbstractLayer
         if (image == null)
             image = new BufferedImage(canvasWidth, canvasHeight, BufferedImage.TYPE_INT_RGB);
 
-        double tileCount = 0;
+        java.util.List<CompositionPart> parts = new ArrayList<CompositionPart>(numTiles);
         for (TextureTile[] row : tiles)
         {
             for (TextureTile tile : row)
             {
-                if (tile == null)
-                    continue;
-
-                BufferedImage tileImage;
-                try
-                {
-                    tileImage = this.getImage(tile, mimeType, timeout);
-                    Thread.sleep(1); // generates InterruptedException if thread has been interupted
+                if (tile != null)
+                    parts.add(new CompositionPart(tile, sector, aspectRatio, mimeType, timeout, image));
+            }
+        }
 
-                    if (tileImage != null)
-                        ImageUtil.mergeImage(sector, tile.getSector(), aspectRatio, tileImage, image);
+        final int tileTotal = numTiles;
+        new ConcurrentCompositor(numThreads).compose(parts, image.getHeight(), abortOnError,
+            new ConcurrentCompositor.Listener<BufferedImage>()
+            {
+                protected double tileCount = 0;
 
-                    this.firePropertyChange(AVKey.PROGRESS, tileCount / numTiles, ++tileCount / numTiles);
-                }
-                catch (InterruptedException e)
-                {
-                    throw e;
-                }
-                catch (InterruptedIOException e)
+                public void partComposed(ConcurrentCompositor.Part<BufferedImage> part)
                 {
-                    throw e;
+                    firePropertyChange(AVKey.PROGRESS, this.tileCount / tileTotal, ++this.tileCount / tileTotal);
                 }
-                catch (Exception e)
-                {
-                    if (abortOnError)
-                        throw e;
+            });
 
-                    String message = Logging.getMessage("generic.ExceptionWhileRequestingImage", tile.getPath());
-                    Logging.logger().log(java.util.logging.Level.WARNING, message, e);
-                }
+        return image;
+    }
+
+    /** A tile to be retrieved and merged into an image by {@link ConcurrentCompositor}. */
+    protected class CompositionPart implements ConcurrentCompositor.Part<BufferedImage>
+    {
+        protected final TextureTile tile;
+        protected final Sector sector;
+        protected final double aspectRatio;
+        protected final String mimeType;
+        protected final int timeout;
+        protected final BufferedImage image;
+        protected final java.awt.Rectangle bounds;
+
+        public CompositionPart(TextureTile tile, Sector sector, double aspectRatio, String mimeType, int timeout,
+            BufferedImage image)
+        {
+            this.tile = tile;
+            this.sector = sector;
+            this.aspectRatio = aspectRatio;
+            this.mimeType = mimeType;
+            this.timeout = timeout;
+            this.image = image;
+
+            // The tile's rows do not depend on the size of its image, so compute them from the nominal tile size.
+            // Include a row on each side for pixels the tile only partially covers.
+            this.bounds = ImageUtil.computeMergeTransform(sector, tile.getSector(), aspectRatio, tile.getWidth(),
+                tile.getHeight(), image.getWidth(), image.getHeight()).createTransformedShape(
+                new java.awt.Rectangle(0, 0, tile.getWidth(), tile.getHeight())).getBounds();
+            this.bounds.grow(1, 1);
+        }
+
+        public BufferedImage read() throws Exception
+        {
+            BufferedImage tileImage = getImage(this.tile, this.mimeType, this.timeout);
+            Thread.sleep(1); // generates InterruptedException if thread has been interupted
+
+            return tileImage;
+        }
+
+        public int getMinRow()
+        {
+            return this.sector.intersects(this.tile.getSector()) ? this.bounds.y : 0;
+        }
+
+        public int getMaxRow()
+        {
+            return this.sector.intersects(this.tile.getSector()) ? this.bounds.y + this.bounds.height : 0;
+        }
+
+        public void draw(BufferedImage tileImage, int minRow, int maxRow)
+        {
+            java.awt.Graphics2D g = ConcurrentCompositor.createGraphics(this.image, minRow, maxRow);
+            try
+            {
+                g.transform(ImageUtil.computeMergeTransform(this.sector, this.tile.getSector(), this.aspectRatio,
+                    tileImage.getWidth(), tileImage.getHeight(), this.image.getWidth(), this.image.getHeight()));
+                g.drawImage(tileImage, 0, 0, null);
+            }
+            finally
+            {
+                g.dispose();
             }
         }
 
-        return image;
+        @Override
+        public String toString()
+        {
+            return this.tile.getPath();
+        }
     }
 
     public long countImagesInSector(Sector sector)
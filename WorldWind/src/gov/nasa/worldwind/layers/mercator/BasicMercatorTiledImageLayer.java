@@ -39,7 +39,7 @@ public class BasicMercatorTiledImageLayer extends MercatorTiledImageLayer
         {
             long size = Configuration.getLongValue(
                 AVKey.TEXTURE_IMAGE_CACHE_SIZE, 3000000L);
-            MemoryCache cache = new BasicMemoryCache((long) (0.85 * size), size);
+            MemoryCache cache = WorldWind.getMemoryCacheSet().createMemoryCache((long) (0.85 * size), size);
             cache.setName("Texture Tiles");
             WorldWind.getMemoryCacheSet().addCache(MercatorTextureTile.class.getName(), cache);
         }
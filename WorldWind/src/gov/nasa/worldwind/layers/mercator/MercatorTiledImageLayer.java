@@ -17,7 +17,6 @@ import gov.nasa.worldwind.util.*;
 import javax.imageio.ImageIO;
 import javax.media.opengl.*;
 import java.awt.*;
-import java.awt.geom.*;
 import java.awt.image.*;
 import java.io.*;
 import java.net.*;
@@ -771,12 +770,12 @@ public abstract class MercatorTiledImageLayer extends AbstractLayer
         {
             try
             {
-                File imageFile = new File(url.toURI());
-                BufferedImage image = ImageIO.read(imageFile);
+                // Read through the URL, which may refer to a file store entry that isn't a file, such as a tile pack's.
+                BufferedImage image = ImageIO.read(url);
                 if (image == null)
                 {
                     String message = Logging.getMessage(
-                        "generic.ImageReadFailed", imageFile);
+                        "generic.ImageReadFailed", url);
                     throw new RuntimeException(message);
                 }
 
@@ -865,6 +864,21 @@ public abstract class MercatorTiledImageLayer extends AbstractLayer
     public BufferedImage composeImageForSector(Sector sector, int imageWidth,
         int imageHeight, int levelNumber, String mimeType,
         boolean abortOnError, BufferedImage image)
+    {
+        return this.composeImageForSector(sector, imageWidth, imageHeight,
+            levelNumber, mimeType, abortOnError, image,
+            ConcurrentCompositor.getThreadPoolSize(this));
+    }
+
+    /**
+     * Create an image for the portion of this layer lying within a specified
+     * sector, retrieving and drawing tiles on a specified number of threads as
+     * described by {@link ConcurrentCompositor}. A value of 1 retrieves and
+     * draws the tiles serially on the calling thread.
+     */
+    public BufferedImage composeImageForSector(Sector sector, int imageWidth,
+        int imageHeight, int levelNumber, String mimeType,
+        boolean abortOnError, BufferedImage image, int numThreads)
     {
         if (sector == null)
         {
@@ -904,59 +918,108 @@ public abstract class MercatorTiledImageLayer extends AbstractLayer
             image = new BufferedImage(imageWidth, imageHeight,
                 BufferedImage.TYPE_INT_RGB);
 
-        Graphics2D g = image.createGraphics();
-
+        List<CompositionPart> parts = new ArrayList<CompositionPart>();
         for (MercatorTextureTile[] row : tiles)
         {
             for (MercatorTextureTile tile : row)
             {
-                if (tile == null)
-                    continue;
+                if (tile != null)
+                    parts.add(new CompositionPart(tile, sector, imageWidth,
+                        imageHeight, mimeType, image));
+            }
+        }
 
-                BufferedImage tileImage;
-                try
-                {
-                    tileImage = this.getImage(tile, mimeType);
-
-                    double sh = ((double) imageHeight / (double) tileImage
-                        .getHeight())
-                        * (tile.getSector().getDeltaLat().divide(sector
-                        .getDeltaLat()));
-                    double sw = ((double) imageWidth / (double) tileImage
-                        .getWidth())
-                        * (tile.getSector().getDeltaLon().divide(sector
-                        .getDeltaLon()));
-
-                    double dh = imageHeight
-                        * (-tile.getSector().getMaxLatitude().subtract(
-                        sector.getMaxLatitude()).degrees / sector
-                        .getDeltaLat().degrees);
-                    double dw = imageWidth
-                        * (tile.getSector().getMinLongitude().subtract(
-                        sector.getMinLongitude()).degrees / sector
-                        .getDeltaLon().degrees);
-
-                    AffineTransform txf = g.getTransform();
-                    g.translate(dw, dh);
-                    g.scale(sw, sh);
-                    g.drawImage(tileImage, 0, 0, null);
-                    g.setTransform(txf);
-                }
-                catch (Exception e)
-                {
-                    if (abortOnError)
-                        throw new RuntimeException(e);
+        try
+        {
+            new ConcurrentCompositor(numThreads).compose(parts,
+                image.getHeight(), abortOnError, null);
+        }
+        catch (RuntimeException e)
+        {
+            throw e;
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
 
-                    String message = Logging.getMessage(
-                        "generic.ExceptionWhileRequestingImage", tile
-                        .getPath());
-                    Logging.logger().log(java.util.logging.Level.WARNING,
-                        message, e);
-                }
+        return image;
+    }
+
+    /**
+     * A tile to be retrieved and drawn into an image by {@link
+     * ConcurrentCompositor}. The tile is scaled to the image as a whole, with
+     * the tile's sector spanning the same fraction of the image as of the
+     * requested sector.
+     */
+    protected class CompositionPart
+        implements ConcurrentCompositor.Part<BufferedImage>
+    {
+        protected final MercatorTextureTile tile;
+        protected final Sector sector;
+        protected final int imageWidth;
+        protected final int imageHeight;
+        protected final String mimeType;
+        protected final BufferedImage image;
+        protected final Rectangle bounds;
+
+        public CompositionPart(MercatorTextureTile tile, Sector sector,
+            int imageWidth, int imageHeight, String mimeType,
+            BufferedImage image)
+        {
+            this.tile = tile;
+            this.sector = sector;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+            this.mimeType = mimeType;
+            this.image = image;
+
+            this.bounds = ImageUtil.computeMergeTransform(sector,
+                tile.getSector(), 1, tile.getWidth(), tile.getHeight(),
+                imageWidth, imageHeight).createTransformedShape(
+                new Rectangle(0, 0, tile.getWidth(), tile.getHeight()))
+                .getBounds();
+            this.bounds.grow(1, 1);
+        }
+
+        public BufferedImage read() throws Exception
+        {
+            return getImage(this.tile, this.mimeType);
+        }
+
+        public int getMinRow()
+        {
+            return this.bounds.y;
+        }
+
+        public int getMaxRow()
+        {
+            return this.bounds.y + this.bounds.height;
+        }
+
+        public void draw(BufferedImage tileImage, int minRow, int maxRow)
+        {
+            Graphics2D g = ConcurrentCompositor.createGraphics(this.image,
+                minRow, maxRow);
+            try
+            {
+                g.transform(ImageUtil.computeMergeTransform(this.sector,
+                    this.tile.getSector(), 1, tileImage.getWidth(),
+                    tileImage.getHeight(), this.imageWidth,
+                    this.imageHeight));
+                g.drawImage(tileImage, 0, 0, null);
+            }
+            finally
+            {
+                g.dispose();
             }
         }
 
-        return image;
+        @Override
+        public String toString()
+        {
+            return this.tile.getPath();
+        }
     }
 
     public int countImagesInSector(Sector sector, int levelNumber)
@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.layers.placename;
+
+import gov.nasa.worldwind.WorldWind;
+import gov.nasa.worldwind.cache.FileStore;
+import gov.nasa.worldwind.util.Logging;
+
+import java.io.File;
+import java.util.logging.Level;
+
+/**
+ * Converts place-name tiles cached as GML to the binary format of {@link PlaceNameTileFormat}. {@link PlaceNameLayer}
+ * writes newly retrieved tiles in the binary format, and still reads tiles cached as GML, but parses them each time
+ * they're loaded. This converts those tiles once. Each GML tile is replaced by a binary tile beside it.
+ * <p/>
+ * Conversion should be run while no layer is loading tiles from the directories being converted. From the command
+ * line, each argument names a directory to convert; with no arguments the place-name directories of the World Wind file
+ * cache are converted.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class PlaceNameCacheConverter
+{
+    protected static final String GML_SUFFIX = ".xml.gz";
+
+    protected int numConverted;
+    protected int numFailed;
+
+    public static void main(String[] args)
+    {
+        PlaceNameCacheConverter converter = new PlaceNameCacheConverter();
+
+        if (args.length > 0)
+        {
+            for (String arg : args)
+            {
+                converter.convertDirectory(new File(arg));
+            }
+        }
+        else
+        {
+            converter.convertDirectory(new File(WorldWind.getDataFileStore().getWriteLocation(),
+                getPlaceNameCacheRoot()));
+        }
+
+        System.out.println(converter.getNumConverted() + " tiles converted, " + converter.getNumFailed() + " failed");
+    }
+
+    protected static String getPlaceNameCacheRoot()
+    {
+        return "Earth" + File.separator + "PlaceNames";
+    }
+
+    /**
+     * Returns the number of tiles converted by this converter.
+     *
+     * @return the number of tiles converted.
+     */
+    public int getNumConverted()
+    {
+        return this.numConverted;
+    }
+
+    /**
+     * Returns the number of tiles this converter could not convert. Those tiles are left in place.
+     *
+     * @return the number of tiles that could not be converted.
+     */
+    public int getNumFailed()
+    {
+        return this.numFailed;
+    }
+
+    /**
+     * Converts the GML tiles of a layer's place-name services within a specified file store.
+     *
+     * @param layer     the layer whose tiles to convert.
+     * @param fileStore the file store holding the tiles. The tiles in its write location are converted.
+     *
+     * @throws IllegalArgumentException if the layer or file store is null.
+     */
+    public void convertLayer(PlaceNameLayer layer, FileStore fileStore)
+    {
+        if (layer == null)
+        {
+            String message = Logging.getMessage("nullValue.LayerIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (fileStore == null)
+        {
+            String message = Logging.getMessage("nullValue.FileStoreIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        for (PlaceNameService service : layer.getPlaceNameServiceSet().getServices())
+        {
+            // A service's tiles are in its dataset directory, in a subdirectory for each row.
+            File tileFile = new File(fileStore.getWriteLocation(), service.createFileCachePathFromTile(0, 0));
+            this.convertDirectory(tileFile.getParentFile().getParentFile());
+        }
+    }
+
+    /**
+     * Converts the GML tiles in a directory and its subdirectories. A GML tile is left in place if it can't be
+     * converted, or if there is already a binary tile beside it.
+     *
+     * @param directory the directory to convert. Nothing is done if the directory does not exist.
+     *
+     * @throws IllegalArgumentException if the directory is null.
+     */
+    public void convertDirectory(File directory)
+    {
+        if (directory == null)
+        {
+            String message = Logging.getMessage("nullValue.FileIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        File[] files = directory.listFiles();
+        if (files == null)
+            return;
+
+        for (File file : files)
+        {
+            if (file.isDirectory())
+                this.convertDirectory(file);
+            else if (file.getName().endsWith(GML_SUFFIX))
+                this.convertFile(file);
+        }
+    }
+
+    protected void convertFile(File gmlFile)
+    {
+        String name = gmlFile.getName();
+        File binaryFile = new File(gmlFile.getParentFile(),
+            name.substring(0, name.length() - GML_SUFFIX.length()) + PlaceNameTileFormat.FILE_SUFFIX);
+        if (binaryFile.exists())
+            return;
+
+        try
+        {
+            PlaceNameTileFormat.convertGMLFile(gmlFile, binaryFile);
+        }
+        catch (Exception e)
+        {
+            this.numFailed++;
+            Logging.logger().log(Level.WARNING,
+                Logging.getMessage("layers.PlaceNameLayer.ExceptionAttemptingToReadFile", gmlFile), e);
+
+            //noinspection ResultOfMethodCallIgnored
+            binaryFile.delete();
+            return;
+        }
+
+        this.numConverted++;
+        if (!gmlFile.delete())
+            Logging.logger().fine(Logging.getMessage("generic.CannotDeleteFile", gmlFile));
+    }
+}
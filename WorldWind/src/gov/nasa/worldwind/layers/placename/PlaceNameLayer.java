@@ -94,7 +94,7 @@ public class PlaceNameLayer extends AbstractLayer implements BulkRetrievable
         if (!WorldWind.getMemoryCacheSet().containsCache(Tile.class.getName()))
         {
             long size = Configuration.getLongValue(AVKey.PLACENAME_LAYER_CACHE_SIZE, 2000000L);
-            MemoryCache cache = new BasicMemoryCache((long) (0.85 * size), size);
+            MemoryCache cache = WorldWind.getMemoryCacheSet().createMemoryCache((long) (0.85 * size), size);
             cache.setName("Placename Tiles");
             WorldWind.getMemoryCacheSet().addCache(Tile.class.getName(), cache);
         }
@@ -392,6 +392,11 @@ public class PlaceNameLayer extends AbstractLayer implements BulkRetrievable
             return this.fileCachePath;
         }
 
+        public String getBinaryFileCachePath()
+        {
+            return this.placeNameService.createBinaryFileCachePathFromTile(this.row, this.column);
+        }
+
         public PlaceNameService getPlaceNameService()
         {
             return placeNameService;
@@ -791,7 +796,10 @@ public class PlaceNameLayer extends AbstractLayer implements BulkRetrievable
             if (this.tile.isTileInMemoryWithData())
                 return;
 
-            final java.net.URL tileURL = this.layer.getDataFileStore().findFile(tile.getFileCachePath(), false);
+            // Look for the tile in the binary format, then for a tile cached as GML before that format was introduced.
+            java.net.URL tileURL = this.layer.getDataFileStore().findFile(tile.getBinaryFileCachePath(), false);
+            if (tileURL == null)
+                tileURL = this.layer.getDataFileStore().findFile(tile.getFileCachePath(), false);
             if (tileURL != null)
             {
                 if (this.layer.loadTile(this.tile, tileURL))
@@ -885,40 +893,17 @@ public class PlaceNameLayer extends AbstractLayer implements BulkRetrievable
 
     protected static PlaceNameChunk readTileData(Tile tile, java.net.URL url)
     {
-        java.io.InputStream is = null;
-
         try
         {
-            String path = url.getFile();
-            path = path.replaceAll("%20", " "); // TODO: find a better way to get a path usable by FileInputStream
-
-            java.io.FileInputStream fis = new java.io.FileInputStream(path);
-            java.io.BufferedInputStream buf = new java.io.BufferedInputStream(fis);
-            is = new java.util.zip.GZIPInputStream(buf);
-
-            GMLPlaceNameSAXHandler handler = new GMLPlaceNameSAXHandler();
-            javax.xml.parsers.SAXParserFactory.newInstance().newSAXParser().parse(is, handler);
-            return handler.createPlaceNameChunk(tile.getPlaceNameService());
+            // Binary tiles are decoded; tiles cached as GML are parsed. Tiles held outside the file system, such as
+            // those in a TilePackFileStore, are read from the URL's stream.
+            return PlaceNameTileFormat.readTile(tile.getPlaceNameService(), url);
         }
         catch (Exception e)
         {
-            //todo log actual error 
             Logging.logger().log(Level.FINE,
                 Logging.getMessage("layers.PlaceNameLayer.ExceptionAttemptingToReadFile", url.toString()), e);
         }
-        finally
-        {
-            try
-            {
-                if (is != null)
-                    is.close();
-            }
-            catch (java.io.IOException e)
-            {
-                Logging.logger().log(Level.FINE,
-                    Logging.getMessage("layers.PlaceNameLayer.ExceptionAttemptingToReadFile", url.toString()), e);
-            }
-        }
 
         return null;
     }
@@ -1182,7 +1167,27 @@ public class PlaceNameLayer extends AbstractLayer implements BulkRetrievable
 
         protected File doGetOutputFile()
         {
-            return this.getFileStore().newFile(this.tile.getFileCachePath());
+            return this.getFileStore().newFile(this.tile.getBinaryFileCachePath());
+        }
+
+        @Override
+        protected boolean saveBuffer(ByteBuffer buffer) throws IOException
+        {
+            // Convert the retrieved GML to the binary format once, here, rather than each time the tile is loaded.
+            ByteBuffer binary;
+            try
+            {
+                binary = PlaceNameTileFormat.convertGML(buffer != null ? buffer : this.getRetriever().getBuffer());
+            }
+            catch (Exception e)
+            {
+                Logging.logger().log(Level.FINE, Logging.getMessage(
+                    "layers.PlaceNameLayer.ExceptionAttemptingToReadFile", this.getRetriever().getName()), e);
+                this.markResourceAbsent();
+                return false;
+            }
+
+            return super.saveBuffer(binary);
         }
 
         @Override
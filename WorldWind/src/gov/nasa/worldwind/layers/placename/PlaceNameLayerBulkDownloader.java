@@ -316,9 +316,12 @@ public class PlaceNameLayerBulkDownloader extends BulkRetrievalThread
                     if (needToCheckDisk)
                     {
                         //now check if on disk
-                        String filePath = tile.placeNameService.createFileCachePathFromTile(row + firstRow,
+                        String filePath = tile.placeNameService.createBinaryFileCachePathFromTile(row + firstRow,
                             col + firstCol);
-                        final java.net.URL tileURL = this.fileStore.findFile(filePath, false);
+                        java.net.URL tileURL = this.fileStore.findFile(filePath, false);
+                        if (tileURL == null)
+                            tileURL = this.fileStore.findFile(tile.placeNameService.createFileCachePathFromTile(
+                                row + firstRow, col + firstCol), false);
                         if (tileURL == null)
                             needToCheckDisk = false; //looked and found nothing
                         else
@@ -341,7 +344,9 @@ public class PlaceNameLayerBulkDownloader extends BulkRetrievalThread
             tile.getPlaceNameService().getTileNumber(tile.row, tile.column)))
             return true;    // tile is absent
 
-        URL url = this.fileStore.findFile(tile.getFileCachePath(), false);
+        URL url = this.fileStore.findFile(tile.getBinaryFileCachePath(), false);
+        if (url == null)
+            url = this.fileStore.findFile(tile.getFileCachePath(), false);
         return url != null; // tile is already in cache
     }
 }
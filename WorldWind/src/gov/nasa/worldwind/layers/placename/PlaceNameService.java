@@ -22,6 +22,7 @@ public class PlaceNameService
     private final String dataset;
     private final String fileCachePath;
     private static final String FORMAT_SUFFIX = ".xml.gz";
+    private static final String BINARY_FORMAT_SUFFIX = PlaceNameTileFormat.FILE_SUFFIX;
     // Geospatial attributes.
     public static final Sector TILING_SECTOR = Sector.FULL_SPHERE;
     private final LatLon tileDelta;
@@ -90,6 +91,26 @@ public class PlaceNameService
      * @throws IllegalArgumentException if either <code>row</code> or <code>column</code> is less than zero
      */
     public String createFileCachePathFromTile(int row, int column)
+    {
+        return this.createFileCachePathFromTile(row, column, FORMAT_SUFFIX);
+    }
+
+    /**
+     * Returns the cache path of a tile in the binary format written by {@link PlaceNameTileFormat}.
+     *
+     * @param row    row
+     * @param column column
+     *
+     * @return path of the tile's binary file in the cache
+     *
+     * @throws IllegalArgumentException if either <code>row</code> or <code>column</code> is less than zero
+     */
+    public String createBinaryFileCachePathFromTile(int row, int column)
+    {
+        return this.createFileCachePathFromTile(row, column, BINARY_FORMAT_SUFFIX);
+    }
+
+    private String createFileCachePathFromTile(int row, int column, String suffix)
     {
         if (row < 0 || column < 0)
         {
@@ -102,7 +123,7 @@ public class PlaceNameService
         sb.append(java.io.File.separator).append(this.dataset);
         sb.append(java.io.File.separator).append(row);
         sb.append(java.io.File.separator).append(row).append('_').append(column);
-        sb.append(FORMAT_SUFFIX);
+        sb.append(suffix);
 
         String path = sb.toString();
         return path.replaceAll("[:*?<>|]", "");
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.layers.placename;
+
+import gov.nasa.worldwind.exception.WWRuntimeException;
+import gov.nasa.worldwind.util.*;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.*;
+
+/**
+ * Reads and writes place-name tiles in a compact binary format. Tiles are retrieved as GML, which {@link
+ * PlaceNameLayer} converts to this format once, when the tile is downloaded. Loading a binary tile is a bulk read
+ * followed by a few bulk copies; the names are not copied at all, but viewed in place.
+ * <p/>
+ * A binary tile holds, in little-endian byte order: <ul> <li>A 16 byte header: the magic number "WWPN", the format
+ * version, the number of names and the number of characters in the string table, each a 32 bit integer.</li> <li>The
+ * offset of each name in the string table, as 32 bit integers.</li> <li>The latitude and longitude of each name, in
+ * that order, in units of 10<sup>-7</sup> degrees, as 32 bit integers, which places a name within about a
+ * centimeter.</li> <li>The string table: the names' UTF-16 characters, concatenated.</li> </ul>
+ *
+ * @author tag
+ * @version $Id$
+ * @see PlaceNameCacheConverter
+ */
+public class PlaceNameTileFormat
+{
+    /** The file suffix of binary place-name tiles. */
+    public static final String FILE_SUFFIX = ".wwpn";
+
+    /** The bytes "WWPN", read as a little-endian integer. */
+    protected static final int MAGIC = 0x4E505757;
+    protected static final int VERSION = 1;
+    protected static final int HEADER_SIZE = 16;
+    /** The number of packed units per degree of latitude or longitude. */
+    protected static final double UNITS_PER_DEGREE = 1e7;
+
+    /**
+     * Indicates whether a buffer holds a binary place-name tile.
+     *
+     * @param buffer the buffer to test. Its position and byte order are not changed.
+     *
+     * @return true if the buffer begins with the binary tile header, otherwise false.
+     */
+    public static boolean isBinaryTile(ByteBuffer buffer)
+    {
+        return buffer != null && buffer.remaining() >= HEADER_SIZE
+            && buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Converts a GML place-name tile to the binary format.
+     *
+     * @param gml the GML tile, either gzip compressed, as the place-name service provides it, or uncompressed.
+     *
+     * @return the binary tile, with its position at zero.
+     *
+     * @throws IllegalArgumentException if the buffer is null.
+     * @throws Exception                if the GML can't be parsed.
+     */
+    public static ByteBuffer convertGML(ByteBuffer gml) throws Exception
+    {
+        if (gml == null)
+        {
+            String message = Logging.getMessage("nullValue.BufferIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        PlaceNameLayer.GMLPlaceNameSAXHandler handler = parseGML(gml);
+
+        return encode(handler.textArray, handler.textIndexArray, handler.latlonArray, handler.numEntries);
+    }
+
+    /**
+     * Converts a file holding a GML place-name tile to a file in the binary format.
+     *
+     * @param gmlFile    the GML tile, gzip compressed or not.
+     * @param binaryFile the file to write. Its parent directories are created if necessary.
+     *
+     * @throws IllegalArgumentException if either file is null.
+     * @throws Exception                if the GML can't be read or parsed, or the binary tile can't be written.
+     */
+    public static void convertGMLFile(File gmlFile, File binaryFile) throws Exception
+    {
+        if (gmlFile == null || binaryFile == null)
+        {
+            String message = Logging.getMessage("nullValue.FileIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        WWIO.saveBuffer(convertGML(WWIO.readFileToBuffer(gmlFile)), binaryFile);
+    }
+
+    /**
+     * Encodes place names in the binary format.
+     *
+     * @param text        the names, concatenated.
+     * @param textIndices the index in <code>text</code> of the first character of each name.
+     * @param latlons     the latitude and longitude of each name, in degrees.
+     * @param numEntries  the number of names.
+     *
+     * @return the binary tile, with its position at zero.
+     */
+    public static ByteBuffer encode(CharSequence text, int[] textIndices, double[] latlons, int numEntries)
+    {
+        int numChars = text.length();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 12 * numEntries + 2 * numChars);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(numEntries);
+        buffer.putInt(numChars);
+
+        buffer.asIntBuffer().put(textIndices, 0, numEntries);
+        buffer.position(buffer.position() + 4 * numEntries);
+
+        for (int i = 0; i < 2 * numEntries; i++)
+        {
+            buffer.putInt((int) Math.round(latlons[i] * UNITS_PER_DEGREE));
+        }
+
+        CharBuffer chars = buffer.asCharBuffer();
+        for (int i = 0; i < numChars; i++)
+        {
+            chars.put(text.charAt(i));
+        }
+
+        buffer.rewind();
+        return buffer;
+    }
+
+    /**
+     * Reads a place-name tile in either format. The tile is read in a single bulk read. A binary tile is decoded
+     * without further copying; a GML tile is parsed.
+     *
+     * @param service the tile's place-name service.
+     * @param url     the tile's location.
+     *
+     * @return the tile's place names.
+     *
+     * @throws Exception if the tile can't be read or is not a valid tile.
+     */
+    protected static PlaceNameLayer.PlaceNameChunk readTile(PlaceNameService service, URL url) throws Exception
+    {
+        // Read local files directly rather than through a stream. The buffer is direct because binary tiles keep the
+        // names in it.
+        File file = WWIO.convertURLToFile(url);
+        ByteBuffer buffer = file != null ? WWIO.readFileToBuffer(file, true) : WWIO.readURLContentToBuffer(url, true);
+
+        if (isBinaryTile(buffer))
+            return decode(service, buffer);
+
+        return parseGML(buffer).createPlaceNameChunk(service);
+    }
+
+    /**
+     * Decodes a binary place-name tile. The tile's names remain in the buffer, so the buffer must not be modified
+     * afterwards.
+     *
+     * @param service the tile's place-name service.
+     * @param buffer  the binary tile.
+     *
+     * @return the tile's place names.
+     *
+     * @throws WWRuntimeException if the buffer does not hold a valid binary tile.
+     */
+    protected static PlaceNameLayer.PlaceNameChunk decode(PlaceNameService service, ByteBuffer buffer)
+    {
+        ByteBuffer bb = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (bb.remaining() < HEADER_SIZE || bb.getInt() != MAGIC || bb.getInt() != VERSION)
+            throw new WWRuntimeException(Logging.getMessage("generic.UnknownFileFormat", FILE_SUFFIX));
+
+        int numEntries = bb.getInt();
+        int numChars = bb.getInt();
+        if (numEntries < 0 || numChars < 0
+            || bb.remaining() != 12L * numEntries + 2L * numChars)
+            throw new WWRuntimeException(Logging.getMessage("generic.InvalidFileLength", buffer.remaining()));
+
+        int[] textIndices = new int[numEntries];
+        bb.asIntBuffer().get(textIndices);
+        bb.position(bb.position() + 4 * numEntries);
+
+        int[] packed = new int[2 * numEntries];
+        bb.asIntBuffer().get(packed);
+        bb.position(bb.position() + 8 * numEntries);
+
+        for (int i = 0; i < numEntries; i++)
+        {
+            int end = i + 1 < numEntries ? textIndices[i + 1] : numChars;
+            if (textIndices[i] < 0 || textIndices[i] > end)
+                throw new WWRuntimeException(Logging.getMessage("generic.UnknownFileFormat", FILE_SUFFIX));
+        }
+
+        double[] latlons = new double[packed.length];
+        for (int i = 0; i < packed.length; i++)
+        {
+            latlons[i] = packed[i] / UNITS_PER_DEGREE;
+        }
+
+        CharBuffer text = bb.slice().order(ByteOrder.LITTLE_ENDIAN).asCharBuffer();
+
+        return new PlaceNameLayer.PlaceNameChunk(service, text, textIndices, latlons, numEntries);
+    }
+
+    protected static PlaceNameLayer.GMLPlaceNameSAXHandler parseGML(ByteBuffer gml) throws Exception
+    {
+        byte[] bytes = new byte[gml.remaining()];
+        gml.duplicate().get(bytes);
+        InputStream is = new ByteArrayInputStream(bytes);
+
+        // Tiles are gzip compressed as retrieved, but accept uncompressed GML too.
+        if (gml.remaining() >= 2 && (gml.get(gml.position()) & 0xff) == 0x1f
+            && (gml.get(gml.position() + 1) & 0xff) == 0x8b)
+            is = new java.util.zip.GZIPInputStream(is);
+
+        try
+        {
+            PlaceNameLayer.GMLPlaceNameSAXHandler handler = new PlaceNameLayer.GMLPlaceNameSAXHandler();
+            javax.xml.parsers.SAXParserFactory.newInstance().newSAXParser().parse(is, handler);
+            return handler;
+        }
+        finally
+        {
+            WWIO.closeStream(is, null);
+        }
+    }
+}
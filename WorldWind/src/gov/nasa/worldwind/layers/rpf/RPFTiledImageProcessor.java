@@ -34,6 +34,8 @@ public class RPFTiledImageProcessor
     private final PropertyChangeSupport propertyChangeSupport;
     private final Object fileLock = new Object();
     private volatile boolean doStop = false;
+    private volatile StagedPipeline<FrameTask> ingestPipeline;
+    private volatile java.util.List<StagedPipeline.StageStatistics> stageStatistics;
 
     private static final int DEFAULT_WAVELET_SIZE = 256;
 
@@ -42,6 +44,8 @@ public class RPFTiledImageProcessor
     public static final String SUB_TASK_NUM_STEPS = "SubTaskNumSteps";
     public static final String SUB_TASK_STEP_COMPLETE = "SubTaskStepComplete";
     public static final String SUB_TASK_STEP_FAILED = "SubTaskStepFailed";
+    /** Fired when frame ingest ends. The new value is the list of statistics for each stage of the ingest. */
+    public static final String STAGE_STATISTICS = "StageStatistics";
 
     public RPFTiledImageProcessor()
     {
@@ -156,6 +160,25 @@ public class RPFTiledImageProcessor
     public void stop()
     {
         this.doStop = true;
+
+        StagedPipeline<FrameTask> pipeline = this.ingestPipeline;
+        if (pipeline != null)
+            pipeline.stop();
+    }
+
+    /**
+     * Returns the statistics of each stage of the most recent frame ingest: index, decompress, deproject and write.
+     * The statistics are a snapshot while an ingest is running.
+     *
+     * @return the statistics of each ingest stage, or null if no frames have been ingested.
+     */
+    public java.util.List<StagedPipeline.StageStatistics> getStageStatistics()
+    {
+        StagedPipeline<FrameTask> pipeline = this.ingestPipeline;
+        if (pipeline != null)
+            return pipeline.getStatistics();
+
+        return this.stageStatistics;
     }
 
     private String makeWaveletCachePath(RPFFileIndex fileIndex, long rpfFileKey)
@@ -194,124 +217,193 @@ public class RPFTiledImageProcessor
             firePropertyChange(BEGIN_SUB_TASK, null, null);
             firePropertyChange(SUB_TASK_NUM_STEPS, null, recordList.size());
 
-            Collection<Runnable> tasks = new ArrayList<Runnable>();
-            for (final RPFFileIndex.Record record : recordList)
+            Collection<FrameTask> tasks = new ArrayList<FrameTask>();
+            for (RPFFileIndex.Record record : recordList)
             {
-                tasks.add(new Runnable() {
-                    public void run() {
-                        File file = fileIndex.getRPFFile(record.getKey());
-                        try {
-                            processRecord(fileIndex, record, waveletWidth, waveletHeight);
-                            firePropertyChange(SUB_TASK_STEP_COMPLETE, null, file.getName());
-                        } catch (Throwable t) {
-                            String message = String.format("Exception while processing file: %s", file);
-                            Logging.logger().log(java.util.logging.Level.SEVERE, message, t);
-                            firePropertyChange(SUB_TASK_STEP_FAILED, null, file.getName());
-                        }
+                tasks.add(new FrameTask(record, fileIndex.getRPFFile(record.getKey())));
+            }
+
+            // Frames stream through the stages below, each on its own threads. The bounded queues between stages
+            // limit the number of decoded frames held in memory to a few per thread. The index stage has a single
+            // thread because it is the only stage that modifies the file index.
+            int numThreads = Math.max(1, this.numThreads);
+            java.util.List<StagedPipeline.Stage<FrameTask>> stages = new ArrayList<StagedPipeline.Stage<FrameTask>>();
+            stages.add(new IndexStage(fileIndex));
+            stages.add(new DecompressStage(numThreads));
+            stages.add(new DeprojectStage(numThreads));
+            stages.add(new WriteStage(numThreads, waveletWidth, waveletHeight));
+
+            StagedPipeline<FrameTask> pipeline = new StagedPipeline<FrameTask>("RPF Ingest", stages, numThreads,
+                new StagedPipeline.Listener<FrameTask>()
+                {
+                    public void itemCompleted(FrameTask task)
+                    {
+                        firePropertyChange(SUB_TASK_STEP_COMPLETE, null, task.file.getName());
+                    }
+
+                    public void itemFailed(FrameTask task, String stageName, Throwable t)
+                    {
+                        String message = String.format("Exception while processing file: %s (%s)", task.file,
+                            stageName);
+                        Logging.logger().log(java.util.logging.Level.SEVERE, message, t);
+                        firePropertyChange(SUB_TASK_STEP_FAILED, null, task.file.getName());
                     }
                 });
+
+            this.ingestPipeline = pipeline;
+            try
+            {
+                if (this.doStop)
+                    pipeline.stop();
+
+                pipeline.run(tasks);
+            }
+            catch (InterruptedException e)
+            {
+                String message = "Interrupted while processing files";
+                Logging.logger().log(java.util.logging.Level.SEVERE, message, e);
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                this.stageStatistics = pipeline.getStatistics();
+                this.ingestPipeline = null;
             }
 
-            if (this.numThreads > 1)
-                runAsynchronously(tasks, this.numThreads, true);
-            else
-                run(tasks);
+            java.util.List<StagedPipeline.StageStatistics> statistics = this.getStageStatistics();
+            for (StagedPipeline.StageStatistics s : statistics)
+            {
+                Logging.logger().info(s.toString());
+            }
+            firePropertyChange(STAGE_STATISTICS, null, statistics);
 
             firePropertyChange(END_SUB_TASK, null, null);
         }
     }
 
-    private void processRecord(RPFFileIndex fileIndex, RPFFileIndex.Record record,
-                               int waveletWidth, int waveletHeight) throws IOException
+    /** An RPF frame file passing through the ingest stages. */
+    private static class FrameTask
     {
-        if (fileIndex == null)
+        private final RPFFileIndex.Record record;
+        private final File file;
+        private File waveletFile;
+        private RPFImageFile rpfImageFile;
+        private BufferedImage image;
+
+        private FrameTask(RPFFileIndex.Record record, File file)
         {
-            String message = "RPFFileIndex is null";
-            Logging.logger().severe(message);
-            throw new IllegalArgumentException(message);
+            this.record = record;
+            this.file = file;
         }
-        if (record == null)
+    }
+
+    /**
+     * Records each frame's sector and wavelet file in the file index, and passes on the frames whose wavelet files are
+     * older than the frame. Frames are loaded here only when their sector can't be computed from their file name.
+     */
+    private class IndexStage extends StagedPipeline.Stage<FrameTask>
+    {
+        private final RPFFileIndex fileIndex;
+
+        private IndexStage(RPFFileIndex fileIndex)
         {
-            String message = "RPFFileIndex.Record is null";
-            Logging.logger().severe(message);
-            throw new IllegalArgumentException(message);
+            super("Index", 1);
+            this.fileIndex = fileIndex;
         }
 
-        File file = null;
-        RPFImageFile rpfImageFile = null;
-        if (!this.doStop)
+        public boolean process(FrameTask task) throws IOException
         {
-            // Load the RPF image file.
-            file = fileIndex.getRPFFile(record.getKey());
-            rpfImageFile = RPFImageFile.load(file);
-
             // Create an attribute for the file's sector.
-            Sector sector = getFileSector(rpfImageFile);
+            Sector sector = sectorFromFilename(task.file);
+            if (sector == null)
+            {
+                task.rpfImageFile = RPFImageFile.load(task.file);
+                sector = sectorFromHeader(task.rpfImageFile);
+            }
             if (sector != null)
             {
-                ((RPFFileIndex.RPFFileRecord) record).setSector(sector);
+                ((RPFFileIndex.RPFFileRecord) task.record).setSector(sector);
             }
-        }
 
-        File waveletFile = null;
-        if (!this.doStop)
-        {
             // Create the wavelet file path.
-            synchronized (this.fileLock)
+            synchronized (fileLock)
             {
-                String cachePath = makeWaveletCachePath(fileIndex, record.getKey());
-                waveletFile = WorldWind.getDataFileStore().newFile(cachePath);
+                String cachePath = makeWaveletCachePath(this.fileIndex, task.record.getKey());
+                task.waveletFile = WorldWind.getDataFileStore().newFile(cachePath);
             }
 
+            if (task.waveletFile == null)
+                return false;
+
             // Create a record for the wavelet file.
-            if (waveletFile != null)
-            {
-                fileIndex.createWaveletRecord(waveletFile, record.getKey());
-            }
+            this.fileIndex.createWaveletRecord(task.waveletFile, task.record.getKey());
+
+            // Create a new wavelet file only if the source RPF file is newer than the wavelet file.
+            return task.file.lastModified() > task.waveletFile.lastModified();
         }
+    }
 
-        WaveletCodec wavelet = null;
-        if (!this.doStop)
+    /** Loads each frame and decompresses it into an image. */
+    private static class DecompressStage extends StagedPipeline.Stage<FrameTask>
+    {
+        private DecompressStage(int numThreads)
         {
-            // If the wavelet file is not null, and the source RPF file is newer than the wavelet file,
-            // then create a new wavelet file.
-            if (waveletFile != null && (file != null && file.lastModified() > waveletFile.lastModified()))
-            {
-                // Get the RPF image file as a BufferedImage.
-                BufferedImage bi = rpfImageFile.getBufferedImage();
+            super("Decompress", numThreads);
+        }
 
-                // Must deproject it...
-                bi = deproject(file, bi);
+        public boolean process(FrameTask task) throws IOException
+        {
+            if (task.rpfImageFile == null)
+                task.rpfImageFile = RPFImageFile.load(task.file);
 
-                // Get coverage information from the transform.
-                // Create the wavelet from the RPF BufferedImage.
-                if (bi != null)
-                {
-                    wavelet = createWavelet(bi, waveletWidth, waveletHeight);
-                    //noinspection UnusedAssignment
-                    bi = null;
-                }
-            }
-            //noinspection UnusedAssignment
-            rpfImageFile = null;
+            task.image = task.rpfImageFile.getBufferedImage();
+            task.rpfImageFile = null;
+
+            return task.image != null;
         }
+    }
 
-        if (!this.doStop)
+    /** Deprojects each frame's image to geographic coordinates. */
+    private class DeprojectStage extends StagedPipeline.Stage<FrameTask>
+    {
+        private DeprojectStage(int numThreads)
+        {
+            super("Deproject", numThreads);
+        }
+
+        public boolean process(FrameTask task)
+        {
+            task.image = deproject(task.file, task.image);
+
+            return task.image != null;
+        }
+    }
+
+    /** Creates each frame's wavelet and writes it to the frame's wavelet file. */
+    private class WriteStage extends StagedPipeline.Stage<FrameTask>
+    {
+        private final int waveletWidth;
+        private final int waveletHeight;
+
+        private WriteStage(int numThreads, int waveletWidth, int waveletHeight)
         {
-            // If a wavelet has been created,
-            // then write the wavelet to file.
-            if (wavelet != null)
+            super("Write", numThreads);
+            this.waveletWidth = waveletWidth;
+            this.waveletHeight = waveletHeight;
+        }
+
+        public boolean process(FrameTask task) throws IOException
+        {
+            WaveletCodec wavelet = createWavelet(task.image, this.waveletWidth, this.waveletHeight);
+            task.image = null;
+
+            ByteBuffer buffer = WaveletCodec.save(wavelet);
+            if (buffer != null)
             {
-                ByteBuffer buffer = WaveletCodec.save(wavelet);
-                if (buffer != null)
-                {
-                    WWIO.saveBuffer(buffer, waveletFile);
-                    //noinspection UnusedAssignment
-                    buffer = null;
-                }
-                //noinspection UnusedAssignment
-                wavelet = null;
+                WWIO.saveBuffer(buffer, task.waveletFile);
             }
+
+            return false;
         }
     }
 
@@ -351,27 +443,6 @@ public class RPFTiledImageProcessor
         return destImage;
     }
 
-    private Sector getFileSector(RPFFile rpfFile)
-    {
-        // Attempt to get the file's coverage from the RPFFile.
-        Sector sector = null;
-        if (rpfFile != null)
-        {
-
-            // We'll first attempt to compute the Sector, if possible, from the filename (if it exists) by using
-            // the conventions for CADRG and CIB filenames. It has been observed that for polar frame files in
-            // particular that coverage information in the file itself is sometimes unreliable.
-            File file = rpfFile.getFile();
-            if (file != null)
-                sector = sectorFromFilename(file);
-
-            // Can't compute the Sector;  see if the RPFFile contains coverage information.
-            if (sector == null)
-                sector = sectorFromHeader(rpfFile);
-        }
-        return sector;
-    }
-
     private Sector sectorFromHeader(RPFFile rpfFile)
     {
         Sector sector = null;
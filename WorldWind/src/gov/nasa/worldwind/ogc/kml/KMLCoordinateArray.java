@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.ogc.kml;
+
+import gov.nasa.worldwind.geom.Position;
+import gov.nasa.worldwind.util.Logging;
+
+import java.nio.DoubleBuffer;
+import java.util.*;
+
+/**
+ * A compact, read-only list of the positions of a KML <i>coordinates</i> element. The coordinates are held in a single
+ * array of doubles, packed as longitude and latitude in degrees and altitude in meters, three values per position, in
+ * the order they appear in KML. Positions specified without an altitude have an altitude of 0.
+ * <p/>
+ * The list creates a {@link Position} each time one is requested by {@link #get(int)} or by the list's iterator. Use
+ * {@link #getLatitude(int)}, {@link #getLongitude(int)} and {@link #getAltitude(int)}, or {@link #getBuffer()}, to
+ * read the coordinates without creating positions. Consumers that copy the positions, such as shapes that keep their
+ * own boundary lists, may traverse this list directly. Consumers that keep the list and traverse it repeatedly should
+ * instead use {@link #toPositionList()} to create the positions once, and then release this list.
+ *
+ * @author tag
+ * @version $Id$
+ * @see KMLCoordinateDecoder
+ */
+public class KMLCoordinateArray extends AbstractList<Position> implements RandomAccess
+{
+    protected final double[] coordinates;
+    protected final int size;
+
+    /**
+     * Creates a list of the positions held in an array of packed coordinates. The array is used by the list, not
+     * copied, and must not be modified once the list is created.
+     *
+     * @param coordinates the coordinates, packed as longitude and latitude in degrees and altitude in meters, three
+     *                    values per position.
+     * @param size        the number of positions in the list. The array must have a length of at least <code>3 x
+     *                    size</code>.
+     *
+     * @throws IllegalArgumentException if the array is null or too short, or if the size is less than zero.
+     */
+    public KMLCoordinateArray(double[] coordinates, int size)
+    {
+        if (coordinates == null)
+        {
+            String message = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (size < 0 || coordinates.length < 3 * size)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength", coordinates.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.coordinates = coordinates;
+        this.size = size;
+    }
+
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+
+    /**
+     * Creates the position at a specified index.
+     *
+     * @param index the index of the position.
+     *
+     * @return a new position holding the coordinates at the index.
+     *
+     * @throws IndexOutOfBoundsException if the index is less than zero or not less than the list's size.
+     */
+    @Override
+    public Position get(int index)
+    {
+        this.checkIndex(index);
+
+        int i = 3 * index;
+        return Position.fromDegrees(this.coordinates[i + 1], this.coordinates[i], this.coordinates[i + 2]);
+    }
+
+    /**
+     * Returns the latitude of the position at a specified index.
+     *
+     * @param index the index of the position.
+     *
+     * @return the position's latitude, in degrees.
+     *
+     * @throws IndexOutOfBoundsException if the index is less than zero or not less than the list's size.
+     */
+    public double getLatitude(int index)
+    {
+        this.checkIndex(index);
+
+        return this.coordinates[3 * index + 1];
+    }
+
+    /**
+     * Returns the longitude of the position at a specified index.
+     *
+     * @param index the index of the position.
+     *
+     * @return the position's longitude, in degrees.
+     *
+     * @throws IndexOutOfBoundsException if the index is less than zero or not less than the list's size.
+     */
+    public double getLongitude(int index)
+    {
+        this.checkIndex(index);
+
+        return this.coordinates[3 * index];
+    }
+
+    /**
+     * Returns the altitude of the position at a specified index.
+     *
+     * @param index the index of the position.
+     *
+     * @return the position's altitude, in meters.
+     *
+     * @throws IndexOutOfBoundsException if the index is less than zero or not less than the list's size.
+     */
+    public double getAltitude(int index)
+    {
+        this.checkIndex(index);
+
+        return this.coordinates[3 * index + 2];
+    }
+
+    /**
+     * Returns a read-only buffer of this list's coordinates, packed as longitude and latitude in degrees and altitude in
+     * meters, three values per position. The buffer shares the list's storage; no coordinates are copied.
+     *
+     * @return a read-only buffer of the coordinates, positioned at zero and limited to <code>3 x size</code>.
+     */
+    public DoubleBuffer getBuffer()
+    {
+        return DoubleBuffer.wrap(this.coordinates, 0, 3 * this.size).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Creates a list holding a position for each of this list's coordinates. Traversing the returned list creates no
+     * positions, so it suits consumers that keep the list and traverse it repeatedly, such as shapes.
+     *
+     * @return a new list of this list's positions.
+     */
+    public List<Position> toPositionList()
+    {
+        ArrayList<Position> positions = new ArrayList<Position>(this.size);
+        for (int i = 0; i < 3 * this.size; i += 3)
+        {
+            positions.add(Position.fromDegrees(this.coordinates[i + 1], this.coordinates[i], this.coordinates[i + 2]));
+        }
+
+        return positions;
+    }
+
+    protected void checkIndex(int index)
+    {
+        if (index < 0 || index >= this.size)
+            throw new IndexOutOfBoundsException(Logging.getMessage("generic.indexOutOfRange", index));
+    }
+}
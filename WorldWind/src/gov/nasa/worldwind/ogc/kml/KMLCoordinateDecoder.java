@@ -0,0 +1,323 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.ogc.kml;
+
+import gov.nasa.worldwind.util.Logging;
+
+import java.util.Arrays;
+
+/**
+ * Decodes the coordinate tuples of KML coordinate strings into a packed array of doubles. The string may be given to
+ * the decoder in any number of pieces, such as the character events of an XML stream, and the decoder parses the
+ * numbers directly from the characters of each piece as it's given, creating no objects per number or per tuple. Call
+ * {@link #finish()} after the last piece to obtain the decoded positions as a {@link KMLCoordinateArray}.
+ * <p/>
+ * The decoder separates tuples and the numbers within them in the same way as {@link KMLCoordinateTokenizer}, and is
+ * equally lenient with white space within tuples. Tuples containing a number that can't be parsed are skipped, as are
+ * tuples of fewer than two numbers.
+ * <p/>
+ * A decoder is not thread safe.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class KMLCoordinateDecoder
+{
+    /** The powers of ten that are exactly representable as doubles. */
+    protected static final double[] POWERS_OF_TEN = new double[] {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+        1e20, 1e21, 1e22};
+    /** The largest integer at or below which every integer is exactly representable as a double. */
+    protected static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** The number of positions the decoder's storage initially holds. */
+    protected int initialCapacity;
+    /** The decoded coordinates, packed as longitude, latitude and altitude. */
+    protected double[] coordinates;
+    /** The number of values in the coordinates array. */
+    protected int length;
+
+    /** The numbers of the tuple being decoded. */
+    protected double[] tuple = new double[3];
+    protected int tupleLength;
+    protected boolean tupleValid = true;
+    protected boolean afterComma;
+
+    /** The characters of the number being decoded. */
+    protected char[] word = new char[32];
+    protected int wordLength;
+
+    /** Creates a decoder. */
+    public KMLCoordinateDecoder()
+    {
+        this(16);
+    }
+
+    /**
+     * Creates a decoder with room for a specified number of positions before its storage must grow.
+     *
+     * @param initialCapacity the number of positions to allocate storage for.
+     *
+     * @throws IllegalArgumentException if the capacity is less than one.
+     */
+    public KMLCoordinateDecoder(int initialCapacity)
+    {
+        if (initialCapacity < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", initialCapacity);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.initialCapacity = initialCapacity;
+        this.coordinates = new double[3 * initialCapacity];
+    }
+
+    /**
+     * Decodes the next piece of a coordinate string. A number or tuple may continue from one piece to the next.
+     *
+     * @param chars the characters to decode.
+     *
+     * @throws IllegalArgumentException if the characters are null.
+     */
+    public void decode(CharSequence chars)
+    {
+        if (chars == null)
+        {
+            String message = Logging.getMessage("nullValue.CharSequenceIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        for (int i = 0, n = chars.length(); i < n; i++)
+        {
+            this.decode(chars.charAt(i));
+        }
+    }
+
+    /**
+     * Decodes the next piece of a coordinate string, held in a range of a character array. A number or tuple may
+     * continue from one piece to the next.
+     *
+     * @param chars  the array holding the characters to decode.
+     * @param offset the index of the first character to decode.
+     * @param length the number of characters to decode.
+     *
+     * @throws IllegalArgumentException if the array is null, or if the range lies outside the array.
+     */
+    public void decode(char[] chars, int offset, int length)
+    {
+        if (chars == null)
+        {
+            String message = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (offset < 0 || length < 0 || offset + length > chars.length)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", offset + ", " + length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        for (int i = offset, end = offset + length; i < end; i++)
+        {
+            this.decode(chars[i]);
+        }
+    }
+
+    /**
+     * Completes the coordinate string and returns the positions decoded from it. The decoder is then reset, and may be
+     * used to decode another coordinate string.
+     *
+     * @return the decoded positions. The list is empty if no positions were decoded.
+     */
+    public KMLCoordinateArray finish()
+    {
+        if (this.wordLength > 0)
+            this.endWord();
+        this.endTuple();
+
+        // Trim the storage to the positions decoded, since the positions are typically retained for the life of the
+        // document. Keep the decoder's storage for the next string unless it's given to the positions.
+        double[] array;
+        if (this.length == this.coordinates.length)
+        {
+            array = this.coordinates;
+            this.coordinates = new double[3 * this.initialCapacity];
+        }
+        else
+        {
+            array = Arrays.copyOf(this.coordinates, this.length);
+        }
+
+        KMLCoordinateArray positions = new KMLCoordinateArray(array, this.length / 3);
+
+        this.length = 0;
+        this.afterComma = false;
+
+        return positions;
+    }
+
+    protected void decode(char ch)
+    {
+        if (ch == ',')
+        {
+            if (this.wordLength > 0)
+                this.endWord();
+
+            this.afterComma = true;
+
+            // Three numbers make a complete tuple.
+            if (this.tupleLength >= 3)
+                this.endTuple();
+        }
+        else if (Character.isWhitespace(ch))
+        {
+            if (this.wordLength > 0)
+                this.endWord();
+
+            // If the last separator was a comma, the tuple continues past the white space.
+            if (!this.afterComma && this.tupleLength >= 2)
+                this.endTuple();
+        }
+        else
+        {
+            if (this.wordLength == this.word.length)
+                this.word = Arrays.copyOf(this.word, 2 * this.word.length);
+
+            this.word[this.wordLength++] = ch;
+            this.afterComma = false;
+        }
+    }
+
+    protected void endWord()
+    {
+        double value = this.parseWord();
+
+        if (this.tupleLength < this.tuple.length)
+            this.tuple[this.tupleLength++] = value;
+
+        this.wordLength = 0;
+    }
+
+    protected void endTuple()
+    {
+        if (this.tupleLength >= 2 && this.tupleValid)
+        {
+            if (this.length + 3 > this.coordinates.length)
+                this.coordinates = Arrays.copyOf(this.coordinates, 2 * this.coordinates.length);
+
+            this.coordinates[this.length++] = this.tuple[0];
+            this.coordinates[this.length++] = this.tuple[1];
+            this.coordinates[this.length++] = this.tupleLength > 2 ? this.tuple[2] : 0;
+        }
+
+        this.tupleLength = 0;
+        this.tupleValid = true;
+    }
+
+    /**
+     * Parses the number in the word buffer. Decimal numbers whose digits fit in a double's mantissa and whose scale is
+     * an exactly representable power of ten are computed directly, with a single correctly rounded multiplication or
+     * division, and so have the same value as computed by {@link Double#parseDouble(String)}. All other numbers are
+     * passed to <code>Double.parseDouble</code>. Marks the current tuple invalid if the number can't be parsed.
+     *
+     * @return the number's value, or 0 if it can't be parsed.
+     */
+    protected double parseWord()
+    {
+        char[] w = this.word;
+        int n = this.wordLength;
+        int i = 0;
+
+        boolean negative = false;
+        if (w[0] == '-' || w[0] == '+')
+        {
+            negative = w[0] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int numDigits = 0;
+        int scale = 0;
+        boolean afterPoint = false;
+        for (; i < n; i++)
+        {
+            char c = w[i];
+            if (c >= '0' && c <= '9')
+            {
+                if (mantissa > MAX_EXACT_MANTISSA)
+                    return this.parseWordSlowly();
+
+                mantissa = 10 * mantissa + (c - '0');
+                numDigits++;
+                if (afterPoint)
+                    scale++;
+            }
+            else if (c == '.' && !afterPoint)
+            {
+                afterPoint = true;
+            }
+            else
+            {
+                break;
+            }
+        }
+
+        if (numDigits == 0 || mantissa > MAX_EXACT_MANTISSA)
+            return this.parseWordSlowly();
+
+        int exponent = 0;
+        if (i < n)
+        {
+            if (w[i] != 'e' && w[i] != 'E')
+                return this.parseWordSlowly();
+
+            boolean negativeExponent = false;
+            if (++i < n && (w[i] == '-' || w[i] == '+'))
+                negativeExponent = w[i++] == '-';
+
+            if (i == n || n - i > 3)
+                return this.parseWordSlowly();
+
+            for (; i < n; i++)
+            {
+                char c = w[i];
+                if (c < '0' || c > '9')
+                    return this.parseWordSlowly();
+
+                exponent = 10 * exponent + (c - '0');
+            }
+
+            if (negativeExponent)
+                exponent = -exponent;
+        }
+
+        exponent -= scale;
+        if (exponent < -22 || exponent > 22)
+            return this.parseWordSlowly();
+
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+
+        return negative ? -value : value;
+    }
+
+    protected double parseWordSlowly()
+    {
+        try
+        {
+            return Double.parseDouble(new String(this.word, 0, this.wordLength));
+        }
+        catch (NumberFormatException e)
+        {
+            this.tupleValid = false;
+            return 0;
+        }
+    }
+}
@@ -9,9 +9,8 @@ package gov.nasa.worldwind.ogc.kml;
 import gov.nasa.worldwind.geom.Position;
 import gov.nasa.worldwind.util.xml.*;
 
-import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.*;
 import javax.xml.stream.events.XMLEvent;
-import java.util.ArrayList;
 
 /**
  * Parses KML <i>coordinates</i> elements.
@@ -30,38 +29,38 @@ public class KMLCoordinatesParser extends AbstractXMLEventParser
         super(namespaceURI);
     }
 
-    @SuppressWarnings( {"UnnecessaryContinue"})
-    public Position.PositionList parse(XMLEventParserContext ctx, XMLEvent doubleEvent, Object... args)
+    /**
+     * Parses the coordinate tuples of a <i>coordinates</i> element. The tuples are decoded directly from the element's
+     * character events by a {@link KMLCoordinateDecoder}, and returned as a compact {@link KMLCoordinateArray}.
+     *
+     * @param ctx               the parser context.
+     * @param coordinatesEvent  the start event of the coordinates element.
+     * @param args              unused.
+     *
+     * @return the decoded positions, or null if the element contains no positions.
+     *
+     * @throws XMLStreamException if an exception occurs while reading the event stream.
+     */
+    public Position.PositionList parse(XMLEventParserContext ctx, XMLEvent coordinatesEvent, Object... args)
         throws XMLStreamException
     {
-        String s = ctx.getStringParser().parseString(ctx, doubleEvent);
-        if (s == null || s.length() < 3) // "a,b" is the smallest possible coordinate string
-            return null;
+        KMLCoordinateDecoder decoder = new KMLCoordinateDecoder();
 
-        ArrayList<Position> positions = new ArrayList<Position>();
-
-        KMLCoordinateTokenizer tokenizer = new KMLCoordinateTokenizer(s);
-
-        while (tokenizer.hasMoreTokens())
+        // Read events from the reader rather than the context, which skips white space events that may separate
+        // tuples.
+        XMLEventReader reader = ctx.getEventReader();
+        while (reader.hasNext())
         {
-            try
-            {
-                positions.add(tokenizer.nextPosition());
-            }
-            catch (NumberFormatException e)
-            {
-                continue; // TODO: issue warning?
-            }
-            catch (NullPointerException e)
-            {
-                continue; // TODO: issue warning?
-            }
-            catch (Exception e)
-            {
-                continue; // TODO: issue warning
-            }
+            XMLEvent event = reader.nextEvent();
+            if (ctx.isEndElement(event, coordinatesEvent))
+                break;
+
+            if (event.isCharacters())
+                decoder.decode(event.asCharacters().getData());
         }
 
-        return new Position.PositionList(positions);
+        KMLCoordinateArray positions = decoder.finish();
+
+        return positions.size() > 0 ? new Position.PositionList(positions) : null;
     }
 }
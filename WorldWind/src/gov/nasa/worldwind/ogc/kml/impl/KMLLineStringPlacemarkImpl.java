@@ -35,7 +35,7 @@ public class KMLLineStringPlacemarkImpl extends Path implements KMLRenderable
      */
     public KMLLineStringPlacemarkImpl(KMLTraversalContext tc, KMLPlacemark placemark, KMLAbstractGeometry geom)
     {
-        super(((KMLLineString) geom).getCoordinates());
+        super(KMLUtil.getShapePositions(((KMLLineString) geom).getCoordinates()));
 
         if (tc == null)
         {
@@ -71,7 +71,7 @@ public class KMLPolygonImpl extends Polygon implements KMLRenderable
         {
             Position.PositionList coords = outerBoundary.getCoordinates();
             if (coords != null && coords.list != null)
-                this.setOuterBoundary(outerBoundary.getCoordinates().list);
+                this.setOuterBoundary(coords.list);
         }
 
         Iterable<? extends KMLLinearRing> innerBoundaries = polygon.getInnerBoundaries();
@@ -81,7 +81,7 @@ public class KMLPolygonImpl extends Polygon implements KMLRenderable
             {
                 Position.PositionList coords = ring.getCoordinates();
                 if (coords != null && coords.list != null)
-                    this.addInnerBoundary(ring.getCoordinates().list);
+                    this.addInnerBoundary(coords.list);
             }
         }
 
@@ -73,7 +73,7 @@ public class KMLSurfacePolygonImpl extends SurfacePolygon implements KMLRenderab
         {
             Position.PositionList coords = outerBoundary.getCoordinates();
             if (coords != null && coords.list != null)
-                this.setOuterBoundary(outerBoundary.getCoordinates().list);
+                this.setOuterBoundary(KMLUtil.getShapePositions(coords));
         }
 
         Iterable<? extends KMLLinearRing> innerBoundaries = polygon.getInnerBoundaries();
@@ -83,7 +83,7 @@ public class KMLSurfacePolygonImpl extends SurfacePolygon implements KMLRenderab
             {
                 Position.PositionList coords = ring.getCoordinates();
                 if (coords != null && coords.list != null)
-                    this.addInnerBoundary(ring.getCoordinates().list);
+                    this.addInnerBoundary(KMLUtil.getShapePositions(coords));
             }
         }
 
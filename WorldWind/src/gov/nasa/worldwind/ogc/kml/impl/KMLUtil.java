@@ -220,6 +220,36 @@ public class KMLUtil
         }
     }
 
+    /**
+     * Returns the positions of a KML coordinates element as a list suited to a shape that keeps the list it's given and
+     * traverses it each time it's regenerated, such as a {@link gov.nasa.worldwind.render.Path} or {@link
+     * gov.nasa.worldwind.render.SurfacePolygon}. Positions held only as packed coordinates are created here, once,
+     * rather than on each traversal, and then replace the packed coordinates in the specified position list so that
+     * only one copy of the positions is retained. Shapes that copy the positions they're given, such as {@link
+     * gov.nasa.worldwind.render.Polygon}, should read the position list's packed coordinates directly instead.
+     *
+     * @param positions the positions of a KML coordinates element.
+     *
+     * @return a list of the positions. The list is the specified position list's list, which holds created positions
+     *         on return.
+     *
+     * @throws IllegalArgumentException if the position list is null.
+     */
+    public static java.util.List<? extends Position> getShapePositions(Position.PositionList positions)
+    {
+        if (positions == null)
+        {
+            String message = Logging.getMessage("nullValue.PositionsListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (positions.list instanceof KMLCoordinateArray)
+            positions.list = ((KMLCoordinateArray) positions.list).toPositionList();
+
+        return positions.list;
+    }
+
     /**
      * Compute the altitude of each position in a list, based on altitude mode.
      *
@@ -6,6 +6,7 @@
 package gov.nasa.worldwind.retrieve;
 
 import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.cache.*;
 import gov.nasa.worldwind.formats.dds.DDSCompressor;
 import gov.nasa.worldwind.util.*;
 
@@ -228,6 +229,9 @@ public abstract class AbstractRetrievalPostProcessor implements RetrievalPostPro
      */
     protected boolean saveBuffer(ByteBuffer buffer) throws IOException
     {
+        if (this.isOutputPacked())
+            return this.savePackedBuffer(buffer);
+
         File outFile = this.getOutputFile();
 
         if (outFile == null)
@@ -244,6 +248,60 @@ public abstract class AbstractRetrievalPostProcessor implements RetrievalPostPro
         return true;
     }
 
+    /**
+     * Indicates the file store in which the retrieved data is saved. The default implementation returns null, in which
+     * case the data is saved only to the output file.
+     *
+     * @return the output file store, or null if there is none.
+     */
+    protected FileStore getOutputFileStore()
+    {
+        return null;
+    }
+
+    /**
+     * Indicates the name of the retrieved data in the output file store. The default implementation returns null.
+     *
+     * @return the output file's name in the output file store, or null if there is none.
+     */
+    protected String getOutputFileName()
+    {
+        return null;
+    }
+
+    /**
+     * Indicates whether the retrieved data is saved by the output file store itself rather than written to the output
+     * file, which is the case if the store is a {@link PackingFileStore} that packs the output file.
+     *
+     * @return true if the data is saved by the output file store, otherwise false.
+     */
+    protected boolean isOutputPacked()
+    {
+        FileStore fileStore = this.getOutputFileStore();
+        String fileName = this.getOutputFileName();
+
+        return fileStore instanceof PackingFileStore && fileName != null
+            && ((PackingFileStore) fileStore).packsFile(fileName);
+    }
+
+    /**
+     * Saves the retrieved and possibly transformed data in the output file store, which packs the output file. The
+     * data is not saved if the store holds the file unless {@link #overwriteExistingFile()} returns true.
+     *
+     * @param buffer the buffer to save. If null, the retriever's buffer is saved.
+     *
+     * @return true if the buffer was saved, false if the file already exists and is not overwritten.
+     *
+     * @throws IOException if an IO error occurred when attempting to save the buffer.
+     */
+    protected boolean savePackedBuffer(ByteBuffer buffer) throws IOException
+    {
+        PackingFileStore fileStore = (PackingFileStore) this.getOutputFileStore();
+
+        return fileStore.saveBuffer(this.getOutputFileName(),
+            buffer != null ? buffer : this.getRetriever().getBuffer(), this.overwriteExistingFile());
+    }
+
     /**
      * Determines and returns the output file for the retrieved data.
      *
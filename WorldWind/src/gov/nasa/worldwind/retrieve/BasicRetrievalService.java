@@ -7,7 +7,7 @@ package gov.nasa.worldwind.retrieve;
 
 import gov.nasa.worldwind.*;
 import gov.nasa.worldwind.avlist.AVKey;
-import gov.nasa.worldwind.util.Logging;
+import gov.nasa.worldwind.util.*;
 
 import javax.net.ssl.SSLHandshakeException;
 import java.net.SocketTimeoutException;
@@ -210,6 +210,14 @@ public final class BasicRetrievalService extends WWObjectImpl
                 task.cancel(true);
             }
 
+            if (TileRequestScheduler.checkAbandoned(task.retriever))
+            {
+                // The tile is no longer requested
+                Logging.logger().finer(Logging.getMessage("BasicRetrievalService.CancellingAbandonedRetrieval",
+                    task.getRetriever().getName()));
+                task.cancel(true);
+            }
+
             if (BasicRetrievalService.this.activeTasks.contains(task))
             {
                 // Task is a duplicate
@@ -0,0 +1,1232 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.retrieve;
+
+import gov.nasa.worldwind.util.Logging;
+
+import java.io.IOException;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.logging.Level;
+
+/**
+ * Performs HTTP GET requests asynchronously over persistent connections. The pool keeps up to a specified number of
+ * connections open to each host and reuses them for successive requests. Once a server has shown that it keeps a
+ * connection open, further requests are pipelined on that connection, up to a specified number in flight at once.
+ * <p/>
+ * All connections are serviced by a single thread using a {@link Selector}, so the number of requests in flight is not
+ * limited by a number of threads. Pending requests are held per host and sent in their natural order, so {@link
+ * Request} subclasses can order them by priority. A request's {@link Callback} is invoked on the pool's thread when the
+ * response has been read or the request fails, and must return quickly; it typically hands the response to another
+ * thread for processing. Requests on a connection that closes before they complete are sent once more on another
+ * connection before they fail.
+ * <p/>
+ * Only plain HTTP is supported. Responses are returned as received: redirects are not followed and content encodings
+ * are not decoded, since none are requested.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class HTTPConnectionPool
+{
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 4;
+    public static final int DEFAULT_PIPELINE_DEPTH = 4;
+    public static final int DEFAULT_MAX_RESPONSE_SIZE = 1 << 27; // 128 MB
+
+    /** The number of times a request is sent before it fails because its connection closed. */
+    protected static final int MAX_ATTEMPTS = 2;
+    /** The time, in milliseconds, an unused connection is kept open. */
+    protected static final long IDLE_CONNECTION_TIMEOUT = 15000;
+    protected static final long SELECT_TIMEOUT = 100; // milliseconds
+    protected static final int READ_BUFFER_SIZE = 32768;
+    protected static final int MAX_LINE_LENGTH = 16384;
+    /** The most body space allocated for a response before its bytes arrive, whatever its declared length. */
+    protected static final int INITIAL_BODY_SIZE = 65536;
+    protected static final Charset UTF8 = Charset.forName("UTF-8");
+    protected static final String USER_AGENT = System.getProperty("http.agent") != null
+        ? System.getProperty("http.agent") + " Java/" + System.getProperty("java.version")
+        : "Java/" + System.getProperty("java.version");
+
+    /** Receives notification that a request has completed or failed. */
+    public interface Callback
+    {
+        /**
+         * Called on the pool's thread when a request completes. The request's {@link Request#getResponse()} is non-null
+         * if a response was received, otherwise {@link Request#getException()} indicates the reason for failure.
+         *
+         * @param request the request that completed.
+         */
+        void requestCompleted(Request request);
+    }
+
+    /** A GET request for a URL. Requests are sent in their natural order, by default the order they're submitted. */
+    public static class Request implements Comparable<Request>
+    {
+        protected static final AtomicLong nextSequenceNumber = new AtomicLong();
+
+        protected final URL url;
+        protected final Callback callback;
+        protected final long sequenceNumber = nextSequenceNumber.getAndIncrement();
+        protected int connectTimeout = 8000;
+        protected int readTimeout = 5000;
+        protected volatile boolean cancelled;
+        protected int numAttempts;
+        protected volatile Response response;
+        protected volatile IOException exception;
+
+        /**
+         * Creates a request for a URL.
+         *
+         * @param url      the URL to retrieve. Its protocol must be HTTP.
+         * @param callback the callback to invoke when the request completes.
+         *
+         * @throws IllegalArgumentException if the URL or callback is null, or the URL's protocol is not HTTP.
+         */
+        public Request(URL url, Callback callback)
+        {
+            if (url == null)
+            {
+                String message = Logging.getMessage("nullValue.URLIsNull");
+                Logging.logger().severe(message);
+                throw new IllegalArgumentException(message);
+            }
+
+            if (!"http".equalsIgnoreCase(url.getProtocol()))
+            {
+                String message = Logging.getMessage("generic.UnrecognizedProtocol", url.getProtocol());
+                Logging.logger().severe(message);
+                throw new IllegalArgumentException(message);
+            }
+
+            if (callback == null)
+            {
+                String message = Logging.getMessage("nullValue.CallbackIsNull");
+                Logging.logger().severe(message);
+                throw new IllegalArgumentException(message);
+            }
+
+            this.url = url;
+            this.callback = callback;
+        }
+
+        public URL getURL()
+        {
+            return this.url;
+        }
+
+        public int getConnectTimeout()
+        {
+            return this.connectTimeout;
+        }
+
+        /**
+         * Specifies the time to wait for a connection to open before the request fails.
+         *
+         * @param connectTimeout the timeout in milliseconds. Zero indicates no timeout.
+         */
+        public void setConnectTimeout(int connectTimeout)
+        {
+            this.connectTimeout = connectTimeout;
+        }
+
+        public int getReadTimeout()
+        {
+            return this.readTimeout;
+        }
+
+        /**
+         * Specifies the longest time to wait for data from the server while the request is in flight before the request
+         * fails.
+         *
+         * @param readTimeout the timeout in milliseconds. Zero indicates no timeout.
+         */
+        public void setReadTimeout(int readTimeout)
+        {
+            this.readTimeout = readTimeout;
+        }
+
+        /** Cancels the request. The request is not sent if it has not been already, and its callback is not invoked. */
+        public void cancel()
+        {
+            this.cancelled = true;
+        }
+
+        /**
+         * Indicates whether the request has been cancelled. The pool calls this method immediately before it sends a
+         * request, so subclasses may override it to cancel requests that are no longer needed.
+         *
+         * @return true if the request is cancelled, otherwise false.
+         */
+        public boolean isCancelled()
+        {
+            return this.cancelled;
+        }
+
+        public Response getResponse()
+        {
+            return this.response;
+        }
+
+        public IOException getException()
+        {
+            return this.exception;
+        }
+
+        public int compareTo(Request that)
+        {
+            return this.sequenceNumber < that.sequenceNumber ? -1
+                : this.sequenceNumber > that.sequenceNumber ? 1 : 0;
+        }
+    }
+
+    /** The status, headers and body of an HTTP response. */
+    public static class Response
+    {
+        protected final String statusLine;
+        protected final int statusCode;
+        protected final String statusMessage;
+        protected final List<String> headerNames = new ArrayList<String>();
+        protected final List<String> headerValues = new ArrayList<String>();
+        protected byte[] body = new byte[0];
+        protected int bodyLength;
+
+        protected Response(String statusLine, int statusCode, String statusMessage)
+        {
+            this.statusLine = statusLine;
+            this.statusCode = statusCode;
+            this.statusMessage = statusMessage;
+        }
+
+        public String getStatusLine()
+        {
+            return this.statusLine;
+        }
+
+        public int getStatusCode()
+        {
+            return this.statusCode;
+        }
+
+        public String getStatusMessage()
+        {
+            return this.statusMessage;
+        }
+
+        public int getNumHeaders()
+        {
+            return this.headerNames.size();
+        }
+
+        public String getHeaderName(int index)
+        {
+            return this.headerNames.get(index);
+        }
+
+        public String getHeaderValue(int index)
+        {
+            return this.headerValues.get(index);
+        }
+
+        /**
+         * Returns the value of a named header. If the header occurs more than once, the last value is returned.
+         *
+         * @param name the header name, compared without regard to case.
+         *
+         * @return the header value, or null if the response has no such header.
+         */
+        public String getHeader(String name)
+        {
+            for (int i = this.headerNames.size() - 1; i >= 0; i--)
+            {
+                if (this.headerNames.get(i).equalsIgnoreCase(name))
+                    return this.headerValues.get(i);
+            }
+
+            return null;
+        }
+
+        /**
+         * Returns the response body. Only the first {@link #getBodyLength()} bytes of the array are significant.
+         *
+         * @return the response body.
+         */
+        public byte[] getBody()
+        {
+            return this.body;
+        }
+
+        public int getBodyLength()
+        {
+            return this.bodyLength;
+        }
+
+        protected void addHeader(String name, String value)
+        {
+            this.headerNames.add(name);
+            this.headerValues.add(value);
+        }
+
+        protected void appendBody(ByteBuffer buffer, int length)
+        {
+            if (this.bodyLength + length > this.body.length)
+                this.body = Arrays.copyOf(this.body, Math.max(this.bodyLength + length, 2 * this.body.length));
+
+            buffer.get(this.body, this.bodyLength, length);
+            this.bodyLength += length;
+        }
+    }
+
+    protected volatile int maxConnectionsPerHost;
+    protected volatile int pipelineDepth;
+    protected volatile int maxResponseSize = DEFAULT_MAX_RESPONSE_SIZE;
+    protected final Selector selector;
+    protected final Thread thread;
+    protected final ExecutorService resolver;
+    protected final ConcurrentLinkedQueue<Request> submittedRequests = new ConcurrentLinkedQueue<Request>();
+    protected final ConcurrentLinkedQueue<Host> resolvedHosts = new ConcurrentLinkedQueue<Host>();
+    protected final HashMap<String, Host> hosts = new HashMap<String, Host>(); // used only by the pool's thread
+    protected final AtomicInteger numPending = new AtomicInteger();
+    protected final AtomicInteger numInFlight = new AtomicInteger();
+    protected final AtomicInteger numConnectionsOpened = new AtomicInteger();
+    protected volatile boolean shutdown;
+
+    /**
+     * Creates a pool and starts its thread.
+     *
+     * @param maxConnectionsPerHost the maximum number of connections to open to each host.
+     * @param pipelineDepth         the maximum number of requests in flight on each connection. One disables
+     *                              pipelining.
+     *
+     * @throws IllegalArgumentException if either argument is less than one.
+     * @throws IOException              if the pool's selector cannot be opened.
+     */
+    public HTTPConnectionPool(int maxConnectionsPerHost, int pipelineDepth) throws IOException
+    {
+        this.setMaxConnectionsPerHost(maxConnectionsPerHost);
+        this.setPipelineDepth(pipelineDepth);
+
+        this.selector = Selector.open();
+
+        this.resolver = new ThreadPoolExecutor(0, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory()
+            {
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "World Wind HTTP Host Resolver");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+        this.thread = new Thread(new Runnable()
+        {
+            public void run()
+            {
+                HTTPConnectionPool.this.run();
+            }
+        }, "World Wind HTTP Connection Pool");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public int getMaxConnectionsPerHost()
+    {
+        return this.maxConnectionsPerHost;
+    }
+
+    /**
+     * Specifies the maximum number of connections to open to each host. Reducing the number does not close connections
+     * already open.
+     *
+     * @param maxConnectionsPerHost the maximum number of connections per host.
+     *
+     * @throws IllegalArgumentException if the number is less than one.
+     */
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost)
+    {
+        if (maxConnectionsPerHost < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", maxConnectionsPerHost);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public int getPipelineDepth()
+    {
+        return this.pipelineDepth;
+    }
+
+    /**
+     * Specifies the maximum number of requests in flight at once on each connection.
+     *
+     * @param pipelineDepth the maximum number of requests per connection. One disables pipelining.
+     *
+     * @throws IllegalArgumentException if the depth is less than one.
+     */
+    public void setPipelineDepth(int pipelineDepth)
+    {
+        if (pipelineDepth < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", pipelineDepth);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    public int getMaxResponseSize()
+    {
+        return this.maxResponseSize;
+    }
+
+    /**
+     * Specifies the maximum size of a response body. Requests whose responses are larger fail with a {@link
+     * ProtocolException}. The default is {@link #DEFAULT_MAX_RESPONSE_SIZE}.
+     *
+     * @param maxResponseSize the maximum response body size, in bytes.
+     *
+     * @throws IllegalArgumentException if the size is less than zero.
+     */
+    public void setMaxResponseSize(int maxResponseSize)
+    {
+        if (maxResponseSize < 0)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", maxResponseSize);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.maxResponseSize = maxResponseSize;
+    }
+
+    /**
+     * Indicates the number of requests submitted but not yet sent.
+     *
+     * @return the number of pending requests.
+     */
+    public int getNumPending()
+    {
+        return this.numPending.get();
+    }
+
+    /**
+     * Indicates the number of requests sent whose responses have not yet been read.
+     *
+     * @return the number of requests in flight.
+     */
+    public int getNumInFlight()
+    {
+        return this.numInFlight.get();
+    }
+
+    /**
+     * Indicates the number of connections this pool has opened since it was created.
+     *
+     * @return the number of connections opened.
+     */
+    public int getNumConnectionsOpened()
+    {
+        return this.numConnectionsOpened.get();
+    }
+
+    /**
+     * Submits a request. The request is sent when a connection to its host is available.
+     *
+     * @param request the request to submit.
+     *
+     * @throws IllegalArgumentException if the request is null.
+     * @throws IllegalStateException    if the pool has been shut down.
+     */
+    public void submit(Request request)
+    {
+        if (request == null)
+        {
+            String message = Logging.getMessage("nullValue.RequestIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (this.shutdown)
+        {
+            String message = Logging.getMessage("HTTPConnectionPool.PoolIsShutDown");
+            Logging.logger().severe(message);
+            throw new IllegalStateException(message);
+        }
+
+        this.numPending.incrementAndGet();
+        this.submittedRequests.add(request);
+        this.selector.wakeup();
+    }
+
+    /**
+     * Closes all connections and stops the pool's thread. Requests not yet completed are abandoned without invoking
+     * their callbacks.
+     */
+    public void shutdown()
+    {
+        this.shutdown = true;
+        this.resolver.shutdownNow();
+        this.selector.wakeup();
+    }
+
+    protected void run()
+    {
+        try
+        {
+            while (!this.shutdown)
+            {
+                this.selector.select(SELECT_TIMEOUT);
+                this.processSelectedKeys();
+                this.processSubmittedRequests();
+                this.processResolvedHosts();
+
+                long now = System.currentTimeMillis();
+                for (Host host : this.hosts.values())
+                {
+                    host.checkTimeouts(now);
+                    host.dispatch();
+                }
+            }
+        }
+        catch (Throwable e)
+        {
+            Logging.logger().log(Level.SEVERE, Logging.getMessage("HTTPConnectionPool.ExceptionInPoolThread"), e);
+        }
+        finally
+        {
+            this.shutdown = true;
+            for (Host host : this.hosts.values())
+            {
+                for (Connection connection : new ArrayList<Connection>(host.connections))
+                {
+                    connection.close();
+                }
+            }
+
+            try
+            {
+                this.selector.close();
+            }
+            catch (IOException e)
+            {
+                Logging.logger().log(Level.FINE, e.getMessage(), e);
+            }
+        }
+    }
+
+    protected void processSelectedKeys()
+    {
+        Iterator<SelectionKey> iter = this.selector.selectedKeys().iterator();
+        while (iter.hasNext())
+        {
+            SelectionKey key = iter.next();
+            iter.remove();
+
+            Connection connection = (Connection) key.attachment();
+            try
+            {
+                if (key.isValid() && key.isConnectable())
+                    connection.finishConnect();
+                if (key.isValid() && key.isWritable())
+                    connection.write();
+                if (key.isValid() && key.isReadable())
+                    connection.read();
+            }
+            catch (IOException e)
+            {
+                connection.abort(e, false);
+            }
+        }
+    }
+
+    protected void processSubmittedRequests()
+    {
+        Request request;
+        while ((request = this.submittedRequests.poll()) != null)
+        {
+            URL url = request.getURL();
+            int port = url.getPort() >= 0 ? url.getPort() : url.getDefaultPort();
+            String key = url.getHost().toLowerCase() + ":" + port;
+
+            Host host = this.hosts.get(key);
+            if (host == null)
+            {
+                host = new Host(url.getHost(), port);
+                this.hosts.put(key, host);
+            }
+
+            host.pending.add(request);
+        }
+    }
+
+    protected void processResolvedHosts()
+    {
+        Host host;
+        while ((host = this.resolvedHosts.poll()) != null)
+        {
+            host.resolving = false;
+            host.address = host.resolvedAddress;
+
+            if (host.address == null)
+            {
+                // Fail the host's pending requests. Any submitted later cause the host to be resolved again.
+                Request request;
+                while ((request = host.pollPending()) != null)
+                {
+                    this.complete(request, null, host.resolveException);
+                }
+            }
+        }
+    }
+
+    protected void complete(Request request, Response response, IOException exception)
+    {
+        request.response = response;
+        request.exception = exception;
+
+        try
+        {
+            request.callback.requestCompleted(request);
+        }
+        catch (Throwable e)
+        {
+            Logging.logger().log(Level.SEVERE,
+                Logging.getMessage("HTTPConnectionPool.ExceptionInCallback", request.getURL()), e);
+        }
+    }
+
+    protected static byte[] formatRequest(URL url)
+    {
+        String file = url.getFile();
+        if (file.length() == 0)
+            file = "/";
+
+        String host = url.getPort() < 0 || url.getPort() == url.getDefaultPort() ? url.getHost()
+            : url.getHost() + ":" + url.getPort();
+
+        StringBuilder sb = new StringBuilder(file.length() + 128);
+        sb.append("GET ").append(file).append(" HTTP/1.1\r\n");
+        sb.append("Host: ").append(host).append("\r\n");
+        sb.append("User-Agent: ").append(USER_AGENT).append("\r\n");
+        sb.append("Accept: */*\r\n");
+        sb.append("Connection: keep-alive\r\n\r\n");
+
+        return sb.toString().getBytes(UTF8);
+    }
+
+    /** The pending requests and open connections for one host and port. */
+    protected class Host
+    {
+        protected final String name;
+        protected final int port;
+        protected final PriorityQueue<Request> pending = new PriorityQueue<Request>();
+        protected final List<Connection> connections = new ArrayList<Connection>();
+        protected InetSocketAddress address;
+        protected boolean resolving;
+        protected volatile InetSocketAddress resolvedAddress;
+        protected volatile IOException resolveException;
+
+        protected Host(String name, int port)
+        {
+            this.name = name;
+            this.port = port;
+        }
+
+        /** Sends pending requests on the host's connections, opening connections as needed. */
+        protected void dispatch()
+        {
+            if (this.pending.isEmpty())
+                return;
+
+            if (this.address == null)
+            {
+                if (!this.resolving)
+                    this.resolve();
+                return;
+            }
+
+            // Spread requests across connections before pipelining them: first give each idle connection a request,
+            // then open connections up to the limit, then fill the pipelines of the persistent connections.
+            for (Connection connection : this.connections)
+            {
+                if (connection.inFlight.isEmpty() && !this.sendNext(connection))
+                    return;
+            }
+
+            while (this.connections.size() < maxConnectionsPerHost)
+            {
+                Request request = this.pollPending();
+                if (request == null)
+                    return;
+
+                try
+                {
+                    Connection connection = new Connection(this);
+                    this.connections.add(connection);
+                    connection.send(request);
+                }
+                catch (IOException e)
+                {
+                    complete(request, null, e);
+                }
+            }
+
+            for (Connection connection : this.connections)
+            {
+                while (connection.canPipeline())
+                {
+                    if (!this.sendNext(connection))
+                        return;
+                }
+            }
+        }
+
+        protected boolean sendNext(Connection connection)
+        {
+            Request request = this.pollPending();
+            if (request == null)
+                return false;
+
+            connection.send(request);
+            return true;
+        }
+
+        /**
+         * Removes the next pending request that has not been cancelled.
+         *
+         * @return the next request, or null if no requests are pending.
+         */
+        protected Request pollPending()
+        {
+            Request request;
+            while ((request = this.pending.poll()) != null)
+            {
+                numPending.decrementAndGet();
+                if (!request.isCancelled())
+                    return request;
+            }
+
+            return null;
+        }
+
+        protected void requeue(Request request)
+        {
+            numPending.incrementAndGet();
+            this.pending.add(request);
+        }
+
+        protected void resolve()
+        {
+            this.resolving = true;
+
+            try
+            {
+                resolver.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            resolvedAddress = new InetSocketAddress(InetAddress.getByName(name), port);
+                        }
+                        catch (IOException e)
+                        {
+                            resolvedAddress = null;
+                            resolveException = e;
+                        }
+
+                        resolvedHosts.add(Host.this);
+                        selector.wakeup();
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                this.resolving = false; // the pool is shutting down
+            }
+        }
+
+        protected void checkTimeouts(long now)
+        {
+            for (Connection connection : new ArrayList<Connection>(this.connections))
+            {
+                connection.checkTimeout(now);
+            }
+        }
+    }
+
+    protected static final int STATE_STATUS_LINE = 0;
+    protected static final int STATE_HEADERS = 1;
+    protected static final int STATE_BODY = 2;
+    protected static final int STATE_BODY_TO_CLOSE = 3;
+    protected static final int STATE_CHUNK_SIZE = 4;
+    protected static final int STATE_CHUNK_BODY = 5;
+    protected static final int STATE_CHUNK_END = 6;
+    protected static final int STATE_TRAILERS = 7;
+
+    /** A connection to a host, and the state of the response being read from it. */
+    protected class Connection
+    {
+        protected final Host host;
+        protected final SocketChannel channel;
+        protected final SelectionKey key;
+        protected final ArrayDeque<Request> inFlight = new ArrayDeque<Request>();
+        protected final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        protected ByteBuffer writeBuffer = (ByteBuffer) ByteBuffer.allocate(1024).flip();
+        protected boolean connected;
+        protected boolean persistent; // true once the server has kept the connection open after a response
+        protected boolean closed;
+        protected long lastActivityTime = System.currentTimeMillis();
+
+        protected int parseState = STATE_STATUS_LINE;
+        protected final StringBuilder line = new StringBuilder();
+        protected Response response;
+        protected boolean keepAlive;
+        protected int bodyRemaining;
+
+        protected Connection(Host host) throws IOException
+        {
+            this.host = host;
+            this.channel = SocketChannel.open();
+
+            try
+            {
+                this.channel.configureBlocking(false);
+                this.channel.socket().setTcpNoDelay(true);
+                this.connected = this.channel.connect(host.address);
+                this.key = this.channel.register(selector,
+                    this.connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+            }
+            catch (IOException e)
+            {
+                this.channel.close();
+                throw e;
+            }
+
+            numConnectionsOpened.incrementAndGet();
+        }
+
+        /**
+         * Indicates whether another request may be sent on this connection before the responses to those in flight
+         * have been read.
+         *
+         * @return true if another request may be pipelined, otherwise false.
+         */
+        protected boolean canPipeline()
+        {
+            return !this.closed && this.persistent && this.keepAlive && this.inFlight.size() < pipelineDepth;
+        }
+
+        protected void send(Request request)
+        {
+            byte[] bytes = formatRequest(request.getURL());
+
+            if (this.writeBuffer.remaining() + bytes.length > this.writeBuffer.capacity())
+            {
+                ByteBuffer buffer = ByteBuffer.allocate(this.writeBuffer.remaining() + bytes.length + 1024);
+                buffer.put(this.writeBuffer);
+                this.writeBuffer = buffer;
+            }
+            else
+            {
+                this.writeBuffer.compact();
+            }
+            this.writeBuffer.put(bytes);
+            this.writeBuffer.flip();
+
+            if (this.inFlight.isEmpty())
+                this.lastActivityTime = System.currentTimeMillis();
+
+            this.inFlight.add(request);
+            request.numAttempts++;
+            numInFlight.incrementAndGet();
+
+            if (this.connected)
+                this.updateInterest();
+        }
+
+        protected void updateInterest()
+        {
+            this.key.interestOps(this.writeBuffer.hasRemaining()
+                ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        protected void finishConnect() throws IOException
+        {
+            if (this.channel.finishConnect())
+            {
+                this.connected = true;
+                this.lastActivityTime = System.currentTimeMillis();
+                this.updateInterest();
+            }
+        }
+
+        protected void write() throws IOException
+        {
+            this.channel.write(this.writeBuffer);
+            this.updateInterest();
+        }
+
+        protected void read() throws IOException
+        {
+            int count = this.channel.read(this.readBuffer);
+            if (count < 0)
+            {
+                this.endOfStream();
+                return;
+            }
+
+            this.lastActivityTime = System.currentTimeMillis();
+
+            this.readBuffer.flip();
+            try
+            {
+                this.parse(this.readBuffer);
+            }
+            finally
+            {
+                this.readBuffer.clear();
+            }
+        }
+
+        protected void endOfStream()
+        {
+            if (this.parseState == STATE_BODY_TO_CLOSE)
+            {
+                this.responseComplete(); // closes this connection
+            }
+            else
+            {
+                // The server closed the connection, perhaps because it was idle too long, or it limits the number of
+                // requests per connection. Send the requests in flight again on another connection.
+                this.abort(new SocketException(Logging.getMessage("HTTPConnectionPool.ConnectionClosed",
+                    this.host.name)), true);
+            }
+        }
+
+        protected void checkTimeout(long now)
+        {
+            long elapsed = now - this.lastActivityTime;
+            Request request = this.inFlight.peek();
+
+            if (request == null)
+            {
+                if (elapsed > IDLE_CONNECTION_TIMEOUT)
+                    this.close();
+            }
+            else if (!this.connected)
+            {
+                if (request.getConnectTimeout() > 0 && elapsed > request.getConnectTimeout())
+                    this.abort(new SocketTimeoutException("connect timed out"), false);
+            }
+            else if (request.getReadTimeout() > 0 && elapsed > request.getReadTimeout())
+            {
+                this.abort(new SocketTimeoutException("Read timed out"), false);
+            }
+        }
+
+        /**
+         * Closes the connection because of an error. The request at the head of the pipeline is sent again if
+         * <code>retry</code> is true and it has not been sent too many times, otherwise it fails with the specified
+         * exception. Other requests in flight are sent again.
+         *
+         * @param exception the exception describing the error.
+         * @param retry     true if the request at the head of the pipeline may be sent again.
+         */
+        protected void abort(IOException exception, boolean retry)
+        {
+            Request head = this.inFlight.poll();
+            if (head != null)
+                numInFlight.decrementAndGet();
+
+            this.close();
+
+            if (head != null && !head.isCancelled())
+            {
+                if (retry && head.numAttempts < MAX_ATTEMPTS)
+                    this.host.requeue(head);
+                else
+                    complete(head, null, exception);
+            }
+        }
+
+        /** Closes the connection. Requests in flight are sent again, or fail if they've been sent too many times. */
+        protected void close()
+        {
+            if (this.closed)
+                return;
+
+            this.closed = true;
+            this.key.cancel();
+            try
+            {
+                this.channel.close();
+            }
+            catch (IOException e)
+            {
+                Logging.logger().log(Level.FINE, e.getMessage(), e);
+            }
+            this.host.connections.remove(this);
+
+            Request request;
+            while ((request = this.inFlight.poll()) != null)
+            {
+                numInFlight.decrementAndGet();
+
+                if (shutdown || request.isCancelled())
+                    continue;
+
+                if (request.numAttempts < MAX_ATTEMPTS)
+                    this.host.requeue(request);
+                else
+                    complete(request, null, new SocketException(
+                        Logging.getMessage("HTTPConnectionPool.ConnectionClosed", this.host.name)));
+            }
+        }
+
+        protected void parse(ByteBuffer buffer) throws IOException
+        {
+            while (buffer.hasRemaining() && !this.closed)
+            {
+                if (this.parseState == STATE_BODY || this.parseState == STATE_CHUNK_BODY)
+                {
+                    int length = Math.min(this.bodyRemaining, buffer.remaining());
+                    this.appendBody(buffer, length);
+                    this.bodyRemaining -= length;
+
+                    if (this.bodyRemaining == 0)
+                    {
+                        if (this.parseState == STATE_BODY)
+                            this.responseComplete();
+                        else
+                            this.parseState = STATE_CHUNK_END;
+                    }
+                }
+                else if (this.parseState == STATE_BODY_TO_CLOSE)
+                {
+                    this.appendBody(buffer, buffer.remaining());
+                }
+                else
+                {
+                    String s = this.readLine(buffer);
+                    if (s != null)
+                        this.parseLine(s);
+                }
+            }
+        }
+
+        protected void appendBody(ByteBuffer buffer, int length) throws IOException
+        {
+            // Chunked bodies and bodies ending with the connection have no declared length, so check as they grow.
+            if ((long) this.response.bodyLength + length > maxResponseSize)
+                throw new ProtocolException(Logging.getMessage("HTTPConnectionPool.ResponseTooLarge", host.name,
+                    maxResponseSize));
+
+            this.response.appendBody(buffer, length);
+        }
+
+        /**
+         * Reads a line from a buffer, accumulating partial lines from successive buffers.
+         *
+         * @param buffer the buffer to read from.
+         *
+         * @return the line read, without its terminator, or null if the buffer ends before the end of the line.
+         *
+         * @throws IOException if the line is unreasonably long.
+         */
+        protected String readLine(ByteBuffer buffer) throws IOException
+        {
+            while (buffer.hasRemaining())
+            {
+                char c = (char) (buffer.get() & 0xff);
+                if (c == '\n')
+                {
+                    int length = this.line.length();
+                    if (length > 0 && this.line.charAt(length - 1) == '\r')
+                        this.line.setLength(length - 1);
+
+                    String s = this.line.toString();
+                    this.line.setLength(0);
+                    return s;
+                }
+
+                if (this.line.length() >= MAX_LINE_LENGTH)
+                    throw new ProtocolException(Logging.getMessage("HTTPConnectionPool.InvalidResponse", host.name));
+
+                this.line.append(c);
+            }
+
+            return null;
+        }
+
+        protected void parseLine(String s) throws IOException
+        {
+            switch (this.parseState)
+            {
+                case STATE_STATUS_LINE:
+                    if (s.length() == 0)
+                        break; // tolerate blank lines between responses
+                    if (this.inFlight.isEmpty() || !s.startsWith("HTTP/"))
+                        throw new ProtocolException(Logging.getMessage("HTTPConnectionPool.InvalidResponse",
+                            host.name));
+                    this.response = parseStatusLine(s);
+                    this.parseState = STATE_HEADERS;
+                    break;
+
+                case STATE_HEADERS:
+                    if (s.length() == 0)
+                    {
+                        this.headersComplete();
+                    }
+                    else if ((s.charAt(0) == ' ' || s.charAt(0) == '\t') && this.response.getNumHeaders() > 0)
+                    {
+                        // A continuation of the previous header.
+                        int last = this.response.headerValues.size() - 1;
+                        this.response.headerValues.set(last, this.response.headerValues.get(last) + " " + s.trim());
+                    }
+                    else
+                    {
+                        int colon = s.indexOf(':');
+                        if (colon > 0)
+                            this.response.addHeader(s.substring(0, colon).trim(), s.substring(colon + 1).trim());
+                    }
+                    break;
+
+                case STATE_CHUNK_SIZE:
+                    int semicolon = s.indexOf(';');
+                    try
+                    {
+                        this.bodyRemaining = Integer.parseInt((semicolon >= 0 ? s.substring(0, semicolon) : s).trim(),
+                            16);
+                    }
+                    catch (NumberFormatException e)
+                    {
+                        throw new ProtocolException(Logging.getMessage("HTTPConnectionPool.InvalidResponse",
+                            host.name));
+                    }
+                    this.parseState = this.bodyRemaining > 0 ? STATE_CHUNK_BODY : STATE_TRAILERS;
+                    break;
+
+                case STATE_CHUNK_END:
+                    this.parseState = STATE_CHUNK_SIZE;
+                    break;
+
+                case STATE_TRAILERS:
+                    if (s.length() == 0)
+                        this.responseComplete();
+                    break;
+            }
+        }
+
+        protected Response parseStatusLine(String s) throws ProtocolException
+        {
+            // The status line is "HTTP/1.1 200 OK": the version, status code and a message that may be empty.
+            int first = s.indexOf(' ');
+            int second = first >= 0 ? s.indexOf(' ', first + 1) : -1;
+
+            try
+            {
+                int code = Integer.parseInt(second >= 0 ? s.substring(first + 1, second) : s.substring(first + 1));
+                return new Response(s, code, second >= 0 ? s.substring(second + 1) : "");
+            }
+            catch (RuntimeException e)
+            {
+                throw new ProtocolException(Logging.getMessage("HTTPConnectionPool.InvalidResponse", host.name));
+            }
+        }
+
+        protected void headersComplete() throws IOException
+        {
+            int code = this.response.getStatusCode();
+            if (code >= 100 && code < 200)
+            {
+                // Skip interim responses; the final response follows.
+                this.response = null;
+                this.parseState = STATE_STATUS_LINE;
+                return;
+            }
+
+            String connection = this.response.getHeader("Connection");
+            if (this.response.getStatusLine().startsWith("HTTP/1.0"))
+                this.keepAlive = connection != null && connection.equalsIgnoreCase("keep-alive");
+            else
+                this.keepAlive = connection == null || !connection.equalsIgnoreCase("close");
+
+            String transferEncoding = this.response.getHeader("Transfer-Encoding");
+            String contentLength = this.response.getHeader("Content-Length");
+
+            if (code == HttpURLConnection.HTTP_NO_CONTENT || code == HttpURLConnection.HTTP_NOT_MODIFIED)
+            {
+                this.responseComplete();
+            }
+            else if (transferEncoding != null && transferEncoding.toLowerCase().contains("chunked"))
+            {
+                this.parseState = STATE_CHUNK_SIZE;
+            }
+            else if (contentLength != null)
+            {
+                long length;
+                try
+                {
+                    length = Long.parseLong(contentLength.trim());
+                }
+                catch (NumberFormatException e)
+                {
+                    throw new ProtocolException(Logging.getMessage("HTTPConnectionPool.InvalidResponse", host.name));
+                }
+
+                if (length > maxResponseSize)
+                    throw new ProtocolException(Logging.getMessage("HTTPConnectionPool.ResponseTooLarge", host.name,
+                        maxResponseSize));
+
+                this.bodyRemaining = (int) length;
+                if (this.bodyRemaining <= 0)
+                {
+                    this.responseComplete();
+                }
+                else
+                {
+                    // The body starts small and grows as its bytes arrive, so a false length allocates nothing.
+                    this.response.body = new byte[Math.min(this.bodyRemaining, INITIAL_BODY_SIZE)];
+                    this.parseState = STATE_BODY;
+                }
+            }
+            else
+            {
+                // The body extends to the end of the connection.
+                this.keepAlive = false;
+                this.parseState = STATE_BODY_TO_CLOSE;
+            }
+        }
+
+        protected void responseComplete()
+        {
+            Request request = this.inFlight.poll();
+            numInFlight.decrementAndGet();
+
+            Response r = this.response;
+            this.response = null;
+            this.parseState = STATE_STATUS_LINE;
+            this.lastActivityTime = System.currentTimeMillis();
+
+            if (this.keepAlive)
+                this.persistent = true;
+            else
+                this.close(); // requests pipelined behind this one are sent again
+
+            complete(request, r, null);
+        }
+    }
+}
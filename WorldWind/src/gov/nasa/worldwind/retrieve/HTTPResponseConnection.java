@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.retrieve;
+
+import gov.nasa.worldwind.util.Logging;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+
+/**
+ * An {@link HttpURLConnection} presenting a response already read by an {@link HTTPConnectionPool}, or the exception
+ * that prevented the response from being read. It allows a {@link URLRetriever} to read a response retrieved by the
+ * pool exactly as it reads one from a connection it opens itself.
+ * See {@link URLRetriever#setPrefetchedConnection(java.net.URLConnection)}.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class HTTPResponseConnection extends HttpURLConnection
+{
+    protected final HTTPConnectionPool.Response response;
+    protected final IOException exception;
+
+    /**
+     * Creates a connection for a response or the exception that prevented it being read.
+     *
+     * @param url       the URL requested.
+     * @param response  the response. May be null if <code>exception</code> is non-null.
+     * @param exception the exception to throw when the response is requested. Ignored if <code>response</code> is
+     *                  non-null.
+     *
+     * @throws IllegalArgumentException if the URL is null, or both the response and the exception are null.
+     */
+    public HTTPResponseConnection(URL url, HTTPConnectionPool.Response response, IOException exception)
+    {
+        super(url);
+
+        if (url == null)
+        {
+            String message = Logging.getMessage("nullValue.URLIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (response == null && exception == null)
+        {
+            String message = Logging.getMessage("nullValue.ObjectIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.response = response;
+        this.exception = response == null ? exception : null;
+        this.connected = true;
+    }
+
+    public void connect() throws IOException
+    {
+        this.checkResponse();
+    }
+
+    public void disconnect()
+    {
+    }
+
+    public boolean usingProxy()
+    {
+        return false;
+    }
+
+    public int getResponseCode() throws IOException
+    {
+        this.checkResponse();
+        return this.response.getStatusCode();
+    }
+
+    public String getResponseMessage() throws IOException
+    {
+        this.checkResponse();
+        return this.response.getStatusMessage();
+    }
+
+    public InputStream getInputStream() throws IOException
+    {
+        this.checkResponse();
+
+        int code = this.response.getStatusCode();
+        if (code == HTTP_NOT_FOUND || code == HTTP_GONE)
+            throw new FileNotFoundException(this.url.toString());
+        else if (code >= HTTP_BAD_REQUEST)
+            throw new IOException("Server returned HTTP response code: " + code + " for URL: " + this.url);
+
+        return this.getBodyStream();
+    }
+
+    public InputStream getErrorStream()
+    {
+        if (this.response == null || this.response.getStatusCode() < HTTP_BAD_REQUEST)
+            return null;
+
+        return this.getBodyStream();
+    }
+
+    public String getHeaderField(String name)
+    {
+        return this.response != null && name != null ? this.response.getHeader(name) : null;
+    }
+
+    public String getHeaderField(int n)
+    {
+        if (this.response == null || n < 0 || n > this.response.getNumHeaders())
+            return null;
+
+        // Field zero is the status line, as for the JDK's connections.
+        return n == 0 ? this.response.getStatusLine() : this.response.getHeaderValue(n - 1);
+    }
+
+    public String getHeaderFieldKey(int n)
+    {
+        if (this.response == null || n < 1 || n > this.response.getNumHeaders())
+            return null;
+
+        return this.response.getHeaderName(n - 1);
+    }
+
+    public Map<String, List<String>> getHeaderFields()
+    {
+        if (this.response == null)
+            return Collections.emptyMap();
+
+        Map<String, List<String>> fields = new LinkedHashMap<String, List<String>>();
+        fields.put(null, Collections.singletonList(this.response.getStatusLine()));
+        for (int i = 0; i < this.response.getNumHeaders(); i++)
+        {
+            String name = this.response.getHeaderName(i);
+            List<String> values = fields.get(name);
+            if (values == null)
+            {
+                values = new ArrayList<String>();
+                fields.put(name, values);
+            }
+            values.add(this.response.getHeaderValue(i));
+        }
+
+        for (Map.Entry<String, List<String>> entry : fields.entrySet())
+        {
+            entry.setValue(Collections.unmodifiableList(entry.getValue()));
+        }
+
+        return Collections.unmodifiableMap(fields);
+    }
+
+    protected InputStream getBodyStream()
+    {
+        return new ByteArrayInputStream(this.response.getBody(), 0, this.response.getBodyLength());
+    }
+
+    protected void checkResponse() throws IOException
+    {
+        if (this.exception != null)
+            throw this.exception;
+    }
+}
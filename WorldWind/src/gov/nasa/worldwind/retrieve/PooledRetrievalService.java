@@ -0,0 +1,556 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.retrieve;
+
+import gov.nasa.worldwind.*;
+import gov.nasa.worldwind.avlist.AVKey;
+import gov.nasa.worldwind.exception.WWRuntimeException;
+import gov.nasa.worldwind.util.*;
+
+import javax.net.ssl.SSLHandshakeException;
+import java.io.IOException;
+import java.net.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+
+/**
+ * A retrieval service that performs HTTP requests over persistent, pipelined connections, many at once, rather than
+ * with one blocking thread per request. Requests for plain HTTP resources made by {@link HTTPRetriever}s are sent by an
+ * {@link HTTPConnectionPool}, which keeps a pool of connections to each host. When a response arrives it's handed to
+ * the retriever, which reads and post-processes it on one of the service's threads exactly as it would a response it
+ * retrieved itself, so retrievers and their {@link RetrievalPostProcessor}s need not change. All other retrievers,
+ * including those for HTTPS resources, redirected resources and requests made through a proxy, run on the service's
+ * threads as they do in {@link BasicRetrievalService}.
+ * <p/>
+ * Retrievals are prioritized and de-duplicated as they are by <code>BasicRetrievalService</code>, and requests that
+ * wait longer than the stale request limit before they're sent are cancelled. The thread pool size specified by {@link
+ * AVKey#RETRIEVAL_POOL_SIZE} determines the number of threads reading and post-processing responses. {@link
+ * AVKey#RETRIEVAL_CONNECTIONS_PER_HOST} and {@link AVKey#RETRIEVAL_PIPELINE_DEPTH} specify the number of connections to
+ * open to each host and the number of requests in flight on each connection.
+ * <p/>
+ * To use this service, specify its class name for {@link AVKey#RETRIEVAL_SERVICE_CLASS_NAME} in the World Wind
+ * configuration.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class PooledRetrievalService extends WWObjectImpl
+    implements RetrievalService, Thread.UncaughtExceptionHandler
+{
+    // These constants are last-ditch values in case Configuration lacks defaults
+    protected static final int DEFAULT_QUEUE_SIZE = 100;
+    protected static final int DEFAULT_POOL_SIZE = 5;
+    protected static final long DEFAULT_STALE_REQUEST_LIMIT = 30000; // milliseconds
+    protected static final int DEFAULT_TIME_PRIORITY_GRANULARITY = 500; // milliseconds
+
+    protected static final String RUNNING_THREAD_NAME_PREFIX = Logging.getMessage(
+        "BasicRetrievalService.RunningThreadNamePrefix");
+    protected static final String IDLE_THREAD_NAME_PREFIX = Logging.getMessage(
+        "BasicRetrievalService.IdleThreadNamePrefix");
+
+    protected final HTTPConnectionPool connectionPool;
+    protected final RetrievalExecutor executor; // thread pool for reading responses and running other retrievers
+    protected final ConcurrentHashMap<RetrievalTask, RetrievalTask> tasks; // tasks submitted and not yet completed
+    protected final int queueSize;
+    protected final long staleRequestLimit;
+    protected SSLExceptionListener sslExceptionListener;
+
+    protected final HTTPConnectionPool.Callback responseHandler = new HTTPConnectionPool.Callback()
+    {
+        public void requestCompleted(HTTPConnectionPool.Request request)
+        {
+            handleResponse((PooledRequest) request);
+        }
+    };
+
+    /**
+     * Encapsulates a retrieval as a {@link java.util.concurrent.FutureTask}. Tasks whose responses have been retrieved
+     * by the connection pool are ordered ahead of others, otherwise tasks are ordered as they are by {@link
+     * BasicRetrievalService}.
+     */
+    protected class RetrievalTask extends FutureTask<Retriever> implements RetrievalFuture, Comparable<RetrievalTask>
+    {
+        protected final Retriever retriever;
+        protected final double priority; // retrieval secondary priority (primary priority is submit time)
+        protected volatile boolean fetched; // true once the task's response has been retrieved
+
+        protected RetrievalTask(Retriever retriever, double priority)
+        {
+            super(retriever);
+            this.retriever = retriever;
+            this.priority = priority;
+        }
+
+        public Retriever getRetriever()
+        {
+            return this.retriever;
+        }
+
+        @Override
+        public void run()
+        {
+            if (this.isDone() || this.isCancelled())
+                return;
+
+            super.run();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning)
+        {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled)
+                tasks.remove(this);
+
+            return cancelled;
+        }
+
+        protected boolean isStale(long time)
+        {
+            long limit = this.retriever.getStaleRequestLimit() >= 0
+                ? this.retriever.getStaleRequestLimit() : staleRequestLimit;
+
+            return time - this.retriever.getSubmitTime() > limit;
+        }
+
+        public int compareTo(RetrievalTask that)
+        {
+            if (this.fetched != that.fetched)
+                return this.fetched ? -1 : 1;
+
+            if (this.priority > 0 && that.priority > 0) // only secondary priority used if either is negative
+            {
+                // Requests submitted within different time-granularity periods are ordered exclusive of their
+                // client-specified priority.
+                long now = System.currentTimeMillis();
+                long thisElapsedTime = now - this.retriever.getSubmitTime();
+                long thatElapsedTime = now - that.retriever.getSubmitTime();
+                if (((thisElapsedTime - thatElapsedTime) / DEFAULT_TIME_PRIORITY_GRANULARITY) != 0)
+                    return thisElapsedTime < thatElapsedTime ? -1 : 1;
+            }
+
+            // The client-specified priority is compared for requests submitted within the same granularity period.
+            return this.priority == that.priority ? 0 : this.priority < that.priority ? -1 : 1;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+
+            // Tasks are equal if their retrievers are equivalent
+            return this.retriever.equals(((RetrievalTask) o).retriever);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return this.retriever.getName().hashCode();
+        }
+    }
+
+    /** A connection pool request made on behalf of a retrieval task, and ordered by the task's priority. */
+    protected class PooledRequest extends HTTPConnectionPool.Request
+    {
+        protected final RetrievalTask task;
+
+        protected PooledRequest(RetrievalTask task)
+        {
+            super(((URLRetriever) task.getRetriever()).getUrl(), responseHandler);
+            this.task = task;
+            this.setConnectTimeout(task.getRetriever().getConnectTimeout());
+            this.setReadTimeout(task.getRetriever().getReadTimeout());
+        }
+
+        @Override
+        public boolean isCancelled()
+        {
+            if (this.task.isCancelled())
+                return true;
+
+            long now = System.currentTimeMillis();
+            if (this.task.isStale(now))
+            {
+                // The request has been waiting too long.
+                Logging.logger().finer(Logging.getMessage("BasicRetrievalService.CancellingTooOldRetrieval",
+                    this.task.getRetriever().getName()));
+                this.task.cancel(false);
+                return true;
+            }
+
+            if (TileRequestScheduler.checkAbandoned(this.task.getRetriever()))
+            {
+                // The tile is no longer requested.
+                Logging.logger().finer(Logging.getMessage("BasicRetrievalService.CancellingAbandonedRetrieval",
+                    this.task.getRetriever().getName()));
+                this.task.cancel(false);
+                return true;
+            }
+
+            this.task.getRetriever().setBeginTime(now);
+            return false;
+        }
+
+        @Override
+        public int compareTo(HTTPConnectionPool.Request that)
+        {
+            return that instanceof PooledRequest ? this.task.compareTo(((PooledRequest) that).task)
+                : super.compareTo(that);
+        }
+    }
+
+    protected class RetrievalExecutor extends ThreadPoolExecutor
+    {
+        protected static final long THREAD_TIMEOUT = 2; // keep idle threads alive this many seconds
+
+        protected RetrievalExecutor(int poolSize, int queueSize)
+        {
+            super(poolSize, poolSize, THREAD_TIMEOUT, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(queueSize),
+                new ThreadFactory()
+                {
+                    public Thread newThread(Runnable runnable)
+                    {
+                        Thread thread = new Thread(runnable);
+                        thread.setDaemon(true);
+                        thread.setPriority(Thread.MIN_PRIORITY);
+                        thread.setUncaughtExceptionHandler(PooledRetrievalService.this);
+                        return thread;
+                    }
+                }, new ThreadPoolExecutor.DiscardPolicy());
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable runnable)
+        {
+            RetrievalTask task = (RetrievalTask) runnable;
+
+            // Responses already retrieved are processed however long they waited. Other tasks are cancelled if they
+            // waited too long.
+            if (!task.fetched)
+            {
+                task.retriever.setBeginTime(System.currentTimeMillis());
+                if (task.isStale(task.retriever.getBeginTime()))
+                {
+                    Logging.logger().finer(Logging.getMessage("BasicRetrievalService.CancellingTooOldRetrieval",
+                        task.getRetriever().getName()));
+                    task.cancel(true);
+                }
+                else if (TileRequestScheduler.checkAbandoned(task.retriever))
+                {
+                    Logging.logger().finer(Logging.getMessage("BasicRetrievalService.CancellingAbandonedRetrieval",
+                        task.getRetriever().getName()));
+                    task.cancel(true);
+                }
+            }
+
+            thread.setName(RUNNING_THREAD_NAME_PREFIX + task.getRetriever().getName());
+            thread.setPriority(Thread.MIN_PRIORITY); // Subordinate thread priority to rendering
+            thread.setUncaughtExceptionHandler(PooledRetrievalService.this);
+
+            super.beforeExecute(thread, runnable);
+        }
+
+        @Override
+        protected void afterExecute(Runnable runnable, Throwable throwable)
+        {
+            super.afterExecute(runnable, throwable);
+
+            RetrievalTask task = (RetrievalTask) runnable;
+            tasks.remove(task);
+            task.retriever.setEndTime(System.currentTimeMillis());
+
+            try
+            {
+                if (throwable != null)
+                {
+                    Logging.logger().log(Level.FINE,
+                        Logging.getMessage("BasicRetrievalService.ExceptionDuringRetrieval",
+                            task.getRetriever().getName()), throwable);
+                }
+
+                task.get(); // Wait for task to finish, cancel or break
+            }
+            catch (ExecutionException e)
+            {
+                String message = Logging.getMessage("BasicRetrievalService.ExecutionExceptionDuringRetrieval",
+                    task.getRetriever().getName());
+                if (e.getCause() instanceof SocketTimeoutException)
+                {
+                    Logging.logger().fine(message + " " + e.getCause().getLocalizedMessage());
+                }
+                else if (e.getCause() instanceof SSLHandshakeException)
+                {
+                    if (sslExceptionListener != null)
+                        sslExceptionListener.onException(e.getCause(), task.getRetriever().getName());
+                    else
+                        Logging.logger().fine(message + " " + e.getCause().getLocalizedMessage());
+                }
+                else
+                {
+                    Logging.logger().log(Level.FINE, message, e);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Logging.logger().log(Level.FINE, Logging.getMessage("BasicRetrievalService.RetrievalInterrupted",
+                    task.getRetriever().getName()), e);
+            }
+            catch (CancellationException e)
+            {
+                Logging.logger().fine(Logging.getMessage("BasicRetrievalService.RetrievalCancelled",
+                    task.getRetriever().getName()));
+            }
+            finally
+            {
+                Thread.currentThread().setName(IDLE_THREAD_NAME_PREFIX);
+            }
+        }
+    }
+
+    public PooledRetrievalService()
+    {
+        int poolSize = Configuration.getIntegerValue(AVKey.RETRIEVAL_POOL_SIZE, DEFAULT_POOL_SIZE);
+        int connectionsPerHost = Configuration.getIntegerValue(AVKey.RETRIEVAL_CONNECTIONS_PER_HOST,
+            HTTPConnectionPool.DEFAULT_MAX_CONNECTIONS_PER_HOST);
+        int pipelineDepth = Configuration.getIntegerValue(AVKey.RETRIEVAL_PIPELINE_DEPTH,
+            HTTPConnectionPool.DEFAULT_PIPELINE_DEPTH);
+        this.queueSize = Configuration.getIntegerValue(AVKey.RETRIEVAL_QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+        this.staleRequestLimit = Configuration.getLongValue(AVKey.RETRIEVAL_QUEUE_STALE_REQUEST_LIMIT,
+            DEFAULT_STALE_REQUEST_LIMIT);
+
+        try
+        {
+            this.connectionPool = new HTTPConnectionPool(connectionsPerHost, pipelineDepth);
+        }
+        catch (IOException e)
+        {
+            String message = Logging.getMessage("HTTPConnectionPool.CannotCreatePool");
+            Logging.logger().log(Level.SEVERE, message, e);
+            throw new WWRuntimeException(message, e);
+        }
+
+        this.executor = new RetrievalExecutor(poolSize, this.queueSize);
+        this.tasks = new ConcurrentHashMap<RetrievalTask, RetrievalTask>();
+    }
+
+    public SSLExceptionListener getSSLExceptionListener()
+    {
+        return this.sslExceptionListener;
+    }
+
+    public void setSSLExceptionListener(SSLExceptionListener sslExceptionListener)
+    {
+        this.sslExceptionListener = sslExceptionListener;
+    }
+
+    public void uncaughtException(Thread thread, Throwable throwable)
+    {
+        Logging.logger().fine(Logging.getMessage("BasicRetrievalService.UncaughtExceptionDuringRetrieval",
+            thread.getName()));
+    }
+
+    /**
+     * Returns the connection pool this service uses to perform HTTP requests.
+     *
+     * @return the service's connection pool.
+     */
+    public HTTPConnectionPool getConnectionPool()
+    {
+        return this.connectionPool;
+    }
+
+    public void shutdown(boolean immediately)
+    {
+        this.connectionPool.shutdown();
+
+        if (immediately)
+            this.executor.shutdownNow();
+        else
+            this.executor.shutdown();
+
+        for (RetrievalTask task : this.tasks.keySet())
+        {
+            if (!task.fetched || immediately)
+                task.cancel(immediately);
+        }
+    }
+
+    /**
+     * @param retriever the retriever to run
+     *
+     * @return a future object that can be used to query the request status of cancel the request.
+     *
+     * @throws IllegalArgumentException if <code>retriever</code> is null or has no name
+     */
+    public RetrievalFuture runRetriever(Retriever retriever)
+    {
+        if (retriever == null)
+        {
+            String msg = Logging.getMessage("nullValue.RetrieverIsNull");
+            Logging.logger().fine(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        // Add with secondary priority that removes most recently added requests first.
+        return this.runRetriever(retriever, (double) (Long.MAX_VALUE - System.currentTimeMillis()));
+    }
+
+    /**
+     * @param retriever the retriever to run
+     * @param priority  the secondary priority of the retriever, or negative if it is to be the primary priority
+     *
+     * @return a future object that can be used to query the request status of cancel the request, or null if the
+     *         retriever is already pending or running.
+     *
+     * @throws IllegalArgumentException if <code>retriever</code> is null or has no name
+     */
+    public RetrievalFuture runRetriever(Retriever retriever, double priority)
+    {
+        if (retriever == null)
+        {
+            String message = Logging.getMessage("nullValue.RetrieverIsNull");
+            Logging.logger().fine(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (retriever.getName() == null)
+        {
+            String message = Logging.getMessage("nullValue.RetrieverNameIsNull");
+            Logging.logger().fine(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (!this.isAvailable())
+        {
+            Logging.logger().finer(Logging.getMessage("BasicRetrievalService.ResourceRejected", retriever.getName()));
+        }
+
+        RetrievalTask task = new RetrievalTask(retriever, priority);
+        retriever.setSubmitTime(System.currentTimeMillis());
+
+        // Do not queue duplicates.
+        if (this.tasks.putIfAbsent(task, task) != null)
+            return null;
+
+        if (this.isPoolable(retriever))
+            this.connectionPool.submit(new PooledRequest(task));
+        else
+            this.executor.execute(task);
+
+        return task;
+    }
+
+    /**
+     * Indicates whether a retriever's request is performed by the connection pool.
+     *
+     * @param retriever the retriever.
+     *
+     * @return true if the connection pool performs the retriever's request, false if the retriever runs in the
+     *         usual way.
+     */
+    protected boolean isPoolable(Retriever retriever)
+    {
+        if (!(retriever instanceof HTTPRetriever))
+            return false;
+
+        URL url = ((HTTPRetriever) retriever).getUrl();
+        return "http".equalsIgnoreCase(url.getProtocol()) && url.getUserInfo() == null
+            && Configuration.getStringValue(AVKey.URL_PROXY_HOST) == null;
+    }
+
+    /**
+     * Called on the connection pool's thread when a request completes. Hands the response to the task's retriever and
+     * queues the task to read and post-process it.
+     *
+     * @param request the completed request.
+     */
+    protected void handleResponse(PooledRequest request)
+    {
+        RetrievalTask task = request.task;
+        if (task.isDone())
+            return; // cancelled while in flight
+
+        // Let the retriever follow redirects itself.
+        HTTPConnectionPool.Response response = request.getResponse();
+        if (response == null || !isRedirect(response.getStatusCode()))
+        {
+            ((URLRetriever) task.getRetriever()).setPrefetchedConnection(
+                new HTTPResponseConnection(request.getURL(), response, request.getException()));
+        }
+
+        task.fetched = true;
+        this.executor.execute(task);
+
+        if (this.executor.isShutdown())
+            task.cancel(false);
+    }
+
+    protected static boolean isRedirect(int statusCode)
+    {
+        return statusCode == HttpURLConnection.HTTP_MOVED_PERM || statusCode == HttpURLConnection.HTTP_MOVED_TEMP
+            || statusCode == HttpURLConnection.HTTP_SEE_OTHER || statusCode == 307;
+    }
+
+    /**
+     * @param poolSize the number of threads reading responses and running retrievers
+     *
+     * @throws IllegalArgumentException if <code>poolSize</code> is non-positive
+     */
+    public void setRetrieverPoolSize(int poolSize)
+    {
+        if (poolSize < 1)
+        {
+            String message = Logging.getMessage("BasicRetrievalService.RetrieverPoolSizeIsLessThanOne");
+            Logging.logger().fine(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.executor.setCorePoolSize(poolSize);
+        this.executor.setMaximumPoolSize(poolSize);
+    }
+
+    public int getRetrieverPoolSize()
+    {
+        return this.executor.getCorePoolSize();
+    }
+
+    public boolean hasActiveTasks()
+    {
+        return this.connectionPool.getNumInFlight() > 0 || this.executor.getActiveCount() > 0;
+    }
+
+    public boolean isAvailable()
+    {
+        return this.connectionPool.getNumPending() + this.executor.getQueue().size() < this.queueSize;
+    }
+
+    public int getNumRetrieversPending()
+    {
+        return this.tasks.size();
+    }
+
+    /**
+     * @param retriever the retriever to check
+     *
+     * @return <code>true</code> if the retriever is being run or pending execution
+     *
+     * @throws IllegalArgumentException if <code>retriever</code> is null
+     */
+    public boolean contains(Retriever retriever)
+    {
+        if (retriever == null)
+        {
+            String msg = Logging.getMessage("nullValue.RetrieverIsNull");
+            Logging.logger().fine(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        return this.tasks.containsKey(new RetrievalTask(retriever, 0d));
+    }
+}
@@ -41,6 +41,7 @@ public abstract class URLRetriever extends WWObjectImpl implements Retriever
     protected AtomicLong expiration = new AtomicLong(0);
     protected volatile ByteBuffer byteBuffer;
     protected volatile URLConnection connection;
+    protected volatile URLConnection prefetchedConnection;
     protected final URL url;
     protected final RetrievalPostProcessor postProcessor;
     protected int connectTimeout = Configuration.getIntegerValue(AVKey.URL_CONNECT_TIMEOUT, 8000);
@@ -158,6 +159,19 @@ public abstract class URLRetriever extends WWObjectImpl implements Retriever
         return this.connection;
     }
 
+    /**
+     * Specifies a connection whose response has already been retrieved. The retriever reads the response from this
+     * connection, rather than opening a connection of its own, the next time it runs. A retrieval service that
+     * performs requests itself, such as {@link PooledRetrievalService}, uses this method to hand the response to the
+     * retriever, which then reads and post-processes it as usual.
+     *
+     * @param connection the connection holding the response, or null to have the retriever open its own connection.
+     */
+    public void setPrefetchedConnection(URLConnection connection)
+    {
+        this.prefetchedConnection = connection;
+    }
+
     public final RetrievalPostProcessor getPostProcessor()
     {
         return postProcessor;
@@ -304,6 +318,13 @@ public abstract class URLRetriever extends WWObjectImpl implements Retriever
 
     protected URLConnection openConnection() throws IOException
     {
+        URLConnection prefetched = this.prefetchedConnection;
+        if (prefetched != null)
+        {
+            this.prefetchedConnection = null;
+            return prefetched;
+        }
+
         try
         {
             Proxy proxy = WWIO.configureProxy();
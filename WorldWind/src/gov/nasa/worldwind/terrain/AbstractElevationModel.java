@@ -15,7 +15,7 @@ import gov.nasa.worldwind.util.*;
 import org.w3c.dom.Element;
 
 import javax.xml.xpath.XPath;
-import java.util.List;
+import java.util.*;
 
 /**
  * @author tag
@@ -30,6 +30,8 @@ abstract public class AbstractElevationModel extends WWObjectImpl implements Ele
     protected boolean networkRetrievalEnabled = true;
     protected long expiryTime = 0;
     protected boolean enabled = true;
+    /** Counts changes to this model's elevations. See {@link #getDataGeneration(gov.nasa.worldwind.geom.Sector)}. */
+    protected SectorGenerationCounter dataGenerations = new SectorGenerationCounter();
 
     public void dispose()
     {
@@ -77,6 +79,7 @@ abstract public class AbstractElevationModel extends WWObjectImpl implements Ele
     public void setEnabled(boolean enabled)
     {
         this.enabled = enabled;
+        this.dataGenerations.incrementAll();
     }
 
     public boolean isEnabled()
@@ -92,6 +95,7 @@ abstract public class AbstractElevationModel extends WWObjectImpl implements Ele
     public void setMissingDataSignal(double missingDataFlag)
     {
         this.missingDataFlag = missingDataFlag;
+        this.dataGenerations.incrementAll();
     }
 
     public double getMissingDataReplacement()
@@ -102,6 +106,7 @@ abstract public class AbstractElevationModel extends WWObjectImpl implements Ele
     public void setMissingDataReplacement(double missingDataValue)
     {
         this.missingDataValue = missingDataValue;
+        this.dataGenerations.incrementAll();
     }
 
     public double getDetailHint(Sector sector)
@@ -151,6 +156,128 @@ abstract public class AbstractElevationModel extends WWObjectImpl implements Ele
         return new double[] {this.getElevations(sector, latLons, targetResolutions[0], elevations)};
     }
 
+    public double getElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] buffer)
+    {
+        return this.doGetElevations(sector, locations, offset, count, inRadians, targetResolution, buffer, true);
+    }
+
+    public double getUnmappedElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] buffer)
+    {
+        return this.doGetElevations(sector, locations, offset, count, inRadians, targetResolution, buffer, false);
+    }
+
+    /**
+     * Performs the lookup of elevations for a run of packed latitude-longitude pairs. This default implementation
+     * copies the locations into a list of <code>LatLon</code> and delegates to the list-based elevation query.
+     * Subclasses that can look up elevations without creating intermediate objects should override this method.
+     *
+     * @param sector           the sector containing the locations.
+     * @param locations        the packed latitude-longitude pairs to return elevations for.
+     * @param offset           the index of the first location to process.
+     * @param count            the number of locations to process.
+     * @param inRadians        true if the locations are in radians, false if they are in degrees.
+     * @param targetResolution the desired horizontal resolution, in radians.
+     * @param buffer           an array in which to place the returned elevations.
+     * @param mapMissingData   indicates whether to replace any elevations that match this elevation model's missing
+     *                         data signal to this model's missing data replacement value.
+     *
+     * @return the resolution achieved, in radians, or {@link Double#MAX_VALUE} if individual elevations cannot be
+     *         determined for all of the locations.
+     *
+     * @throws IllegalArgumentException if either the sector, locations array or elevations array is null, if the offset
+     *                                  or count is negative, or if either array is too small.
+     */
+    protected double doGetElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] buffer, boolean mapMissingData)
+    {
+        this.validatePackedLocations(sector, locations, offset, count, buffer);
+
+        List<LatLon> latlons = new ArrayList<LatLon>(count);
+        for (int i = offset; i < offset + count; i++)
+        {
+            latlons.add(inRadians ? LatLon.fromRadians(locations[2 * i], locations[2 * i + 1])
+                : LatLon.fromDegrees(locations[2 * i], locations[2 * i + 1]));
+        }
+
+        // Copy the caller's values so that locations outside this model's coverage retain their original values.
+        double[] elevations = new double[count];
+        System.arraycopy(buffer, offset, elevations, 0, count);
+
+        double resolution = mapMissingData
+            ? this.getElevations(sector, latlons, targetResolution, elevations)
+            : this.getUnmappedElevations(sector, latlons, targetResolution, elevations);
+
+        System.arraycopy(elevations, 0, buffer, offset, count);
+
+        return resolution;
+    }
+
+    /**
+     * Validates the arguments of the packed-location elevation queries.
+     *
+     * @param sector    the sector containing the locations.
+     * @param locations the packed latitude-longitude pairs.
+     * @param offset    the index of the first location to process.
+     * @param count     the number of locations to process.
+     * @param buffer    the elevations output buffer.
+     *
+     * @throws IllegalArgumentException if either the sector, locations array or elevations array is null, if the offset
+     *                                  or count is negative, or if either array is too small.
+     */
+    protected void validatePackedLocations(Sector sector, double[] locations, int offset, int count, double[] buffer)
+    {
+        if (sector == null)
+        {
+            String msg = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (locations == null)
+        {
+            String msg = Logging.getMessage("nullValue.LocationsListIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (buffer == null)
+        {
+            String msg = Logging.getMessage("nullValue.ElevationsBufferIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (offset < 0)
+        {
+            String msg = Logging.getMessage("generic.OffsetIsInvalid", offset);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (count < 0)
+        {
+            String msg = Logging.getMessage("generic.LengthIsInvalid", count);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (locations.length < 2 * (offset + count))
+        {
+            String msg = Logging.getMessage("generic.ArrayInvalidLength", locations.length);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (buffer.length < offset + count)
+        {
+            String msg = Logging.getMessage("ElevationModel.ElevationsBufferTooSmall", offset + count);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+    }
+
     public double[] getBestResolutions(Sector sector)
     {
         return new double[] {this.getBestResolution(sector)};
@@ -357,4 +484,9 @@ abstract public class AbstractElevationModel extends WWObjectImpl implements Ele
     {
         return 1d;
     }
+
+    public long getDataGeneration(Sector sector)
+    {
+        return this.dataGenerations.getGeneration(sector);
+    }
 }
@@ -59,6 +59,11 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
     protected String elevationDataByteOrder = AVKey.LITTLE_ENDIAN;
     protected double detailHint = 0.0;
     protected final Object fileLock = new Object();
+    /**
+     * Locks for reading and writing tile files, each shared by the tiles whose keys hash to it. Tiles with different
+     * locks are read and written concurrently.
+     */
+    protected final Object[] tileFileLocks = createTileFileLocks(NUM_TILE_FILE_LOCKS);
     protected java.util.concurrent.ConcurrentHashMap<TileKey, ElevationTile> levelZeroTiles =
         new java.util.concurrent.ConcurrentHashMap<TileKey, ElevationTile>();
     protected MemoryCache memoryCache;
@@ -68,6 +73,8 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
     protected MemoryCache extremesLookupCache;
     // Model resource properties.
     protected static final int RESOURCE_ID_OGC_CAPABILITIES = 1;
+    /** The number of locks the model's tile files are striped across. */
+    protected static final int NUM_TILE_FILE_LOCKS = 64;
 
     public BasicElevationModel(AVList params)
     {
@@ -209,6 +216,32 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
             params.setValue(AVKey.NUM_EMPTY_LEVELS, 0);
     }
 
+    protected static Object[] createTileFileLocks(int numLocks)
+    {
+        Object[] locks = new Object[numLocks];
+        for (int i = 0; i < numLocks; i++)
+        {
+            locks[i] = new Object();
+        }
+
+        return locks;
+    }
+
+    /**
+     * Returns the lock that synchronizes reading and writing a tile's file. Tiles share a lock with the other tiles
+     * whose keys hash to the same stripe, but not with the rest of the model's tiles.
+     *
+     * @param tileKey the tile's key.
+     *
+     * @return the tile's file lock.
+     */
+    protected Object getTileFileLock(TileKey tileKey)
+    {
+        int hash = tileKey.hashCode();
+        hash ^= (hash >>> 16);
+        return this.tileFileLocks[(hash & 0x7fffffff) % this.tileFileLocks.length];
+    }
+
     protected MemoryCache getMemoryCache()
     {
         return memoryCache;
@@ -223,7 +256,7 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         else
         {
             long size = Configuration.getLongValue(AVKey.ELEVATION_TILE_CACHE_SIZE, 20000000L);
-            MemoryCache mc = new BasicMemoryCache((long) (0.85 * size), size);
+            MemoryCache mc = WorldWind.getMemoryCacheSet().createMemoryCache((long) (0.85 * size), size);
             mc.setName("Elevation Tiles");
             WorldWind.getMemoryCacheSet().addCache(cacheName, mc);
             return mc;
@@ -500,7 +533,12 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
 
     protected boolean loadElevations(ElevationTile tile, java.net.URL url) throws Exception
     {
-        BufferWrapper elevations = this.readElevations(url);
+        // Synchronize with writes of this tile's file only. Other tiles are read and written concurrently.
+        BufferWrapper elevations;
+        synchronized (this.getTileFileLock(tile.getTileKey()))
+        {
+            elevations = this.readElevations(url);
+        }
         if (elevations == null || elevations.length() == 0)
             return false;
 
@@ -517,6 +555,9 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
             this.levelZeroTiles.put(tile.getTileKey(), tile);
         else
             this.getMemoryCache().add(tile.getTileKey(), tile, elevations.getSizeInBytes());
+
+        // The tile's elevations may be better than those previously available for its sector.
+        this.dataGenerations.increment(tile.getSector());
     }
 
     protected boolean areElevationsInMemory(TileKey key)
@@ -559,11 +600,11 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
 
     protected BufferWrapper makeBilElevations(URL url) throws IOException
     {
-        ByteBuffer byteBuffer;
-        synchronized (this.fileLock)
-        {
-            byteBuffer = WWIO.readURLContentToBuffer(url);
-        }
+        // Read local files into a direct buffer with a single channel read. The BufferWrapper views the buffer without
+        // copying it. Tile files are replaced whole by rename, so the file is never seen partially written.
+        File file = WWIO.convertURLToFile(url);
+        ByteBuffer byteBuffer = (file != null) ? WWIO.readFileToBuffer(file, true)
+            : WWIO.readURLContentToBuffer(url, true);
 
         // Setup parameters to instruct BufferWrapper on how to interpret the ByteBuffer.
         AVList bufferParams = new AVListImpl();
@@ -588,11 +629,7 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         }
 
         // Read the file into the raster.
-        DataRaster[] rasters;
-        synchronized (this.fileLock)
-        {
-            rasters = reader.read(file, null);
-        }
+        DataRaster[] rasters = reader.read(file, null);
 
         if (rasters == null || rasters.length == 0)
         {
@@ -918,7 +955,44 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         @Override
         protected Object getFileLock()
         {
-            return this.elevationModel.fileLock;
+            return this.elevationModel.getTileFileLock(this.tile.getTileKey());
+        }
+
+        /**
+         * Saves the tile's file by writing it beside its final location and then renaming it into place, so readers of
+         * the tile's file, in this process or another, never see it partially written. Only the rename synchronizes
+         * with readers of the tile. Tiles the file store packs are saved by the file store instead.
+         *
+         * @param buffer the buffer to save.
+         *
+         * @return true if the buffer was saved, false if the output file could not be determined or already exists and
+         *         not overwritten.
+         *
+         * @throws IOException if an IO error occurred when attempting to save the buffer.
+         */
+        @Override
+        protected boolean saveBuffer(ByteBuffer buffer) throws IOException
+        {
+            if (this.isOutputPacked())
+                return this.savePackedBuffer(buffer);
+
+            File outFile = this.getOutputFile();
+
+            if (outFile == null)
+                return false;
+
+            if (outFile.exists() && !this.overwriteExistingFile())
+                return false;
+
+            File tempFile = WWIO.saveBufferToSiblingTempFile(buffer != null ? buffer : this.getRetriever().getBuffer(),
+                outFile);
+            if (tempFile == null)
+                return false;
+
+            synchronized (this.getFileLock()) // synchronize with reads of the tile's file
+            {
+                return WWIO.replaceFile(tempFile, outFile);
+            }
         }
 
         @Override
@@ -927,6 +1001,18 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
             return this.getFileStore().newFile(this.tile.getPath());
         }
 
+        @Override
+        protected FileStore getOutputFileStore()
+        {
+            return this.getFileStore();
+        }
+
+        @Override
+        protected String getOutputFileName()
+        {
+            return this.tile.getPath();
+        }
+
         @Override
         protected ByteBuffer handleSuccessfulRetrieval()
         {
@@ -1042,6 +1128,29 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
             }
         }
 
+        /**
+         * Returns the tile that provides elevations for a specified location. When tiles of several levels contain the
+         * location, the tile with the highest resolution is returned.
+         *
+         * @param latitude  the location's latitude, in degrees.
+         * @param longitude the location's longitude, in degrees.
+         *
+         * @return the tile containing the location, or null if the location is outside this group of tiles.
+         */
+        protected ElevationTile getTile(double latitude, double longitude)
+        {
+            if (this.tiles == null)
+                return null;
+
+            for (ElevationTile tile : this.tiles)
+            {
+                if (tile.getSector().containsDegrees(latitude, longitude))
+                    return tile;
+            }
+
+            return null;
+        }
+
         protected double[] getExtremes(Angle latitude, Angle longitude)
         {
             if (latitude == null || longitude == null)
@@ -1306,6 +1415,84 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         return elevations.achievedResolution;
     }
 
+    @Override
+    protected double doGetElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] buffer, boolean mapMissingData)
+    {
+        this.validatePackedLocations(sector, locations, offset, count, buffer);
+
+        Level targetLevel = this.getTargetLevel(sector, targetResolution);
+        if (targetLevel == null)
+            return Double.MAX_VALUE;
+
+        Elevations elevations = this.getElevations(sector, this.levels, targetLevel.getLevelNumber());
+        if (elevations == null)
+            return Double.MAX_VALUE;
+
+        if (this.intersects(sector) == -1)
+            return Double.MAX_VALUE;
+
+        // Mark the model as used this frame.
+        this.setValue(AVKey.FRAME_TIMESTAMP, System.currentTimeMillis());
+
+        Sector coverage = this.levels.getSector();
+        double missingDataSignal = this.getMissingDataSignal();
+        boolean missingIsTransparent = this.getMissingDataReplacement() == missingDataSignal;
+        double toDegrees = inRadians ? 180d / Math.PI : 1;
+        double toRadians = inRadians ? 1 : Math.PI / 180d;
+
+        // Tiles of the elevations' highest resolution level do not overlap, so consecutive locations falling in the
+        // same such tile can reuse it. A lower resolution fallback tile may be overlapped by a higher resolution tile,
+        // and must be resolved again for each location.
+        int bestLevelNumber = elevations.tiles != null && !elevations.tiles.isEmpty()
+            ? elevations.tiles.iterator().next().getLevelNumber() : -1;
+        ElevationTile tile = null;
+        double sectorMinElevation = 0;
+        boolean haveSectorMinElevation = false;
+
+        for (int i = offset; i < offset + count; i++)
+        {
+            double latDegrees = locations[2 * i] * toDegrees;
+            double lonDegrees = locations[2 * i + 1] * toDegrees;
+
+            if (tile == null || tile.getLevelNumber() != bestLevelNumber
+                || !tile.getSector().containsDegrees(latDegrees, lonDegrees))
+            {
+                tile = elevations.getTile(latDegrees, lonDegrees);
+            }
+
+            boolean haveValue = tile != null;
+            double value = haveValue
+                ? this.lookupElevation(locations[2 * i] * toRadians, locations[2 * i + 1] * toRadians, tile) : 0;
+
+            if ((!haveValue || value == missingDataSignal) && missingIsTransparent)
+                continue;
+
+            // If an elevation at the given location is available, write that elevation to the destination buffer.
+            // If an elevation is not available but the location is within the elevation model's coverage, write the
+            // elevation models extreme elevation at the location. Do nothing if the location is not within the
+            // elevation model's coverage.
+            if (haveValue && value != missingDataSignal)
+                buffer[i] = value;
+            else if (coverage.containsDegrees(latDegrees, lonDegrees))
+            {
+                if (!haveValue)
+                {
+                    if (!haveSectorMinElevation)
+                    {
+                        sectorMinElevation = this.getExtremeElevations(sector)[0];
+                        haveSectorMinElevation = true;
+                    }
+                    buffer[i] = sectorMinElevation;
+                }
+                else if (mapMissingData)
+                    buffer[i] = this.getMissingDataReplacement();
+            }
+        }
+
+        return elevations.achievedResolution;
+    }
+
     protected Level getTargetLevel(Sector sector, double targetSize)
     {
         Level lastLevel = this.levels.getLastLevel(sector); // finest resolution available
@@ -1328,6 +1515,11 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
     }
 
     protected double lookupElevation(Angle latitude, Angle longitude, final ElevationTile tile)
+    {
+        return this.lookupElevation(latitude.radians, longitude.radians, tile);
+    }
+
+    protected double lookupElevation(double latitude, double longitude, final ElevationTile tile)
     {
         BufferWrapper elevations = tile.getElevations();
         Sector sector = tile.getSector();
@@ -1335,8 +1527,8 @@ public class BasicElevationModel extends AbstractElevationModel implements BulkR
         final int tileWidth = tile.getWidth();
         final double sectorDeltaLat = sector.getDeltaLat().radians;
         final double sectorDeltaLon = sector.getDeltaLon().radians;
-        final double dLat = sector.getMaxLatitude().radians - latitude.radians;
-        final double dLon = longitude.radians - sector.getMinLongitude().radians;
+        final double dLat = sector.getMaxLatitude().radians - latitude;
+        final double dLon = longitude - sector.getMinLongitude().radians;
         final double sLat = dLat / sectorDeltaLat;
         final double sLon = dLon / sectorDeltaLon;
 
@@ -71,6 +71,7 @@ public class BathymetryFilterElevationModel extends AbstractElevationModel
     public void setThreshold(double threshold)
     {
         this.threshold = threshold;
+        this.dataGenerations.incrementAll();
     }
 
     public double getMaxElevation()
@@ -131,6 +132,30 @@ public class BathymetryFilterElevationModel extends AbstractElevationModel
         return resolution;
     }
 
+    @Override
+    protected double doGetElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] buffer, boolean mapMissingData)
+    {
+        double resolution = this.sourceModel.getElevations(sector, locations, offset, count, inRadians,
+            targetResolution, buffer);
+
+        for (int i = offset; i < offset + count; i++)
+        {
+            if (buffer[i] >= this.threshold)
+                continue;
+
+            if (!mapMissingData && buffer[i] == this.sourceModel.getMissingDataSignal())
+                continue;
+
+            Angle lat = inRadians ? Angle.fromRadians(locations[2 * i]) : Angle.fromDegrees(locations[2 * i]);
+            Angle lon = inRadians ? Angle.fromRadians(locations[2 * i + 1]) : Angle.fromDegrees(locations[2 * i + 1]);
+            if (this.sourceModel.contains(lat, lon))
+                buffer[i] = this.threshold;
+        }
+
+        return resolution;
+    }
+
     public int intersects(Sector sector)
     {
         return this.sourceModel.intersects(sector);
@@ -191,4 +216,10 @@ public class BathymetryFilterElevationModel extends AbstractElevationModel
     {
         return this.sourceModel.isExtremesCachingEnabled();
     }
+
+    @Override
+    public long getDataGeneration(Sector sector)
+    {
+        return 31 * super.getDataGeneration(sector) + this.sourceModel.getDataGeneration(sector);
+    }
 }
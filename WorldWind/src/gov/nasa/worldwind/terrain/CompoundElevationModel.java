@@ -112,6 +112,7 @@ public class CompoundElevationModel extends AbstractElevationModel
 
         this.elevationModels.add(em);
         this.sortElevationModels();
+        this.dataGenerations.incrementAll();
     }
 
     /**
@@ -139,6 +140,7 @@ public class CompoundElevationModel extends AbstractElevationModel
         }
 
         this.elevationModels.add(index, em); // the list's add method will throw exception for invalid index
+        this.dataGenerations.incrementAll();
     }
 
     public void removeElevationModel(ElevationModel em)
@@ -157,6 +159,7 @@ public class CompoundElevationModel extends AbstractElevationModel
         }
 
         this.elevationModels.remove(em);
+        this.dataGenerations.incrementAll();
     }
 
     public void removeElevationModel(int index)
@@ -169,6 +172,7 @@ public class CompoundElevationModel extends AbstractElevationModel
         }
 
         this.elevationModels.remove(index);
+        this.dataGenerations.incrementAll();
     }
 
     public void setElevationModel(int index, ElevationModel em)
@@ -188,6 +192,7 @@ public class CompoundElevationModel extends AbstractElevationModel
         }
 
         this.elevationModels.set(index, em);
+        this.dataGenerations.incrementAll();
     }
 
     public List<ElevationModel> getElevationModels()
@@ -605,6 +610,55 @@ public class CompoundElevationModel extends AbstractElevationModel
         return resolutionAchieved;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * NOTE: This method returns only unmapped elevations if the compound model contains more than one elevation model.
+     * This enables the compound model's lower resolution elevation models to specify missing data values for the higher
+     * resolution elevation models.
+     */
+    @Override
+    public double getElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] buffer)
+    {
+        return this.doGetElevations(sector, locations, offset, count, inRadians, targetResolution, buffer, false);
+    }
+
+    @Override
+    protected double doGetElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] buffer, boolean mapMissingData)
+    {
+        this.validatePackedLocations(sector, locations, offset, count, buffer);
+
+        // Fill the buffer with ElevationModel contents from lowest resolution to highest, potentially overwriting
+        // values at each step. ElevationModels are expected to leave the buffer untouched for locations outside their
+        // coverage area.
+        double resolutionAchieved = 0;
+        for (int i = 0; i < this.elevationModels.size(); i++)
+        {
+            ElevationModel em = this.elevationModels.get(i);
+
+            if (!em.isEnabled())
+                continue;
+
+            int c = em.intersects(sector);
+            if (c < 0) // no intersection
+                continue;
+
+            double r;
+            if (mapMissingData || this.elevationModels.size() == 1)
+                r = em.getElevations(sector, locations, offset, count, inRadians, targetResolution, buffer);
+            else
+                r = em.getUnmappedElevations(sector, locations, offset, count, inRadians, targetResolution, buffer);
+
+            // Report the resolution achieved by the first elevation model, as the list-based query does.
+            if (i == 0)
+                resolutionAchieved = r;
+        }
+
+        return resolutionAchieved;
+    }
+
     public void composeElevations(Sector sector, List<? extends LatLon> latlons, int tileWidth,
         double[] buffer) throws Exception
     {
@@ -702,4 +756,23 @@ public class CompoundElevationModel extends AbstractElevationModel
 
         return false;
     }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The generation of a compound model combines its own generation, which changes when elevation models are added or
+     * removed, with the generations of each of its elevation models.
+     */
+    @Override
+    public long getDataGeneration(Sector sector)
+    {
+        long generation = super.getDataGeneration(sector);
+
+        for (ElevationModel em : this.elevationModels)
+        {
+            generation = 31 * generation + em.getDataGeneration(sector);
+        }
+
+        return generation;
+    }
 }
@@ -14,6 +14,7 @@ import gov.nasa.worldwind.globes.Globe;
 import gov.nasa.worldwind.render.SurfaceQuad;
 import gov.nasa.worldwind.util.Logging;
 
+import java.nio.FloatBuffer;
 import java.util.*;
 import java.util.concurrent.*;
 
@@ -94,6 +95,9 @@ public class HighResolutionTerrain extends WWObjectImpl implements Terrain
     protected int numCols;
     protected MemoryCache geometryCache;
     protected ThreadLocal<Long> startTime = new ThreadLocal<Long>();
+    protected ConcurrentHashMap<Sector, FutureTask<RenderInfo>> pendingTiles =
+        new ConcurrentHashMap<Sector, FutureTask<RenderInfo>>();
+    protected HighResolutionTerrainIntersector intersector;
 
     /**
      * Constructs a terrain object for a specified globe.
@@ -440,7 +444,9 @@ public class HighResolutionTerrain extends WWObjectImpl implements Terrain
     }
 
     /**
-     * Intersects a specified list of geographic two-position lines with the terrain.
+     * Intersects a specified list of geographic two-position lines with the terrain. The intersections are computed by
+     * this terrain's {@link HighResolutionTerrainIntersector}, which is created on first use and reused by subsequent
+     * calls.
      *
      * @param positions The positions to intersect, with the line segments formed by each pair of positions, e.g. the
      *                  first line in formed by positions[0] and positions[1], the second by positions[2] and
@@ -448,39 +454,25 @@ public class HighResolutionTerrain extends WWObjectImpl implements Terrain
      * @param callback  An object to call in order to return the computed intersections.
      *
      * @throws InterruptedException
+     * @see #getIntersector()
      */
     public void intersect(List<Position> positions, final IntersectionCallback callback) throws InterruptedException
     {
-        ExecutorService service = Executors.newFixedThreadPool(10);
-
-        for (int i = 0; i < positions.size(); i += 2)
-        {
-            final Position pA = positions.get(i);
-            final Position pB = positions.get(i + 1);
+        this.getIntersector().intersect(positions, callback);
+    }
 
-            service.submit(new Runnable()
-            {
-                @Override
-                public void run()
-                {
-                    try
-                    {
-                        Intersection[] intersections = intersect(pA, pB);
-                        if (intersections != null)
-                        {
-                            callback.intersection(pA, pB, intersections);
-                        }
-                    }
-                    catch (Exception e)
-                    {
-                        callback.exception(e);
-                    }
-                }
-            });
-        }
+    /**
+     * Returns the intersector used by {@link #intersect(java.util.List, HighResolutionTerrain.IntersectionCallback)}.
+     * The intersector may also be used directly to start intersection jobs that can be monitored and cancelled.
+     *
+     * @return this terrain's intersector, which uses as many threads as there are available processors.
+     */
+    public synchronized HighResolutionTerrainIntersector getIntersector()
+    {
+        if (this.intersector == null)
+            this.intersector = new HighResolutionTerrainIntersector(this);
 
-        service.shutdown();
-        service.awaitTermination(100, TimeUnit.DAYS); // wait indefinitely for all threads to complete
+        return this.intersector;
     }
 
     /**
@@ -900,20 +892,99 @@ public class HighResolutionTerrain extends WWObjectImpl implements Terrain
      * @throws InterruptedException                            if the operation is interrupted.
      * @throws gov.nasa.worldwind.exception.WWTimeoutException if terrain data retrieval exceeds the current timeout.
      */
-    protected void makeVerts(RectTile tile) throws InterruptedException
+    protected void makeVerts(final RectTile tile) throws InterruptedException
     {
         // First see if the vertices have been previously computed and are in the cache.
         tile.ri = (RenderInfo) this.geometryCache.getObject(tile.sector);
         if (tile.ri != null)
             return;
 
-        tile.ri = this.buildVerts(tile);
-        if (tile.ri != null)
+        // Only one thread builds a given tile's vertices. Other threads needing the same tile at the same time wait for
+        // that thread's result rather than building the vertices again.
+        FutureTask<RenderInfo> task = new FutureTask<RenderInfo>(new Callable<RenderInfo>()
+        {
+            public RenderInfo call() throws Exception
+            {
+                return buildVerts(tile);
+            }
+        });
+
+        for (; ; )
+        {
+            FutureTask<RenderInfo> pendingTask = this.pendingTiles.putIfAbsent(tile.sector, task);
+            if (pendingTask == null)
+            {
+                try
+                {
+                    task.run();
+                    tile.ri = this.getRenderInfo(task);
+                    if (tile.ri != null)
+                    {
+                        this.geometryCache.add(tile.sector, tile.ri, tile.ri.getSizeInBytes());
+                    }
+                }
+                finally
+                {
+                    this.pendingTiles.remove(tile.sector, task);
+                }
+                return;
+            }
+
+            try
+            {
+                tile.ri = pendingTask.get();
+                return;
+            }
+            catch (ExecutionException e)
+            {
+                if (!(e.getCause() instanceof InterruptedException))
+                    throw this.unwrapBuildException(e);
+
+                // The thread building the vertices was interrupted, typically because its intersection job was
+                // cancelled. That says nothing about this thread, so build the vertices again.
+                this.pendingTiles.remove(tile.sector, pendingTask);
+            }
+        }
+    }
+
+    /**
+     * Waits for a vertex build task to complete and returns its result, rethrowing any exception the build threw.
+     *
+     * @param task the task.
+     *
+     * @return the task's result.
+     *
+     * @throws InterruptedException if the build or the wait is interrupted.
+     */
+    protected RenderInfo getRenderInfo(FutureTask<RenderInfo> task) throws InterruptedException
+    {
+        try
         {
-            this.geometryCache.add(tile.sector, tile.ri, tile.ri.getSizeInBytes());
+            return task.get();
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof InterruptedException)
+                throw (InterruptedException) e.getCause();
+            throw this.unwrapBuildException(e);
         }
     }
 
+    /**
+     * Returns the runtime exception to throw for a failed vertex build.
+     *
+     * @param e the exception reporting the failure.
+     *
+     * @return the build's exception if it is a runtime exception, otherwise a runtime exception wrapping it.
+     */
+    protected RuntimeException unwrapBuildException(ExecutionException e)
+    {
+        if (e.getCause() instanceof RuntimeException)
+            return (RuntimeException) e.getCause();
+
+        return new WWRuntimeException(e.getCause());
+    }
+
     /**
      * Computes a terrain tile's vertices.
      *
@@ -961,34 +1032,28 @@ public class HighResolutionTerrain extends WWObjectImpl implements Terrain
         LatLon minElevationLocation = centroid;
         LatLon maxElevationLocation = centroid;
 
-        int ie = 0;
-        int iv = 0;
-        Iterator<LatLon> latLonIter = latlons.iterator();
-        for (int j = 0; j <= density; j++)
+        for (int ie = 0; ie < numVertices; ie++)
         {
-            for (int i = 0; i <= density; i++)
-            {
-                LatLon latlon = latLonIter.next();
-                double elevation = this.verticalExaggeration * elevations[ie++];
+            double elevation = this.verticalExaggeration * elevations[ie];
+            elevations[ie] = elevation;
 
-                if (elevation < minElevation)
-                {
-                    minElevation = elevation;
-                    minElevationLocation = latlon;
-                }
-                if (elevation > maxElevation)
-                {
-                    maxElevation = elevation;
-                    maxElevationLocation = latlon;
-                }
-
-                Vec4 p = this.globe.computePointFromPosition(latlon.getLatitude(), latlon.getLongitude(), elevation);
-                verts[iv++] = (float) (p.x - refCenter.x);
-                verts[iv++] = (float) (p.y - refCenter.y);
-                verts[iv++] = (float) (p.z - refCenter.z);
+            if (elevation < minElevation)
+            {
+                minElevation = elevation;
+                minElevationLocation = latlons.get(ie);
+            }
+            if (elevation > maxElevation)
+            {
+                maxElevation = elevation;
+                maxElevationLocation = latlons.get(ie);
             }
         }
 
+        // The locations form a regular grid over the tile's sector, so the vertices are computed in one pass directly
+        // into the vertex array.
+        this.globe.computePointsFromPositions(tile.sector, density + 1, density + 1, elevations, refCenter,
+            FloatBuffer.wrap(verts));
+
         return new RenderInfo(density, verts, refCenter, new Position(minElevationLocation, minElevation),
             new Position(maxElevationLocation, maxElevation));
     }
@@ -0,0 +1,464 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.terrain;
+
+import gov.nasa.worldwind.WWObjectImpl;
+import gov.nasa.worldwind.avlist.AVKey;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.util.Logging;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Intersects large numbers of line segments with a {@link HighResolutionTerrain}. All intersectors share one thread
+ * pool, created on first use and sized to the number of available processors. The pool's threads are daemon threads
+ * and exit when idle, so intersectors need not be shut down.
+ * <p/>
+ * The segments of each job are sorted by the terrain tiles containing their end points and divided into batches.
+ * Worker threads take batches in sorted order, so segments crossing the same tiles are processed close together in
+ * time and share the tile geometry built by the terrain, and idle workers take the next available batch until the job
+ * is done. Jobs may be cancelled, and report their progress via {@link AVKey#PROGRESS} property change events fired by
+ * this intersector. Property change events are fired from the worker threads.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class HighResolutionTerrainIntersector extends WWObjectImpl
+{
+    protected static final int DEFAULT_BATCH_SIZE = 64;
+    /** The number of seconds an idle thread of the shared pool waits for work before exiting. */
+    protected static final long THREAD_KEEP_ALIVE = 30;
+
+    /** The thread pool shared by all intersectors. Created on first use. */
+    protected static ThreadPoolExecutor sharedExecutor;
+
+    protected final HighResolutionTerrain terrain;
+    protected final int numThreads;
+    protected int batchSize = DEFAULT_BATCH_SIZE;
+
+    /**
+     * Constructs an intersector for a specified terrain, using as many threads as there are available processors.
+     *
+     * @param terrain the terrain to intersect.
+     *
+     * @throws IllegalArgumentException if the terrain is null.
+     */
+    public HighResolutionTerrainIntersector(HighResolutionTerrain terrain)
+    {
+        this(terrain, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs an intersector for a specified terrain.
+     *
+     * @param terrain    the terrain to intersect.
+     * @param numThreads the maximum number of threads each job uses. Jobs draw their threads from the shared pool, so
+     *                   no more threads than there are available processors run at once.
+     *
+     * @throws IllegalArgumentException if the terrain is null or the number of threads is less than 1.
+     */
+    public HighResolutionTerrainIntersector(HighResolutionTerrain terrain, int numThreads)
+    {
+        if (terrain == null)
+        {
+            String msg = Logging.getMessage("nullValue.TerrainIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (numThreads < 1)
+        {
+            String msg = Logging.getMessage("generic.ArgumentOutOfRange", numThreads);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        this.terrain = terrain;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Returns the thread pool shared by all intersectors, creating it if necessary.
+     *
+     * @return the shared thread pool.
+     */
+    protected static synchronized ExecutorService getSharedExecutor()
+    {
+        if (sharedExecutor == null)
+        {
+            int poolSize = Runtime.getRuntime().availableProcessors();
+            sharedExecutor = new ThreadPoolExecutor(poolSize, poolSize, THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new WorkerThreadFactory());
+            sharedExecutor.allowCoreThreadTimeOut(true);
+        }
+
+        return sharedExecutor;
+    }
+
+    /** Creates the shared pool's threads. Static so that the threads don't refer to any intersector or terrain. */
+    protected static class WorkerThreadFactory implements ThreadFactory
+    {
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            thread.setName("HighResolutionTerrainIntersector");
+            return thread;
+        }
+    }
+
+    /**
+     * Indicates the terrain this intersector operates on.
+     *
+     * @return this intersector's terrain.
+     */
+    public HighResolutionTerrain getTerrain()
+    {
+        return this.terrain;
+    }
+
+    /**
+     * Indicates the maximum number of threads each job uses to compute intersections.
+     *
+     * @return the number of threads.
+     */
+    public int getNumThreads()
+    {
+        return this.numThreads;
+    }
+
+    /**
+     * Indicates the number of segments each worker takes at a time.
+     *
+     * @return the batch size.
+     */
+    public int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    /**
+     * Specifies the number of segments each worker takes at a time. Smaller batches balance work more evenly among the
+     * threads; larger batches improve reuse of terrain geometry within a thread. The default is 64.
+     *
+     * @param batchSize the batch size.
+     *
+     * @throws IllegalArgumentException if the batch size is less than 1.
+     */
+    public void setBatchSize(int batchSize)
+    {
+        if (batchSize < 1)
+        {
+            String msg = Logging.getMessage("generic.ArgumentOutOfRange", batchSize);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts intersecting a specified list of geographic two-position lines with the terrain and returns immediately.
+     *
+     * @param positions the positions to intersect, with the line segments formed by each pair of positions, e.g. the
+     *                  first line in formed by positions[0] and positions[1], the second by positions[2] and
+     *                  positions[3], etc.
+     * @param callback  an object to call in order to return the computed intersections.
+     *
+     * @return a job that may be used to wait for, monitor or cancel the operation.
+     *
+     * @throws IllegalArgumentException if the positions list or the callback is null.
+     */
+    public Job submit(List<Position> positions, HighResolutionTerrain.IntersectionCallback callback)
+    {
+        if (positions == null)
+        {
+            String msg = Logging.getMessage("nullValue.PositionsListIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (callback == null)
+        {
+            String msg = Logging.getMessage("nullValue.CallbackIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        Job job = new Job(positions, callback, this.sortSegments(positions));
+        job.start();
+
+        return job;
+    }
+
+    /**
+     * Intersects a specified list of geographic two-position lines with the terrain, and waits for the operation to
+     * complete.
+     *
+     * @param positions the positions to intersect, with the line segments formed by each pair of positions.
+     * @param callback  an object to call in order to return the computed intersections.
+     *
+     * @throws IllegalArgumentException if the positions list or the callback is null.
+     * @throws InterruptedException     if the calling thread is interrupted while waiting. The operation is cancelled
+     *                                  in this case.
+     */
+    public void intersect(List<Position> positions, HighResolutionTerrain.IntersectionCallback callback)
+        throws InterruptedException
+    {
+        Job job = this.submit(positions, callback);
+
+        try
+        {
+            job.await();
+        }
+        catch (InterruptedException e)
+        {
+            job.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Orders the segments of a position list by the terrain tiles containing their end points, so that segments
+     * crossing the same tiles are adjacent in the order.
+     *
+     * @param positions the positions forming the segments.
+     *
+     * @return the segment indices, in processing order.
+     */
+    protected int[] sortSegments(List<Position> positions)
+    {
+        int numSegments = positions.size() / 2;
+        final long[] keys = new long[numSegments];
+
+        for (int i = 0; i < numSegments; i++)
+        {
+            keys[i] = ((long) this.computeTileKey(positions.get(2 * i)) << 32)
+                | (this.computeTileKey(positions.get(2 * i + 1)) & 0xffffffffL);
+        }
+
+        // Sort the segment indices by key, breaking ties by index to keep the order deterministic.
+        Integer[] order = new Integer[numSegments];
+        for (int i = 0; i < numSegments; i++)
+        {
+            order[i] = i;
+        }
+
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            public int compare(Integer a, Integer b)
+            {
+                return keys[a] < keys[b] ? -1 : keys[a] > keys[b] ? 1 : a.compareTo(b);
+            }
+        });
+
+        int[] indices = new int[numSegments];
+        for (int i = 0; i < numSegments; i++)
+        {
+            indices[i] = order[i];
+        }
+
+        return indices;
+    }
+
+    /**
+     * Computes a key identifying the terrain tile containing a position. Keys increase in row-major order.
+     *
+     * @param position the position in question.
+     *
+     * @return the tile key, or -1 if the position is null or outside the terrain's sector.
+     */
+    protected int computeTileKey(Position position)
+    {
+        if (position == null || !this.terrain.sector.contains(position))
+            return -1;
+
+        int row = this.terrain.computeRow(this.terrain.sector, position.getLatitude());
+        int col = this.terrain.computeColumn(this.terrain.sector, position.getLongitude());
+
+        return row * this.terrain.numCols + col;
+    }
+
+    /** An intersection operation started by {@link HighResolutionTerrainIntersector#submit}. */
+    public class Job
+    {
+        protected final List<Position> positions;
+        protected final HighResolutionTerrain.IntersectionCallback callback;
+        protected final int[] segmentOrder;
+        protected final int numBatches;
+        protected final AtomicInteger nextBatch = new AtomicInteger();
+        protected final AtomicInteger numCompleted = new AtomicInteger();
+        protected final CountDownLatch workersDone;
+        protected final Set<Thread> activeThreads = new HashSet<Thread>();
+        protected volatile boolean cancelled;
+
+        protected Job(List<Position> positions, HighResolutionTerrain.IntersectionCallback callback,
+            int[] segmentOrder)
+        {
+            this.positions = positions;
+            this.callback = callback;
+            this.segmentOrder = segmentOrder;
+            this.numBatches = (segmentOrder.length + batchSize - 1) / batchSize;
+            this.workersDone = new CountDownLatch(Math.max(1, Math.min(numThreads, this.numBatches)));
+        }
+
+        protected void start()
+        {
+            if (this.numBatches == 0)
+            {
+                this.workersDone.countDown();
+                firePropertyChange(AVKey.PROGRESS, null, 1d);
+                return;
+            }
+
+            for (long i = this.workersDone.getCount(); i > 0; i--)
+            {
+                getSharedExecutor().execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        synchronized (activeThreads)
+                        {
+                            activeThreads.add(Thread.currentThread());
+                        }
+
+                        try
+                        {
+                            runBatches();
+                        }
+                        finally
+                        {
+                            synchronized (activeThreads)
+                            {
+                                activeThreads.remove(Thread.currentThread());
+                                Thread.interrupted(); // don't carry a cancellation interrupt into the next task
+                            }
+
+                            workersDone.countDown();
+                        }
+                    }
+                });
+            }
+        }
+
+        protected void runBatches()
+        {
+            int bs = batchSize;
+            int batch;
+            while (!this.cancelled && (batch = this.nextBatch.getAndIncrement()) < this.numBatches)
+            {
+                int end = Math.min(this.segmentOrder.length, (batch + 1) * bs);
+                for (int i = batch * bs; i < end && !this.cancelled; i++)
+                {
+                    this.intersectSegment(this.segmentOrder[i]);
+                }
+
+                int oldCount = this.numCompleted.getAndAdd(end - batch * bs);
+                int newCount = oldCount + end - batch * bs;
+                firePropertyChange(AVKey.PROGRESS, (double) oldCount / this.segmentOrder.length,
+                    (double) newCount / this.segmentOrder.length);
+            }
+        }
+
+        protected void intersectSegment(int segment)
+        {
+            Position pA = this.positions.get(2 * segment);
+            Position pB = this.positions.get(2 * segment + 1);
+
+            try
+            {
+                Intersection[] intersections = terrain.intersect(pA, pB);
+                if (intersections != null && !this.cancelled)
+                    this.callback.intersection(pA, pB, intersections);
+            }
+            catch (Exception e)
+            {
+                if (!this.cancelled)
+                    this.callback.exception(e);
+            }
+        }
+
+        /**
+         * Cancels this job. Segments not yet started are skipped and segments in progress are interrupted. The callback
+         * is not called for segments completing after cancellation.
+         */
+        public void cancel()
+        {
+            this.cancelled = true;
+
+            synchronized (this.activeThreads)
+            {
+                for (Thread thread : this.activeThreads)
+                {
+                    thread.interrupt();
+                }
+            }
+        }
+
+        /**
+         * Indicates whether this job has been cancelled.
+         *
+         * @return true if this job has been cancelled, otherwise false.
+         */
+        public boolean isCancelled()
+        {
+            return this.cancelled;
+        }
+
+        /**
+         * Indicates whether this job has completed, either normally or by cancellation.
+         *
+         * @return true if this job is done, otherwise false.
+         */
+        public boolean isDone()
+        {
+            return this.workersDone.getCount() == 0;
+        }
+
+        /**
+         * Waits for this job to complete.
+         *
+         * @throws InterruptedException if the calling thread is interrupted while waiting.
+         */
+        public void await() throws InterruptedException
+        {
+            this.workersDone.await();
+        }
+
+        /**
+         * Indicates the number of segments in this job.
+         *
+         * @return the number of segments.
+         */
+        public int getNumSegments()
+        {
+            return this.segmentOrder.length;
+        }
+
+        /**
+         * Indicates the number of segments processed so far.
+         *
+         * @return the number of segments processed.
+         */
+        public int getNumCompleted()
+        {
+            return this.numCompleted.get();
+        }
+
+        /**
+         * Indicates the fraction of this job's segments processed so far.
+         *
+         * @return a number between 0 and 1.
+         */
+        public double getProgress()
+        {
+            return this.segmentOrder.length > 0 ? (double) this.numCompleted.get() / this.segmentOrder.length : 1;
+        }
+    }
+}
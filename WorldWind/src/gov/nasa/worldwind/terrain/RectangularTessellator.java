@@ -21,6 +21,8 @@ import java.awt.*;
 import java.nio.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.*;
+import java.util.logging.Level;
 
 /**
  * @author tag
@@ -36,6 +38,8 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
         protected final FloatBuffer texCoords;
         protected final IntBuffer indices;
         protected long time;
+        /** The elevation model's data generation for the tile's sector when the vertices were computed. */
+        protected long generation;
         protected Object vboCacheKey = new Object();
         protected boolean isVboBound = false;
 
@@ -89,6 +93,11 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
             return this.time;
         }
 
+        public long getGeneration()
+        {
+            return this.generation;
+        }
+
         public Object getVboCacheKey()
         {
             return this.vboCacheKey;
@@ -376,6 +385,64 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
         }
     }
 
+    /**
+     * Computes a tile's vertices on a vertex build thread. The render thread adds completed builds to the memory cache
+     * at the start of the next frame. See {@link RectangularTessellator#setBuildVertsInBackground(boolean)}.
+     */
+    protected static class VertexBuild implements Runnable
+    {
+        protected final RectangularTessellator tessellator;
+        protected final RectTile tile;
+        protected final CacheKey cacheKey;
+        protected final Globe globe;
+        protected final double verticalExaggeration;
+        protected final boolean makeSkirts;
+        protected final long generation;
+        protected volatile long lastRequestTime;
+        protected FloatBuffer vertices;
+        protected Vec4 referenceCenter;
+
+        public VertexBuild(RectangularTessellator tessellator, DrawContext dc, RectTile tile, CacheKey cacheKey,
+            long generation)
+        {
+            this.tessellator = tessellator;
+            this.tile = tile;
+            this.cacheKey = cacheKey;
+            this.globe = dc.getGlobe();
+            this.verticalExaggeration = dc.getVerticalExaggeration();
+            this.makeSkirts = tessellator.isMakeTileSkirts();
+            this.generation = generation;
+            this.lastRequestTime = System.currentTimeMillis();
+        }
+
+        public void run()
+        {
+            // Skip builds for tiles that haven't been requested recently. They're likely no longer in view.
+            if (System.currentTimeMillis() - this.lastRequestTime > VERTEX_BUILD_STALE_TIME)
+            {
+                this.tessellator.pendingVertexBuilds.remove(this.cacheKey);
+                return;
+            }
+
+            try
+            {
+                int numVertices = (this.tile.density + 3) * (this.tile.density + 3);
+                FloatBuffer verts = Buffers.newDirectFloatBuffer(numVertices * 3);
+                this.referenceCenter = this.tessellator.computeVerts(this.globe, this.verticalExaggeration, this.tile,
+                    this.makeSkirts, verts);
+                this.vertices = verts;
+                this.tessellator.completedVertexBuilds.add(this);
+            }
+            catch (Exception e)
+            {
+                this.tessellator.pendingVertexBuilds.remove(this.cacheKey);
+                String message = Logging.getMessage("RectangularTessellator.ExceptionBuildingVertices",
+                    this.tile.getSector());
+                Logging.logger().log(Level.SEVERE, message, e);
+            }
+        }
+    }
+
     // TODO: Make all this configurable
     protected static final int DEFAULT_MAX_LEVEL = 30;
     protected static final double DEFAULT_LOG10_RESOLUTION_TARGET = 1.3;
@@ -384,6 +451,12 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
     protected static final int DEFAULT_DENSITY = 20;
     protected static final String CACHE_NAME = "Terrain";
     protected static final String CACHE_ID = RectangularTessellator.class.getName();
+    /** The maximum number of tiles waiting for or undergoing a background vertex build. */
+    protected static final int MAX_PENDING_VERTEX_BUILDS = 64;
+    /** The time in milliseconds after which a background vertex build not requested again is skipped. */
+    protected static final long VERTEX_BUILD_STALE_TIME = 1000;
+    /** The delay in milliseconds of the redraw requested while background vertex builds are pending. */
+    protected static final int VERTEX_BUILD_REDRAW_DELAY = 50;
 
     // Tri-strip indices and texture coordinates. These depend only on density and can therefore be statically cached.
     protected static final HashMap<Integer, FloatBuffer> textureCoords = new HashMap<Integer, FloatBuffer>();
@@ -407,6 +480,13 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
     protected Globe globe;
     protected int density = DEFAULT_DENSITY;
     protected long updateFrequency = 2000; // milliseconds
+    protected boolean buildVertsInBackground = Configuration.getBooleanValue(
+        AVKey.RECTANGULAR_TESSELLATOR_BUILD_VERTS_IN_BACKGROUND, false);
+    protected ExecutorService vertexBuildService;
+    protected final ConcurrentHashMap<CacheKey, VertexBuild> pendingVertexBuilds =
+        new ConcurrentHashMap<CacheKey, VertexBuild>();
+    protected final ConcurrentLinkedQueue<VertexBuild> completedVertexBuilds =
+        new ConcurrentLinkedQueue<VertexBuild>();
 
     public SectorGeometryList tessellate(DrawContext dc)
     {
@@ -427,12 +507,13 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
         if (!WorldWind.getMemoryCacheSet().containsCache(CACHE_ID))
         {
             long size = Configuration.getLongValue(AVKey.SECTOR_GEOMETRY_CACHE_SIZE, 10000000L);
-            MemoryCache cache = new BasicMemoryCache((long) (0.85 * size), size);
+            MemoryCache cache = WorldWind.getMemoryCacheSet().createMemoryCache((long) (0.85 * size), size);
             cache.setName(CACHE_NAME);
             WorldWind.getMemoryCacheSet().addCache(CACHE_ID, cache);
         }
 
         this.maxLevel = Configuration.getIntegerValue(AVKey.RECTANGULAR_TESSELLATOR_MAX_LEVEL, DEFAULT_MAX_LEVEL);
+        this.installCompletedVerts(dc);
 
         TopLevelTiles topLevels = (TopLevelTiles) this.topLevelTilesCache.get(dc.getGlobe().getStateKey(dc));
         if (topLevels == null)
@@ -458,6 +539,11 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
             this.makeVerts(dc, (RectTile) tile);
         }
 
+        // Draw another frame soon if tiles are waiting for their vertices, so that they're shown once available.
+        if (!this.pendingVertexBuilds.isEmpty()
+            && (dc.getRedrawRequested() == 0 || dc.getRedrawRequested() > VERTEX_BUILD_REDRAW_DELAY))
+            dc.setRedrawRequested(VERTEX_BUILD_REDRAW_DELAY);
+
         // Make a copy of the SGL because the tessellator may be called multiple times per frame with a different globe.
         // See SceneController2D.
         SectorGeometryList sgl = new SectorGeometryList(this.currentTiles);
@@ -549,6 +635,36 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
         this.updateFrequency = updateFrequency;
     }
 
+    /**
+     * Indicates whether tile vertices are computed on background threads.
+     *
+     * @return true if tile vertices are computed on background threads, otherwise false.
+     *
+     * @see #setBuildVertsInBackground(boolean)
+     */
+    public boolean isBuildVertsInBackground()
+    {
+        return this.buildVertsInBackground;
+    }
+
+    /**
+     * Specifies whether tile vertices are computed on background threads rather than on the rendering thread. When
+     * true, a tile is not subdivided until the vertices of all its visible subtiles are available, so the tile is drawn
+     * in their place while their vertices are computed. Cached vertices are recomputed only when the globe's elevation
+     * model reports that the data for the tile's sector has changed, and are drawn until the new vertices are
+     * available. The update frequency is not used. The default is specified by {@link
+     * AVKey#RECTANGULAR_TESSELLATOR_BUILD_VERTS_IN_BACKGROUND} in the World Wind configuration, and is false if the key
+     * is not specified.
+     *
+     * @param buildVertsInBackground true to compute tile vertices on background threads, otherwise false.
+     *
+     * @see ElevationModel#getDataGeneration(gov.nasa.worldwind.geom.Sector)
+     */
+    public void setBuildVertsInBackground(boolean buildVertsInBackground)
+    {
+        this.buildVertsInBackground = buildVertsInBackground;
+    }
+
     protected void selectVisibleTiles(DrawContext dc, RectTile tile)
     {
         if (dc.is2DGlobe() && this.skipTile(dc, tile.getSector()))
@@ -560,14 +676,17 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
 
         if (this.currentLevel < this.maxLevel - 1 && !this.atBestResolution(dc, tile) && this.needToSplit(dc, tile))
         {
-            ++this.currentLevel;
             RectTile[] subtiles = this.split(dc, tile);
-            for (RectTile child : subtiles)
+            if (this.areVertsAvailable(dc, subtiles))
             {
-                this.selectVisibleTiles(dc, child);
+                ++this.currentLevel;
+                for (RectTile child : subtiles)
+                {
+                    this.selectVisibleTiles(dc, child);
+                }
+                --this.currentLevel;
+                return;
             }
-            --this.currentLevel;
-            return;
         }
         this.currentCoverage = tile.getSector().union(this.currentCoverage);
         this.currentTiles.add(tile);
@@ -640,11 +759,22 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
 
     protected void makeVerts(DrawContext dc, RectTile tile)
     {
-        // First see if the vertices have been previously computed and are in the cache. Since the elevation model
-        // contents can change between frames, regenerate and re-cache vertices every second.
+        // First see if the vertices have been previously computed and are in the cache.
         MemoryCache cache = WorldWind.getMemoryCache(CACHE_ID);
         CacheKey cacheKey = this.createCacheKey(dc, tile);
         tile.ri = (RenderInfo) cache.getObject(cacheKey);
+
+        if (this.isBuildVertsInBackground() && tile.ri != null)
+        {
+            // Draw the cached vertices, and recompute them in the background if the elevation model reports new data
+            // for the tile's sector.
+            long generation = this.getDataGeneration(dc, tile);
+            if (tile.ri.generation != generation)
+                this.requestVerts(dc, tile, cacheKey, generation);
+            return;
+        }
+
+        // Since the elevation model contents can change between frames, regenerate and re-cache vertices every second.
         if (tile.ri != null && tile.ri.time >= System.currentTimeMillis() - this.getUpdateFrequency())
             return;
 
@@ -652,6 +782,137 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
             cache.add(cacheKey, tile.ri, tile.ri.getSizeInBytes());
     }
 
+    /**
+     * Indicates whether the vertices of tiles are available to draw, and requests background builds of those that
+     * aren't. Tiles outside the view frustum or the globe's projection limits are ignored. When vertices are not built
+     * in the background this returns true, since vertices are then computed as they're needed.
+     *
+     * @param dc    the current draw context.
+     * @param tiles the tiles to check.
+     *
+     * @return true if the vertices of each visible tile are available, otherwise false.
+     */
+    protected boolean areVertsAvailable(DrawContext dc, RectTile[] tiles)
+    {
+        if (!this.isBuildVertsInBackground())
+            return true;
+
+        MemoryCache cache = WorldWind.getMemoryCache(CACHE_ID);
+        boolean available = true;
+
+        for (RectTile tile : tiles)
+        {
+            if (dc.is2DGlobe() && this.skipTile(dc, tile.getSector()))
+                continue;
+
+            Extent extent = tile.getExtent();
+            if (extent != null && !extent.intersects(this.currentFrustum))
+                continue;
+
+            CacheKey cacheKey = this.createCacheKey(dc, tile);
+            if (cache.getObject(cacheKey) == null)
+            {
+                this.requestVerts(dc, tile, cacheKey, this.getDataGeneration(dc, tile));
+                available = false;
+            }
+        }
+
+        return available;
+    }
+
+    /**
+     * Requests a background build of a tile's vertices. A request for a tile whose build is already pending renews
+     * that build rather than starting another. Requests are ignored while the number of pending builds is at its
+     * maximum, and are made again in later frames.
+     *
+     * @param dc         the current draw context.
+     * @param tile       the tile whose vertices to build.
+     * @param cacheKey   the tile's memory cache key.
+     * @param generation the elevation model's current data generation for the tile's sector.
+     */
+    protected void requestVerts(DrawContext dc, RectTile tile, CacheKey cacheKey, long generation)
+    {
+        VertexBuild build = this.pendingVertexBuilds.get(cacheKey);
+        if (build != null)
+        {
+            build.lastRequestTime = System.currentTimeMillis();
+            return;
+        }
+
+        if (this.pendingVertexBuilds.size() >= MAX_PENDING_VERTEX_BUILDS)
+            return;
+
+        build = new VertexBuild(this, dc, tile, cacheKey, generation);
+        this.pendingVertexBuilds.put(cacheKey, build);
+        this.getVertexBuildService().execute(build);
+    }
+
+    /**
+     * Adds the vertices of completed background builds to the memory cache. The vertices are added on the rendering
+     * thread because their vertex buffer objects must be created there.
+     *
+     * @param dc the current draw context.
+     */
+    protected void installCompletedVerts(DrawContext dc)
+    {
+        MemoryCache cache = WorldWind.getMemoryCache(CACHE_ID);
+
+        VertexBuild build;
+        while ((build = this.completedVertexBuilds.poll()) != null)
+        {
+            RenderInfo ri = new RenderInfo(dc, build.tile.density, build.vertices, build.referenceCenter);
+            ri.generation = build.generation;
+            cache.add(build.cacheKey, ri, ri.getSizeInBytes());
+            this.pendingVertexBuilds.remove(build.cacheKey);
+        }
+    }
+
+    protected ExecutorService getVertexBuildService()
+    {
+        if (this.vertexBuildService == null)
+            this.vertexBuildService = this.createVertexBuildService();
+
+        return this.vertexBuildService;
+    }
+
+    protected ExecutorService createVertexBuildService()
+    {
+        // Leave a processor for the rendering thread.
+        int numThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads, 2, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                thread.setName("Terrain Vertex Builder");
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+
+        return executor;
+    }
+
+    /**
+     * Indicates the globe's elevation model data generation for a tile's sector.
+     *
+     * @param dc   the current draw context.
+     * @param tile the tile of interest.
+     *
+     * @return the data generation of the tile's sector, or 0 if the globe has no elevation model.
+     *
+     * @see ElevationModel#getDataGeneration(gov.nasa.worldwind.geom.Sector)
+     */
+    protected long getDataGeneration(DrawContext dc, RectTile tile)
+    {
+        ElevationModel elevationModel = dc.getGlobe().getElevationModel();
+
+        return elevationModel != null ? elevationModel.getDataGeneration(tile.getSector()) : 0;
+    }
+
     public boolean buildVerts(DrawContext dc, RectTile tile, boolean makeSkirts)
     {
         int density = tile.density;
@@ -670,11 +931,44 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
             verts.rewind();
         }
 
-        ArrayList<LatLon> latlons = this.computeLocations(tile);
-        double[] elevations = new double[latlons.size()];
-        dc.getGlobe().getElevations(tile.sector, latlons, tile.getResolution(), elevations);
+        // Read the generation before the elevations, so that data arriving during the build marks the result stale.
+        long generation = this.getDataGeneration(dc, tile);
+        Vec4 refCenter = this.computeVerts(dc.getGlobe(), dc.getVerticalExaggeration(), tile, makeSkirts, verts);
 
-        double verticalExaggeration = dc.getVerticalExaggeration();
+        if (tile.ri != null)
+        {
+            tile.ri.generation = generation;
+            tile.ri.update(dc);
+            return false;
+        }
+
+        tile.ri = new RenderInfo(dc, density, verts, refCenter);
+        tile.ri.generation = generation;
+        return true;
+    }
+
+    /**
+     * Computes a tile's vertices, relative to the point at the tile's centroid. This uses no state of the rendering
+     * thread and may be called on any thread.
+     *
+     * @param globe                the globe to compute vertices on.
+     * @param verticalExaggeration the vertical exaggeration to apply to elevations.
+     * @param tile                 the tile whose vertices to compute.
+     * @param makeSkirts           true to place the tile's outer rows and columns at the globe's minimum elevation.
+     * @param verts                the buffer to hold the vertices, three floats per vertex. It's rewound before and
+     *                             after the vertices are written.
+     *
+     * @return the point the vertices are relative to.
+     */
+    protected Vec4 computeVerts(Globe globe, double verticalExaggeration, RectTile tile, boolean makeSkirts,
+        FloatBuffer verts)
+    {
+        int density = tile.density;
+        int numVertices = (density + 3) * (density + 3);
+
+        double[] locations = this.computeLocations(tile);
+        double[] elevations = new double[numVertices];
+        globe.getElevations(tile.sector, locations, 0, numVertices, false, tile.getResolution(), elevations);
 
         // When making skirts, apply vertical exaggeration to the skirt depth only if the exaggeration is 0 or less. If
         // applied to positive exaggerations, the skirt base might rise above the terrain at positive elevations if the
@@ -691,14 +985,16 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
         LatLon centroid = tile.sector.getCentroid();
         Vec4 refCenter = globe.computePointFromPosition(centroid.getLatitude(), centroid.getLongitude(), 0d);
 
+        // Pack the vertex positions and convert them to Cartesian points in one pass, without creating a point per
+        // vertex.
+        double[] positions = new double[3 * numVertices];
+        int il = 0;
         int ie = 0;
-        int iv = 0;
-        Iterator<LatLon> latLonIter = latlons.iterator();
+        int ip = 0;
         for (int j = 0; j <= density + 2; j++)
         {
             for (int i = 0; i <= density + 2; i++)
             {
-                LatLon latlon = latLonIter.next();
                 double elevation = verticalExaggeration * elevations[ie++];
 
                 // Tile edges use min elevation to draw the skirts
@@ -706,64 +1002,56 @@ public class RectangularTessellator extends WWObjectImpl implements Tessellator
                     (j == 0 || j >= tile.density + 2 || i == 0 || i >= tile.density + 2))
                     elevation = exaggeratedMinElevation;
 
-                Vec4 p = globe.computePointFromPosition(latlon.getLatitude(), latlon.getLongitude(), elevation);
-                verts.put(iv++, (float) (p.x - refCenter.x));
-                verts.put(iv++, (float) (p.y - refCenter.y));
-                verts.put(iv++, (float) (p.z - refCenter.z));
+                positions[ip++] = locations[il++];
+                positions[ip++] = locations[il++];
+                positions[ip++] = elevation;
             }
         }
 
+        verts.rewind();
+        globe.computePointsFromPositions(DoubleBuffer.wrap(positions), numVertices, refCenter, verts);
         verts.rewind();
 
-        if (tile.ri != null)
-        {
-            tile.ri.update(dc);
-            return false;
-        }
-
-        tile.ri = new RenderInfo(dc, density, verts, refCenter);
-        return true;
+        return refCenter;
     }
 
-    protected ArrayList<LatLon> computeLocations(RectTile tile)
+    /**
+     * Computes the locations of a tile's vertices, packed as latitude and longitude in degrees. The first and last rows
+     * and columns repeat the tile's edges, and form the tile's skirts.
+     *
+     * @param tile the tile whose vertex locations to compute.
+     *
+     * @return the vertex locations, in row major order beginning with the row of minimum latitude.
+     */
+    protected double[] computeLocations(RectTile tile)
     {
         int density = tile.density;
         int numVertices = (density + 3) * (density + 3);
 
-        Angle latMax = tile.sector.getMaxLatitude();
-        Angle dLat = tile.sector.getDeltaLat().divide(density);
-        Angle lat = tile.sector.getMinLatitude();
+        double latMin = tile.sector.getMinLatitude().degrees;
+        double latMax = tile.sector.getMaxLatitude().degrees;
+        double dLat = tile.sector.getDeltaLatDegrees() / density;
 
-        Angle lonMin = tile.sector.getMinLongitude();
-        Angle lonMax = tile.sector.getMaxLongitude();
-        Angle dLon = tile.sector.getDeltaLon().divide(density);
+        double lonMin = tile.sector.getMinLongitude().degrees;
+        double lonMax = tile.sector.getMaxLongitude().degrees;
+        double dLon = tile.sector.getDeltaLonDegrees() / density;
 
-        ArrayList<LatLon> latlons = new ArrayList<LatLon>(numVertices);
+        double[] locations = new double[2 * numVertices];
+        int k = 0;
         for (int j = 0; j <= density + 2; j++)
         {
-            Angle lon = lonMin;
+            double lat = j <= 1 ? latMin : j > density ? latMax : latMin + (j - 1) * dLat;
+
             for (int i = 0; i <= density + 2; i++)
             {
-                latlons.add(new LatLon(lat, lon));
-
-                if (i > density)
-                    lon = lonMax;
-                else if (i != 0)
-                    lon = lon.add(dLon);
+                double lon = i <= 1 ? lonMin : i > density ? lonMax : lonMin + (i - 1) * dLon;
 
-                if (lon.degrees < -180)
-                    lon = Angle.NEG180;
-                else if (lon.degrees > 180)
-                    lon = Angle.POS180;
+                locations[k++] = lat;
+                locations[k++] = WWMath.clamp(lon, -180, 180);
             }
-
-            if (j > density)
-                lat = latMax;
-            else if (j != 0)
-                lat = lat.add(dLat);
         }
 
-        return latlons;
+        return locations;
     }
 
     protected void renderMultiTexture(DrawContext dc, RectTile tile, int numTextureUnits)
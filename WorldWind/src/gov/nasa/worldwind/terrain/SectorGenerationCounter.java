@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.terrain;
+
+import gov.nasa.worldwind.geom.Sector;
+import gov.nasa.worldwind.util.Logging;
+
+/**
+ * Counts changes to data covering regions of the globe. The globe is divided into a grid of cells of equal angular
+ * size. Each change is given a new, increasing generation number, which is recorded in every cell the change's sector
+ * intersects. The generation of a sector is the most recent generation recorded in any cell the sector intersects, so
+ * a sector's generation changes whenever data intersecting the sector changes. Changes are reported at the granularity
+ * of a cell, so a sector's generation may also change when data near the sector changes.
+ * <p/>
+ * This class is thread safe. Changes are typically reported by data retrieval threads, and generations are typically
+ * queried by rendering threads.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class SectorGenerationCounter
+{
+    /** The default size of a cell, in degrees. */
+    protected static final double DEFAULT_CELL_SIZE = 2;
+
+    protected final double cellSize;
+    protected final int numRows;
+    protected final int numCols;
+    protected final long[] cellGenerations;
+    protected long generation;
+    /** The generation of the most recent change to the entire globe. */
+    protected long globalGeneration;
+
+    /** Creates a counter with cells two degrees on a side. */
+    public SectorGenerationCounter()
+    {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Creates a counter with cells of a specified size.
+     *
+     * @param cellSize the size of a cell, in degrees.
+     *
+     * @throws IllegalArgumentException if the cell size is less than or equal to zero, or greater than 180.
+     */
+    public SectorGenerationCounter(double cellSize)
+    {
+        if (cellSize <= 0 || cellSize > 180)
+        {
+            String msg = Logging.getMessage("generic.ArgumentOutOfRange", "cellSize=" + cellSize);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        this.cellSize = cellSize;
+        this.numRows = (int) Math.ceil(180 / cellSize);
+        this.numCols = (int) Math.ceil(360 / cellSize);
+        this.cellGenerations = new long[this.numRows * this.numCols];
+    }
+
+    /**
+     * Records a change to the data covering a sector.
+     *
+     * @param sector the sector whose data changed.
+     *
+     * @throws IllegalArgumentException if the sector is null.
+     */
+    public synchronized void increment(Sector sector)
+    {
+        if (sector == null)
+        {
+            String msg = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        long g = ++this.generation;
+
+        int maxRow = this.rowFor(sector.getMaxLatitude().degrees);
+        int maxCol = this.colFor(sector.getMaxLongitude().degrees);
+        for (int row = this.rowFor(sector.getMinLatitude().degrees); row <= maxRow; row++)
+        {
+            for (int col = this.colFor(sector.getMinLongitude().degrees); col <= maxCol; col++)
+            {
+                this.cellGenerations[row * this.numCols + col] = g;
+            }
+        }
+    }
+
+    /** Records a change to the data covering the entire globe. */
+    public synchronized void incrementAll()
+    {
+        this.globalGeneration = ++this.generation;
+    }
+
+    /**
+     * Indicates the generation of a sector's data. The generation changes whenever data intersecting the sector
+     * changes.
+     *
+     * @param sector the sector of interest.
+     *
+     * @return the sector's generation, or 0 if no data intersecting the sector has changed.
+     *
+     * @throws IllegalArgumentException if the sector is null.
+     */
+    public synchronized long getGeneration(Sector sector)
+    {
+        if (sector == null)
+        {
+            String msg = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        long g = this.globalGeneration;
+
+        int maxRow = this.rowFor(sector.getMaxLatitude().degrees);
+        int maxCol = this.colFor(sector.getMaxLongitude().degrees);
+        for (int row = this.rowFor(sector.getMinLatitude().degrees); row <= maxRow; row++)
+        {
+            for (int col = this.colFor(sector.getMinLongitude().degrees); col <= maxCol; col++)
+            {
+                g = Math.max(g, this.cellGenerations[row * this.numCols + col]);
+            }
+        }
+
+        return g;
+    }
+
+    protected int rowFor(double latitude)
+    {
+        int row = (int) ((latitude + 90) / this.cellSize);
+
+        return row < 0 ? 0 : row >= this.numRows ? this.numRows - 1 : row;
+    }
+
+    protected int colFor(double longitude)
+    {
+        int col = (int) ((longitude + 180) / this.cellSize);
+
+        return col < 0 ? 0 : col >= this.numCols ? this.numCols - 1 : col;
+    }
+}
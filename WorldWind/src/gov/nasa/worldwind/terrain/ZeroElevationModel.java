@@ -58,6 +58,20 @@ public class ZeroElevationModel extends AbstractElevationModel
         return this.getElevations(sector, latlons, targetResolution, buffer);
     }
 
+    @Override
+    protected double doGetElevations(Sector sector, double[] locations, int offset, int count, boolean inRadians,
+        double targetResolution, double[] buffer, boolean mapMissingData)
+    {
+        this.validatePackedLocations(sector, locations, offset, count, buffer);
+
+        java.util.Arrays.fill(buffer, offset, offset + count, 0);
+
+        // Mark the model as used this frame.
+        this.setValue(AVKey.FRAME_TIMESTAMP, System.currentTimeMillis());
+
+        return 0;
+    }
+
     public int intersects(Sector sector)
     {
         return 0;
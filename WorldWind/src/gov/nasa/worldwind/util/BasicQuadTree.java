@@ -23,7 +23,7 @@ import java.util.*;
  * @author tag
  * @version $Id$
  */
-public class BasicQuadTree<T> extends BitSetQuadTreeFilter implements Iterable<T>
+public class BasicQuadTree<T> extends BitSetQuadTreeFilter implements SpatialIndex<T>
 {
     protected ArrayList<double[]> levelZeroCells;
     protected Map<String, List<T>> items; // the tree's list of items
@@ -0,0 +1,535 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.Configuration;
+import gov.nasa.worldwind.avlist.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.InterruptedIOException;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Composes an image or raster from a list of parts, such as the tiles of a layer or the sources of a raster server,
+ * reading the parts on several threads and drawing them into the canvas from several threads at once.
+ * <p/>
+ * The canvas is divided into horizontal bands of rows. Once a part has been read it is drawn into each band it covers,
+ * by the thread that read it, and threads drawing into different bands proceed in parallel. Within a band the parts are
+ * drawn one at a time in the order of the part list, so parts that overlap cover one another exactly as they do when
+ * drawn serially, and the composed canvas is the same. The number of parts read but not yet drawn into all their bands
+ * is bounded, which bounds both the number of concurrent reads and the memory held by read parts.
+ * <p/>
+ * Errors are handled as in the serial loops this replaces. A part that fails is reported as a warning and composition
+ * continues, unless the caller asks to abort on error, in which case the remaining parts are cancelled and the part's
+ * exception is thrown. Interruption always aborts. Progress is reported on the calling thread, once for each part
+ * composed without error.
+ * <p/>
+ * A compositor with one thread reads and draws every part on the calling thread, in order, without dividing the
+ * canvas.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class ConcurrentCompositor
+{
+    /**
+     * One part of a composition.
+     *
+     * @param <T> the type of a part's content.
+     */
+    public interface Part<T>
+    {
+        /**
+         * Reads the part's content. Called once per composition, on any thread.
+         *
+         * @return the part's content, or null if the part has nothing to draw.
+         *
+         * @throws Exception if the content can't be read.
+         */
+        T read() throws Exception;
+
+        /**
+         * Returns the first canvas row the part may draw into. The row need not be exact, but the part must not draw
+         * outside the rows it declares.
+         *
+         * @return the first canvas row covered by the part.
+         */
+        int getMinRow();
+
+        /**
+         * Returns the canvas row following the last row the part may draw into.
+         *
+         * @return one more than the last canvas row covered by the part.
+         */
+        int getMaxRow();
+
+        /**
+         * Draws the part's content into a band of canvas rows. Called once for each band the part covers, never
+         * concurrently for the same band, and possibly concurrently for different bands. A compositor with one thread
+         * calls this once, with a band spanning the whole canvas.
+         *
+         * @param content the content returned by {@link #read()}.
+         * @param minRow  the first row of the band.
+         * @param maxRow  the row following the last row of the band. The part must not draw outside the band, and
+         *                need not draw all of it.
+         *
+         * @throws Exception if the content can't be drawn.
+         */
+        void draw(T content, int minRow, int maxRow) throws Exception;
+    }
+
+    /**
+     * Receives notice of composition progress.
+     *
+     * @param <T> the type of a part's content.
+     */
+    public interface Listener<T>
+    {
+        /**
+         * Called on the composing thread when a part has been read and drawn into all its bands without error.
+         *
+         * @param part the composed part.
+         */
+        void partComposed(Part<T> part);
+    }
+
+    /** The fewest rows in a band, so that parts are not divided into pieces too small to be worth drawing apart. */
+    protected static final int MIN_BAND_HEIGHT = 64;
+    /** The number of bands per thread. More bands than threads keeps threads drawing different bands. */
+    protected static final int BANDS_PER_THREAD = 4;
+    /** Marks a part with nothing to draw in a band's queue of read parts. */
+    protected static final Object NO_CONTENT = new Object();
+
+    protected final int numThreads;
+    protected final int maxPartsInFlight;
+
+    /**
+     * Creates a compositor with a specified number of threads, which allows twice that many parts in flight.
+     *
+     * @param numThreads the number of threads that read and draw parts.
+     *
+     * @throws IllegalArgumentException if the number of threads is less than one.
+     */
+    public ConcurrentCompositor(int numThreads)
+    {
+        this(numThreads, 2 * numThreads);
+    }
+
+    /**
+     * Creates a compositor with a specified number of threads and a specified limit on the parts in flight.
+     *
+     * @param numThreads       the number of threads that read and draw parts.
+     * @param maxPartsInFlight the most parts being read, or read and waiting to be drawn, at any time.
+     *
+     * @throws IllegalArgumentException if either value is less than one.
+     */
+    public ConcurrentCompositor(int numThreads, int maxPartsInFlight)
+    {
+        if (numThreads < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "numThreads < 1");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (maxPartsInFlight < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "maxPartsInFlight < 1");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.numThreads = numThreads;
+        this.maxPartsInFlight = maxPartsInFlight;
+    }
+
+    /**
+     * Returns the number of composition threads specified by a parameter list. The value is taken from the parameter
+     * {@link AVKey#COMPOSITION_THREAD_POOL_SIZE} if present, otherwise from the configuration property of the same
+     * name, and defaults to 1. The value "Auto" specifies the number of available processors.
+     *
+     * @param params the parameter list. May be null.
+     *
+     * @return the number of composition threads.
+     */
+    public static int getThreadPoolSize(AVList params)
+    {
+        Object o = (params != null) ? params.getValue(AVKey.COMPOSITION_THREAD_POOL_SIZE) : null;
+        if (o == null)
+            o = Configuration.getStringValue(AVKey.COMPOSITION_THREAD_POOL_SIZE);
+
+        if (o instanceof Integer)
+            return Math.max((Integer) o, 1);
+
+        if (o instanceof String)
+        {
+            String s = ((String) o).trim();
+            if ("Auto".equalsIgnoreCase(s))
+                return Runtime.getRuntime().availableProcessors();
+
+            try
+            {
+                return Math.max(Integer.parseInt(s), 1);
+            }
+            catch (NumberFormatException e)
+            {
+                Logging.logger().finest(WWUtil.extractExceptionReason(e));
+            }
+        }
+
+        return 1;
+    }
+
+    /**
+     * Creates a graphics context that draws into a band of rows of an image. The context uses the image's coordinates,
+     * not the band's, and does not draw outside the band. Contexts of disjoint bands of the same image may be used by
+     * different threads at once.
+     *
+     * @param canvas the image.
+     * @param minRow the first row of the band.
+     * @param maxRow the row following the last row of the band.
+     *
+     * @return a graphics context for the band. The caller must dispose of it.
+     *
+     * @throws IllegalArgumentException if the image is null or the rows are not within the image.
+     */
+    public static Graphics2D createGraphics(BufferedImage canvas, int minRow, int maxRow)
+    {
+        if (canvas == null)
+        {
+            String message = Logging.getMessage("nullValue.ImageIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (minRow < 0 || maxRow > canvas.getHeight() || minRow >= maxRow)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", minRow + ", " + maxRow);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        // A sub-image shares the canvas' pixels but has its own raster, which confines drawing to the band.
+        BufferedImage band = canvas.getSubimage(0, minRow, canvas.getWidth(), maxRow - minRow);
+        Graphics2D g = band.createGraphics();
+        g.translate(0, -minRow);
+        return g;
+    }
+
+    /**
+     * Returns the number of threads that read and draw parts.
+     *
+     * @return the number of threads.
+     */
+    public int getNumThreads()
+    {
+        return this.numThreads;
+    }
+
+    /**
+     * Returns the most parts that may be in flight at once.
+     *
+     * @return the limit on parts in flight.
+     */
+    public int getMaxPartsInFlight()
+    {
+        return this.maxPartsInFlight;
+    }
+
+    /**
+     * Composes a list of parts into a canvas.
+     *
+     * @param parts        the parts, in drawing order. Null entries are ignored.
+     * @param canvasHeight the number of rows in the canvas.
+     * @param abortOnError true to stop at the first part that fails and throw its exception, false to log a warning for
+     *                     each part that fails and continue.
+     * @param listener     the listener to notify as parts are composed. May be null.
+     * @param <T>          the type of the parts' content.
+     *
+     * @throws IllegalArgumentException if the part list is null or the canvas height is less than one.
+     * @throws InterruptedException     if the calling thread is interrupted, or a part's read or draw is interrupted.
+     * @throws Exception                the exception of the first part that fails, if aborting on error.
+     */
+    public <T> void compose(List<? extends Part<T>> parts, int canvasHeight, boolean abortOnError,
+        Listener<T> listener) throws Exception
+    {
+        if (parts == null)
+        {
+            String message = Logging.getMessage("nullValue.ListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (canvasHeight < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "canvasHeight < 1");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        List<Part<T>> list = new ArrayList<Part<T>>(parts.size());
+        for (Part<T> part : parts)
+        {
+            if (part != null)
+                list.add(part);
+        }
+
+        if (this.numThreads == 1)
+            this.composeSerially(list, canvasHeight, abortOnError, listener);
+        else
+            this.composeConcurrently(list, canvasHeight, abortOnError, listener);
+    }
+
+    protected <T> void composeSerially(List<Part<T>> parts, int canvasHeight, boolean abortOnError,
+        Listener<T> listener) throws Exception
+    {
+        for (Part<T> part : parts)
+        {
+            try
+            {
+                // The canvas is not divided, so the part draws into all of it.
+                T content = part.read();
+                if (content != null && Math.max(part.getMinRow(), 0) < Math.min(part.getMaxRow(), canvasHeight))
+                    part.draw(content, 0, canvasHeight);
+            }
+            catch (Exception e)
+            {
+                this.handleFailure(part, e, abortOnError);
+                continue;
+            }
+
+            if (listener != null)
+                listener.partComposed(part);
+        }
+    }
+
+    protected <T> void composeConcurrently(List<Part<T>> parts, int canvasHeight, boolean abortOnError,
+        Listener<T> listener) throws Exception
+    {
+        Band[] bands = this.createBands(canvasHeight);
+        int bandHeight = bands[0].maxRow - bands[0].minRow;
+
+        // Assign each part to the bands it covers, in part order.
+        List<PartState<T>> states = new ArrayList<PartState<T>>(parts.size());
+        List<List<Integer>> bandParts = new ArrayList<List<Integer>>(bands.length);
+        for (Band band : bands)
+        {
+            bandParts.add(new ArrayList<Integer>());
+        }
+
+        for (int i = 0; i < parts.size(); i++)
+        {
+            Part<T> part = parts.get(i);
+            int minRow = Math.max(part.getMinRow(), 0);
+            int maxRow = Math.min(part.getMaxRow(), canvasHeight);
+
+            List<Band> partBands = new ArrayList<Band>();
+            if (minRow < maxRow)
+            {
+                int maxBand = Math.min((maxRow - 1) / bandHeight, bands.length - 1);
+                for (int b = Math.min(minRow / bandHeight, maxBand); b <= maxBand; b++)
+                {
+                    partBands.add(bands[b]);
+                    bandParts.get(b).add(i);
+                }
+            }
+
+            states.add(new PartState<T>(i, part, partBands));
+        }
+
+        for (int b = 0; b < bands.length; b++)
+        {
+            bands[b].setParts(bandParts.get(b));
+        }
+
+        BlockingQueue<PartState<T>> composed = new LinkedBlockingQueue<PartState<T>>();
+        ExecutorService executor = this.createExecutor();
+        try
+        {
+            int numSubmitted = 0;
+            for (int numComposed = 0; numComposed < states.size(); numComposed++)
+            {
+                // Parts are submitted in order, so every part a band waits for is already in flight.
+                while (numSubmitted < states.size() && numSubmitted - numComposed < this.maxPartsInFlight)
+                {
+                    executor.execute(this.createTask(states.get(numSubmitted++), states, composed));
+                }
+
+                PartState<T> state = composed.take();
+                if (state.error != null)
+                    this.handleFailure(state.part, state.error, abortOnError);
+                else if (listener != null)
+                    listener.partComposed(state.part);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    protected Band[] createBands(int canvasHeight)
+    {
+        int bandHeight = (int) Math.ceil((double) canvasHeight / (BANDS_PER_THREAD * this.numThreads));
+        bandHeight = Math.max(bandHeight, MIN_BAND_HEIGHT);
+
+        // The last band takes the rows left over, so that no band is shorter than the others.
+        int numBands = Math.max(canvasHeight / bandHeight, 1);
+        Band[] bands = new Band[numBands];
+        for (int b = 0; b < numBands; b++)
+        {
+            bands[b] = new Band(b * bandHeight, b < numBands - 1 ? (b + 1) * bandHeight : canvasHeight);
+        }
+
+        return bands;
+    }
+
+    protected ExecutorService createExecutor()
+    {
+        return WWUtil.newDaemonThreadPool(this.numThreads, "Compositor");
+    }
+
+    protected <T> Runnable createTask(final PartState<T> state, final List<PartState<T>> states,
+        final BlockingQueue<PartState<T>> composed)
+    {
+        return new Runnable()
+        {
+            public void run()
+            {
+                Object content = null;
+                try
+                {
+                    content = state.part.read();
+                }
+                catch (Throwable t)
+                {
+                    state.fail(t);
+                }
+
+                if (state.bands.isEmpty())
+                {
+                    composed.add(state);
+                    return;
+                }
+
+                if (content == null || state.error != null)
+                    content = NO_CONTENT;
+
+                for (Band band : state.bands)
+                {
+                    band.add(state.index, content, states, composed);
+                }
+            }
+        };
+    }
+
+    @SuppressWarnings( {"ThrowableResultOfMethodCallIgnored"})
+    protected void handleFailure(Part<?> part, Throwable t, boolean abortOnError) throws Exception
+    {
+        if (t instanceof Error)
+            throw (Error) t;
+
+        if (t instanceof InterruptedException || t instanceof InterruptedIOException || abortOnError)
+            throw (Exception) t;
+
+        String message = Logging.getMessage("generic.ExceptionWhileRequestingImage", part);
+        Logging.logger().log(java.util.logging.Level.WARNING, message, t);
+    }
+
+    /** The composition state of a part. */
+    protected static class PartState<T>
+    {
+        protected final int index;
+        protected final Part<T> part;
+        protected final List<Band> bands;
+        protected final AtomicInteger remainingBands;
+        protected volatile Throwable error;
+
+        public PartState(int index, Part<T> part, List<Band> bands)
+        {
+            this.index = index;
+            this.part = part;
+            this.bands = bands;
+            this.remainingBands = new AtomicInteger(bands.size());
+        }
+
+        public synchronized void fail(Throwable t)
+        {
+            if (this.error == null)
+                this.error = t;
+        }
+    }
+
+    /**
+     * A band of canvas rows. Parts are drawn into a band in order: a part read ahead of the parts before it waits in
+     * the band until they have been drawn.
+     */
+    protected static class Band
+    {
+        protected final int minRow;
+        protected final int maxRow;
+        protected int[] parts;
+        protected int next;
+        protected final Map<Integer, Object> pending = new HashMap<Integer, Object>();
+
+        public Band(int minRow, int maxRow)
+        {
+            this.minRow = minRow;
+            this.maxRow = maxRow;
+        }
+
+        public void setParts(List<Integer> parts)
+        {
+            this.parts = new int[parts.size()];
+            for (int i = 0; i < this.parts.length; i++)
+            {
+                this.parts[i] = parts.get(i);
+            }
+        }
+
+        /**
+         * Adds a read part to the band and draws every part that is now next in order.
+         *
+         * @param index    the part's index.
+         * @param content  the part's content, or {@link #NO_CONTENT}.
+         * @param states   the state of every part.
+         * @param composed the queue to which parts drawn into all their bands are added.
+         * @param <T>      the type of the parts' content.
+         */
+        @SuppressWarnings( {"unchecked"})
+        public synchronized <T> void add(int index, Object content, List<PartState<T>> states,
+            BlockingQueue<PartState<T>> composed)
+        {
+            this.pending.put(index, content);
+
+            while (this.next < this.parts.length && this.pending.containsKey(this.parts[this.next]))
+            {
+                PartState<T> state = states.get(this.parts[this.next]);
+                Object c = this.pending.remove(this.parts[this.next++]);
+
+                if (c != NO_CONTENT && state.error == null)
+                {
+                    try
+                    {
+                        state.part.draw((T) c, this.minRow, this.maxRow);
+                    }
+                    catch (Throwable t)
+                    {
+                        state.fail(t);
+                    }
+                }
+
+                if (state.remainingBands.decrementAndGet() == 0)
+                    composed.add(state);
+            }
+        }
+    }
+}
@@ -6,9 +6,11 @@
 
 package gov.nasa.worldwind.util;
 
+import gov.nasa.worldwind.exception.WWRuntimeException;
 import gov.nasa.worldwind.geom.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Generates contour lines at threshold values in a rectangular array of numeric values. ContourBuilder differs from the
@@ -29,6 +31,11 @@ import java.util.*;
  * the rectangular array's maximum value, though the result is an empty list of contour lines. The domain of contour
  * line coordinates is the XY Cartesian space defined by the rectangular array's width and height. X coordinates range
  * from 0 to width-1, and Y coordinates range from 0 to height-1.
+ * <p/>
+ * Contour lines may be computed at many threshold values at once by calling {@link #buildContourCoordinates(double[])}
+ * or {@link #buildContourLines(double[], gov.nasa.worldwind.geom.Sector, double)}. These methods visit each array value
+ * once for all the threshold values, contour bands of the array's rows concurrently, and hold the contouring state in
+ * primitive arrays, so they are much faster and need much less memory than computing each threshold value separately.
  *
  * @author dcollins
  * @version $Id$
@@ -538,4 +545,753 @@ public class ContourBuilder
     {
         return this.contourCellMap.get(new CellKey(x, y));
     }
+
+    //**************************************************************//
+    //********************  Multiple Threshold Values  *************//
+    //**************************************************************//
+
+    /** Direction indices of the multiple value contouring, matching the ordinals of {@link Direction}. */
+    protected static final int NORTH = 0;
+    protected static final int SOUTH = 1;
+    protected static final int EAST = 2;
+    protected static final int WEST = 3;
+
+    /**
+     * The next direction of a contour passing through a cell, indexed by <code>4 * mask + previousDirection</code>, or
+     * -1 if the contour can't enter the cell from the previous direction. This is the primitive form of {@link
+     * #dirNext}.
+     */
+    protected static final int[] NEXT_DIRECTION = new int[16 * 4];
+    /**
+     * The directions in which contours start from a cell, indexed by mask. This holds the directions of {@link
+     * #dirNext} in their enumeration order.
+     */
+    protected static final int[][] START_DIRECTIONS = new int[16][];
+
+    static
+    {
+        Arrays.fill(NEXT_DIRECTION, -1);
+        START_DIRECTIONS[0] = START_DIRECTIONS[15] = new int[0];
+
+        for (Map.Entry<Integer, LinkedHashMap<Direction, Direction>> entry : dirNext.entrySet())
+        {
+            int mask = entry.getKey();
+            int[] startDirections = new int[entry.getValue().size()];
+            int i = 0;
+
+            for (Map.Entry<Direction, Direction> dirEntry : entry.getValue().entrySet())
+            {
+                NEXT_DIRECTION[4 * mask + dirEntry.getKey().ordinal()] = dirEntry.getValue().ordinal();
+                startDirections[i++] = dirEntry.getKey().ordinal();
+            }
+
+            START_DIRECTIONS[mask] = startDirections;
+        }
+    }
+
+    /**
+     * Computes the contour lines at each of several threshold values, on as many threads as there are processors
+     * available. See {@link #buildContourCoordinates(double[], int)}.
+     *
+     * @param values the threshold values (i.e. isovalues) to compute contour lines for.
+     *
+     * @return a list containing, for each threshold value, a list of the contour lines for that value.
+     *
+     * @throws java.lang.IllegalArgumentException if the array of threshold values is null.
+     */
+    public List<List<double[]>> buildContourCoordinates(double[] values)
+    {
+        return this.buildContourCoordinates(values, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Computes the contour lines at each of several threshold values in a single pass over the rectangular array. The
+     * returned list has one element for each threshold value, in the order the values are specified. Each element is a
+     * list of the contour lines for that value, and holds the same polylines as returned by {@link
+     * #buildContourLines(double)} for the value, though the polylines may be in a different order and closed loops may
+     * begin at a different point. Each polyline is represented as a single array of packed coordinates, with the X
+     * coordinate of the polyline's first point at index 0, its Y coordinate at index 1, and so on.
+     * <p/>
+     * The rectangular array is divided into bands of rows, which are contoured concurrently, and the contour lines
+     * crossing from one band into another are joined once all the bands are contoured. The cells of the array are
+     * described by primitive arrays rather than objects, so the memory needed is proportional to the number of cells
+     * the contour lines cross.
+     *
+     * @param values     the threshold values (i.e. isovalues) to compute contour lines for.
+     * @param numThreads the number of threads to use.
+     *
+     * @return a list containing, for each threshold value, a list of the contour lines for that value.
+     *
+     * @throws java.lang.IllegalArgumentException if the array of threshold values is null, or if the number of threads
+     *                                            is less than 1.
+     */
+    public List<List<double[]>> buildContourCoordinates(double[] values, int numThreads)
+    {
+        if (values == null)
+        {
+            String msg = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (numThreads < 1)
+        {
+            String msg = Logging.getMessage("generic.ArgumentOutOfRange", numThreads);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        // Sort the threshold values so that the values crossing a cell can be found by binary search, and remove
+        // duplicate values. Values that are NaN sort to the end, and are excluded since no contour lines are
+        // associated with them.
+        double[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+        int numValues = 0;
+        for (double value : sortedValues)
+        {
+            if (!Double.isNaN(value) && (numValues == 0 || Double.compare(value, sortedValues[numValues - 1]) != 0))
+                sortedValues[numValues++] = value;
+        }
+        sortedValues = Arrays.copyOf(sortedValues, numValues);
+
+        // Divide the contouring cells into bands of rows, one for each thread.
+        int numRows = this.height - 1;
+        int numBands = Math.max(1, Math.min(numThreads, numRows / 8));
+        List<ContourBand> bands = new ArrayList<ContourBand>(numBands);
+        for (int i = 0; i < numBands; i++)
+        {
+            bands.add(new ContourBand(i * numRows / numBands, (i + 1) * numRows / numBands, sortedValues));
+        }
+
+        this.contourBands(bands, numThreads);
+
+        List<List<double[]>> result = new ArrayList<List<double[]>>(values.length);
+        for (double value : values)
+        {
+            int index = Arrays.binarySearch(sortedValues, value);
+            result.add(index >= 0 ? this.joinContourPieces(bands, index) : new ArrayList<double[]>(0));
+        }
+
+        return result;
+    }
+
+    /**
+     * Computes the geographic contour lines at each of several threshold values, on as many threads as there are
+     * processors available. The returned list has one element for each threshold value, in the order the values are
+     * specified. Each element holds the same contour lines as returned by {@link #buildContourLines(double,
+     * gov.nasa.worldwind.geom.Sector, double)} for the value, though the lines may be in a different order and closed
+     * loops may begin at a different position. See {@link #buildContourCoordinates(double[], int)}.
+     *
+     * @param values   the threshold values (i.e. isovalues) to compute contour lines for.
+     * @param sector   the sector to associate with the rectangular array. The array's upper left corner is mapped to
+     *                 the sector's Northwest corner, and the array's lower right corner is mapped to the sector's
+     *                 Southeast corner.
+     * @param altitude the altitude to assign to the geographic positions.
+     *
+     * @return a list containing, for each threshold value, a list of the geographic contour lines for that value.
+     *
+     * @throws java.lang.IllegalArgumentException if the array of threshold values is null, or if the sector is null.
+     */
+    public List<List<List<Position>>> buildContourLines(double[] values, Sector sector, double altitude)
+    {
+        if (values == null)
+        {
+            String msg = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (sector == null)
+        {
+            String msg = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        double maxLat = sector.getMaxLatitude().degrees;
+        double minLon = sector.getMinLongitude().degrees;
+        double deltaLat = sector.getDeltaLatDegrees();
+        double deltaLon = sector.getDeltaLonDegrees();
+
+        List<List<List<Position>>> result = new ArrayList<List<List<Position>>>(values.length);
+
+        for (List<double[]> contours : this.buildContourCoordinates(values))
+        {
+            List<List<Position>> positionLists = new ArrayList<List<Position>>(contours.size());
+
+            for (double[] coords : contours)
+            {
+                ArrayList<Position> positionList = new ArrayList<Position>(coords.length / 2);
+
+                for (int i = 0; i < coords.length; i += 2)
+                {
+                    double s = coords[i] / (this.width - 1); // normalized x coordinate in the range 0 to 1
+                    double t = coords[i + 1] / (this.height - 1); // normalized y coordinate in the range 0 to 1
+                    double lat = maxLat - t * deltaLat; // map y coordinate to latitude
+                    double lon = minLon + s * deltaLon; // map x coordinate to longitude
+                    positionList.add(Position.fromDegrees(lat, lon, altitude));
+                }
+
+                positionLists.add(positionList);
+            }
+
+            result.add(positionLists);
+        }
+
+        return result;
+    }
+
+    /**
+     * Contours bands of rows using a specified number of threads. If more than one thread is requested, this creates a
+     * pool of threads that is shut down when all the bands have been contoured.
+     *
+     * @param bands      the bands to contour.
+     * @param numThreads the number of threads to use.
+     *
+     * @throws WWRuntimeException if the calling thread is interrupted.
+     */
+    protected void contourBands(List<ContourBand> bands, int numThreads)
+    {
+        if (numThreads == 1 || bands.size() <= 1)
+        {
+            for (ContourBand band : bands)
+            {
+                band.contour();
+            }
+
+            return;
+        }
+
+        ExecutorService executor = WWUtil.newDaemonThreadPool(Math.min(numThreads, bands.size()), "ContourBuilder");
+
+        try
+        {
+            for (Future<ContourBand> future : executor.invokeAll(bands))
+            {
+                future.get();
+            }
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+
+            throw new WWRuntimeException(e.getCause());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            String msg = Logging.getMessage("generic.interrupted", "ContourBuilder", "buildContourCoordinates");
+            throw new WWRuntimeException(msg, e);
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Joins the pieces of contour lines computed by each band for one threshold value. A contour line crossing from one
+     * band into the next is split into pieces that end at the same point on the horizontal edge shared by the bands.
+     * The pieces are joined by matching the edges they end on. Pieces that close a loop produce a polyline whose first
+     * and last points are the same, as {@link #buildContourLines(double)} does.
+     *
+     * @param bands      the contoured bands.
+     * @param valueIndex the threshold value's index in the sorted threshold values.
+     *
+     * @return the joined contour lines.
+     */
+    protected List<double[]> joinContourPieces(List<ContourBand> bands, int valueIndex)
+    {
+        List<double[]> result = new ArrayList<double[]>();
+
+        // Gather the pieces that end on band boundaries. Pieces contained in one band are complete.
+        List<double[]> pieces = new ArrayList<double[]>();
+        int[] endKeys = new int[16];
+
+        for (ContourBand band : bands)
+        {
+            ContourPieces bandPieces = band.pieces[valueIndex];
+            if (bandPieces == null)
+                continue;
+
+            for (int i = 0; i < bandPieces.coords.size(); i++)
+            {
+                int startKey = bandPieces.keys[2 * i];
+                int endKey = bandPieces.keys[2 * i + 1];
+
+                if (startKey < 0 && endKey < 0)
+                {
+                    result.add(bandPieces.coords.get(i));
+                    continue;
+                }
+
+                if (2 * pieces.size() + 2 > endKeys.length)
+                    endKeys = Arrays.copyOf(endKeys, 2 * endKeys.length);
+
+                endKeys[2 * pieces.size()] = startKey;
+                endKeys[2 * pieces.size() + 1] = endKey;
+                pieces.add(bandPieces.coords.get(i));
+            }
+        }
+
+        if (pieces.isEmpty())
+            return result;
+
+        // Pair the piece ends meeting on each edge by sorting the ends by edge key. Each end is identified by twice its
+        // piece's index, plus one for the piece's last point.
+        int numEnds = 2 * pieces.size();
+        long[] sortedEnds = new long[numEnds];
+        int numSortedEnds = 0;
+        for (int end = 0; end < numEnds; end++)
+        {
+            if (endKeys[end] >= 0)
+                sortedEnds[numSortedEnds++] = ((long) endKeys[end] << 32) | end;
+        }
+        Arrays.sort(sortedEnds, 0, numSortedEnds);
+
+        int[] partner = new int[numEnds];
+        Arrays.fill(partner, -1);
+        for (int i = 0; i + 1 < numSortedEnds; i++)
+        {
+            if ((sortedEnds[i] >>> 32) == (sortedEnds[i + 1] >>> 32))
+            {
+                int end0 = (int) sortedEnds[i];
+                int end1 = (int) sortedEnds[i + 1];
+                partner[end0] = end1;
+                partner[end1] = end0;
+                i++;
+            }
+        }
+
+        // Join the open contour lines, starting from pieces with an end that has no partner, and then the loops.
+        boolean[] joined = new boolean[pieces.size()];
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (int end = 0; end < numEnds; end++)
+            {
+                if (joined[end / 2] || (pass == 0 && partner[end] >= 0))
+                    continue;
+
+                result.add(this.joinContourPieces(pieces, partner, joined, end));
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Joins a chain of contour line pieces, beginning with the piece whose specified end is the chain's first point.
+     *
+     * @param pieces   the pieces ending on band boundaries.
+     * @param partner  the end that meets each piece end, or -1 if the end meets no other.
+     * @param joined   indicates the pieces that are joined.
+     * @param firstEnd the end the chain begins with.
+     *
+     * @return the chain's coordinates.
+     */
+    protected double[] joinContourPieces(List<double[]> pieces, int[] partner, boolean[] joined, int firstEnd)
+    {
+        int length = 0;
+        double[] coords = new double[64];
+        int end = firstEnd;
+
+        while (end >= 0 && !joined[end / 2])
+        {
+            int piece = end / 2;
+            double[] pieceCoords = pieces.get(piece);
+            joined[piece] = true;
+
+            // Skip the first point of each piece after the first, which is the last point of the previous piece.
+            int skip = length > 0 ? 2 : 0;
+            if (length + pieceCoords.length - skip > coords.length)
+                coords = Arrays.copyOf(coords, Math.max(2 * coords.length, length + pieceCoords.length));
+
+            if ((end & 1) == 0) // the piece begins at this end
+            {
+                System.arraycopy(pieceCoords, skip, coords, length, pieceCoords.length - skip);
+                length += pieceCoords.length - skip;
+            }
+            else // the piece ends at this end; reverse it
+            {
+                for (int i = pieceCoords.length - 2 - skip; i >= 0; i -= 2)
+                {
+                    coords[length++] = pieceCoords[i];
+                    coords[length++] = pieceCoords[i + 1];
+                }
+            }
+
+            int otherEnd = end ^ 1;
+            end = partner[otherEnd];
+        }
+
+        return Arrays.copyOf(coords, length);
+    }
+
+    /**
+     * Computes the 4-bit mask of a contouring cell for a threshold value, as {@link #assembleContourCells(double)}
+     * does, including the disambiguation of saddle points.
+     *
+     * @param x     the cell's X coordinate.
+     * @param y     the cell's Y coordinate.
+     * @param value the threshold value.
+     *
+     * @return the cell's mask.
+     */
+    protected int cellMask(int x, int y, double value)
+    {
+        int i = x + y * this.width;
+        double nw = this.values[i];
+        double ne = this.values[i + 1];
+        double se = this.values[i + 1 + this.width];
+        double sw = this.values[i + this.width];
+
+        int mask = ((nw > value) ? 8 : 0) | ((ne > value) ? 4 : 0) | ((se > value) ? 2 : 0) | ((sw > value) ? 1 : 0);
+
+        // Disambiguate saddle points, flipping the mask when the center value isn't above the threshold.
+        if ((mask == 5 || mask == 10) && (nw + ne + se + sw) / 4 <= value)
+            mask = 15 - mask;
+
+        return mask;
+    }
+
+    /** The contour line pieces computed by a band for one threshold value. */
+    protected static class ContourPieces
+    {
+        /** The coordinates of each piece, packed as X and Y. */
+        protected final List<double[]> coords = new ArrayList<double[]>();
+        /**
+         * The keys of the edges each piece's first and last points lie on, if those edges are on the band's boundary,
+         * otherwise -1.
+         */
+        protected int[] keys = new int[8];
+
+        protected void add(double[] pieceCoords, int startKey, int endKey)
+        {
+            int i = 2 * this.coords.size();
+            if (i + 2 > this.keys.length)
+                this.keys = Arrays.copyOf(this.keys, 2 * this.keys.length);
+
+            this.keys[i] = startKey;
+            this.keys[i + 1] = endKey;
+            this.coords.add(pieceCoords);
+        }
+    }
+
+    /**
+     * Contours a band of rows of contouring cells at all the threshold values. The band first finds the cells crossed
+     * by each threshold value in one pass over its rows, then traverses each value's contour lines from those cells in
+     * the same way as {@link #traverseContourCells()}. Contour lines stop at the band's boundaries. The directions in
+     * which contours have passed through each cell are held as bits in a byte per cell.
+     */
+    protected class ContourBand implements Callable<ContourBand>
+    {
+        protected final int minRow;
+        protected final int maxRow;
+        protected final double[] values;
+        /** The pieces of contour lines for each threshold value, or null if the value crosses no cells. */
+        protected final ContourPieces[] pieces;
+
+        protected int[][] valueCells;
+        protected int[] valueCellCounts;
+        protected byte[] visited;
+        protected double[] contour0 = new double[64];
+        protected double[] contour1 = new double[64];
+        protected int contourLength;
+        protected double[] currentContour;
+
+        /**
+         * Creates a band of rows of contouring cells.
+         *
+         * @param minRow the band's first row.
+         * @param maxRow the row following the band's last row.
+         * @param values the threshold values, in ascending order.
+         */
+        public ContourBand(int minRow, int maxRow, double[] values)
+        {
+            this.minRow = minRow;
+            this.maxRow = maxRow;
+            this.values = values;
+            this.pieces = new ContourPieces[values.length];
+        }
+
+        public ContourBand call() throws Exception
+        {
+            this.contour();
+            return this;
+        }
+
+        protected void contour()
+        {
+            this.assembleValueCells();
+
+            this.visited = new byte[(width - 1) * (this.maxRow - this.minRow)];
+            for (int i = 0; i < this.values.length; i++)
+            {
+                if (this.valueCellCounts[i] > 0)
+                    this.traverseValueCells(i);
+
+                this.valueCells[i] = null; // release the value's cells once traversed
+            }
+
+            this.visited = null;
+        }
+
+        /** Finds the cells crossed by each threshold value, visiting each cell once. */
+        protected void assembleValueCells()
+        {
+            this.valueCells = new int[this.values.length][];
+            this.valueCellCounts = new int[this.values.length];
+
+            if (this.values.length == 0)
+                return;
+
+            for (int y = this.minRow; y < this.maxRow; y++)
+            {
+                for (int x = 0; x < width - 1; x++)
+                {
+                    int i = x + y * width;
+                    double nw = ContourBuilder.this.values[i];
+                    double ne = ContourBuilder.this.values[i + 1];
+                    double se = ContourBuilder.this.values[i + 1 + width];
+                    double sw = ContourBuilder.this.values[i + width];
+
+                    // A threshold value crosses the cell when at least one corner is above the value and at least
+                    // one is not. Corners that are NaN are never above the value.
+                    double maxAbove = maxIgnoringNaN(maxIgnoringNaN(nw, ne), maxIgnoringNaN(se, sw));
+                    double minCorner = Double.isNaN(nw) || Double.isNaN(ne) || Double.isNaN(se) || Double.isNaN(sw)
+                        ? Double.NEGATIVE_INFINITY : Math.min(Math.min(nw, ne), Math.min(se, sw));
+
+                    // The crossing values are those at least the cell's minimum and less than its maximum.
+                    int first = this.firstValueAtLeast(minCorner);
+                    int last = this.firstValueAtLeast(maxAbove);
+                    for (int v = first; v < last; v++)
+                    {
+                        this.addValueCell(v, x + (y - this.minRow) * (width - 1));
+                    }
+                }
+            }
+        }
+
+        protected double maxIgnoringNaN(double a, double b)
+        {
+            return (a > b || Double.isNaN(b)) ? a : b;
+        }
+
+        protected int firstValueAtLeast(double d)
+        {
+            int lo = 0;
+            int hi = this.values.length;
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                if (this.values[mid] < d)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+
+            return lo;
+        }
+
+        protected void addValueCell(int valueIndex, int cell)
+        {
+            int[] cells = this.valueCells[valueIndex];
+            int count = this.valueCellCounts[valueIndex];
+
+            if (cells == null)
+                cells = this.valueCells[valueIndex] = new int[16];
+            else if (count == cells.length)
+                cells = this.valueCells[valueIndex] = Arrays.copyOf(cells, 2 * count);
+
+            cells[count] = cell;
+            this.valueCellCounts[valueIndex] = count + 1;
+        }
+
+        protected void traverseValueCells(int valueIndex)
+        {
+            double value = this.values[valueIndex];
+            int[] cells = this.valueCells[valueIndex];
+            int count = this.valueCellCounts[valueIndex];
+            ContourPieces valuePieces = this.pieces[valueIndex] = new ContourPieces();
+
+            for (int c = 0; c < count; c++) // iterate over all possible contour starting points
+            {
+                int x = cells[c] % (width - 1);
+                int y = cells[c] / (width - 1) + this.minRow;
+                int numContours = 0;
+                int startKey = -1;
+                int contour0Length = 0;
+
+                for (int dir : START_DIRECTIONS[cellMask(x, y, value)]) // either 2 or 4 starting directions
+                {
+                    if ((this.visited[cells[c]] & (1 << dir)) != 0)
+                        continue;
+
+                    if (numContours == 0)
+                    {
+                        this.currentContour = this.contour0;
+                        this.contourLength = 0;
+                        startKey = this.traverseContour(x, y, dir, value);
+                        this.contour0 = this.currentContour;
+                        contour0Length = this.contourLength;
+                        numContours = 1;
+                        continue;
+                    }
+
+                    this.currentContour = this.contour1;
+                    this.contourLength = 0;
+                    int endKey = this.traverseContour(x, y, dir, value);
+                    this.contour1 = this.currentContour;
+                    numContours = 0;
+
+                    // Combine each pair of starting directions into a single polyline.
+                    if (contour0Length == 0 && this.contourLength == 0)
+                    {
+                        String msg = Logging.getMessage("generic.UnexpectedCondition",
+                            "both contours are of zero length");
+                        Logging.logger().severe(msg);
+                        continue;
+                    }
+
+                    double[] coords = new double[contour0Length + this.contourLength];
+                    for (int i = contour0Length - 2, j = 0; i >= 0; i -= 2, j += 2)
+                    {
+                        coords[j] = this.contour0[i];
+                        coords[j + 1] = this.contour0[i + 1];
+                    }
+                    System.arraycopy(this.contour1, 0, coords, contour0Length, this.contourLength);
+                    valuePieces.add(coords, startKey, endKey);
+                }
+
+                if (numContours != 0)
+                {
+                    String msg = Logging.getMessage("generic.UnexpectedCondition", "non-empty contours list");
+                    Logging.logger().severe(msg);
+                }
+            }
+
+            // Clear the visited directions of the value's cells for the next value.
+            for (int c = 0; c < count; c++)
+            {
+                this.visited[cells[c]] = 0;
+            }
+        }
+
+        /**
+         * Traverses a contour line from a cell in a specified direction, as {@link #traverseContour(CellInfo,
+         * Direction)} does, adding its intersections to the current contour.
+         *
+         * @param x     the X coordinate of the cell to start from.
+         * @param y     the Y coordinate of the cell to start from.
+         * @param dir   the direction to traverse.
+         * @param value the threshold value.
+         *
+         * @return the key of the horizontal edge on which the contour leaves the band, or -1 if the contour ends
+         *         within the band or at the edge of the rectangular array.
+         */
+        protected int traverseContour(int x, int y, int dir, double value)
+        {
+            int dirNext = dir;
+            int dirPrev = dir; // use Prev same as Next for first iteration (i.e., for seed cell)
+
+            while (true)
+            {
+                int cell = x + (y - this.minRow) * (width - 1);
+                if ((this.visited[cell] & (1 << dirNext)) != 0)
+                    return -1;
+
+                // Mark the contour cell as visited.
+                this.visited[cell] |= (1 << dirNext) | (1 << dirPrev);
+
+                this.addIntersection(x, y, dirNext, value);
+
+                // Advance to the next cell.
+                switch (dirNext)
+                {
+                    case NORTH:
+                        if (y == 0)
+                            return -1;
+                        if (y == this.minRow)
+                            return y * width + x;
+                        y--;
+                        break;
+                    case SOUTH:
+                        if (y + 1 == height - 1)
+                            return -1;
+                        if (y + 1 == this.maxRow)
+                            return (y + 1) * width + x;
+                        y++;
+                        break;
+                    case EAST:
+                        if (x + 1 == width - 1)
+                            return -1;
+                        x++;
+                        break;
+                    default:
+                        if (x == 0)
+                            return -1;
+                        x--;
+                        break;
+                }
+
+                // Advance to the next direction.
+                dirPrev = dirNext ^ 1; // the reverse of the direction
+                dirNext = NEXT_DIRECTION[4 * cellMask(x, y, value) + dirPrev];
+                if (dirNext < 0)
+                {
+                    String msg = Logging.getMessage("generic.UnexpectedDirection", dirPrev);
+                    Logging.logger().severe(msg);
+                    return -1;
+                }
+            }
+        }
+
+        protected void addIntersection(int x, int y, int dir, double value)
+        {
+            // Compute the intersection of the contour cell in the specified direction, as addIntersection(CellInfo,
+            // Direction) does.
+            int i = x + y * width;
+            double xIntersect = x;
+            double yIntersect = y;
+
+            switch (dir)
+            {
+                case NORTH:
+                {
+                    double nw = ContourBuilder.this.values[i];
+                    xIntersect += (value - nw) / (ContourBuilder.this.values[i + 1] - nw);
+                    break;
+                }
+                case SOUTH:
+                {
+                    double sw = ContourBuilder.this.values[i + width];
+                    xIntersect += (value - sw) / (ContourBuilder.this.values[i + 1 + width] - sw);
+                    yIntersect += 1;
+                    break;
+                }
+                case EAST:
+                {
+                    double ne = ContourBuilder.this.values[i + 1];
+                    xIntersect += 1;
+                    yIntersect += (value - ne) / (ContourBuilder.this.values[i + 1 + width] - ne);
+                    break;
+                }
+                default:
+                {
+                    double nw = ContourBuilder.this.values[i];
+                    yIntersect += (value - nw) / (ContourBuilder.this.values[i + width] - nw);
+                    break;
+                }
+            }
+
+            if (this.contourLength + 2 > this.currentContour.length)
+                this.currentContour = Arrays.copyOf(this.currentContour, 2 * this.currentContour.length);
+
+            this.currentContour[this.contourLength++] = xIntersect;
+            this.currentContour[this.contourLength++] = yIntersect;
+        }
+    }
 }
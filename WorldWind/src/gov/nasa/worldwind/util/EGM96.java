@@ -6,11 +6,10 @@
 
 package gov.nasa.worldwind.util;
 
-import gov.nasa.worldwind.avlist.*;
-import gov.nasa.worldwind.exception.WWRuntimeException;
 import gov.nasa.worldwind.geom.Angle;
 
 import java.io.*;
+import java.util.Arrays;
 
 /**
  * Computes EGM96 geoid offsets.
@@ -21,6 +20,9 @@ import java.io.*;
  * <p/>
  * Once constructed, the instance can be passed to {@link gov.nasa.worldwind.globes.EllipsoidalGlobe#applyEGMA96Offsets(String)}
  * to apply the offets to elevations produced by the globe.
+ * <p/>
+ * The offset grid is read once per process and shared by all instances constructed with the same file. See {@link
+ * EGM96Grid}.
  *
  * @author tag
  * @version $Id$
@@ -28,7 +30,7 @@ import java.io.*;
 public class EGM96
 {
     protected String offsetsFilePath;
-    protected BufferWrapper deltas;
+    protected EGM96Grid grid;
 
     /**
      * Construct an instance.
@@ -52,20 +54,9 @@ public class EGM96
 
     protected void loadOffsetFile() throws IOException
     {
-        InputStream is = WWIO.openFileOrResourceStream(this.offsetsFilePath, EGM96.class);
-        if (is == null)
-        {
-            String msg = Logging.getMessage("generic.CannotOpenFile", this.offsetsFilePath);
-            Logging.logger().severe(msg);
-            throw new WWRuntimeException(msg);
-        }
-
         try
         {
-            AVList bufferParams = new AVListImpl();
-            bufferParams.setValue(AVKey.DATA_TYPE, AVKey.INT16);
-            bufferParams.setValue(AVKey.BYTE_ORDER, AVKey.BIG_ENDIAN);
-            this.deltas = BufferWrapper.wrap(WWIO.readStreamToBuffer(is, true), bufferParams);
+            this.grid = EGM96Grid.getInstance(this.offsetsFilePath);
         }
         catch (IOException e)
         {
@@ -73,10 +64,16 @@ public class EGM96
             Logging.logger().log(java.util.logging.Level.SEVERE, msg, e);
             throw e;
         }
-        finally
-        {
-            WWIO.closeStream(is, this.offsetsFilePath);
-        }
+    }
+
+    /**
+     * Returns the offset grid shared by all instances constructed with this instance's offsets file.
+     *
+     * @return the offset grid.
+     */
+    public EGM96Grid getGrid()
+    {
+        return this.grid;
     }
 
     // Description of the EGMA96 offsets file:
@@ -105,59 +102,76 @@ public class EGM96
             throw new IllegalArgumentException(msg);
         }
 
+        return this.getOffsetDegrees(latitude.degrees, longitude.degrees);
+    }
+
+    /**
+     * Returns the geoid offset at a location specified in degrees. This is equivalent to {@link #getOffset(Angle,
+     * Angle)} but does not require the caller to create <code>Angle</code> instances.
+     *
+     * @param latitude  the location's latitude, in degrees.
+     * @param longitude the location's longitude, in degrees.
+     *
+     * @return the geoid offset at the location, in meters.
+     */
+    public double getOffsetDegrees(double latitude, double longitude)
+    {
         // Return 0 for all offsets if the file failed to load. A log message of the failure will have been generated
         // by the load method.
-        if (this.deltas == null)
+        if (this.grid == null)
             return 0;
 
-        double lat = latitude.degrees;
-        double lon = longitude.degrees >= 0 ? longitude.degrees : longitude.degrees + 360;
-
-        int topRow = (int) ((90 - lat) / INTERVAL.degrees);
-        if (lat <= -90)
-            topRow = NUM_ROWS - 2;
-        int bottomRow = topRow + 1;
+        return this.grid.getOffset(latitude, longitude);
+    }
 
-        // Note that the number of columns does not repeat the column at 0 longitude, so we must force the right
-        // column to 0 for any longitude that's less than one interval from 360, and force the left column to the
-        // last column of the grid.
-        int leftCol = (int) (lon / INTERVAL.degrees);
-        int rightCol = leftCol + 1;
-        if (lon >= 360 - INTERVAL.degrees)
+    /**
+     * Computes the geoid offsets of a list of locations specified in degrees. See {@link EGM96Grid#getOffsets(double[],
+     * double[], double[])}.
+     *
+     * @param latitudes  the locations' latitudes, in degrees.
+     * @param longitudes the locations' longitudes, in degrees.
+     * @param out        the array in which to return the offsets, in meters.
+     *
+     * @throws IllegalArgumentException if any array is null, or if either the longitudes or the output array is
+     *                                  shorter than the latitudes.
+     */
+    public void getOffsets(double[] latitudes, double[] longitudes, double[] out)
+    {
+        // The offsets are all 0 if the file failed to load, as for getOffsetDegrees.
+        if (this.grid == null)
         {
-            leftCol = NUM_COLS - 1;
-            rightCol = 0;
+            EGM96Grid.checkArrays(latitudes, longitudes, out);
+            EGM96Grid.checkLength(longitudes, latitudes.length);
+            EGM96Grid.checkLength(out, latitudes.length);
+            Arrays.fill(out, 0, latitudes.length, 0);
+            return;
         }
 
-        double latTop = 90 - topRow * INTERVAL.degrees;
-        double lonLeft = leftCol * INTERVAL.degrees;
-
-        double ul = this.gePostOffset(topRow, leftCol);
-        double ll = this.gePostOffset(bottomRow, leftCol);
-        double lr = this.gePostOffset(bottomRow, rightCol);
-        double ur = this.gePostOffset(topRow, rightCol);
-
-        double u = (lon - lonLeft) / INTERVAL.degrees;
-        double v = (latTop - lat) / INTERVAL.degrees;
-
-        double pll = (1.0 - u) * (1.0 - v);
-        double plr = u * (1.0 - v);
-        double pur = u * v;
-        double pul = (1.0 - u) * v;
-
-        double offset = pll * ll + plr * lr + pur * ur + pul * ul;
-
-        return offset / 100d; // convert centimeters to meters
+        this.grid.getOffsets(latitudes, longitudes, out);
     }
 
-    protected double gePostOffset(int row, int col)
+    /**
+     * Computes the geoid offsets of a regular grid of locations specified in degrees. See {@link
+     * EGM96Grid#getGridOffsets(double[], double[], double[])}.
+     *
+     * @param latitudes  the latitude of each row of locations, in degrees.
+     * @param longitudes the longitude of each column of locations, in degrees.
+     * @param out        the array in which to return the offsets, in meters, in row major order.
+     *
+     * @throws IllegalArgumentException if any array is null, or if the output array is too short.
+     */
+    public void getGridOffsets(double[] latitudes, double[] longitudes, double[] out)
     {
-        int k = row * NUM_COLS + col;
-
-        if (k >= this.deltas.length())
-            System.out.println(k);
+        // The offsets are all 0 if the file failed to load, as for getOffsetDegrees.
+        if (this.grid == null)
+        {
+            EGM96Grid.checkArrays(latitudes, longitudes, out);
+            EGM96Grid.checkLength(out, latitudes.length * longitudes.length);
+            Arrays.fill(out, 0, latitudes.length * longitudes.length, 0);
+            return;
+        }
 
-        return this.deltas.getInt(k);
+        this.grid.getGridOffsets(latitudes, longitudes, out);
     }
 //
 //    public static void main(String[] args)
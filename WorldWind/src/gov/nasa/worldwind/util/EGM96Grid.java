@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.exception.WWRuntimeException;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.*;
+import java.util.*;
+
+/**
+ * The EGM96 geoid offset grid, shared by every user of the same offsets file. The grid is read once per process, by
+ * {@link #getInstance(String)}, and is memory-mapped when the offsets file is on the local file system, so its 2 MB of
+ * offsets occupy no heap. See {@link EGM96} for a description of the offsets file.
+ * <p/>
+ * Offsets are bilinearly interpolated from the four grid posts surrounding a location, in the same way as {@link
+ * EGM96#getOffsetDegrees(double, double)}. {@link #getOffsets(double[], double[], double[])} computes the offsets of
+ * many locations at once, and {@link #getGridOffsets(double[], double[], double[])} computes the offsets of a regular
+ * grid of locations, finding the grid columns and interpolation weights of each longitude only once.
+ * <p/>
+ * A grid is immutable and may be used by any number of threads at once.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class EGM96Grid
+{
+    /** The spacing of the grid posts, in degrees. */
+    protected static final double INTERVAL = 15d / 60d;
+    protected static final int NUM_ROWS = 721;
+    protected static final int NUM_COLS = 1440;
+
+    protected static final Map<String, EGM96Grid> instances = new HashMap<String, EGM96Grid>();
+
+    /** The contents of the offsets file. */
+    protected final ByteBuffer buffer;
+    /** The grid posts, in centimeters, by row from north to south. */
+    protected final ShortBuffer offsets;
+
+    /**
+     * Returns the grid of a specified offsets file. The file is read the first time its grid is requested, and the
+     * same grid is returned for all later requests.
+     *
+     * @param offsetsFilePath the path of the offsets file, either a local file or a resource relative to the
+     *                        classpath.
+     *
+     * @return the file's grid.
+     *
+     * @throws IllegalArgumentException if the path is null.
+     * @throws IOException              if the file can't be read.
+     * @throws WWRuntimeException       if the file can't be found or is too short.
+     */
+    public static synchronized EGM96Grid getInstance(String offsetsFilePath) throws IOException
+    {
+        if (offsetsFilePath == null)
+        {
+            String msg = Logging.getMessage("nullValue.PathIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        File file = new File(offsetsFilePath);
+        String key = file.exists() ? file.getCanonicalPath() : offsetsFilePath;
+
+        EGM96Grid grid = instances.get(key);
+        if (grid == null)
+        {
+            ByteBuffer buffer = loadOffsets(offsetsFilePath, file);
+            if (buffer.remaining() < 2 * NUM_ROWS * NUM_COLS)
+            {
+                String msg = Logging.getMessage("generic.InvalidFileLength", buffer.remaining());
+                Logging.logger().severe(msg);
+                throw new WWRuntimeException(msg);
+            }
+
+            grid = new EGM96Grid(buffer);
+            instances.put(key, grid);
+        }
+
+        return grid;
+    }
+
+    protected static ByteBuffer loadOffsets(String offsetsFilePath, File file) throws IOException
+    {
+        if (file.exists())
+            return WWIO.mapFile(file);
+
+        URL url = EGM96Grid.class.getResource("/" + offsetsFilePath);
+        if (url == null)
+        {
+            String msg = Logging.getMessage("generic.CannotOpenFile", offsetsFilePath);
+            Logging.logger().severe(msg);
+            throw new WWRuntimeException(msg);
+        }
+
+        // Map resources on the local file system. Resources within jar files must be read.
+        File resourceFile = WWIO.convertURLToFile(url);
+        if (resourceFile != null && resourceFile.exists())
+            return WWIO.mapFile(resourceFile);
+
+        InputStream is = url.openStream();
+        try
+        {
+            return WWIO.readStreamToBuffer(is, true);
+        }
+        finally
+        {
+            WWIO.closeStream(is, offsetsFilePath);
+        }
+    }
+
+    /**
+     * Creates a grid from the contents of an offsets file.
+     *
+     * @param buffer the offsets file's contents. The buffer is used by the grid, not copied, and must not be modified
+     *               once the grid is created.
+     *
+     * @throws IllegalArgumentException if the buffer is null or holds fewer than 721 rows of 1440 offsets.
+     */
+    public EGM96Grid(ByteBuffer buffer)
+    {
+        if (buffer == null)
+        {
+            String msg = Logging.getMessage("nullValue.BufferIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        if (buffer.remaining() < 2 * NUM_ROWS * NUM_COLS)
+        {
+            String msg = Logging.getMessage("generic.BufferSize", buffer.remaining());
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+
+        this.buffer = buffer;
+        this.offsets = buffer.duplicate().order(ByteOrder.BIG_ENDIAN).asShortBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the offsets file's contents.
+     *
+     * @return a new read-only buffer sharing the grid's storage, positioned at the start of the grid.
+     */
+    public ByteBuffer getBuffer()
+    {
+        return this.buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns the geoid offset at a location.
+     *
+     * @param latitude  the location's latitude, in degrees. Latitudes outside the range [-90, 90] are clamped to it.
+     * @param longitude the location's longitude, in degrees.
+     *
+     * @return the geoid offset at the location, in meters.
+     */
+    public double getOffset(double latitude, double longitude)
+    {
+        double lat = latitude < -90 ? -90 : latitude > 90 ? 90 : latitude;
+        double lon = normalizeLongitude(longitude);
+
+        int topRow = topRow(lat);
+        int leftCol = leftColumn(lon);
+        int rightCol = leftCol < NUM_COLS - 1 ? leftCol + 1 : 0;
+
+        double u = (lon - leftCol * INTERVAL) / INTERVAL;
+        double v = ((90 - topRow * INTERVAL) - lat) / INTERVAL;
+
+        return this.interpolate(topRow * NUM_COLS, leftCol, rightCol, u, v);
+    }
+
+    /**
+     * Computes the geoid offsets of a list of locations.
+     *
+     * @param latitudes  the locations' latitudes, in degrees.
+     * @param longitudes the locations' longitudes, in degrees. Must hold at least as many values as the latitudes.
+     * @param out        the array in which to return the offsets, in meters, in the order of the locations. Must hold
+     *                   at least as many values as the latitudes.
+     *
+     * @throws IllegalArgumentException if any array is null, or if either the longitudes or the output array is
+     *                                  shorter than the latitudes.
+     */
+    public void getOffsets(double[] latitudes, double[] longitudes, double[] out)
+    {
+        checkArrays(latitudes, longitudes, out);
+        checkLength(longitudes, latitudes.length);
+        checkLength(out, latitudes.length);
+
+        for (int i = 0; i < latitudes.length; i++)
+        {
+            out[i] = this.getOffset(latitudes[i], longitudes[i]);
+        }
+    }
+
+    /**
+     * Computes the geoid offsets of a regular grid of locations, given by the latitude of each row and the longitude of
+     * each column. The grid columns and interpolation weights of each longitude, and of each latitude, are computed
+     * once, so the cost per location is that of the interpolation alone.
+     *
+     * @param latitudes  the latitude of each row of locations, in degrees.
+     * @param longitudes the longitude of each column of locations, in degrees.
+     * @param out        the array in which to return the offsets, in meters, in row major order. Must hold at least
+     *                   <code>latitudes.length x longitudes.length</code> values.
+     *
+     * @throws IllegalArgumentException if any array is null, or if the output array is too short.
+     */
+    public void getGridOffsets(double[] latitudes, double[] longitudes, double[] out)
+    {
+        checkArrays(latitudes, longitudes, out);
+        checkLength(out, latitudes.length * longitudes.length);
+
+        int numCols = longitudes.length;
+        int[] leftCols = new int[numCols];
+        int[] rightCols = new int[numCols];
+        double[] us = new double[numCols];
+        for (int col = 0; col < numCols; col++)
+        {
+            double lon = normalizeLongitude(longitudes[col]);
+            leftCols[col] = leftColumn(lon);
+            rightCols[col] = leftCols[col] < NUM_COLS - 1 ? leftCols[col] + 1 : 0;
+            us[col] = (lon - leftCols[col] * INTERVAL) / INTERVAL;
+        }
+
+        for (int row = 0, k = 0; row < latitudes.length; row++)
+        {
+            double lat = latitudes[row] < -90 ? -90 : latitudes[row] > 90 ? 90 : latitudes[row];
+            int topRow = topRow(lat);
+            int top = topRow * NUM_COLS;
+            double v = ((90 - topRow * INTERVAL) - lat) / INTERVAL;
+
+            for (int col = 0; col < numCols; col++)
+            {
+                out[k++] = this.interpolate(top, leftCols[col], rightCols[col], us[col], v);
+            }
+        }
+    }
+
+    protected double interpolate(int top, int leftCol, int rightCol, double u, double v)
+    {
+        int bottom = top + NUM_COLS;
+
+        double ul = this.offsets.get(top + leftCol);
+        double ll = this.offsets.get(bottom + leftCol);
+        double lr = this.offsets.get(bottom + rightCol);
+        double ur = this.offsets.get(top + rightCol);
+
+        // The weight v increases from the top row to the bottom row.
+        double pll = (1.0 - u) * v;
+        double plr = u * v;
+        double pur = u * (1.0 - v);
+        double pul = (1.0 - u) * (1.0 - v);
+
+        double offset = pll * ll + plr * lr + pur * ur + pul * ul;
+
+        return offset / 100d; // convert centimeters to meters
+    }
+
+    protected static double normalizeLongitude(double longitude)
+    {
+        double lon = longitude >= 0 ? longitude : longitude + 360;
+        if (lon < 0 || lon >= 360)
+        {
+            lon %= 360;
+            if (lon < 0)
+                lon += 360;
+        }
+
+        return lon;
+    }
+
+    protected static int topRow(double lat)
+    {
+        // The last row is at 90 south, so the south pole is interpolated from the row above it.
+        return lat <= -90 ? NUM_ROWS - 2 : (int) ((90 - lat) / INTERVAL);
+    }
+
+    protected static int leftColumn(double lon)
+    {
+        // The grid does not repeat the column at 0 longitude, so longitudes within one interval of 360 lie between the
+        // last column and the first.
+        return lon >= 360 - INTERVAL ? NUM_COLS - 1 : (int) (lon / INTERVAL);
+    }
+
+    protected static void checkArrays(double[] latitudes, double[] longitudes, double[] out)
+    {
+        if (latitudes == null || longitudes == null || out == null)
+        {
+            String msg = Logging.getMessage("nullValue.ArrayIsNull");
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+    }
+
+    protected static void checkLength(double[] array, int minLength)
+    {
+        if (array.length < minLength)
+        {
+            String msg = Logging.getMessage("generic.ArrayInvalidLength", array.length);
+            Logging.logger().severe(msg);
+            throw new IllegalArgumentException(msg);
+        }
+    }
+}
@@ -560,16 +560,57 @@ public class ImageUtil
         if (!(canvasSector.intersects(imageSector)))
             return;
 
+        Graphics2D g = canvas.createGraphics();
+        g.transform(computeMergeTransform(canvasSector, imageSector, aspectRatio, image.getWidth(), image.getHeight(),
+            canvas.getWidth(), canvas.getHeight()));
+        g.drawImage(image, 0, 0, null);
+    }
+
+    /**
+     * Computes the transform {@link #mergeImage(gov.nasa.worldwind.geom.Sector, gov.nasa.worldwind.geom.Sector, double,
+     * java.awt.image.BufferedImage, java.awt.image.BufferedImage)} applies to an image's pixel coordinates to place the
+     * image in a canvas. Callers that draw into a canvas by some other means, such as into one region of the canvas at
+     * a time, use this to place images exactly as <code>mergeImage</code> would.
+     *
+     * @param canvasSector the sector defining the canvas' location and range.
+     * @param imageSector  the sector defining the image's location and range.
+     * @param aspectRatio  the aspect ratio, width/height, of the assembled image. See <code>mergeImage</code>.
+     * @param imageWidth   the image's width, in pixels.
+     * @param imageHeight  the image's height, in pixels.
+     * @param canvasWidth  the canvas' width, in pixels.
+     * @param canvasHeight the canvas' height, in pixels.
+     *
+     * @return the transform from image pixel coordinates to canvas pixel coordinates.
+     *
+     * @throws IllegalArgumentException if either sector is null or the aspect ratio is less than or equal to zero.
+     */
+    public static java.awt.geom.AffineTransform computeMergeTransform(Sector canvasSector, Sector imageSector,
+        double aspectRatio, int imageWidth, int imageHeight, int canvasWidth, int canvasHeight)
+    {
+        if (canvasSector == null || imageSector == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (aspectRatio <= 0)
+        {
+            String message = Logging.getMessage("Util.AspectRatioInvalid", aspectRatio);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
         // Create an image with the desired aspect ratio within an enclosing canvas of possibly different aspect ratio.
-        int subWidth = aspectRatio >= 1 ? canvas.getWidth() : (int) Math.ceil((canvas.getWidth() * aspectRatio));
-        int subHeight = aspectRatio >= 1 ? (int) Math.ceil((canvas.getHeight() / aspectRatio)) : canvas.getHeight();
+        int subWidth = aspectRatio >= 1 ? canvasWidth : (int) Math.ceil((canvasWidth * aspectRatio));
+        int subHeight = aspectRatio >= 1 ? (int) Math.ceil((canvasHeight / aspectRatio)) : canvasHeight;
 
         // yShift shifts image down to change origin from upper-left to lower-left
-        double yShift = aspectRatio >= 1d ? (1d - 1d / aspectRatio) * canvas.getHeight() : 0d;
+        double yShift = aspectRatio >= 1d ? (1d - 1d / aspectRatio) * canvasHeight : 0d;
 
-        double sh = ((double) subHeight / (double) image.getHeight())
+        double sh = ((double) subHeight / (double) imageHeight)
             * (imageSector.getDeltaLat().divide(canvasSector.getDeltaLat()));
-        double sw = ((double) subWidth / (double) image.getWidth())
+        double sw = ((double) subWidth / (double) imageWidth)
             * (imageSector.getDeltaLon().divide(canvasSector.getDeltaLon()));
 
         double dh = subHeight *
@@ -579,10 +620,10 @@ public class ImageUtil
             (imageSector.getMinLongitude().subtract(canvasSector.getMinLongitude()).degrees
                 / canvasSector.getDeltaLon().degrees);
 
-        Graphics2D g = canvas.createGraphics();
-        g.translate(dw, dh + yShift);
-        g.scale(sw, sh);
-        g.drawImage(image, 0, 0, null);
+        java.awt.geom.AffineTransform transform = new java.awt.geom.AffineTransform();
+        transform.translate(dw, dh + yShift);
+        transform.scale(sw, sh);
+        return transform;
     }
 
     public static Sector positionImage(BufferedImage sourceImage, Point[] imagePoints, LatLon[] geoPoints,
@@ -0,0 +1,641 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.terrain.*;
+
+import java.util.*;
+
+/**
+ * A {@link SpatialIndex} implemented as a packed R-tree held in primitive arrays. It offers the query methods of {@link
+ * BasicQuadTree}, so users of that class can switch to this one, but it is intended for large collections that are
+ * loaded once and queried many times, such as the records of a shapefile.
+ * <p/>
+ * Items and their bounding regions are held in parallel arrays. The tree is built over the items by Sort-Tile-Recursive
+ * (STR) bulk loading: items are sorted by the longitude of their centers, divided into vertical slices, and each slice
+ * sorted by latitude and divided into leaf nodes of up to the node capacity. Each higher level groups consecutive nodes
+ * of the level below it, and a node's bounds are the union of the bounds it groups. Because leaves and nodes are stored
+ * in order, the tree needs no child pointers; it consists only of one array of bounds per level.
+ * <p/>
+ * Items added after the tree is built are held unindexed, and are tested individually by queries, until more than a
+ * small number accumulate, at which time the next query rebuilds the tree. Removed items are dropped when the tree is
+ * next rebuilt. {@link #pack()} rebuilds the tree immediately. Adding items in bulk and then querying therefore builds
+ * the tree once.
+ * <p/>
+ * Each item is held once, and queries return the items whose bounds intersect the region or contain the location
+ * queried. Item bounds are compared to query regions in degrees, without regard to the anti-meridian.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class PackedRTree<T> implements SpatialIndex<T>
+{
+    /** The default maximum number of items per leaf node and of nodes per interior node. */
+    protected static final int DEFAULT_NODE_CAPACITY = 16;
+    /** The number of unindexed items above which a query rebuilds the tree. */
+    protected static final int MAX_UNINDEXED_ITEMS = 64;
+
+    protected final int nodeCapacity;
+    /** The items, the first <code>numIndexed</code> in tree order. Removed items are null. */
+    protected Object[] items = new Object[16];
+    /** The bounds of each item, in degrees, as minimum latitude, maximum latitude, minimum and maximum longitude. */
+    protected double[] itemBounds = new double[64];
+    protected int numItems; // the number of entries in the item arrays, including removed items
+    protected int numIndexed; // the number of items in the tree
+    protected int numRemoved;
+    /** The bounds of each node, by level. The first level holds the leaves, and the last level the root. */
+    protected double[][] levelBounds = new double[0][];
+    protected HashMap<String, T> nameMap = new HashMap<String, T>(); // maps names to items
+
+    /** Constructs an empty tree with the default node capacity. */
+    public PackedRTree()
+    {
+        this(DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty tree with a specified node capacity.
+     *
+     * @param nodeCapacity the maximum number of items per leaf node and of nodes per interior node.
+     *
+     * @throws IllegalArgumentException if the node capacity is less than 2.
+     */
+    public PackedRTree(int nodeCapacity)
+    {
+        if (nodeCapacity < 2)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", nodeCapacity);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.nodeCapacity = nodeCapacity;
+    }
+
+    /**
+     * Indicates the number of items in the tree.
+     *
+     * @return the number of items.
+     */
+    synchronized public int getNumItems()
+    {
+        return this.numItems - this.numRemoved;
+    }
+
+    synchronized public boolean hasItems()
+    {
+        return this.numItems > this.numRemoved;
+    }
+
+    synchronized public boolean contains(T item)
+    {
+        return item != null && this.indexOf(item, 0) >= 0;
+    }
+
+    /**
+     * Add a named item to the tree. Any name duplicates replace the current name association; the name then refers to
+     * the item added.
+     *
+     * @param item       the item to add.
+     * @param itemCoords an array specifying the region or location of the item. See {@link #add(Object, double[])}.
+     * @param itemName   the item name. If null, the item is added without a name.
+     *
+     * @throws IllegalArgumentException if either <code>item</code> or <code>itemCoords</code> is null.
+     */
+    synchronized public void add(T item, double[] itemCoords, String itemName)
+    {
+        this.addItem(item, itemCoords);
+
+        if (itemName != null)
+            this.nameMap.put(itemName, item);
+    }
+
+    synchronized public void add(T item, double[] itemCoords)
+    {
+        this.addItem(item, itemCoords);
+    }
+
+    protected void addItem(T item, double[] itemCoords)
+    {
+        if (item == null)
+        {
+            String message = Logging.getMessage("nullValue.ItemIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (itemCoords == null)
+        {
+            String message = Logging.getMessage("nullValue.CoordinatesAreNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (itemCoords.length != 2 && itemCoords.length != 4)
+        {
+            String message = Logging.getMessage("generic.ArrayInvalidLength", itemCoords.length);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (this.numItems == this.items.length)
+        {
+            int capacity = 2 * this.items.length;
+            this.items = Arrays.copyOf(this.items, capacity);
+            this.itemBounds = Arrays.copyOf(this.itemBounds, 4 * capacity);
+        }
+
+        int i = this.numItems++;
+        this.items[i] = item;
+        if (itemCoords.length == 2)
+        {
+            this.itemBounds[4 * i] = this.itemBounds[4 * i + 1] = itemCoords[0];
+            this.itemBounds[4 * i + 2] = this.itemBounds[4 * i + 3] = itemCoords[1];
+        }
+        else
+        {
+            System.arraycopy(itemCoords, 0, this.itemBounds, 4 * i, 4);
+        }
+    }
+
+    /**
+     * Removes an item from the tree. Every occurrence of the item is removed.
+     * <p/>
+     * <em>Note:</em> For large collections, this can be an expensive operation.
+     *
+     * @param item the item to remove. If null, no item is removed.
+     */
+    synchronized public void remove(T item)
+    {
+        if (item == null)
+            return;
+
+        for (int i = this.indexOf(item, 0); i >= 0; i = this.indexOf(item, i + 1))
+        {
+            this.items[i] = null;
+            this.numRemoved++;
+        }
+
+        this.nameMap.values().removeAll(Collections.singleton(item));
+    }
+
+    /**
+     * Removes an item from the tree by name.
+     * <p/>
+     * <em>Note:</em> For large collections, this can be an expensive operation.
+     *
+     * @param name the name of the item to remove. If null, no item is removed.
+     */
+    synchronized public void removeByName(String name)
+    {
+        T item = this.getByName(name);
+        if (item != null)
+            this.remove(item);
+    }
+
+    /**
+     * Returns a named item.
+     *
+     * @param name the item name. If null, null is returned.
+     *
+     * @return the named item, or null if the item is not in the tree or the specified name is null.
+     */
+    synchronized public T getByName(String name)
+    {
+        return name != null ? this.nameMap.get(name) : null;
+    }
+
+    synchronized public void clear()
+    {
+        this.items = new Object[16];
+        this.itemBounds = new double[64];
+        this.numItems = 0;
+        this.numIndexed = 0;
+        this.numRemoved = 0;
+        this.levelBounds = new double[0][];
+        this.nameMap.clear();
+    }
+
+    /**
+     * Returns an iterator over the items in the tree. The iteration order is unspecified.
+     * <p/>
+     * <em>Note</em> The {@link java.util.Iterator#remove()} operation is not supported.
+     *
+     * @return an iterator over the items in the tree.
+     */
+    synchronized public Iterator<T> iterator()
+    {
+        // Iterate over a snapshot so that the iterator is unaffected by later changes.
+        final Object[] snapshot = Arrays.copyOf(this.items, this.numItems);
+
+        return new Iterator<T>()
+        {
+            private int index = this.advance(0);
+
+            private int advance(int i)
+            {
+                while (i < snapshot.length && snapshot[i] == null)
+                {
+                    i++;
+                }
+
+                return i;
+            }
+
+            public boolean hasNext()
+            {
+                return this.index < snapshot.length;
+            }
+
+            @SuppressWarnings({"unchecked"})
+            public T next()
+            {
+                if (!this.hasNext())
+                    throw new NoSuchElementException();
+
+                T item = (T) snapshot[this.index];
+                this.index = this.advance(this.index + 1);
+                return item;
+            }
+
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    synchronized public Set<T> getItemsAtLocation(LatLon location, Set<T> outItems)
+    {
+        if (location == null)
+        {
+            String message = Logging.getMessage("nullValue.LatLonIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (outItems == null)
+            outItems = new HashSet<T>();
+
+        this.ensureIndexed();
+        double lat = location.getLatitude().degrees;
+        double lon = location.getLongitude().degrees;
+        this.findItems(lat, lat, lon, lon, outItems);
+
+        return outItems;
+    }
+
+    synchronized public Set<T> getItemsAtLocation(Iterable<LatLon> locations, Set<T> outItems)
+    {
+        if (locations == null)
+        {
+            String message = Logging.getMessage("nullValue.LatLonListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (outItems == null)
+            outItems = new HashSet<T>();
+
+        this.ensureIndexed();
+        for (LatLon location : locations)
+        {
+            if (location == null)
+                continue;
+
+            double lat = location.getLatitude().degrees;
+            double lon = location.getLongitude().degrees;
+            this.findItems(lat, lat, lon, lon, outItems);
+        }
+
+        return outItems;
+    }
+
+    synchronized public Set<T> getItemsInRegion(Sector testSector, Set<T> outItems)
+    {
+        if (testSector == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (outItems == null)
+            outItems = new HashSet<T>();
+
+        this.ensureIndexed();
+        this.findItems(testSector, outItems);
+
+        return outItems;
+    }
+
+    synchronized public Set<T> getItemsInRegions(Iterable<Sector> testSectors, Set<T> outItems)
+    {
+        if (testSectors == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (outItems == null)
+            outItems = new HashSet<T>();
+
+        this.ensureIndexed();
+        for (Sector testSector : testSectors)
+        {
+            if (testSector != null)
+                this.findItems(testSector, outItems);
+        }
+
+        return outItems;
+    }
+
+    synchronized public Set<T> getItemsInRegions(SectorGeometryList geometryList, Set<T> outItems)
+    {
+        if (geometryList == null)
+        {
+            String message = Logging.getMessage("nullValue.SectorGeometryListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (outItems == null)
+            outItems = new HashSet<T>();
+
+        this.ensureIndexed();
+        for (SectorGeometry geometry : geometryList)
+        {
+            if (geometry != null)
+                this.findItems(geometry.getSector(), outItems);
+        }
+
+        return outItems;
+    }
+
+    /** Builds the tree over all items, discarding removed items. */
+    synchronized public void pack()
+    {
+        // Compact the item arrays, dropping removed items.
+        int n = 0;
+        for (int i = 0; i < this.numItems; i++)
+        {
+            if (this.items[i] == null)
+                continue;
+
+            this.items[n] = this.items[i];
+            System.arraycopy(this.itemBounds, 4 * i, this.itemBounds, 4 * n, 4);
+            n++;
+        }
+        Arrays.fill(this.items, n, this.numItems, null);
+        this.numItems = n;
+        this.numRemoved = 0;
+
+        this.sortTileRecursive(n);
+        this.levelBounds = this.buildLevels(n);
+        this.numIndexed = n;
+    }
+
+    protected void ensureIndexed()
+    {
+        if (this.numItems - this.numIndexed > MAX_UNINDEXED_ITEMS || this.numRemoved > this.numItems / 2)
+            this.pack();
+    }
+
+    //**************************************************************//
+    //********************  Construction  **************************//
+    //**************************************************************//
+
+    /**
+     * Orders the first <code>n</code> items by Sort-Tile-Recursive: by the longitude of their centers, then within
+     * each vertical slice of whole leaves by the latitude of their centers.
+     *
+     * @param n the number of items to order.
+     */
+    protected void sortTileRecursive(int n)
+    {
+        if (n <= 1)
+            return;
+
+        int[] order = new int[n];
+        double[] keys = new double[n];
+        for (int i = 0; i < n; i++)
+        {
+            order[i] = i;
+            keys[i] = this.itemBounds[4 * i + 2] + this.itemBounds[4 * i + 3]; // twice the center longitude
+        }
+        sort(keys, order, 0, n);
+
+        int numLeaves = (n + this.nodeCapacity - 1) / this.nodeCapacity;
+        int numSlices = (int) Math.ceil(Math.sqrt(numLeaves));
+        int sliceSize = this.nodeCapacity * ((numLeaves + numSlices - 1) / numSlices);
+
+        for (int i = 0; i < n; i++)
+        {
+            keys[order[i]] = this.itemBounds[4 * order[i]] + this.itemBounds[4 * order[i] + 1]; // twice the center
+        }
+        for (int start = 0; start < n; start += sliceSize)
+        {
+            sort(keys, order, start, Math.min(start + sliceSize, n));
+        }
+
+        Object[] sortedItems = new Object[this.items.length];
+        double[] sortedBounds = new double[this.itemBounds.length];
+        for (int i = 0; i < n; i++)
+        {
+            sortedItems[i] = this.items[order[i]];
+            System.arraycopy(this.itemBounds, 4 * order[i], sortedBounds, 4 * i, 4);
+        }
+
+        this.items = sortedItems;
+        this.itemBounds = sortedBounds;
+    }
+
+    protected double[][] buildLevels(int n)
+    {
+        List<double[]> levels = new ArrayList<double[]>();
+
+        double[] childBounds = this.itemBounds;
+        int numChildren = n;
+        while (numChildren > 0)
+        {
+            int numNodes = (numChildren + this.nodeCapacity - 1) / this.nodeCapacity;
+            double[] bounds = new double[4 * numNodes];
+
+            for (int node = 0; node < numNodes; node++)
+            {
+                int first = node * this.nodeCapacity;
+                int last = Math.min(first + this.nodeCapacity, numChildren);
+
+                double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE;
+                double minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+                for (int child = first; child < last; child++)
+                {
+                    minLat = Math.min(minLat, childBounds[4 * child]);
+                    maxLat = Math.max(maxLat, childBounds[4 * child + 1]);
+                    minLon = Math.min(minLon, childBounds[4 * child + 2]);
+                    maxLon = Math.max(maxLon, childBounds[4 * child + 3]);
+                }
+
+                bounds[4 * node] = minLat;
+                bounds[4 * node + 1] = maxLat;
+                bounds[4 * node + 2] = minLon;
+                bounds[4 * node + 3] = maxLon;
+            }
+
+            levels.add(bounds);
+
+            if (numNodes == 1)
+                break;
+
+            childBounds = bounds;
+            numChildren = numNodes;
+        }
+
+        return levels.toArray(new double[levels.size()][]);
+    }
+
+    /**
+     * Sorts a range of an index array by the keys the indices refer to.
+     *
+     * @param keys  the keys, indexed by the values in <code>order</code>.
+     * @param order the indices to sort.
+     * @param start the first position of the range to sort.
+     * @param end   one past the last position of the range to sort.
+     */
+    protected static void sort(double[] keys, int[] order, int start, int end)
+    {
+        while (end - start > 16)
+        {
+            // Partition about the median of three keys, then sort the smaller part recursively and the larger
+            // iteratively, which limits the recursion depth to the logarithm of the range's length.
+            int mid = (start + end) >>> 1;
+            double a = keys[order[start]], b = keys[order[mid]], c = keys[order[end - 1]];
+            double pivot = a < b ? (b < c ? b : (a < c ? c : a)) : (a < c ? a : (b < c ? c : b));
+
+            int i = start, j = end - 1;
+            while (i <= j)
+            {
+                while (keys[order[i]] < pivot)
+                {
+                    i++;
+                }
+                while (keys[order[j]] > pivot)
+                {
+                    j--;
+                }
+                if (i <= j)
+                {
+                    int t = order[i];
+                    order[i++] = order[j];
+                    order[j--] = t;
+                }
+            }
+
+            if (j + 1 - start < end - i)
+            {
+                sort(keys, order, start, j + 1);
+                start = i;
+            }
+            else
+            {
+                sort(keys, order, i, end);
+                end = j + 1;
+            }
+        }
+
+        for (int i = start + 1; i < end; i++)
+        {
+            int t = order[i];
+            double key = keys[t];
+            int j = i - 1;
+            while (j >= start && keys[order[j]] > key)
+            {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = t;
+        }
+    }
+
+    //**************************************************************//
+    //********************  Queries  *******************************//
+    //**************************************************************//
+
+    protected void findItems(Sector sector, Set<T> outItems)
+    {
+        this.findItems(sector.getMinLatitude().degrees, sector.getMaxLatitude().degrees,
+            sector.getMinLongitude().degrees, sector.getMaxLongitude().degrees, outItems);
+    }
+
+    protected void findItems(double minLat, double maxLat, double minLon, double maxLon, Set<T> outItems)
+    {
+        int topLevel = this.levelBounds.length - 1;
+        if (topLevel >= 0)
+        {
+            int numTopNodes = this.levelBounds[topLevel].length / 4;
+            for (int node = 0; node < numTopNodes; node++)
+            {
+                this.findItems(topLevel, node, minLat, maxLat, minLon, maxLon, outItems);
+            }
+        }
+
+        // Test the items added since the tree was built.
+        this.addIntersectingItems(this.numIndexed, this.numItems, minLat, maxLat, minLon, maxLon, outItems);
+    }
+
+    protected void findItems(int level, int node, double minLat, double maxLat, double minLon, double maxLon,
+        Set<T> outItems)
+    {
+        if (!intersects(this.levelBounds[level], node, minLat, maxLat, minLon, maxLon))
+            return;
+
+        int first = node * this.nodeCapacity;
+        if (level == 0)
+        {
+            this.addIntersectingItems(first, Math.min(first + this.nodeCapacity, this.numIndexed), minLat, maxLat,
+                minLon, maxLon, outItems);
+            return;
+        }
+
+        int last = Math.min(first + this.nodeCapacity, this.levelBounds[level - 1].length / 4);
+        for (int child = first; child < last; child++)
+        {
+            this.findItems(level - 1, child, minLat, maxLat, minLon, maxLon, outItems);
+        }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    protected void addIntersectingItems(int first, int last, double minLat, double maxLat, double minLon,
+        double maxLon, Set<T> outItems)
+    {
+        for (int i = first; i < last; i++)
+        {
+            Object item = this.items[i];
+            if (item != null && intersects(this.itemBounds, i, minLat, maxLat, minLon, maxLon))
+                outItems.add((T) item);
+        }
+    }
+
+    protected static boolean intersects(double[] bounds, int index, double minLat, double maxLat, double minLon,
+        double maxLon)
+    {
+        int k = 4 * index;
+        return bounds[k] <= maxLat && bounds[k + 1] >= minLat && bounds[k + 2] <= maxLon && bounds[k + 3] >= minLon;
+    }
+
+    protected int indexOf(Object item, int start)
+    {
+        for (int i = start; i < this.numItems; i++)
+        {
+            if (item.equals(this.items[i]))
+                return i;
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.terrain.SectorGeometryList;
+
+import java.util.Set;
+
+/**
+ * An index of items by geographic location or region. Implementations may return items near but outside the location
+ * or region requested, so callers that need an exact result should test the items returned.
+ *
+ * @author tag
+ * @version $Id$
+ * @see BasicQuadTree
+ * @see PackedRTree
+ */
+public interface SpatialIndex<T> extends Iterable<T>
+{
+    /**
+     * Indicates whether the index contains any items.
+     *
+     * @return true if the index contains items, otherwise false.
+     */
+    boolean hasItems();
+
+    /**
+     * Indicates whether an item is contained in the index.
+     *
+     * @param item the item to check. If null, false is returned.
+     *
+     * @return true if the item is in the index, otherwise false.
+     */
+    boolean contains(T item);
+
+    /**
+     * Add an item to the index.
+     *
+     * @param item       the item to add.
+     * @param itemCoords an array specifying the region or location of the item. If the array's length is 2 it
+     *                   represents a location in [latitude, longitude]. If its length is 4 it represents a region in
+     *                   [minLatitude, maxLatitude, minLongitude, maxLongitude], the layout of {@link
+     *                   Sector#asDegreesArray()}. All values are in degrees.
+     *
+     * @throws IllegalArgumentException if either <code>item</code> or <code>itemCoords</code> is null.
+     */
+    void add(T item, double[] itemCoords);
+
+    /**
+     * Removes an item from the index.
+     *
+     * @param item the item to remove. If null, no item is removed.
+     */
+    void remove(T item);
+
+    /** Removes all items from the index. */
+    void clear();
+
+    /**
+     * Finds and returns the items at a specified location.
+     *
+     * @param location the location of interest.
+     * @param outItems a {@link Set} in which to place the items. If null, a new set is created.
+     *
+     * @return the set of items. The same set passed as the <code>outItems</code> argument is returned, or a new set if
+     *         that argument is null.
+     *
+     * @throws IllegalArgumentException if <code>location</code> is null.
+     */
+    Set<T> getItemsAtLocation(LatLon location, Set<T> outItems);
+
+    /**
+     * Finds and returns the items at any of a collection of locations.
+     *
+     * @param locations the locations of interest.
+     * @param outItems  a {@link Set} in which to place the items. If null, a new set is created.
+     *
+     * @return the set of items. The same set passed as the <code>outItems</code> argument is returned, or a new set if
+     *         that argument is null.
+     *
+     * @throws IllegalArgumentException if <code>locations</code> is null.
+     */
+    Set<T> getItemsAtLocation(Iterable<LatLon> locations, Set<T> outItems);
+
+    /**
+     * Finds and returns the items intersecting a specified sector.
+     *
+     * @param testSector the sector of interest.
+     * @param outItems   a {@link Set} in which to place the items. If null, a new set is created.
+     *
+     * @return the set of intersecting items. The same set passed as the <code>outItems</code> argument is returned, or
+     *         a new set if that argument is null.
+     *
+     * @throws IllegalArgumentException if <code>testSector</code> is null.
+     */
+    Set<T> getItemsInRegion(Sector testSector, Set<T> outItems);
+
+    /**
+     * Finds and returns the items intersecting any of a collection of sectors.
+     *
+     * @param testSectors the sectors of interest.
+     * @param outItems    a {@link Set} in which to place the items. If null, a new set is created.
+     *
+     * @return the set of intersecting items. The same set passed as the <code>outItems</code> argument is returned, or
+     *         a new set if that argument is null.
+     *
+     * @throws IllegalArgumentException if <code>testSectors</code> is null.
+     */
+    Set<T> getItemsInRegions(Iterable<Sector> testSectors, Set<T> outItems);
+
+    /**
+     * Finds and returns the items intersecting the sectors of a collection of {@link
+     * gov.nasa.worldwind.terrain.SectorGeometry}.
+     *
+     * @param geometryList the list of sector geometry.
+     * @param outItems     a {@link Set} in which to place the items. If null, a new set is created.
+     *
+     * @return the set of intersecting items. The same set passed as the <code>outItems</code> argument is returned, or
+     *         a new set if that argument is null.
+     *
+     * @throws IllegalArgumentException if <code>geometryList</code> is null.
+     */
+    Set<T> getItemsInRegions(SectorGeometryList geometryList, Set<T> outItems);
+}
@@ -0,0 +1,500 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Passes items through a sequence of stages, each running on its own threads. Adjacent stages are connected by bounded
+ * queues, so a stage that falls behind blocks the stages before it rather than accumulating items in memory. Stages
+ * doing different kinds of work, such as reading files and decoding images, therefore run at the same time, and each
+ * stage can be given as many threads as its work warrants.
+ * <p/>
+ * Each stage decides whether an item moves on to the next stage or is complete. An item is complete when a stage says
+ * so or when it leaves the last stage, and is failed when a stage throws while processing it. Completed and failed
+ * items are reported to the pipeline's listener, on the thread of the stage that completed or failed them.
+ * <p/>
+ * The pipeline keeps statistics for each stage: the number of items processed and failed, the time spent processing
+ * them, and the resulting throughput. See {@link #getStatistics()}.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class StagedPipeline<T>
+{
+    /**
+     * One stage of a pipeline.
+     *
+     * @param <T> the type of item processed.
+     */
+    public abstract static class Stage<T>
+    {
+        protected final String name;
+        protected final int numThreads;
+
+        /**
+         * Creates a stage.
+         *
+         * @param name       the stage's name, used to name its threads and label its statistics.
+         * @param numThreads the number of threads processing items for the stage.
+         *
+         * @throws IllegalArgumentException if the name is null or the number of threads is less than one.
+         */
+        public Stage(String name, int numThreads)
+        {
+            if (name == null)
+            {
+                String message = Logging.getMessage("nullValue.NameIsNull");
+                Logging.logger().severe(message);
+                throw new IllegalArgumentException(message);
+            }
+
+            if (numThreads < 1)
+            {
+                String message = Logging.getMessage("generic.ArgumentOutOfRange", "numThreads=" + numThreads);
+                Logging.logger().severe(message);
+                throw new IllegalArgumentException(message);
+            }
+
+            this.name = name;
+            this.numThreads = numThreads;
+        }
+
+        public String getName()
+        {
+            return this.name;
+        }
+
+        public int getNumThreads()
+        {
+            return this.numThreads;
+        }
+
+        /**
+         * Processes an item. This is called concurrently by each of the stage's threads.
+         *
+         * @param item the item to process.
+         *
+         * @return true to pass the item to the next stage, false if the item is complete.
+         *
+         * @throws Exception if the item can't be processed. The item is then failed.
+         */
+        public abstract boolean process(T item) throws Exception;
+    }
+
+    /**
+     * Receives the items leaving a pipeline.
+     *
+     * @param <T> the type of item processed.
+     */
+    public interface Listener<T>
+    {
+        /**
+         * Called when an item is complete.
+         *
+         * @param item the completed item.
+         */
+        void itemCompleted(T item);
+
+        /**
+         * Called when a stage fails to process an item.
+         *
+         * @param item      the failed item.
+         * @param stageName the name of the stage that failed to process the item.
+         * @param t         the exception or error thrown by the stage.
+         */
+        void itemFailed(T item, String stageName, Throwable t);
+    }
+
+    /** A snapshot of a stage's statistics. */
+    public static class StageStatistics
+    {
+        protected final String name;
+        protected final int numThreads;
+        protected final long numProcessed;
+        protected final long numFailed;
+        protected final long busyNanos;
+        protected final long elapsedNanos;
+        protected final int queueDepth;
+
+        public StageStatistics(String name, int numThreads, long numProcessed, long numFailed, long busyNanos,
+            long elapsedNanos, int queueDepth)
+        {
+            this.name = name;
+            this.numThreads = numThreads;
+            this.numProcessed = numProcessed;
+            this.numFailed = numFailed;
+            this.busyNanos = busyNanos;
+            this.elapsedNanos = elapsedNanos;
+            this.queueDepth = queueDepth;
+        }
+
+        public String getName()
+        {
+            return this.name;
+        }
+
+        public int getNumThreads()
+        {
+            return this.numThreads;
+        }
+
+        /** @return the number of items the stage has processed, including those it failed. */
+        public long getNumProcessed()
+        {
+            return this.numProcessed;
+        }
+
+        public long getNumFailed()
+        {
+            return this.numFailed;
+        }
+
+        /** @return the total time the stage's threads spent processing items, in nanoseconds. */
+        public long getBusyNanos()
+        {
+            return this.busyNanos;
+        }
+
+        /** @return the time from the start of the pipeline to the end of the stage, or to now, in nanoseconds. */
+        public long getElapsedNanos()
+        {
+            return this.elapsedNanos;
+        }
+
+        /** @return the number of items waiting for the stage. */
+        public int getQueueDepth()
+        {
+            return this.queueDepth;
+        }
+
+        /** @return the number of items processed per second of elapsed time. */
+        public double getThroughput()
+        {
+            return this.elapsedNanos > 0 ? this.numProcessed / (this.elapsedNanos / 1e9) : 0;
+        }
+
+        /** @return the mean time spent processing an item, in milliseconds. */
+        public double getMeanProcessingTime()
+        {
+            return this.numProcessed > 0 ? this.busyNanos / 1e6 / this.numProcessed : 0;
+        }
+
+        /**
+         * @return the fraction of the elapsed time the stage's threads spent processing items. Values well below 1
+         *         indicate a stage waiting on the stages before it.
+         */
+        public double getUtilization()
+        {
+            return this.elapsedNanos > 0 ? this.busyNanos / ((double) this.elapsedNanos * this.numThreads) : 0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s: %d processed, %d failed, %.1f per second, %.1f ms each, %d threads %.0f%% busy",
+                this.name, this.numProcessed, this.numFailed, this.getThroughput(), this.getMeanProcessingTime(),
+                this.numThreads, 100 * this.getUtilization());
+        }
+    }
+
+    /** Marks the end of a stage's input. Each of the stage's threads consumes one. */
+    protected static final Object END_OF_INPUT = new Object();
+
+    /** A stage's queue, threads and statistics. */
+    protected class StageRunner
+    {
+        protected final Stage<T> stage;
+        protected final BlockingQueue<Object> queue;
+        protected final AtomicInteger numRunning;
+        protected final AtomicLong numProcessed = new AtomicLong();
+        protected final AtomicLong numFailed = new AtomicLong();
+        protected final AtomicLong busyNanos = new AtomicLong();
+        protected volatile long endNanos;
+        protected StageRunner next;
+
+        protected StageRunner(Stage<T> stage, int queueCapacity)
+        {
+            this.stage = stage;
+            this.queue = new ArrayBlockingQueue<Object>(queueCapacity);
+            this.numRunning = new AtomicInteger(stage.getNumThreads());
+        }
+
+        protected void runWorker() throws InterruptedException
+        {
+            try
+            {
+                Object o;
+                while ((o = this.queue.take()) != END_OF_INPUT)
+                {
+                    // Discard the remaining items once stopped, but keep draining the queue so that the stages
+                    // before this one aren't blocked.
+                    if (!stopped)
+                        this.processItem(o);
+                }
+            }
+            finally
+            {
+                // The last of the stage's threads to finish ends the next stage's input.
+                if (this.numRunning.decrementAndGet() == 0)
+                {
+                    this.endNanos = System.nanoTime();
+                    if (this.next != null)
+                    {
+                        for (int i = 0; i < this.next.stage.getNumThreads(); i++)
+                        {
+                            this.next.queue.put(END_OF_INPUT);
+                        }
+                    }
+                }
+            }
+        }
+
+        @SuppressWarnings({"unchecked"})
+        protected void processItem(Object o) throws InterruptedException
+        {
+            T item = (T) o;
+            boolean passOn;
+
+            long start = System.nanoTime();
+            try
+            {
+                passOn = this.stage.process(item);
+            }
+            catch (Throwable t)
+            {
+                this.numFailed.incrementAndGet();
+                this.notifyFailed(item, t);
+                return;
+            }
+            finally
+            {
+                this.busyNanos.addAndGet(System.nanoTime() - start);
+                this.numProcessed.incrementAndGet();
+            }
+
+            if (passOn && this.next != null)
+                this.next.queue.put(item);
+            else
+                this.notifyCompleted(item);
+        }
+
+        // An exception thrown by the listener must not end the worker, since the stages before it would then block
+        // on the worker's queue.
+
+        protected void notifyCompleted(T item)
+        {
+            if (listener == null)
+                return;
+
+            try
+            {
+                listener.itemCompleted(item);
+            }
+            catch (Throwable t)
+            {
+                String message = Logging.getMessage("StagedPipeline.ExceptionFromListener", name);
+                Logging.logger().log(java.util.logging.Level.SEVERE, message, t);
+            }
+        }
+
+        protected void notifyFailed(T item, Throwable cause)
+        {
+            if (listener == null)
+                return;
+
+            try
+            {
+                listener.itemFailed(item, this.stage.getName(), cause);
+            }
+            catch (Throwable t)
+            {
+                String message = Logging.getMessage("StagedPipeline.ExceptionFromListener", name);
+                Logging.logger().log(java.util.logging.Level.SEVERE, message, t);
+            }
+        }
+
+        protected StageStatistics getStatistics(long startNanos)
+        {
+            long end = this.endNanos != 0 ? this.endNanos : System.nanoTime();
+
+            return new StageStatistics(this.stage.getName(), this.stage.getNumThreads(), this.numProcessed.get(),
+                this.numFailed.get(), this.busyNanos.get(), startNanos != 0 ? end - startNanos : 0,
+                this.queue.size());
+        }
+    }
+
+    protected final String name;
+    protected final List<StageRunner> runners = new ArrayList<StageRunner>();
+    protected final Listener<T> listener;
+    protected volatile boolean stopped;
+    protected volatile long startNanos;
+
+    /**
+     * Creates a pipeline.
+     *
+     * @param name          the pipeline's name, used to name its threads.
+     * @param stages        the pipeline's stages, in the order items pass through them.
+     * @param queueCapacity the number of items that may wait for each stage.
+     * @param listener      the listener to notify of completed and failed items. May be null.
+     *
+     * @throws IllegalArgumentException if the name or stage list is null, if the stage list is empty or contains null,
+     *                                  or if the queue capacity is less than one.
+     */
+    public StagedPipeline(String name, List<? extends Stage<T>> stages, int queueCapacity, Listener<T> listener)
+    {
+        if (name == null)
+        {
+            String message = Logging.getMessage("nullValue.NameIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (stages == null || stages.isEmpty() || stages.contains(null))
+        {
+            String message = Logging.getMessage("nullValue.ListIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (queueCapacity < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "queueCapacity=" + queueCapacity);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.name = name;
+        this.listener = listener;
+
+        for (Stage<T> stage : stages)
+        {
+            StageRunner runner = new StageRunner(stage, queueCapacity);
+            if (!this.runners.isEmpty())
+                this.runners.get(this.runners.size() - 1).next = runner;
+            this.runners.add(runner);
+        }
+    }
+
+    public String getName()
+    {
+        return this.name;
+    }
+
+    /**
+     * Passes items through the pipeline, and returns when every item has left it. A pipeline runs once.
+     *
+     * @param items the items to process.
+     *
+     * @throws IllegalArgumentException if the items are null.
+     * @throws IllegalStateException    if the pipeline has already run.
+     * @throws InterruptedException     if the calling thread is interrupted. The pipeline is then stopped.
+     */
+    public void run(Iterable<? extends T> items) throws InterruptedException
+    {
+        if (items == null)
+        {
+            String message = Logging.getMessage("nullValue.IterableIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (this.startNanos != 0)
+        {
+            String message = Logging.getMessage("StagedPipeline.AlreadyRun", this.name);
+            Logging.logger().severe(message);
+            throw new IllegalStateException(message);
+        }
+
+        this.startNanos = System.nanoTime();
+
+        List<Thread> threads = new ArrayList<Thread>();
+        for (final StageRunner runner : this.runners)
+        {
+            for (int i = 0; i < runner.stage.getNumThreads(); i++)
+            {
+                Thread thread = new Thread(new Runnable()
+                {
+                    public void run()
+                    {
+                        try
+                        {
+                            runner.runWorker();
+                        }
+                        catch (InterruptedException e)
+                        {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+                thread.setDaemon(true);
+                thread.setName(this.name + " " + runner.stage.getName());
+                thread.start();
+                threads.add(thread);
+            }
+        }
+
+        try
+        {
+            StageRunner first = this.runners.get(0);
+            for (T item : items)
+            {
+                if (this.stopped)
+                    break;
+
+                first.queue.put(item);
+            }
+
+            for (int i = 0; i < first.stage.getNumThreads(); i++)
+            {
+                first.queue.put(END_OF_INPUT);
+            }
+
+            for (Thread thread : threads)
+            {
+                thread.join();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            this.stop();
+            for (Thread thread : threads)
+            {
+                thread.interrupt();
+            }
+            throw e;
+        }
+    }
+
+    /** Stops the pipeline. Items not yet processed are discarded, and are neither completed nor failed. */
+    public void stop()
+    {
+        this.stopped = true;
+    }
+
+    public boolean isStopped()
+    {
+        return this.stopped;
+    }
+
+    /**
+     * Returns a snapshot of each stage's statistics. This may be called while the pipeline runs.
+     *
+     * @return the statistics of each stage, in stage order.
+     */
+    public List<StageStatistics> getStatistics()
+    {
+        List<StageStatistics> list = new ArrayList<StageStatistics>(this.runners.size());
+        for (StageRunner runner : this.runners)
+        {
+            list.add(runner.getStatistics(this.startNanos));
+        }
+
+        return list;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.geom.Sector;
+
+/**
+ * A task that loads or retrieves a tile needed to render the current view. A {@link TileRequestScheduler} uses the
+ * request's tile key, sector and priority to coalesce duplicate requests, order requests and cancel requests for tiles
+ * that are no longer needed. Requesters using the scheduler are expected to renew their requests each frame the tile
+ * is still needed, by adding a new request for the same tile.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public interface TileRequest extends Runnable
+{
+    /**
+     * Indicates the key of the tile requested. Requests with equal keys are considered duplicates, whichever layer or
+     * model made them.
+     *
+     * @return the tile key.
+     */
+    TileKey getTileKey();
+
+    /**
+     * Indicates the sector of the tile requested.
+     *
+     * @return the tile's sector.
+     */
+    Sector getSector();
+
+    /**
+     * Indicates the request's priority when it was made. Requests with lower values are run first among requests for
+     * tiles of the same level. Distance from the viewer is a typical priority.
+     *
+     * @return the request's priority.
+     */
+    double getPriority();
+}
@@ -0,0 +1,564 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.*;
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.globes.Globe;
+import gov.nasa.worldwind.render.DrawContext;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+
+/**
+ * A {@link TaskService} that schedules tile requests frame by frame. Use it by specifying its class name for {@link
+ * AVKey#TASK_SERVICE_CLASS_NAME} in the World Wind configuration.
+ * <p/>
+ * Tasks that implement {@link TileRequest} are scheduled as follows: <ul> <li>Requests for the same {@link TileKey}
+ * are coalesced, whichever layer makes them. A request for a tile already queued or running renews the queued request
+ * and updates its priority rather than adding another.</li> <li>Requests are ordered by the level of their tiles,
+ * coarsest first, then by their priority, and are re-ranked at the end of each frame using the priority given when
+ * they were last renewed.</li> <li>At the end of each frame, queued requests not renewed during the frame are
+ * cancelled if their tiles are outside the view frustum, and requests not renewed for the stale frame limit are
+ * cancelled regardless.</li> <li>When the queue is full, the lowest ranked request is dropped in favor of a higher
+ * ranked one.</li> </ul> Other tasks run before tile requests, in the order they are added, and are never cancelled.
+ * <p/>
+ * The scene controller calls {@link #endFrame(gov.nasa.worldwind.render.DrawContext)} after each frame. Without those
+ * calls no request is considered stale. Retrieval services consult {@link #checkAbandoned(gov.nasa.worldwind.WWObject)}
+ * to discard retrievals for tiles whose requests have lapsed. The scheduler keeps counts of the requests it coalesces,
+ * cancels and runs, and of requests that ran after their tiles were no longer needed.
+ * <p/>
+ * The queue size is specified by {@link AVKey#TASK_QUEUE_SIZE}, the number of threads by {@link AVKey#TASK_POOL_SIZE}
+ * and the stale frame limit by {@link AVKey#TILE_REQUEST_STALE_FRAME_LIMIT}. When several windows share the
+ * scheduler, the stale frame limit should be at least the number of windows.
+ *
+ * @author tag
+ * @version $Id$
+ */
+public class TileRequestScheduler extends WWObjectImpl implements TaskService, Thread.UncaughtExceptionHandler
+{
+    protected static final int DEFAULT_POOL_SIZE = 1;
+    protected static final int DEFAULT_QUEUE_SIZE = 10;
+    protected static final int DEFAULT_STALE_FRAME_LIMIT = 2;
+    protected static final String RUNNING_THREAD_NAME_PREFIX = Logging.getMessage(
+        "ThreadedTaskService.RunningThreadNamePrefix");
+    protected static final String IDLE_THREAD_NAME_PREFIX = Logging.getMessage(
+        "ThreadedTaskService.IdleThreadNamePrefix");
+
+    /** A queued or running task and the state used to schedule it. */
+    protected static class Entry
+    {
+        protected final Object key;
+        protected final Runnable task;
+        protected final long sequenceNumber;
+        protected final boolean tileRequest;
+        protected final int levelNumber;
+        protected double priority;
+        protected long lastRequestFrame;
+        protected Extent extent;
+
+        protected Entry(Object key, Runnable task, long sequenceNumber, long frameNumber)
+        {
+            this.key = key;
+            this.task = task;
+            this.sequenceNumber = sequenceNumber;
+            this.tileRequest = task instanceof TileRequest;
+            this.levelNumber = this.tileRequest ? ((TileRequest) task).getTileKey().getLevelNumber() : 0;
+            this.priority = this.tileRequest ? ((TileRequest) task).getPriority() : 0;
+            this.lastRequestFrame = frameNumber;
+        }
+    }
+
+    /** Orders other tasks first, in the order added, then tile requests by level and priority. */
+    protected static final Comparator<Entry> ENTRY_ORDER = new Comparator<Entry>()
+    {
+        public int compare(Entry a, Entry b)
+        {
+            if (a.tileRequest != b.tileRequest)
+                return a.tileRequest ? 1 : -1;
+
+            if (a.tileRequest)
+            {
+                if (a.levelNumber != b.levelNumber)
+                    return a.levelNumber < b.levelNumber ? -1 : 1;
+                if (a.priority != b.priority)
+                    return a.priority < b.priority ? -1 : 1;
+            }
+
+            return a.sequenceNumber < b.sequenceNumber ? -1 : a.sequenceNumber > b.sequenceNumber ? 1 : 0;
+        }
+    };
+
+    protected final int poolSize;
+    protected final int queueSize;
+    protected final int staleFrameLimit;
+    protected final ThreadPoolExecutor executor;
+    protected final HashMap<Object, Entry> queuedEntries = new HashMap<Object, Entry>();
+    protected final TreeSet<Entry> queue = new TreeSet<Entry>(ENTRY_ORDER);
+    protected final HashMap<Object, Entry> runningEntries = new HashMap<Object, Entry>();
+    /** The frame in which each recently requested tile was last requested, whether or not its request is queued. */
+    protected final HashMap<TileKey, Long> lastRequestFrames = new HashMap<TileKey, Long>();
+    protected long frameNumber;
+    protected long nextSequenceNumber;
+    protected int numWorkers;
+
+    // Metrics
+    protected long numSubmitted;
+    protected long numCoalesced;
+    protected long numExecuted;
+    protected long numCancelledOutOfView;
+    protected long numCancelledStale;
+    protected long numDropped;
+    protected long numWasted;
+    protected long numRetrievalsAbandoned;
+
+    /** Creates a scheduler configured by the World Wind configuration. */
+    public TileRequestScheduler()
+    {
+        this(Configuration.getIntegerValue(AVKey.TASK_POOL_SIZE, DEFAULT_POOL_SIZE),
+            Configuration.getIntegerValue(AVKey.TASK_QUEUE_SIZE, DEFAULT_QUEUE_SIZE),
+            Configuration.getIntegerValue(AVKey.TILE_REQUEST_STALE_FRAME_LIMIT, DEFAULT_STALE_FRAME_LIMIT));
+    }
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param poolSize        the number of threads running tasks.
+     * @param queueSize       the maximum number of tile requests waiting to run.
+     * @param staleFrameLimit the number of frames a tile request may go without being renewed before it is cancelled.
+     *
+     * @throws IllegalArgumentException if any argument is less than one.
+     */
+    public TileRequestScheduler(int poolSize, int queueSize, int staleFrameLimit)
+    {
+        if (poolSize < 1 || queueSize < 1 || staleFrameLimit < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange",
+                Math.min(poolSize, Math.min(queueSize, staleFrameLimit)));
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        this.poolSize = poolSize;
+        this.queueSize = queueSize;
+        this.staleFrameLimit = staleFrameLimit;
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 2, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                thread.setUncaughtExceptionHandler(TileRequestScheduler.this);
+                return thread;
+            }
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public void shutdown(boolean immediately)
+    {
+        synchronized (this)
+        {
+            this.queue.clear();
+            this.queuedEntries.clear();
+        }
+
+        if (immediately)
+            this.executor.shutdownNow();
+        else
+            this.executor.shutdown();
+    }
+
+    public void uncaughtException(Thread thread, Throwable throwable)
+    {
+        String message = Logging.getMessage("ThreadedTaskService.UncaughtExceptionDuringTask", thread.getName());
+        Logging.logger().fine(message);
+    }
+
+    public synchronized boolean contains(Runnable runnable)
+    {
+        if (runnable == null)
+            return false;
+
+        Object key = keyFor(runnable);
+        return this.queuedEntries.containsKey(key) || this.runningEntries.containsKey(key);
+    }
+
+    /**
+     * Enqueues a task to run. A tile request for a tile already queued or running renews that request instead.
+     *
+     * @param runnable the task to add
+     *
+     * @throws IllegalArgumentException if <code>runnable</code> is null
+     */
+    public synchronized void addTask(Runnable runnable)
+    {
+        if (runnable == null)
+        {
+            String message = Logging.getMessage("nullValue.RunnableIsNull");
+            Logging.logger().fine(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (this.executor.isShutdown())
+            return;
+
+        this.numSubmitted++;
+
+        Object key = keyFor(runnable);
+        if (runnable instanceof TileRequest)
+            this.lastRequestFrames.put((TileKey) key, this.frameNumber);
+
+        Entry entry = this.queuedEntries.get(key);
+        if (entry != null)
+        {
+            this.numCoalesced++;
+            if (entry.tileRequest)
+            {
+                // Renew the queued request. Its rank is updated now, rather than waiting for the end of the frame,
+                // since the new priority is the best indication of when it's needed.
+                this.queue.remove(entry);
+                entry.priority = ((TileRequest) runnable).getPriority();
+                entry.lastRequestFrame = this.frameNumber;
+                this.queue.add(entry);
+            }
+            return;
+        }
+
+        if (this.runningEntries.containsKey(key))
+        {
+            this.numCoalesced++;
+            return;
+        }
+
+        entry = new Entry(key, runnable, this.nextSequenceNumber++, this.frameNumber);
+
+        if (entry.tileRequest && this.queue.size() >= this.queueSize)
+        {
+            // The queue is full. Drop either the new request or the lowest ranked queued request, whichever ranks
+            // lower. Requests renewed in later frames are added again.
+            Entry last = this.queue.last();
+            if (!last.tileRequest || ENTRY_ORDER.compare(entry, last) > 0)
+            {
+                this.numDropped++;
+                return;
+            }
+
+            this.removeQueuedEntry(last);
+            this.numDropped++;
+        }
+
+        this.queue.add(entry);
+        this.queuedEntries.put(key, entry);
+
+        if (this.numWorkers < this.poolSize)
+        {
+            this.numWorkers++;
+            this.executor.execute(new Worker());
+        }
+    }
+
+    /**
+     * Indicates whether the queue is full. This scheduler drops low ranked requests to make room for higher ranked
+     * ones, and needs to see renewals of requests already queued, so it never reports that it's full.
+     *
+     * @return false.
+     */
+    public boolean isFull()
+    {
+        return false;
+    }
+
+    public synchronized boolean hasActiveTasks()
+    {
+        return !this.runningEntries.isEmpty();
+    }
+
+    /**
+     * Ends the current frame, and is called by the scene controller once all layers and models have made their
+     * requests for the frame. Requests not renewed during the frame are cancelled if their tiles are outside the
+     * frame's view frustum, or if they have not been renewed for the stale frame limit. The remaining requests are
+     * re-ranked.
+     *
+     * @param dc the current draw context.
+     *
+     * @throws IllegalArgumentException if the draw context is null.
+     */
+    public void endFrame(DrawContext dc)
+    {
+        if (dc == null)
+        {
+            String message = Logging.getMessage("nullValue.DrawContextIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        Frustum frustum = dc.getView() != null ? dc.getView().getFrustumInModelCoordinates() : null;
+        this.endFrame(frustum, dc.getGlobe(), dc.getVerticalExaggeration());
+    }
+
+    /**
+     * Ends the current frame. See {@link #endFrame(gov.nasa.worldwind.render.DrawContext)}.
+     *
+     * @param frustum              the frame's view frustum in model coordinates. If null, requests are cancelled only
+     *                             when they're stale.
+     * @param globe                the globe, used to compute the extents of tiles. May be null if the frustum is
+     *                             null.
+     * @param verticalExaggeration the vertical exaggeration, used to compute the extents of tiles.
+     */
+    public synchronized void endFrame(Frustum frustum, Globe globe, double verticalExaggeration)
+    {
+        List<Entry> rerankedEntries = new ArrayList<Entry>(this.queue.size());
+
+        for (Iterator<Entry> iter = this.queue.iterator(); iter.hasNext(); )
+        {
+            Entry entry = iter.next();
+            if (!entry.tileRequest || entry.lastRequestFrame == this.frameNumber)
+                continue;
+
+            iter.remove();
+
+            if (this.frameNumber - entry.lastRequestFrame >= this.staleFrameLimit)
+            {
+                this.queuedEntries.remove(entry.key);
+                this.numCancelledStale++;
+            }
+            else if (frustum != null && globe != null && !frustum.intersects(this.getExtent(entry, globe,
+                verticalExaggeration)))
+            {
+                this.queuedEntries.remove(entry.key);
+                this.numCancelledOutOfView++;
+            }
+            else
+            {
+                rerankedEntries.add(entry);
+            }
+        }
+
+        // Entries renewed during the frame were re-ranked when they were renewed. Add the others back now that their
+        // ranks relative to the renewed entries may have changed.
+        this.queue.addAll(rerankedEntries);
+
+        // Forget tiles that have not been requested recently.
+        for (Iterator<Long> iter = this.lastRequestFrames.values().iterator(); iter.hasNext(); )
+        {
+            if (this.frameNumber - iter.next() >= this.staleFrameLimit)
+                iter.remove();
+        }
+
+        this.frameNumber++;
+    }
+
+    /**
+     * Indicates whether a tile has been requested recently, within the stale frame limit. Requests for tiles not
+     * requested recently are no longer needed.
+     *
+     * @param tileKey the tile's key.
+     *
+     * @return true if the tile has been requested recently, or is queued or being loaded, otherwise false.
+     */
+    public synchronized boolean isRequestCurrent(TileKey tileKey)
+    {
+        return tileKey != null && (this.lastRequestFrames.containsKey(tileKey)
+            || this.queuedEntries.containsKey(tileKey) || this.runningEntries.containsKey(tileKey));
+    }
+
+    /**
+     * Indicates whether a retrieval, such as a {@link gov.nasa.worldwind.retrieve.Retriever}, is for a tile that is no
+     * longer requested. Retrievals identify their tiles by their {@link AVKey#TILE_KEY} value. Retrievals without a
+     * tile key, and all retrievals when the World Wind task service is not a <code>TileRequestScheduler</code>, are
+     * never abandoned. The scheduler counts the abandoned retrievals this method identifies.
+     *
+     * @param retrieval the retrieval to check.
+     *
+     * @return true if the retrieval is abandoned and should be cancelled, otherwise false.
+     */
+    public static boolean checkAbandoned(WWObject retrieval)
+    {
+        if (retrieval == null)
+            return false;
+
+        Object tileKey = retrieval.getValue(AVKey.TILE_KEY);
+        TaskService taskService = WorldWind.getTaskService();
+        if (!(tileKey instanceof TileKey) || !(taskService instanceof TileRequestScheduler))
+            return false;
+
+        TileRequestScheduler scheduler = (TileRequestScheduler) taskService;
+        synchronized (scheduler)
+        {
+            if (scheduler.isRequestCurrent((TileKey) tileKey))
+                return false;
+
+            scheduler.numRetrievalsAbandoned++;
+            return true;
+        }
+    }
+
+    public synchronized int getQueueDepth()
+    {
+        return this.queue.size();
+    }
+
+    public synchronized long getNumSubmitted()
+    {
+        return this.numSubmitted;
+    }
+
+    /**
+     * Indicates the number of requests that renewed a request already queued or running, rather than adding one.
+     *
+     * @return the number of coalesced requests.
+     */
+    public synchronized long getNumCoalesced()
+    {
+        return this.numCoalesced;
+    }
+
+    public synchronized long getNumExecuted()
+    {
+        return this.numExecuted;
+    }
+
+    public synchronized long getNumCancelledOutOfView()
+    {
+        return this.numCancelledOutOfView;
+    }
+
+    public synchronized long getNumCancelledStale()
+    {
+        return this.numCancelledStale;
+    }
+
+    /**
+     * Indicates the number of requests dropped, or removed from the queue, to keep the queue within its size.
+     *
+     * @return the number of dropped requests.
+     */
+    public synchronized long getNumDropped()
+    {
+        return this.numDropped;
+    }
+
+    /**
+     * Indicates the number of tile requests that ran to completion after their tiles were no longer requested.
+     *
+     * @return the number of wasted requests.
+     */
+    public synchronized long getNumWasted()
+    {
+        return this.numWasted;
+    }
+
+    public synchronized long getNumRetrievalsAbandoned()
+    {
+        return this.numRetrievalsAbandoned;
+    }
+
+    /**
+     * Adds the scheduler's metrics to the per-frame statistics of a draw context, if the draw context's statistics
+     * keys include {@link PerformanceStatistic#TILE_REQUESTS}.
+     *
+     * @param dc the draw context.
+     */
+    public synchronized void setPerFrameStatistics(DrawContext dc)
+    {
+        Set<String> keys = dc.getPerFrameStatisticsKeys();
+        if (keys == null || !(keys.contains(PerformanceStatistic.TILE_REQUESTS)
+            || keys.contains(PerformanceStatistic.ALL)))
+            return;
+
+        String key = PerformanceStatistic.TILE_REQUESTS;
+        dc.setPerFrameStatistic(key, "Tile request queue depth", this.queue.size());
+        dc.setPerFrameStatistic(key + ".Coalesced", "Tile requests coalesced", this.numCoalesced);
+        dc.setPerFrameStatistic(key + ".Cancelled", "Tile requests cancelled",
+            this.numCancelledOutOfView + this.numCancelledStale);
+        dc.setPerFrameStatistic(key + ".Dropped", "Tile requests dropped", this.numDropped);
+        dc.setPerFrameStatistic(key + ".Wasted", "Tile requests wasted", this.numWasted);
+        dc.setPerFrameStatistic(key + ".Abandoned", "Tile retrievals abandoned", this.numRetrievalsAbandoned);
+    }
+
+    protected static Object keyFor(Runnable runnable)
+    {
+        return runnable instanceof TileRequest ? ((TileRequest) runnable).getTileKey() : runnable;
+    }
+
+    protected Extent getExtent(Entry entry, Globe globe, double verticalExaggeration)
+    {
+        if (entry.extent == null)
+            entry.extent = Sector.computeBoundingBox(globe, verticalExaggeration, ((TileRequest) entry.task).getSector());
+
+        return entry.extent;
+    }
+
+    protected void removeQueuedEntry(Entry entry)
+    {
+        this.queue.remove(entry);
+        this.queuedEntries.remove(entry.key);
+    }
+
+    /**
+     * Removes the highest ranked entry from the queue and marks it running.
+     *
+     * @return the entry, or null if the queue is empty, in which case the calling worker is retired.
+     */
+    protected synchronized Entry nextEntry()
+    {
+        if (this.queue.isEmpty())
+        {
+            this.numWorkers--;
+            return null;
+        }
+
+        Entry entry = this.queue.pollFirst();
+        this.queuedEntries.remove(entry.key);
+        this.runningEntries.put(entry.key, entry);
+
+        return entry;
+    }
+
+    protected synchronized void entryCompleted(Entry entry)
+    {
+        this.runningEntries.remove(entry.key);
+        this.numExecuted++;
+
+        if (entry.tileRequest && !this.lastRequestFrames.containsKey((TileKey) entry.key))
+            this.numWasted++;
+    }
+
+    /** Runs queued tasks in rank order until the queue is empty. */
+    protected class Worker implements Runnable
+    {
+        public void run()
+        {
+            Entry entry;
+            while ((entry = nextEntry()) != null)
+            {
+                Thread thread = Thread.currentThread();
+                try
+                {
+                    thread.setName(RUNNING_THREAD_NAME_PREFIX + entry.task);
+                    entry.task.run();
+                }
+                catch (Throwable e)
+                {
+                    Logging.logger().log(Level.FINE,
+                        Logging.getMessage("ThreadedTaskService.UncaughtExceptionDuringTask", thread.getName()), e);
+                }
+                finally
+                {
+                    Thread.interrupted(); // clear any interrupt so that it doesn't affect the next task
+                    thread.setName(IDLE_THREAD_NAME_PREFIX);
+                    entryCompleted(entry);
+                }
+            }
+        }
+    }
+}
@@ -1201,6 +1201,93 @@ public class WWIO
         return outputFile;
     }
 
+    /**
+     * Saves a buffer to a new temporary file in the same directory as a specified file. The temporary file can then be
+     * renamed to the specified file by {@link #replaceFile(java.io.File, java.io.File)}, so readers of that file never
+     * see it partially written. The directory is created if it does not exist.
+     *
+     * @param buffer the buffer to save.
+     * @param file   the file the buffer is destined for.
+     *
+     * @return the temporary file, or null if it could not be locked for writing.
+     *
+     * @throws IllegalArgumentException if the buffer or file is null.
+     * @throws IOException              if the temporary file can't be created or written. It is deleted in that case.
+     */
+    public static File saveBufferToSiblingTempFile(ByteBuffer buffer, File file) throws IOException
+    {
+        if (buffer == null)
+        {
+            String message = Logging.getMessage("nullValue.ByteBufferIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (file == null)
+        {
+            String message = Logging.getMessage("nullValue.FileIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists())
+        {
+            //noinspection ResultOfMethodCallIgnored
+            dir.mkdirs();
+        }
+
+        // The name's prefix must be at least three characters long.
+        File tempFile = File.createTempFile(file.getName() + "-", ".tmp", dir);
+        boolean saved = false;
+        try
+        {
+            saved = WWIO.saveBuffer(buffer, tempFile);
+        }
+        finally
+        {
+            if (!saved && !tempFile.delete())
+                Logging.logger().fine(Logging.getMessage("generic.CannotDeleteFile", tempFile));
+        }
+
+        return saved ? tempFile : null;
+    }
+
+    /**
+     * Replaces a file with another by renaming the other file. On file systems that replace files by rename atomically,
+     * which include those of Linux and Mac OS X, a reader of the replaced file sees either its previous contents or the
+     * new contents, never a partial or missing file. Elsewhere the file is deleted first, and briefly does not exist.
+     *
+     * @param source      the file to rename. It's deleted if it can't be renamed.
+     * @param destination the file to replace.
+     *
+     * @return true if the file was replaced, otherwise false.
+     *
+     * @throws IllegalArgumentException if either file is null.
+     */
+    public static boolean replaceFile(File source, File destination)
+    {
+        if (source == null || destination == null)
+        {
+            String message = Logging.getMessage("nullValue.FileIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (source.renameTo(destination))
+            return true;
+
+        // File systems that refuse to rename a file onto an existing file.
+        if (destination.exists() && destination.delete() && source.renameTo(destination))
+            return true;
+
+        Logging.logger().log(Level.FINE, Logging.getMessage("WWIO.ErrorSavingBufferTo", destination.getPath()));
+        if (!source.delete())
+            Logging.logger().fine(Logging.getMessage("generic.CannotDeleteFile", source));
+
+        return false;
+    }
+
     public static boolean isFileOutOfDate(URL url, long expiryTime)
     {
         if (url == null)
@@ -1217,6 +1304,14 @@ public class WWIO
             if (uri.isOpaque())
                 return false; // TODO: Determine how to check the date of non-Files
 
+            // File store entries that aren't files, such as packed tiles, report their modification time through
+            // their URL connection.
+            if (!"file".equalsIgnoreCase(uri.getScheme()))
+            {
+                long lastModified = url.openConnection().getLastModified();
+                return lastModified != 0 && lastModified < expiryTime;
+            }
+
             File file = new File(uri);
 
             return file.exists() && file.lastModified() < expiryTime;
@@ -1226,6 +1321,11 @@ public class WWIO
             Logging.logger().log(Level.SEVERE, "WWIO.ExceptionValidatingFileExpiration", url);
             return false;
         }
+        catch (IOException e)
+        {
+            Logging.logger().log(Level.SEVERE, "WWIO.ExceptionValidatingFileExpiration", url);
+            return false;
+        }
     }
 
     public static Proxy configureProxy()
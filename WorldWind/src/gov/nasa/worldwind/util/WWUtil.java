@@ -14,6 +14,7 @@ import java.awt.*;
 import java.lang.reflect.*;
 import java.nio.*;
 import java.text.*;
+import java.util.concurrent.*;
 import java.util.regex.Pattern;
 
 /**
@@ -1270,4 +1271,43 @@ public class WWUtil
             normals.put(i3 + 2, (float) n3.z);
         }
     }
+
+    /**
+     * Creates a pool of a fixed number of daemon threads, so that the pool doesn't prevent the application from
+     * exiting. The caller shuts the pool down when it's no longer needed.
+     *
+     * @param numThreads the number of threads in the pool.
+     * @param threadName the name of the pool's threads.
+     *
+     * @return a new thread pool.
+     *
+     * @throws IllegalArgumentException if the number of threads is less than 1 or the thread name is null.
+     */
+    public static ExecutorService newDaemonThreadPool(int numThreads, final String threadName)
+    {
+        if (numThreads < 1)
+        {
+            String message = Logging.getMessage("generic.ArgumentOutOfRange", "numThreads=" + numThreads);
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        if (threadName == null)
+        {
+            String message = Logging.getMessage("nullValue.NameIsNull");
+            Logging.logger().severe(message);
+            throw new IllegalArgumentException(message);
+        }
+
+        return Executors.newFixedThreadPool(numThreads, new ThreadFactory()
+        {
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable);
+                thread.setDaemon(true);
+                thread.setName(threadName);
+                return thread;
+            }
+        });
+    }
 }
@@ -14,6 +14,7 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.*;
 import java.lang.reflect.Constructor;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Base class for XML event parsers. Handles parsing control and creation of new parser instances.
@@ -37,6 +38,13 @@ abstract public class AbstractXMLEventParser implements XMLEventParser
 {
     protected static final String CHARACTERS_CONTENT = "CharactersContent";
 
+    /** The constructors that take a namespace URI, used by {@link #newInstance()}, by parser class. */
+    protected static final ConcurrentHashMap<Class<?>, Constructor<? extends AbstractXMLEventParser>>
+        namespaceConstructors = new ConcurrentHashMap<Class<?>, Constructor<? extends AbstractXMLEventParser>>();
+    /** The no-argument constructors used by {@link #newInstance()}, by parser class. */
+    protected static final ConcurrentHashMap<Class<?>, Constructor<? extends AbstractXMLEventParser>>
+        defaultConstructors = new ConcurrentHashMap<Class<?>, Constructor<? extends AbstractXMLEventParser>>();
+
     protected String namespaceURI;
 
     protected AVList fields;
@@ -73,15 +81,39 @@ abstract public class AbstractXMLEventParser implements XMLEventParser
         this.namespaceURI = namespaceURI;
     }
 
+    /**
+     * Creates a new empty parser of this parser's class by invoking its public constructor that takes a namespace URI,
+     * or if there is none its public no-argument constructor. The constructor is found once per parser class and is
+     * then reused, but each parser is still created reflectively. Parsers are not pooled or reused, because each holds
+     * the content of the element it parsed and becomes part of the parsed document.
+     *
+     * @return a new parser instance. The namespace URI is the same as this parser's, but all other fields are empty.
+     *
+     * @throws Exception if an error or exception occurs while attempting to create the parser.
+     */
     public XMLEventParser newInstance() throws Exception
     {
-        Constructor<? extends AbstractXMLEventParser> constructor = this.getAConstructor(String.class);
+        Constructor<? extends AbstractXMLEventParser> constructor = namespaceConstructors.get(this.getClass());
         if (constructor != null)
             return constructor.newInstance(this.getNamespaceURI());
 
+        constructor = defaultConstructors.get(this.getClass());
+        if (constructor != null)
+            return constructor.newInstance();
+
+        constructor = this.getAConstructor(String.class);
+        if (constructor != null)
+        {
+            namespaceConstructors.put(this.getClass(), constructor);
+            return constructor.newInstance(this.getNamespaceURI());
+        }
+
         constructor = this.getAConstructor();
         if (constructor != null)
+        {
+            defaultConstructors.put(this.getClass(), constructor);
             return constructor.newInstance();
+        }
 
         return null;
     }
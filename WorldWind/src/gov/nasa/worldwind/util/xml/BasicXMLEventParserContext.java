@@ -40,6 +40,9 @@ public class BasicXMLEventParserContext extends AVListImpl implements XMLEventPa
     /** The parser name of the unrecognized-element parser. */
     public static QName UNRECOGNIZED = new QName(UNRECOGNIZED_ELEMENT_PARSER);
 
+    /** Marks element names in the resolved parser table that have no parser. */
+    protected static final XMLEventParser NO_PARSER = new UnrecognizedXMLEventParser();
+
     protected XMLEventReader reader;
     protected StringXMLEventParser stringParser;
     protected DoubleXMLEventParser doubleParser;
@@ -51,6 +54,14 @@ public class BasicXMLEventParserContext extends AVListImpl implements XMLEventPa
     protected ConcurrentHashMap<String, Object> idTable = new ConcurrentHashMap<String, Object>();
 
     protected ConcurrentHashMap<QName, XMLEventParser> parsers = new ConcurrentHashMap<QName, XMLEventParser>();
+    /**
+     * The parser table entries found for element names, including those found under the alternate default namespace
+     * forms, so that each element name is resolved and its alternate forms are constructed only once per context.
+     * Names with no entry map to {@link #NO_PARSER}. Cleared whenever a parser is registered.
+     */
+    protected ConcurrentHashMap<QName, XMLEventParser> resolvedParsers = new ConcurrentHashMap<QName, XMLEventParser>();
+    /** The maximum number of element names held in the resolved parser table. */
+    protected int maxResolvedParsers = 1000;
 
     /** Construct an instance. Invokes {@link #initializeParsers()} and {@link #initialize()}. */
     public BasicXMLEventParserContext()
@@ -158,6 +169,8 @@ public class BasicXMLEventParserContext extends AVListImpl implements XMLEventPa
         {
             this.parsers.put(new QName(namespace, s), stringParser);
         }
+
+        this.resolvedParsers.clear();
     }
 
     @Override
@@ -168,6 +181,8 @@ public class BasicXMLEventParserContext extends AVListImpl implements XMLEventPa
         {
             this.parsers.put(new QName(namespace, s), doubleParser);
         }
+
+        this.resolvedParsers.clear();
     }
 
     @Override
@@ -178,6 +193,8 @@ public class BasicXMLEventParserContext extends AVListImpl implements XMLEventPa
         {
             this.parsers.put(new QName(namespace, s), integerParser);
         }
+
+        this.resolvedParsers.clear();
     }
 
     @Override
@@ -188,6 +205,8 @@ public class BasicXMLEventParserContext extends AVListImpl implements XMLEventPa
         {
             this.parsers.put(new QName(namespace, s), booleanParser);
         }
+
+        this.resolvedParsers.clear();
     }
 
     @Override
@@ -198,6 +217,8 @@ public class BasicXMLEventParserContext extends AVListImpl implements XMLEventPa
         {
             this.parsers.put(new QName(namespace, s), booleanIntegerParser);
         }
+
+        this.resolvedParsers.clear();
     }
 
     /**
@@ -235,6 +256,7 @@ public class BasicXMLEventParserContext extends AVListImpl implements XMLEventPa
     public void setDefaultNamespaceURI(String defaultNamespaceURI)
     {
         this.defaultNamespaceURI = defaultNamespaceURI;
+        this.resolvedParsers.clear();
     }
 
     public void setNotificationListener(XMLParserNotificationListener listener)
@@ -475,6 +497,7 @@ public class BasicXMLEventParserContext extends AVListImpl implements XMLEventPa
         }
 
         this.parsers.put(elementName, parser);
+        this.resolvedParsers.clear();
     }
 
     public XMLEventParser getParser(QName name)
@@ -486,6 +509,41 @@ public class BasicXMLEventParserContext extends AVListImpl implements XMLEventPa
             throw new IllegalArgumentException(message);
         }
 
+        XMLEventParser factoryParser = this.resolvedParsers.get(name);
+        if (factoryParser == null)
+        {
+            factoryParser = this.resolveParser(name);
+
+            if (this.resolvedParsers.size() < this.maxResolvedParsers)
+                this.resolvedParsers.put(name, factoryParser != null ? factoryParser : NO_PARSER);
+        }
+
+        try
+        {
+            if (factoryParser == null || factoryParser == NO_PARSER)
+                return null;
+
+            return factoryParser.newInstance();
+        }
+        catch (Exception e)
+        {
+            String message = Logging.getMessage("XML.ParserCreationException", name);
+            Logging.logger().log(java.util.logging.Level.WARNING, message, e);
+            return null;
+        }
+    }
+
+    /**
+     * Finds the parser table entry for an element name. If the table has no entry for the name itself, the name is
+     * looked up in the default namespace when it has no namespace, and with no namespace when it's in the default
+     * namespace.
+     *
+     * @param name the element name.
+     *
+     * @return the parser registered for the name, or null if there is none.
+     */
+    protected XMLEventParser resolveParser(QName name)
+    {
         XMLEventParser factoryParser = this.parsers.get(name);
         if (factoryParser == null)
         {
@@ -504,19 +562,7 @@ public class BasicXMLEventParserContext extends AVListImpl implements XMLEventPa
             }
         }
 
-        try
-        {
-            if (factoryParser == null)
-                return null;
-
-            return factoryParser.newInstance();
-        }
-        catch (Exception e)
-        {
-            String message = Logging.getMessage("XML.ParserCreationException", name);
-            Logging.logger().log(java.util.logging.Level.WARNING, message, e);
-            return null;
-        }
+        return factoryParser;
     }
 
     protected static boolean isNullNamespace(String namespaceURI)
@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class SegmentedMemoryCacheTest
+{
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(BasicTests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class BasicTests extends TestCase
+    {
+        public void testAddAndGet()
+        {
+            MemoryCache cache = new SegmentedMemoryCache(800, 1000, 4);
+
+            assertTrue("Add", cache.add("a", "A", 10));
+            assertTrue("Contains", cache.contains("a"));
+            assertEquals("Get", "A", cache.getObject("a"));
+            assertEquals("Num objects", 1, cache.getNumObjects());
+            assertEquals("Used capacity", 10, cache.getUsedCapacity());
+            assertNull("Missing key", cache.getObject("b"));
+        }
+
+        public void testReplaceNotifiesListener()
+        {
+            MemoryCache cache = new SegmentedMemoryCache(800, 1000, 4);
+            final List<Object> removed = new ArrayList<Object>();
+            cache.addCacheListener(new MemoryCache.CacheListener()
+            {
+                public void entryRemoved(Object key, Object clientObject)
+                {
+                    removed.add(clientObject);
+                }
+
+                public void removalException(Throwable exception, Object key, Object clientObject)
+                {
+                }
+            });
+
+            cache.add("a", "A1", 10);
+            cache.add("a", "A2", 20);
+
+            assertEquals("Replaced object", "A2", cache.getObject("a"));
+            assertEquals("Used capacity", 20, cache.getUsedCapacity());
+            assertEquals("Removal notifications", Arrays.asList((Object) "A1"), removed);
+
+            cache.remove("a");
+            assertEquals("Used capacity after remove", 0, cache.getUsedCapacity());
+            assertEquals("Removal notifications after remove", 2, removed.size());
+        }
+
+        public void testEvictionRespectsCapacity()
+        {
+            MemoryCache cache = new SegmentedMemoryCache(600, 1000, 1);
+
+            for (int i = 0; i < 1000; i++)
+            {
+                cache.add(i, i, 10);
+                assertTrue("Used capacity exceeds capacity", cache.getUsedCapacity() <= cache.getCapacity());
+            }
+
+            assertTrue("Most recent entry", cache.contains(999));
+            assertFalse("Oldest entry", cache.contains(0));
+        }
+
+        public void testLargeEntryUsesFreeCapacity()
+        {
+            MemoryCache cache = new SegmentedMemoryCache(600, 1600, 16);
+
+            for (int i = 0; i < 16; i++)
+            {
+                cache.add(i, i, 10);
+            }
+
+            // The entry is larger than a segment's share but fits the cache's free capacity, so nothing is evicted.
+            assertTrue("Large entry added", cache.add("large", "large", 800));
+            assertEquals("Num objects", 17, cache.getNumObjects());
+            assertEquals("Used capacity", 960, cache.getUsedCapacity());
+
+            for (int i = 16; i < 1000; i++)
+            {
+                cache.add(i, i, 10);
+                assertTrue("Used capacity exceeds capacity", cache.getUsedCapacity() <= cache.getCapacity());
+            }
+
+            assertTrue("Most recent entry", cache.contains(999));
+            assertFalse("Oversized entry too large for cache", cache.add("huge", "huge", 1601));
+        }
+
+        public void testReferencedEntriesSurviveEviction()
+        {
+            MemoryCache cache = new SegmentedMemoryCache(500, 1000, 1);
+
+            for (int i = 0; i < 100; i++)
+            {
+                cache.add(i, i, 10);
+            }
+
+            // Reference the oldest entry, then force evictions. The referenced entry gets a second chance.
+            cache.getObject(0);
+            cache.add(100, 100, 10);
+
+            assertTrue("Referenced entry", cache.contains(0));
+            assertFalse("Unreferenced entry", cache.contains(1));
+        }
+
+        public void testClear()
+        {
+            MemoryCache cache = new SegmentedMemoryCache(800, 1000);
+
+            for (int i = 0; i < 50; i++)
+            {
+                cache.add(i, i, 10);
+            }
+
+            cache.clear();
+
+            assertEquals("Num objects", 0, cache.getNumObjects());
+            assertEquals("Used capacity", 0, cache.getUsedCapacity());
+        }
+
+        public void testConcurrentAccess() throws Exception
+        {
+            final MemoryCache cache = new SegmentedMemoryCache(80000, 100000);
+            final AtomicInteger errors = new AtomicInteger();
+            ExecutorService service = Executors.newFixedThreadPool(8);
+
+            for (int t = 0; t < 8; t++)
+            {
+                final int seed = t;
+                service.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        Random random = new Random(seed);
+                        for (int i = 0; i < 20000; i++)
+                        {
+                            int key = random.nextInt(20000);
+                            Object value = cache.getObject(key);
+                            if (value != null && !value.equals(key))
+                                errors.incrementAndGet();
+                            else if (value == null)
+                                cache.add(key, key, 10 + random.nextInt(20));
+                            if (i % 100 == 0)
+                                cache.remove(random.nextInt(20000));
+                        }
+                    }
+                });
+            }
+
+            service.shutdown();
+            assertTrue("Timed out", service.awaitTermination(60, TimeUnit.SECONDS));
+
+            assertEquals("Errors", 0, errors.get());
+            assertTrue("Used capacity exceeds capacity", cache.getUsedCapacity() <= cache.getCapacity());
+
+            cache.clear();
+            assertEquals("Used capacity after clear", 0, cache.getUsedCapacity());
+        }
+    }
+}
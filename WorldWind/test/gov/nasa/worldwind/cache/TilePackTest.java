@@ -0,0 +1,381 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.cache;
+
+import gov.nasa.worldwind.util.WWIO;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.net.URL;
+import java.nio.ByteBuffer;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class TilePackTest
+{
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(PackTests.class);
+        testSuite.addTestSuite(FileStoreTests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    protected static ByteBuffer makeData(int seed, int length)
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++)
+        {
+            buffer.put((byte) (seed * 31 + i));
+        }
+        buffer.flip();
+
+        return buffer;
+    }
+
+    public static class PackTests extends TestCase
+    {
+        protected File directory;
+
+        @Override
+        protected void setUp() throws Exception
+        {
+            this.directory = WWIO.makeTempDir();
+        }
+
+        @Override
+        protected void tearDown() throws Exception
+        {
+            WWIO.deleteDirectory(this.directory);
+        }
+
+        public void testPutGetRemove() throws IOException
+        {
+            TilePack pack = new TilePack(this.directory);
+            try
+            {
+                pack.put("a/b/1.dds", makeData(1, 100), 1234L);
+                pack.put("a/b/2.dds", makeData(2, 50), 5678L);
+
+                assertEquals("Num entries", 2, pack.getNumEntries());
+                assertEquals("Contents", makeData(1, 100), pack.get("a/b/1.dds"));
+                assertEquals("Contents", makeData(2, 50), pack.get("a/b/2.dds"));
+                assertEquals("Last modified", 5678L, pack.getLastModified("a/b/2.dds"));
+                assertNull("Missing blob", pack.get("a/b/3.dds"));
+
+                pack.put("a/b/1.dds", makeData(3, 10), 9999L);
+                assertEquals("Replaced contents", makeData(3, 10), pack.get("a/b/1.dds"));
+                assertEquals("Num entries after replace", 2, pack.getNumEntries());
+
+                assertTrue("Remove", pack.remove("a/b/2.dds"));
+                assertFalse("Contains removed", pack.contains("a/b/2.dds"));
+                assertFalse("Remove twice", pack.remove("a/b/2.dds"));
+                assertEquals("Num entries after remove", 1, pack.getNumEntries());
+            }
+            finally
+            {
+                pack.close();
+            }
+        }
+
+        public void testReopenAndGrow() throws IOException
+        {
+            // A small maximum pack size forces several pack files, and the entry count forces index rebuilds.
+            int numEntries = 10000;
+            TilePack pack = new TilePack(this.directory, 64 * 1024);
+            try
+            {
+                for (int i = 0; i < numEntries; i++)
+                {
+                    pack.put("tiles/" + i + ".bil", makeData(i, 1 + i % 97), i);
+                }
+
+                for (int i = 0; i < numEntries; i += 2)
+                {
+                    pack.remove("tiles/" + i + ".bil");
+                }
+            }
+            finally
+            {
+                pack.close();
+            }
+
+            pack = new TilePack(this.directory, 64 * 1024);
+            try
+            {
+                assertEquals("Num entries", numEntries / 2, pack.getNumEntries());
+                for (int i = 0; i < numEntries; i++)
+                {
+                    String name = "tiles/" + i + ".bil";
+                    if (i % 2 == 0)
+                    {
+                        assertNull("Removed blob " + i, pack.get(name));
+                    }
+                    else
+                    {
+                        assertEquals("Contents " + i, makeData(i, 1 + i % 97), pack.get(name));
+                        assertEquals("Last modified " + i, i, pack.getLastModified(name));
+                    }
+                }
+            }
+            finally
+            {
+                pack.close();
+            }
+        }
+
+        public void testRebuildsMissingOrCorruptIndex() throws IOException
+        {
+            int numEntries = 5000;
+            TilePack pack = new TilePack(this.directory, 64 * 1024);
+            try
+            {
+                for (int i = 0; i < numEntries; i++)
+                {
+                    pack.put("tiles/" + i + ".bil", makeData(i, 1 + i % 97), i);
+                }
+
+                for (int i = 0; i < numEntries; i += 3)
+                {
+                    pack.remove("tiles/" + i + ".bil");
+                }
+
+                for (int i = 1; i < numEntries; i += 3)
+                {
+                    pack.put("tiles/" + i + ".bil", makeData(-i, 5), -i);
+                }
+            }
+            finally
+            {
+                pack.close();
+            }
+
+            // Corrupt the index, then remove it entirely. Either way the pack's contents are recovered.
+            for (int attempt = 0; attempt < 2; attempt++)
+            {
+                for (File file : this.directory.listFiles())
+                {
+                    if (!file.getName().endsWith(TilePack.INDEX_FILE_SUFFIX))
+                        continue;
+
+                    if (attempt == 0)
+                        WWIO.saveBuffer(makeData(0, 64), file);
+                    else
+                        assertTrue("Deleted index", file.delete());
+                }
+
+                pack = new TilePack(this.directory, 64 * 1024);
+                try
+                {
+                    assertEquals("Num entries", numEntries - (numEntries + 2) / 3, pack.getNumEntries());
+                    for (int i = 0; i < numEntries; i++)
+                    {
+                        String name = "tiles/" + i + ".bil";
+                        if (i % 3 == 0)
+                        {
+                            assertNull("Removed blob " + i, pack.get(name));
+                        }
+                        else if (i % 3 == 1)
+                        {
+                            assertEquals("Replaced contents " + i, makeData(-i, 5), pack.get(name));
+                            assertEquals("Last modified " + i, -i, pack.getLastModified(name));
+                        }
+                        else
+                        {
+                            assertEquals("Contents " + i, makeData(i, 1 + i % 97), pack.get(name));
+                            assertEquals("Last modified " + i, i, pack.getLastModified(name));
+                        }
+                    }
+                }
+                finally
+                {
+                    pack.close();
+                }
+            }
+        }
+
+        public void testRebuildAppendsOverIncompleteRecord() throws IOException
+        {
+            TilePack pack = new TilePack(this.directory);
+            try
+            {
+                pack.put("tiles/1.bil", makeData(1, 100), 1);
+            }
+            finally
+            {
+                pack.close();
+            }
+
+            // Simulate a crash while appending a record, which also loses the index.
+            File packFile = new File(this.directory, TilePack.PACK_FILE_PREFIX + 0 + TilePack.PACK_FILE_SUFFIX);
+            RandomAccessFile raf = new RandomAccessFile(packFile, "rw");
+            try
+            {
+                raf.seek(raf.length());
+                raf.writeInt(11);
+                raf.writeInt(1000);
+                raf.writeLong(2);
+                raf.write("tiles/2.bil".getBytes("UTF-8"));
+                raf.write(new byte[10]);
+            }
+            finally
+            {
+                raf.close();
+            }
+            for (File file : this.directory.listFiles())
+            {
+                if (file.getName().endsWith(TilePack.INDEX_FILE_SUFFIX))
+                    assertTrue("Deleted index", file.delete());
+            }
+
+            pack = new TilePack(this.directory);
+            try
+            {
+                assertEquals("Num entries", 1, pack.getNumEntries());
+                assertNull("Incomplete blob", pack.get("tiles/2.bil"));
+
+                pack.put("tiles/3.bil", makeData(3, 30), 3);
+                assertEquals("Contents", makeData(3, 30), pack.get("tiles/3.bil"));
+            }
+            finally
+            {
+                pack.close();
+            }
+
+            for (File file : this.directory.listFiles())
+            {
+                if (file.getName().endsWith(TilePack.INDEX_FILE_SUFFIX))
+                    assertTrue("Deleted index", file.delete());
+            }
+
+            pack = new TilePack(this.directory);
+            try
+            {
+                assertEquals("Num entries", 2, pack.getNumEntries());
+                assertEquals("Contents", makeData(1, 100), pack.get("tiles/1.bil"));
+                assertEquals("Contents", makeData(3, 30), pack.get("tiles/3.bil"));
+            }
+            finally
+            {
+                pack.close();
+            }
+        }
+
+        public void testReadsAcrossMappingIncrements() throws IOException
+        {
+            // Blobs are read as they're appended, and span the ends of the pack file's mapping as it grows.
+            int blobSize = (int) (TilePack.MAPPING_INCREMENT / 3) + 1;
+            int numBlobs = 8;
+            TilePack pack = new TilePack(this.directory);
+            try
+            {
+                assertTrue("Pack registered as open", TilePack.openPacks.contains(pack));
+
+                for (int i = 0; i < numBlobs; i++)
+                {
+                    pack.put("tiles/" + i + ".bil", makeData(i, blobSize), i);
+                    for (int j = 0; j <= i; j++)
+                    {
+                        assertEquals("Contents " + j, makeData(j, blobSize), pack.get("tiles/" + j + ".bil"));
+                    }
+                }
+            }
+            finally
+            {
+                pack.close();
+            }
+
+            assertFalse("Pack registered as open", TilePack.openPacks.contains(pack));
+        }
+    }
+
+    public static class FileStoreTests extends TestCase
+    {
+        protected File directory;
+        protected TilePackFileStore store;
+
+        @Override
+        protected void setUp() throws Exception
+        {
+            this.directory = WWIO.makeTempDir();
+            this.store = new TilePackFileStore(this.directory);
+            this.store.setQuietPeriod(0);
+        }
+
+        @Override
+        protected void tearDown() throws Exception
+        {
+            this.store.closeTilePack();
+            WWIO.deleteDirectory(this.directory);
+        }
+
+        public void testFindFilePacksNewFile() throws IOException
+        {
+            File file = this.store.newFile("Earth/Layer/0/0/0_0.dds");
+            assertNotNull("New file", file);
+            WWIO.saveBuffer(makeData(7, 300), file);
+
+            URL url = this.store.findFile("Earth/Layer/0/0/0_0.dds", false);
+            assertNotNull("Find file", url);
+            assertEquals("Protocol", TilePackFileStore.PROTOCOL, url.getProtocol());
+            assertFalse("Loose file deleted", file.exists());
+            assertTrue("Contains file", this.store.containsFile("Earth/Layer/0/0/0_0.dds"));
+            assertEquals("Contents", makeData(7, 300), WWIO.readURLContentToBuffer(url));
+            assertFalse("Not expired", WWIO.isFileOutOfDate(url, 0));
+
+            this.store.removeFile(url);
+            assertNull("Find removed file", this.store.findFile("Earth/Layer/0/0/0_0.dds", false));
+        }
+
+        public void testSaveBufferPacksWithoutLooseFile() throws IOException
+        {
+            String name = "Earth/Layer/0/0/0_1.bil";
+            assertTrue("Packs file", this.store.packsFile(name));
+            assertFalse("Packs unpackable file", this.store.packsFile("Earth/Layer/config.xml"));
+
+            assertTrue("Saved", this.store.saveBuffer(name, makeData(9, 40), false));
+            assertFalse("Saved over existing", this.store.saveBuffer(name, makeData(10, 40), false));
+            assertTrue("Overwritten", this.store.saveBuffer(name, makeData(11, 40), true));
+
+            assertFalse("Loose file", new File(this.directory, name).exists());
+            URL url = this.store.findFile(name, false);
+            assertEquals("Protocol", TilePackFileStore.PROTOCOL, url.getProtocol());
+            assertEquals("Contents", makeData(11, 40), WWIO.readURLContentToBuffer(url));
+            assertTrue("Expired", WWIO.isFileOutOfDate(url, System.currentTimeMillis() + 1000));
+        }
+
+        public void testReadImageFromPackURL() throws IOException
+        {
+            BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+            image.setRGB(3, 4, 0x123456);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", bytes);
+
+            this.store.saveBuffer("Earth/Layer/0/0/0_2.png", ByteBuffer.wrap(bytes.toByteArray()), false);
+
+            URL url = this.store.findFile("Earth/Layer/0/0/0_2.png", false);
+            BufferedImage packedImage = ImageIO.read(url);
+            assertNotNull("Image", packedImage);
+            assertEquals("Pixel", 0x123456, packedImage.getRGB(3, 4) & 0xFFFFFF);
+        }
+
+        public void testUnpackableFileStaysInPlace() throws IOException
+        {
+            File file = this.store.newFile("Earth/Layer/config.xml");
+            WWIO.saveBuffer(makeData(8, 20), file);
+
+            URL url = this.store.findFile("Earth/Layer/config.xml", false);
+            assertNotNull("Find file", url);
+            assertEquals("Protocol", "file", url.getProtocol());
+            assertTrue("Loose file exists", file.exists());
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.data;
+
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.cache.BasicMemoryCache;
+import gov.nasa.worldwind.formats.tiff.GeotiffWriter;
+import gov.nasa.worldwind.geom.Sector;
+import gov.nasa.worldwind.util.WWIO;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class TiledRasterProducerTest
+{
+    private static final long CACHE_SIZE = 300000;
+
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        private final List<File> files = new ArrayList<File>();
+
+        @Override
+        protected void tearDown() throws Exception
+        {
+            for (File file : this.files)
+            {
+                if (file.isDirectory())
+                    WWIO.deleteDirectory(file);
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+
+        public void testParallelProductionMatchesSequential() throws Exception
+        {
+            List<Object> sources = new ArrayList<Object>();
+            sources.add(this.writeSource("Whole", createElevations(240, 240, Sector.fromDegrees(0, 1.2, 0, 1.2)),
+                false));
+            sources.add(this.writeSource("Whole", createElevations(240, 240, Sector.fromDegrees(0.8, 2, 0.8, 2)),
+                false));
+            sources.add(this.writeSource("Window", createElevations(400, 200, Sector.fromDegrees(0.5, 1.5, 0, 2)),
+                true));
+            sources.add(createElevations(160, 160, Sector.fromDegrees(1.2, 2, 0, 0.8)));
+
+            Map<String, byte[]> sequential = this.produce(sources, 1);
+            Map<String, byte[]> parallel = this.produce(sources, 4);
+
+            assertTrue("Tiles produced", sequential.size() > 10);
+            assertEquals("Files produced", sequential.keySet(), parallel.keySet());
+            for (Map.Entry<String, byte[]> entry : sequential.entrySet())
+            {
+                assertTrue("Contents of " + entry.getKey(), Arrays.equals(entry.getValue(),
+                    parallel.get(entry.getKey())));
+            }
+        }
+
+        private Map<String, byte[]> produce(List<Object> sources, int threadPoolSize) throws Exception
+        {
+            File location = File.createTempFile("TiledRasterProducerTest", "");
+            //noinspection ResultOfMethodCallIgnored
+            location.delete();
+            this.files.add(location);
+
+            AVList params = new AVListImpl();
+            params.setValue(AVKey.FILE_STORE_LOCATION, location.getAbsolutePath());
+            params.setValue(AVKey.DATA_CACHE_NAME, "Elevations");
+            params.setValue(AVKey.DATASET_NAME, "Elevations");
+            params.setValue(AVKey.TILE_WIDTH, 32);
+            params.setValue(AVKey.TILE_HEIGHT, 32);
+            params.setValue(AVKey.NUM_LEVELS, 4);
+            params.setValue(AVKey.TILED_RASTER_PRODUCER_THREAD_POOL_SIZE, threadPoolSize);
+
+            TiledElevationProducer producer = new TestProducer();
+            producer.setStoreParameters(params);
+            for (Object source : sources)
+            {
+                producer.offerDataSource(source, null);
+            }
+            producer.startProduction();
+
+            Map<String, byte[]> contents = new TreeMap<String, byte[]>();
+            readFiles(location, "", contents);
+            return contents;
+        }
+
+        private File writeSource(String name, DataRaster raster, boolean tiled) throws IOException
+        {
+            File file = File.createTempFile("TiledRasterProducerTest" + name, ".tif");
+            this.files.add(file);
+
+            GeotiffWriter writer = new GeotiffWriter(file);
+            try
+            {
+                if (tiled)
+                {
+                    writer.setTileSize(64);
+                    writer.writeTiled(raster, null);
+                }
+                else
+                {
+                    writer.write(raster);
+                }
+            }
+            finally
+            {
+                writer.close();
+            }
+
+            return file;
+        }
+    }
+
+    /** Reads sources whose names contain "Whole" whole, and the rest by window. */
+    private static class TestProducer extends TiledElevationProducer
+    {
+        public TestProducer()
+        {
+            super(new BasicMemoryCache((long) (0.8 * CACHE_SIZE), CACHE_SIZE)
+            {
+                @Override
+                public boolean add(Object key, Object clientObject, long clientObjectSize)
+                {
+                    // The whole-read sources don't fit in the cache together, so each evicts the other while it's
+                    // being drawn.
+                    return super.add(key, clientObject, 2 * CACHE_SIZE / 3);
+                }
+            }, 2);
+        }
+
+        @Override
+        protected DataRasterReader[] getDataRasterReaders()
+        {
+            return new DataRasterReader[] {new WholeGeotiffRasterReader(), new GeotiffRasterReader()};
+        }
+    }
+
+    private static class WholeGeotiffRasterReader extends AbstractDataRasterReader
+    {
+        private final GeotiffRasterReader reader = new GeotiffRasterReader();
+
+        public WholeGeotiffRasterReader()
+        {
+            super(new String[] {"image/tiff"}, new String[] {"tif"});
+        }
+
+        protected boolean doCanRead(Object source, AVList params)
+        {
+            String path = WWIO.getSourcePath(source);
+            return path != null && path.contains("Whole") && this.reader.doCanRead(source, params);
+        }
+
+        protected DataRaster[] doRead(Object source, AVList params) throws IOException
+        {
+            return this.reader.doRead(source, params);
+        }
+
+        protected void doReadMetadata(Object source, AVList params) throws IOException
+        {
+            this.reader.doReadMetadata(source, params);
+        }
+    }
+
+    private static ByteBufferRaster createElevations(int width, int height, Sector sector)
+    {
+        AVList params = new AVListImpl();
+        params.setValue(AVKey.DATA_TYPE, AVKey.INT16);
+        params.setValue(AVKey.BYTE_ORDER, AVKey.BIG_ENDIAN);
+        ByteBufferRaster raster = new ByteBufferRaster(width, height, sector, params);
+        for (int y = 0; y < height; y++)
+        {
+            for (int x = 0; x < width; x++)
+            {
+                double lat = sector.getMaxLatitude().degrees - y * sector.getDeltaLatDegrees() / (height - 1);
+                double lon = sector.getMinLongitude().degrees + x * sector.getDeltaLonDegrees() / (width - 1);
+                raster.setDoubleAtPosition(y, x, Math.round(1000 * Math.sin(7 * lat) * Math.cos(5 * lon)));
+            }
+        }
+        raster.setValue(AVKey.PIXEL_FORMAT, AVKey.ELEVATION);
+
+        return raster;
+    }
+
+    private static byte[] readFile(File file) throws IOException
+    {
+        java.nio.ByteBuffer buffer = WWIO.readFileToBuffer(file);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static void readFiles(File directory, String path, Map<String, byte[]> contents) throws IOException
+    {
+        File[] children = directory.listFiles();
+        if (children == null)
+            return;
+
+        for (File child : children)
+        {
+            String childPath = path + "/" + child.getName();
+            if (child.isDirectory())
+                readFiles(child, childPath, contents);
+            else
+                contents.put(childPath, readFile(child));
+        }
+    }
+}
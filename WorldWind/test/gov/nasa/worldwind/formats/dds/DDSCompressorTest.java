@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.formats.dds;
+
+import gov.nasa.worldwind.util.ImageUtil;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.awt.image.*;
+import java.nio.*;
+import java.util.Random;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class DDSCompressorTest
+{
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        protected static final String[] COMPRESSION_TYPES = {
+            DXTCompressionAttributes.COLOR_BLOCK_COMPRESSION_BBOX,
+            DXTCompressionAttributes.COLOR_BLOCK_COMPRESSION_EUCLIDEAN_DISTANCE,
+            DXTCompressionAttributes.COLOR_BLOCK_COMPRESSION_LUMINANCE_DISTANCE};
+
+        protected static final int[][] SIZES = {{64, 64}, {32, 8}, {4, 16}, {2, 2}, {1, 1}, {8, 2}, {1, 4}};
+
+        public void testPackedDXT1MatchesDXT1Compressor()
+        {
+            for (String compressionType : COMPRESSION_TYPES)
+            {
+                for (int[] size : SIZES)
+                {
+                    for (int i = 0; i < 4; i++)
+                    {
+                        DXTCompressionAttributes attributes = new DXTCompressionAttributes();
+                        attributes.setColorBlockCompressionType(compressionType);
+                        attributes.setPremultiplyAlpha((i & 1) != 0);
+                        attributes.setEnableDXT1Alpha((i & 2) != 0);
+
+                        BufferedImage image = createImage(size[0], size[1], BufferedImage.TYPE_INT_ARGB);
+                        assertCompressedEquals(compressionType, new DXT1Compressor(),
+                            new PackedDXTCompressor(DDSConstants.D3DFMT_DXT1), image, attributes);
+                    }
+                }
+            }
+        }
+
+        public void testPackedDXT3MatchesDXT3Compressor()
+        {
+            for (String compressionType : COMPRESSION_TYPES)
+            {
+                for (int[] size : SIZES)
+                {
+                    DXTCompressionAttributes attributes = new DXTCompressionAttributes();
+                    attributes.setColorBlockCompressionType(compressionType);
+
+                    BufferedImage image = createImage(size[0], size[1], BufferedImage.TYPE_INT_ARGB);
+                    assertCompressedEquals(compressionType, new DXT3Compressor(),
+                        new PackedDXTCompressor(DDSConstants.D3DFMT_DXT3), image, attributes);
+                }
+            }
+        }
+
+        public void testConcurrentCompressionMatchesSingleThread()
+        {
+            BufferedImage image = createImage(256, 128, BufferedImage.TYPE_INT_ARGB);
+
+            ByteBuffer expected = new DDSCompressor(1).compressImage(image,
+                DDSCompressor.getDefaultCompressionAttributes());
+            ByteBuffer actual = new DDSCompressor(4).compressImage(image,
+                DDSCompressor.getDefaultCompressionAttributes());
+
+            assertEquals("DDS file", expected, actual);
+        }
+
+        public void testMipMapLevels()
+        {
+            BufferedImage image = createImage(64, 16, BufferedImage.TYPE_INT_RGB);
+            DXTCompressionAttributes attributes = DDSCompressor.getDefaultCompressionAttributes();
+
+            int[][] levels = new DDSCompressor(4).buildMipMapPixels(image, attributes);
+            BufferedImage[] expected = ImageUtil.buildMipmaps(image, BufferedImage.TYPE_INT_ARGB_PRE,
+                ImageUtil.getMaxMipmapLevel(64, 16));
+
+            assertEquals("Number of levels", expected.length, levels.length);
+            for (int level = 0; level < levels.length; level++)
+            {
+                int width = expected[level].getWidth();
+                int height = expected[level].getHeight();
+                assertEquals("Level size", width * height, levels[level].length);
+
+                int[] pixels = expected[level].getRGB(0, 0, width, height, null, 0, width);
+                for (int i = 0; i < pixels.length; i++)
+                {
+                    for (int shift = 0; shift < 32; shift += 8)
+                    {
+                        int e = (pixels[i] >>> shift) & 0xFF;
+                        int a = (levels[level][i] >>> shift) & 0xFF;
+                        assertTrue("Level " + level + " pixel " + i, Math.abs(e - a) <= 1);
+                    }
+                }
+            }
+        }
+
+        protected static BufferedImage createImage(int width, int height, int type)
+        {
+            // Smoothly varying colors with noise, and alpha that covers the whole range in the image's left half and
+            // is opaque in its right half, so blocks of DXT1 images are compressed both with and without alpha.
+            Random random = new Random(width * 31 + height);
+            BufferedImage image = new BufferedImage(width, height, type);
+            for (int y = 0; y < height; y++)
+            {
+                for (int x = 0; x < width; x++)
+                {
+                    int a = x < width / 2 ? random.nextInt(256) : 255;
+                    int r = (8 * x + random.nextInt(32)) & 0xFF;
+                    int g = (8 * y + random.nextInt(32)) & 0xFF;
+                    int b = random.nextInt(256);
+                    image.setRGB(x, y, (a << 24) | (r << 16) | (g << 8) | b);
+                }
+            }
+
+            return image;
+        }
+
+        protected static void assertCompressedEquals(String message, DXTCompressor expectedCompressor,
+            DXTCompressor actualCompressor, BufferedImage image, DXTCompressionAttributes attributes)
+        {
+            int size = expectedCompressor.getCompressedSize(image, attributes);
+            assertEquals(message + " size", size, actualCompressor.getCompressedSize(image, attributes));
+
+            ByteBuffer expected = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer actual = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+            expectedCompressor.compressImage(image, attributes, expected);
+            actualCompressor.compressImage(image, attributes, actual);
+
+            assertEquals(message + " position", expected.position(), actual.position());
+            expected.rewind();
+            actual.rewind();
+            assertEquals(message + " " + image.getWidth() + "x" + image.getHeight(), expected, actual);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.formats.nitfs;
+
+import gov.nasa.worldwind.formats.rpf.RPFImageType;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class NITFSImageSegmentTest
+{
+    private static final int NUM_KERNELS = 300;
+    private static final int NUM_ROWS = 6;
+    private static final int NUM_CODES_PER_ROW = 64;
+    private static final int NUM_COLOR_ENTRIES = 217;
+    private static final int TRANSPARENT_COLOR_CODE = 216;
+    private static final int BACKGROUND = 0x12345678;
+
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        private final Random random = new Random(7);
+
+        public void testDecompressionMatchesKernelCopies()
+        {
+            CompressionLookupRecord[] luts = new CompressionLookupRecord[4];
+            for (int h = 0; h < 4; h++)
+            {
+                luts[h] = makeLookupTable(h);
+            }
+            NITFSImageBand imageBand = makeImageBand();
+
+            int width = 4 * NUM_CODES_PER_ROW + 8;
+            int height = 4 * NUM_ROWS + 4;
+
+            for (RPFImageType imageType : RPFImageType.values())
+            {
+                for (boolean hasTransparentPixels : new boolean[] {false, true})
+                {
+                    byte[] codeBytes = makeCodes(hasTransparentPixels);
+
+                    int[] expected = new int[width * height];
+                    Arrays.fill(expected, BACKGROUND);
+                    decompressByKernelCopies(ByteBuffer.wrap(codeBytes), luts, imageBand, imageType,
+                        hasTransparentPixels, expected, 4, 2, width);
+
+                    int[] colors = new int[256];
+                    boolean[] transparent = new boolean[256];
+                    NITFSImageSegment.makeColorTable(imageBand, imageType,
+                        hasTransparentPixels ? TRANSPARENT_COLOR_CODE : -1, colors, transparent);
+
+                    int[] actual = new int[width * height];
+                    Arrays.fill(actual, BACKGROUND);
+                    NITFSImageSegment.decompressSubframe(ByteBuffer.wrap(codeBytes), NUM_ROWS,
+                        new byte[NUM_CODES_PER_ROW * 3 / 2], new short[NUM_CODES_PER_ROW],
+                        NITFSImageSegment.getKernelRows(luts), hasTransparentPixels, colors, transparent, actual, 4,
+                        2, width);
+
+                    String message = imageType + (hasTransparentPixels ? " with transparency" : "");
+                    assertTrue(message, Arrays.equals(expected, actual));
+                }
+            }
+        }
+
+        public void testCodeOutOfRange()
+        {
+            CompressionLookupRecord[] luts = new CompressionLookupRecord[4];
+            for (int h = 0; h < 4; h++)
+            {
+                luts[h] = makeLookupTable(h);
+            }
+
+            // Kernel NUM_KERNELS followed by kernel 0.
+            byte[] codeBytes = new byte[NUM_CODES_PER_ROW * 3 / 2];
+            codeBytes[0] = (byte) (NUM_KERNELS >> 4);
+            codeBytes[1] = (byte) ((NUM_KERNELS & 0x0F) << 4);
+
+            try
+            {
+                NITFSImageSegment.decompressSubframe(ByteBuffer.wrap(codeBytes), 1, new byte[codeBytes.length],
+                    new short[NUM_CODES_PER_ROW], NITFSImageSegment.getKernelRows(luts), false, new int[256],
+                    new boolean[256], new int[4 * 4 * NUM_CODES_PER_ROW], 0, 0, 4 * NUM_CODES_PER_ROW);
+                fail("Code out of range decompressed");
+            }
+            catch (NITFSRuntimeException e)
+            {
+                // Expected.
+            }
+        }
+
+        private CompressionLookupRecord makeLookupTable(int tableId)
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(14 + 4 * NUM_KERNELS);
+            buffer.putShort((short) tableId);
+            buffer.putInt(NUM_KERNELS);
+            buffer.putShort((short) 4); // values per record
+            buffer.putShort((short) 8); // value bit length
+            buffer.putInt(14); // table location
+            // Color codes include the transparent code and reserved codes beyond the color table.
+            for (int i = 0; i < 4 * NUM_KERNELS; i++)
+            {
+                buffer.put((byte) this.random.nextInt(256));
+            }
+            buffer.rewind();
+
+            return new CompressionLookupRecord(buffer, 0, null);
+        }
+
+        private NITFSImageBand makeImageBand()
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(18 + 3 * NUM_COLOR_ENTRIES);
+            buffer.put("RGB         300217".getBytes());
+            for (int i = 0; i < 3 * NUM_COLOR_ENTRIES; i++)
+            {
+                buffer.put((byte) this.random.nextInt(256));
+            }
+            buffer.rewind();
+
+            return new NITFSImageBand(buffer);
+        }
+
+        private byte[] makeCodes(boolean hasTransparentKernels)
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(NUM_ROWS * NUM_CODES_PER_ROW * 3 / 2);
+            for (int i = 0; i < NUM_ROWS * NUM_CODES_PER_ROW / 2; i++)
+            {
+                int c0 = this.makeCode(hasTransparentKernels);
+                int c1 = this.makeCode(hasTransparentKernels);
+                buffer.put((byte) (c0 >> 4));
+                buffer.put((byte) (((c0 & 0x0F) << 4) | (c1 >> 8)));
+                buffer.put((byte) c1);
+            }
+
+            return buffer.array();
+        }
+
+        private int makeCode(boolean hasTransparentKernels)
+        {
+            // One kernel in ten is the transparent kernel.
+            return hasTransparentKernels && this.random.nextInt(10) == 0 ? 4095 : this.random.nextInt(NUM_KERNELS);
+        }
+    }
+
+    /** Decompresses kernels one at a time through the lookup tables' copies, as the reader once did. */
+    private static void decompressByKernelCopies(ByteBuffer buffer, CompressionLookupRecord[] luts,
+        NITFSImageBand imageBand, RPFImageType imageType, boolean hasTransparentPixels, int[] pixels, int blockX,
+        int blockY, int width)
+    {
+        byte[] rowBytes = new byte[NUM_CODES_PER_ROW * 3 / 2];
+        short[] codes = new short[NUM_CODES_PER_ROW];
+        byte[][] block4x4 = new byte[4][4];
+
+        for (int row = 0; row < NUM_ROWS; row++)
+        {
+            int qy = blockY + row * 4;
+            buffer.get(rowBytes);
+
+            for (int i = 0, cidx = 0, bidx = 0; i < NUM_CODES_PER_ROW / 2; i++)
+            {
+                short aa = (short) ((0x00FF & (short) rowBytes[bidx++]) << 4);
+                short ab = (short) (0x00FF & (short) rowBytes[bidx++]);
+                short bb = (short) (0x00FF & (short) rowBytes[bidx++]);
+
+                codes[cidx++] = (short) (aa | ((0x00F0 & ab) >> 4));
+                codes[cidx++] = (short) (bb | ((0x000F & ab) << 8));
+            }
+
+            for (int col = 0; col < NUM_CODES_PER_ROW; col++)
+            {
+                if (hasTransparentPixels && 4095 == codes[col])
+                    continue;
+
+                for (int h = 0; h < 4; h++)
+                {
+                    luts[h].copyValues(block4x4[h], 0, codes[col], 4);
+                }
+
+                int qx = blockX + col * 4;
+                for (int h = 0; h < 4; h++)
+                {
+                    for (int w = 0; w < 4; w++)
+                    {
+                        int colorCode = 0x00FF & block4x4[h][w];
+                        if (hasTransparentPixels && TRANSPARENT_COLOR_CODE == colorCode)
+                            continue;
+                        if (imageBand.isReservedApplicationCode(colorCode))
+                            continue;
+
+                        int rgbColor = imageBand.lookupRGB(colorCode);
+                        switch (imageType)
+                        {
+                            case IMAGE_TYPE_ALPHA_RGB:
+                                rgbColor = 0xFF000000 + rgbColor;
+                                break;
+                            case IMAGE_TYPE_GRAY_ALPHA:
+                                rgbColor = (rgbColor << 8) + 0xFF;
+                                break;
+                            case IMAGE_TYPE_RGB_ALPHA:
+                                rgbColor = (rgbColor << 8) + 0xFF;
+                                break;
+                        }
+                        pixels[(qy + h) * width + (qx + w)] = rgbColor;
+                    }
+                }
+            }
+        }
+    }
+}
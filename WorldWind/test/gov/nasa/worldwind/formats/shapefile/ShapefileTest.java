@@ -13,9 +13,9 @@ import junit.framework.*;
 import junit.textui.TestRunner;
 import org.junit.*;
 
-import java.io.File;
+import java.io.*;
 import java.net.*;
-import java.util.Arrays;
+import java.util.*;
 
 /**
  * @author dcollins
@@ -212,6 +212,128 @@ public class ShapefileTest
             shapefile.close();
         }
 
+        //**************************************************************//
+        //********************  Test Mapped Attributes  ****************//
+        //**************************************************************//
+
+        public void testMappedAttributesMatchStreamedAttributes() throws Exception
+        {
+            String dbfPath = WWIO.replaceSuffix(STATE_BOUNDS_PATH, ".dbf");
+            DBaseFile streamed = new DBaseFile(new FileInputStream(dbfPath));
+            MappedDBaseFile mapped = new MappedDBaseFile(new File(dbfPath));
+            assertEquals("Number of records not as expected", streamed.getNumberOfRecords(),
+                mapped.getNumberOfRecords());
+
+            long[] ids = mapped.getLongColumn("ID");
+            double[] lengths = mapped.getNumberColumn("LENGTH");
+            MappedDBaseFile.StringColumn idStrings = mapped.getStringColumn("ID");
+            assertEquals("String column not dictionary encoded", 16, idStrings.getNumberOfValues());
+
+            for (int i = 0; streamed.hasNext(); i++)
+            {
+                DBaseRecord expected = streamed.nextRecord();
+                DBaseRecord actual = mapped.getRecord(i);
+                assertEquals("Record number not as expected", expected.getRecordNumber(), actual.getRecordNumber());
+                assertEquals("Record attributes not as expected", expected.getEntries(), actual.getEntries());
+
+                assertEquals("Long column not as expected", expected.getValue("ID"), ids[i]);
+                assertEquals("Number column not as expected", expected.getValue("LENGTH"), lengths[i]);
+                assertEquals("String column not as expected", expected.getValue("ID").toString(), idStrings.get(i));
+            }
+
+            streamed.close();
+            mapped.close();
+        }
+
+        public void testAttributeFilter()
+        {
+            Shapefile shapefile = new Shapefile(new File(STATE_BOUNDS_PATH));
+            shapefile.setAttributeFilter(MappedDBaseFile.fieldEquals("ID", "131"));
+
+            int numRecords = 0;
+            while (shapefile.hasNext())
+            {
+                ShapefileRecord record = shapefile.nextRecord();
+                assertRecordAppearsNormal(shapefile, record);
+                assertEquals("Record attribute not as expected", 131L, record.getAttributes().getValue("ID"));
+                numRecords++;
+            }
+
+            shapefile.close();
+            assertEquals("Number of records not as expected", 2, numRecords);
+
+            MappedDBaseFile dbaseFile = new MappedDBaseFile(new File(WWIO.replaceSuffix(STATE_BOUNDS_PATH, ".dbf")));
+            assertTrue("Selected records not as expected", Arrays.equals(new int[] {11, 12, 14, 15},
+                dbaseFile.selectRecords(MappedDBaseFile.fieldInRange("LENGTH", 5, 30))));
+            dbaseFile.close();
+        }
+
+        //**************************************************************//
+        //********************  Test Concurrent Reading  ***************//
+        //**************************************************************//
+
+        public void testNextRecordsMatchesNextRecord()
+        {
+            Shapefile expected = new Shapefile(new File(STATE_BOUNDS_PATH));
+            Shapefile actual = new Shapefile(new File(STATE_BOUNDS_PATH));
+
+            // Read the first record sequentially to verify that only the remaining records are read.
+            assertRecordsEqual(expected.nextRecord(), actual.nextRecord());
+
+            List<ShapefileRecord> records = actual.nextRecords(3);
+            assertFalse("Shapefile has records remaining", actual.hasNext());
+
+            for (ShapefileRecord record : records)
+            {
+                assertRecordAppearsNormal(actual, record);
+                assertRecordsEqual(expected.nextRecord(), record);
+            }
+
+            assertFalse("Number of records not as expected", expected.hasNext());
+
+            expected.close();
+            actual.close();
+        }
+
+        public void testSectorFilter()
+        {
+            Sector sector = Sector.fromDegrees(38, 42, -80, -74);
+
+            Shapefile shapefile = new Shapefile(new File(STATE_BOUNDS_PATH));
+            List<Integer> expectedNumbers = new ArrayList<Integer>();
+            while (shapefile.hasNext())
+            {
+                ShapefileRecord record = shapefile.nextRecord();
+                if (sector.intersects(Sector.fromDegrees(record.getBoundingRectangle())))
+                    expectedNumbers.add(record.getRecordNumber());
+            }
+            shapefile.close();
+
+            assertTrue("Test sector selects no records", expectedNumbers.size() > 0);
+            assertTrue("Test sector selects all records", expectedNumbers.size() < 19);
+
+            shapefile = new Shapefile(new File(STATE_BOUNDS_PATH));
+            shapefile.setSectorFilter(sector);
+            List<Integer> numbers = new ArrayList<Integer>();
+            while (shapefile.hasNext())
+            {
+                numbers.add(shapefile.nextRecord().getRecordNumber());
+            }
+            shapefile.close();
+            assertEquals("Sequentially read records not as expected", expectedNumbers, numbers);
+
+            shapefile = new Shapefile(new File(STATE_BOUNDS_PATH));
+            shapefile.setSectorFilter(sector);
+            numbers.clear();
+            for (ShapefileRecord record : shapefile.nextRecords(2))
+            {
+                assertRecordAppearsNormal(shapefile, record);
+                numbers.add(record.getRecordNumber());
+            }
+            shapefile.close();
+            assertEquals("Concurrently read records not as expected", expectedNumbers, numbers);
+        }
+
         //**************************************************************//
         //********************  Utilities  *****************************//
         //**************************************************************//
@@ -238,6 +360,29 @@ public class ShapefileTest
             }
         }
 
+        public static void assertRecordsEqual(ShapefileRecord expected, ShapefileRecord actual)
+        {
+            assertEquals("Record number not as expected", expected.getRecordNumber(), actual.getRecordNumber());
+            assertEquals("Record type not as expected", expected.getShapeType(), actual.getShapeType());
+            assertEquals("Record parts not as expected", expected.getNumberOfParts(), actual.getNumberOfParts());
+            assertTrue("Record bounds not as expected", Arrays.equals(expected.getBoundingRectangle(),
+                actual.getBoundingRectangle()));
+            assertEquals("Record attributes not as expected", expected.getAttributes().getEntries(),
+                actual.getAttributes().getEntries());
+
+            for (int i = 0; i < expected.getNumberOfParts(); i++)
+            {
+                assertEquals("Record part size not as expected", expected.getNumberOfPoints(i),
+                    actual.getNumberOfPoints(i));
+
+                Iterator<double[]> expectedCoords = expected.getPointBuffer(i).getCoords().iterator();
+                for (double[] coords : actual.getPointBuffer(i).getCoords())
+                {
+                    assertTrue("Record point not as expected", Arrays.equals(expectedCoords.next(), coords));
+                }
+            }
+        }
+
         public static void assertRecordAppearsNormal(Shapefile shapefile, ShapefileRecord record)
         {
             assertNotNull("Record is null", record);
@@ -0,0 +1,273 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.formats.tiff;
+
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.data.*;
+import gov.nasa.worldwind.geom.Sector;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class GeotiffWriterTest
+{
+    private static final int WIDTH = 300;
+    private static final int HEIGHT = 200;
+    private static final Sector SECTOR = Sector.fromDegrees(10, 20, 30, 45);
+
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        public void testTiledElevations() throws Exception
+        {
+            File file = writeTiled(createElevations());
+            GeotiffReader reader = new GeotiffReader(file);
+            try
+            {
+                // 300x200, 150x100, 75x50 and 38x25, which fits in a 64 pixel tile.
+                assertEquals("Number of images", 4, reader.getNumImages());
+                assertOverviews(reader);
+
+                BufferWrapperRaster raster = (BufferWrapperRaster) reader.readDataRaster(0);
+                assertEquals("Elevation", elevation(17, 3), raster.getDoubleAtPosition(3, 17), 0);
+                assertEquals("Elevation", elevation(WIDTH - 1, HEIGHT - 1),
+                    raster.getDoubleAtPosition(HEIGHT - 1, WIDTH - 1), 0);
+
+                // Each overview sample averages a 2x2 block of the image above it.
+                BufferWrapperRaster overview = (BufferWrapperRaster) reader.readDataRaster(1);
+                double expected = (elevation(20, 10) + elevation(21, 10) + elevation(20, 11) + elevation(21, 11)) / 4;
+                assertEquals("Overview elevation", Math.round(expected), overview.getDoubleAtPosition(5, 10), 0);
+            }
+            finally
+            {
+                reader.close();
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+
+        public void testTiledImage() throws Exception
+        {
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            for (int y = 0; y < HEIGHT; y++)
+            {
+                for (int x = 0; x < WIDTH; x++)
+                {
+                    image.setRGB(x, y, color(x, y));
+                }
+            }
+            BufferedImageRaster source = new BufferedImageRaster(SECTOR, image);
+            source.setValue(AVKey.PIXEL_FORMAT, AVKey.IMAGE);
+
+            // Classic TIFF and BigTIFF.
+            for (long maxClassicOffset : new long[] {Long.MAX_VALUE, 0})
+            {
+                File file = writeTiled(source, maxClassicOffset);
+                GeotiffReader reader = new GeotiffReader(file);
+                try
+                {
+                    assertEquals("Number of images", 4, reader.getNumImages());
+                    assertOverviews(reader);
+
+                    BufferedImage result = ((BufferedImageRaster) reader.readDataRaster(0)).getBufferedImage();
+                    assertEquals("Color", color(17, 3), result.getRGB(17, 3));
+                    assertEquals("Color", color(WIDTH - 1, HEIGHT - 1), result.getRGB(WIDTH - 1, HEIGHT - 1));
+                }
+                finally
+                {
+                    reader.close();
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+        }
+
+        public void testWindowReadsOverview() throws Exception
+        {
+            BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_ARGB);
+            BufferedImageRaster source = new BufferedImageRaster(SECTOR, image);
+            source.setValue(AVKey.PIXEL_FORMAT, AVKey.IMAGE);
+
+            File file = writeTiled(source);
+            try
+            {
+                // The coarsest image at least as fine as the requested raster is read.
+                GeotiffRasterReader reader = new GeotiffRasterReader();
+                assertWindowSize(reader.readWindow(file, SECTOR, 75, 50, null), 75, 50);
+                assertWindowSize(reader.readWindow(file, SECTOR, 100, 60, null), 150, 100);
+
+                // A quarter of the full image, 75x50 pixels with a pixel's margin, is finer than the 150x100 overview.
+                Sector quarter = Sector.fromDegrees(10, 12.5, 30, 33.75);
+                DataRaster[] rasters = reader.readWindow(file, quarter, 40, 30, null);
+                assertEquals("Number of rasters", 1, rasters.length);
+                assertTrue("Window width", rasters[0].getWidth() >= 75 && rasters[0].getWidth() <= 77);
+                assertTrue("Window height", rasters[0].getHeight() >= 50 && rasters[0].getHeight() <= 52);
+            }
+            finally
+            {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+
+        public void testTiledBigTiff() throws Exception
+        {
+            DataRaster source = createElevations();
+            File classic = writeTiled(source);
+            // BigTIFF from the start, and BigTIFF once the classic IFDs turn out to pass the limit.
+            File[] files = new File[] {writeTiled(source, 0), writeTiled(source, classic.length() - 1)};
+            GeotiffReader classicReader = new GeotiffReader(classic);
+            try
+            {
+                assertEquals("Classic TIFF", 42, readMagicNumber(classic));
+                for (File file : files)
+                {
+                    assertEquals("BigTIFF", 43, readMagicNumber(file));
+
+                    GeotiffReader reader = new GeotiffReader(file);
+                    try
+                    {
+                        assertEquals("Number of images", 4, reader.getNumImages());
+                        assertOverviews(reader);
+                        for (int i = 0; i < reader.getNumImages(); i++)
+                        {
+                            BufferWrapperRaster expected = (BufferWrapperRaster) classicReader.readDataRaster(i);
+                            BufferWrapperRaster actual = (BufferWrapperRaster) reader.readDataRaster(i);
+                            for (int y = 0; y < expected.getHeight(); y++)
+                            {
+                                for (int x = 0; x < expected.getWidth(); x++)
+                                {
+                                    assertEquals("Elevation", expected.getDoubleAtPosition(y, x),
+                                        actual.getDoubleAtPosition(y, x), 0);
+                                }
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        reader.close();
+                    }
+                }
+            }
+            finally
+            {
+                classicReader.close();
+                //noinspection ResultOfMethodCallIgnored
+                classic.delete();
+                for (File file : files)
+                {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+        }
+
+        private static void assertWindowSize(DataRaster[] rasters, int width, int height)
+        {
+            assertEquals("Number of rasters", 1, rasters.length);
+            assertEquals("Window width", width, rasters[0].getWidth());
+            assertEquals("Window height", height, rasters[0].getHeight());
+            assertEquals("Window sector", SECTOR, rasters[0].getSector());
+        }
+
+        private static File writeTiled(DataRaster source) throws Exception
+        {
+            return writeTiled(source, Long.MAX_VALUE);
+        }
+
+        /** Writes a tiled GeoTIFF, as BigTIFF if the file would extend past a specified offset. */
+        private static File writeTiled(DataRaster source, final long maxClassicOffset) throws Exception
+        {
+            File file = File.createTempFile("GeotiffWriterTest", ".tif");
+            GeotiffWriter writer = new GeotiffWriter(file)
+            {
+                @Override
+                protected boolean requiresBigTiff(long offset)
+                {
+                    return offset > maxClassicOffset;
+                }
+            };
+            try
+            {
+                writer.setTileSize(64);
+                writer.writeTiled(source, null);
+            }
+            finally
+            {
+                writer.close();
+            }
+
+            return file;
+        }
+
+        private static void assertOverviews(GeotiffReader reader) throws Exception
+        {
+            AVList fullResolution = reader.copyMetadataTo(0, null);
+            for (int i = 1; i < reader.getNumImages(); i++)
+            {
+                AVList overview = reader.copyMetadataTo(i, null);
+                assertEquals("Overview width", (reader.getWidth(i - 1) + 1) / 2, reader.getWidth(i));
+                assertEquals("Overview height", (reader.getHeight(i - 1) + 1) / 2, reader.getHeight(i));
+                assertEquals("Overview sector", fullResolution.getValue(AVKey.SECTOR),
+                    overview.getValue(AVKey.SECTOR));
+            }
+        }
+    }
+
+    private static ByteBufferRaster createElevations()
+    {
+        AVList params = new AVListImpl();
+        params.setValue(AVKey.DATA_TYPE, AVKey.INT16);
+        params.setValue(AVKey.BYTE_ORDER, AVKey.BIG_ENDIAN);
+        ByteBufferRaster raster = new ByteBufferRaster(WIDTH, HEIGHT, SECTOR, params);
+        for (int y = 0; y < HEIGHT; y++)
+        {
+            for (int x = 0; x < WIDTH; x++)
+            {
+                raster.setDoubleAtPosition(y, x, elevation(x, y));
+            }
+        }
+        raster.setValue(AVKey.PIXEL_FORMAT, AVKey.ELEVATION);
+
+        return raster;
+    }
+
+    private static int readMagicNumber(File file) throws IOException
+    {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try
+        {
+            raf.seek(2);
+            return raf.readUnsignedShort();
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    private static double elevation(int x, int y)
+    {
+        return 3 * x - 7 * y;
+    }
+
+    private static int color(int x, int y)
+    {
+        return 0xFF000000 | (x & 0xFF) << 16 | (y & 0xFF) << 8 | ((x * y) & 0xFF);
+    }
+}
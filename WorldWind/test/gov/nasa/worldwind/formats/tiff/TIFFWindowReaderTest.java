@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.formats.tiff;
+
+import gov.nasa.worldwind.data.*;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.awt.*;
+import java.awt.image.Raster;
+import java.io.*;
+import java.nio.*;
+import java.util.*;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class TIFFWindowReaderTest
+{
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 30;
+
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        public void testTiledDeflateWindow() throws Exception
+        {
+            File file = writeTiff(createTiledDeflateImage());
+            try
+            {
+                assertWindowsRead(file);
+                // A second reader of the same file uses the IFDs parsed by the first.
+                assertWindowsRead(file);
+            }
+            finally
+            {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+
+        public void testStrippedPackBitsWindow() throws Exception
+        {
+            File file = writeTiff(createStrippedPackBitsImage());
+            try
+            {
+                assertWindowsRead(file);
+            }
+            finally
+            {
+                //noinspection ResultOfMethodCallIgnored
+                file.delete();
+            }
+        }
+
+        public void testPackBitsUncompress()
+        {
+            byte[] encoded = new byte[] {2, 1, 2, 3, (byte) -3, 9, (byte) -128, 0, 4};
+            byte[] bytes = new byte[8];
+            TIFFWindowReader.packBitsUncompress(ByteBuffer.wrap(encoded), bytes);
+            assertTrue(Arrays.equals(new byte[] {1, 2, 3, 9, 9, 9, 9, 4}, bytes));
+        }
+
+        private static void assertWindowsRead(File file) throws IOException
+        {
+            Rectangle[] windows = new Rectangle[] {
+                new Rectangle(0, 0, WIDTH, HEIGHT),
+                new Rectangle(5, 3, 1, 1),
+                new Rectangle(14, 14, 20, 10),
+                new Rectangle(33, 20, 7, 10)
+            };
+
+            GeotiffReader reader = new GeotiffReader(file);
+            try
+            {
+                reader.setDecodeThreadPoolSize(2);
+                for (Rectangle window : windows)
+                {
+                    DataRaster raster = reader.readDataRaster(0, window);
+                    assertEquals("Window width", window.width, raster.getWidth());
+                    assertEquals("Window height", window.height, raster.getHeight());
+
+                    Raster pixels = ((BufferedImageRaster) raster).getBufferedImage().getRaster();
+                    for (int y = 0; y < window.height; y++)
+                    {
+                        for (int x = 0; x < window.width; x++)
+                        {
+                            assertEquals("Sample at " + (window.x + x) + "," + (window.y + y),
+                                sample(window.x + x, window.y + y), pixels.getSample(x, y, 0));
+                        }
+                    }
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+    }
+
+    private static int sample(int x, int y)
+    {
+        return (x * 7 + y * 13) & 0xff;
+    }
+
+    /** An image's chunks and the tags describing them, excluding the chunk offsets. */
+    private static class TestImage
+    {
+        protected final SortedMap<Integer, long[]> tags = new TreeMap<Integer, long[]>();
+        protected final List<byte[]> chunks = new ArrayList<byte[]>();
+        protected int offsetsTag;
+        protected int countsTag;
+    }
+
+    private static TestImage createTiledDeflateImage()
+    {
+        int tileSize = 16;
+        TestImage image = new TestImage();
+        image.tags.put(Tiff.Tag.COMPRESSION, new long[] {Tiff.Compression.DEFLATE});
+        image.tags.put(Tiff.Tag.TIFF_PREDICTOR, new long[] {Tiff.Predictor.HORIZONTAL_DIFFERENCING});
+        image.tags.put(Tiff.Tag.TILE_WIDTH, new long[] {tileSize});
+        image.tags.put(Tiff.Tag.TILE_LENGTH, new long[] {tileSize});
+        image.offsetsTag = Tiff.Tag.TILE_OFFSETS;
+        image.countsTag = Tiff.Tag.TILE_COUNTS;
+
+        for (int ty = 0; ty < HEIGHT; ty += tileSize)
+        {
+            for (int tx = 0; tx < WIDTH; tx += tileSize)
+            {
+                // Tiles are padded to their full size. Each row is differenced from its left neighbor.
+                byte[] tile = new byte[tileSize * tileSize];
+                for (int y = 0; y < tileSize; y++)
+                {
+                    int previous = 0;
+                    for (int x = 0; x < tileSize; x++)
+                    {
+                        int value = sample(tx + x, ty + y);
+                        tile[y * tileSize + x] = (byte) (value - previous);
+                        previous = value;
+                    }
+                }
+
+                Deflater deflater = new Deflater();
+                deflater.setInput(tile);
+                deflater.finish();
+                byte[] buffer = new byte[tile.length * 2 + 64];
+                int length = deflater.deflate(buffer);
+                deflater.end();
+                image.chunks.add(Arrays.copyOf(buffer, length));
+            }
+        }
+
+        return image;
+    }
+
+    private static TestImage createStrippedPackBitsImage()
+    {
+        int rowsPerStrip = 8;
+        TestImage image = new TestImage();
+        image.tags.put(Tiff.Tag.COMPRESSION, new long[] {Tiff.Compression.PACKBITS});
+        image.tags.put(Tiff.Tag.ROWS_PER_STRIP, new long[] {rowsPerStrip});
+        image.offsetsTag = Tiff.Tag.STRIP_OFFSETS;
+        image.countsTag = Tiff.Tag.STRIP_BYTE_COUNTS;
+
+        for (int sy = 0; sy < HEIGHT; sy += rowsPerStrip)
+        {
+            // The last strip holds only the image's remaining rows. Rows are encoded as a literal run of their first
+            // half followed by a replicate run of a single byte, which is then corrected by another literal run.
+            ByteArrayOutputStream strip = new ByteArrayOutputStream();
+            for (int y = sy; y < Math.min(sy + rowsPerStrip, HEIGHT); y++)
+            {
+                int half = WIDTH / 2;
+                strip.write(half - 1);
+                for (int x = 0; x < half; x++)
+                {
+                    strip.write(sample(x, y));
+                }
+                for (int x = half; x < WIDTH; x++)
+                {
+                    int run = 1;
+                    while (x + run < WIDTH && sample(x + run, y) == sample(x, y))
+                    {
+                        run++;
+                    }
+                    if (run > 1)
+                    {
+                        strip.write(1 - run);
+                        strip.write(sample(x, y));
+                        x += run - 1;
+                    }
+                    else
+                    {
+                        strip.write(0);
+                        strip.write(sample(x, y));
+                    }
+                }
+            }
+            image.chunks.add(strip.toByteArray());
+        }
+
+        return image;
+    }
+
+    private static File writeTiff(TestImage image) throws IOException
+    {
+        SortedMap<Integer, long[]> tags = new TreeMap<Integer, long[]>(image.tags);
+        tags.put(Tiff.Tag.IMAGE_WIDTH, new long[] {WIDTH});
+        tags.put(Tiff.Tag.IMAGE_LENGTH, new long[] {HEIGHT});
+        tags.put(Tiff.Tag.BITS_PER_SAMPLE, new long[] {8});
+        tags.put(Tiff.Tag.PHOTO_INTERPRETATION, new long[] {Tiff.Photometric.Grayscale_BlackIsZero});
+        tags.put(Tiff.Tag.SAMPLES_PER_PIXEL, new long[] {1});
+        tags.put(Tiff.Tag.PLANAR_CONFIGURATION, new long[] {Tiff.PlanarConfiguration.CHUNKY});
+        tags.put(Tiff.Tag.SAMPLE_FORMAT, new long[] {Tiff.SampleFormat.UNSIGNED});
+
+        // The header is followed by the chunks, then the IFD, then the IFD's out of line values.
+        long[] offsets = new long[image.chunks.size()];
+        long[] counts = new long[image.chunks.size()];
+        long offset = 8;
+        for (int i = 0; i < offsets.length; i++)
+        {
+            offsets[i] = offset;
+            counts[i] = image.chunks.get(i).length;
+            offset += counts[i];
+        }
+        tags.put(image.offsetsTag, offsets);
+        tags.put(image.countsTag, counts);
+
+        long ifdOffset = offset;
+        long valuesOffset = ifdOffset + 2 + 12 * tags.size() + 4;
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) valuesOffset + 8 * offsets.length + 1024);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt((int) ifdOffset);
+        for (byte[] chunk : image.chunks)
+        {
+            buffer.put(chunk);
+        }
+
+        buffer.putShort((short) tags.size());
+        ByteBuffer values = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        values.position((int) valuesOffset);
+        for (Map.Entry<Integer, long[]> tag : tags.entrySet())
+        {
+            long[] v = tag.getValue();
+            buffer.putShort(tag.getKey().shortValue());
+            if (v.length == 1)
+            {
+                buffer.putShort((short) Tiff.Type.SHORT).putInt(1).putShort((short) v[0]).putShort((short) 0);
+            }
+            else
+            {
+                buffer.putShort((short) Tiff.Type.LONG).putInt(v.length).putInt(values.position());
+                for (long value : v)
+                {
+                    values.putInt((int) value);
+                }
+            }
+        }
+        buffer.putInt(0);
+
+        File file = File.createTempFile("TIFFWindowReaderTest", ".tif");
+        FileOutputStream fos = new FileOutputStream(file);
+        try
+        {
+            fos.write(buffer.array(), 0, values.position());
+        }
+        finally
+        {
+            fos.close();
+        }
+
+        return file;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.geom.coords;
+
+import gov.nasa.worldwind.geom.*;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.util.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class MGRSBatchConverterTest
+{
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        protected static final int NUM_LOCATIONS = 5000;
+
+        public void testLatLonToMGRSMatchesMGRSCoord()
+        {
+            double[] latLons = createLocations(NUM_LOCATIONS, -90, 90);
+            MGRSBatchConverter converter = new MGRSBatchConverter();
+
+            for (int precision = 1; precision <= 5; precision++)
+            {
+                int length = MGRSBatchConverter.getMGRSLength(precision);
+                char[] chars = new char[length * NUM_LOCATIONS];
+                int numConverted = converter.convertLatLonToMGRS(latLons, NUM_LOCATIONS, precision, chars);
+
+                int numExpected = 0;
+                for (int i = 0; i < NUM_LOCATIONS; i++)
+                {
+                    String actual = new String(chars, i * length, length);
+                    MGRSCoord coord;
+                    try
+                    {
+                        coord = MGRSCoord.fromLatLon(Angle.fromDegrees(latLons[2 * i]),
+                            Angle.fromDegrees(latLons[2 * i + 1]), precision);
+                    }
+                    catch (IllegalArgumentException e)
+                    {
+                        assertEquals("Unconvertible location " + i, "", actual.trim());
+                        continue;
+                    }
+
+                    numExpected++;
+                    assertEquals(latLons[2 * i] + ", " + latLons[2 * i + 1], coord.toString(), actual);
+                }
+
+                assertEquals("Number converted", numExpected, numConverted);
+            }
+        }
+
+        public void testRoundTripAccuracy()
+        {
+            // MGRSCoord can't parse the strings of the polar regions.
+            double[] latLons = createLocations(NUM_LOCATIONS, -80, 84);
+            MGRSBatchConverter converter = new MGRSBatchConverter();
+            char[] chars = new char[MGRSBatchConverter.getMGRSLength(5)];
+
+            for (int i = 0; i < NUM_LOCATIONS; i++)
+            {
+                if (!converter.convertLatLonToMGRS(latLons[2 * i], latLons[2 * i + 1], 5, chars, 0))
+                    continue;
+
+                // MGRS truncates to the southwest corner of a one meter square, so the round trip lands within a
+                // couple of meters of the original location.
+                LatLon original = LatLon.fromDegrees(latLons[2 * i], latLons[2 * i + 1]);
+                MGRSCoord coord = MGRSCoord.fromString(new String(chars), null);
+                double distance = LatLon.greatCircleDistance(original,
+                    new LatLon(coord.getLatitude(), coord.getLongitude())).radians * 6378137.0;
+                assertTrue(new String(chars) + " is " + distance + " meters from " + original, distance < 2);
+            }
+        }
+
+        public void testConcurrentPolarConversions() throws Exception
+        {
+            // Polar locations share the converter's UPS converter.
+            final double[] latLons = createLocations(NUM_LOCATIONS, 84, 90);
+            final MGRSBatchConverter converter = new MGRSBatchConverter();
+            final int length = MGRSBatchConverter.getMGRSLength(5);
+            char[] expected = new char[length * NUM_LOCATIONS];
+            converter.convertLatLonToMGRS(latLons, NUM_LOCATIONS, 5, expected);
+
+            final List<char[]> results = Collections.synchronizedList(new ArrayList<char[]>());
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++)
+            {
+                threads[t] = new Thread(new Runnable()
+                {
+                    public void run()
+                    {
+                        char[] chars = new char[length * NUM_LOCATIONS];
+                        converter.convertLatLonToMGRS(latLons, NUM_LOCATIONS, 5, chars);
+                        results.add(chars);
+                    }
+                });
+                threads[t].start();
+            }
+
+            for (Thread thread : threads)
+            {
+                thread.join();
+            }
+
+            assertEquals("Threads completed", threads.length, results.size());
+            for (char[] chars : results)
+            {
+                assertTrue("Strings", Arrays.equals(expected, chars));
+            }
+        }
+
+        public void testSingleConversionLeavesArrayOnFailure()
+        {
+            char[] chars = "xxxxxxxxxxxxxxxxxx".toCharArray();
+            assertFalse(new MGRSBatchConverter().convertLatLonToMGRS(91, 0, 5, chars, 1));
+            assertEquals("xxxxxxxxxxxxxxxxxx", new String(chars));
+
+            assertTrue(new MGRSBatchConverter().convertLatLonToMGRS(0, 0, 1, chars, 1));
+            assertEquals("x31NAA 7 0xxxxxxxx", new String(chars));
+        }
+
+        protected static double[] createLocations(int count, double minLatitude, double maxLatitude)
+        {
+            Random random = new Random(count);
+            double[] latLons = new double[2 * count];
+            for (int i = 0; i < count; i++)
+            {
+                latLons[2 * i] = minLatitude + (maxLatitude - minLatitude) * random.nextDouble();
+                latLons[2 * i + 1] = -180 + 360 * random.nextDouble();
+            }
+
+            return latLons;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.geom.coords;
+
+import gov.nasa.worldwind.avlist.AVKey;
+import gov.nasa.worldwind.geom.Angle;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class UTMBatchConverterTest
+{
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        protected static final int NUM_LOCATIONS = 20000;
+
+        public void testLatLonToUTMMatchesUTMCoord()
+        {
+            double[] latLons = createLocations(NUM_LOCATIONS, -84, 88);
+            double[] utm = new double[4 * NUM_LOCATIONS];
+
+            int numConverted = new UTMBatchConverter().convertLatLonToUTM(latLons, NUM_LOCATIONS, utm);
+
+            int numExpected = 0;
+            for (int i = 0; i < NUM_LOCATIONS; i++)
+            {
+                UTMCoord coord;
+                try
+                {
+                    coord = UTMCoord.fromLatLon(Angle.fromDegrees(latLons[2 * i]), Angle.fromDegrees(latLons[2 * i + 1]));
+                }
+                catch (IllegalArgumentException e)
+                {
+                    assertTrue("Unconvertible location " + i, Double.isNaN(utm[4 * i]));
+                    continue;
+                }
+
+                numExpected++;
+                String location = latLons[2 * i] + ", " + latLons[2 * i + 1];
+                assertEquals("Zone " + location, (double) coord.getZone(), utm[4 * i]);
+                assertEquals("Hemisphere " + location,
+                    AVKey.NORTH.equals(coord.getHemisphere()) ? UTMBatchConverter.NORTH : UTMBatchConverter.SOUTH,
+                    (int) utm[4 * i + 1]);
+                assertEquals("Easting " + location, coord.getEasting(), utm[4 * i + 2], 1e-6);
+                assertEquals("Northing " + location, coord.getNorthing(), utm[4 * i + 3], 1e-6);
+            }
+
+            assertEquals("Number converted", numExpected, numConverted);
+        }
+
+        public void testUTMToLatLonMatchesUTMCoord()
+        {
+            double[] latLons = createLocations(NUM_LOCATIONS, -80, 84);
+            double[] utm = new double[4 * NUM_LOCATIONS];
+            double[] results = new double[2 * NUM_LOCATIONS];
+
+            UTMBatchConverter converter = new UTMBatchConverter();
+            converter.convertLatLonToUTM(latLons, NUM_LOCATIONS, utm);
+            converter.convertUTMToLatLon(utm, NUM_LOCATIONS, results);
+
+            for (int i = 0; i < NUM_LOCATIONS; i++)
+            {
+                if (Double.isNaN(utm[4 * i]))
+                {
+                    assertTrue("Unconvertible coordinate " + i, Double.isNaN(results[2 * i]));
+                    continue;
+                }
+
+                UTMCoord coord = UTMCoord.fromUTM((int) utm[4 * i],
+                    utm[4 * i + 1] == UTMBatchConverter.NORTH ? AVKey.NORTH : AVKey.SOUTH, utm[4 * i + 2],
+                    utm[4 * i + 3]);
+
+                String location = latLons[2 * i] + ", " + latLons[2 * i + 1];
+                assertEquals("Latitude " + location, coord.getLatitude().degrees, results[2 * i], 1e-10);
+                assertEquals("Longitude " + location, coord.getLongitude().degrees, results[2 * i + 1], 1e-10);
+
+                // The round trip returns the original location to well within a millimeter.
+                assertEquals("Round trip latitude " + location, latLons[2 * i], results[2 * i], 1e-8);
+                assertEquals("Round trip longitude " + location, latLons[2 * i + 1], results[2 * i + 1], 1e-8);
+            }
+        }
+
+        public void testInvalidUTMCoordinates()
+        {
+            double[] utm = {
+                0, UTMBatchConverter.NORTH, 500000, 0,
+                61, UTMBatchConverter.NORTH, 500000, 0,
+                31, 0, 500000, 0,
+                31, UTMBatchConverter.SOUTH, 500000, -1,
+                31, UTMBatchConverter.NORTH, 500000, 1e7 + 1};
+            double[] results = new double[10];
+
+            assertEquals(0, new UTMBatchConverter().convertUTMToLatLon(utm, 5, results));
+            for (double result : results)
+            {
+                assertTrue(Double.isNaN(result));
+            }
+        }
+
+        public void testConcurrentConversion() throws Exception
+        {
+            final double[] latLons = createLocations(NUM_LOCATIONS, -80, 84);
+            final double[] expected = new double[4 * NUM_LOCATIONS];
+            final UTMBatchConverter converter = new UTMBatchConverter();
+            converter.convertLatLonToUTM(latLons, NUM_LOCATIONS, expected);
+
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try
+            {
+                List<Future<double[]>> futures = new ArrayList<Future<double[]>>();
+                for (int i = 0; i < 8; i++)
+                {
+                    futures.add(executor.submit(new Callable<double[]>()
+                    {
+                        public double[] call()
+                        {
+                            double[] utm = new double[4 * NUM_LOCATIONS];
+                            converter.convertLatLonToUTM(latLons, NUM_LOCATIONS, utm);
+                            return utm;
+                        }
+                    }));
+                }
+
+                for (Future<double[]> future : futures)
+                {
+                    assertTrue(Arrays.equals(expected, future.get()));
+                }
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+        }
+
+        protected static double[] createLocations(int count, double minLatitude, double maxLatitude)
+        {
+            Random random = new Random(count);
+            double[] latLons = new double[2 * count];
+            for (int i = 0; i < count; i++)
+            {
+                latLons[2 * i] = minLatitude + (maxLatitude - minLatitude) * random.nextDouble();
+                latLons[2 * i + 1] = -180 + 360 * random.nextDouble();
+            }
+
+            return latLons;
+        }
+    }
+}
@@ -6,11 +6,15 @@
 package gov.nasa.worldwind.globes;
 
 import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.terrain.ZeroElevationModel;
 import junit.framework.*;
 import junit.textui.TestRunner;
 import org.junit.*;
 import org.junit.Assert;
 
+import java.nio.*;
+import java.util.*;
+
 /**
  * @author tag
  * @version $Id$
@@ -42,6 +46,102 @@ public class EllipsoidalGlobeTest
             assertEquals("Equatorial radius", radius, 6378137d);
         }
 
+        public void testBulkGeodeticToCartesian()
+        {
+            Vec4 referenceCenter = new Vec4(1000, -2000, 3000);
+            Globe[] globes = new Globe[] {this.globe, new EarthFlat(), new EarthFlat()};
+            ((EarthFlat) globes[2]).setProjection(FlatGlobe.PROJECTION_MERCATOR);
+
+            for (Globe g : globes)
+            {
+                this.assertBulkPointsMatch(g, referenceCenter);
+            }
+        }
+
+        public void testBulkElevationsIncludeGeoidOffsets() throws Exception
+        {
+            EllipsoidalGlobe g = new EllipsoidalGlobe(Earth.WGS84_EQUATORIAL_RADIUS, Earth.WGS84_POLAR_RADIUS,
+                Earth.WGS84_ES, new ZeroElevationModel());
+            g.applyEGMA96Offsets("config/EGM96.dat");
+
+            Sector sector = Sector.fromDegrees(-10, 25, 100, 140);
+            List<LatLon> latlons = new ArrayList<LatLon>();
+            double[] locations = new double[2 * 20];
+            for (int k = 0; k < 20; k++)
+            {
+                double lat = -10 + 1.7 * k;
+                double lon = 100 + 1.9 * k;
+                latlons.add(LatLon.fromDegrees(lat, lon));
+                locations[2 * k] = Math.toRadians(lat);
+                locations[2 * k + 1] = Math.toRadians(lon);
+            }
+
+            double[] listElevations = new double[latlons.size()];
+            g.getElevations(sector, latlons, 0, listElevations);
+            double[] packedElevations = new double[latlons.size()];
+            g.getElevations(sector, locations, 5, 10, true, 0, packedElevations);
+
+            for (int k = 0; k < latlons.size(); k++)
+            {
+                double expected = g.getElevation(latlons.get(k).getLatitude(), latlons.get(k).getLongitude());
+                assertTrue("Offset " + k, expected != 0);
+                assertEquals("List elevation " + k, expected, listElevations[k], 1e-9);
+                assertEquals("Packed elevation " + k, k >= 5 && k < 15 ? expected : 0, packedElevations[k], 1e-9);
+            }
+        }
+
+        private void assertBulkPointsMatch(Globe g, Vec4 referenceCenter)
+        {
+            Sector sector = Sector.fromDegrees(-10, 25, 100, 140);
+            int numLat = 5, numLon = 7;
+            double dLat = sector.getDeltaLatDegrees() / (numLat - 1);
+            double dLon = sector.getDeltaLonDegrees() / (numLon - 1);
+
+            double[] elevations = new double[numLat * numLon];
+            double[] positions = new double[3 * numLat * numLon];
+            Vec4[] expected = new Vec4[numLat * numLon];
+            for (int j = 0, k = 0; j < numLat; j++)
+            {
+                for (int i = 0; i < numLon; i++, k++)
+                {
+                    double lat = sector.getMinLatitude().degrees + j * dLat;
+                    double lon = sector.getMinLongitude().degrees + i * dLon;
+                    elevations[k] = 100 * k;
+                    positions[3 * k] = lat;
+                    positions[3 * k + 1] = lon;
+                    positions[3 * k + 2] = elevations[k];
+                    expected[k] = g.computePointFromPosition(Angle.fromDegrees(lat), Angle.fromDegrees(lon),
+                        elevations[k]).subtract3(referenceCenter);
+                }
+            }
+
+            double[] arrayPoints = new double[positions.length];
+            g.computePointsFromPositions(positions, numLat * numLon, referenceCenter, arrayPoints);
+
+            FloatBuffer bufferPoints = FloatBuffer.allocate(positions.length);
+            g.computePointsFromPositions(DoubleBuffer.wrap(positions), numLat * numLon, referenceCenter,
+                bufferPoints);
+            assertEquals("Buffer position", positions.length, bufferPoints.position());
+
+            FloatBuffer gridPoints = FloatBuffer.allocate(positions.length);
+            g.computePointsFromPositions(sector, numLat, numLon, elevations, referenceCenter, gridPoints);
+
+            for (int k = 0; k < expected.length; k++)
+            {
+                String msg = g.getClass().getSimpleName() + " point " + k;
+                assertEquals(msg, expected[k].x, arrayPoints[3 * k], 1e-6);
+                assertEquals(msg, expected[k].y, arrayPoints[3 * k + 1], 1e-6);
+                assertEquals(msg, expected[k].z, arrayPoints[3 * k + 2], 1e-6);
+                // Float buffers hold points to within a meter at these distances.
+                assertEquals(msg, expected[k].x, bufferPoints.get(3 * k), 1);
+                assertEquals(msg, expected[k].y, bufferPoints.get(3 * k + 1), 1);
+                assertEquals(msg, expected[k].z, bufferPoints.get(3 * k + 2), 1);
+                assertEquals(msg, expected[k].x, gridPoints.get(3 * k), 1);
+                assertEquals(msg, expected[k].y, gridPoints.get(3 * k + 1), 1);
+                assertEquals(msg, expected[k].z, gridPoints.get(3 * k + 2), 1);
+            }
+        }
+
         public void testgeodeticToCartesian()
         {
             Position orig = new Position(LatLon.fromDegrees(30.42515, -97.547562), 200.5d);
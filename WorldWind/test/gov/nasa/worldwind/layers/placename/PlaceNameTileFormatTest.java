@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.layers.placename;
+
+import gov.nasa.worldwind.exception.WWRuntimeException;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class PlaceNameTileFormatTest
+{
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        protected static final String GML =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                + "<wfs:FeatureCollection xmlns:wfs=\"http://www.opengis.net/wfs\""
+                + " xmlns:gml=\"http://www.opengis.net/gml\" xmlns:topp=\"http://www.openplans.org/topp\">"
+                + feature("Paris", "48.8566667", "2.3508333")
+                + feature("São Paulo", "-23.5333333", "-46.6166667")
+                + feature("", "0", "0")
+                + feature("Anchorage", "61.2180556", "-149.9002778")
+                + "</wfs:FeatureCollection>";
+
+        protected static String feature(String name, String lat, String lon)
+        {
+            return "<gml:featureMember><topp:places>"
+                + "<topp:full_name_nd>" + name + "</topp:full_name_nd>"
+                + "<topp:latitude>" + lat + "</topp:latitude>"
+                + "<topp:longitude>" + lon + "</topp:longitude>"
+                + "</topp:places></gml:featureMember>";
+        }
+
+        public void testConvertedTileMatchesGML() throws Exception
+        {
+            ByteBuffer gml = ByteBuffer.wrap(GML.getBytes("UTF-8"));
+            PlaceNameLayer.PlaceNameChunk expected = PlaceNameTileFormat.parseGML(gml).createPlaceNameChunk(null);
+
+            ByteBuffer binary = PlaceNameTileFormat.convertGML(gzip(GML.getBytes("UTF-8")));
+            assertTrue(PlaceNameTileFormat.isBinaryTile(binary));
+            assertFalse(PlaceNameTileFormat.isBinaryTile(gml));
+
+            PlaceNameLayer.PlaceNameChunk actual = PlaceNameTileFormat.decode(null, binary);
+            assertEquals(4, actual.numEntries);
+            for (int i = 0; i < expected.numEntries; i++)
+            {
+                assertEquals(expected.getText(i).toString(), actual.getText(i).toString());
+                assertEquals(expected.latlonArray[2 * i], actual.latlonArray[2 * i], 1e-7);
+                assertEquals(expected.latlonArray[2 * i + 1], actual.latlonArray[2 * i + 1], 1e-7);
+            }
+            assertEquals("São Paulo", actual.getText(1).toString());
+        }
+
+        public void testTruncatedTileIsRejected() throws Exception
+        {
+            ByteBuffer binary = PlaceNameTileFormat.convertGML(ByteBuffer.wrap(GML.getBytes("UTF-8")));
+            binary.limit(binary.limit() - 2);
+
+            try
+            {
+                PlaceNameTileFormat.decode(null, binary);
+                fail("Expected the truncated tile to be rejected");
+            }
+            catch (WWRuntimeException e)
+            {
+                // Expected.
+            }
+        }
+
+        protected static ByteBuffer gzip(byte[] bytes) throws Exception
+        {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            GZIPOutputStream gzos = new GZIPOutputStream(os);
+            gzos.write(bytes);
+            gzos.close();
+
+            return ByteBuffer.wrap(os.toByteArray());
+        }
+    }
+}
@@ -748,6 +748,52 @@ public class KMLTest
             assertEquals("Coordinates not as expected", coords, positions);
         }
 
+        /** Test that the coordinate decoder decodes the same positions as the tokenizer, given input in pieces. */
+        public void testCoordinateDecoder()
+        {
+            String coordString = "-18.3,23.56,9     34.9, 56.0, 2     \t56.9, 19     90.0,23.9,44   "
+                + " 12.3,18,8,3.3,57,-110.9,50,80.1,-23.1 -122.0822035425683,37.42228990140251,1.5e2"
+                + " 1e-30,2.5E+3 x,1,2 7,8";
+
+            List<Position> expected = new ArrayList<Position>();
+            KMLCoordinateTokenizer tokenizer = new KMLCoordinateTokenizer(coordString);
+            while (tokenizer.hasMoreTokens())
+            {
+                try
+                {
+                    expected.add(tokenizer.nextPosition());
+                }
+                catch (NumberFormatException e)
+                {
+                    // The decoder skips tuples that can't be parsed.
+                }
+            }
+
+            // Split the input into pieces that break numbers and tuples, as the XML reader may.
+            KMLCoordinateDecoder decoder = new KMLCoordinateDecoder(1);
+            for (int i = 0; i < coordString.length(); i += 7)
+            {
+                decoder.decode(coordString.substring(i, Math.min(i + 7, coordString.length())));
+            }
+            KMLCoordinateArray positions = decoder.finish();
+
+            assertEquals("Coordinates not as expected", expected, positions);
+            assertEquals("Longitude not as expected", -122.0822035425683, positions.getLongitude(7));
+            assertEquals("Latitude not as expected", 37.42228990140251, positions.getLatitude(7));
+            assertEquals("Altitude not as expected", 150d, positions.getAltitude(7));
+            assertEquals("Buffer size not as expected", 3 * positions.size(), positions.getBuffer().remaining());
+            assertEquals("Position list not as expected", expected, positions.toPositionList());
+            assertEquals("Decoder not reset", 0, decoder.finish().size());
+
+            // Shape positions replace the packed coordinates rather than being retained alongside them.
+            Position.PositionList positionList = new Position.PositionList(positions);
+            List<? extends Position> shapePositions = gov.nasa.worldwind.ogc.kml.impl.KMLUtil.getShapePositions(
+                positionList);
+            assertSame("Shape positions not retained", shapePositions, positionList.list);
+            assertFalse("Packed coordinates retained", positionList.list instanceof KMLCoordinateArray);
+            assertEquals("Shape positions not as expected", expected, shapePositions);
+        }
+
         public void testNestedUnrecognizedElement()
         {
             String item = "Test a String";
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.retrieve;
+
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.io.*;
+import java.net.*;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class PooledRetrievalServiceTest
+{
+    public static void main(String[] args)
+    {
+        new TestRunner().doRun(new TestSuite(Tests.class));
+    }
+
+    protected static byte[] makeContent(int n)
+    {
+        byte[] content = new byte[100 + (n * 37) % 5000];
+        for (int i = 0; i < content.length; i++)
+        {
+            content[i] = (byte) (n + i);
+        }
+
+        return content;
+    }
+
+    /**
+     * A stand-in HTTP server. It keeps connections open and answers pipelined requests in order. The path determines
+     * the response: <code>/tile/N</code> returns content with a content length, <code>/chunked/N</code> returns the same
+     * content chunked, <code>/close/N</code> returns it and closes the connection, <code>/huge</code> declares a length
+     * of a terabyte and closes the connection, and other paths return 404.
+     */
+    protected static class StandInServer implements Runnable
+    {
+        protected final ServerSocket serverSocket;
+        protected final AtomicInteger numConnections = new AtomicInteger();
+        protected final AtomicInteger numRequests = new AtomicInteger();
+
+        public StandInServer() throws IOException
+        {
+            this.serverSocket = new ServerSocket(0);
+            Thread thread = new Thread(this);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        public URL makeURL(String path) throws MalformedURLException
+        {
+            return new URL("http://localhost:" + this.serverSocket.getLocalPort() + path);
+        }
+
+        public void close() throws IOException
+        {
+            this.serverSocket.close();
+        }
+
+        public void run()
+        {
+            try
+            {
+                while (true)
+                {
+                    final Socket socket = this.serverSocket.accept();
+                    this.numConnections.incrementAndGet();
+
+                    Thread thread = new Thread(new Runnable()
+                    {
+                        public void run()
+                        {
+                            serve(socket);
+                        }
+                    });
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+            catch (IOException e)
+            {
+                // The server socket is closed.
+            }
+        }
+
+        protected void serve(Socket socket)
+        {
+            try
+            {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+
+                String requestLine;
+                while ((requestLine = reader.readLine()) != null)
+                {
+                    // Skip the request headers.
+                    String line;
+                    while ((line = reader.readLine()) != null && line.length() > 0)
+                    {
+                    }
+
+                    this.numRequests.incrementAndGet();
+                    String path = requestLine.split(" ")[1];
+                    String[] parts = path.split("/");
+                    boolean close = false;
+
+                    if (parts.length == 3 && parts[1].equals("tile"))
+                    {
+                        byte[] content = makeContent(Integer.parseInt(parts[2]));
+                        out.write(("HTTP/1.1 200 OK\r\nContent-Type: image/png\r\nContent-Length: " + content.length
+                            + "\r\n\r\n").getBytes("UTF-8"));
+                        out.write(content);
+                    }
+                    else if (parts.length == 3 && parts[1].equals("chunked"))
+                    {
+                        byte[] content = makeContent(Integer.parseInt(parts[2]));
+                        out.write("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n".getBytes("UTF-8"));
+                        for (int i = 0; i < content.length; i += 1000)
+                        {
+                            int length = Math.min(1000, content.length - i);
+                            out.write((Integer.toHexString(length) + ";ext=1\r\n").getBytes("UTF-8"));
+                            out.write(content, i, length);
+                            out.write("\r\n".getBytes("UTF-8"));
+                        }
+                        out.write("0\r\n\r\n".getBytes("UTF-8"));
+                    }
+                    else if (parts.length == 3 && parts[1].equals("close"))
+                    {
+                        byte[] content = makeContent(Integer.parseInt(parts[2]));
+                        out.write(("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: " + content.length
+                            + "\r\n\r\n").getBytes("UTF-8"));
+                        out.write(content);
+                        close = true;
+                    }
+                    else if (parts.length == 2 && parts[1].equals("huge"))
+                    {
+                        out.write("HTTP/1.1 200 OK\r\nContent-Length: 1099511627776\r\n\r\n".getBytes("UTF-8"));
+                        close = true;
+                    }
+                    else
+                    {
+                        out.write("HTTP/1.1 404 Not Found\r\nContent-Length: 9\r\n\r\nNot found".getBytes("UTF-8"));
+                    }
+
+                    out.flush();
+                    if (close)
+                        break;
+                }
+
+                socket.close();
+            }
+            catch (IOException e)
+            {
+                // The client closed the connection.
+            }
+        }
+    }
+
+    public static class Tests extends TestCase
+    {
+        protected StandInServer server;
+        protected PooledRetrievalService service;
+        protected ConcurrentHashMap<String, ByteBuffer> results;
+
+        @Override
+        protected void setUp() throws Exception
+        {
+            this.server = new StandInServer();
+            this.service = new PooledRetrievalService();
+            this.service.getConnectionPool().setMaxConnectionsPerHost(2);
+            this.service.getConnectionPool().setPipelineDepth(4);
+            this.results = new ConcurrentHashMap<String, ByteBuffer>();
+        }
+
+        @Override
+        protected void tearDown() throws Exception
+        {
+            this.service.shutdown(true);
+            this.server.close();
+        }
+
+        protected RetrievalFuture retrieve(String path) throws MalformedURLException
+        {
+            final String name = path;
+            HTTPRetriever retriever = new HTTPRetriever(this.server.makeURL(path), new RetrievalPostProcessor()
+            {
+                public ByteBuffer run(Retriever retriever)
+                {
+                    if (retriever.getBuffer() != null)
+                        results.put(name, retriever.getBuffer());
+                    return retriever.getBuffer();
+                }
+            });
+            retriever.setStaleRequestLimit(60000);
+
+            return this.service.runRetriever(retriever, 1);
+        }
+
+        protected static void await(List<RetrievalFuture> futures) throws Exception
+        {
+            for (RetrievalFuture future : futures)
+            {
+                try
+                {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+                catch (ExecutionException e)
+                {
+                    // Failures are checked by the caller.
+                }
+            }
+        }
+
+        /** Tests that many requests are retrieved over a few persistent connections. */
+        public void testManyRequestsShareConnections() throws Exception
+        {
+            int numRequests = 300;
+            List<RetrievalFuture> futures = new ArrayList<RetrievalFuture>();
+            for (int i = 0; i < numRequests; i++)
+            {
+                futures.add(this.retrieve(i % 2 == 0 ? "/tile/" + i : "/chunked/" + i));
+            }
+            await(futures);
+
+            for (int i = 0; i < numRequests; i++)
+            {
+                ByteBuffer buffer = this.results.get(i % 2 == 0 ? "/tile/" + i : "/chunked/" + i);
+                assertNotNull("Result " + i, buffer);
+                assertEquals("Content " + i, ByteBuffer.wrap(makeContent(i)), buffer);
+            }
+
+            assertEquals("Requests", numRequests, this.server.numRequests.get());
+            assertTrue("Connections " + this.server.numConnections.get(), this.server.numConnections.get() <= 2);
+            // Retrievers are removed from the pending count after their futures complete.
+            long deadline = System.currentTimeMillis() + 10000;
+            while (this.service.getNumRetrieversPending() > 0 && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+            assertEquals("Pending retrievers", 0, this.service.getNumRetrieversPending());
+        }
+
+        /** Tests responses that close the connection, missing resources, and the retriever states they produce. */
+        public void testClosedConnectionsAndErrors() throws Exception
+        {
+            List<RetrievalFuture> futures = new ArrayList<RetrievalFuture>();
+            for (int i = 0; i < 20; i++)
+            {
+                futures.add(this.retrieve("/close/" + i));
+            }
+            RetrievalFuture missing = this.retrieve("/missing");
+            futures.add(missing);
+            await(futures);
+
+            for (int i = 0; i < 20; i++)
+            {
+                assertEquals("Content " + i, ByteBuffer.wrap(makeContent(i)), this.results.get("/close/" + i));
+            }
+
+            HTTPRetriever retriever = (HTTPRetriever) missing.getRetriever();
+            assertEquals("Missing response code", 404, retriever.getResponseCode());
+            assertNull("Missing content", this.results.get("/missing"));
+            assertEquals("Missing state", Retriever.RETRIEVER_STATE_SUCCESSFUL, retriever.getState());
+        }
+
+        /** Tests that a response longer than the maximum fails without allocating its declared length. */
+        public void testResponseTooLarge() throws Exception
+        {
+            RetrievalFuture huge = this.retrieve("/huge");
+            RetrievalFuture tile = this.retrieve("/tile/1");
+            try
+            {
+                huge.get(30, TimeUnit.SECONDS);
+                fail("Expected exception");
+            }
+            catch (ExecutionException e)
+            {
+                assertTrue("Exception type", e.getCause() instanceof ProtocolException);
+            }
+
+            await(Arrays.asList(tile));
+            assertEquals("Content", ByteBuffer.wrap(makeContent(1)), this.results.get("/tile/1"));
+        }
+
+        /** Tests that a request to a server that refuses connections fails as it would with a blocking retriever. */
+        public void testConnectionRefused() throws Exception
+        {
+            URL url = this.server.makeURL("/tile/1");
+            this.server.close();
+
+            HTTPRetriever retriever = new HTTPRetriever(url, null);
+            RetrievalFuture future = this.service.runRetriever(retriever, 1);
+            try
+            {
+                future.get(30, TimeUnit.SECONDS);
+                fail("Expected exception");
+            }
+            catch (ExecutionException e)
+            {
+                assertTrue("Exception type", e.getCause() instanceof ConnectException);
+            }
+
+            assertEquals("State", Retriever.RETRIEVER_STATE_ERROR, retriever.getState());
+        }
+    }
+}
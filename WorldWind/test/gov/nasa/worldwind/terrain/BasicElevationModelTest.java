@@ -0,0 +1,248 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.terrain;
+
+import gov.nasa.worldwind.avlist.*;
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.util.*;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.nio.DoubleBuffer;
+import java.util.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class BasicElevationModelTest
+{
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(PackedLocationTests.class);
+        testSuite.addTestSuite(DataGenerationTests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class PackedLocationTests extends TestCase
+    {
+        private static final int TILE_SIZE = 33;
+        private static final int NUM_LOCATIONS = 1000;
+        /** Added to the elevations of the second level's tiles, to tell them from their fallback tiles. */
+        private static final double LEVEL_ONE_OFFSET = 100000;
+
+        private BasicElevationModel model;
+        private Sector sector;
+        private List<LatLon> latlons;
+        private double[] packedDegrees;
+        private double[] packedRadians;
+
+        public void setUp()
+        {
+            this.model = createModelWithTilesInMemory();
+            // The sector spans several tiles of each level, and some of the second level's tiles aren't in memory.
+            this.sector = Sector.fromDegrees(0, 40, 20, 60);
+
+            Random random = new Random(1);
+            this.latlons = new ArrayList<LatLon>(NUM_LOCATIONS);
+            this.packedDegrees = new double[2 * NUM_LOCATIONS];
+            this.packedRadians = new double[2 * NUM_LOCATIONS];
+            for (int i = 0; i < NUM_LOCATIONS; i++)
+            {
+                LatLon ll = LatLon.fromDegrees(40 * random.nextDouble(), 20 + 40 * random.nextDouble());
+                this.latlons.add(ll);
+                this.packedDegrees[2 * i] = ll.getLatitude().degrees;
+                this.packedDegrees[2 * i + 1] = ll.getLongitude().degrees;
+                this.packedRadians[2 * i] = ll.getLatitude().radians;
+                this.packedRadians[2 * i + 1] = ll.getLongitude().radians;
+            }
+        }
+
+        public void testPackedDegreesMatchList()
+        {
+            double[] expected = new double[NUM_LOCATIONS];
+            double[] actual = new double[NUM_LOCATIONS];
+
+            double r1 = this.model.getElevations(this.sector, this.latlons, 0, expected);
+            double r2 = this.model.getElevations(this.sector, this.packedDegrees, 0, NUM_LOCATIONS, false, 0, actual);
+
+            assertEquals("Resolution", r1, r2);
+            assertTrue("Elevations", Arrays.equals(expected, actual));
+
+            int numFromLevelOne = 0;
+            for (double elevation : expected)
+            {
+                if (elevation > LEVEL_ONE_OFFSET / 2)
+                    numFromLevelOne++;
+            }
+            assertTrue("Elevations from the second level", numFromLevelOne > 0);
+            assertTrue("Elevations from fallback tiles", numFromLevelOne < NUM_LOCATIONS);
+        }
+
+        public void testPackedRadiansMatchList()
+        {
+            double[] expected = new double[NUM_LOCATIONS];
+            double[] actual = new double[NUM_LOCATIONS];
+
+            this.model.getUnmappedElevations(this.sector, this.latlons, 0, expected);
+            this.model.getUnmappedElevations(this.sector, this.packedRadians, 0, NUM_LOCATIONS, true, 0, actual);
+
+            for (int i = 0; i < NUM_LOCATIONS; i++)
+            {
+                assertEquals("Elevation " + i, expected[i], actual[i], 1e-9);
+            }
+        }
+
+        public void testOffsetAndCount()
+        {
+            double[] expected = new double[NUM_LOCATIONS];
+            double[] actual = new double[NUM_LOCATIONS];
+            Arrays.fill(actual, -1);
+
+            this.model.getElevations(this.sector, this.latlons, 0, expected);
+            this.model.getElevations(this.sector, this.packedDegrees, 100, 50, false, 0, actual);
+
+            for (int i = 0; i < NUM_LOCATIONS; i++)
+            {
+                if (i < 100 || i >= 150)
+                    assertEquals("Untouched " + i, -1d, actual[i]);
+                else
+                    assertEquals("Elevation " + i, expected[i], actual[i]);
+            }
+        }
+
+        public void testInvalidArguments()
+        {
+            try
+            {
+                this.model.getElevations(this.sector, this.packedDegrees, NUM_LOCATIONS, 1, false, 0,
+                    new double[NUM_LOCATIONS + 1]);
+                fail("Expected an IllegalArgumentException");
+            }
+            catch (IllegalArgumentException e)
+            {
+                // Expected.
+            }
+        }
+
+        private static BasicElevationModel createModelWithTilesInMemory()
+        {
+            AVList params = new AVListImpl();
+            params.setValue(AVKey.SECTOR, Sector.FULL_SPHERE);
+            params.setValue(AVKey.TILE_WIDTH, TILE_SIZE);
+            params.setValue(AVKey.TILE_HEIGHT, TILE_SIZE);
+            params.setValue(AVKey.LEVEL_ZERO_TILE_DELTA, LatLon.fromDegrees(20, 20));
+            params.setValue(AVKey.NUM_LEVELS, 2);
+            params.setValue(AVKey.DATA_CACHE_NAME, "BasicElevationModelTest");
+            params.setValue(AVKey.DATASET_NAME, "BasicElevationModelTest");
+            params.setValue(AVKey.FORMAT_SUFFIX, ".bil");
+            params.setValue(AVKey.NETWORK_RETRIEVAL_ENABLED, false);
+
+            BasicElevationModel model = new BasicElevationModel(params);
+
+            // All of the first level's tiles are in memory, and two of every three of the second level's.
+            for (int row = 0; row < 9; row++)
+            {
+                for (int col = 0; col < 18; col++)
+                {
+                    addTile(model, 0, row, col, 20, 0);
+                }
+            }
+
+            for (int row = 0; row < 18; row++)
+            {
+                for (int col = 0; col < 36; col++)
+                {
+                    if ((row + col) % 3 != 0)
+                        addTile(model, 1, row, col, 10, LEVEL_ONE_OFFSET);
+                }
+            }
+
+            return model;
+        }
+
+        private static void addTile(BasicElevationModel model, int levelNumber, int row, int col, double delta,
+            double offset)
+        {
+            Sector tileSector = Sector.fromDegrees(-90 + delta * row, -90 + delta * (row + 1), -180 + delta * col,
+                -180 + delta * (col + 1));
+            BasicElevationModel.ElevationTile tile = new BasicElevationModel.ElevationTile(tileSector,
+                model.getLevels().getLevel(levelNumber), row, col);
+
+            DoubleBuffer buffer = DoubleBuffer.allocate(TILE_SIZE * TILE_SIZE);
+            for (int i = 0; i < TILE_SIZE * TILE_SIZE; i++)
+            {
+                buffer.put(offset + row * 1000 + col * 100 + Math.sin(i));
+            }
+            buffer.rewind();
+
+            BufferWrapper elevations = new BufferWrapper.DoubleBufferWrapper(buffer);
+            tile.setElevations(elevations, model);
+            model.addTileToCache(tile, elevations);
+        }
+    }
+
+    public static class DataGenerationTests extends TestCase
+    {
+        public void testTileChangesGenerationOfItsSectorOnly()
+        {
+            BasicElevationModel model = PackedLocationTests.createModelWithTilesInMemory();
+            Sector tileSector = Sector.fromDegrees(10, 30, 40, 60);
+            Sector nearby = Sector.fromDegrees(15, 16, 45, 46);
+            Sector distant = Sector.fromDegrees(-50, -40, -100, -90);
+
+            long nearbyGeneration = model.getDataGeneration(nearby);
+            long distantGeneration = model.getDataGeneration(distant);
+
+            BasicElevationModel.ElevationTile tile = new BasicElevationModel.ElevationTile(tileSector,
+                model.getLevels().getFirstLevel(), 5, 11);
+            BufferWrapper elevations = new BufferWrapper.DoubleBufferWrapper(DoubleBuffer.allocate(33 * 33));
+            tile.setElevations(elevations, model);
+            model.addTileToCache(tile, elevations);
+
+            assertTrue("Nearby generation changed", model.getDataGeneration(nearby) != nearbyGeneration);
+            assertEquals("Distant generation", distantGeneration, model.getDataGeneration(distant));
+        }
+
+        public void testCompoundModelGeneration()
+        {
+            Sector sector = Sector.fromDegrees(10, 20, 30, 40);
+            CompoundElevationModel compound = new CompoundElevationModel();
+            ZeroElevationModel child = new ZeroElevationModel();
+
+            long generation = compound.getDataGeneration(sector);
+            compound.addElevationModel(child);
+            assertTrue("Generation changed by add", compound.getDataGeneration(sector) != generation);
+
+            generation = compound.getDataGeneration(sector);
+            assertEquals("Unchanged generation", generation, compound.getDataGeneration(sector));
+            child.setEnabled(false);
+            assertTrue("Generation changed by child", compound.getDataGeneration(sector) != generation);
+        }
+
+        public void testCounterCells()
+        {
+            SectorGenerationCounter counter = new SectorGenerationCounter(10);
+            Sector sector = Sector.fromDegrees(0, 5, 0, 5);
+            assertEquals("Initial generation", 0, counter.getGeneration(sector));
+
+            counter.increment(Sector.fromDegrees(8, 9, 8, 9)); // same cell
+            long generation = counter.getGeneration(sector);
+            assertTrue("Same cell", generation > 0);
+
+            counter.increment(Sector.fromDegrees(20, 30, 20, 30)); // other cells
+            assertEquals("Other cells", generation, counter.getGeneration(sector));
+
+            counter.increment(Sector.FULL_SPHERE);
+            assertTrue("Full sphere", counter.getGeneration(sector) > generation);
+            generation = counter.getGeneration(sector);
+
+            counter.incrementAll();
+            assertTrue("All", counter.getGeneration(Sector.fromDegrees(-90, -80, 170, 180)) > generation);
+        }
+    }
+}
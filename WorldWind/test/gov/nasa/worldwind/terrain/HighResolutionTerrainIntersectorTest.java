@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.terrain;
+
+import gov.nasa.worldwind.geom.*;
+import gov.nasa.worldwind.globes.*;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class HighResolutionTerrainIntersectorTest
+{
+    private static final Sector SECTOR = Sector.fromDegrees(34.4, 34.5, -119.8, -119.7);
+    private static final int NUM_SEGMENTS = 300;
+    private static final int NUM_CANCEL_SEGMENTS = 20;
+
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        private List<Position> positions;
+        private Map<Position, Intersection[]> expected;
+
+        @Override
+        protected void setUp() throws Exception
+        {
+            this.positions = makeSegments();
+
+            // Compute the expected intersections one segment at a time on the calling thread.
+            HighResolutionTerrain terrain = makeTerrain();
+            this.expected = new HashMap<Position, Intersection[]>();
+            for (int i = 0; i < this.positions.size(); i += 2)
+            {
+                Intersection[] intersections = terrain.intersect(this.positions.get(i), this.positions.get(i + 1));
+                if (intersections != null)
+                    this.expected.put(this.positions.get(i), intersections);
+            }
+            assertFalse("No intersections", this.expected.isEmpty());
+        }
+
+        public void testParallelMatchesSerial() throws Exception
+        {
+            HighResolutionTerrainIntersector intersector = new HighResolutionTerrainIntersector(makeTerrain(), 4);
+            intersector.setBatchSize(8);
+
+            Results results = new Results();
+            intersector.intersect(this.positions, results);
+
+            assertTrue("Exceptions " + results.exceptions, results.exceptions.isEmpty());
+            assertResults(this.expected, results.intersections);
+        }
+
+        public void testTerrainIntersectMatchesSerial() throws Exception
+        {
+            Results results = new Results();
+            makeTerrain().intersect(this.positions, results);
+
+            assertTrue("Exceptions " + results.exceptions, results.exceptions.isEmpty());
+            assertResults(this.expected, results.intersections);
+        }
+
+        public void testCancelledJobDoesNotAffectOthers() throws Exception
+        {
+            HighResolutionTerrainIntersector intersector = new HighResolutionTerrainIntersector(makeTerrain(), 4);
+            intersector.setBatchSize(2);
+
+            List<Position> subset = this.positions.subList(0, 2 * NUM_CANCEL_SEGMENTS);
+            HighResolutionTerrainIntersector.Job cancelled = intersector.submit(subset, new Results());
+            Results results = new Results();
+            HighResolutionTerrainIntersector.Job job = intersector.submit(subset, results);
+
+            Thread.sleep(5);
+            cancelled.cancel();
+            cancelled.await();
+            job.await();
+
+            assertTrue("Cancelled", cancelled.isCancelled());
+            assertTrue("Exceptions " + results.exceptions, results.exceptions.isEmpty());
+            assertEquals("Segments completed", NUM_CANCEL_SEGMENTS, job.getNumCompleted());
+
+            Map<Position, Intersection[]> expectedSubset = new HashMap<Position, Intersection[]>(this.expected);
+            expectedSubset.keySet().retainAll(subset);
+            assertResults(expectedSubset, results.intersections);
+        }
+
+        public void testInterruptedTileBuildDoesNotFailWaiters() throws Exception
+        {
+            // Two threads intersect the same segment, so the second waits for the tiles the first builds. The terrain
+            // waits for each tile's elevations, as it would for a retrieval, so the first thread is interrupted while
+            // building a tile the second is waiting for.
+            HighResolutionTerrain terrain = makeTerrain();
+            terrain.getGlobe().setElevationModel(new HillElevationModel(20));
+
+            final Position pA = this.positions.get(0);
+            final Position pB = this.positions.get(1);
+            final Map<Position, Intersection[]> intersections = new ConcurrentHashMap<Position, Intersection[]>();
+            final List<Exception> exceptions = Collections.synchronizedList(new ArrayList<Exception>());
+
+            Thread interrupted = new Thread(new Intersect(terrain, pA, pB, new HashMap<Position, Intersection[]>(),
+                new ArrayList<Exception>()));
+            Thread waiter = new Thread(new Intersect(terrain, pA, pB, intersections, exceptions));
+
+            interrupted.start();
+            Thread.sleep(30);
+            waiter.start();
+            Thread.sleep(30);
+            interrupted.interrupt();
+            interrupted.join();
+            waiter.join();
+
+            assertTrue("Exceptions " + exceptions, exceptions.isEmpty());
+            Map<Position, Intersection[]> expectedSubset = new HashMap<Position, Intersection[]>(this.expected);
+            expectedSubset.keySet().retainAll(Arrays.asList(pA));
+            assertResults(expectedSubset, intersections);
+        }
+    }
+
+    private static class Intersect implements Runnable
+    {
+        private final HighResolutionTerrain terrain;
+        private final Position pA;
+        private final Position pB;
+        private final Map<Position, Intersection[]> intersections;
+        private final List<Exception> exceptions;
+
+        public Intersect(HighResolutionTerrain terrain, Position pA, Position pB,
+            Map<Position, Intersection[]> intersections, List<Exception> exceptions)
+        {
+            this.terrain = terrain;
+            this.pA = pA;
+            this.pB = pB;
+            this.intersections = intersections;
+            this.exceptions = exceptions;
+        }
+
+        public void run()
+        {
+            try
+            {
+                Intersection[] result = this.terrain.intersect(this.pA, this.pB);
+                if (result != null)
+                    this.intersections.put(this.pA, result);
+            }
+            catch (Exception e)
+            {
+                this.exceptions.add(e);
+            }
+        }
+    }
+
+    private static class Results implements HighResolutionTerrain.IntersectionCallback
+    {
+        private final Map<Position, Intersection[]> intersections = new ConcurrentHashMap<Position, Intersection[]>();
+        private final List<Exception> exceptions = Collections.synchronizedList(new ArrayList<Exception>());
+
+        public void intersection(Position pA, Position pB, Intersection[] intersections)
+        {
+            this.intersections.put(pA, intersections);
+        }
+
+        public void exception(Exception exception)
+        {
+            this.exceptions.add(exception);
+        }
+    }
+
+    private static void assertResults(Map<Position, Intersection[]> expected, Map<Position, Intersection[]> actual)
+    {
+        Assert.assertEquals("Segments intersecting", expected.keySet(), actual.keySet());
+        for (Map.Entry<Position, Intersection[]> entry : expected.entrySet())
+        {
+            Intersection[] a = actual.get(entry.getKey());
+            Intersection[] e = entry.getValue();
+            Assert.assertEquals("Number of intersections", e.length, a.length);
+            for (int i = 0; i < e.length; i++)
+            {
+                Assert.assertEquals("Intersection point", 0,
+                    e[i].getIntersectionPoint().distanceTo3(a[i].getIntersectionPoint()), 1e-6);
+            }
+        }
+    }
+
+    private static HighResolutionTerrain makeTerrain()
+    {
+        Globe globe = new EllipsoidalGlobe(Earth.WGS84_EQUATORIAL_RADIUS, Earth.WGS84_POLAR_RADIUS, Earth.WGS84_ES,
+            new HillElevationModel(0));
+
+        return new HighResolutionTerrain(globe, SECTOR, 30d, 1d);
+    }
+
+    private static List<Position> makeSegments()
+    {
+        // Segments descend from above the highest hills to below the lowest valleys, so most intersect the terrain.
+        Random random = new Random(3);
+        List<Position> positions = new ArrayList<Position>();
+        for (int i = 0; i < NUM_SEGMENTS; i++)
+        {
+            positions.add(randomPosition(random, 600));
+            positions.add(randomPosition(random, 20));
+        }
+
+        return positions;
+    }
+
+    private static Position randomPosition(Random random, double elevation)
+    {
+        double lat = SECTOR.getMinLatitude().degrees + random.nextDouble() * SECTOR.getDeltaLatDegrees();
+        double lon = SECTOR.getMinLongitude().degrees + random.nextDouble() * SECTOR.getDeltaLonDegrees();
+
+        return Position.fromDegrees(lat, lon, elevation);
+    }
+
+    /**
+     * Rolling hills between 50 and 550 meters. The first requests for each sector report low resolution data, so that
+     * the terrain waits for better data as it would for a retrieval.
+     */
+    private static class HillElevationModel extends ZeroElevationModel
+    {
+        private final int numSlowRequests;
+        private final ConcurrentHashMap<Sector, AtomicInteger> requests = new ConcurrentHashMap<Sector, AtomicInteger>();
+
+        public HillElevationModel(int numSlowRequests)
+        {
+            this.numSlowRequests = numSlowRequests;
+        }
+
+        @Override
+        public double getMaxElevation()
+        {
+            return 550;
+        }
+
+        @Override
+        public double getMinElevation()
+        {
+            return 50;
+        }
+
+        @Override
+        public double[] getExtremeElevations(Angle latitude, Angle longitude)
+        {
+            return new double[] {50, 550};
+        }
+
+        @Override
+        public double[] getExtremeElevations(Sector sector)
+        {
+            return new double[] {50, 550};
+        }
+
+        @Override
+        public double getElevations(Sector sector, List<? extends LatLon> latlons, double targetResolution,
+            double[] buffer)
+        {
+            for (int i = 0; i < latlons.size(); i++)
+            {
+                buffer[i] = this.getUnmappedElevation(latlons.get(i).getLatitude(), latlons.get(i).getLongitude());
+            }
+
+            if (this.numSlowRequests == 0)
+                return 0;
+
+            this.requests.putIfAbsent(sector, new AtomicInteger());
+            return this.requests.get(sector).incrementAndGet() <= this.numSlowRequests ? 1 : 0;
+        }
+
+        @Override
+        public double getUnmappedElevation(Angle latitude, Angle longitude)
+        {
+            return 300 + 250 * Math.sin(latitude.degrees * 200) * Math.cos(longitude.degrees * 150);
+        }
+    }
+}
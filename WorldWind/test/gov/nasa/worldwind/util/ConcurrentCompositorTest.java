@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class ConcurrentCompositorTest
+{
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        protected static final int CANVAS_SIZE = 1000;
+
+        public void testConcurrentCompositionMatchesSerial() throws Exception
+        {
+            BufferedImage serial = new BufferedImage(CANVAS_SIZE, CANVAS_SIZE, BufferedImage.TYPE_INT_RGB);
+            new ConcurrentCompositor(1).compose(createParts(serial, 500), CANVAS_SIZE, true, null);
+
+            for (int numThreads = 2; numThreads <= 8; numThreads *= 2)
+            {
+                BufferedImage concurrent = new BufferedImage(CANVAS_SIZE, CANVAS_SIZE, BufferedImage.TYPE_INT_RGB);
+                new ConcurrentCompositor(numThreads).compose(createParts(concurrent, 500), CANVAS_SIZE, true, null);
+
+                for (int y = 0; y < CANVAS_SIZE; y++)
+                {
+                    for (int x = 0; x < CANVAS_SIZE; x++)
+                    {
+                        assertEquals(numThreads + " threads at " + x + ", " + y, serial.getRGB(x, y),
+                            concurrent.getRGB(x, y));
+                    }
+                }
+            }
+        }
+
+        public void testProgressAndFailures() throws Exception
+        {
+            BufferedImage canvas = new BufferedImage(CANVAS_SIZE, CANVAS_SIZE, BufferedImage.TYPE_INT_RGB);
+            List<TestPart> parts = createParts(canvas, 100);
+            parts.get(10).fail = true;
+            parts.get(50).fail = true;
+
+            final AtomicInteger numComposed = new AtomicInteger();
+            new ConcurrentCompositor(4).compose(parts, CANVAS_SIZE, false,
+                new ConcurrentCompositor.Listener<Color>()
+                {
+                    public void partComposed(ConcurrentCompositor.Part<Color> part)
+                    {
+                        assertFalse(((TestPart) part).fail);
+                        numComposed.incrementAndGet();
+                    }
+                });
+
+            assertEquals(98, numComposed.get());
+        }
+
+        public void testAbortOnError() throws Exception
+        {
+            BufferedImage canvas = new BufferedImage(CANVAS_SIZE, CANVAS_SIZE, BufferedImage.TYPE_INT_RGB);
+            List<TestPart> parts = createParts(canvas, 100);
+            parts.get(10).fail = true;
+
+            try
+            {
+                new ConcurrentCompositor(4).compose(parts, CANVAS_SIZE, true, null);
+                fail("Expected the part's exception");
+            }
+            catch (IllegalStateException e)
+            {
+                assertEquals("10", e.getMessage());
+            }
+        }
+
+        protected static List<TestPart> createParts(BufferedImage canvas, int count)
+        {
+            // Overlapping rectangles, some partly outside the canvas, so drawing order matters.
+            Random random = new Random(count);
+            List<TestPart> parts = new ArrayList<TestPart>();
+            for (int i = 0; i < count; i++)
+            {
+                int x = random.nextInt(CANVAS_SIZE) - 100;
+                int y = random.nextInt(CANVAS_SIZE) - 100;
+                Rectangle bounds = new Rectangle(x, y, 50 + random.nextInt(300), 50 + random.nextInt(300));
+                parts.add(new TestPart(i, canvas, bounds, new Color(random.nextInt(0xffffff))));
+            }
+
+            return parts;
+        }
+    }
+
+    protected static class TestPart implements ConcurrentCompositor.Part<Color>
+    {
+        protected final int index;
+        protected final BufferedImage canvas;
+        protected final Rectangle bounds;
+        protected final Color color;
+        protected boolean fail;
+
+        public TestPart(int index, BufferedImage canvas, Rectangle bounds, Color color)
+        {
+            this.index = index;
+            this.canvas = canvas;
+            this.bounds = bounds;
+            this.color = color;
+        }
+
+        public Color read() throws Exception
+        {
+            if (this.fail)
+                throw new IllegalStateException(Integer.toString(this.index));
+
+            Thread.sleep(1);
+            return this.color;
+        }
+
+        public int getMinRow()
+        {
+            return this.bounds.y;
+        }
+
+        public int getMaxRow()
+        {
+            return this.bounds.y + this.bounds.height;
+        }
+
+        public void draw(Color content, int minRow, int maxRow)
+        {
+            Graphics2D g = ConcurrentCompositor.createGraphics(this.canvas, minRow, maxRow);
+            try
+            {
+                g.setColor(content);
+                g.fill(this.bounds);
+            }
+            finally
+            {
+                g.dispose();
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return Integer.toString(this.index);
+        }
+    }
+}
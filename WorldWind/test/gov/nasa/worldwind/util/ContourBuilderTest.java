@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2014 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.geom.*;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.util.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class ContourBuilderTest
+{
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        protected static final double[] THRESHOLDS = {-0.5, 0.0, 0.25, 0.5, 0.25, 1.1, 5.0, Double.NaN, -0.9};
+
+        public void testSmoothValuesMatchSingleValueContours()
+        {
+            int width = 73;
+            int height = 61;
+            double[] values = new double[width * height];
+            for (int y = 0; y < height; y++)
+            {
+                for (int x = 0; x < width; x++)
+                {
+                    values[x + y * width] = Math.sin(x * 0.21) * Math.cos(y * 0.17) + 0.3 * Math.sin((x + y) * 0.05);
+                }
+            }
+
+            assertContoursMatch(width, height, values);
+        }
+
+        public void testNoisyValuesMatchSingleValueContours()
+        {
+            // Random values produce many saddle points and many contours crossing between bands of rows.
+            int width = 40;
+            int height = 97;
+            Random random = new Random(7);
+            double[] values = new double[width * height];
+            for (int i = 0; i < values.length; i++)
+            {
+                values[i] = 2 * random.nextDouble() - 1;
+            }
+
+            assertContoursMatch(width, height, values);
+        }
+
+        public void testGeographicContours()
+        {
+            int width = 30;
+            int height = 20;
+            double[] values = new double[width * height];
+            for (int y = 0; y < height; y++)
+            {
+                for (int x = 0; x < width; x++)
+                {
+                    values[x + y * width] = Math.hypot(x - 15, y - 10);
+                }
+            }
+
+            ContourBuilder builder = new ContourBuilder(width, height, values);
+            Sector sector = Sector.fromDegrees(20, 30, -110, -100);
+            List<List<List<Position>>> contours = builder.buildContourLines(new double[] {4.5, 100}, sector, 10);
+
+            assertEquals("Number of values", 2, contours.size());
+            assertEquals("Lines for value", builder.buildContourLines(4.5, sector, 10).size(), contours.get(0).size());
+            assertEquals("Lines for value outside range", 0, contours.get(1).size());
+
+            List<Position> loop = contours.get(0).get(0);
+            assertEquals("Closed loop", loop.get(0), loop.get(loop.size() - 1));
+            for (Position position : loop)
+            {
+                assertTrue("Position in sector", sector.contains(position));
+                assertEquals("Altitude", 10.0, position.getElevation());
+            }
+        }
+
+        protected static void assertContoursMatch(int width, int height, double[] values)
+        {
+            ContourBuilder builder = new ContourBuilder(width, height, values);
+
+            for (int numThreads : new int[] {1, 4})
+            {
+                List<List<double[]>> contours = builder.buildContourCoordinates(THRESHOLDS, numThreads);
+                assertEquals("Number of values", THRESHOLDS.length, contours.size());
+
+                for (int i = 0; i < THRESHOLDS.length; i++)
+                {
+                    List<String> expected = new ArrayList<String>();
+                    if (!Double.isNaN(THRESHOLDS[i]))
+                    {
+                        for (List<double[]> line : builder.buildContourLines(THRESHOLDS[i]))
+                        {
+                            double[] coords = new double[2 * line.size()];
+                            for (int j = 0; j < line.size(); j++)
+                            {
+                                coords[2 * j] = line.get(j)[0];
+                                coords[2 * j + 1] = line.get(j)[1];
+                            }
+                            expected.add(normalize(coords));
+                        }
+                    }
+
+                    List<String> actual = new ArrayList<String>();
+                    for (double[] coords : contours.get(i))
+                    {
+                        actual.add(normalize(coords));
+                    }
+
+                    Collections.sort(expected);
+                    Collections.sort(actual);
+                    assertEquals("Contours for " + THRESHOLDS[i] + " on " + numThreads + " threads", expected, actual);
+                }
+            }
+        }
+
+        /**
+         * Returns a string identifying a polyline regardless of its direction, and for closed loops regardless of the
+         * point it begins with.
+         */
+        protected static String normalize(double[] coords)
+        {
+            int n = coords.length / 2;
+            boolean closed = n > 2 && coords[0] == coords[2 * n - 2] && coords[1] == coords[2 * n - 1];
+            int numPoints = closed ? n - 1 : n;
+
+            String best = null;
+            for (int start = 0; start < (closed ? numPoints : 1); start++)
+            {
+                for (int direction = -1; direction <= 1; direction += 2)
+                {
+                    StringBuilder sb = new StringBuilder();
+                    for (int k = 0; k < numPoints; k++)
+                    {
+                        int j;
+                        if (closed)
+                            j = ((start + direction * k) % numPoints + numPoints) % numPoints;
+                        else
+                            j = direction > 0 ? k : numPoints - 1 - k;
+                        sb.append(coords[2 * j]).append(',').append(coords[2 * j + 1]).append(' ');
+                    }
+
+                    String s = (closed ? "closed " : "open ") + sb;
+                    if (best == null || s.compareTo(best) < 0)
+                        best = s;
+                }
+            }
+
+            return best;
+        }
+    }
+}
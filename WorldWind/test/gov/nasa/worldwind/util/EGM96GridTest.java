@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.io.InputStream;
+import java.nio.*;
+import java.util.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class EGM96GridTest
+{
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        protected static final String OFFSETS_FILE = "config/EGM96.dat";
+
+        public void testInstancesShareGrid() throws Exception
+        {
+            EGM96 a = new EGM96(OFFSETS_FILE);
+            EGM96 b = new EGM96(OFFSETS_FILE);
+
+            assertNotNull(a.getGrid());
+            assertSame(a.getGrid(), b.getGrid());
+            assertSame(a.getGrid(), EGM96Grid.getInstance(OFFSETS_FILE));
+        }
+
+        public void testOffsetsMatchReference() throws Exception
+        {
+            ShortBuffer posts = readPosts();
+            EGM96Grid grid = EGM96Grid.getInstance(OFFSETS_FILE);
+
+            // Include the grid posts, the poles and the seam at 360 degrees.
+            assertEquals(posts.get(0) / 100d, grid.getOffset(90, 0));
+            assertEquals(posts.get(400 * 1440 + 17) / 100d, grid.getOffset(90 - 100, 17 * 0.25));
+            assertEquals(posts.get(720 * 1440 + 1439) / 100d, grid.getOffset(-90, -0.25));
+            assertEquals(referenceOffset(posts, -90, 359.9), grid.getOffset(-90, -0.1));
+
+            Random random = new Random(1);
+            for (int i = 0; i < 10000; i++)
+            {
+                double lat = -90 + 180 * random.nextDouble();
+                double lon = -180 + 540 * random.nextDouble();
+                assertEquals(lat + ", " + lon, referenceOffset(posts, lat, lon), grid.getOffset(lat, lon));
+            }
+        }
+
+        public void testBatchOffsetsMatchSingleOffsets() throws Exception
+        {
+            EGM96Grid grid = EGM96Grid.getInstance(OFFSETS_FILE);
+
+            Random random = new Random(2);
+            double[] lats = new double[1000];
+            double[] lons = new double[1000];
+            for (int i = 0; i < lats.length; i++)
+            {
+                lats[i] = -90 + 180 * random.nextDouble();
+                lons[i] = -180 + 360 * random.nextDouble();
+            }
+
+            double[] out = new double[lats.length];
+            grid.getOffsets(lats, lons, out);
+            for (int i = 0; i < lats.length; i++)
+            {
+                assertEquals(grid.getOffset(lats[i], lons[i]), out[i]);
+            }
+        }
+
+        public void testGridOffsetsMatchSingleOffsets() throws Exception
+        {
+            EGM96Grid grid = EGM96Grid.getInstance(OFFSETS_FILE);
+
+            double[] lats = new double[37];
+            for (int i = 0; i < lats.length; i++)
+            {
+                lats[i] = 90 - 5 * i;
+            }
+            double[] lons = new double[73];
+            for (int i = 0; i < lons.length; i++)
+            {
+                lons[i] = -180 + 5.1 * i;
+            }
+
+            double[] out = new double[lats.length * lons.length];
+            grid.getGridOffsets(lats, lons, out);
+            for (int row = 0; row < lats.length; row++)
+            {
+                for (int col = 0; col < lons.length; col++)
+                {
+                    assertEquals(grid.getOffset(lats[row], lons[col]), out[row * lons.length + col]);
+                }
+            }
+        }
+
+        public void testOffsetsWithoutGrid() throws Exception
+        {
+            // An instance whose grid failed to load reports offsets of 0.
+            EGM96 egm96 = new EGM96(OFFSETS_FILE)
+            {
+                @Override
+                protected void loadOffsetFile()
+                {
+                }
+            };
+
+            double[] lats = new double[] {10, 20};
+            double[] lons = new double[] {30, 40};
+            double[] out = new double[] {1, 1, 1, 1};
+
+            egm96.getOffsets(lats, lons, out);
+            assertEquals(0d, out[0]);
+            assertEquals(0d, out[1]);
+            assertEquals(1d, out[2]);
+
+            egm96.getGridOffsets(lats, lons, out);
+            assertTrue(Arrays.equals(new double[4], out));
+            assertEquals(0d, egm96.getOffsetDegrees(10, 30));
+        }
+
+        protected static ShortBuffer readPosts() throws Exception
+        {
+            InputStream is = WWIO.openFileOrResourceStream(OFFSETS_FILE, EGM96GridTest.class);
+            try
+            {
+                return WWIO.readStreamToBuffer(is).order(ByteOrder.BIG_ENDIAN).asShortBuffer();
+            }
+            finally
+            {
+                WWIO.closeStream(is, OFFSETS_FILE);
+            }
+        }
+
+        /** Bilinear interpolation of the posts, for locations with longitudes in [-180, 360). */
+        protected static double referenceOffset(ShortBuffer posts, double lat, double lon)
+        {
+            lon = lon >= 0 ? lon : lon + 360;
+
+            int topRow = (int) ((90 - lat) / 0.25);
+            if (lat <= -90)
+                topRow = 719;
+            int bottomRow = topRow + 1;
+
+            int leftCol = (int) (lon / 0.25);
+            int rightCol = leftCol + 1;
+            if (lon >= 360 - 0.25)
+            {
+                leftCol = 1439;
+                rightCol = 0;
+            }
+
+            double latTop = 90 - topRow * 0.25;
+            double lonLeft = leftCol * 0.25;
+
+            double ul = posts.get(topRow * 1440 + leftCol);
+            double ll = posts.get(bottomRow * 1440 + leftCol);
+            double lr = posts.get(bottomRow * 1440 + rightCol);
+            double ur = posts.get(topRow * 1440 + rightCol);
+
+            double u = (lon - lonLeft) / 0.25;
+            double v = (latTop - lat) / 0.25;
+
+            double offset = (1.0 - u) * v * ll + u * v * lr + u * (1.0 - v) * ur + (1.0 - u) * (1.0 - v) * ul;
+
+            return offset / 100d;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.geom.*;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.util.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class PackedRTreeTest
+{
+    public static class Tests extends TestCase
+    {
+        protected static Sector makeSector(Random random)
+        {
+            double lat = -90 + 170 * random.nextDouble();
+            double lon = -180 + 350 * random.nextDouble();
+            return Sector.fromDegrees(lat, lat + 10 * random.nextDouble(), lon, lon + 10 * random.nextDouble());
+        }
+
+        protected static Set<Integer> findIntersecting(List<Sector> sectors, Sector testSector)
+        {
+            Set<Integer> result = new HashSet<Integer>();
+
+            for (int i = 0; i < sectors.size(); i++)
+            {
+                Sector s = sectors.get(i);
+                if (s != null
+                    && s.getMinLatitude().degrees <= testSector.getMaxLatitude().degrees
+                    && s.getMaxLatitude().degrees >= testSector.getMinLatitude().degrees
+                    && s.getMinLongitude().degrees <= testSector.getMaxLongitude().degrees
+                    && s.getMaxLongitude().degrees >= testSector.getMinLongitude().degrees)
+                    result.add(i);
+            }
+
+            return result;
+        }
+
+        /** Tests that region queries return exactly the items whose sectors intersect the region. */
+        public void testRegionQueries()
+        {
+            Random random = new Random(1);
+            List<Sector> sectors = new ArrayList<Sector>();
+            PackedRTree<Integer> tree = new PackedRTree<Integer>();
+
+            for (int i = 0; i < 5000; i++)
+            {
+                Sector sector = makeSector(random);
+                sectors.add(sector);
+                tree.add(i, sector.asDegreesArray());
+            }
+            tree.pack();
+
+            // Add unindexed items and remove some items so that queries exercise both.
+            for (int i = 5000; i < 5030; i++)
+            {
+                Sector sector = makeSector(random);
+                sectors.add(sector);
+                tree.add(i, sector.asDegreesArray());
+            }
+            for (int i = 0; i < sectors.size(); i += 7)
+            {
+                tree.remove(i);
+                sectors.set(i, null);
+            }
+
+            for (int i = 0; i < 200; i++)
+            {
+                Sector testSector = makeSector(random);
+                assertEquals("Items in region " + testSector, findIntersecting(sectors, testSector),
+                    tree.getItemsInRegion(testSector, null));
+            }
+
+            tree.pack();
+            Sector testSector = Sector.fromDegrees(-10, 10, -20, 20);
+            assertEquals("Items in region after pack", findIntersecting(sectors, testSector),
+                tree.getItemsInRegion(testSector, null));
+        }
+
+        /** Tests location queries against items stored as points and as regions. */
+        public void testLocationQueries()
+        {
+            PackedRTree<String> tree = new PackedRTree<String>(4);
+            for (int i = 0; i < 100; i++)
+            {
+                tree.add("point" + i, new double[] {i % 10, i / 10}, "p" + i);
+            }
+            tree.add("region", new double[] {-5, 5, -5, 5});
+
+            Set<String> items = tree.getItemsAtLocation(LatLon.fromDegrees(3, 4), null);
+            assertEquals("Items at location", new HashSet<String>(Arrays.asList("point43", "region")), items);
+
+            tree.removeByName("p43");
+            assertNull("Removed by name", tree.getByName("p43"));
+            assertEquals("Item count", 100, tree.getNumItems());
+            assertFalse("Contains removed", tree.contains("point43"));
+
+            tree.clear();
+            assertFalse("Has items after clear", tree.hasItems());
+            assertFalse("Iterator after clear", tree.iterator().hasNext());
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        new TestRunner().doRun(new TestSuite(Tests.class));
+    }
+}
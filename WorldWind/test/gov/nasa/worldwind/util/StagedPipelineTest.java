@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class StagedPipelineTest
+{
+    private static final int NUM_ITEMS = 500;
+
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        private final Set<Integer> completed = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+        private final Set<Integer> failed = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+        public void testItemsPassThroughStages() throws Exception
+        {
+            // Even items leave after the second stage, multiples of seven fail in the third, and the rest reach the end.
+            List<StagedPipeline.Stage<Integer>> stages = new ArrayList<StagedPipeline.Stage<Integer>>();
+            stages.add(new PassStage("First", 1));
+            stages.add(new StagedPipeline.Stage<Integer>("Second", 4)
+            {
+                public boolean process(Integer item)
+                {
+                    return item % 2 != 0;
+                }
+            });
+            stages.add(new StagedPipeline.Stage<Integer>("Third", 3)
+            {
+                public boolean process(Integer item)
+                {
+                    if (item % 7 == 0)
+                        throw new IllegalStateException();
+                    return true;
+                }
+            });
+            stages.add(new PassStage("Fourth", 2));
+
+            StagedPipeline<Integer> pipeline = this.createPipeline(stages);
+            pipeline.run(items());
+
+            int numFailed = 0;
+            for (int i = 0; i < NUM_ITEMS; i++)
+            {
+                boolean fails = i % 2 != 0 && i % 7 == 0;
+                assertEquals("Item " + i + " failed", fails, this.failed.contains(i));
+                assertEquals("Item " + i + " completed", !fails, this.completed.contains(i));
+                if (fails)
+                    numFailed++;
+            }
+
+            List<StagedPipeline.StageStatistics> statistics = pipeline.getStatistics();
+            assertEquals("Number of stages", 4, statistics.size());
+            assertEquals("First stage processed", NUM_ITEMS, statistics.get(0).getNumProcessed());
+            assertEquals("Second stage processed", NUM_ITEMS, statistics.get(1).getNumProcessed());
+            assertEquals("Third stage processed", NUM_ITEMS / 2, statistics.get(2).getNumProcessed());
+            assertEquals("Third stage failed", numFailed, statistics.get(2).getNumFailed());
+            assertEquals("Fourth stage processed", NUM_ITEMS / 2 - numFailed, statistics.get(3).getNumProcessed());
+            assertEquals("Fourth stage threads", 2, statistics.get(3).getNumThreads());
+            assertTrue("Elapsed time", statistics.get(3).getElapsedNanos() > 0);
+        }
+
+        public void testStop() throws Exception
+        {
+            final AtomicReference<StagedPipeline<Integer>> pipeline = new AtomicReference<StagedPipeline<Integer>>();
+            List<StagedPipeline.Stage<Integer>> stages = new ArrayList<StagedPipeline.Stage<Integer>>();
+            stages.add(new StagedPipeline.Stage<Integer>("Stop", 2)
+            {
+                public boolean process(Integer item)
+                {
+                    if (item == 10)
+                        pipeline.get().stop();
+                    return true;
+                }
+            });
+            stages.add(new PassStage("Pass", 2));
+
+            pipeline.set(this.createPipeline(stages));
+            pipeline.get().run(items());
+
+            assertTrue("Stopped", pipeline.get().isStopped());
+            assertTrue("Items discarded", this.completed.size() < NUM_ITEMS);
+            assertTrue("Nothing failed", this.failed.isEmpty());
+        }
+
+        public void testListenerExceptions() throws Exception
+        {
+            // A single worker with a queue of one item blocks the calling thread unless it survives the listener.
+            List<StagedPipeline.Stage<Integer>> stages = new ArrayList<StagedPipeline.Stage<Integer>>();
+            stages.add(new StagedPipeline.Stage<Integer>("Fail", 1)
+            {
+                public boolean process(Integer item)
+                {
+                    if (item % 2 == 0)
+                        throw new IllegalStateException();
+                    return false;
+                }
+            });
+
+            final AtomicInteger numNotified = new AtomicInteger();
+            StagedPipeline<Integer> pipeline = new StagedPipeline<Integer>("Test", stages, 1,
+                new StagedPipeline.Listener<Integer>()
+                {
+                    public void itemCompleted(Integer item)
+                    {
+                        numNotified.incrementAndGet();
+                        throw new IllegalStateException();
+                    }
+
+                    public void itemFailed(Integer item, String stageName, Throwable t)
+                    {
+                        numNotified.incrementAndGet();
+                        throw new IllegalStateException();
+                    }
+                });
+            pipeline.run(items());
+
+            assertEquals("Items notified", NUM_ITEMS, numNotified.get());
+            assertEquals("Items processed", NUM_ITEMS, pipeline.getStatistics().get(0).getNumProcessed());
+        }
+
+        public void testRunsOnce() throws Exception
+        {
+            List<StagedPipeline.Stage<Integer>> stages = new ArrayList<StagedPipeline.Stage<Integer>>();
+            stages.add(new PassStage("Pass", 1));
+
+            StagedPipeline<Integer> pipeline = this.createPipeline(stages);
+            pipeline.run(items());
+            try
+            {
+                pipeline.run(items());
+                fail("Pipeline ran twice");
+            }
+            catch (IllegalStateException e)
+            {
+                // Expected.
+            }
+        }
+
+        private StagedPipeline<Integer> createPipeline(List<StagedPipeline.Stage<Integer>> stages)
+        {
+            return new StagedPipeline<Integer>("Test", stages, 2, new StagedPipeline.Listener<Integer>()
+            {
+                public void itemCompleted(Integer item)
+                {
+                    completed.add(item);
+                }
+
+                public void itemFailed(Integer item, String stageName, Throwable t)
+                {
+                    failed.add(item);
+                }
+            });
+        }
+    }
+
+    private static class PassStage extends StagedPipeline.Stage<Integer>
+    {
+        public PassStage(String name, int numThreads)
+        {
+            super(name, numThreads);
+        }
+
+        public boolean process(Integer item)
+        {
+            return true;
+        }
+    }
+
+    private static List<Integer> items()
+    {
+        List<Integer> items = new ArrayList<Integer>();
+        for (int i = 0; i < NUM_ITEMS; i++)
+        {
+            items.add(i);
+        }
+
+        return items;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import gov.nasa.worldwind.geom.*;
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class TileRequestSchedulerTest
+{
+    public static void main(String[] args)
+    {
+        new TestRunner().doRun(new TestSuite(Tests.class));
+    }
+
+    protected static class TestRequest implements TileRequest
+    {
+        protected final TileKey tileKey;
+        protected final double priority;
+        protected final List<TileKey> runOrder;
+
+        public TestRequest(int level, int row, double priority, List<TileKey> runOrder)
+        {
+            this.tileKey = new TileKey(level, row, 0, "TileRequestSchedulerTest");
+            this.priority = priority;
+            this.runOrder = runOrder;
+        }
+
+        public TileKey getTileKey()
+        {
+            return this.tileKey;
+        }
+
+        public Sector getSector()
+        {
+            return Sector.fromDegrees(0, 1, 0, 1);
+        }
+
+        public double getPriority()
+        {
+            return this.priority;
+        }
+
+        public void run()
+        {
+            synchronized (this.runOrder)
+            {
+                this.runOrder.add(this.tileKey);
+            }
+        }
+    }
+
+    /** A task that blocks the scheduler's only thread until it's released. */
+    protected static class BlockingTask implements Runnable
+    {
+        protected final CountDownLatch started = new CountDownLatch(1);
+        protected final CountDownLatch release = new CountDownLatch(1);
+
+        public void run()
+        {
+            this.started.countDown();
+            try
+            {
+                this.release.await(30, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e)
+            {
+                // Let the test fail.
+            }
+        }
+    }
+
+    public static class Tests extends TestCase
+    {
+        protected TileRequestScheduler scheduler;
+        protected BlockingTask blocker;
+        protected List<TileKey> runOrder;
+
+        @Override
+        protected void setUp() throws Exception
+        {
+            this.scheduler = new TileRequestScheduler(1, 4, 2);
+            this.runOrder = new ArrayList<TileKey>();
+
+            // Occupy the scheduler's thread so that requests stay queued until the test releases it.
+            this.blocker = new BlockingTask();
+            this.scheduler.addTask(this.blocker);
+            assertTrue("Blocker started", this.blocker.started.await(30, TimeUnit.SECONDS));
+        }
+
+        @Override
+        protected void tearDown() throws Exception
+        {
+            this.blocker.release.countDown();
+            this.scheduler.shutdown(true);
+        }
+
+        protected void runQueued() throws InterruptedException
+        {
+            this.blocker.release.countDown();
+            long deadline = System.currentTimeMillis() + 30000;
+            while ((this.scheduler.getQueueDepth() > 0 || this.scheduler.hasActiveTasks())
+                && System.currentTimeMillis() < deadline)
+            {
+                Thread.sleep(10);
+            }
+        }
+
+        /** Tests that duplicate requests are coalesced and that requests run coarsest level first, then by priority. */
+        public void testCoalescingAndOrder() throws Exception
+        {
+            this.scheduler.addTask(new TestRequest(2, 0, 1, this.runOrder));
+            this.scheduler.addTask(new TestRequest(1, 0, 5, this.runOrder));
+            this.scheduler.addTask(new TestRequest(1, 1, 3, this.runOrder));
+            this.scheduler.addTask(new TestRequest(1, 0, 2, this.runOrder)); // renews and re-ranks (1, 0)
+
+            assertEquals("Queue depth", 3, this.scheduler.getQueueDepth());
+            assertEquals("Coalesced", 1, this.scheduler.getNumCoalesced());
+
+            this.runQueued();
+
+            assertEquals("Run order", Arrays.asList(new TileKey(1, 0, 0, "TileRequestSchedulerTest"),
+                new TileKey(1, 1, 0, "TileRequestSchedulerTest"), new TileKey(2, 0, 0, "TileRequestSchedulerTest")),
+                this.runOrder);
+        }
+
+        /** Tests that requests not renewed within the stale frame limit are cancelled, and renewed ones are kept. */
+        public void testStaleRequestsCancelled() throws Exception
+        {
+            TestRequest renewed = new TestRequest(1, 0, 1, this.runOrder);
+            this.scheduler.addTask(renewed);
+            this.scheduler.addTask(new TestRequest(1, 1, 1, this.runOrder));
+
+            this.scheduler.endFrame(null, null, 1);
+            for (int i = 0; i < 2; i++)
+            {
+                this.scheduler.addTask(renewed);
+                this.scheduler.endFrame(null, null, 1);
+            }
+
+            assertEquals("Queue depth", 1, this.scheduler.getQueueDepth());
+            assertEquals("Cancelled stale", 1, this.scheduler.getNumCancelledStale());
+            assertTrue("Renewed current", this.scheduler.isRequestCurrent(renewed.getTileKey()));
+            assertFalse("Cancelled not current",
+                this.scheduler.isRequestCurrent(new TileKey(1, 1, 0, "TileRequestSchedulerTest")));
+
+            this.runQueued();
+
+            assertEquals("Run order", Arrays.asList(renewed.getTileKey()), this.runOrder);
+        }
+
+        /** Tests that a full queue drops its lowest ranked request in favor of a higher ranked one. */
+        public void testFullQueueDropsLowestRanked() throws Exception
+        {
+            for (int i = 0; i < 4; i++)
+            {
+                this.scheduler.addTask(new TestRequest(3, i, i, this.runOrder));
+            }
+            this.scheduler.addTask(new TestRequest(4, 0, 0, this.runOrder)); // ranks lowest, dropped
+            this.scheduler.addTask(new TestRequest(2, 0, 0, this.runOrder)); // displaces (3, 3)
+
+            assertFalse("Scheduler full", this.scheduler.isFull());
+            assertEquals("Queue depth", 4, this.scheduler.getQueueDepth());
+            assertEquals("Dropped", 2, this.scheduler.getNumDropped());
+
+            this.runQueued();
+
+            assertEquals("Number run", 4, this.runOrder.size());
+            assertEquals("First run", new TileKey(2, 0, 0, "TileRequestSchedulerTest"), this.runOrder.get(0));
+            assertFalse("Displaced not run", this.runOrder.contains(new TileKey(3, 3, 0, "TileRequestSchedulerTest")));
+        }
+    }
+}
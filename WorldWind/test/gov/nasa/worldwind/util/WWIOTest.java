@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util;
+
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class WWIOTest
+{
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        private File dir;
+
+        @Override
+        protected void setUp() throws Exception
+        {
+            this.dir = WWIO.makeTempDir();
+            assertNotNull("Temporary directory", this.dir);
+        }
+
+        @Override
+        protected void tearDown() throws Exception
+        {
+            File[] files = this.dir.listFiles();
+            if (files != null)
+            {
+                for (File file : files)
+                {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+            //noinspection ResultOfMethodCallIgnored
+            this.dir.delete();
+        }
+
+        public void testReplaceExistingFile() throws Exception
+        {
+            File file = new File(this.dir, "tile.bil");
+            WWIO.saveBuffer(ByteBuffer.wrap(new byte[] {1, 2, 3}), file);
+
+            File tempFile = WWIO.saveBufferToSiblingTempFile(ByteBuffer.wrap(new byte[] {4, 5, 6, 7}), file);
+            assertNotNull("Temporary file", tempFile);
+            assertEquals("Temporary file directory", file.getParentFile(), tempFile.getParentFile());
+            assertEquals("Unchanged file length", 3, file.length());
+
+            assertTrue("File replaced", WWIO.replaceFile(tempFile, file));
+            assertFalse("Temporary file removed", tempFile.exists());
+
+            ByteBuffer buffer = WWIO.readFileToBuffer(file);
+            assertEquals("Replaced file length", 4, buffer.remaining());
+            assertEquals("Replaced file contents", 7, buffer.get(3));
+        }
+
+        public void testReplaceInMissingDirectory() throws Exception
+        {
+            File file = new File(new File(this.dir, "0"), "tile.bil");
+
+            File tempFile = WWIO.saveBufferToSiblingTempFile(ByteBuffer.wrap(new byte[] {1, 2}), file);
+            assertNotNull("Temporary file", tempFile);
+            assertTrue("File replaced", WWIO.replaceFile(tempFile, file));
+            assertEquals("File length", 2, file.length());
+
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+            //noinspection ResultOfMethodCallIgnored
+            file.getParentFile().delete();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2012 United States Government as represented by the Administrator of the
+ * National Aeronautics and Space Administration.
+ * All Rights Reserved.
+ */
+package gov.nasa.worldwind.util.xml;
+
+import junit.framework.*;
+import junit.textui.TestRunner;
+
+import javax.xml.namespace.QName;
+
+/**
+ * @author tag
+ * @version $Id$
+ */
+public class BasicXMLEventParserContextTest
+{
+    private static final String NAMESPACE = "http://example.com/test";
+
+    public static void main(String[] args)
+    {
+        TestSuite testSuite = new TestSuite();
+        testSuite.addTestSuite(Tests.class);
+        new TestRunner().doRun(testSuite);
+    }
+
+    public static class Tests extends TestCase
+    {
+        public void testRegisterParserReplacesResolvedParser()
+        {
+            BasicXMLEventParserContext context = new BasicXMLEventParserContext();
+            QName name = new QName(NAMESPACE, "Value");
+
+            assertNull("Unregistered name", context.getParser(name));
+
+            context.registerParser(name, new StringXMLEventParser());
+            assertTrue("String parser", context.getParser(name) instanceof StringXMLEventParser);
+
+            context.registerParser(name, new DoubleXMLEventParser());
+            assertTrue("Double parser", context.getParser(name) instanceof DoubleXMLEventParser);
+        }
+
+        public void testAddParsersReplacesResolvedParser()
+        {
+            BasicXMLEventParserContext context = new BasicXMLEventParserContext();
+            QName name = new QName(NAMESPACE, "Value");
+
+            context.addStringParsers(NAMESPACE, new String[] {"Value"});
+            assertTrue("String parser", context.getParser(name) instanceof StringXMLEventParser);
+
+            context.addIntegerParsers(NAMESPACE, new String[] {"Value"});
+            assertTrue("Integer parser", context.getParser(name) instanceof IntegerXMLEventParser);
+
+            context.addBooleanParsers(NAMESPACE, new String[] {"Value"});
+            assertTrue("Boolean parser", context.getParser(name) instanceof BooleanXMLEventParser);
+        }
+
+        public void testDefaultNamespaceChangesResolvedParser()
+        {
+            BasicXMLEventParserContext context = new BasicXMLEventParserContext();
+            context.addDoubleParsers(NAMESPACE, new String[] {"Value"});
+            QName name = new QName("Value");
+
+            // A name with no namespace resolves to the default namespace's parser only once that's the default.
+            assertNull("No default namespace", context.getParser(name));
+
+            context.setDefaultNamespaceURI(NAMESPACE);
+            assertTrue("Default namespace", context.getParser(name) instanceof DoubleXMLEventParser);
+
+            context.setDefaultNamespaceURI("http://example.com/other");
+            assertNull("Other default namespace", context.getParser(name));
+        }
+
+        public void testParsersAreNewInstances()
+        {
+            BasicXMLEventParserContext context = new BasicXMLEventParserContext();
+            QName name = new QName(NAMESPACE, "Value");
+            context.addStringParsers(NAMESPACE, new String[] {"Value"});
+
+            XMLEventParser parser = context.getParser(name);
+            assertNotSame("New instance", parser, context.getParser(name));
+            assertNotSame("Registered parser", context.getStringParser(), parser);
+        }
+    }
+}